@@ -0,0 +1,105 @@
+package org.openpodcastapi.opa.crawler;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/// Measures the throughput and allocation of [FeedParser] on large generated feeds.
+///
+/// Run with `mvn -Pbenchmark test-compile exec:exec`. The `gc` profiler reports allocation per operation.
+///
+/// - `fullParse` reads every episode, as on the first fetch of a feed
+/// - `incrementalParse` stops after the 5 newest episodes, as on a routine refresh
+/// - `domBaseline` builds a DOM tree of the same document for comparison
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeedParserBenchmark {
+    private static final int NEW_EPISODES = 5;
+
+    @Param({"1000", "10000"})
+    public int episodes;
+
+    private final FeedParser parser = new FeedParser();
+    private byte[] document;
+    private String knownGuid;
+    private DocumentBuilderFactory domFactory;
+
+    @Setup
+    public void setUp() throws Exception {
+        document = generateFeed(episodes).getBytes(StandardCharsets.UTF_8);
+        knownGuid = guid(episodes - NEW_EPISODES);
+
+        domFactory = DocumentBuilderFactory.newInstance();
+        domFactory.setNamespaceAware(true);
+        domFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+    }
+
+    @Benchmark
+    public FeedParser.ParseResult fullParse(Blackhole blackhole) throws Exception {
+        return parser.parse(new ByteArrayInputStream(document), _ -> false, blackhole::consume);
+    }
+
+    @Benchmark
+    public FeedParser.ParseResult incrementalParse(Blackhole blackhole) throws Exception {
+        return parser.parse(new ByteArrayInputStream(document), knownGuid::equals, blackhole::consume);
+    }
+
+    @Benchmark
+    public Document domBaseline() throws Exception {
+        return domFactory.newDocumentBuilder().parse(new ByteArrayInputStream(document));
+    }
+
+    /// Generates an RSS feed with the newest episode first and a few kilobytes of show notes per episode
+    private static String generateFeed(int count) {
+        final var notes = "<p>" + "In this episode we talk about feeds, parsers and podcasts. ".repeat(40) + "</p>";
+        final var start = ZonedDateTime.of(2010, 1, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+        final var feed = new StringBuilder(count * 3_000);
+
+        feed.append("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <rss version="2.0" xmlns:itunes="http://www.itunes.com/dtds/podcast-1.0.dtd" \
+                xmlns:podcast="https://podcastindex.org/namespace/1.0" \
+                xmlns:content="http://purl.org/rss/1.0/modules/content/">
+                <channel>
+                <title>Benchmark Podcast</title>
+                <link>https://example.com</link>
+                <description>A large generated feed</description>
+                <itunes:image href="https://example.com/cover.jpg"/>
+                """);
+
+        for (var i = count; i > 0; i--) {
+            feed.append("<item>")
+                    .append("<title>Episode ").append(i).append("</title>")
+                    .append("<guid isPermaLink=\"false\">").append(guid(i)).append("</guid>")
+                    .append("<pubDate>").append(DateTimeFormatter.RFC_1123_DATE_TIME.format(start.plusDays(i))).append("</pubDate>")
+                    .append("<link>https://example.com/episodes/").append(i).append("</link>")
+                    .append("<description><![CDATA[").append(notes).append("]]></description>")
+                    .append("<content:encoded><![CDATA[").append(notes).append("]]></content:encoded>")
+                    .append("<enclosure url=\"https://cdn.example.com/episodes/").append(i)
+                    .append(".mp3\" length=\"").append(i * 1_000L).append("\" type=\"audio/mpeg\"/>")
+                    .append("<itunes:duration>01:").append(i % 60).append(":00</itunes:duration>")
+                    .append("<itunes:episode>").append(i).append("</itunes:episode>")
+                    .append("<itunes:explicit>false</itunes:explicit>")
+                    .append("</item>\n");
+        }
+
+        return feed.append("</channel></rss>").toString();
+    }
+
+    private static String guid(int episode) {
+        return "benchmark-episode-" + episode;
+    }
+}
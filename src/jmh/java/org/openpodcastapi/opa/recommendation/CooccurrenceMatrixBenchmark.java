@@ -0,0 +1,59 @@
+package org.openpodcastapi.opa.recommendation;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/// Measures the latency of finding a feed's top 10 related feeds in a [CooccurrenceMatrix] of generated subscriptions.
+///
+/// Run with `mvn -Pbenchmark test-compile exec:exec`. Sample time mode reports percentiles, including p99.
+/// 200,000 users subscribe to 3 to 30 of 50,000 feeds, chosen with a skewed distribution so a few feeds have
+/// most users as subscribers and most feeds have a handful.
+///
+/// - `popular` is the most subscribed feed, whose row holds most other feeds. [RecommendationEngine] caches rows this large.
+/// - `typical` is a feed in the middle of the distribution
+/// - `niche` is a feed with few subscribers
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CooccurrenceMatrixBenchmark {
+    private static final int USERS = 200_000;
+    private static final int FEEDS = 50_000;
+    private static final int LIMIT = 10;
+    private static final int MIN_SHARED = 2;
+
+    @Param({"popular", "typical", "niche"})
+    public String feed;
+
+    private final CooccurrenceMatrix matrix = new CooccurrenceMatrix();
+    private int feedId;
+
+    @Setup
+    public void setUp() {
+        final var random = new Random(42);
+        for (var user = 0; user < USERS; user++) {
+            // Cubing a uniform value skews the choice towards the first feeds
+            final var feeds = random.ints(3 + random.nextInt(28))
+                    .map(_ -> 1 + (int) (Math.pow(random.nextDouble(), 3) * FEEDS))
+                    .distinct()
+                    .toArray();
+            matrix.apply(feeds, new int[0], 1);
+        }
+
+        feedId = switch (feed) {
+            case "popular" -> 1;
+            case "typical" -> 2_000;
+            case "niche" -> 30_000;
+            default -> throw new IllegalArgumentException(feed);
+        };
+    }
+
+    @Benchmark
+    public CooccurrenceMatrix.Neighbour[] neighbours() {
+        return matrix.neighbours(feedId, LIMIT, MIN_SHARED);
+    }
+}
@@ -0,0 +1,81 @@
+package org.openpodcastapi.opa.search;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/// Measures the query latency of [InvertedIndex] over 1M generated episode titles.
+///
+/// Run with `mvn -Pbenchmark test-compile exec:exec`. Sample time mode reports percentiles, including p99.
+/// Titles are 4 to 8 words drawn from a 50,000 word vocabulary with a skewed distribution, so a few words are
+/// in most titles and most words are rare, as in real titles. Episodes belong to 20,000 feeds.
+///
+/// - `rare` is one rare word, matching a few dozen titles
+/// - `common` is the most common word, matching about one title in six
+/// - `twoTerms` is a common word followed by a less common one, intersecting a long and a short postings list
+/// - `shortPrefix` is a prefix that expands to thousands of words, matching about half of the titles
+/// - `subscribed` is the short prefix searched within the episodes of 500 feeds
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InvertedIndexBenchmark {
+    private static final int EPISODES = 1_000_000;
+    private static final int FEEDS = 20_000;
+    private static final int VOCABULARY = 50_000;
+    private static final int SUBSCRIPTIONS = 500;
+    private static final int LIMIT = 20;
+
+    @Param({"rare", "common", "twoTerms", "shortPrefix", "subscribed"})
+    public String query;
+
+    private final InvertedIndex index = new InvertedIndex();
+    private SearchQuery parsed;
+    private long[] groupFilter;
+
+    @Setup
+    public void setUp() {
+        final var random = new Random(42);
+        final List<InvertedIndex.Document> batch = new ArrayList<>();
+        for (var id = 0L; id < EPISODES; id++) {
+            final Map<String, Integer> terms = new HashMap<>();
+            final var words = 4 + random.nextInt(5);
+            for (var i = 0; i < words; i++) {
+                // Cubing a uniform value skews the choice towards the start of the vocabulary
+                terms.put(word((int) (Math.pow(random.nextDouble(), 3) * VOCABULARY)), 1);
+            }
+            batch.add(new InvertedIndex.Document(id, id % FEEDS, id, terms));
+            if (batch.size() == 10_000) {
+                index.putAll(batch);
+                batch.clear();
+            }
+        }
+
+        parsed = SearchQuery.parse(switch (query) {
+            case "rare" -> word(30_000);
+            case "common" -> word(0);
+            case "twoTerms" -> word(0) + " " + word(2_000);
+            case "shortPrefix", "subscribed" -> word(1);
+            default -> throw new IllegalArgumentException(query);
+        });
+        groupFilter = query.equals("subscribed") ? LongStream.range(0, SUBSCRIPTIONS).map(feed -> feed * (FEEDS / SUBSCRIPTIONS)).toArray() : null;
+    }
+
+    @Benchmark
+    public long[] search() {
+        return index.search(parsed, groupFilter, LIMIT);
+    }
+
+    /// Words are numbered in base 36 after a fixed letter, so words sharing leading digits share a prefix
+    private static String word(int number) {
+        return "w" + Integer.toString(number, 36);
+    }
+}
@@ -0,0 +1,108 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.openpodcastapi.opa.feed.FeedUrlUtility;
+import org.slf4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Recalculates the canonical URL hashes of feeds with more than one query parameter.
+///
+/// Canonical URLs now list query parameters sorted by name, so feeds stored before then may have a hash that no longer matches
+/// the hash of their own URL. Only URLs containing `&` can change. Work is committed in batches, and every step is idempotent.
+///
+/// A feed whose new hash already belongs to another feed keeps its old hash. Both feeds were requested by different spellings
+/// of the same URL, and new requests for either spelling now resolve to the feed holding the hash. The other feed stays
+/// reachable by its UUID, and no subscriptions are moved.
+public class V19__Rehash_feed_urls_with_sorted_query_parameters extends BaseJavaMigration {
+    private static final Logger log = getLogger(V19__Rehash_feed_urls_with_sorted_query_parameters.class);
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String SELECT = """
+            SELECT id, feed_url, feed_url_hash FROM feeds
+            WHERE id > ? AND feed_url LIKE '%&%'
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    private static final String UPDATE = """
+            UPDATE feeds SET feed_url_hash = ?
+            WHERE id = ?
+              AND NOT EXISTS (SELECT 1 FROM feeds o WHERE o.feed_url_hash = ?)
+            """;
+
+    /// Runs outside a single transaction so that each batch can be committed on its own
+    ///
+    /// @return `false`
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        final var connection = context.getConnection();
+        V4__Deduplicate_feeds_by_url.requirePostgres(connection);
+        final var autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+
+        try {
+            rehash(connection);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /// Updates the hash of every feed whose canonical URL changed, one batch per transaction
+    ///
+    /// @param connection the migration connection
+    private void rehash(Connection connection) throws SQLException {
+        var rehashed = 0;
+        var kept = 0;
+        var lastId = 0L;
+
+        try (var select = connection.prepareStatement(SELECT);
+             var update = connection.prepareStatement(UPDATE)) {
+            while (true) {
+                select.setLong(1, lastId);
+                select.setInt(2, BATCH_SIZE);
+
+                var rows = 0;
+                try (var feeds = select.executeQuery()) {
+                    while (feeds.next()) {
+                        rows++;
+                        lastId = feeds.getLong(1);
+                        final var hash = FeedUrlUtility.hash(feeds.getString(2));
+                        if (Arrays.equals(hash, feeds.getBytes(3))) {
+                            continue;
+                        }
+
+                        // Updated one at a time, so a feed in the same batch taking the hash is seen by the next
+                        update.setBytes(1, hash);
+                        update.setLong(2, lastId);
+                        update.setBytes(3, hash);
+                        if (update.executeUpdate() == 1) {
+                            rehashed++;
+                        } else {
+                            kept++;
+                        }
+                    }
+                }
+
+                connection.commit();
+                if (rows < BATCH_SIZE) {
+                    log.info("Rehashed {} feed URLs with reordered query parameters, and kept the hashes of {} feeds sharing a URL with another feed", rehashed, kept);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package db.migration;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.openpodcastapi.opa.feed.FeedUrlUtility;
+import org.slf4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Adds the canonical feed URL hash column and merges feeds that share a canonical URL.
+///
+/// Hashes are calculated in Java with [FeedUrlUtility] so that they match the hashes calculated by the application.
+/// Work is committed in batches so that large tables aren't locked for the whole migration.
+/// Every step is idempotent, so a migration interrupted between batches can be rerun.
+///
+/// When feeds are merged, the oldest feed is kept.
+/// The UUIDs of the removed feeds are recorded as aliases of the kept feed, and their subscriptions are moved to it.
+/// If a user was subscribed to more than one of the merged feeds, the subscriptions are combined into one that stays active if any of them was active.
+///
+/// The statements are written for PostgreSQL, like the rest of the migrations, and the migration refuses to run on any other database.
+/// Databases without Flyway, such as the H2 database of the tests, get the final schema from Hibernate instead.
+public class V4__Deduplicate_feeds_by_url extends BaseJavaMigration {
+    private static final Logger log = getLogger(V4__Deduplicate_feeds_by_url.class);
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String[] PREPARE = {
+            "ALTER TABLE feeds ADD COLUMN IF NOT EXISTS feed_url_hash BYTEA",
+            """
+            CREATE TABLE IF NOT EXISTS feed_aliases
+            (
+                uuid       UUID                        NOT NULL,
+                feed_id    BIGINT                      NOT NULL,
+                created_at TIMESTAMP WITHOUT TIME ZONE,
+                CONSTRAINT pk_feed_aliases PRIMARY KEY (uuid),
+                CONSTRAINT FK_FEED_ALIASES_ON_FEED FOREIGN KEY (feed_id) REFERENCES feeds (id)
+            )
+            """,
+            "CREATE INDEX IF NOT EXISTS feed_aliases_feed_id ON feed_aliases (feed_id)",
+            "CREATE INDEX IF NOT EXISTS feeds_feed_url_hash_migration ON feeds (feed_url_hash)",
+            "CREATE TEMPORARY TABLE IF NOT EXISTS feed_merges (dup_id BIGINT PRIMARY KEY, keep_id BIGINT NOT NULL)"
+    };
+
+    private static final String SELECT_MERGES = """
+            INSERT INTO feed_merges (dup_id, keep_id)
+            SELECT f.id, k.keep_id
+            FROM feeds f
+                     JOIN (SELECT feed_url_hash, MIN(id) AS keep_id
+                           FROM feeds
+                           GROUP BY feed_url_hash
+                           HAVING COUNT(*) > 1) k ON k.feed_url_hash = f.feed_url_hash
+            WHERE f.id <> k.keep_id
+            ORDER BY f.id
+            LIMIT ?
+            """;
+
+    private static final String[] MERGE = {
+            // Invalidate cached pages and entity tags of every affected user
+            """
+            UPDATE users SET subscriptions_version = subscriptions_version + 1
+            WHERE id IN (SELECT s.user_id FROM subscriptions s JOIN feed_merges m ON s.feed_id = m.dup_id)
+            """,
+            // Keep the removed feeds' UUIDs resolvable
+            """
+            INSERT INTO feed_aliases (uuid, feed_id, created_at)
+            SELECT f.uuid, m.keep_id, now() FROM feeds f JOIN feed_merges m ON f.id = m.dup_id
+            ON CONFLICT DO NOTHING
+            """,
+            "UPDATE feed_aliases a SET feed_id = m.keep_id FROM feed_merges m WHERE a.feed_id = m.dup_id",
+            // Combine a user's subscriptions to several removed feeds into the earliest one
+            """
+            UPDATE subscriptions d
+            SET unsubscribed_at = g.unsubscribed_at
+            FROM (SELECT MIN(s.id) AS first_id,
+                         CASE WHEN BOOL_OR(s.unsubscribed_at IS NULL) THEN NULL ELSE MAX(s.unsubscribed_at) END AS unsubscribed_at
+                  FROM subscriptions s
+                           JOIN feed_merges m ON s.feed_id = m.dup_id
+                  GROUP BY s.user_id, m.keep_id
+                  HAVING COUNT(*) > 1) g
+            WHERE d.id = g.first_id
+            """,
+            """
+            DELETE FROM subscriptions d
+            USING feed_merges m, subscriptions o, feed_merges mo
+            WHERE d.feed_id = m.dup_id
+              AND o.feed_id = mo.dup_id
+              AND mo.keep_id = m.keep_id
+              AND o.user_id = d.user_id
+              AND o.id < d.id
+            """,
+            // Combine subscriptions to a removed feed with an existing subscription to the kept feed
+            """
+            UPDATE subscriptions k
+            SET unsubscribed_at = CASE WHEN k.unsubscribed_at IS NULL OR d.unsubscribed_at IS NULL THEN NULL
+                                       ELSE GREATEST(k.unsubscribed_at, d.unsubscribed_at) END,
+                created_at      = LEAST(k.created_at, d.created_at)
+            FROM subscriptions d JOIN feed_merges m ON d.feed_id = m.dup_id
+            WHERE k.feed_id = m.keep_id
+              AND k.user_id = d.user_id
+            """,
+            """
+            DELETE FROM subscriptions d
+            USING feed_merges m, subscriptions k
+            WHERE d.feed_id = m.dup_id
+              AND k.feed_id = m.keep_id
+              AND k.user_id = d.user_id
+            """,
+            "UPDATE subscriptions d SET feed_id = m.keep_id FROM feed_merges m WHERE d.feed_id = m.dup_id",
+            "DELETE FROM feeds f USING feed_merges m WHERE f.id = m.dup_id",
+            "DELETE FROM feed_merges"
+    };
+
+    private static final String[] FINISH = {
+            "DROP TABLE IF EXISTS feed_merges",
+            "DROP INDEX IF EXISTS feeds_feed_url_hash_migration",
+            "ALTER TABLE feeds ALTER COLUMN feed_url_hash SET NOT NULL",
+            "CREATE UNIQUE INDEX IF NOT EXISTS uc_feeds_feed_url_hash ON feeds (feed_url_hash)"
+    };
+
+    /// Runs outside a single transaction so that each batch can be committed on its own
+    ///
+    /// @return `false`
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        final var connection = context.getConnection();
+        requirePostgres(connection);
+        final var autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+
+        try {
+            execute(connection, PREPARE);
+            connection.commit();
+
+            final var hashed = hashFeedUrls(connection);
+            final var merged = mergeDuplicates(connection);
+            log.info("Hashed {} feed URLs and merged {} duplicate feeds", hashed, merged);
+
+            execute(connection, FINISH);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /// Fills in the hash of every feed that doesn't have one, one batch per transaction
+    ///
+    /// @param connection the migration connection
+    /// @return the number of feeds hashed
+    private int hashFeedUrls(Connection connection) throws SQLException {
+        var total = 0;
+        var lastId = 0L;
+
+        try (var select = connection.prepareStatement("SELECT id, feed_url FROM feeds WHERE id > ? AND feed_url_hash IS NULL ORDER BY id LIMIT ?");
+             var update = connection.prepareStatement("UPDATE feeds SET feed_url_hash = ? WHERE id = ?")) {
+            while (true) {
+                select.setLong(1, lastId);
+                select.setInt(2, BATCH_SIZE);
+
+                final List<Long> ids = new ArrayList<>();
+                try (var rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        final var id = rows.getLong(1);
+                        ids.add(id);
+                        update.setBytes(1, FeedUrlUtility.hash(rows.getString(2)));
+                        update.setLong(2, id);
+                        update.addBatch();
+                    }
+                }
+
+                if (ids.isEmpty()) {
+                    return total;
+                }
+
+                update.executeBatch();
+                connection.commit();
+                total += ids.size();
+                lastId = ids.getLast();
+            }
+        }
+    }
+
+    /// Merges feeds that share a hash into the oldest feed, one batch per transaction
+    ///
+    /// @param connection the migration connection
+    /// @return the number of feeds removed
+    private int mergeDuplicates(Connection connection) throws SQLException {
+        var total = 0;
+
+        try (var select = connection.prepareStatement(SELECT_MERGES)) {
+            select.setInt(1, BATCH_SIZE);
+            while (true) {
+                final var batch = select.executeUpdate();
+                if (batch == 0) {
+                    connection.commit();
+                    return total;
+                }
+
+                execute(connection, MERGE);
+                connection.commit();
+                total += batch;
+            }
+        }
+    }
+
+    /// Fails the migration before any statement runs unless the database is PostgreSQL
+    ///
+    /// @param connection the migration connection
+    static void requirePostgres(Connection connection) throws SQLException {
+        final var product = connection.getMetaData().getDatabaseProductName();
+        if (!"PostgreSQL".equals(product)) {
+            throw new FlywayException("migrations are written for PostgreSQL and can't run on " + product);
+        }
+    }
+
+    private static void execute(Connection connection, String[] statements) throws SQLException {
+        try (var statement = connection.createStatement()) {
+            for (var sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
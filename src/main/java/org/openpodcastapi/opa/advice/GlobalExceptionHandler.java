@@ -3,6 +3,8 @@ package org.openpodcastapi.opa.advice;
 import jakarta.persistence.EntityNotFoundException;
 import org.jspecify.annotations.NonNull;
 import org.openpodcastapi.opa.exceptions.ValidationErrorResponse;
+import org.openpodcastapi.opa.idempotency.IdempotencyKeyReusedException;
+import org.openpodcastapi.opa.idempotency.IdempotentRequestInProgressException;
 import org.slf4j.Logger;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
@@ -53,6 +55,24 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(exception.getMessage());
     }
 
+    /// Returns a 422 error when an idempotency key is reused for a different request
+    ///
+    /// @param exception the thrown exception
+    /// @return a response containing the error message
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<@NonNull String> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException exception) {
+        return ResponseEntity.unprocessableContent().body(exception.getMessage());
+    }
+
+    /// Returns a 409 error when a request with the same idempotency key is still being processed
+    ///
+    /// @param exception the thrown exception
+    /// @return a response containing the error message
+    @ExceptionHandler(IdempotentRequestInProgressException.class)
+    public ResponseEntity<@NonNull String> handleIdempotentRequestInProgressException(IdempotentRequestInProgressException exception) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(exception.getMessage());
+    }
+
     /// Returns a 400 error when invalid arguments are passed to an endpoint
     ///
     /// @param exception the thrown exception
@@ -0,0 +1,135 @@
+package org.openpodcastapi.opa.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/// An append-only segment file of the feed archive.
+///
+/// Records are written through the file channel and read through read-only memory mappings of the file.
+/// The file is mapped in windows that start every [#WINDOW_BYTES] bytes and span two of those chunks,
+/// so any record no longer than a chunk lies within the window it starts in.
+/// A window is mapped once the file covers it, and only the window at the end of the file is mapped again
+/// when a read reaches past it, so records appended after the last read are picked up without remapping the whole file.
+/// Longer records are read through a mapping of their own.
+/// Appends must be serialized by the caller. Reads are safe from any thread.
+final class ArchiveSegment implements AutoCloseable {
+    /// The distance between the starts of consecutive windows
+    static final int WINDOW_BYTES = 4 * 1024 * 1024;
+
+    private final int id;
+    private final Path path;
+    private final FileChannel channel;
+    private final ReentrantLock mapLock = new ReentrantLock();
+    private final Map<Integer, MappedByteBuffer> windows = new ConcurrentHashMap<>();
+    private volatile long size;
+
+    private ArchiveSegment(int id, Path path, FileChannel channel) throws IOException {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    /// Opens a segment file, creating it if it doesn't exist
+    ///
+    /// @param id   the number of the segment
+    /// @param path the path of the segment file
+    /// @return the opened segment
+    /// @throws IOException if the file can't be opened
+    static ArchiveSegment open(int id, Path path) throws IOException {
+        return new ArchiveSegment(id, path, FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+    }
+
+    /// @return the number of the segment
+    int id() {
+        return id;
+    }
+
+    /// @return the path of the segment file
+    Path path() {
+        return path;
+    }
+
+    /// @return the size of the segment in bytes
+    long size() {
+        return size;
+    }
+
+    /// Appends a record to the end of the segment
+    ///
+    /// @param record the record to write
+    /// @return the offset of the record
+    /// @throws IOException if the write fails
+    int append(ByteBuffer record) throws IOException {
+        final var offset = size;
+        var position = offset;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        size = position;
+        return (int) offset;
+    }
+
+    /// Returns a read-only view of part of the segment
+    ///
+    /// @param offset the offset of the first byte
+    /// @param length the number of bytes
+    /// @return a buffer over the requested bytes
+    /// @throws IOException if the file can't be mapped
+    ByteBuffer slice(int offset, int length) throws IOException {
+        if (length > WINDOW_BYTES) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+
+        final var index = offset / WINDOW_BYTES;
+        final var start = (long) index * WINDOW_BYTES;
+        var window = windows.get(index);
+        if (window == null || offset + length - start > window.capacity()) {
+            mapLock.lock();
+            try {
+                window = windows.get(index);
+                if (window == null || offset + length - start > window.capacity()) {
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, 2L * WINDOW_BYTES));
+                    windows.put(index, window);
+                }
+            } finally {
+                mapLock.unlock();
+            }
+        }
+        return window.slice((int) (offset - start), length);
+    }
+
+    /// Discards everything after a given length, such as a record cut short by a crash
+    ///
+    /// @param length the length to keep
+    /// @throws IOException if the file can't be truncated
+    void truncate(long length) throws IOException {
+        mapLock.lock();
+        try {
+            channel.truncate(length);
+            size = length;
+            windows.clear();
+        } finally {
+            mapLock.unlock();
+        }
+    }
+
+    /// Flushes appended records to the storage device
+    ///
+    /// @throws IOException if the flush fails
+    void force() throws IOException {
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,535 @@
+package org.openpodcastapi.opa.archive;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// A content-addressed archive of fetched feed documents.
+///
+/// Each document is identified by the SHA-256 hash of its content, compressed with [Deflater],
+/// and appended to a segment file that is read back through a memory mapping.
+/// A document that is already stored isn't stored again, whichever feed it came from.
+///
+/// The archive tracks the latest document of every feed, so a refetch that returns the same document can be recognised without parsing it.
+/// A feed that no longer exists is removed with [#forget(long)], which appends a record saying so.
+/// Segments are append-only: documents that are no longer the latest of any feed stay on disk until [#compact(boolean)]
+/// copies the live documents into new segments and deletes the old ones.
+/// Both indexes are held in memory and rebuilt from the segments on startup. A record cut short by a crash is discarded.
+@Component
+public class FeedArchive implements AutoCloseable {
+    private static final Logger log = getLogger(FeedArchive.class);
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{8})\\.dat");
+
+    private static final byte BODY = 1;
+    private static final byte REFERENCE = 2;
+    private static final byte FORGET = 3;
+    /// Type, feed ID, timestamp and hash. The hash of a record forgetting a feed is zero.
+    private static final int REFERENCE_BYTES = 1 + 8 + 8 + 32;
+    /// A reference followed by the raw length, compressed length and CRC-32 of the compressed content
+    private static final int BODY_HEADER_BYTES = REFERENCE_BYTES + 4 + 4 + 4;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long segmentBytes;
+    private final int compressionLevel;
+    private final double compactionThreshold;
+
+    /// Serializes appends, index updates and compaction
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Map<Integer, ArchiveSegment> segments = new ConcurrentHashMap<>();
+    private final Map<Long, ByteBuffer> latest = new ConcurrentHashMap<>();
+    private final Map<ByteBuffer, Integer> references = new HashMap<>();
+    private volatile Map<ByteBuffer, Location> locations = new ConcurrentHashMap<>();
+    private ArchiveSegment active;
+    private volatile long totalBytes;
+    private volatile long liveBytes;
+
+    private final Counter unchanged;
+    private final Counter deduplicated;
+    private final Counter stored;
+
+    /// Required-args constructor
+    ///
+    /// @param meterRegistry       the registry used to publish archive metrics
+    /// @param enabled             whether documents are archived
+    /// @param directory           the directory holding the segment files
+    /// @param segmentBytes        the size at which a segment is closed and a new one started
+    /// @param compressionLevel    the [Deflater] compression level
+    /// @param compactionThreshold the share of the archive that must be dead before a compaction runs
+    public FeedArchive(MeterRegistry meterRegistry,
+                       @Value("${archive.enabled:true}") boolean enabled,
+                       @Value("${archive.directory:data/feed-archive}") Path directory,
+                       @Value("${archive.segment-bytes:67108864}") long segmentBytes,
+                       @Value("${archive.compression-level:6}") int compressionLevel,
+                       @Value("${archive.compaction-threshold:0.5}") double compactionThreshold) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentBytes = Math.min(segmentBytes, Integer.MAX_VALUE);
+        this.compressionLevel = compressionLevel;
+        this.compactionThreshold = compactionThreshold;
+
+        this.unchanged = Counter.builder("archive.stores").tag("result", "unchanged").register(meterRegistry);
+        this.deduplicated = Counter.builder("archive.stores").tag("result", "deduplicated").register(meterRegistry);
+        this.stored = Counter.builder("archive.stores").tag("result", "stored").register(meterRegistry);
+        Gauge.builder("archive.documents", this, archive -> archive.locations.size()).register(meterRegistry);
+        Gauge.builder("archive.size", this, archive -> archive.totalBytes).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("archive.live.size", this, archive -> archive.liveBytes).baseUnit("bytes").register(meterRegistry);
+    }
+
+    /// Opens the segment files and rebuilds the indexes from them
+    ///
+    /// @throws IOException if the directory or a segment can't be read
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        Files.createDirectories(directory);
+        final List<Integer> ids = new ArrayList<>();
+        try (var files = Files.list(directory)) {
+            files.forEach(file -> {
+                final var matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    ids.add(Integer.parseInt(matcher.group(1)));
+                }
+            });
+        }
+        ids.sort(null);
+
+        writeLock.lock();
+        try {
+            for (final var id : ids) {
+                final var segment = ArchiveSegment.open(id, segmentPath(id));
+                segments.put(id, segment);
+                replay(segment);
+                totalBytes += segment.size();
+                active = segment;
+            }
+            if (active == null) {
+                active = newSegment(1);
+            }
+            recount();
+        } finally {
+            writeLock.unlock();
+        }
+
+        log.info("Opened feed archive with {} documents for {} feeds in {} segments", locations.size(), latest.size(), segments.size());
+    }
+
+    /// Stores the latest document of a feed
+    ///
+    /// @param feedId   the database ID of the feed
+    /// @param document the raw feed document
+    /// @return the hash of the document and whether it differs from the feed's previous document
+    /// @throws IOException if the document can't be written
+    public StoreResult store(long feedId, byte[] document) throws IOException {
+        final var hash = sha256(document);
+        final var key = ByteBuffer.wrap(hash);
+        if (!enabled) {
+            return new StoreResult(hash, true);
+        }
+        if (key.equals(latest.get(feedId))) {
+            unchanged.increment();
+            return new StoreResult(hash, false);
+        }
+
+        // Compress outside the lock unless another feed already stored the same document
+        final var compressed = locations.containsKey(key) ? null : deflate(document);
+
+        writeLock.lock();
+        try {
+            if (key.equals(latest.get(feedId))) {
+                unchanged.increment();
+                return new StoreResult(hash, false);
+            }
+
+            final var now = System.currentTimeMillis();
+            if (locations.containsKey(key)) {
+                append(reference(REFERENCE, feedId, now, hash).flip());
+                deduplicated.increment();
+            } else {
+                final var body = compressed != null ? compressed : deflate(document);
+                final var location = append(body(feedId, now, hash, document.length, body));
+                locations.put(key, location);
+                stored.increment();
+            }
+            point(feedId, key);
+            return new StoreResult(hash, true);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /// Reads a document by its hash
+    ///
+    /// @param hash the SHA-256 hash of the document
+    /// @return the raw document, if it's stored
+    /// @throws IOException if the document can't be read or is corrupt
+    public Optional<byte[]> read(byte[] hash) throws IOException {
+        // A compaction may move the document between the two lookups, in which case the second attempt finds its new location
+        for (var attempt = 0; attempt < 2; attempt++) {
+            final var location = locations.get(ByteBuffer.wrap(hash));
+            if (location == null) {
+                return Optional.empty();
+            }
+
+            final var segment = segments.get(location.segment());
+            if (segment != null) {
+                return Optional.of(inflate(segment.slice(location.offset(), location.length()), location.rawLength()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /// Reads the latest document of a feed
+    ///
+    /// @param feedId the database ID of the feed
+    /// @return the raw document, if one is stored
+    /// @throws IOException if the document can't be read or is corrupt
+    public Optional<byte[]> readLatest(long feedId) throws IOException {
+        final var hash = latest.get(feedId);
+        return hash == null ? Optional.empty() : read(hash.array());
+    }
+
+    /// Returns the hash of the latest document of a feed
+    ///
+    /// @param feedId the database ID of the feed
+    /// @return the SHA-256 hash, if a document is stored
+    public Optional<byte[]> latestHash(long feedId) {
+        return Optional.ofNullable(latest.get(feedId)).map(ByteBuffer::array);
+    }
+
+    /// Removes a feed from the archive, so its latest document is no longer kept by compaction
+    ///
+    /// @param feedId the database ID of the feed
+    /// @return whether the archive held a document for the feed
+    /// @throws IOException if the removal can't be written
+    public boolean forget(long feedId) throws IOException {
+        if (!enabled) {
+            return false;
+        }
+
+        writeLock.lock();
+        try {
+            final var previous = latest.remove(feedId);
+            if (previous == null) {
+                return false;
+            }
+
+            append(reference(FORGET, feedId, System.currentTimeMillis(), new byte[32]).flip());
+            release(previous);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /// @return the database IDs of the feeds with a document in the archive
+    public Set<Long> feedIds() {
+        return Set.copyOf(latest.keySet());
+    }
+
+    /// Copies the latest document of every feed into new segments and deletes the old segments.
+    /// Does nothing unless the dead share of the archive has reached the compaction threshold.
+    ///
+    /// @param force whether to compact regardless of the threshold
+    /// @return the number of bytes reclaimed
+    /// @throws IOException if the new segments can't be written
+    public long compact(boolean force) throws IOException {
+        if (!enabled) {
+            return 0;
+        }
+
+        writeLock.lock();
+        try {
+            final var before = totalBytes;
+            if (!force && (before == 0 || (before - liveBytes) < compactionThreshold * before)) {
+                return 0;
+            }
+
+            final var old = new ArrayList<>(segments.values());
+            final var oldLocations = locations;
+            final Map<ByteBuffer, Location> copied = new ConcurrentHashMap<>();
+            active = newSegment(old.stream().mapToInt(ArchiveSegment::id).max().orElse(0) + 1);
+            totalBytes = 0;
+
+            final var now = System.currentTimeMillis();
+            for (final var entry : latest.entrySet()) {
+                final var key = entry.getValue();
+                if (copied.containsKey(key)) {
+                    append(reference(REFERENCE, entry.getKey(), now, key.array()).flip());
+                    continue;
+                }
+
+                final var location = oldLocations.get(key);
+                final var record = segments.get(location.segment()).slice(location.offset(), location.length());
+                // Rewrite the header so the copy belongs to this feed, and keep the compressed content as it is
+                final var copy = ByteBuffer.allocate(location.length())
+                        .put(record)
+                        .putLong(1, entry.getKey())
+                        .putLong(9, now)
+                        .flip();
+                copied.put(key, append(copy));
+            }
+
+            for (final var segment : segments.values()) {
+                segment.force();
+            }
+            locations = copied;
+
+            for (final var segment : old) {
+                segments.remove(segment.id());
+                segment.close();
+                Files.deleteIfExists(segment.path());
+            }
+            recount();
+
+            log.info("Compacted feed archive from {} to {} bytes", before, totalBytes);
+            return before - totalBytes;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /// @return whether documents are archived
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /// @return the total size of the segment files in bytes
+    public long size() {
+        return totalBytes;
+    }
+
+    @Override
+    @PreDestroy
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            for (final var segment : segments.values()) {
+                segment.force();
+                segment.close();
+            }
+            segments.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /// Reads the records of a segment into the indexes, and truncates a record cut short by a crash
+    private void replay(ArchiveSegment segment) throws IOException {
+        final var size = (int) segment.size();
+        final var buffer = size == 0 ? ByteBuffer.allocate(0) : segment.slice(0, size);
+        var offset = 0;
+        while (size - offset >= REFERENCE_BYTES) {
+            final var type = buffer.get(offset);
+            final var feedId = buffer.getLong(offset + 1);
+            final var hash = new byte[32];
+            buffer.get(offset + 17, hash);
+            final var key = ByteBuffer.wrap(hash);
+
+            if (type == REFERENCE) {
+                if (locations.containsKey(key)) {
+                    latest.put(feedId, key);
+                }
+                offset += REFERENCE_BYTES;
+            } else if (type == FORGET) {
+                latest.remove(feedId);
+                offset += REFERENCE_BYTES;
+            } else if (type == BODY && size - offset >= BODY_HEADER_BYTES) {
+                final var rawLength = buffer.getInt(offset + REFERENCE_BYTES);
+                final var compressedLength = buffer.getInt(offset + REFERENCE_BYTES + 4);
+                final var crc = buffer.getInt(offset + REFERENCE_BYTES + 8);
+                if (compressedLength < 0 || size - offset - BODY_HEADER_BYTES < compressedLength
+                        || crc != crc32(buffer.slice(offset + BODY_HEADER_BYTES, compressedLength))) {
+                    break;
+                }
+
+                final var length = BODY_HEADER_BYTES + compressedLength;
+                locations.put(key, new Location(segment.id(), offset, length, rawLength));
+                latest.put(feedId, key);
+                offset += length;
+            } else {
+                break;
+            }
+        }
+
+        if (offset < size) {
+            log.warn("Discarding {} bytes of incomplete records at the end of {}", size - offset, segment.path());
+            segment.truncate(offset);
+        }
+    }
+
+    /// Rebuilds the reference counts and the live size from the index of latest documents
+    private void recount() {
+        references.clear();
+        for (final var key : latest.values()) {
+            references.merge(key, 1, Integer::sum);
+        }
+        liveBytes = references.keySet().stream().mapToLong(key -> locations.get(key).length()).sum();
+    }
+
+    /// Points a feed at a new latest document and updates the reference counts
+    private void point(long feedId, ByteBuffer key) {
+        final var previous = latest.put(feedId, key);
+        if (references.merge(key, 1, Integer::sum) == 1) {
+            liveBytes += locations.get(key).length();
+        }
+        if (previous != null) {
+            release(previous);
+        }
+    }
+
+    /// Drops a feed's reference to a document and updates the live size when it was the last one
+    private void release(ByteBuffer key) {
+        if (references.merge(key, -1, Integer::sum) == 0) {
+            references.remove(key);
+            liveBytes -= locations.get(key).length();
+        }
+    }
+
+    /// Appends a record to the active segment, starting a new segment when the active one is full
+    private Location append(ByteBuffer record) throws IOException {
+        final var length = record.remaining();
+        if (active.size() > 0 && active.size() + length > segmentBytes) {
+            active.force();
+            active = newSegment(active.id() + 1);
+        }
+
+        final var rawLength = record.get(0) == BODY ? record.getInt(REFERENCE_BYTES) : 0;
+        final var offset = active.append(record);
+        totalBytes += length;
+        return new Location(active.id(), offset, length, rawLength);
+    }
+
+    private ArchiveSegment newSegment(int id) throws IOException {
+        final var segment = ArchiveSegment.open(id, segmentPath(id));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private Path segmentPath(int id) {
+        return directory.resolve("segment-%08d.dat".formatted(id));
+    }
+
+    private static ByteBuffer reference(byte type, long feedId, long timestamp, byte[] hash) {
+        return ByteBuffer.allocate(type == BODY ? BODY_HEADER_BYTES : REFERENCE_BYTES)
+                .put(type)
+                .putLong(feedId)
+                .putLong(timestamp)
+                .put(hash);
+    }
+
+    private static ByteBuffer body(long feedId, long timestamp, byte[] hash, int rawLength, byte[] compressed) {
+        final var header = reference(BODY, feedId, timestamp, hash)
+                .putInt(rawLength)
+                .putInt(compressed.length)
+                .putInt(crc32(ByteBuffer.wrap(compressed)));
+        return ByteBuffer.allocate(BODY_HEADER_BYTES + compressed.length)
+                .put(header.flip())
+                .put(compressed)
+                .flip();
+    }
+
+    private byte[] deflate(byte[] document) {
+        final var deflater = new Deflater(compressionLevel);
+        try {
+            deflater.setInput(document);
+            deflater.finish();
+            final var output = new ByteArrayOutputStream(Math.max(64, document.length / 4));
+            final var chunk = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(ByteBuffer record, int rawLength) throws IOException {
+        final var compressedLength = record.getInt(REFERENCE_BYTES + 4);
+        final var crc = record.getInt(REFERENCE_BYTES + 8);
+        final var compressed = record.slice(BODY_HEADER_BYTES, compressedLength);
+        if (crc != crc32(compressed.duplicate())) {
+            throw new IOException("corrupt archive record");
+        }
+
+        final var inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            final var document = new byte[rawLength];
+            var read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                read += inflater.inflate(document, read, rawLength - read);
+                if (read < rawLength && inflater.needsInput()) {
+                    throw new IOException("truncated archive record");
+                }
+            }
+            return document;
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt archive record", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int crc32(ByteBuffer buffer) {
+        final var crc = new CRC32();
+        crc.update(buffer);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] sha256(byte[] document) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(document);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /// Where a document is stored
+    ///
+    /// @param segment   the number of the segment
+    /// @param offset    the offset of the record in the segment
+    /// @param length    the length of the record, including its header
+    /// @param rawLength the length of the uncompressed document
+    private record Location(int segment, int offset, int length, int rawLength) {
+    }
+
+    /// The result of storing a document
+    ///
+    /// @param hash    the SHA-256 hash of the document
+    /// @param changed whether the document differs from the feed's previous document
+    public record StoreResult(byte[] hash, boolean changed) {
+    }
+}
@@ -0,0 +1,70 @@
+package org.openpodcastapi.opa.archive;
+
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.slf4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// A scheduled task to reclaim the space of archived documents that are no longer the latest of any feed.
+/// Feeds that have since been deleted or merged into another feed are forgotten first, so their documents are dropped too.
+@Component
+@ConditionalOnProperty(name = "archive.enabled", havingValue = "true", matchIfMissing = true)
+public class FeedArchiveCompactionScheduler {
+    private static final Logger log = getLogger(FeedArchiveCompactionScheduler.class);
+    /// The number of feed IDs checked per query
+    private static final int BATCH_SIZE = 1000;
+
+    private final FeedArchive archive;
+    private final FeedRepository feedRepository;
+
+    /// Required-args constructor
+    ///
+    /// @param archive        the archive to compact
+    /// @param feedRepository the repository used to find feeds that no longer exist
+    public FeedArchiveCompactionScheduler(FeedArchive archive, FeedRepository feedRepository) {
+        this.archive = archive;
+        this.feedRepository = feedRepository;
+    }
+
+    /// Compacts the archive once enough of it is dead.
+    /// The next run starts `archive.compaction-delay` after the previous one finishes.
+    @Scheduled(fixedDelayString = "${archive.compaction-delay:PT6H}", initialDelayString = "${archive.compaction-delay:PT6H}")
+    public void compact() {
+        try {
+            final var forgotten = forgetMissingFeeds();
+            if (forgotten > 0) {
+                log.info("Forgot the archived documents of {} feeds that no longer exist", forgotten);
+            }
+            archive.compact(false);
+        } catch (IOException e) {
+            log.warn("Unable to compact the feed archive: {}", e.getMessage());
+        }
+    }
+
+    /// Forgets the archived feeds that are no longer in the database
+    ///
+    /// @return the number of feeds forgotten
+    /// @throws IOException if a removal can't be written
+    int forgetMissingFeeds() throws IOException {
+        final var archived = new ArrayList<>(archive.feedIds());
+        var forgotten = 0;
+        for (var from = 0; from < archived.size(); from += BATCH_SIZE) {
+            final var batch = archived.subList(from, Math.min(from + BATCH_SIZE, archived.size()));
+            final var missing = new HashSet<>(batch);
+            missing.removeAll(feedRepository.findExistingIds(batch));
+            for (final var feedId : missing) {
+                if (archive.forget(feedId)) {
+                    forgotten++;
+                }
+            }
+        }
+        return forgotten;
+    }
+}
@@ -56,8 +56,8 @@ public class JwtAuthenticationProvider implements AuthenticationProvider {
             // Get the user's UUID from the claims subject
             final var uuid = UUID.fromString(claims.getSubject());
 
-            // Find the user entity
-            final var user = repository.findUserByUuid(uuid)
+            // Find the user entity. Users whose deletion was requested lose access straight away.
+            final var user = repository.findUserByUuidAndDeletionRequestedAtIsNull(uuid)
                     .orElseThrow(() -> new BadCredentialsException("User not found"));
 
             // Configure the user details for the authenticated user
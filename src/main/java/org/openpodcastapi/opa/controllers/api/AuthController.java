@@ -71,7 +71,7 @@ public class AuthController {
     /// @return a token refresh response
     @PostMapping("/api/auth/refresh")
     public ResponseEntity<AuthDTO.@NonNull RefreshTokenResponse> getRefreshToken(@RequestBody @NotNull AuthDTO.RefreshTokenRequest refreshTokenRequest) {
-        final var targetUserEntity = userRepository.findUserByUsername(refreshTokenRequest.username()).orElseThrow(() -> new EntityNotFoundException("No user with username " + refreshTokenRequest.username() + " found"));
+        final var targetUserEntity = userRepository.findUserByUsernameAndDeletionRequestedAtIsNull(refreshTokenRequest.username()).orElseThrow(() -> new EntityNotFoundException("No user with username " + refreshTokenRequest.username() + " found"));
 
         // Validate the existing refresh token
         final var userEntity = tokenService.validateRefreshToken(refreshTokenRequest.refreshToken(), targetUserEntity);
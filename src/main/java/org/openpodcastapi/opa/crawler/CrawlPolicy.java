@@ -0,0 +1,104 @@
+package org.openpodcastapi.opa.crawler;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+/// Decides when a feed is fetched next.
+///
+/// The interval starts from how often the feed has changed, so a daily show isn't polled every few minutes.
+/// Feeds with more active subscribers are polled more often, on a logarithmic scale.
+/// Failed fetches back off exponentially. Every interval is jittered so that feeds added together don't stay in step.
+@Component
+public class CrawlPolicy {
+    /// The weight of the newest sample in the moving average of change intervals
+    private static final double CHANGE_INTERVAL_SMOOTHING = 0.3;
+    private static final double JITTER = 0.1;
+
+    private final Duration defaultInterval;
+    private final Duration minInterval;
+    private final Duration maxInterval;
+    private final Duration retryInterval;
+
+    /// Required-args constructor
+    ///
+    /// @param defaultInterval the interval for a feed with one subscriber and no history of changes
+    /// @param minInterval     the shortest interval between fetches of a feed
+    /// @param maxInterval     the longest interval between fetches of a feed
+    /// @param retryInterval   the interval after the first failed fetch
+    public CrawlPolicy(@Value("${crawler.refresh-interval:PT30M}") Duration defaultInterval,
+                       @Value("${crawler.min-interval:PT5M}") Duration minInterval,
+                       @Value("${crawler.max-interval:PT24H}") Duration maxInterval,
+                       @Value("${crawler.retry-interval:PT5M}") Duration retryInterval) {
+        this.defaultInterval = defaultInterval;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.retryInterval = retryInterval;
+    }
+
+    /// Updates the moving average of the interval between changes of a feed
+    ///
+    /// @param state the crawl state of the feed, before the change is recorded
+    /// @param now   the time of the change
+    public void recordChange(FeedCrawlStateEntity state, Instant now) {
+        if (state.getLastChangedAt() == null) {
+            return;
+        }
+
+        final var sample = Math.max(0, Duration.between(state.getLastChangedAt(), now).toSeconds());
+        final var previous = state.getChangeIntervalSeconds();
+        state.setChangeIntervalSeconds(previous == null
+                ? sample
+                : Math.round(CHANGE_INTERVAL_SMOOTHING * sample + (1 - CHANGE_INTERVAL_SMOOTHING) * previous));
+    }
+
+    /// Returns the time of the next fetch after a successful one
+    ///
+    /// @param state       the crawl state of the feed
+    /// @param subscribers the number of active subscribers of the feed
+    /// @param now         the time of the fetch
+    /// @return the time of the next fetch
+    public Instant nextFetchAfterSuccess(FeedCrawlStateEntity state, long subscribers, Instant now) {
+        // Poll about twice per expected change
+        var seconds = state.getChangeIntervalSeconds() == null
+                ? (double) defaultInterval.toSeconds()
+                : state.getChangeIntervalSeconds() / 2.0;
+
+        // A feed that has gone quiet is polled less often the longer it stays quiet
+        if (state.getLastChangedAt() != null) {
+            seconds = Math.max(seconds, Duration.between(state.getLastChangedAt(), now).toSeconds() / 4.0);
+        }
+
+        // One subscriber has a weight of 1, a thousand subscribers about 5.5
+        final var weight = (1 + log2(1 + Math.max(subscribers, 1))) / 2;
+        seconds = seconds / weight;
+
+        return now.plus(jitter(clamp(seconds, minInterval, maxInterval)));
+    }
+
+    /// Returns the time of the next fetch after a failed one
+    ///
+    /// @param consecutiveFailures the number of failed fetches in a row, including this one
+    /// @param now                 the time of the fetch
+    /// @return the time of the next fetch
+    public Instant nextFetchAfterFailure(int consecutiveFailures, Instant now) {
+        final var seconds = retryInterval.toSeconds() * Math.pow(2, Math.min(Math.max(consecutiveFailures - 1, 0), 20));
+        return now.plus(jitter(clamp(seconds, retryInterval, maxInterval)));
+    }
+
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
+    }
+
+    private static Duration clamp(double seconds, Duration min, Duration max) {
+        return Duration.ofSeconds((long) Math.min(Math.max(seconds, min.toSeconds()), max.toSeconds()));
+    }
+
+    private static Duration jitter(Duration interval) {
+        final var factor = 1 + ThreadLocalRandom.current().nextDouble(-JITTER, JITTER);
+        return Duration.ofMillis((long) (interval.toMillis() * factor));
+    }
+}
@@ -0,0 +1,91 @@
+package org.openpodcastapi.opa.crawler;
+
+import java.util.Arrays;
+
+/// A min-heap of feeds ordered by the time they're next due to be fetched.
+///
+/// Entries are stored in two parallel `long` arrays rather than as objects,
+/// so a schedule of 100,000 feeds takes about 1.6 MB.
+/// The queue isn't thread-safe.
+class CrawlQueue {
+    private long[] dueAt;
+    private long[] feedIds;
+    private int size;
+
+    /// Creates an empty queue
+    ///
+    /// @param initialCapacity the number of entries the queue holds before it grows
+    CrawlQueue(int initialCapacity) {
+        this.dueAt = new long[Math.max(initialCapacity, 16)];
+        this.feedIds = new long[dueAt.length];
+    }
+
+    /// Adds a feed to the queue
+    ///
+    /// @param dueAtMillis the time the feed is due, in epoch milliseconds
+    /// @param feedId      the database ID of the feed
+    void push(long dueAtMillis, long feedId) {
+        if (size == dueAt.length) {
+            dueAt = Arrays.copyOf(dueAt, size * 2);
+            feedIds = Arrays.copyOf(feedIds, size * 2);
+        }
+
+        // Sift the new entry up from the bottom of the heap
+        var index = size++;
+        while (index > 0) {
+            final var parent = (index - 1) >>> 1;
+            if (dueAt[parent] <= dueAtMillis) {
+                break;
+            }
+            dueAt[index] = dueAt[parent];
+            feedIds[index] = feedIds[parent];
+            index = parent;
+        }
+        dueAt[index] = dueAtMillis;
+        feedIds[index] = feedId;
+    }
+
+    /// @return the due time of the earliest entry in epoch milliseconds, or [Long#MAX_VALUE] if the queue is empty
+    long peekDueAt() {
+        return size == 0 ? Long.MAX_VALUE : dueAt[0];
+    }
+
+    /// Removes the earliest entry
+    ///
+    /// @return the database ID of the feed
+    /// @throws IllegalStateException if the queue is empty
+    long pop() {
+        if (size == 0) {
+            throw new IllegalStateException("queue is empty");
+        }
+
+        final var feedId = feedIds[0];
+        final var lastDueAt = dueAt[--size];
+        final var lastFeedId = feedIds[size];
+
+        // Sift the last entry down from the top of the heap
+        var index = 0;
+        final var half = size >>> 1;
+        while (index < half) {
+            var child = 2 * index + 1;
+            if (child + 1 < size && dueAt[child + 1] < dueAt[child]) {
+                child++;
+            }
+            if (lastDueAt <= dueAt[child]) {
+                break;
+            }
+            dueAt[index] = dueAt[child];
+            feedIds[index] = feedIds[child];
+            index = child;
+        }
+        dueAt[index] = lastDueAt;
+        feedIds[index] = lastFeedId;
+
+        return feedId;
+    }
+
+    /// @return the number of entries in the queue
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,15 @@
+package org.openpodcastapi.opa.crawler;
+
+import java.util.UUID;
+
+/// A feed to fetch, with the validators from its previous fetch
+///
+/// @param feedId       the database ID of the feed
+/// @param feedUuid     the UUID of the feed
+/// @param feedUrl      the URL of the feed
+/// @param etag         the `ETag` of the previous response, if any
+/// @param lastModified the `Last-Modified` header of the previous response, if any
+/// @param subscribers  the number of active subscribers of the feed
+/// @param pushed       whether a WebSub hub pushes the feed, so it doesn't need to be polled
+public record CrawlTarget(Long feedId, UUID feedUuid, String feedUrl, String etag, String lastModified, long subscribers, boolean pushed) {
+}
@@ -0,0 +1,277 @@
+package org.openpodcastapi.opa.crawler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Schedules feed refreshes.
+///
+/// Every scheduled feed is held once in an in-memory queue ordered by the time it's next due,
+/// which [CrawlPolicy] derives from the feed's update frequency and number of active subscribers.
+/// The `next_fetch_at` column of the crawl state is the source of truth, so the queue is rebuilt from it on startup.
+/// This assumes a single crawler node.
+///
+/// Due feeds are fetched as long as their host has a token in the [HostRateLimiter].
+/// Feeds whose host is out of tokens or paused are put back until a token is available.
+/// Feeds without active subscribers are taken out of the schedule, and rejoin it when someone subscribes.
+/// Feeds pushed by a WebSub hub are taken out as well, and rejoin it if their lease runs out.
+@Component
+@ConditionalOnProperty(name = "crawler.enabled", havingValue = "true")
+public class FeedCrawlScheduler {
+    private static final Logger log = getLogger(FeedCrawlScheduler.class);
+
+    private final FeedCrawler crawler;
+    private final FeedCrawlStateRepository stateRepository;
+    private final HostRateLimiter rateLimiter;
+    private final int batchSize;
+    private final int maxConcurrency;
+    private final Duration retryInterval;
+
+    /// The schedule, guarded by its own monitor
+    private final CrawlQueue queue = new CrawlQueue(1024);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean loaded;
+
+    private final Counter deferred;
+    private final Counter droppedUnsubscribed;
+    private final Counter droppedPushed;
+
+    /// Required-args constructor
+    ///
+    /// @param crawler         the crawler used to fetch feeds
+    /// @param stateRepository the repository used to read and update the schedule
+    /// @param rateLimiter     the limiter used to spread requests to each host
+    /// @param meterRegistry   the registry used to publish schedule metrics
+    /// @param batchSize       the number of feeds loaded or scheduled per query
+    /// @param maxConcurrency  the maximum number of fetches in flight
+    /// @param retryInterval   how long to wait before retrying a feed whose next fetch couldn't be stored
+    public FeedCrawlScheduler(FeedCrawler crawler,
+                              FeedCrawlStateRepository stateRepository,
+                              HostRateLimiter rateLimiter,
+                              MeterRegistry meterRegistry,
+                              @Value("${crawler.batch-size:500}") int batchSize,
+                              @Value("${crawler.max-concurrency:64}") int maxConcurrency,
+                              @Value("${crawler.retry-interval:PT5M}") Duration retryInterval) {
+        this.crawler = crawler;
+        this.stateRepository = stateRepository;
+        this.rateLimiter = rateLimiter;
+        this.batchSize = batchSize;
+        this.maxConcurrency = maxConcurrency;
+        this.retryInterval = retryInterval;
+
+        this.deferred = Counter.builder("crawler.schedule.deferred").register(meterRegistry);
+        this.droppedUnsubscribed = Counter.builder("crawler.schedule.dropped").tag("reason", "unsubscribed").register(meterRegistry);
+        this.droppedPushed = Counter.builder("crawler.schedule.dropped").tag("reason", "pushed").register(meterRegistry);
+        Gauge.builder("crawler.schedule.size", this, FeedCrawlScheduler::scheduledCount).register(meterRegistry);
+        Gauge.builder("crawler.schedule.lag", this, FeedCrawlScheduler::lagSeconds).baseUnit("seconds").register(meterRegistry);
+        Gauge.builder("crawler.hosts", rateLimiter, HostRateLimiter::size).register(meterRegistry);
+    }
+
+    /// Loads the schedule on the first run, then adds subscribed feeds that aren't scheduled yet.
+    /// The next run starts `crawler.poll-delay` after the previous one finishes.
+    @Scheduled(fixedDelayString = "${crawler.poll-delay:PT1M}", initialDelayString = "${crawler.initial-delay:PT0S}")
+    public void sync() {
+        if (!loaded) {
+            load();
+            loaded = true;
+        }
+
+        List<Long> feedIds;
+        do {
+            feedIds = stateRepository.findUnscheduledFeedIds(Instant.now(), Limit.of(batchSize));
+            schedule(feedIds, Instant.now());
+        } while (feedIds.size() == batchSize);
+
+        rateLimiter.evictIdle(System.currentTimeMillis());
+    }
+
+    /// Starts fetching the feeds that are due, as long as fetch slots are free.
+    /// The next run starts `crawler.dispatch-delay` after the previous one finishes.
+    @Scheduled(fixedDelayString = "${crawler.dispatch-delay:PT1S}", initialDelayString = "${crawler.initial-delay:PT0S}")
+    public void dispatch() {
+        final var now = System.currentTimeMillis();
+        List<Long> due;
+        while (!(due = pollDue(now, maxConcurrency - inFlight.get())).isEmpty()) {
+            final var targets = stateRepository.findTargets(due, Instant.ofEpochMilli(now));
+            final List<Long> unsubscribed = new ArrayList<>();
+            final List<Long> pushed = new ArrayList<>();
+
+            // Feeds that have been deleted aren't returned and drop out of the queue
+            for (final var target : targets) {
+                if (target.subscribers() == 0) {
+                    unsubscribed.add(target.feedId());
+                    continue;
+                }
+                if (target.pushed()) {
+                    pushed.add(target.feedId());
+                    continue;
+                }
+
+                String host;
+                try {
+                    host = FeedFetcher.host(target.feedUrl());
+                } catch (IllegalArgumentException _) {
+                    // Let the crawler record the failure and back off
+                    host = null;
+                }
+
+                final var wait = host == null ? 0 : rateLimiter.tryAcquire(host, now);
+                if (wait > 0) {
+                    push(now + wait, target.feedId());
+                    deferred.increment();
+                } else {
+                    start(target, host);
+                }
+            }
+
+            if (!unsubscribed.isEmpty()) {
+                stateRepository.unschedule(unsubscribed);
+                droppedUnsubscribed.increment(unsubscribed.size());
+                log.debug("Unscheduled {} feeds without subscribers", unsubscribed.size());
+            }
+            if (!pushed.isEmpty()) {
+                stateRepository.unschedule(pushed);
+                droppedPushed.increment(pushed.size());
+                log.debug("Unscheduled {} feeds pushed by WebSub hubs", pushed.size());
+            }
+        }
+    }
+
+    /// Stops the fetches in flight
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /// @return the number of feeds in the schedule, excluding those being fetched
+    public int scheduledCount() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /// @return the number of fetches in flight
+    public int inFlightCount() {
+        return inFlight.get();
+    }
+
+    /// @return how many seconds the earliest due feed is overdue, or `0` if none is
+    private double lagSeconds() {
+        final long dueAt;
+        synchronized (queue) {
+            dueAt = queue.peekDueAt();
+        }
+        return Math.max(0, System.currentTimeMillis() - dueAt) / 1000.0;
+    }
+
+    /// Reads every scheduled feed into the queue, paging by feed ID
+    private void load() {
+        var afterFeedId = 0L;
+        var count = 0;
+        List<FeedCrawlStateRepository.ScheduledFeed> page;
+        do {
+            page = stateRepository.findScheduled(afterFeedId, Limit.of(batchSize));
+            for (final var scheduled : page) {
+                push(scheduled.nextFetchAt().toEpochMilli(), scheduled.feedId());
+            }
+            count += page.size();
+            if (!page.isEmpty()) {
+                afterFeedId = page.getLast().feedId();
+            }
+        } while (page.size() == batchSize);
+
+        log.info("Loaded {} scheduled feeds", count);
+    }
+
+    /// Schedules a set of feeds to be fetched straight away
+    ///
+    /// @param feedIds the database IDs of the feeds
+    /// @param now     the current time
+    private void schedule(List<Long> feedIds, Instant now) {
+        if (feedIds.isEmpty()) {
+            return;
+        }
+
+        final var existing = stateRepository.findAllById(feedIds).stream()
+                .collect(Collectors.toMap(FeedCrawlStateEntity::getFeedId, Function.identity()));
+        final List<FeedCrawlStateEntity> states = new ArrayList<>(feedIds.size());
+        for (final var feedId : feedIds) {
+            final var state = existing.getOrDefault(feedId, new FeedCrawlStateEntity(feedId));
+            state.setNextFetchAt(now);
+            states.add(state);
+        }
+        stateRepository.saveAll(states);
+
+        for (final var feedId : feedIds) {
+            push(now.toEpochMilli(), feedId);
+        }
+        log.debug("Scheduled {} feeds", feedIds.size());
+    }
+
+    /// Fetches a feed on a virtual thread and puts it back in the queue when the fetch finishes
+    ///
+    /// @param target the feed to fetch
+    /// @param host   the host of the feed, or `null` if the URL is invalid
+    private void start(CrawlTarget target, String host) {
+        inFlight.incrementAndGet();
+        executor.submit(() -> {
+            // Keep the feed in the schedule even if its next fetch couldn't be stored
+            var nextFetchAt = Instant.now().plus(retryInterval);
+            try {
+                final var result = crawler.crawl(target);
+                if (host != null) {
+                    rateLimiter.recordResponse(host, result.status(), System.currentTimeMillis());
+                }
+                if (result.nextFetchAt() != null) {
+                    nextFetchAt = result.nextFetchAt();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Unable to crawl feed {}: {}", target.feedId(), e.getMessage());
+            } finally {
+                push(nextFetchAt.toEpochMilli(), target.feedId());
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    /// Removes the feeds that are due from the queue
+    ///
+    /// @param nowMillis the current time in epoch milliseconds
+    /// @param max       the maximum number of feeds to remove
+    /// @return the database IDs of the feeds
+    private List<Long> pollDue(long nowMillis, int max) {
+        final List<Long> due = new ArrayList<>();
+        synchronized (queue) {
+            while (due.size() < max && queue.peekDueAt() <= nowMillis) {
+                due.add(queue.pop());
+            }
+        }
+        return due;
+    }
+
+    private void push(long dueAtMillis, long feedId) {
+        synchronized (queue) {
+            queue.push(dueAtMillis, feedId);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.openpodcastapi.opa.crawler;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/// An entity holding the crawl state of a feed.
+///
+/// The validators returned by the feed's server are stored so that the next fetch can be a conditional request.
+/// A feed is scheduled while its `nextFetchAt` is set. Feeds without active subscribers are unscheduled.
+@Entity
+@Table(name = "feed_crawl_states", indexes = {
+        @Index(name = "feed_crawl_states_next_fetch_at", columnList = "next_fetch_at, feed_id")
+})
+public class FeedCrawlStateEntity {
+    /// The longest `ETag` the column holds
+    public static final int MAX_ETAG_LENGTH = 1024;
+
+    /// The longest `Last-Modified` value the column holds
+    public static final int MAX_LAST_MODIFIED_LENGTH = 255;
+
+    /// The database ID of the feed
+    @Id
+    @Column(name = "feed_id")
+    private Long feedId;
+
+    /// The `ETag` header of the last successful response
+    @Column(length = MAX_ETAG_LENGTH)
+    private String etag;
+
+    /// The `Last-Modified` header of the last successful response, stored as sent by the server
+    @Column(length = MAX_LAST_MODIFIED_LENGTH)
+    private String lastModified;
+
+    /// The HTTP status of the last fetch, or `0` if the request failed before a response was received
+    @Column
+    private Integer lastStatus;
+
+    /// The timestamp of the last fetch attempt
+    @Column(name = "last_fetched_at")
+    private Instant lastFetchedAt;
+
+    /// The timestamp of the last fetch that returned a new document
+    @Column
+    private Instant lastChangedAt;
+
+    /// The number of failed fetches since the last successful one
+    @Column(nullable = false)
+    private int consecutiveFailures;
+
+    /// The moving average of the interval between changes of the feed, in seconds
+    @Column
+    private Long changeIntervalSeconds;
+
+    /// The time the feed is next due to be fetched, or `null` if the feed isn't scheduled
+    @Column(name = "next_fetch_at")
+    private Instant nextFetchAt;
+
+    /// No-args constructor
+    public FeedCrawlStateEntity() {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param feedId the database ID of the feed
+    public FeedCrawlStateEntity(Long feedId) {
+        this.feedId = feedId;
+    }
+
+    /// @return the database ID of the feed
+    public Long getFeedId() {
+        return feedId;
+    }
+
+    /// @return the stored `ETag` validator
+    public String getEtag() {
+        return etag;
+    }
+
+    /// @param etag the `ETag` validator
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    /// @return the stored `Last-Modified` validator
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /// @param lastModified the `Last-Modified` validator
+    public void setLastModified(String lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    /// @return the HTTP status of the last fetch
+    public Integer getLastStatus() {
+        return lastStatus;
+    }
+
+    /// @param lastStatus the HTTP status of the last fetch
+    public void setLastStatus(Integer lastStatus) {
+        this.lastStatus = lastStatus;
+    }
+
+    /// @return the timestamp of the last fetch attempt
+    public Instant getLastFetchedAt() {
+        return lastFetchedAt;
+    }
+
+    /// @param lastFetchedAt the timestamp of the last fetch attempt
+    public void setLastFetchedAt(Instant lastFetchedAt) {
+        this.lastFetchedAt = lastFetchedAt;
+    }
+
+    /// @return the timestamp of the last fetch that returned a new document
+    public Instant getLastChangedAt() {
+        return lastChangedAt;
+    }
+
+    /// @param lastChangedAt the timestamp of the last fetch that returned a new document
+    public void setLastChangedAt(Instant lastChangedAt) {
+        this.lastChangedAt = lastChangedAt;
+    }
+
+    /// @return the number of failed fetches since the last successful one
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /// @param consecutiveFailures the number of failed fetches since the last successful one
+    public void setConsecutiveFailures(int consecutiveFailures) {
+        this.consecutiveFailures = consecutiveFailures;
+    }
+
+    /// @return the moving average of the interval between changes of the feed, in seconds
+    public Long getChangeIntervalSeconds() {
+        return changeIntervalSeconds;
+    }
+
+    /// @param changeIntervalSeconds the moving average of the interval between changes of the feed, in seconds
+    public void setChangeIntervalSeconds(Long changeIntervalSeconds) {
+        this.changeIntervalSeconds = changeIntervalSeconds;
+    }
+
+    /// @return the time the feed is next due to be fetched, or `null` if the feed isn't scheduled
+    public Instant getNextFetchAt() {
+        return nextFetchAt;
+    }
+
+    /// @param nextFetchAt the time the feed is next due to be fetched
+    public void setNextFetchAt(Instant nextFetchAt) {
+        this.nextFetchAt = nextFetchAt;
+    }
+}
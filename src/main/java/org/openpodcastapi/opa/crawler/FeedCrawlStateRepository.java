@@ -0,0 +1,81 @@
+package org.openpodcastapi.opa.crawler;
+
+import org.jspecify.annotations.NonNull;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/// Repository for feed crawl state interactions
+@Repository
+public interface FeedCrawlStateRepository extends JpaRepository<@NonNull FeedCrawlStateEntity, @NonNull Long> {
+    /// Finds the fetch targets of a set of feeds
+    ///
+    /// @param feedIds the database IDs of the feeds
+    /// @param now     the current time, used to check WebSub leases
+    /// @return the feeds to fetch, with their stored validators, number of active subscribers and push state
+    @Query("""
+            select new org.openpodcastapi.opa.crawler.CrawlTarget(f.id, f.uuid, f.feedUrl, s.etag, s.lastModified,
+                (select count(sub) from SubscriptionEntity sub where sub.feed.id = f.id and sub.unsubscribedAt is null),
+                case when exists (select 1 from WebSubSubscriptionEntity w
+                                  where w.feedId = f.id
+                                    and w.state = org.openpodcastapi.opa.websub.WebSubState.ACTIVE
+                                    and w.leaseExpiresAt > :now) then true else false end)
+            from FeedEntity f left join FeedCrawlStateEntity s on s.feedId = f.id
+            where f.id in :feedIds
+            """)
+    List<CrawlTarget> findTargets(Collection<Long> feedIds, Instant now);
+
+    /// Finds scheduled feeds in order of their database ID
+    ///
+    /// @param afterFeedId the database ID after which to start
+    /// @param limit       the maximum number of feeds to return
+    /// @return the scheduled feeds and their next fetch times
+    @Query("""
+            select new org.openpodcastapi.opa.crawler.FeedCrawlStateRepository$ScheduledFeed(s.feedId, s.nextFetchAt)
+            from FeedCrawlStateEntity s
+            where s.nextFetchAt is not null and s.feedId > :afterFeedId
+            order by s.feedId asc
+            """)
+    List<ScheduledFeed> findScheduled(Long afterFeedId, Limit limit);
+
+    /// Finds feeds with active subscribers that aren't scheduled and aren't pushed by a WebSub hub
+    ///
+    /// @param now   the current time, used to check WebSub leases
+    /// @param limit the maximum number of feeds to return
+    /// @return the database IDs of the feeds
+    @Query("""
+            select f.id
+            from FeedEntity f left join FeedCrawlStateEntity s on s.feedId = f.id
+            where s.nextFetchAt is null
+              and exists (select 1 from SubscriptionEntity sub where sub.feed.id = f.id and sub.unsubscribedAt is null)
+              and not exists (select 1 from WebSubSubscriptionEntity w
+                              where w.feedId = f.id
+                                and w.state = org.openpodcastapi.opa.websub.WebSubState.ACTIVE
+                                and w.leaseExpiresAt > :now)
+            order by f.id asc
+            """)
+    List<Long> findUnscheduledFeedIds(Instant now, Limit limit);
+
+    /// Removes a set of feeds from the schedule
+    ///
+    /// @param feedIds the database IDs of the feeds
+    /// @return the number of feeds removed
+    @Transactional
+    @Modifying
+    @Query("update FeedCrawlStateEntity s set s.nextFetchAt = null where s.feedId in :feedIds")
+    int unschedule(Collection<Long> feedIds);
+
+    /// A feed in the schedule
+    ///
+    /// @param feedId      the database ID of the feed
+    /// @param nextFetchAt the time the feed is next due
+    record ScheduledFeed(Long feedId, Instant nextFetchAt) {
+    }
+}
@@ -0,0 +1,230 @@
+package org.openpodcastapi.opa.crawler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.openpodcastapi.opa.archive.FeedArchive;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Service for refreshing feeds.
+///
+/// The [FeedCrawlScheduler] fetches each feed on its own virtual thread.
+/// A global limit bounds the number of requests in flight, and a per-host limit keeps the crawler from overloading a single server.
+/// A host's limit is only kept while fetches of the host are waiting or in flight, so memory use follows the number of active hosts.
+@Service
+public class FeedCrawler {
+    private static final Logger log = getLogger(FeedCrawler.class);
+
+    private final FeedFetcher fetcher;
+    private final FeedCrawlStateRepository stateRepository;
+    private final CrawlPolicy policy;
+    private final FeedArchive archive;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Semaphore globalPermits;
+    private final int maxPerHost;
+    /// The limits of the hosts being fetched. Only changed inside `compute`, which also guards each limit's user count.
+    private final ConcurrentHashMap<String, HostLimit> hostLimits = new ConcurrentHashMap<>();
+
+    private final Counter changed;
+    private final Counter notModified;
+    private final Counter failed;
+    private final Timer fetchTimer;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /// Required-args constructor
+    ///
+    /// @param fetcher         the fetcher used to request feeds
+    /// @param stateRepository the repository used to store crawl state
+    /// @param policy          the policy used to schedule the next fetch of each feed
+    /// @param archive         the archive used to store fetched documents and recognise unchanged ones
+    /// @param eventPublisher  the publisher used to announce changed feeds
+    /// @param meterRegistry   the registry used to publish crawl metrics
+    /// @param maxConcurrency  the maximum number of requests in flight
+    /// @param maxPerHost      the maximum number of requests in flight to a single host
+    public FeedCrawler(FeedFetcher fetcher,
+                       FeedCrawlStateRepository stateRepository,
+                       CrawlPolicy policy,
+                       FeedArchive archive,
+                       ApplicationEventPublisher eventPublisher,
+                       MeterRegistry meterRegistry,
+                       @Value("${crawler.max-concurrency:64}") int maxConcurrency,
+                       @Value("${crawler.max-per-host:4}") int maxPerHost) {
+        this.fetcher = fetcher;
+        this.stateRepository = stateRepository;
+        this.policy = policy;
+        this.archive = archive;
+        this.eventPublisher = eventPublisher;
+        this.globalPermits = new Semaphore(maxConcurrency);
+        this.maxPerHost = maxPerHost;
+
+        this.changed = Counter.builder("crawler.fetches").tag("result", "changed").register(meterRegistry);
+        this.notModified = Counter.builder("crawler.fetches").tag("result", "not_modified").register(meterRegistry);
+        this.failed = Counter.builder("crawler.fetches").tag("result", "failed").register(meterRegistry);
+        this.fetchTimer = Timer.builder("crawler.fetch.duration").register(meterRegistry);
+        meterRegistry.gauge("crawler.fetches.in_flight", inFlight);
+    }
+
+    /// Fetches a single feed within the global and per-host limits, records the outcome and schedules the next fetch.
+    /// Blocks until the fetch has finished.
+    ///
+    /// @param target the feed to fetch
+    /// @return the result of the fetch
+    public CrawlResult crawl(CrawlTarget target) {
+        final String host;
+        try {
+            host = FeedFetcher.host(target.feedUrl());
+        } catch (IllegalArgumentException e) {
+            return recordFailure(target, 0, e);
+        }
+
+        final var hostLimit = hostLimits.compute(host, (_, existing) -> {
+            final var limit = existing == null ? new HostLimit(maxPerHost) : existing;
+            limit.users++;
+            return limit;
+        });
+        try {
+            // Wait for the host before taking a global permit, so a busy host doesn't hold global capacity
+            hostLimit.permits.acquire();
+            try {
+                globalPermits.acquire();
+                inFlight.incrementAndGet();
+                try {
+                    return fetchTimer.recordCallable(() -> fetch(target));
+                } finally {
+                    inFlight.decrementAndGet();
+                    globalPermits.release();
+                }
+            } finally {
+                hostLimit.permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return recordFailure(target, 0, e);
+        } catch (Exception e) {
+            return recordFailure(target, 0, e);
+        } finally {
+            hostLimits.computeIfPresent(host, (_, limit) -> --limit.users == 0 ? null : limit);
+        }
+    }
+
+    /// @return the number of hosts whose fetches are waiting or in flight
+    int activeHosts() {
+        return hostLimits.size();
+    }
+
+    private CrawlResult fetch(CrawlTarget target) throws Exception {
+        final var result = fetcher.fetch(target);
+        final var now = Instant.now();
+
+        if (result.status() != 200 && !result.notModified()) {
+            return recordFailure(target, result.status(), null);
+        }
+
+        final var state = stateRepository.findById(target.feedId()).orElseGet(() -> new FeedCrawlStateEntity(target.feedId()));
+        state.setLastStatus(result.status());
+        state.setLastFetchedAt(now);
+        state.setConsecutiveFailures(0);
+
+        if (!result.notModified()) {
+            state.setEtag(validator(result.etag(), FeedCrawlStateEntity.MAX_ETAG_LENGTH));
+            state.setLastModified(validator(result.lastModified(), FeedCrawlStateEntity.MAX_LAST_MODIFIED_LENGTH));
+        }
+
+        // A server that ignores the validators may send an identical document, which is treated like a 304
+        if (result.notModified() || !isNewDocument(target, result.body())) {
+            state.setNextFetchAt(policy.nextFetchAfterSuccess(state, target.subscribers(), now));
+            stateRepository.save(state);
+            notModified.increment();
+            return new CrawlResult(Outcome.NOT_MODIFIED, result.status(), state.getNextFetchAt());
+        }
+
+        policy.recordChange(state, now);
+        state.setLastChangedAt(now);
+        state.setNextFetchAt(policy.nextFetchAfterSuccess(state, target.subscribers(), now));
+        stateRepository.save(state);
+
+        eventPublisher.publishEvent(new FeedFetchedEvent(target.feedId(), target.feedUuid(), target.feedUrl(), result.body(), now));
+        changed.increment();
+        return new CrawlResult(Outcome.CHANGED, result.status(), state.getNextFetchAt());
+    }
+
+    /// Archives a fetched document
+    ///
+    /// @param target   the fetched feed
+    /// @param document the feed document
+    /// @return whether the document differs from the previous one. A document that can't be archived is assumed to differ.
+    private boolean isNewDocument(CrawlTarget target, byte[] document) {
+        try {
+            return archive.store(target.feedId(), document).changed();
+        } catch (IOException e) {
+            log.warn("Unable to archive feed {}: {}", target.feedUuid(), e.getMessage());
+            return true;
+        }
+    }
+
+    /// Drops a validator too long to store. A shortened validator would never match, so the next fetch is unconditional instead.
+    private static String validator(String value, int maxLength) {
+        return value == null || value.length() > maxLength ? null : value;
+    }
+
+    private CrawlResult recordFailure(CrawlTarget target, int status, Exception exception) {
+        if (exception != null) {
+            log.debug("Failed to fetch feed {}: {}", target.feedUrl(), exception.getMessage());
+        } else {
+            log.debug("Failed to fetch feed {}: HTTP {}", target.feedUrl(), status);
+        }
+
+        final var now = Instant.now();
+        Instant nextFetchAt = null;
+        try {
+            final var state = stateRepository.findById(target.feedId()).orElseGet(() -> new FeedCrawlStateEntity(target.feedId()));
+            state.setLastStatus(status);
+            state.setLastFetchedAt(now);
+            state.setConsecutiveFailures(state.getConsecutiveFailures() + 1);
+            state.setNextFetchAt(policy.nextFetchAfterFailure(state.getConsecutiveFailures(), now));
+            stateRepository.save(state);
+            nextFetchAt = state.getNextFetchAt();
+        } catch (RuntimeException e) {
+            log.warn("Unable to record crawl failure for feed {}: {}", target.feedId(), e.getMessage());
+        }
+
+        failed.increment();
+        return new CrawlResult(Outcome.FAILED, status, nextFetchAt);
+    }
+
+    /// The per-host limit of a host, and the number of fetches waiting for or holding it
+    private static final class HostLimit {
+        private final Semaphore permits;
+        private int users;
+
+        private HostLimit(int permits) {
+            this.permits = new Semaphore(permits);
+        }
+    }
+
+    /// The outcome of a single fetch
+    public enum Outcome {
+        CHANGED,
+        NOT_MODIFIED,
+        FAILED
+    }
+
+    /// The result of a single fetch
+    ///
+    /// @param outcome     the outcome of the fetch
+    /// @param status      the HTTP status of the response, or `0` if no response was received
+    /// @param nextFetchAt the time the feed is next due, or `null` if the crawl state couldn't be stored
+    public record CrawlResult(Outcome outcome, int status, Instant nextFetchAt) {
+    }
+}
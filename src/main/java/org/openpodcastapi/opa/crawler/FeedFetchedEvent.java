@@ -0,0 +1,15 @@
+package org.openpodcastapi.opa.crawler;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/// Published after a feed is fetched and its document has changed since the previous fetch, or when a WebSub hub pushes the feed.
+/// Listeners run on the crawler's virtual thread for the feed, or on the request thread of the push.
+///
+/// @param feedId    the database ID of the feed
+/// @param feedUuid  the UUID of the feed
+/// @param feedUrl   the URL of the feed
+/// @param body      the raw feed document
+/// @param fetchedAt the timestamp of the fetch or push
+public record FeedFetchedEvent(Long feedId, UUID feedUuid, String feedUrl, byte[] body, Instant fetchedAt) {
+}
@@ -0,0 +1,304 @@
+package org.openpodcastapi.opa.crawler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+/// Fetches feed documents over HTTP.
+///
+/// Requests are conditional when validators from a previous fetch are available, so unchanged feeds cost a `304` with no body.
+/// The client runs on virtual threads, so a blocked fetch doesn't hold a platform thread.
+///
+/// Redirects are followed here rather than by the client, for up to [#MAX_REDIRECTS] hops, and the host of every hop
+/// is resolved and checked before it's requested. The client's own lookup moments later is answered from the JVM's
+/// address cache, so it connects to an address that was checked.
+/// A whole fetch, redirects and body included, must finish within `crawler.timeout`, so a server that sends its
+/// response a byte at a time can't hold the crawler's permits.
+@Component
+public class FeedFetcher implements AutoCloseable {
+    /// The maximum number of redirects followed for a single fetch
+    static final int MAX_REDIRECTS = 5;
+
+    private final HttpClient client;
+    private final Duration timeout;
+    private final int maxBodyBytes;
+    private final String userAgent;
+    private final Predicate<InetAddress> permitted;
+
+    /// Required-args constructor
+    ///
+    /// @param connectTimeout        the timeout for establishing a connection
+    /// @param timeout               the time a whole fetch may take, redirects and body included
+    /// @param maxBodyBytes          the maximum size of a feed document
+    /// @param userAgent             the `User-Agent` sent with every request
+    /// @param allowPrivateAddresses whether feeds may be fetched from loopback and private network addresses
+    @Autowired
+    public FeedFetcher(@Value("${crawler.connect-timeout:PT10S}") Duration connectTimeout,
+                       @Value("${crawler.timeout:PT30S}") Duration timeout,
+                       @Value("${crawler.max-body-bytes:10485760}") int maxBodyBytes,
+                       @Value("${crawler.user-agent:OpenPodcastAPI}") String userAgent,
+                       @Value("${crawler.allow-private-addresses:false}") boolean allowPrivateAddresses) {
+        this(connectTimeout, timeout, maxBodyBytes, userAgent, allowPrivateAddresses ? _ -> true : FeedFetcher::isPublic);
+    }
+
+    /// All-args constructor
+    ///
+    /// @param connectTimeout the timeout for establishing a connection
+    /// @param timeout        the time a whole fetch may take, redirects and body included
+    /// @param maxBodyBytes   the maximum size of a feed document
+    /// @param userAgent      the `User-Agent` sent with every request
+    /// @param permitted      whether requests may be sent to an address
+    FeedFetcher(Duration connectTimeout, Duration timeout, int maxBodyBytes, String userAgent, Predicate<InetAddress> permitted) {
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        this.timeout = timeout;
+        this.maxBodyBytes = maxBodyBytes;
+        this.userAgent = userAgent;
+        this.permitted = permitted;
+    }
+
+    /// Returns the URI a feed URL is fetched from. URLs without a scheme are fetched over HTTPS.
+    ///
+    /// @param feedUrl the stored feed URL
+    /// @return the URI to request
+    /// @throws IllegalArgumentException if the URL isn't a valid HTTP or HTTPS URL
+    public static URI toUri(String feedUrl) {
+        final var url = feedUrl.strip();
+        try {
+            final var uri = new URI(url.contains("://") ? url : "https://" + url);
+            if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null) {
+                throw new IllegalArgumentException("unsupported feed URL " + feedUrl);
+            }
+            return uri;
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("invalid feed URL " + feedUrl, e);
+        }
+    }
+
+    /// Returns the host a feed is fetched from
+    ///
+    /// @param feedUrl the stored feed URL
+    /// @return the lower-case host name
+    /// @throws IllegalArgumentException if the URL isn't a valid HTTP or HTTPS URL
+    public static String host(String feedUrl) {
+        return toUri(feedUrl).getHost().toLowerCase(Locale.ROOT);
+    }
+
+    /// Fetches a feed, following redirects
+    ///
+    /// @param target the feed to fetch
+    /// @return the result of the fetch
+    /// @throws IOException              if the request fails or times out, the document is too large, or there are too many redirects
+    /// @throws InterruptedException     if the calling thread is interrupted
+    /// @throws IllegalArgumentException if the feed URL or a redirect is invalid or points to a private address
+    public FetchResult fetch(CrawlTarget target) throws IOException, InterruptedException {
+        final var deadline = System.nanoTime() + timeout.toNanos();
+        var uri = toUri(target.feedUrl());
+        for (var redirects = 0; ; redirects++) {
+            checkAddress(uri);
+
+            final var request = HttpRequest.newBuilder(uri)
+                    .timeout(remaining(deadline))
+                    .header("User-Agent", userAgent)
+                    .header("Accept", "application/rss+xml, application/atom+xml, application/xml;q=0.9, text/xml;q=0.8, */*;q=0.1")
+                    .header("Accept-Encoding", "gzip");
+            if (target.etag() != null) {
+                request.header("If-None-Match", target.etag());
+            }
+            if (target.lastModified() != null) {
+                request.header("If-Modified-Since", target.lastModified());
+            }
+
+            final var response = send(request.GET().build(), deadline);
+            final var location = response.headers().firstValue("Location");
+            if (isRedirect(response.statusCode()) && location.isPresent()) {
+                if (redirects == MAX_REDIRECTS) {
+                    throw new IOException("feed " + target.feedUrl() + " redirected more than " + MAX_REDIRECTS + " times");
+                }
+                uri = redirectTarget(uri, location.get());
+                continue;
+            }
+
+            final var etag = response.headers().firstValue("ETag").orElse(null);
+            final var lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+            if (response.statusCode() != 200) {
+                return new FetchResult(response.statusCode(), null, etag, lastModified);
+            }
+
+            final var gzip = response.headers().firstValue("Content-Encoding").filter("gzip"::equalsIgnoreCase).isPresent();
+            final var body = gzip ? readLimited(new GZIPInputStream(new ByteArrayInputStream(response.body()))) : response.body();
+            return new FetchResult(200, body, etag, lastModified);
+        }
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    /// Rejects URLs that resolve to loopback, link-local, or private network addresses, unless explicitly allowed
+    ///
+    /// @param uri the URI to check
+    /// @throws IOException              if the host can't be resolved
+    /// @throws IllegalArgumentException if the host resolves to a private address
+    public void checkAddress(URI uri) throws IOException {
+        for (final var address : InetAddress.getAllByName(uri.getHost())) {
+            if (!permitted.test(address)) {
+                throw new IllegalArgumentException("URL " + uri + " resolves to a private address");
+            }
+        }
+    }
+
+    /// Returns whether requests may be sent to an address when private addresses aren't allowed
+    ///
+    /// @param address the address to check
+    /// @return `false` for loopback, wildcard, link-local, site-local, unique local and multicast addresses
+    static boolean isPublic(InetAddress address) {
+        final var uniqueLocal = address.getAddress().length == 16 && (address.getAddress()[0] & 0xfe) == 0xfc;
+        return !(address.isLoopbackAddress() || address.isAnyLocalAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress() || uniqueLocal);
+    }
+
+    /// Sends a request, giving up and aborting it once the deadline has passed
+    private HttpResponse<byte[]> send(HttpRequest request, long deadline) throws IOException, InterruptedException {
+        final var response = client.sendAsync(request, info -> info.statusCode() == 200
+                ? new LimitedBodySubscriber(maxBodyBytes)
+                : HttpResponse.BodySubscribers.replacing(null));
+        try {
+            return response.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException _) {
+            response.cancel(true);
+            throw new HttpTimeoutException("fetch of " + request.uri() + " took longer than " + timeout);
+        } catch (InterruptedException e) {
+            response.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            switch (e.getCause()) {
+                case IOException cause -> throw cause;
+                case RuntimeException cause -> throw cause;
+                default -> throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    private static Duration remaining(long deadline) {
+        return Duration.ofNanos(Math.max(1, deadline - System.nanoTime()));
+    }
+
+    private static boolean isRedirect(int status) {
+        return status == 301 || status == 302 || status == 303 || status == 307 || status == 308;
+    }
+
+    /// Resolves the `Location` of a redirect, refusing to leave HTTPS for plain HTTP
+    private static URI redirectTarget(URI from, String location) throws IOException {
+        final URI to;
+        try {
+            to = toUri(from.resolve(new URI(location.strip())).toString());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new IOException("invalid redirect from " + from + " to " + location, e);
+        }
+        if ("https".equalsIgnoreCase(from.getScheme()) && !"https".equalsIgnoreCase(to.getScheme())) {
+            throw new IOException("refusing to follow a redirect from " + from + " to " + to);
+        }
+        return to;
+    }
+
+    private byte[] readLimited(InputStream body) throws IOException {
+        final var bytes = body.readNBytes(maxBodyBytes + 1);
+        if (bytes.length > maxBodyBytes) {
+            throw new IOException("feed document exceeds " + maxBodyBytes + " bytes");
+        }
+        return bytes;
+    }
+
+    /// Collects a response body, failing as soon as it grows past the limit rather than once it has all been read
+    private static final class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final int maxBytes;
+        private Flow.Subscription subscription;
+
+        private LimitedBodySubscriber(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            for (final var buffer : buffers) {
+                if (result.isDone()) {
+                    return;
+                }
+                if (body.size() + buffer.remaining() > maxBytes) {
+                    subscription.cancel();
+                    result.completeExceptionally(new IOException("feed document exceeds " + maxBytes + " bytes"));
+                    return;
+                }
+                final var bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                body.writeBytes(bytes);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(body.toByteArray());
+        }
+    }
+
+    /// The result of a fetch
+    ///
+    /// @param status       the HTTP status of the response
+    /// @param body         the feed document if the status is `200`, otherwise `null`
+    /// @param etag         the `ETag` header of the response, if any
+    /// @param lastModified the `Last-Modified` header of the response, if any
+    public record FetchResult(int status, byte[] body, String etag, String lastModified) {
+        /// @return whether the server reported that the feed hasn't changed
+        public boolean notModified() {
+            return status == 304;
+        }
+    }
+}
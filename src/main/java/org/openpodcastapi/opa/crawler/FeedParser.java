@@ -0,0 +1,451 @@
+package org.openpodcastapi.opa.crawler;
+
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/// A streaming parser for RSS 2.0 and Atom feeds, including the `itunes` and `podcast` namespaces.
+///
+/// The document is read with StAX, so memory use doesn't grow with the size of the feed.
+/// Episodes are emitted one at a time in document order.
+/// Feeds list their newest episodes first, so parsing stops at the first episode whose GUID is already known.
+/// Elements the parser doesn't use, such as show notes, are skipped without building strings.
+@Component
+public class FeedParser {
+    private static final String ATOM = "http://www.w3.org/2005/Atom";
+    private static final String ITUNES = "http://www.itunes.com/dtds/podcast-1.0.dtd";
+    private static final String PODCAST = "https://podcastindex.org/namespace/1.0";
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    /// Parses a feed document
+    ///
+    /// @param document    the feed document. The stream isn't closed.
+    /// @param isKnownGuid returns `true` for GUIDs already stored for the feed. Parsing stops at the first known GUID.
+    /// @param consumer    receives each new episode
+    /// @return the channel metadata read before the first episode and a summary of the parse
+    /// @throws XMLStreamException if the document isn't well-formed XML
+    public ParseResult parse(InputStream document, Predicate<String> isKnownGuid, Consumer<ParsedEpisode> consumer) throws XMLStreamException {
+        final var reader = FACTORY.createXMLStreamReader(document);
+        try {
+            return parse(reader, isKnownGuid, consumer);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private ParseResult parse(XMLStreamReader reader, Predicate<String> isKnownGuid, Consumer<ParsedEpisode> consumer) throws XMLStreamException {
+        final var channel = new ChannelBuilder();
+        var emitted = 0;
+        var depth = 0;
+        var channelDepth = -1;
+
+        while (reader.hasNext()) {
+            final var event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            depth++;
+
+            final var namespace = namespace(reader);
+            final var name = reader.getLocalName();
+
+            if (channelDepth < 0) {
+                // RSS wraps everything in <rss><channel>, Atom documents start at <feed>
+                if (name.equals("channel") && namespace.isEmpty() || name.equals("feed") && namespace.equals(ATOM)) {
+                    channelDepth = depth;
+                    channel.atom = namespace.equals(ATOM);
+                }
+                continue;
+            }
+
+            if (depth != channelDepth + 1) {
+                continue;
+            }
+
+            if (name.equals("item") && namespace.isEmpty() || name.equals("entry") && namespace.equals(ATOM)) {
+                final var episode = parseItem(reader, channel.atom);
+                depth--;
+
+                if (episode.guid() != null && isKnownGuid.test(episode.guid())) {
+                    return new ParseResult(channel.build(), emitted, true);
+                }
+                consumer.accept(episode);
+                emitted++;
+                continue;
+            }
+
+            if (readChannelElement(reader, namespace, name, channel)) {
+                depth--;
+            }
+        }
+
+        return new ParseResult(channel.build(), emitted, false);
+    }
+
+    /// Reads a direct child of the channel
+    ///
+    /// @return `true` if the element was consumed up to its end tag
+    private boolean readChannelElement(XMLStreamReader reader, String namespace, String name, ChannelBuilder channel) throws XMLStreamException {
+        if (name.equals("link") && namespace.equals(ATOM)) {
+            final var rel = attribute(reader, "rel");
+            final var href = attribute(reader, "href");
+            if ("hub".equals(rel)) {
+                channel.hubUrl = first(channel.hubUrl, href);
+            } else if ("self".equals(rel)) {
+                channel.selfUrl = first(channel.selfUrl, href);
+            } else if (channel.atom && (rel == null || "alternate".equals(rel))) {
+                channel.link = first(channel.link, href);
+            }
+            return false;
+        }
+
+        if (namespace.equals(ITUNES) && name.equals("image")) {
+            channel.imageUrl = first(channel.imageUrl, attribute(reader, "href"));
+            return false;
+        }
+
+        if (namespace.equals(ITUNES) && name.equals("author")) {
+            channel.author = first(channel.author, text(reader));
+            return true;
+        }
+
+        if (namespace.equals(PODCAST) && name.equals("guid")) {
+            channel.podcastGuid = first(channel.podcastGuid, text(reader));
+            return true;
+        }
+
+        final var rssElement = namespace.isEmpty() && !channel.atom;
+        final var atomElement = namespace.equals(ATOM) && channel.atom;
+        if (rssElement || atomElement) {
+            switch (name) {
+                case "title" -> channel.title = first(channel.title, text(reader));
+                case "link" -> channel.link = first(channel.link, text(reader));
+                case "description", "subtitle" -> channel.description = first(channel.description, text(reader));
+                case "language" -> channel.language = first(channel.language, text(reader));
+                case "author" -> {
+                    if (!atomElement) {
+                        return false;
+                    }
+                    channel.author = first(channel.author, childText(reader, ATOM, "name"));
+                }
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    /// Reads an `item` or `entry` element up to its end tag
+    private ParsedEpisode parseItem(XMLStreamReader reader, boolean atom) throws XMLStreamException {
+        final var item = new ItemBuilder();
+        var depth = 1;
+
+        while (depth > 0) {
+            final var event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+
+            // Nested elements, such as <media:group> children, are skipped as a whole
+            if (depth > 1) {
+                depth++;
+                continue;
+            }
+
+            final var namespace = namespace(reader);
+            final var name = reader.getLocalName();
+
+            if (atom ? namespace.equals(ATOM) : namespace.isEmpty()) {
+                switch (name) {
+                    case "guid", "id" -> item.guid = text(reader);
+                    case "title" -> item.title = text(reader);
+                    case "pubDate", "published" -> item.publishedAt = parseDate(text(reader));
+                    case "updated" -> item.updatedAt = parseDate(text(reader));
+                    case "enclosure" -> {
+                        item.enclosureUrl = attribute(reader, "url");
+                        item.enclosureType = attribute(reader, "type");
+                        item.enclosureLength = parseLong(attribute(reader, "length"));
+                        skip(reader);
+                    }
+                    case "link" -> {
+                        if (atom) {
+                            readAtomLink(reader, item);
+                        } else {
+                            item.link = text(reader);
+                        }
+                    }
+                    default -> skip(reader);
+                }
+            } else if (namespace.equals(ITUNES)) {
+                switch (name) {
+                    case "duration" -> item.durationSeconds = parseDuration(text(reader));
+                    case "season" -> item.season = first(item.season, parseInt(text(reader)));
+                    case "episode" -> item.episode = first(item.episode, parseInt(text(reader)));
+                    default -> skip(reader);
+                }
+            } else if (namespace.equals(PODCAST)) {
+                switch (name) {
+                    case "season" -> item.season = first(item.season, parseInt(text(reader)));
+                    case "episode" -> item.episode = first(item.episode, parseInt(text(reader)));
+                    default -> skip(reader);
+                }
+            } else {
+                skip(reader);
+            }
+        }
+
+        return item.build();
+    }
+
+    private void readAtomLink(XMLStreamReader reader, ItemBuilder item) throws XMLStreamException {
+        final var rel = attribute(reader, "rel");
+        final var href = attribute(reader, "href");
+        if ("enclosure".equals(rel)) {
+            item.enclosureUrl = first(item.enclosureUrl, href);
+            item.enclosureType = first(item.enclosureType, attribute(reader, "type"));
+            item.enclosureLength = first(item.enclosureLength, parseLong(attribute(reader, "length")));
+        } else if (rel == null || "alternate".equals(rel)) {
+            item.link = first(item.link, href);
+        }
+        skip(reader);
+    }
+
+    /// Skips the current element and its children without reading text
+    private static void skip(XMLStreamReader reader) throws XMLStreamException {
+        var depth = 1;
+        while (depth > 0) {
+            final var event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /// Reads the text of a leaf element up to its end tag. Child elements are skipped.
+    private static String text(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = null;
+        String single = null;
+        var depth = 1;
+
+        while (depth > 0) {
+            final var event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT -> depth++;
+                case XMLStreamConstants.END_ELEMENT -> depth--;
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                    if (depth != 1) {
+                        break;
+                    }
+                    // Most elements have a single text event, so avoid a builder until a second one arrives
+                    if (single == null) {
+                        single = reader.getText();
+                    } else {
+                        if (text == null) {
+                            text = new StringBuilder(single);
+                        }
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        final var value = text != null ? text.toString() : single;
+        if (value == null) {
+            return null;
+        }
+        final var stripped = value.strip();
+        return stripped.isEmpty() ? null : stripped;
+    }
+
+    /// Reads the text of a child element, such as the `name` of an Atom `author`, up to the end tag of the parent
+    private static String childText(XMLStreamReader reader, String namespace, String name) throws XMLStreamException {
+        String value = null;
+        var depth = 1;
+        while (depth > 0) {
+            final var event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                if (depth == 1 && value == null && name.equals(reader.getLocalName()) && namespace.equals(namespace(reader))) {
+                    value = text(reader);
+                } else {
+                    skip(reader);
+                }
+            }
+        }
+        return value;
+    }
+
+    private static String namespace(XMLStreamReader reader) {
+        final var namespace = reader.getNamespaceURI();
+        return namespace == null ? "" : namespace;
+    }
+
+    private static String attribute(XMLStreamReader reader, String name) {
+        final var value = reader.getAttributeValue(null, name);
+        return value == null || value.isBlank() ? null : value.strip();
+    }
+
+    private static <T> T first(T current, T candidate) {
+        return current != null ? current : candidate;
+    }
+
+    /// Parses an RFC 822 date as used by RSS, or an RFC 3339 date as used by Atom
+    ///
+    /// @param value the date string
+    /// @return the parsed instant, or `null` if the date can't be parsed
+    static Instant parseDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException _) {
+            // Fall through to the Atom format
+        }
+        try {
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException _) {
+            return null;
+        }
+    }
+
+    /// Parses an `itunes:duration` value, which may be seconds, `MM:SS` or `HH:MM:SS`
+    ///
+    /// @param value the duration string
+    /// @return the duration in seconds, or `null` if the value can't be parsed
+    static Integer parseDuration(String value) {
+        if (value == null) {
+            return null;
+        }
+        var seconds = 0;
+        for (var part : value.split(":")) {
+            final var parsed = parseInt(part.contains(".") ? part.substring(0, part.indexOf('.')) : part);
+            if (parsed == null) {
+                return null;
+            }
+            seconds = seconds * 60 + parsed;
+        }
+        return seconds;
+    }
+
+    private static Integer parseInt(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value.strip());
+        } catch (NumberFormatException _) {
+            return null;
+        }
+    }
+
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.strip());
+        } catch (NumberFormatException _) {
+            return null;
+        }
+    }
+
+    private static XMLInputFactory createFactory() {
+        final var factory = XMLInputFactory.newFactory();
+        // Feeds are untrusted input: refuse DTDs and external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return factory;
+    }
+
+    /// Channel metadata read from a feed
+    ///
+    /// @param title       the podcast title
+    /// @param author      the podcast author, from `itunes:author` or the Atom `author` name
+    /// @param link        the podcast's web page
+    /// @param description the podcast description
+    /// @param language    the language of the podcast
+    /// @param imageUrl    the URL of the podcast artwork, from `itunes:image`
+    /// @param podcastGuid the `podcast:guid` of the feed
+    /// @param hubUrl      the WebSub hub advertised by the feed, from `atom:link rel="hub"`
+    /// @param selfUrl     the canonical URL of the feed, from `atom:link rel="self"`
+    public record Channel(String title, String author, String link, String description, String language, String imageUrl,
+                          String podcastGuid, String hubUrl, String selfUrl) {
+    }
+
+    /// The result of a parse
+    ///
+    /// @param channel             the channel metadata. Only elements that appear before the first known episode are read.
+    /// @param emitted             the number of episodes passed to the consumer
+    /// @param reachedKnownEpisode whether parsing stopped at an episode that was already known
+    public record ParseResult(Channel channel, int emitted, boolean reachedKnownEpisode) {
+    }
+
+    private static final class ChannelBuilder {
+        private boolean atom;
+        private String title;
+        private String author;
+        private String link;
+        private String description;
+        private String language;
+        private String imageUrl;
+        private String podcastGuid;
+        private String hubUrl;
+        private String selfUrl;
+
+        private Channel build() {
+            return new Channel(title, author, link, description, language, imageUrl, podcastGuid, hubUrl, selfUrl);
+        }
+    }
+
+    private static final class ItemBuilder {
+        private String guid;
+        private String title;
+        private String link;
+        private Instant publishedAt;
+        private Instant updatedAt;
+        private String enclosureUrl;
+        private String enclosureType;
+        private Long enclosureLength;
+        private Integer durationSeconds;
+        private Integer season;
+        private Integer episode;
+
+        private ParsedEpisode build() {
+            // Many feeds omit the GUID. Fall back to the identifiers podcast apps commonly use.
+            final var identifier = guid != null ? guid : enclosureUrl != null ? enclosureUrl : link;
+            return new ParsedEpisode(identifier, title, link, publishedAt != null ? publishedAt : updatedAt,
+                    enclosureUrl, enclosureType, enclosureLength, durationSeconds, season, episode);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.openpodcastapi.opa.crawler;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/// Limits the rate of requests to each host with a token bucket.
+///
+/// Each host may receive a burst of requests, after which requests are spread out at a fixed rate.
+/// A host that answers with `429` or `503` is paused, for twice as long after each consecutive error.
+/// Buckets of hosts that haven't been contacted recently are discarded, so memory use follows the number of active hosts.
+@Component
+public class HostRateLimiter {
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final double tokensPerMilli;
+    private final double burst;
+    private final long basePauseMillis;
+    private final long maxPauseMillis;
+
+    /// Required-args constructor
+    ///
+    /// @param requestsPerSecond the sustained number of requests per second to a single host
+    /// @param burst             the number of requests a host may receive at once after a quiet period
+    /// @param basePause         how long a host is paused after its first `429` or `503`
+    /// @param maxPause          the longest a host is paused
+    public HostRateLimiter(@Value("${crawler.host-rate:1.0}") double requestsPerSecond,
+                           @Value("${crawler.host-burst:5}") int burst,
+                           @Value("${crawler.host-pause:PT1M}") Duration basePause,
+                           @Value("${crawler.host-max-pause:PT1H}") Duration maxPause) {
+        this.tokensPerMilli = requestsPerSecond / 1000.0;
+        this.burst = burst;
+        this.basePauseMillis = basePause.toMillis();
+        this.maxPauseMillis = maxPause.toMillis();
+    }
+
+    /// Takes a token for a request to a host if one is available
+    ///
+    /// @param host      the host of the request
+    /// @param nowMillis the current time in epoch milliseconds
+    /// @return `0` if a token was taken, otherwise the number of milliseconds until one is available
+    public long tryAcquire(String host, long nowMillis) {
+        final var bucket = buckets.computeIfAbsent(host, _ -> new Bucket(burst, nowMillis));
+        synchronized (bucket) {
+            if (nowMillis < bucket.pausedUntil) {
+                return bucket.pausedUntil - nowMillis;
+            }
+
+            bucket.tokens = Math.min(burst, bucket.tokens + (nowMillis - bucket.refilledAt) * tokensPerMilli);
+            bucket.refilledAt = nowMillis;
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - bucket.tokens) / tokensPerMilli));
+        }
+    }
+
+    /// Records the response of a host. Pauses the host if it asked the crawler to slow down.
+    ///
+    /// @param host      the host of the request
+    /// @param status    the HTTP status of the response, or `0` if no response was received
+    /// @param nowMillis the current time in epoch milliseconds
+    public void recordResponse(String host, int status, long nowMillis) {
+        final var bucket = buckets.get(host);
+        if (bucket == null) {
+            return;
+        }
+
+        synchronized (bucket) {
+            if (status == 429 || status == 503) {
+                final var pause = Math.min(maxPauseMillis, basePauseMillis << Math.min(bucket.consecutiveErrors, 20));
+                bucket.consecutiveErrors++;
+                bucket.pausedUntil = nowMillis + pause;
+                bucket.tokens = 0;
+            } else if (status > 0 && status < 500) {
+                bucket.consecutiveErrors = 0;
+            }
+        }
+    }
+
+    /// Discards buckets that have refilled completely and aren't paused.
+    /// Such a bucket is identical to a new one, so discarding it doesn't change the limits.
+    ///
+    /// @param nowMillis the current time in epoch milliseconds
+    public void evictIdle(long nowMillis) {
+        buckets.values().removeIf(bucket -> {
+            synchronized (bucket) {
+                return bucket.pausedUntil <= nowMillis
+                        && bucket.consecutiveErrors == 0
+                        && bucket.tokens + (nowMillis - bucket.refilledAt) * tokensPerMilli >= burst;
+            }
+        });
+    }
+
+    /// @return the number of hosts being tracked
+    public int size() {
+        return buckets.size();
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long refilledAt;
+        private long pausedUntil;
+        private int consecutiveErrors;
+
+        private Bucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.openpodcastapi.opa.crawler;
+
+import java.time.Instant;
+
+/// An episode read from a feed document
+///
+/// @param guid            the episode's GUID. Falls back to the enclosure URL, then the link, if the feed has no GUID.
+/// @param title           the episode title
+/// @param link            the episode's web page
+/// @param publishedAt     the publication date, or `null` if missing or unparseable
+/// @param enclosureUrl    the URL of the media file
+/// @param enclosureType   the MIME type of the media file
+/// @param enclosureLength the size of the media file in bytes
+/// @param durationSeconds the duration of the episode in seconds, from `itunes:duration`
+/// @param season          the season number, from `itunes:season` or `podcast:season`
+/// @param episode         the episode number, from `itunes:episode` or `podcast:episode`
+public record ParsedEpisode(
+        String guid,
+        String title,
+        String link,
+        Instant publishedAt,
+        String enclosureUrl,
+        String enclosureType,
+        Long enclosureLength,
+        Integer durationSeconds,
+        Integer season,
+        Integer episode
+) {
+}
@@ -0,0 +1,42 @@
+package org.openpodcastapi.opa.episode;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nullable;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/// Container for all episode-related data transfer objects
+public class EpisodeDTO {
+    /// A DTO representing an episode of a feed
+    ///
+    /// @param uuid            the UUID of the episode
+    /// @param feedUuid        the UUID of the feed the episode belongs to
+    /// @param guid            the GUID of the episode, as published in the feed
+    /// @param title           the episode title
+    /// @param link            the episode's web page
+    /// @param publishedAt     the publication date of the episode
+    /// @param enclosureUrl    the URL of the media file
+    /// @param enclosureType   the MIME type of the media file
+    /// @param enclosureLength the size of the media file in bytes
+    /// @param duration        the duration of the episode in seconds
+    /// @param season          the season number
+    /// @param episode         the episode number
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record EpisodeResponseDTO(
+            @JsonProperty(required = true) UUID uuid,
+            @JsonProperty(required = true) UUID feedUuid,
+            @JsonProperty(required = true) String guid,
+            @JsonProperty @Nullable String title,
+            @JsonProperty @Nullable String link,
+            @JsonProperty(required = true) Instant publishedAt,
+            @JsonProperty @Nullable String enclosureUrl,
+            @JsonProperty @Nullable String enclosureType,
+            @JsonProperty @Nullable Long enclosureLength,
+            @JsonProperty @Nullable Integer duration,
+            @JsonProperty @Nullable Integer season,
+            @JsonProperty @Nullable Integer episode
+    ) {
+    }
+}
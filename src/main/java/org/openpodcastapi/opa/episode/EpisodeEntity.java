@@ -0,0 +1,279 @@
+package org.openpodcastapi.opa.episode;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.openpodcastapi.opa.feed.FeedEntity;
+import org.openpodcastapi.opa.pagination.Cursorable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.UUID;
+
+/// An entity representing an episode of a feed.
+///
+/// Episodes are identified within their feed by the SHA-256 hash of their GUID.
+/// GUIDs have no length limit, so the fixed-width hash is used for the unique index instead of the GUID itself.
+@Entity
+@Table(name = "episodes", indexes = {
+        @Index(name = "uc_episodes_feed_id_guid_hash", columnList = "feed_id, guid_hash", unique = true),
+        @Index(name = "episodes_feed_id_published_at", columnList = "feed_id, publishedAt DESC, id DESC"),
+        @Index(name = "episodes_published_at", columnList = "publishedAt DESC, id DESC")
+})
+public class EpisodeEntity implements Cursorable {
+    /// The length in bytes of a GUID hash
+    public static final int GUID_HASH_LENGTH = 32;
+
+    /// The entity ID
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /// The UUID of the entity
+    @Column(unique = true, nullable = false, updatable = false, columnDefinition = "uuid")
+    private UUID uuid;
+
+    /// The feed the episode belongs to
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "feed_id", nullable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private FeedEntity feed;
+
+    /// The GUID of the episode, as published in the feed
+    @Column(nullable = false, length = 2048, updatable = false)
+    private String guid;
+
+    /// The SHA-256 hash of the GUID
+    @Column(name = "guid_hash", nullable = false, length = GUID_HASH_LENGTH, updatable = false)
+    private byte[] guidHash;
+
+    /// The episode title
+    @Column(length = 1024)
+    private String title;
+
+    /// The episode's web page
+    @Column(length = 2048)
+    private String link;
+
+    /// The publication date. Episodes without a publication date use the time they were first seen.
+    @Column(nullable = false)
+    private Instant publishedAt;
+
+    /// The URL of the media file
+    @Column(length = 2048)
+    private String enclosureUrl;
+
+    /// The MIME type of the media file
+    @Column
+    private String enclosureType;
+
+    /// The size of the media file in bytes
+    @Column
+    private Long enclosureLength;
+
+    /// The duration of the episode in seconds
+    @Column
+    private Integer durationSeconds;
+
+    /// The season number
+    @Column
+    private Integer season;
+
+    /// The episode number
+    @Column(name = "episode_number")
+    private Integer episodeNumber;
+
+    /// Creation timestamp
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    /// Last update timestamp
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    /// No-args constructor
+    public EpisodeEntity() {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param feed the feed the episode belongs to
+    /// @param guid the GUID of the episode
+    public EpisodeEntity(FeedEntity feed, String guid) {
+        this.feed = feed;
+        this.guid = guid;
+        this.guidHash = hashGuid(guid);
+    }
+
+    /// Returns the fixed-width hash of an episode GUID
+    ///
+    /// @param guid the GUID of the episode
+    /// @return the SHA-256 hash of the GUID
+    public static byte[] hashGuid(String guid) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(guid.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /// Performs actions on initial save
+    @PrePersist
+    public void prePersist() {
+        this.setUuid(UUID.randomUUID());
+        final Instant timestamp = Instant.now();
+        this.setCreatedAt(timestamp);
+        this.setUpdatedAt(timestamp);
+        if (this.publishedAt == null) {
+            this.setPublishedAt(timestamp);
+        }
+    }
+
+    /// Performs actions when an entity is updated
+    @PreUpdate
+    public void preUpdate() {
+        this.setUpdatedAt(Instant.now());
+    }
+
+    /// @return the episode ID
+    public Long getId() {
+        return id;
+    }
+
+    /// @return the episode UUID
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    /// @param uuid the episode UUID
+    public void setUuid(UUID uuid) {
+        this.uuid = uuid;
+    }
+
+    /// @return the feed the episode belongs to
+    public FeedEntity getFeed() {
+        return feed;
+    }
+
+    /// @return the GUID of the episode
+    public String getGuid() {
+        return guid;
+    }
+
+    /// @return the SHA-256 hash of the GUID
+    public byte[] getGuidHash() {
+        return guidHash;
+    }
+
+    /// @return the episode title
+    public String getTitle() {
+        return title;
+    }
+
+    /// @param title the episode title
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    /// @return the episode's web page
+    public String getLink() {
+        return link;
+    }
+
+    /// @param link the episode's web page
+    public void setLink(String link) {
+        this.link = link;
+    }
+
+    /// @return the publication date
+    public Instant getPublishedAt() {
+        return publishedAt;
+    }
+
+    /// @param publishedAt the publication date
+    public void setPublishedAt(Instant publishedAt) {
+        this.publishedAt = publishedAt;
+    }
+
+    /// @return the URL of the media file
+    public String getEnclosureUrl() {
+        return enclosureUrl;
+    }
+
+    /// @param enclosureUrl the URL of the media file
+    public void setEnclosureUrl(String enclosureUrl) {
+        this.enclosureUrl = enclosureUrl;
+    }
+
+    /// @return the MIME type of the media file
+    public String getEnclosureType() {
+        return enclosureType;
+    }
+
+    /// @param enclosureType the MIME type of the media file
+    public void setEnclosureType(String enclosureType) {
+        this.enclosureType = enclosureType;
+    }
+
+    /// @return the size of the media file in bytes
+    public Long getEnclosureLength() {
+        return enclosureLength;
+    }
+
+    /// @param enclosureLength the size of the media file in bytes
+    public void setEnclosureLength(Long enclosureLength) {
+        this.enclosureLength = enclosureLength;
+    }
+
+    /// @return the duration of the episode in seconds
+    public Integer getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    /// @param durationSeconds the duration of the episode in seconds
+    public void setDurationSeconds(Integer durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    /// @return the season number
+    public Integer getSeason() {
+        return season;
+    }
+
+    /// @param season the season number
+    public void setSeason(Integer season) {
+        this.season = season;
+    }
+
+    /// @return the episode number
+    public Integer getEpisodeNumber() {
+        return episodeNumber;
+    }
+
+    /// @param episodeNumber the episode number
+    public void setEpisodeNumber(Integer episodeNumber) {
+        this.episodeNumber = episodeNumber;
+    }
+
+    /// @return the creation timestamp
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /// @param createdAt the creation timestamp
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    /// @return the last update timestamp
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /// @param updatedAt the last update timestamp
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
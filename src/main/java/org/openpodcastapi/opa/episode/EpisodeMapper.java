@@ -0,0 +1,18 @@
+package org.openpodcastapi.opa.episode;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+
+/// Mapper for episode items
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface EpisodeMapper {
+    /// Maps an episode to a DTO
+    ///
+    /// @param episodeEntity the entity to map
+    /// @return the mapped DTO
+    @Mapping(target = "feedUuid", source = "feed.uuid")
+    @Mapping(target = "duration", source = "durationSeconds")
+    @Mapping(target = "episode", source = "episodeNumber")
+    EpisodeDTO.EpisodeResponseDTO toDto(EpisodeEntity episodeEntity);
+}
@@ -0,0 +1,106 @@
+package org.openpodcastapi.opa.episode;
+
+import org.jspecify.annotations.NonNull;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/// Repository for episode interactions
+@Repository
+public interface EpisodeRepository extends JpaRepository<@NonNull EpisodeEntity, @NonNull Long> {
+    /// Finds the GUID hashes of a feed's newest episodes.
+    /// Answered from the `episodes_feed_id_published_at` index.
+    ///
+    /// @param feedId the database ID of the feed
+    /// @param limit  the maximum number of hashes to return
+    /// @return the GUID hashes, newest episode first
+    @Query("select e.guidHash from EpisodeEntity e where e.feed.id = :feedId order by e.publishedAt desc, e.id desc")
+    List<byte[]> findRecentGuidHashes(Long feedId, Limit limit);
+
+    /// Finds the episodes of a feed matching a set of GUID hashes
+    ///
+    /// @param feedId     the database ID of the feed
+    /// @param guidHashes the GUID hashes to match
+    /// @return the matching episodes
+    @Query("select e from EpisodeEntity e where e.feed.id = :feedId and e.guidHash in :guidHashes")
+    List<EpisodeEntity> findByFeedIdAndGuidHashIn(Long feedId, Collection<byte[]> guidHashes);
+
+    /// Counts the episodes of a feed
+    ///
+    /// @param feedId the database ID of the feed
+    /// @return the number of episodes
+    long countByFeedId(Long feedId);
+
+    /// Finds the database IDs of a set of episodes
+    ///
+    /// @param uuids the UUIDs of the episodes
+    /// @return the IDs of the episodes that exist
+    @Query("select new org.openpodcastapi.opa.episode.EpisodeRepository$EpisodeKey(e.id, e.uuid) from EpisodeEntity e where e.uuid in :uuids")
+    List<EpisodeKey> findKeysByUuidIn(Collection<UUID> uuids);
+
+    /// Finds the UUIDs of a set of episodes
+    ///
+    /// @param ids the database IDs of the episodes
+    /// @return the keys of the episodes that exist
+    @Query("select new org.openpodcastapi.opa.episode.EpisodeRepository$EpisodeKey(e.id, e.uuid) from EpisodeEntity e where e.id in :ids")
+    List<EpisodeKey> findKeysByIdIn(Collection<Long> ids);
+
+    /// Finds the feeds of a set of episodes
+    ///
+    /// @param ids the database IDs of the episodes
+    /// @return the feeds of the episodes that exist
+    @Query("select new org.openpodcastapi.opa.episode.EpisodeRepository$EpisodeFeed(e.id, e.feed.id) from EpisodeEntity e where e.id in :ids")
+    List<EpisodeFeed> findFeedsByIdIn(Collection<Long> ids);
+
+    /// Finds a set of episodes along with their feeds, so mapping them to DTOs doesn't query each feed
+    ///
+    /// @param ids the database IDs of the episodes
+    /// @return the episodes that exist
+    @Query("select e from EpisodeEntity e join fetch e.feed where e.id in :ids")
+    List<EpisodeEntity> findWithFeedByIdIn(Collection<Long> ids);
+
+    /// Finds the searchable text of episodes in order of ID, to index them in batches
+    ///
+    /// @param after the database ID to start after
+    /// @param limit the maximum number of episodes to return
+    /// @return the text of the episodes
+    @Query("select new org.openpodcastapi.opa.episode.EpisodeRepository$EpisodeText(e.id, e.feed.id, e.title, e.publishedAt) from EpisodeEntity e where e.id > :after order by e.id")
+    List<EpisodeText> findTextsAfter(Long after, Limit limit);
+
+    /// Finds the searchable text of a feed's episodes stored or changed since a point in time
+    ///
+    /// @param feedId the database ID of the feed
+    /// @param since  the earliest update time to match
+    /// @return the text of the episodes
+    @Query("select new org.openpodcastapi.opa.episode.EpisodeRepository$EpisodeText(e.id, e.feed.id, e.title, e.publishedAt) from EpisodeEntity e where e.feed.id = :feedId and e.updatedAt >= :since")
+    List<EpisodeText> findTextsUpdatedSince(Long feedId, Instant since);
+
+    /// The identifiers of an episode
+    ///
+    /// @param id   the database ID of the episode
+    /// @param uuid the UUID of the episode
+    record EpisodeKey(Long id, UUID uuid) {
+    }
+
+    /// The feed of an episode
+    ///
+    /// @param id     the database ID of the episode
+    /// @param feedId the database ID of the feed
+    record EpisodeFeed(Long id, Long feedId) {
+    }
+
+    /// The searchable text of an episode
+    ///
+    /// @param id          the database ID of the episode
+    /// @param feedId      the database ID of the feed
+    /// @param title       the title of the episode
+    /// @param publishedAt the publication date of the episode
+    record EpisodeText(Long id, Long feedId, String title, Instant publishedAt) {
+    }
+}
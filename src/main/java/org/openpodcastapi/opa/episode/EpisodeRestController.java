@@ -0,0 +1,54 @@
+package org.openpodcastapi.opa.episode;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.openpodcastapi.opa.pagination.CursorPage;
+import org.openpodcastapi.opa.service.CustomUserDetails;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+/// Controller for API episode requests
+@RestController
+@RequestMapping("/api/v1")
+public class EpisodeRestController {
+    private final EpisodeService service;
+
+    /// Required-args constructor
+    ///
+    /// @param service the service used for episode actions
+    public EpisodeRestController(EpisodeService service) {
+        this.service = service;
+    }
+
+    /// Returns the episodes of every feed the user is subscribed to, newest first
+    ///
+    /// @param user   the custom user details of the authenticated user
+    /// @param cursor the base64-encoded cursor string
+    /// @param limit  the number of results to return
+    /// @return a response containing episode objects
+    @GetMapping("/episodes")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<CursorPage<EpisodeDTO.EpisodeResponseDTO>> getEpisodesForUser(@AuthenticationPrincipal CustomUserDetails user, @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(service.getEpisodesForUser(user.id(), cursor, limit));
+    }
+
+    /// Returns the episodes of a feed, newest first
+    ///
+    /// @param uuid   the UUID of the feed
+    /// @param cursor the base64-encoded cursor string
+    /// @param limit  the number of results to return
+    /// @return a response containing episode objects
+    /// @throws EntityNotFoundException  if no matching feed is found
+    /// @throws IllegalArgumentException if the UUID is improperly formatted
+    @GetMapping("/feeds/{uuid}/episodes")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<CursorPage<EpisodeDTO.EpisodeResponseDTO>> getEpisodesForFeed(@PathVariable String uuid, @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int limit) throws EntityNotFoundException {
+        // If the value is invalid, the GlobalExceptionHandler will throw a 400.
+        final var uuidValue = UUID.fromString(uuid);
+
+        return ResponseEntity.ok(service.getEpisodesForFeed(uuidValue, cursor, limit));
+    }
+}
@@ -0,0 +1,192 @@
+package org.openpodcastapi.opa.episode;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import jakarta.persistence.EntityNotFoundException;
+import org.openpodcastapi.opa.crawler.FeedFetchedEvent;
+import org.openpodcastapi.opa.crawler.FeedParser;
+import org.openpodcastapi.opa.crawler.ParsedEpisode;
+import org.openpodcastapi.opa.feed.FeedDetailsChangedEvent;
+import org.openpodcastapi.opa.feed.FeedService;
+import org.openpodcastapi.opa.pagination.CursorPage;
+import org.openpodcastapi.opa.pagination.CursorRepository;
+import org.openpodcastapi.opa.pagination.CursorUtility;
+import org.openpodcastapi.opa.subscription.QSubscriptionEntity;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Service for episode-related actions
+@Service
+public class EpisodeService {
+    private static final Logger log = getLogger(EpisodeService.class);
+    private static final QEpisodeEntity qEpisode = QEpisodeEntity.episodeEntity;
+    private static final QSubscriptionEntity qSubscription = QSubscriptionEntity.subscriptionEntity;
+
+    private final FeedService feedService;
+    private final FeedParser parser;
+    private final EpisodeRepository episodeRepository;
+    private final EpisodeUpsertRepository upsertRepository;
+    private final EpisodeMapper mapper;
+    private final CursorRepository cursorRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int knownWindow;
+
+    /// All-args constructor
+    ///
+    /// @param feedService       the service used to resolve feed UUIDs
+    /// @param parser            the parser used to read refreshed feeds
+    /// @param episodeRepository the repository used for episode interactions
+    /// @param upsertRepository  the repository used to store parsed episodes
+    /// @param mapper            the mapper used for mapping episode entities and DTOs
+    /// @param cursorRepository  the cursor repository used for paginated requests
+    /// @param eventPublisher    the publisher used to announce stored episodes
+    /// @param batchSize         the number of parsed episodes stored per statement
+    /// @param knownWindow       the number of a feed's newest episodes checked to find where a refresh can stop
+    public EpisodeService(FeedService feedService,
+                          FeedParser parser,
+                          EpisodeRepository episodeRepository,
+                          EpisodeUpsertRepository upsertRepository,
+                          EpisodeMapper mapper,
+                          CursorRepository cursorRepository,
+                          ApplicationEventPublisher eventPublisher,
+                          @Value("${episodes.ingest.batch-size:500}") int batchSize,
+                          @Value("${episodes.ingest.known-window:200}") int knownWindow) {
+        this.feedService = feedService;
+        this.parser = parser;
+        this.episodeRepository = episodeRepository;
+        this.upsertRepository = upsertRepository;
+        this.mapper = mapper;
+        this.cursorRepository = cursorRepository;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.knownWindow = knownWindow;
+    }
+
+    /// Gets the episodes of a feed, newest first
+    ///
+    /// @param feedUuid the UUID or alias UUID of the feed
+    /// @param cursor   the encoded cursor
+    /// @param limit    the number of results to return
+    /// @return a paginated set of episodes
+    /// @throws EntityNotFoundException if no matching feed is found
+    @Transactional(readOnly = true)
+    public CursorPage<EpisodeDTO.EpisodeResponseDTO> getEpisodesForFeed(UUID feedUuid, String cursor, int limit) throws EntityNotFoundException {
+        final var feed = feedService.findFeed(feedUuid)
+                .orElseThrow(() -> new EntityNotFoundException("feed not found"));
+
+        log.debug("Fetching episodes for feed {}", feed.uuid());
+        return fetchEpisodePage(qEpisode.feed.id.eq(feed.id()), cursor, limit);
+    }
+
+    /// Gets the episodes of every feed a user is subscribed to, newest first.
+    /// Feeds the user has unsubscribed from are excluded.
+    ///
+    /// @param userId the database ID of the user
+    /// @param cursor the encoded cursor
+    /// @param limit  the number of results to return
+    /// @return a paginated set of episodes
+    @Transactional(readOnly = true)
+    public CursorPage<EpisodeDTO.EpisodeResponseDTO> getEpisodesForUser(Long userId, String cursor, int limit) {
+        log.debug("Fetching subscribed episodes for {}", userId);
+        final var subscribedFeeds = JPAExpressions.select(qSubscription.feed.id)
+                .from(qSubscription)
+                .where(qSubscription.user.id.eq(userId), qSubscription.unsubscribedAt.isNull());
+
+        return fetchEpisodePage(qEpisode.feed.id.in(subscribedFeeds), cursor, limit);
+    }
+
+    /// Queries a page of episodes ordered by publication date
+    ///
+    /// @param filter the filter selecting the episodes
+    /// @param cursor the encoded cursor
+    /// @param limit  the number of results to return
+    /// @return a paginated set of episodes
+    private CursorPage<EpisodeDTO.EpisodeResponseDTO> fetchEpisodePage(BooleanExpression filter, String cursor, int limit) {
+        final var cursorPayload = cursor == null
+                ? null
+                : CursorUtility.decode(cursor);
+
+        return cursorRepository.findWithCursor(qEpisode, qEpisode.publishedAt, EpisodeEntity::getPublishedAt, cursorPayload, limit, filter, true)
+                .map(mapper::toDto);
+    }
+
+    /// Stores the new episodes of a refreshed feed
+    ///
+    /// @param event the event published by the crawler
+    @EventListener
+    public void onFeedFetched(FeedFetchedEvent event) {
+        try {
+            final var stored = ingest(event.feedId(), new ByteArrayInputStream(event.body()));
+            log.debug("Stored {} episodes of feed {}", stored, event.feedUuid());
+        } catch (XMLStreamException e) {
+            log.debug("Unable to parse feed {}: {}", event.feedUrl(), e.getMessage());
+        } catch (RuntimeException e) {
+            // The fetch itself succeeded, so don't let a storage failure mark it as failed
+            log.warn("Unable to store episodes of feed {}: {}", event.feedUuid(), e.getMessage());
+        }
+    }
+
+    /// Parses a feed document and stores its episodes in batches.
+    ///
+    /// Parsing stops at the first episode that's already stored among the feed's newest episodes.
+    /// Each batch is stored in its own transaction, so memory use doesn't grow with the size of the feed.
+    /// The feed's title and author are updated from the channel, publishing a [FeedDetailsChangedEvent] if they changed.
+    /// An [EpisodesStoredEvent] is published once every batch is stored, if any episode was inserted or changed.
+    ///
+    /// @param feedId   the database ID of the feed
+    /// @param document the feed document
+    /// @return the number of episodes inserted or changed
+    /// @throws XMLStreamException if the document isn't well-formed XML
+    public int ingest(Long feedId, InputStream document) throws XMLStreamException {
+        final var startedAt = Instant.now();
+        final Set<ByteBuffer> known = episodeRepository.findRecentGuidHashes(feedId, Limit.of(knownWindow)).stream()
+                .map(ByteBuffer::wrap)
+                .collect(Collectors.toCollection(HashSet::new));
+
+        final List<ParsedEpisode> batch = new ArrayList<>(batchSize);
+        final var stored = new int[1];
+
+        final var result = parser.parse(document, guid -> known.contains(ByteBuffer.wrap(EpisodeEntity.hashGuid(guid))), episode -> {
+            batch.add(episode);
+            if (batch.size() >= batchSize) {
+                stored[0] += upsertRepository.upsert(feedId, batch);
+                batch.clear();
+            }
+        });
+
+        if (!batch.isEmpty()) {
+            stored[0] += upsertRepository.upsert(feedId, batch);
+        }
+
+        final var channel = result.channel();
+        if (feedService.updateDetails(feedId, channel.title(), channel.author())) {
+            eventPublisher.publishEvent(new FeedDetailsChangedEvent(feedId));
+        }
+
+        if (stored[0] > 0) {
+            eventPublisher.publishEvent(new EpisodesStoredEvent(feedId, startedAt));
+        }
+
+        return stored[0];
+    }
+}
@@ -0,0 +1,199 @@
+package org.openpodcastapi.opa.episode;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+import org.openpodcastapi.opa.crawler.ParsedEpisode;
+import org.openpodcastapi.opa.feed.FeedEntity;
+import org.openpodcastapi.opa.util.DatabasePlatform;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.*;
+
+/// Repository for batched episode upserts from feed refreshes.
+///
+/// On PostgreSQL, each batch is a single multi-row `INSERT ... ON CONFLICT DO UPDATE` statement.
+/// Rows are only rewritten if a field has changed, so refreshing an unchanged episode doesn't create a dead tuple.
+/// Other databases read the existing episodes of the batch in one query and insert or update the rest through JPA.
+@Repository
+public class EpisodeUpsertRepository {
+    private static final String UPSERT_INSERT = """
+            INSERT INTO episodes (uuid, feed_id, guid, guid_hash, title, link, published_at, enclosure_url, enclosure_type,
+                                  enclosure_length, duration_seconds, season, episode_number, created_at, updated_at)
+            VALUES
+            """;
+
+    private static final String UPSERT_ROW = "(:uuid%1$d, :feedId, :guid%1$d, :guidHash%1$d, :title%1$d, :link%1$d, :publishedAt%1$d, :enclosureUrl%1$d, "
+            + ":enclosureType%1$d, :enclosureLength%1$d, :durationSeconds%1$d, :season%1$d, :episodeNumber%1$d, :now, :now)";
+
+    // Publication dates aren't updated: an episode without a date keeps the time it was first seen
+    private static final String UPSERT_CONFLICT = """
+            ON CONFLICT (feed_id, guid_hash) DO UPDATE
+            SET title = EXCLUDED.title,
+                link = EXCLUDED.link,
+                enclosure_url = EXCLUDED.enclosure_url,
+                enclosure_type = EXCLUDED.enclosure_type,
+                enclosure_length = EXCLUDED.enclosure_length,
+                duration_seconds = EXCLUDED.duration_seconds,
+                season = EXCLUDED.season,
+                episode_number = EXCLUDED.episode_number,
+                updated_at = EXCLUDED.updated_at
+            WHERE (episodes.title, episodes.link, episodes.enclosure_url, episodes.enclosure_type, episodes.enclosure_length,
+                   episodes.duration_seconds, episodes.season, episodes.episode_number)
+                IS DISTINCT FROM
+                  (EXCLUDED.title, EXCLUDED.link, EXCLUDED.enclosure_url, EXCLUDED.enclosure_type, EXCLUDED.enclosure_length,
+                   EXCLUDED.duration_seconds, EXCLUDED.season, EXCLUDED.episode_number)
+            """;
+
+    private static final int MAX_GUID_LENGTH = 2048;
+    private static final int MAX_TITLE_LENGTH = 1024;
+    private static final int MAX_URL_LENGTH = 2048;
+    private static final int MAX_TYPE_LENGTH = 255;
+
+    private final EntityManager entityManager;
+    private final DatabasePlatform databasePlatform;
+    private final EpisodeRepository episodeRepository;
+
+    /// Required-args constructor
+    ///
+    /// @param entityManager     the entity manager used to run the statements
+    /// @param databasePlatform  the platform used to select the statement dialect
+    /// @param episodeRepository the repository used to read existing episodes on databases other than PostgreSQL
+    public EpisodeUpsertRepository(EntityManager entityManager, DatabasePlatform databasePlatform, EpisodeRepository episodeRepository) {
+        this.entityManager = entityManager;
+        this.databasePlatform = databasePlatform;
+        this.episodeRepository = episodeRepository;
+    }
+
+    /// Inserts a batch of episodes, or updates episodes of the feed with the same GUID.
+    /// Episodes without a GUID, or with a GUID longer than the column allows, are ignored.
+    /// If a GUID appears twice, the first occurrence wins. Text fields longer than their columns are truncated.
+    ///
+    /// @param feedId   the database ID of the feed
+    /// @param episodes the episodes to upsert
+    /// @return the number of episodes inserted or changed
+    @Transactional
+    public int upsert(Long feedId, List<ParsedEpisode> episodes) {
+        final Map<ByteBuffer, ParsedEpisode> byHash = new LinkedHashMap<>();
+        for (var episode : episodes) {
+            if (episode.guid() != null && episode.guid().length() <= MAX_GUID_LENGTH) {
+                byHash.putIfAbsent(ByteBuffer.wrap(EpisodeEntity.hashGuid(episode.guid())), truncate(episode));
+            }
+        }
+
+        if (byHash.isEmpty()) {
+            return 0;
+        }
+
+        if (databasePlatform.isPostgres()) {
+            return upsertPostgres(feedId, byHash);
+        }
+        return upsertPortable(feedId, byHash);
+    }
+
+    private int upsertPostgres(Long feedId, Map<ByteBuffer, ParsedEpisode> byHash) {
+        final var sql = new StringJoiner(",\n", UPSERT_INSERT, "\n" + UPSERT_CONFLICT);
+        for (var i = 0; i < byHash.size(); i++) {
+            sql.add(UPSERT_ROW.formatted(i));
+        }
+
+        @SuppressWarnings("unchecked") final NativeQuery<?> query = entityManager
+                .createNativeQuery(sql.toString())
+                .unwrap(NativeQuery.class);
+
+        final var now = Instant.now();
+        query.setParameter("feedId", feedId);
+        query.setParameter("now", now);
+
+        var i = 0;
+        for (var entry : byHash.entrySet()) {
+            final var episode = entry.getValue();
+            query.setParameter("uuid" + i, UUID.randomUUID());
+            query.setParameter("guid" + i, episode.guid());
+            query.setParameter("guidHash" + i, entry.getKey().array());
+            query.setParameter("title" + i, episode.title(), String.class);
+            query.setParameter("link" + i, episode.link(), String.class);
+            query.setParameter("publishedAt" + i, episode.publishedAt() != null ? episode.publishedAt() : now);
+            query.setParameter("enclosureUrl" + i, episode.enclosureUrl(), String.class);
+            query.setParameter("enclosureType" + i, episode.enclosureType(), String.class);
+            query.setParameter("enclosureLength" + i, episode.enclosureLength(), Long.class);
+            query.setParameter("durationSeconds" + i, episode.durationSeconds(), Integer.class);
+            query.setParameter("season" + i, episode.season(), Integer.class);
+            query.setParameter("episodeNumber" + i, episode.episode(), Integer.class);
+            i++;
+        }
+
+        return query.executeUpdate();
+    }
+
+    private int upsertPortable(Long feedId, Map<ByteBuffer, ParsedEpisode> byHash) {
+        final var hashes = byHash.keySet().stream().map(ByteBuffer::array).toList();
+        final Map<ByteBuffer, EpisodeEntity> existing = new HashMap<>();
+        episodeRepository.findByFeedIdAndGuidHashIn(feedId, hashes)
+                .forEach(episode -> existing.put(ByteBuffer.wrap(episode.getGuidHash()), episode));
+
+        final var feed = entityManager.getReference(FeedEntity.class, feedId);
+        var changed = 0;
+
+        for (var entry : byHash.entrySet()) {
+            final var parsed = entry.getValue();
+            final var episode = existing.get(entry.getKey());
+
+            if (episode == null) {
+                final var created = new EpisodeEntity(feed, parsed.guid());
+                created.setPublishedAt(parsed.publishedAt());
+                apply(created, parsed);
+                entityManager.persist(created);
+                changed++;
+            } else if (!matches(episode, parsed)) {
+                apply(episode, parsed);
+                changed++;
+            }
+        }
+
+        entityManager.flush();
+        return changed;
+    }
+
+    private static ParsedEpisode truncate(ParsedEpisode episode) {
+        return new ParsedEpisode(
+                episode.guid(),
+                truncate(episode.title(), MAX_TITLE_LENGTH),
+                truncate(episode.link(), MAX_URL_LENGTH),
+                episode.publishedAt(),
+                truncate(episode.enclosureUrl(), MAX_URL_LENGTH),
+                truncate(episode.enclosureType(), MAX_TYPE_LENGTH),
+                episode.enclosureLength(),
+                episode.durationSeconds(),
+                episode.season(),
+                episode.episode());
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    private static void apply(EpisodeEntity episode, ParsedEpisode parsed) {
+        episode.setTitle(parsed.title());
+        episode.setLink(parsed.link());
+        episode.setEnclosureUrl(parsed.enclosureUrl());
+        episode.setEnclosureType(parsed.enclosureType());
+        episode.setEnclosureLength(parsed.enclosureLength());
+        episode.setDurationSeconds(parsed.durationSeconds());
+        episode.setSeason(parsed.season());
+        episode.setEpisodeNumber(parsed.episode());
+    }
+
+    private static boolean matches(EpisodeEntity episode, ParsedEpisode parsed) {
+        return Objects.equals(episode.getTitle(), parsed.title())
+                && Objects.equals(episode.getLink(), parsed.link())
+                && Objects.equals(episode.getEnclosureUrl(), parsed.enclosureUrl())
+                && Objects.equals(episode.getEnclosureType(), parsed.enclosureType())
+                && Objects.equals(episode.getEnclosureLength(), parsed.enclosureLength())
+                && Objects.equals(episode.getDurationSeconds(), parsed.durationSeconds())
+                && Objects.equals(episode.getSeason(), parsed.season())
+                && Objects.equals(episode.getEpisodeNumber(), parsed.episode());
+    }
+}
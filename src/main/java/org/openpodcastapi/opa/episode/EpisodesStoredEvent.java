@@ -0,0 +1,11 @@
+package org.openpodcastapi.opa.episode;
+
+import java.time.Instant;
+
+/// Published after a refresh of a feed inserts or changes at least one episode.
+/// Listeners run on the thread that ingested the feed, after the episodes are committed.
+///
+/// @param feedId the database ID of the feed
+/// @param since  the time the refresh started. Episodes first stored by the refresh were created at or after it.
+public record EpisodesStoredEvent(Long feedId, Instant since) {
+}
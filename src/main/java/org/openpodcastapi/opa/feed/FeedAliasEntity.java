@@ -0,0 +1,62 @@
+package org.openpodcastapi.opa.feed;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/// An entity mapping an additional client-supplied UUID to a feed.
+///
+/// When clients compute different UUIDs for the same canonical feed URL, the first UUID identifies the feed and the others are stored as aliases.
+@Entity
+@Table(name = "feed_aliases", indexes = {
+        @Index(name = "feed_aliases_feed_id", columnList = "feed_id")
+})
+public class FeedAliasEntity {
+    /// The alias UUID
+    @Id
+    @Column(nullable = false, updatable = false, columnDefinition = "uuid")
+    private UUID uuid;
+
+    /// The feed the alias resolves to
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "feed_id", nullable = false)
+    private FeedEntity feed;
+
+    /// Creation timestamp
+    private Instant createdAt;
+
+    /// No-args constructor
+    public FeedAliasEntity() {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param uuid the alias UUID
+    /// @param feed the feed the alias resolves to
+    public FeedAliasEntity(UUID uuid, FeedEntity feed) {
+        this.uuid = uuid;
+        this.feed = feed;
+    }
+
+    /// Sets the creation timestamp before saving
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = Instant.now();
+    }
+
+    /// @return the alias UUID
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    /// @return the feed the alias resolves to
+    public FeedEntity getFeed() {
+        return feed;
+    }
+
+    /// @return the `createdAt` timestamp for the alias
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,21 @@
+package org.openpodcastapi.opa.feed;
+
+import org.jspecify.annotations.NonNull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/// Repository for feed alias interactions
+@Repository
+public interface FeedAliasRepository extends JpaRepository<@NonNull FeedAliasEntity, @NonNull UUID> {
+    /// Resolves alias UUIDs to the UUIDs of their feeds
+    ///
+    /// @param uuids the UUIDs to resolve
+    /// @return a mapping for each UUID that is an alias. UUIDs that aren't aliases are omitted.
+    @Query("select new org.openpodcastapi.opa.feed.FeedDTO$FeedAliasDTO(a.uuid, f.uuid) from FeedAliasEntity a join a.feed f where a.uuid in :uuids")
+    List<FeedDTO.FeedAliasDTO> findCanonicalUuids(Collection<UUID> uuids);
+}
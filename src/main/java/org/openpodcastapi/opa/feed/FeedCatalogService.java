@@ -0,0 +1,93 @@
+package org.openpodcastapi.opa.feed;
+
+import org.openpodcastapi.opa.pagination.CursorPage;
+import org.openpodcastapi.opa.pagination.CursorRepository;
+import org.openpodcastapi.opa.pagination.CursorUtility;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Service for listing every feed known to the server.
+///
+/// Pages are read with keyset pagination, by creation date or by subscriber count, from indexes on the `feeds`
+/// table, so no subscriptions are counted. Popular feeds are ordered by their count as of the last fold of
+/// their stripes, while the count returned also includes the changes not yet folded.
+@Service
+public class FeedCatalogService {
+    private static final Logger log = getLogger(FeedCatalogService.class);
+    private static final QFeedEntity qFeed = QFeedEntity.feedEntity;
+
+    private final CursorRepository cursorRepository;
+    private final SubscriberCountService subscriberCountService;
+    private final int maxLimit;
+
+    /// The orders the catalog can be listed in
+    public enum Sort {
+        /// Newest feeds first
+        NEWEST,
+        /// Feeds with the most subscribers first
+        SUBSCRIBERS;
+
+        /// Parses an order from a request parameter
+        ///
+        /// @param value the parameter, in any case
+        /// @return the order
+        /// @throws IllegalArgumentException if the value names no order
+        public static Sort parse(String value) {
+            for (final var sort : values()) {
+                if (sort.name().equalsIgnoreCase(value)) {
+                    return sort;
+                }
+            }
+            throw new IllegalArgumentException("sort must be newest or subscribers");
+        }
+    }
+
+    /// All-args constructor
+    ///
+    /// @param cursorRepository       the cursor repository used for paginated requests
+    /// @param subscriberCountService the service used to read subscriber count changes not yet folded
+    /// @param maxLimit               the maximum number of feeds per page
+    public FeedCatalogService(CursorRepository cursorRepository,
+                              SubscriberCountService subscriberCountService,
+                              @Value("${feeds.catalog.max-limit:100}") int maxLimit) {
+        this.cursorRepository = cursorRepository;
+        this.subscriberCountService = subscriberCountService;
+        this.maxLimit = maxLimit;
+    }
+
+    /// Lists a page of feeds
+    ///
+    /// @param sort   the order of the feeds
+    /// @param cursor the encoded cursor
+    /// @param limit  the number of results to return
+    /// @return a paginated set of feeds
+    /// @throws IllegalArgumentException if the cursor is invalid, or the limit isn't between 1 and the maximum
+    @Transactional(readOnly = true)
+    public CursorPage<FeedDTO.FeedSummaryDTO> getFeeds(Sort sort, String cursor, int limit) {
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+        final var cursorPayload = cursor == null
+                ? null
+                : CursorUtility.decode(cursor);
+
+        log.debug("Fetching feeds by {}", sort);
+        final var page = switch (sort) {
+            case NEWEST -> cursorRepository.findWithCursor(qFeed, cursorPayload, limit, null, true);
+            case SUBSCRIBERS -> cursorRepository.findWithCountCursor(qFeed, qFeed.subscriberCount, FeedEntity::getSubscriberCount, cursorPayload, limit, null);
+        };
+
+        final var pending = subscriberCountService.findPending(page.data().stream().map(FeedEntity::getId).toList());
+        return page.map(feed -> new FeedDTO.FeedSummaryDTO(
+                feed.getUuid(),
+                feed.getFeedUrl(),
+                feed.getTitle(),
+                feed.getAuthor(),
+                feed.getSubscriberCount() + pending.getOrDefault(feed.getId(), 0L),
+                feed.getCreatedAt()));
+    }
+}
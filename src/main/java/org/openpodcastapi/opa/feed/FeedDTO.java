@@ -1,9 +1,13 @@
 package org.openpodcastapi.opa.feed;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nullable;
 import jakarta.validation.constraints.NotNull;
 import org.hibernate.validator.constraints.UUID;
 
+import java.time.Instant;
+
 /// DTO records for feed entities
 public class FeedDTO {
     /// A DTO representing a new subscription
@@ -15,4 +19,30 @@ public class FeedDTO {
             @JsonProperty(required = true) @NotNull String feedUrl
     ) {
     }
+
+    /// A DTO mapping an alias UUID to the UUID of its feed
+    ///
+    /// @param alias     the alias UUID
+    /// @param canonical the UUID of the feed the alias resolves to
+    public record FeedAliasDTO(java.util.UUID alias, java.util.UUID canonical) {
+    }
+
+    /// A DTO representing a feed in the catalog
+    ///
+    /// @param uuid        the UUID of the feed
+    /// @param feedUrl     the URL of the feed
+    /// @param title       the title of the feed
+    /// @param author      the author of the feed
+    /// @param subscribers the number of users subscribed to the feed
+    /// @param createdAt   the date the feed was first subscribed to
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record FeedSummaryDTO(
+            @JsonProperty(required = true) java.util.UUID uuid,
+            @JsonProperty(required = true) String feedUrl,
+            @JsonProperty @Nullable String title,
+            @JsonProperty @Nullable String author,
+            @JsonProperty(required = true) long subscribers,
+            @JsonProperty(required = true) Instant createdAt
+    ) {
+    }
 }
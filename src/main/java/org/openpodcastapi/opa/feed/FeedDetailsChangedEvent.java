@@ -0,0 +1,8 @@
+package org.openpodcastapi.opa.feed;
+
+/// Published after a refresh of a feed changes its stored title or author.
+/// Listeners run on the thread that ingested the feed, after the change is committed.
+///
+/// @param feedId the database ID of the feed
+public record FeedDetailsChangedEvent(Long feedId) {
+}
@@ -1,6 +1,9 @@
 package org.openpodcastapi.opa.feed;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
+import org.openpodcastapi.opa.pagination.Cursorable;
 import org.openpodcastapi.opa.subscription.SubscriptionEntity;
 
 import java.time.Instant;
@@ -9,8 +12,19 @@ import java.util.UUID;
 
 /// An entity representing podcast feed metadata
 @Entity
-@Table(name = "feeds")
-public class FeedEntity {
+@Table(name = "feeds", indexes = {
+        @Index(name = "uc_feeds_feed_url_hash", columnList = "feed_url_hash", unique = true),
+        @Index(name = "feeds_updated_at", columnList = "updatedAt"),
+        @Index(name = "feeds_created_at", columnList = "createdAt DESC, id DESC"),
+        @Index(name = "feeds_subscriber_count", columnList = "subscriber_count DESC, id DESC")
+})
+@EntityListeners(FeedIdentityListener.class)
+// Lists of subscriptions and episodes load their feeds in batches instead of one query per row
+@BatchSize(size = 50)
+public class FeedEntity implements Cursorable {
+    /// The maximum length of the title and author of a feed
+    public static final int DETAIL_LENGTH = 1024;
+
     /// The feed's database ID
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -24,10 +38,33 @@ public class FeedEntity {
     @Column(nullable = false)
     private String feedUrl;
 
+    /// The SHA-256 hash of the canonical feed URL, see [FeedUrlUtility#canonicalize]
+    @Column(nullable = false, length = FeedUrlUtility.HASH_LENGTH)
+    private byte[] feedUrlHash;
+
+    /// The title of the feed, as last published in the feed document
+    @Column(length = DETAIL_LENGTH)
+    private String title;
+
+    /// The author of the feed, as last published in the feed document
+    @Column(length = DETAIL_LENGTH)
+    private String author;
+
+    /// The number of active subscriptions to the feed, not counting changes still held in its
+    /// [SubscriberCountStripeEntity] rows. Only written by [SubscriberCountRepository], so saving a
+    /// loaded feed never overwrites a count that changed since it was read.
+    @ColumnDefault("0")
+    @Column(name = "subscriber_count", nullable = false, insertable = false, updatable = false)
+    private long subscriberCount;
+
     /// Linked subscriptions
     @OneToMany(mappedBy = "feed", cascade =  CascadeType.REMOVE)
     private Set<SubscriptionEntity> subscriptions;
 
+    /// Additional UUIDs that resolve to this feed
+    @OneToMany(mappedBy = "feed", cascade = CascadeType.REMOVE)
+    private Set<FeedAliasEntity> aliases;
+
     /// Creation timestamp
     private Instant createdAt;
 
@@ -43,7 +80,7 @@ public class FeedEntity {
     /// @param feedUrl the URL location of the feed's XML file
     public FeedEntity(UUID uuid, String feedUrl) {
         this.uuid = uuid;
-        this.feedUrl = feedUrl;
+        this.setFeedUrl(feedUrl);
     }
 
     /// Updates timestamps before saving
@@ -66,6 +103,11 @@ public class FeedEntity {
         return id;
     }
 
+    /// @param id the feed entity ID
+    public void setId(Long id) {
+        this.id = id;
+    }
+
     /// @return the feed's UUIDv5 identifier
     public UUID getUuid() {
         return uuid;
@@ -81,9 +123,42 @@ public class FeedEntity {
         return feedUrl;
     }
 
+    /// Sets the feed's URL and recalculates its hash
+    ///
     /// @param feedUrl the feed's URL
     public void setFeedUrl(String feedUrl) {
         this.feedUrl = feedUrl;
+        this.feedUrlHash = feedUrl == null ? null : FeedUrlUtility.hash(feedUrl);
+    }
+
+    /// @return the SHA-256 hash of the canonical feed URL
+    public byte[] getFeedUrlHash() {
+        return feedUrlHash;
+    }
+
+    /// @return the feed's title, or `null` if it hasn't been fetched yet
+    public String getTitle() {
+        return title;
+    }
+
+    /// @param title the feed's title
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    /// @return the feed's author, or `null` if it hasn't been fetched yet or names no author
+    public String getAuthor() {
+        return author;
+    }
+
+    /// @param author the feed's author
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    /// @return the number of active subscriptions to the feed, as of the last fold of its counter stripes
+    public long getSubscriberCount() {
+        return subscriberCount;
     }
 
     /// @return the `createdAt` timestamp for the feed entity
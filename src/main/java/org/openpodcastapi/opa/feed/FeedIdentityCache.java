@@ -0,0 +1,155 @@
+package org.openpodcastapi.opa.feed;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+
+/// A bounded, in-process cache from feed UUID to database ID and feed URL.
+///
+/// Feeds are resolved on every subscription request, and popular feeds are resolved far more often than they change.
+/// Alias UUIDs are cached alongside the feed's own UUID and resolve to the same identity.
+/// The least recently used entries are evicted once the configured number of entries is exceeded.
+/// Entries are removed whenever a feed is updated or deleted through JPA, see [FeedIdentityListener].
+/// Statements that bypass JPA must call [#evictFeed(Long)] for the feeds they delete, merge or re-identify.
+/// Updates of other columns, such as subscriber counts, leave the cached ID, UUID and URL valid and needn't evict.
+/// Feeds merged or deleted outside this process, such as by a migration or another node, are dropped once their entry expires.
+@Component
+public class FeedIdentityCache {
+    private static final String CACHE_NAME = "feed-identities";
+
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    /// Access-ordered map used as an LRU list. Guarded by `this`.
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    /// Index of cached UUIDs per feed ID, used to evict aliases along with their feed. Guarded by `this`.
+    private final Map<Long, Set<UUID>> keysByFeed = new HashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    /// A cached identity
+    ///
+    /// @param identity the identity of the feed
+    /// @param cachedAt the [System#nanoTime] the identity was cached at
+    private record Entry(FeedIdentity identity, long cachedAt) {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param meterRegistry the registry used to publish cache metrics
+    /// @param maxEntries    the maximum number of feeds held in memory
+    /// @param ttl           how long an identity is used before it's read from the database again
+    public FeedIdentityCache(MeterRegistry meterRegistry,
+                             @Value("${feeds.cache.max-entries:100000}") int maxEntries,
+                             @Value("${feeds.cache.ttl:PT10M}") Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+
+        this.hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.size", this, FeedIdentityCache::size).tag("cache", CACHE_NAME).register(meterRegistry);
+    }
+
+    /// Looks up a cached feed
+    ///
+    /// @param uuid the UUID of the feed
+    /// @return the cached identity, if present
+    public Optional<FeedIdentity> get(UUID uuid) {
+        FeedIdentity identity = null;
+        synchronized (this) {
+            final var entry = entries.get(uuid);
+            if (entry != null && System.nanoTime() - entry.cachedAt() < ttlNanos) {
+                identity = entry.identity();
+            } else if (entry != null) {
+                entries.remove(uuid);
+                unindex(uuid, entry.identity().id());
+            }
+        }
+
+        (identity != null ? hits : misses).increment();
+        return Optional.ofNullable(identity);
+    }
+
+    /// Stores a feed under its own UUID
+    ///
+    /// @param identity the identity of a persisted feed
+    public void put(FeedIdentity identity) {
+        put(identity.uuid(), identity);
+    }
+
+    /// Stores a feed under a UUID, which may be an alias
+    ///
+    /// @param uuid     the UUID the feed was requested by
+    /// @param identity the identity of a persisted feed
+    public synchronized void put(UUID uuid, FeedIdentity identity) {
+        final var previous = entries.put(uuid, new Entry(identity, System.nanoTime()));
+        if (previous != null) {
+            unindex(uuid, previous.identity().id());
+        }
+        keysByFeed.computeIfAbsent(identity.id(), _ -> new HashSet<>()).add(uuid);
+
+        final var iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            final var eldest = iterator.next();
+            iterator.remove();
+            unindex(eldest.getKey(), eldest.getValue().identity().id());
+            evictions.increment();
+        }
+    }
+
+    /// Removes a feed and all of its aliases
+    ///
+    /// @param feedId the database ID of the feed
+    public synchronized void evictFeed(Long feedId) {
+        final var keys = keysByFeed.remove(feedId);
+        if (keys != null) {
+            keys.forEach(entries::remove);
+        }
+    }
+
+    /// @return the number of feeds held in memory
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void unindex(UUID uuid, Long feedId) {
+        final var keys = keysByFeed.get(feedId);
+        if (keys != null) {
+            keys.remove(uuid);
+            if (keys.isEmpty()) {
+                keysByFeed.remove(feedId);
+            }
+        }
+    }
+
+    /// The persisted identity of a feed
+    ///
+    /// @param id      the database ID of the feed
+    /// @param uuid    the UUID of the feed
+    /// @param feedUrl the URL of the feed
+    public record FeedIdentity(Long id, UUID uuid, String feedUrl) {
+        /// @param feed a persisted feed
+        /// @return the identity of the feed
+        public static FeedIdentity of(FeedEntity feed) {
+            return new FeedIdentity(feed.getId(), feed.getUuid(), feed.getFeedUrl());
+        }
+
+        /// Returns a detached entity carrying the feed's identity.
+        /// The entity can be used as an association target without loading the feed.
+        ///
+        /// @return a detached [FeedEntity]
+        public FeedEntity toEntity() {
+            final var feed = new FeedEntity(uuid, feedUrl);
+            feed.setId(id);
+            return feed;
+        }
+    }
+}
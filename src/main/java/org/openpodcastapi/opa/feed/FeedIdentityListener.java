@@ -0,0 +1,27 @@
+package org.openpodcastapi.opa.feed;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.stereotype.Component;
+
+/// JPA entity listener that keeps the [FeedIdentityCache] consistent with the `feeds` table
+@Component
+public class FeedIdentityListener {
+    private final FeedIdentityCache cache;
+
+    /// Required-args constructor
+    ///
+    /// @param cache the cache to evict feeds from
+    public FeedIdentityListener(FeedIdentityCache cache) {
+        this.cache = cache;
+    }
+
+    /// Evicts a feed and its aliases after it's updated or deleted
+    ///
+    /// @param feed the changed feed
+    @PostUpdate
+    @PostRemove
+    public void evict(FeedEntity feed) {
+        cache.evictFeed(feed.getId());
+    }
+}
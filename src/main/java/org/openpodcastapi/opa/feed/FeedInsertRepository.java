@@ -0,0 +1,111 @@
+package org.openpodcastapi.opa.feed;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+import org.openpodcastapi.opa.util.DatabasePlatform;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/// Repository for race-free feed creation.
+///
+/// Inserts run in their own transaction so that a created feed is visible to concurrent requests as soon as the insert returns.
+@Repository
+public class FeedInsertRepository {
+    private static final String INSERT_IF_ABSENT = """
+            INSERT INTO feeds (uuid, feed_url, feed_url_hash, created_at, updated_at)
+            VALUES (:uuid, :feedUrl, :feedUrlHash, :now, :now)
+            ON CONFLICT DO NOTHING
+            RETURNING id
+            """;
+
+    private static final String INSERT_ALIAS_IF_ABSENT = """
+            INSERT INTO feed_aliases (uuid, feed_id, created_at)
+            VALUES (:uuid, :feedId, :now)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private final EntityManager entityManager;
+    private final DatabasePlatform databasePlatform;
+    private final FeedRepository feedRepository;
+
+    /// Required-args constructor
+    ///
+    /// @param entityManager    the entity manager used to run the statements
+    /// @param databasePlatform the platform used to select the statement dialect
+    /// @param feedRepository   the repository used to read back existing feeds
+    public FeedInsertRepository(EntityManager entityManager, DatabasePlatform databasePlatform, FeedRepository feedRepository) {
+        this.entityManager = entityManager;
+        this.databasePlatform = databasePlatform;
+        this.feedRepository = feedRepository;
+    }
+
+    /// Inserts a feed unless a feed with the same UUID or canonical URL exists.
+    ///
+    /// On PostgreSQL, the insert uses `ON CONFLICT DO NOTHING` and returns the existing feed if another request won the race.
+    /// On other databases, a concurrent insert surfaces as a `DataIntegrityViolationException` and the caller should read the feed back.
+    ///
+    /// @param feed the feed to insert
+    /// @return the identity of the inserted or existing feed, and whether this call inserted it
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public InsertResult insertIfAbsent(FeedEntity feed) {
+        if (databasePlatform.isPostgres()) {
+            @SuppressWarnings("unchecked") final NativeQuery<Long> query = entityManager
+                    .createNativeQuery(INSERT_IF_ABSENT, Long.class)
+                    .unwrap(NativeQuery.class);
+
+            final Optional<Long> insertedId = query
+                    .setParameter("uuid", feed.getUuid())
+                    .setParameter("feedUrl", feed.getFeedUrl())
+                    .setParameter("feedUrlHash", feed.getFeedUrlHash())
+                    .setParameter("now", Instant.now())
+                    .uniqueResultOptional();
+
+            if (insertedId.isPresent()) {
+                return new InsertResult(new FeedIdentityCache.FeedIdentity(insertedId.get(), feed.getUuid(), feed.getFeedUrl()), true);
+            }
+
+            // The conflicting insert has committed, so the row is visible to this statement
+            final var existing = feedRepository.findByUuidOrFeedUrlHash(feed.getUuid(), feed.getFeedUrlHash()).getFirst();
+            return new InsertResult(FeedIdentityCache.FeedIdentity.of(existing), false);
+        }
+
+        entityManager.persist(feed);
+        entityManager.flush();
+        return new InsertResult(FeedIdentityCache.FeedIdentity.of(feed), true);
+    }
+
+    /// Records an alias UUID for a feed unless the alias exists.
+    ///
+    /// On databases other than PostgreSQL, a concurrent insert surfaces as a `DataIntegrityViolationException`, which callers may ignore.
+    ///
+    /// @param alias  the alias UUID
+    /// @param feedId the database ID of the feed
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void insertAliasIfAbsent(UUID alias, Long feedId) {
+        if (databasePlatform.isPostgres()) {
+            entityManager.createNativeQuery(INSERT_ALIAS_IF_ABSENT)
+                    .setParameter("uuid", alias)
+                    .setParameter("feedId", feedId)
+                    .setParameter("now", Instant.now())
+                    .executeUpdate();
+            return;
+        }
+
+        if (entityManager.find(FeedAliasEntity.class, alias) == null) {
+            entityManager.persist(new FeedAliasEntity(alias, entityManager.getReference(FeedEntity.class, feedId)));
+            entityManager.flush();
+        }
+    }
+
+    /// The result of an insert
+    ///
+    /// @param identity the identity of the feed
+    /// @param inserted whether the feed was inserted by this call
+    public record InsertResult(FeedIdentityCache.FeedIdentity identity, boolean inserted) {
+    }
+}
@@ -1,10 +1,16 @@
 package org.openpodcastapi.opa.feed;
 
 import org.jspecify.annotations.NonNull;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /// Repository for subscription feed interactions
@@ -15,4 +21,52 @@ public interface FeedRepository extends JpaRepository<@NonNull FeedEntity, @NonN
     /// @param uuid the UUIDv5 value to match
     /// @return an optional [FeedEntity] match
     Optional<FeedEntity> findByUuid(UUID uuid);
+
+    /// Finds the feeds matching a UUID, an alias UUID, or a feed URL hash.
+    /// Each condition is answered by a unique index, so at most three feeds are returned.
+    ///
+    /// @param uuid        the UUID or alias UUID to match
+    /// @param feedUrlHash the canonical feed URL hash to match
+    /// @return the matching feeds
+    @Query("select f from FeedEntity f where f.uuid = :uuid or f.feedUrlHash = :feedUrlHash or f.id in (select a.feed.id from FeedAliasEntity a where a.uuid = :uuid)")
+    List<FeedEntity> findByUuidOrFeedUrlHash(UUID uuid, byte[] feedUrlHash);
+
+    /// Finds the searchable text of feeds in order of ID, to index them in batches
+    ///
+    /// @param after the database ID to start after
+    /// @param limit the maximum number of feeds to return
+    /// @return the text of the feeds
+    @Query("select new org.openpodcastapi.opa.feed.FeedRepository$FeedText(f.id, f.uuid, f.title, f.author) from FeedEntity f where f.id > :after order by f.id")
+    List<FeedText> findTextsAfter(Long after, Limit limit);
+
+    /// Finds the searchable text of a feed
+    ///
+    /// @param id the database ID of the feed
+    /// @return the text of the feed, if it exists
+    @Query("select new org.openpodcastapi.opa.feed.FeedRepository$FeedText(f.id, f.uuid, f.title, f.author) from FeedEntity f where f.id = :id")
+    Optional<FeedText> findTextById(Long id);
+
+    /// Finds the searchable text of feeds updated since a point in time.
+    /// Answered from the `feeds_updated_at` index.
+    ///
+    /// @param since the earliest update time to match
+    /// @return the text of the feeds
+    @Query("select new org.openpodcastapi.opa.feed.FeedRepository$FeedText(f.id, f.uuid, f.title, f.author) from FeedEntity f where f.updatedAt >= :since")
+    List<FeedText> findTextsUpdatedSince(Instant since);
+
+    /// Finds which of a set of feeds still exist
+    ///
+    /// @param ids the database IDs to look for
+    /// @return the IDs that belong to a feed
+    @Query("select f.id from FeedEntity f where f.id in :ids")
+    Set<Long> findExistingIds(Collection<Long> ids);
+
+    /// The searchable text of a feed
+    ///
+    /// @param id     the database ID of the feed
+    /// @param uuid   the UUID of the feed
+    /// @param title  the title of the feed
+    /// @param author the author of the feed
+    record FeedText(Long id, UUID uuid, String title, String author) {
+    }
 }
@@ -0,0 +1,38 @@
+package org.openpodcastapi.opa.feed;
+
+import org.openpodcastapi.opa.pagination.CursorPage;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/// Controller for API feed catalog requests
+@RestController
+@RequestMapping("/api/v1/feeds")
+public class FeedRestController {
+    private final FeedCatalogService catalogService;
+
+    /// Required-args constructor
+    ///
+    /// @param catalogService the service used to list feeds
+    public FeedRestController(FeedCatalogService catalogService) {
+        this.catalogService = catalogService;
+    }
+
+    /// Returns every feed known to the server, with its number of subscribers
+    ///
+    /// @param sort   `newest` to list the newest feeds first, or `subscribers` to list the most subscribed first
+    /// @param cursor the base64-encoded cursor string
+    /// @param limit  the number of results to return
+    /// @return a response containing feed objects
+    /// @throws IllegalArgumentException if the order or cursor is invalid, or the limit is out of range
+    @GetMapping
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<CursorPage<FeedDTO.FeedSummaryDTO>> getFeeds(@RequestParam(defaultValue = "newest") String sort,
+                                                                       @RequestParam(required = false) String cursor,
+                                                                       @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(catalogService.getFeeds(FeedCatalogService.Sort.parse(sort), cursor, limit));
+    }
+}
@@ -1,9 +1,16 @@
 package org.openpodcastapi.opa.feed;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -13,30 +20,208 @@ public class FeedService {
     private static final Logger log = getLogger(FeedService.class);
     private final FeedRepository repository;
     private final FeedMapper mapper;
+    private final FeedIdentityCache identityCache;
+    private final FeedInsertRepository insertRepository;
+    private final FeedAliasRepository aliasRepository;
+
+    /// Feed creations in progress on this node, keyed by canonical URL hash
+    private final ConcurrentHashMap<String, CompletableFuture<FeedIdentityCache.FeedIdentity>> creations = new ConcurrentHashMap<>();
+
+    private final Counter inserted;
+    private final Counter conflicts;
+    private final Counter coalesced;
 
     /// All-args constructor
     ///
-    /// @param repository the [FeedRepository] for database interactions
-    /// @param mapper     the [FeedMapper] for DTO mapping
-    public FeedService(FeedRepository repository, FeedMapper mapper) {
+    /// @param repository       the [FeedRepository] for database interactions
+    /// @param mapper           the [FeedMapper] for DTO mapping
+    /// @param identityCache    the [FeedIdentityCache] used to resolve known feeds without a query
+    /// @param insertRepository the [FeedInsertRepository] used to create missing feeds
+    /// @param aliasRepository  the [FeedAliasRepository] used to resolve alias UUIDs
+    /// @param meterRegistry    the registry used to publish creation metrics
+    public FeedService(FeedRepository repository, FeedMapper mapper, FeedIdentityCache identityCache, FeedInsertRepository insertRepository, FeedAliasRepository aliasRepository, MeterRegistry meterRegistry) {
         this.repository = repository;
         this.mapper = mapper;
+        this.identityCache = identityCache;
+        this.insertRepository = insertRepository;
+        this.aliasRepository = aliasRepository;
+
+        this.inserted = Counter.builder("feeds.creations").tag("result", "inserted").register(meterRegistry);
+        this.conflicts = Counter.builder("feeds.creations").tag("result", "conflict").register(meterRegistry);
+        this.coalesced = Counter.builder("feeds.creations").tag("result", "coalesced").register(meterRegistry);
     }
 
-    /// Fetches an existing repository from the database or creates a new one if none is found
+    /// Fetches an existing feed from the database or creates a new one if none is found.
+    ///
+    /// A feed matches if its UUID, one of its alias UUIDs, or its canonical URL matches the request.
+    /// If the feed was matched by URL only, the requested UUID is recorded as an alias of the feed.
+    /// Known feeds are resolved from the [FeedIdentityCache] and returned as detached entities carrying only their identity.
+    /// Concurrent requests for the same missing feed share a single insert.
     ///
     /// @param dto the DTO containing the subscription data
-    /// @return the fetched or created subscription
+    /// @return the fetched or created feed
+    /// @throws IllegalArgumentException if the UUID is improperly formatted
     public FeedEntity fetchOrCreateFeed(FeedDTO.NewFeedRequestDTO dto) {
         final var feedUuid = UUID.fromString(dto.uuid());
 
+        final var cached = identityCache.get(feedUuid);
+        if (cached.isPresent()) {
+            return cached.get().toEntity();
+        }
+
         log.debug("Searching for existing feed with UUID {}", feedUuid);
 
-        return repository
-                .findByUuid(feedUuid)
-                .orElseGet(() -> {
-                    log.info("Creating new subscription with UUID {} and feed URL {}", dto.uuid(), dto.feedUrl());
-                    return repository.save(mapper.toEntity(dto));
-                });
+        final var feedUrlHash = FeedUrlUtility.hash(dto.feedUrl());
+        final var candidates = repository.findByUuidOrFeedUrlHash(feedUuid, feedUrlHash);
+
+        // Prefer the feed the client identified by UUID over one that only shares its URL
+        final var existing = candidates.stream()
+                .filter(feed -> feed.getUuid().equals(feedUuid))
+                .findFirst()
+                .or(() -> candidates.stream().findFirst());
+
+        final FeedIdentityCache.FeedIdentity identity;
+        if (existing.isPresent()) {
+            identity = FeedIdentityCache.FeedIdentity.of(existing.get());
+        } else {
+            identity = createFeed(HexFormat.of().formatHex(feedUrlHash), dto);
+        }
+
+        linkAlias(feedUuid, identity);
+        identityCache.put(feedUuid, identity);
+        return identity.toEntity();
+    }
+
+    /// Resolves feed UUIDs that may be aliases to the UUIDs of their feeds in a single query
+    ///
+    /// @param uuids the UUIDs to resolve
+    /// @return a mapping from each requested UUID to the UUID of its feed. UUIDs that aren't aliases map to themselves.
+    public Map<UUID, UUID> resolveCanonicalUuids(Collection<UUID> uuids) {
+        final Map<UUID, UUID> resolved = new HashMap<>();
+        uuids.forEach(uuid -> resolved.put(uuid, uuid));
+
+        if (!uuids.isEmpty()) {
+            aliasRepository.findCanonicalUuids(uuids).forEach(alias -> resolved.put(alias.alias(), alias.canonical()));
+        }
+
+        return resolved;
+    }
+
+    /// Resolves a feed UUID that may be an alias to the UUID of its feed
+    ///
+    /// @param uuid the UUID to resolve
+    /// @return the UUID of the feed
+    public UUID resolveCanonicalUuid(UUID uuid) {
+        return resolveCanonicalUuids(List.of(uuid)).get(uuid);
+    }
+
+    /// Finds a feed by UUID or alias UUID.
+    /// Known feeds are resolved from the [FeedIdentityCache] without a query.
+    ///
+    /// @param uuid the UUID or alias UUID of the feed
+    /// @return the identity of the feed, if one matches
+    public Optional<FeedIdentityCache.FeedIdentity> findFeed(UUID uuid) {
+        final var cached = identityCache.get(uuid);
+        if (cached.isPresent()) {
+            return cached;
+        }
+
+        final var identity = repository.findByUuid(resolveCanonicalUuid(uuid)).map(FeedIdentityCache.FeedIdentity::of);
+        identity.ifPresent(found -> identityCache.put(uuid, found));
+        return identity;
+    }
+
+    /// Stores the title and author a feed document published.
+    /// Values missing from the document keep the stored value, and values longer than the columns are truncated.
+    ///
+    /// @param feedId the database ID of the feed
+    /// @param title  the published title, or `null` if the document had none
+    /// @param author the published author, or `null` if the document had none
+    /// @return whether the stored title or author changed
+    @Transactional
+    public boolean updateDetails(Long feedId, String title, String author) {
+        final var feed = repository.findById(feedId).orElse(null);
+        if (feed == null) {
+            return false;
+        }
+
+        final var newTitle = title == null ? feed.getTitle() : truncate(title.strip());
+        final var newAuthor = author == null ? feed.getAuthor() : truncate(author.strip());
+        if (Objects.equals(newTitle, feed.getTitle()) && Objects.equals(newAuthor, feed.getAuthor())) {
+            return false;
+        }
+
+        log.debug("Updating details of feed {}", feed.getUuid());
+        feed.setTitle(newTitle);
+        feed.setAuthor(newAuthor);
+        return true;
+    }
+
+    private static String truncate(String value) {
+        return value.length() <= FeedEntity.DETAIL_LENGTH ? value : value.substring(0, FeedEntity.DETAIL_LENGTH);
+    }
+
+    /// Creates a feed, or joins a creation of the same canonical feed already in progress on this node
+    ///
+    /// @param creationKey the hex-encoded canonical URL hash of the feed
+    /// @param dto         the DTO containing the subscription data
+    /// @return the identity of the created feed
+    private FeedIdentityCache.FeedIdentity createFeed(String creationKey, FeedDTO.NewFeedRequestDTO dto) {
+        final var creation = new CompletableFuture<FeedIdentityCache.FeedIdentity>();
+        final var inProgress = creations.putIfAbsent(creationKey, creation);
+        if (inProgress != null) {
+            coalesced.increment();
+            try {
+                return inProgress.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            log.info("Creating new feed with UUID {} and feed URL {}", dto.uuid(), dto.feedUrl());
+            final var identity = insert(dto);
+            identityCache.put(identity);
+            creation.complete(identity);
+            return identity;
+        } catch (RuntimeException e) {
+            creation.completeExceptionally(e);
+            throw e;
+        } finally {
+            creations.remove(creationKey, creation);
+        }
+    }
+
+    private FeedIdentityCache.FeedIdentity insert(FeedDTO.NewFeedRequestDTO dto) {
+        final var feed = mapper.toEntity(dto);
+        try {
+            final var result = insertRepository.insertIfAbsent(feed);
+            (result.inserted() ? inserted : conflicts).increment();
+            return result.identity();
+        } catch (DataIntegrityViolationException e) {
+            // Another node inserted the feed first. Read back the winning row.
+            conflicts.increment();
+            return repository.findByUuidOrFeedUrlHash(feed.getUuid(), feed.getFeedUrlHash()).stream()
+                    .findFirst()
+                    .map(FeedIdentityCache.FeedIdentity::of)
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    /// Records a requested UUID as an alias if it resolved to a feed with a different UUID
+    ///
+    /// @param feedUuid the requested UUID
+    /// @param identity the identity of the resolved feed
+    private void linkAlias(UUID feedUuid, FeedIdentityCache.FeedIdentity identity) {
+        if (identity.uuid().equals(feedUuid)) {
+            return;
+        }
+
+        log.info("Recording UUID {} as an alias of feed {}", feedUuid, identity.uuid());
+        try {
+            insertRepository.insertAliasIfAbsent(feedUuid, identity.id());
+        } catch (DataIntegrityViolationException _) {
+            // A concurrent request recorded the same alias
+        }
     }
 }
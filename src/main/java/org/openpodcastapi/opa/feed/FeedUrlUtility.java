@@ -0,0 +1,106 @@
+package org.openpodcastapi.opa.feed;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/// Utility class for feed URL identity.
+///
+/// Clients often send different spellings of the same feed URL.
+/// Canonicalization removes the differences that don't change which document is fetched, so that each podcast is stored once.
+public final class FeedUrlUtility {
+
+    /// The length in bytes of a feed URL hash
+    public static final int HASH_LENGTH = 32;
+
+    /// Schemes that are dropped from the canonical form. Feeds are fetched over HTTPS where possible, so `http` and `https` are the same feed.
+    private static final Pattern FEED_SCHEME = Pattern.compile("^(https?|feed|itpc|pcast)://", Pattern.CASE_INSENSITIVE);
+
+    /// Query parameters added by trackers and campaign links
+    private static final Set<String> TRACKING_PARAMETERS = Set.of("fbclid", "gclid", "dclid", "msclkid", "mc_cid", "mc_eid", "_hsenc", "_hsmi");
+
+    /// No-args constructor
+    private FeedUrlUtility() {
+    }
+
+    /// Returns the canonical form of a feed URL.
+    ///
+    /// The canonical form drops the scheme, any fragment, default ports, trailing slashes and tracking parameters, and lowercases the host.
+    /// The remaining query parameters are sorted by name. Parameters sharing a name keep their order, as it may be significant.
+    /// For example, `HTTPS://Example.com:443/feed/?utm_source=x` and `http://example.com/feed` are both canonicalized to `example.com/feed`,
+    /// and `example.com/feed?id=5&format=rss` to `example.com/feed?format=rss&id=5`.
+    ///
+    /// @param feedUrl the URL supplied by a client
+    /// @return the canonical URL
+    public static String canonicalize(String feedUrl) {
+        var url = feedUrl.strip();
+
+        final var fragment = url.indexOf('#');
+        if (fragment >= 0) {
+            url = url.substring(0, fragment);
+        }
+
+        url = FEED_SCHEME.matcher(url).replaceFirst("");
+
+        var authorityEnd = url.length();
+        for (var i = 0; i < url.length(); i++) {
+            final var c = url.charAt(i);
+            if (c == '/' || c == '?') {
+                authorityEnd = i;
+                break;
+            }
+        }
+
+        var authority = url.substring(0, authorityEnd).toLowerCase(Locale.ROOT);
+        if (authority.endsWith(":80") || authority.endsWith(":443")) {
+            authority = authority.substring(0, authority.lastIndexOf(':'));
+        }
+        if (authority.endsWith(".")) {
+            authority = authority.substring(0, authority.length() - 1);
+        }
+
+        final var rest = url.substring(authorityEnd);
+        final var queryStart = rest.indexOf('?');
+        var path = queryStart >= 0 ? rest.substring(0, queryStart) : rest;
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+
+        final List<String> parameters = new ArrayList<>();
+        if (queryStart >= 0) {
+            for (var parameter : rest.substring(queryStart + 1).split("&")) {
+                final var name = parameterName(parameter).toLowerCase(Locale.ROOT);
+                if (!parameter.isEmpty() && !name.startsWith("utm_") && !TRACKING_PARAMETERS.contains(name)) {
+                    parameters.add(parameter);
+                }
+            }
+        }
+        // The sort is stable, so repeated parameters stay in the order they were given
+        parameters.sort(Comparator.comparing(FeedUrlUtility::parameterName));
+
+        return parameters.isEmpty() ? authority + path : authority + path + "?" + String.join("&", parameters);
+    }
+
+    private static String parameterName(String parameter) {
+        final var equals = parameter.indexOf('=');
+        return equals >= 0 ? parameter.substring(0, equals) : parameter;
+    }
+
+    /// Returns the fixed-width hash of a feed URL's canonical form
+    ///
+    /// @param feedUrl the URL supplied by a client
+    /// @return the SHA-256 hash of the canonical URL
+    public static byte[] hash(String feedUrl) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(canonicalize(feedUrl).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
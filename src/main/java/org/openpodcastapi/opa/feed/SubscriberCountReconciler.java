@@ -0,0 +1,117 @@
+package org.openpodcastapi.opa.feed;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Background jobs keeping the subscriber counts of feeds accurate.
+///
+/// Folding moves the changes held in the stripes of popular feeds to their counts every few seconds, so lists
+/// ordered by subscribers don't lag far behind. Reconciling compares every feed's count to its subscriptions on a
+/// longer interval, and corrects the drift left by changes made without publishing an event, such as deleted users
+/// or edits made directly in the database. It also gives stripes to feeds that have become popular.
+///
+/// Each feed is folded and reconciled in its own transaction, so no lock is held for longer than one feed, and
+/// either job can run on several nodes at once.
+@Component
+public class SubscriberCountReconciler {
+    private static final Logger log = getLogger(SubscriberCountReconciler.class);
+
+    private final SubscriberCountService service;
+    private final int batchSize;
+    private final Counter folded;
+    private final Counter corrected;
+    private final Counter drift;
+    private final Counter promoted;
+
+    /// All-args constructor
+    ///
+    /// @param service       the service used to fold and reconcile counts
+    /// @param meterRegistry the registry used to publish reconciliation metrics
+    /// @param batchSize     the number of feeds read per query
+    public SubscriberCountReconciler(SubscriberCountService service,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${feeds.subscriber-counts.batch-size:500}") int batchSize) {
+        this.service = service;
+        this.batchSize = batchSize;
+
+        this.folded = Counter.builder("feeds.subscriber-counts.folds").register(meterRegistry);
+        this.corrected = Counter.builder("feeds.subscriber-counts.reconciliations").tag("result", "corrected").register(meterRegistry);
+        this.promoted = Counter.builder("feeds.subscriber-counts.reconciliations").tag("result", "striped").register(meterRegistry);
+        this.drift = Counter.builder("feeds.subscriber-counts.drift").register(meterRegistry);
+    }
+
+    /// Folds the changes held in the stripes of every feed into their counts
+    ///
+    /// @return the number of feeds folded
+    @Scheduled(fixedDelayString = "${feeds.subscriber-counts.fold-interval:PT30S}",
+            initialDelayString = "${feeds.subscriber-counts.fold-interval:PT30S}")
+    public int foldAll() {
+        var feeds = 0;
+        var after = 0L;
+        while (true) {
+            final var feedIds = service.findFeedIdsWithPending(after, batchSize);
+            for (final var feedId : feedIds) {
+                try {
+                    service.fold(feedId);
+                    folded.increment();
+                    feeds++;
+                } catch (RuntimeException e) {
+                    log.warn("Unable to fold the subscriber count of feed {}: {}", feedId, e.getMessage());
+                }
+            }
+            if (feedIds.size() < batchSize) {
+                break;
+            }
+            after = feedIds.getLast();
+        }
+
+        log.debug("Folded the subscriber counts of {} feeds", feeds);
+        return feeds;
+    }
+
+    /// Compares the count of every feed to its subscriptions, and corrects those that drifted
+    ///
+    /// @return the number of feeds whose counts were corrected
+    @Scheduled(fixedDelayString = "${feeds.subscriber-counts.reconcile-interval:PT6H}",
+            initialDelayString = "${feeds.subscriber-counts.reconcile-interval:PT6H}")
+    public int reconcileAll() {
+        var checked = 0;
+        var corrections = 0;
+        var after = 0L;
+        while (true) {
+            final var checks = service.check(after, batchSize);
+            for (final var check : checks) {
+                if (!service.needsReconciling(check)) {
+                    continue;
+                }
+                try {
+                    final var reconciliation = service.reconcile(check.feedId());
+                    if (reconciliation.drift() != 0) {
+                        corrected.increment();
+                        drift.increment(Math.abs(reconciliation.drift()));
+                        corrections++;
+                    }
+                    if (reconciliation.promoted()) {
+                        promoted.increment();
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Unable to reconcile the subscriber count of feed {}: {}", check.feedId(), e.getMessage());
+                }
+            }
+            checked += checks.size();
+            if (checks.size() < batchSize) {
+                break;
+            }
+            after = checks.getLast().feedId();
+        }
+
+        log.info("Reconciled the subscriber counts of {} feeds, correcting {}", checked, corrections);
+        return corrections;
+    }
+}
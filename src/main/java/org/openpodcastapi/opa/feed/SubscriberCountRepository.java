@@ -0,0 +1,248 @@
+package org.openpodcastapi.opa.feed;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.hibernate.query.NativeQuery;
+import org.openpodcastapi.opa.util.DatabasePlatform;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/// Repository for the subscriber counts of feeds.
+///
+/// Counts are changed with set-based statements that add to the stored value, so no feed is loaded and concurrent
+/// changes never overwrite each other. None of them touch `updated_at`, which marks changes to a feed's details.
+/// Every method that writes must be called inside a transaction.
+@Repository
+public class SubscriberCountRepository {
+    // Each data-modifying statement of a WITH query sees the same snapshot, so a feed gaining stripes between them
+    // can't have its change applied both to a stripe and to its count, or to neither.
+    // Rows are locked in order of ID, so concurrent changes to overlapping feeds can't deadlock.
+    private static final String ADD = """
+            WITH striped AS (
+                UPDATE feed_subscriber_count_stripes SET delta = delta + :delta
+                WHERE id IN (SELECT id FROM feed_subscriber_count_stripes
+                             WHERE feed_id IN (:feedIds) AND stripe = :stripe
+                             ORDER BY id FOR UPDATE)
+                RETURNING feed_id)
+            UPDATE feeds SET subscriber_count = subscriber_count + :delta
+            WHERE id IN (SELECT id FROM feeds
+                         WHERE id IN (:feedIds) AND id NOT IN (SELECT feed_id FROM striped)
+                         ORDER BY id FOR UPDATE)
+            """;
+
+    private static final String ADD_TO_STRIPES = """
+            UPDATE feed_subscriber_count_stripes SET delta = delta + :delta
+            WHERE feed_id IN (:feedIds) AND stripe = :stripe
+            """;
+
+    private static final String ADD_TO_FEEDS = """
+            UPDATE feeds SET subscriber_count = subscriber_count + :delta
+            WHERE id IN (:feedIds)
+              AND NOT EXISTS (SELECT 1 FROM feed_subscriber_count_stripes c WHERE c.feed_id = feeds.id AND c.stripe = :stripe)
+            """;
+
+    private static final String ADD_TO_FEED = "UPDATE feeds SET subscriber_count = subscriber_count + :delta WHERE id = :feedId";
+
+    private static final String LOCK_FEED = "SELECT id FROM feeds WHERE id = :feedId FOR UPDATE";
+
+    private static final String CHECK = """
+            SELECT f.id,
+                   (SELECT count(*) FROM subscriptions s WHERE s.feed_id = f.id AND s.unsubscribed_at IS NULL),
+                   f.subscriber_count + COALESCE((SELECT sum(c.delta) FROM feed_subscriber_count_stripes c WHERE c.feed_id = f.id), 0),
+                   (SELECT count(*) FROM feed_subscriber_count_stripes c WHERE c.feed_id = f.id)
+            FROM feeds f
+            WHERE %s
+            ORDER BY f.id
+            """;
+
+    private static final String ADD_STRIPE = """
+            INSERT INTO feed_subscriber_count_stripes (feed_id, stripe, delta)
+            SELECT :feedId, :stripe, 0
+            WHERE NOT EXISTS (SELECT 1 FROM feed_subscriber_count_stripes c WHERE c.feed_id = :feedId AND c.stripe = :stripe)
+            """;
+
+    private static final String ON_CONFLICT = "ON CONFLICT (feed_id, stripe) DO NOTHING";
+
+    private final EntityManager entityManager;
+    private final DatabasePlatform databasePlatform;
+
+    /// The subscriber count of a feed as stored, and as counted from its subscriptions
+    ///
+    /// @param feedId  the database ID of the feed
+    /// @param actual  the number of active subscriptions to the feed
+    /// @param counted the feed's count plus the changes held in its stripes
+    /// @param stripes the number of stripes of the feed
+    public record CountCheck(Long feedId, long actual, long counted, int stripes) {
+        /// @return the amount the feed's count must change by to match its subscriptions
+        public long drift() {
+            return actual - counted;
+        }
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param entityManager    the entity manager used to run the statements
+    /// @param databasePlatform the platform used to select the statement dialect
+    public SubscriberCountRepository(EntityManager entityManager, DatabasePlatform databasePlatform) {
+        this.entityManager = entityManager;
+        this.databasePlatform = databasePlatform;
+    }
+
+    /// Adds to the subscriber counts of feeds. Feeds with stripes take the change on one of them.
+    ///
+    /// @param feedIds the database IDs of the feeds
+    /// @param stripe  the stripe to change for feeds that have stripes
+    /// @param delta   the amount to add
+    public void add(Collection<Long> feedIds, int stripe, long delta) {
+        if (feedIds.isEmpty()) {
+            return;
+        }
+        if (databasePlatform.isPostgres()) {
+            nativeQuery(ADD)
+                    .setParameterList("feedIds", feedIds)
+                    .setParameter("stripe", stripe)
+                    .setParameter("delta", delta)
+                    .executeUpdate();
+            return;
+        }
+
+        // Elsewhere, a feed gaining stripes between the two statements may count the change twice until it's reconciled
+        nativeQuery(ADD_TO_STRIPES)
+                .setParameterList("feedIds", feedIds)
+                .setParameter("stripe", stripe)
+                .setParameter("delta", delta)
+                .executeUpdate();
+        nativeQuery(ADD_TO_FEEDS)
+                .setParameterList("feedIds", feedIds)
+                .setParameter("stripe", stripe)
+                .setParameter("delta", delta)
+                .executeUpdate();
+    }
+
+    /// Sums the changes held in the stripes of feeds
+    ///
+    /// @param feedIds the database IDs of the feeds
+    /// @return the sum of each feed's stripes, for feeds with stripes
+    public Map<Long, Long> findPending(Collection<Long> feedIds) {
+        final Map<Long, Long> pending = new HashMap<>();
+        if (feedIds.isEmpty()) {
+            return pending;
+        }
+        entityManager.createQuery("select c.feedId, sum(c.delta) from SubscriberCountStripeEntity c where c.feedId in :feedIds group by c.feedId", Object[].class)
+                .setParameter("feedIds", feedIds)
+                .getResultList()
+                .forEach(row -> pending.put((Long) row[0], ((Number) row[1]).longValue()));
+        return pending;
+    }
+
+    /// Finds feeds with changes held in their stripes, in order of ID
+    ///
+    /// @param after the database ID to start after
+    /// @param limit the maximum number of feeds to return
+    /// @return the database IDs of the feeds
+    public List<Long> findFeedIdsWithPending(Long after, int limit) {
+        return entityManager.createQuery("select distinct c.feedId from SubscriberCountStripeEntity c where c.feedId > :after and c.delta <> 0 order by c.feedId", Long.class)
+                .setParameter("after", after)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /// Moves the changes held in a feed's stripes to its count.
+    /// The stripes are locked first, so changes made while folding wait rather than being zeroed.
+    ///
+    /// @param feedId the database ID of the feed
+    /// @return the amount added to the feed's count
+    public long fold(Long feedId) {
+        final var stripes = entityManager.createQuery("select c from SubscriberCountStripeEntity c where c.feedId = :feedId and c.delta <> 0 order by c.id", SubscriberCountStripeEntity.class)
+                .setParameter("feedId", feedId)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        if (stripes.isEmpty()) {
+            return 0;
+        }
+
+        final var total = stripes.stream().mapToLong(SubscriberCountStripeEntity::getDelta).sum();
+        entityManager.createQuery("update SubscriberCountStripeEntity c set c.delta = 0 where c.id in :ids")
+                .setParameter("ids", stripes.stream().map(SubscriberCountStripeEntity::getId).toList())
+                .executeUpdate();
+        addToFeed(feedId, total);
+        return total;
+    }
+
+    /// Compares the stored subscriber counts of feeds to their subscriptions, in order of ID
+    ///
+    /// @param after the database ID to start after
+    /// @param limit the maximum number of feeds to compare
+    /// @return the counts of the feeds
+    public List<CountCheck> check(Long after, int limit) {
+        return toChecks(nativeQuery(CHECK.formatted("f.id > :after"))
+                .setParameter("after", after)
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    /// Locks a feed's count and compares it to its subscriptions.
+    /// Changes to the feed that are in progress either hold the lock or are invisible along with their subscriptions,
+    /// so the comparison is exact and concurrent reconciliations of the feed run one after the other.
+    ///
+    /// @param feedId the database ID of the feed
+    /// @return the count of the feed, or `null` if it doesn't exist
+    public CountCheck lockAndCheck(Long feedId) {
+        final var locked = nativeQuery(LOCK_FEED)
+                .setParameter("feedId", feedId)
+                .getResultList();
+        if (locked.isEmpty()) {
+            return null;
+        }
+        return toChecks(nativeQuery(CHECK.formatted("f.id = :feedId"))
+                .setParameter("feedId", feedId)
+                .getResultList()).getFirst();
+    }
+
+    /// Adds to the count of a feed, whether or not it has stripes
+    ///
+    /// @param feedId the database ID of the feed
+    /// @param delta  the amount to add
+    public void addToFeed(Long feedId, long delta) {
+        nativeQuery(ADD_TO_FEED)
+                .setParameter("feedId", feedId)
+                .setParameter("delta", delta)
+                .executeUpdate();
+    }
+
+    /// Gives a feed stripes to hold its subscriber count changes, keeping any it already has
+    ///
+    /// @param feedId  the database ID of the feed
+    /// @param stripes the number of stripes
+    public void addStripes(Long feedId, int stripes) {
+        var sql = ADD_STRIPE;
+        if (databasePlatform.isPostgres()) {
+            sql += ON_CONFLICT;
+        }
+        for (var stripe = 0; stripe < stripes; stripe++) {
+            nativeQuery(sql)
+                    .setParameter("feedId", feedId)
+                    .setParameter("stripe", stripe)
+                    .executeUpdate();
+        }
+    }
+
+    private NativeQuery<?> nativeQuery(String sql) {
+        return entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+    }
+
+    private static List<CountCheck> toChecks(List<?> rows) {
+        return rows.stream()
+                .map(Object[].class::cast)
+                .map(row -> new CountCheck(
+                        ((Number) row[0]).longValue(),
+                        ((Number) row[1]).longValue(),
+                        ((Number) row[2]).longValue(),
+                        ((Number) row[3]).intValue()))
+                .toList();
+    }
+}
@@ -0,0 +1,129 @@
+package org.openpodcastapi.opa.feed;
+
+import org.openpodcastapi.opa.subscription.SubscriptionsChangedEvent;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Service maintaining the number of active subscriptions to each feed.
+///
+/// Each subscription change adds to the counts of its feeds in the transaction of the change, so a count commits
+/// or rolls back with the subscriptions it counts. Feeds with more subscribers than the configured threshold are
+/// given stripes, which take their changes instead so concurrent subscribers don't queue on one row, and which
+/// [SubscriberCountReconciler] folds into the count periodically.
+@Service
+public class SubscriberCountService {
+    private static final Logger log = getLogger(SubscriberCountService.class);
+
+    private final SubscriberCountRepository repository;
+    private final int stripes;
+    private final long hotThreshold;
+
+    /// The outcome of reconciling a feed's count
+    ///
+    /// @param drift    the amount the count was corrected by
+    /// @param promoted whether the feed was given stripes
+    public record Reconciliation(long drift, boolean promoted) {
+    }
+
+    /// All-args constructor
+    ///
+    /// @param repository   the repository used to read and write counts
+    /// @param stripes      the number of stripes a popular feed is given
+    /// @param hotThreshold the number of subscribers from which a feed is given stripes
+    public SubscriberCountService(SubscriberCountRepository repository,
+                                  @Value("${feeds.subscriber-counts.stripes:16}") int stripes,
+                                  @Value("${feeds.subscriber-counts.hot-threshold:1000}") long hotThreshold) {
+        this.repository = repository;
+        this.stripes = stripes;
+        this.hotThreshold = hotThreshold;
+    }
+
+    /// Adds a subscription change to the counts of its feeds, inside the transaction of the change.
+    /// The stripe changed is picked by the user's ID, so one user's changes always land on the same stripe.
+    ///
+    /// @param event the event published by the subscription service
+    @EventListener
+    public void onSubscriptionsChanged(SubscriptionsChangedEvent event) {
+        repository.add(event.feedIds(), Math.floorMod(event.userId(), stripes), event.subscribed() ? 1 : -1);
+    }
+
+    /// Sums the subscriber count changes of feeds that haven't been folded into their counts yet
+    ///
+    /// @param feedIds the database IDs of the feeds
+    /// @return the changes of each feed, for feeds with stripes
+    @Transactional(readOnly = true)
+    public Map<Long, Long> findPending(Collection<Long> feedIds) {
+        return repository.findPending(feedIds);
+    }
+
+    /// Finds feeds with subscriber count changes held in their stripes
+    ///
+    /// @param after the database ID to start after
+    /// @param limit the maximum number of feeds to return
+    /// @return the database IDs of the feeds, in order
+    @Transactional(readOnly = true)
+    public List<Long> findFeedIdsWithPending(Long after, int limit) {
+        return repository.findFeedIdsWithPending(after, limit);
+    }
+
+    /// Moves the changes held in a feed's stripes to its count
+    ///
+    /// @param feedId the database ID of the feed
+    /// @return the amount added to the feed's count
+    @Transactional
+    public long fold(Long feedId) {
+        return repository.fold(feedId);
+    }
+
+    /// Finds feeds whose counts don't match their subscriptions, or that need stripes.
+    /// Counts are compared without locks, so a feed found may turn out to be correct when reconciled.
+    ///
+    /// @param after the database ID to start after
+    /// @param limit the maximum number of feeds to compare
+    /// @return the counts of every feed compared, in order
+    @Transactional(readOnly = true)
+    public List<SubscriberCountRepository.CountCheck> check(Long after, int limit) {
+        return repository.check(after, limit);
+    }
+
+    /// @param check the count of a feed
+    /// @return whether the feed's count is wrong or it needs stripes
+    public boolean needsReconciling(SubscriberCountRepository.CountCheck check) {
+        return check.drift() != 0 || needsStripes(check);
+    }
+
+    /// Corrects a feed's count to match its subscriptions, and gives it stripes if it has become popular
+    ///
+    /// @param feedId the database ID of the feed
+    /// @return what was changed
+    @Transactional
+    public Reconciliation reconcile(Long feedId) {
+        final var check = repository.lockAndCheck(feedId);
+        if (check == null) {
+            return new Reconciliation(0, false);
+        }
+        if (check.drift() != 0) {
+            log.info("Correcting the subscriber count of feed {} by {}", feedId, check.drift());
+            repository.addToFeed(feedId, check.drift());
+        }
+        final var promoted = needsStripes(check);
+        if (promoted) {
+            log.info("Striping the subscriber count of feed {} with {} subscribers", feedId, check.actual());
+            repository.addStripes(feedId, stripes);
+        }
+        return new Reconciliation(check.drift(), promoted);
+    }
+
+    private boolean needsStripes(SubscriberCountRepository.CountCheck check) {
+        return check.stripes() < stripes && check.actual() >= hotThreshold;
+    }
+}
@@ -0,0 +1,56 @@
+package org.openpodcastapi.opa.feed;
+
+import jakarta.persistence.*;
+
+/// An entity holding part of the subscriber count changes of a popular feed.
+///
+/// Every subscription change of a feed would otherwise update the same `feeds` row, and concurrent changes would
+/// queue on its lock. A feed with stripes takes each change on the stripe picked by the user's ID instead, and its
+/// stripes are folded into its count periodically by [SubscriberCountReconciler].
+/// Rows are only written by [SubscriberCountRepository].
+@Entity
+@Table(name = "feed_subscriber_count_stripes", indexes = {
+        @Index(name = "uc_feed_subscriber_count_stripes_feed_id_stripe", columnList = "feed_id, stripe", unique = true)
+})
+public class SubscriberCountStripeEntity {
+    /// The entity ID
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /// The database ID of the feed
+    @Column(name = "feed_id", nullable = false, updatable = false)
+    private Long feedId;
+
+    /// The number of the stripe, from zero
+    @Column(nullable = false, updatable = false)
+    private int stripe;
+
+    /// The change in subscribers not yet folded into the feed's count
+    @Column(nullable = false)
+    private long delta;
+
+    /// No-args constructor
+    public SubscriberCountStripeEntity() {
+    }
+
+    /// @return the entity ID
+    public Long getId() {
+        return id;
+    }
+
+    /// @return the database ID of the feed
+    public Long getFeedId() {
+        return feedId;
+    }
+
+    /// @return the number of the stripe
+    public int getStripe() {
+        return stripe;
+    }
+
+    /// @return the change in subscribers not yet folded into the feed's count
+    public long getDelta() {
+        return delta;
+    }
+}
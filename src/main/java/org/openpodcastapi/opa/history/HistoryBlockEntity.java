@@ -0,0 +1,113 @@
+package org.openpodcastapi.opa.history;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/// An entity holding a block of a user's listening events from one month, encoded by [HistoryCodec].
+///
+/// Events are appended to the newest block of their month until it holds `history.block-events` events,
+/// so rewriting a block on append stays cheap. The time range of the block lets reads skip it without decoding it.
+@Entity
+@Table(name = "listening_history_blocks", indexes = {
+        @Index(name = "listening_history_blocks_user_id_last_at", columnList = "user_id, lastAt DESC, id DESC"),
+        @Index(name = "listening_history_blocks_user_id_month_start", columnList = "user_id, monthStart, id")
+})
+public class HistoryBlockEntity {
+    /// The largest block the column holds
+    static final int MAX_DATA_BYTES = 1048576;
+
+    /// The entity ID
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /// The database ID of the user
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private Long userId;
+
+    /// The start of the month the events belong to, in UTC
+    @Column(nullable = false, updatable = false)
+    private Instant monthStart;
+
+    /// The time of the earliest event
+    @Column(nullable = false)
+    private Instant firstAt;
+
+    /// The time of the latest event
+    @Column(nullable = false)
+    private Instant lastAt;
+
+    /// The number of events
+    @Column(nullable = false)
+    private int eventCount;
+
+    /// The encoded events
+    @Column(nullable = false, length = MAX_DATA_BYTES)
+    private byte[] data;
+
+    /// No-args constructor
+    public HistoryBlockEntity() {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param userId     the database ID of the user
+    /// @param monthStart the start of the month the events belong to
+    public HistoryBlockEntity(Long userId, Instant monthStart) {
+        this.userId = userId;
+        this.monthStart = monthStart;
+        this.data = new byte[0];
+    }
+
+    /// Appends an encoded chunk of events
+    ///
+    /// @param chunk   the chunk, encoded by [HistoryCodec#encode]
+    /// @param count   the number of events in the chunk
+    /// @param firstAt the time of the earliest event in the chunk
+    /// @param lastAt  the time of the latest event in the chunk
+    public void append(byte[] chunk, int count, Instant firstAt, Instant lastAt) {
+        final var combined = new byte[data.length + chunk.length];
+        System.arraycopy(data, 0, combined, 0, data.length);
+        System.arraycopy(chunk, 0, combined, data.length, chunk.length);
+        this.data = combined;
+        this.firstAt = this.eventCount == 0 || firstAt.isBefore(this.firstAt) ? firstAt : this.firstAt;
+        this.lastAt = this.eventCount == 0 || lastAt.isAfter(this.lastAt) ? lastAt : this.lastAt;
+        this.eventCount += count;
+    }
+
+    /// @return the entity ID
+    public Long getId() {
+        return id;
+    }
+
+    /// @return the database ID of the user
+    public Long getUserId() {
+        return userId;
+    }
+
+    /// @return the start of the month the events belong to
+    public Instant getMonthStart() {
+        return monthStart;
+    }
+
+    /// @return the time of the earliest event
+    public Instant getFirstAt() {
+        return firstAt;
+    }
+
+    /// @return the time of the latest event
+    public Instant getLastAt() {
+        return lastAt;
+    }
+
+    /// @return the number of events
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /// @return the encoded events
+    public byte[] getData() {
+        return data;
+    }
+}
@@ -0,0 +1,25 @@
+package org.openpodcastapi.opa.history;
+
+import org.jspecify.annotations.NonNull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/// Repository for history block interactions
+@Repository
+public interface HistoryBlockRepository extends JpaRepository<@NonNull HistoryBlockEntity, @NonNull Long> {
+    /// Finds the newest block of a user's month, which is the only one events are still appended to
+    ///
+    /// @param userId     the database ID of the user
+    /// @param monthStart the start of the month
+    /// @return the newest block, if the month has any
+    Optional<HistoryBlockEntity> findFirstByUserIdAndMonthStartOrderByIdDesc(Long userId, Instant monthStart);
+
+    /// Counts a user's blocks
+    ///
+    /// @param userId the database ID of the user
+    /// @return the number of blocks
+    long countByUserId(Long userId);
+}
@@ -0,0 +1,24 @@
+package org.openpodcastapi.opa.history;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.openpodcastapi.opa.playback.PlaybackAction;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/// Container for all listening history-related data transfer objects
+public class HistoryDTO {
+    /// A DTO representing an action in a user's listening history
+    ///
+    /// @param episode   the UUID of the episode
+    /// @param action    the action
+    /// @param position  the playback position in seconds
+    /// @param timestamp the time of the action, to the second
+    public record ListeningEventDTO(
+            @JsonProperty(required = true) UUID episode,
+            @JsonProperty(required = true) PlaybackAction action,
+            @JsonProperty(required = true) int position,
+            @JsonProperty(required = true) Instant timestamp
+    ) {
+    }
+}
@@ -0,0 +1,195 @@
+package org.openpodcastapi.opa.history;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// A write-behind queue for listening events reported by players.
+///
+/// Events are appended to the history every `history.flush-interval`, in batches of `history.batch-size`,
+/// so a listener reporting every few seconds costs one chunk per flush rather than a write per report.
+/// Events that can't be written because the database is unavailable are kept for the next flush,
+/// up to `history.max-pending` events, after which new events are dropped.
+/// A batch the database rejects is appended again a user at a time, and the events of users whose append is rejected,
+/// such as users who were deleted, are dropped so they can't hold back everyone else's. Events still queued when the process dies are lost.
+@Component
+public class HistoryRecorder {
+    private static final Logger log = getLogger(HistoryRecorder.class);
+
+    private final ListeningHistoryStore store;
+    private final int batchSize;
+    private final int maxPending;
+
+    private final ConcurrentLinkedDeque<Pending> queue = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    /// Serializes flushes, so a failed batch is requeued before the next flush drains the queue
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Counter recorded;
+    private final Counter dropped;
+    private final Counter failures;
+    private final Counter rejected;
+
+    /// Required-args constructor
+    ///
+    /// @param store         the store events are appended to
+    /// @param meterRegistry the registry used to publish history metrics
+    /// @param batchSize     the number of events appended per transaction
+    /// @param maxPending    the number of queued events above which new events are dropped
+    public HistoryRecorder(ListeningHistoryStore store,
+                           MeterRegistry meterRegistry,
+                           @Value("${history.batch-size:5000}") int batchSize,
+                           @Value("${history.max-pending:1000000}") int maxPending) {
+        this.store = store;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+
+        this.recorded = Counter.builder("history.events").tag("result", "recorded").register(meterRegistry);
+        this.dropped = Counter.builder("history.events").tag("result", "dropped").register(meterRegistry);
+        this.failures = Counter.builder("history.flush.failures").tag("result", "retried").register(meterRegistry);
+        this.rejected = Counter.builder("history.flush.failures").tag("result", "dropped").register(meterRegistry);
+        Gauge.builder("history.pending", pending, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /// Queues events to be appended to the history
+    ///
+    /// @param events the events
+    public void record(Collection<ListeningEvent> events) {
+        if (pending.addAndGet(events.size()) > maxPending) {
+            pending.addAndGet(-events.size());
+            dropped.increment(events.size());
+            log.warn("History queue is full, dropping {} listening events", events.size());
+            return;
+        }
+        final var recordedAt = System.nanoTime();
+        for (final var event : events) {
+            queue.add(new Pending(event, recordedAt));
+        }
+        recorded.increment(events.size());
+    }
+
+    /// Appends every queued event.
+    /// The next scheduled run starts `history.flush-interval` after the previous one finishes.
+    ///
+    /// @return the number of events appended
+    @Scheduled(fixedDelayString = "${history.flush-interval:PT5S}", initialDelayString = "${history.flush-interval:PT5S}")
+    public int flush() {
+        flushLock.lock();
+        try {
+            var written = 0;
+            while (true) {
+                final List<Pending> batch = new ArrayList<>(batchSize);
+                Pending event;
+                while (batch.size() < batchSize && (event = queue.poll()) != null) {
+                    batch.add(event);
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                pending.addAndGet(-batch.size());
+
+                final List<Pending> kept = new ArrayList<>();
+                written += write(batch, kept);
+                if (!kept.isEmpty()) {
+                    failures.increment();
+                    // Put the events back at the head of the queue, so the oldest queued event stays first
+                    pending.addAndGet(kept.size());
+                    kept.reversed().forEach(queue::addFirst);
+                    break;
+                }
+            }
+
+            log.debug("Appended {} listening events", written);
+            return written;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /// Appends a batch in one transaction.
+    /// When the database rejects it, each user's events are appended in their own transaction instead,
+    /// and the events of a user whose append is rejected again are dropped.
+    ///
+    /// @param batch the events to append
+    /// @param kept  collects the events that couldn't be appended for another reason, to keep for the next flush
+    /// @return the number of events appended
+    private int write(List<Pending> batch, List<Pending> kept) {
+        try {
+            return store.append(events(batch));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Batch of {} listening events was rejected, appending them a user at a time: {}", batch.size(), e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("Unable to append {} listening events, keeping them for the next flush: {}", batch.size(), e.getMessage());
+            kept.addAll(batch);
+            return 0;
+        }
+
+        final Map<Long, List<Pending>> byUser = batch.stream()
+                .collect(Collectors.groupingBy(event -> event.event().userId(), LinkedHashMap::new, Collectors.toList()));
+        var written = 0;
+        for (final var entry : byUser.entrySet()) {
+            if (!kept.isEmpty()) {
+                // The database is unavailable, so don't try the remaining users until the next flush
+                kept.addAll(entry.getValue());
+                continue;
+            }
+            try {
+                written += store.append(events(entry.getValue()));
+            } catch (DataIntegrityViolationException e) {
+                rejected.increment();
+                log.warn("Dropping {} listening events of user {}, which were rejected: {}", entry.getValue().size(), entry.getKey(), e.getMessage());
+            } catch (RuntimeException e) {
+                log.warn("Unable to append the listening events of user {}, keeping them for the next flush: {}", entry.getKey(), e.getMessage());
+                kept.addAll(entry.getValue());
+            }
+        }
+        return written;
+    }
+
+    private static List<ListeningEvent> events(List<Pending> batch) {
+        return batch.stream().map(Pending::event).toList();
+    }
+
+    /// @return the number of events waiting to be appended
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    /// @return how long the oldest queued event has been waiting to be appended, or zero if none is
+    public Duration pendingAge() {
+        final var oldest = queue.peek();
+        return oldest == null ? Duration.ZERO : Duration.ofNanos(System.nanoTime() - oldest.recordedAt());
+    }
+
+    /// Appends the queued events before the application stops
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    /// A queued event
+    ///
+    /// @param event      the event
+    /// @param recordedAt the [System#nanoTime()] at which it was queued
+    private record Pending(ListeningEvent event, long recordedAt) {
+    }
+}
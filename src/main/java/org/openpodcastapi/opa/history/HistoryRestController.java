@@ -0,0 +1,38 @@
+package org.openpodcastapi.opa.history;
+
+import org.openpodcastapi.opa.pagination.CursorPage;
+import org.openpodcastapi.opa.service.CustomUserDetails;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/// Controller for API listening history requests
+@RestController
+@RequestMapping("/api/v1/history")
+public class HistoryRestController {
+    private final ListeningHistoryService service;
+
+    /// Required-args constructor
+    ///
+    /// @param service the service used for listening history actions
+    public HistoryRestController(ListeningHistoryService service) {
+        this.service = service;
+    }
+
+    /// Returns the user's listening history, latest first
+    ///
+    /// @param user   the custom user details of the authenticated user
+    /// @param cursor the base64-encoded cursor string
+    /// @param limit  the number of results to return
+    /// @return a response containing listening events
+    /// @throws IllegalArgumentException if the cursor is invalid or the limit isn't positive
+    @GetMapping
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<CursorPage<HistoryDTO.ListeningEventDTO>> getHistory(@AuthenticationPrincipal CustomUserDetails user, @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(service.getHistory(user.id(), cursor, limit));
+    }
+}
@@ -0,0 +1,15 @@
+package org.openpodcastapi.opa.history;
+
+import org.openpodcastapi.opa.playback.PlaybackAction;
+
+import java.time.Instant;
+
+/// An action a user's player reported, as kept in their listening history
+///
+/// @param userId    the database ID of the user
+/// @param episodeId the database ID of the episode
+/// @param action    the action
+/// @param position  the playback position in seconds
+/// @param timestamp the time of the action, as reported by the device
+public record ListeningEvent(long userId, long episodeId, PlaybackAction action, int position, Instant timestamp) {
+}
@@ -0,0 +1,12 @@
+package org.openpodcastapi.opa.history;
+
+import java.util.List;
+
+/// Published when events are appended to a user's listening history.
+/// Listeners run inside the transaction of the append, while the user's history is locked,
+/// so their writes commit or roll back with it and never race another append for the same user.
+///
+/// @param userId the database ID of the user
+/// @param events the appended events, in time order, with timestamps to the second
+public record ListeningEventsAppendedEvent(Long userId, List<ListeningEvent> events) {
+}
@@ -0,0 +1,74 @@
+package org.openpodcastapi.opa.history;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/// An entity holding a user's episode dictionary.
+///
+/// History blocks refer to episodes by their ordinal in the dictionary, which is far shorter than an episode ID.
+/// The row is also locked while events are appended to the user's history, so appends for a user never interleave.
+@Entity
+@Table(name = "listening_histories")
+public class ListeningHistoryEntity {
+    /// The largest encoded dictionary the column holds
+    static final int MAX_EPISODES_BYTES = 16777216;
+
+    /// The database ID of the user
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    /// The number of episodes in the dictionary
+    @Column(nullable = false)
+    private int episodeCount;
+
+    /// The episode IDs, by ordinal, encoded by [HistoryCodec#encodeDictionary]
+    @Column(nullable = false, length = MAX_EPISODES_BYTES)
+    private byte[] episodes;
+
+    /// The time events were last appended
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    /// No-args constructor
+    public ListeningHistoryEntity() {
+    }
+
+    /// @return the database ID of the user
+    public Long getUserId() {
+        return userId;
+    }
+
+    /// @return the number of episodes in the dictionary
+    public int getEpisodeCount() {
+        return episodeCount;
+    }
+
+    /// @return the episode IDs, by ordinal
+    public long[] decodeEpisodes() {
+        return HistoryCodec.decodeDictionary(episodes, episodeCount);
+    }
+
+    /// Adds episodes to the end of the dictionary
+    ///
+    /// @param encoded the encoded IDs of the episodes
+    /// @param count   the number of episodes
+    public void addEpisodes(byte[] encoded, int count) {
+        final var combined = new byte[episodes.length + encoded.length];
+        System.arraycopy(episodes, 0, combined, 0, episodes.length);
+        System.arraycopy(encoded, 0, combined, episodes.length, encoded.length);
+        this.episodes = combined;
+        this.episodeCount += count;
+    }
+
+    /// @return the time events were last appended
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /// @param updatedAt the time events were last appended
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,132 @@
+package org.openpodcastapi.opa.history;
+
+import org.openpodcastapi.opa.episode.EpisodeRepository;
+import org.openpodcastapi.opa.pagination.CursorPage;
+import org.openpodcastapi.opa.pagination.CursorPayload;
+import org.openpodcastapi.opa.pagination.CursorUtility;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Service for listening history actions.
+///
+/// A page is read from the blocks with the latest events first, decoding a block only if it can hold an event for the page:
+/// once the page is full, a block whose latest event is older than the last event on the page is never read.
+/// Each event is identified by its block's ID and its position in the block, which breaks ties between events of the same second.
+@Service
+public class ListeningHistoryService {
+    private static final Logger log = getLogger(ListeningHistoryService.class);
+
+    /// The number of block ranges fetched at a time
+    private static final int BLOCK_BATCH_SIZE = 16;
+
+    private static final Comparator<Event> NEWEST_FIRST = Comparator.comparing(Event::timestamp)
+            .thenComparingLong(Event::id)
+            .reversed();
+
+    private final ListeningHistoryStore store;
+    private final EpisodeRepository episodeRepository;
+
+    /// Required-args constructor
+    ///
+    /// @param store             the store history blocks are read from
+    /// @param episodeRepository the repository used to find the UUIDs of episodes
+    public ListeningHistoryService(ListeningHistoryStore store, EpisodeRepository episodeRepository) {
+        this.store = store;
+        this.episodeRepository = episodeRepository;
+    }
+
+    /// Gets a user's listening history, latest first
+    ///
+    /// @param userId the database ID of the user
+    /// @param cursor the encoded cursor
+    /// @param limit  the number of results to return
+    /// @return a paginated set of listening events
+    /// @throws IllegalArgumentException if the cursor is invalid or the limit isn't positive
+    public CursorPage<HistoryDTO.ListeningEventDTO> getHistory(Long userId, String cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+
+        final var after = cursor == null
+                ? null
+                : toEvent(CursorUtility.decode(cursor));
+
+        final List<Event> events = new ArrayList<>(limit + 1);
+        ListeningHistoryStore.BlockRange lastRange = null;
+        var decoded = 0;
+        read:
+        while (true) {
+            final var ranges = store.findBlockRanges(userId, after == null ? null : after.timestamp(), lastRange, BLOCK_BATCH_SIZE);
+            for (final var range : ranges) {
+                if (events.size() == limit && range.lastAt().isBefore(events.getLast().timestamp())) {
+                    break read;
+                }
+                final var entries = store.readBlock(range);
+                decoded++;
+                for (var index = 0; index < entries.size(); index++) {
+                    final var entry = entries.get(index);
+                    final var event = new Event(range.id() << ListeningHistoryStore.EVENT_INDEX_BITS | index, entry);
+                    if (after == null || NEWEST_FIRST.compare(event, after) > 0) {
+                        events.add(event);
+                    }
+                }
+                events.sort(NEWEST_FIRST);
+                if (events.size() > limit) {
+                    events.subList(limit, events.size()).clear();
+                }
+            }
+            if (ranges.size() < BLOCK_BATCH_SIZE) {
+                break;
+            }
+            lastRange = ranges.getLast();
+        }
+
+        log.debug("Decoded {} history blocks for a page of {} events for {}", decoded, events.size(), userId);
+        if (events.isEmpty()) {
+            return new CursorPage<>(List.of(), null, null);
+        }
+
+        // Episodes deleted since they were played are left out of the page, but the cursor still follows the history
+        final var episodeIds = store.findEpisodes(userId);
+        final Map<Long, UUID> episodeUuids = episodeRepository.findKeysByIdIn(events.stream().map(event -> episodeIds[event.entry().ordinal()]).distinct().toList()).stream()
+                .collect(Collectors.toMap(EpisodeRepository.EpisodeKey::id, EpisodeRepository.EpisodeKey::uuid));
+        final var data = events.stream()
+                .map(event -> {
+                    final var uuid = episodeUuids.get(episodeIds[event.entry().ordinal()]);
+                    return uuid == null ? null : new HistoryDTO.ListeningEventDTO(uuid, event.entry().action(), event.entry().position(), event.timestamp());
+                })
+                .filter(Objects::nonNull)
+                .toList();
+
+        final var page = CursorPage.of(events, limit, event -> new CursorPayload(event.timestamp(), event.id()));
+        return new CursorPage<>(data, page.nextCursor(), page.prevCursor());
+    }
+
+    private static Event toEvent(CursorPayload payload) {
+        if (payload.createdAt() == null || payload.id() == null) {
+            throw new IllegalArgumentException("Invalid pagination");
+        }
+        return new Event(payload.id(), new HistoryCodec.Entry(payload.createdAt(), 0, null, 0));
+    }
+
+    /// A decoded event and its ID
+    ///
+    /// @param id    the ID of the block, followed by the position of the event in the block
+    /// @param entry the decoded event
+    private record Event(long id, HistoryCodec.Entry entry) {
+        Instant timestamp() {
+            return entry.timestamp();
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package org.openpodcastapi.opa.history;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.jspecify.annotations.Nullable;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.openpodcastapi.opa.util.DatabasePlatform;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/// Repository for the blocks and dictionaries of listening histories.
+///
+/// Events are appended per user, with the user's [ListeningHistoryEntity] row locked, in blocks by the month of the event.
+/// Each append encodes its events as one chunk per block it lands in, so it writes a handful of rows however many events it holds.
+/// Every append publishes a [ListeningEventsAppendedEvent] per user, which views derived from the history are maintained from.
+/// Events of users who were deleted, or whose deletion was requested, are skipped.
+@Repository
+public class ListeningHistoryStore {
+    /// The number of bits of an event ID that hold the position of the event in its block
+    static final int EVENT_INDEX_BITS = 20;
+
+    private static final QHistoryBlockEntity qBlock = QHistoryBlockEntity.historyBlockEntity;
+    private static final QListeningHistoryEntity qHistory = QListeningHistoryEntity.listeningHistoryEntity;
+
+    private static final String CREATE_HISTORY_POSTGRES = """
+            INSERT INTO listening_histories (user_id, episode_count, episodes, updated_at)
+            VALUES (:userId, 0, :episodes, :now)
+            ON CONFLICT (user_id) DO NOTHING
+            """;
+
+    private static final String CREATE_HISTORY = """
+            INSERT INTO listening_histories (user_id, episode_count, episodes, updated_at)
+            SELECT :userId, 0, :episodes, :now
+            WHERE NOT EXISTS (SELECT 1 FROM listening_histories WHERE user_id = :userId)
+            """;
+
+    private final EntityManager entityManager;
+    private final JPAQueryFactory queryFactory;
+    private final DatabasePlatform databasePlatform;
+    private final HistoryBlockRepository blockRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserRepository userRepository;
+    private final int blockEvents;
+
+    /// All-args constructor
+    ///
+    /// @param entityManager    the entity manager used to lock dictionaries
+    /// @param queryFactory     the query factory used to find blocks
+    /// @param databasePlatform the platform used to select the statement dialect
+    /// @param blockRepository  the repository used to write blocks
+    /// @param eventPublisher   the publisher used to announce appended events
+    /// @param userRepository   the repository used to skip the events of users being deleted
+    /// @param blockEvents      the number of events after which a block is closed
+    public ListeningHistoryStore(EntityManager entityManager,
+                                 JPAQueryFactory queryFactory,
+                                 DatabasePlatform databasePlatform,
+                                 HistoryBlockRepository blockRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 UserRepository userRepository,
+                                 @Value("${history.block-events:1024}") int blockEvents) {
+        if (blockEvents < 1 || blockEvents >= 1 << EVENT_INDEX_BITS) {
+            throw new IllegalArgumentException("history.block-events must be between 1 and " + ((1 << EVENT_INDEX_BITS) - 1));
+        }
+        this.entityManager = entityManager;
+        this.queryFactory = queryFactory;
+        this.databasePlatform = databasePlatform;
+        this.blockRepository = blockRepository;
+        this.eventPublisher = eventPublisher;
+        this.userRepository = userRepository;
+        this.blockEvents = blockEvents;
+    }
+
+    /// Appends events to the histories of their users.
+    /// Users are locked in ID order, so concurrent appends can't deadlock.
+    ///
+    /// @param events the events to append, in any order
+    /// @return the number of events appended
+    @Transactional
+    public int append(Collection<ListeningEvent> events) {
+        final Map<Long, List<ListeningEvent>> byUser = events.stream()
+                .collect(Collectors.groupingBy(ListeningEvent::userId, TreeMap::new, Collectors.toList()));
+        if (byUser.isEmpty()) {
+            return 0;
+        }
+        byUser.keySet().retainAll(Set.copyOf(userRepository.lockWritableIds(byUser.keySet())));
+
+        final var now = Instant.now();
+        var count = 0;
+        for (final var entry : byUser.entrySet()) {
+            count += entry.getValue().size();
+            final var history = lockHistory(entry.getKey(), now);
+            final var ordinals = addToDictionary(history, entry.getValue());
+            history.setUpdatedAt(now);
+
+            final Map<Instant, List<HistoryCodec.Entry>> byMonth = new TreeMap<>();
+            final List<ListeningEvent> appended = new ArrayList<>(entry.getValue().size());
+            for (final var event : entry.getValue()) {
+                // Blocks keep whole seconds, so their time ranges must too
+                final var timestamp = event.timestamp().truncatedTo(ChronoUnit.SECONDS);
+                byMonth.computeIfAbsent(monthStart(timestamp), _ -> new ArrayList<>())
+                        .add(new HistoryCodec.Entry(timestamp, ordinals.get(event.episodeId()), event.action(), event.position()));
+                appended.add(new ListeningEvent(event.userId(), event.episodeId(), event.action(), event.position(), timestamp));
+            }
+            byMonth.forEach((monthStart, entries) -> appendToMonth(entry.getKey(), monthStart, entries));
+
+            appended.sort(Comparator.comparing(ListeningEvent::timestamp));
+            eventPublisher.publishEvent(new ListeningEventsAppendedEvent(entry.getKey(), appended));
+        }
+        return count;
+    }
+
+    /// Finds a user's episode dictionary
+    ///
+    /// @param userId the database ID of the user
+    /// @return the episode IDs by ordinal, empty if the user has no history
+    @Transactional(readOnly = true)
+    public long[] findEpisodes(Long userId) {
+        final var history = entityManager.find(ListeningHistoryEntity.class, userId);
+        return history == null ? new long[0] : history.decodeEpisodes();
+    }
+
+    /// Finds the time ranges of a user's blocks, latest first, without reading their events
+    ///
+    /// @param userId the database ID of the user
+    /// @param before a time the blocks must start at or before, or `null` for any block
+    /// @param after  the last block read, or `null` to start at the latest block
+    /// @param limit  the maximum number of blocks to return
+    /// @return the blocks
+    @Transactional(readOnly = true)
+    public List<BlockRange> findBlockRanges(Long userId, @Nullable Instant before, @Nullable BlockRange after, int limit) {
+        BooleanExpression afterBlock = null;
+        if (after != null) {
+            afterBlock = qBlock.lastAt.loe(after.lastAt())
+                    .and(qBlock.lastAt.lt(after.lastAt()).or(qBlock.id.lt(after.id())));
+        }
+        return queryFactory.select(qBlock.id, qBlock.monthStart, qBlock.lastAt)
+                .from(qBlock)
+                .where(qBlock.userId.eq(userId), before == null ? null : qBlock.firstAt.loe(before), afterBlock)
+                .orderBy(qBlock.lastAt.desc(), qBlock.id.desc())
+                .limit(limit)
+                .fetch()
+                .stream()
+                .map(row -> new BlockRange(row.get(qBlock.id), row.get(qBlock.monthStart), row.get(qBlock.lastAt)))
+                .toList();
+    }
+
+    /// Reads and decodes a block
+    ///
+    /// @param range the block to read
+    /// @return the events of the block, in the order they were appended
+    @Transactional(readOnly = true)
+    public List<HistoryCodec.Entry> readBlock(BlockRange range) {
+        return blockRepository.findById(range.id())
+                .map(block -> HistoryCodec.decode(block.getMonthStart(), block.getData()))
+                .orElse(List.of());
+    }
+
+    /// Locks a user's history against appends until the transaction ends
+    ///
+    /// @param userId the database ID of the user
+    /// @return `true` if the user has a history
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean lock(Long userId) {
+        return entityManager.find(ListeningHistoryEntity.class, userId, LockModeType.PESSIMISTIC_WRITE) != null;
+    }
+
+    /// Reads a user's whole history, a month at a time, with the history locked against appends until the transaction ends.
+    /// Only one month of events is decoded at a time, however long the history is.
+    ///
+    /// @param userId   the database ID of the user
+    /// @param consumer the consumer of each month's events, in time order, called from the earliest month to the latest
+    /// @return the number of events read
+    @Transactional
+    public long replay(Long userId, Consumer<List<ListeningEvent>> consumer) {
+        final var history = entityManager.find(ListeningHistoryEntity.class, userId, LockModeType.PESSIMISTIC_WRITE);
+        if (history == null) {
+            return 0;
+        }
+        final var episodes = history.decodeEpisodes();
+
+        final var blocks = queryFactory.select(qBlock.id, qBlock.monthStart)
+                .from(qBlock)
+                .where(qBlock.userId.eq(userId))
+                .orderBy(qBlock.monthStart.asc(), qBlock.id.asc())
+                .fetch();
+
+        var read = 0L;
+        final List<ListeningEvent> month = new ArrayList<>();
+        for (var i = 0; i < blocks.size(); i++) {
+            final var monthStart = blocks.get(i).get(qBlock.monthStart);
+            final var block = blockRepository.findById(blocks.get(i).get(qBlock.id)).orElseThrow();
+            for (final var entry : HistoryCodec.decode(monthStart, block.getData())) {
+                month.add(new ListeningEvent(userId, episodes[entry.ordinal()], entry.action(), entry.position(), entry.timestamp()));
+            }
+            // Blocks are only read once, so don't keep them in the persistence context
+            entityManager.detach(block);
+            if (i + 1 == blocks.size() || !blocks.get(i + 1).get(qBlock.monthStart).equals(monthStart)) {
+                // Late events are appended to the newest block of their month, so a month is only in order once it's sorted
+                month.sort(Comparator.comparing(ListeningEvent::timestamp));
+                consumer.accept(List.copyOf(month));
+                read += month.size();
+                month.clear();
+            }
+        }
+        return read;
+    }
+
+    /// Finds the users who have a listening history, in ID order
+    ///
+    /// @param after the database ID of the last user already seen, or `null` to start at the first user
+    /// @param limit the maximum number of users to return
+    /// @return the database IDs of the users
+    @Transactional(readOnly = true)
+    public List<Long> findUserIds(@Nullable Long after, int limit) {
+        return queryFactory.select(qHistory.userId)
+                .from(qHistory)
+                .where(after == null ? null : qHistory.userId.gt(after))
+                .orderBy(qHistory.userId.asc())
+                .limit(limit)
+                .fetch();
+    }
+
+    /// Creates the user's dictionary if it doesn't exist yet, and locks it until the transaction ends
+    private ListeningHistoryEntity lockHistory(Long userId, Instant now) {
+        entityManager.createNativeQuery(databasePlatform.isPostgres() ? CREATE_HISTORY_POSTGRES : CREATE_HISTORY)
+                .setParameter("userId", userId)
+                .setParameter("episodes", new byte[0])
+                .setParameter("now", now)
+                .executeUpdate();
+        return entityManager.find(ListeningHistoryEntity.class, userId, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    /// Adds the episodes of a user's events that aren't in their dictionary yet
+    ///
+    /// @return the ordinals of the events' episodes, by episode ID
+    private Map<Long, Integer> addToDictionary(ListeningHistoryEntity history, List<ListeningEvent> events) {
+        final var episodes = history.decodeEpisodes();
+        final Map<Long, Integer> ordinals = new HashMap<>();
+        for (var ordinal = 0; ordinal < episodes.length; ordinal++) {
+            ordinals.put(episodes[ordinal], ordinal);
+        }
+
+        final List<Long> added = new ArrayList<>();
+        for (final var event : events) {
+            ordinals.computeIfAbsent(event.episodeId(), episodeId -> {
+                added.add(episodeId);
+                return episodes.length + added.size() - 1;
+            });
+        }
+        if (!added.isEmpty()) {
+            final var previousId = episodes.length == 0 ? 0L : episodes[episodes.length - 1];
+            history.addEpisodes(HistoryCodec.encodeDictionary(previousId, added), added.size());
+        }
+        return ordinals;
+    }
+
+    /// Appends a month's events to its newest block, opening new blocks as each one fills up
+    private void appendToMonth(Long userId, Instant monthStart, List<HistoryCodec.Entry> entries) {
+        // Deltas between neighbouring events are smallest in time order
+        entries.sort(Comparator.comparing(HistoryCodec.Entry::timestamp));
+
+        var block = blockRepository.findFirstByUserIdAndMonthStartOrderByIdDesc(userId, monthStart).orElse(null);
+        var from = 0;
+        while (from < entries.size()) {
+            if (block == null || block.getEventCount() >= blockEvents) {
+                block = new HistoryBlockEntity(userId, monthStart);
+            }
+            final var chunk = entries.subList(from, Math.min(entries.size(), from + blockEvents - block.getEventCount()));
+            block.append(HistoryCodec.encode(monthStart, chunk), chunk.size(), chunk.getFirst().timestamp(), chunk.getLast().timestamp());
+            block = blockRepository.save(block);
+            from += chunk.size();
+        }
+    }
+
+    /// Finds the start of the month of an event, in UTC
+    static Instant monthStart(Instant timestamp) {
+        return YearMonth.from(timestamp.atOffset(ZoneOffset.UTC)).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    /// The time range of a history block
+    ///
+    /// @param id         the database ID of the block
+    /// @param monthStart the start of the month of the block
+    /// @param lastAt     the time of the latest event in the block
+    public record BlockRange(Long id, Instant monthStart, Instant lastAt) {
+    }
+}
@@ -0,0 +1,11 @@
+package org.openpodcastapi.opa.idempotency;
+
+/// Thrown when an idempotency key is reused with a different request body
+public class IdempotencyKeyReusedException extends RuntimeException {
+    /// Required-args constructor
+    ///
+    /// @param message the error message
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
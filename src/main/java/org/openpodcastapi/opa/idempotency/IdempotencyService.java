@@ -0,0 +1,155 @@
+package org.openpodcastapi.opa.idempotency;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Service for executing write requests at most once per `Idempotency-Key`.
+///
+/// The first request with a given key runs normally and its status and body are recorded in the [IdempotencyStore].
+/// Retries with the same key and body replay the recorded response without running the action again.
+/// Concurrent duplicates on the same node wait for the first execution and share its result.
+@Service
+public class IdempotencyService {
+    /// The header added to replayed responses
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final Logger log = getLogger(IdempotencyService.class);
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+    private final JsonMapper jsonMapper;
+    private final Duration ttl;
+    private final Duration lockTtl;
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    /// Required-args constructor
+    ///
+    /// @param store      the store used to record responses
+    /// @param jsonMapper the JSON mapper used to serialize requests and responses
+    /// @param ttl        how long responses are kept
+    /// @param lockTtl    how long an execution may hold a key before another node may claim it
+    public IdempotencyService(IdempotencyStore store,
+                              JsonMapper jsonMapper,
+                              @Value("${idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${idempotency.lock-ttl:PT1M}") Duration lockTtl) {
+        this.store = store;
+        this.jsonMapper = jsonMapper;
+        this.ttl = ttl;
+        this.lockTtl = lockTtl;
+    }
+
+    /// Executes an action at most once for a given idempotency key
+    ///
+    /// @param <T>          the type of the response body
+    /// @param scope        a prefix that isolates keys, such as the requesting user
+    /// @param key          the client-supplied idempotency key
+    /// @param request      the request body, used to detect a key being reused for a different request
+    /// @param responseType the class of the response body
+    /// @param action       the action to execute
+    /// @return the response of the action, or the recorded response if the key has been seen before
+    /// @throws IllegalArgumentException              if the key is empty or too long
+    /// @throws IdempotencyKeyReusedException         if the key was used for a different request body
+    /// @throws IdempotentRequestInProgressException if another node is still executing a request with the key
+    public <T> ResponseEntity<T> execute(String scope, String key, Object request, Class<T> responseType, Supplier<ResponseEntity<T>> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must contain between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        final var storeKey = scope + ":" + key;
+        final var fingerprint = fingerprint(request);
+
+        // Replay a completed request
+        final var recorded = store.find(storeKey);
+        if (recorded.isPresent()) {
+            return replay(recorded.get(), fingerprint, responseType);
+        }
+
+        // Coalesce concurrent duplicates on this node onto the first execution
+        final var execution = new CompletableFuture<StoredResponse>();
+        final var existing = inFlight.putIfAbsent(storeKey, execution);
+        if (existing != null) {
+            log.debug("Waiting for in-flight request with idempotency key {}", storeKey);
+            return replay(await(existing), fingerprint, responseType);
+        }
+
+        final var owner = UUID.randomUUID().toString();
+        try {
+            if (!store.tryLock(storeKey, owner, lockTtl)) {
+                throw new IdempotentRequestInProgressException("a request with this Idempotency-Key is already being processed");
+            }
+
+            try {
+                // Another node may have finished between the first lookup and acquiring the claim
+                final var completed = store.find(storeKey);
+                if (completed.isPresent()) {
+                    execution.complete(completed.get());
+                    return replay(completed.get(), fingerprint, responseType);
+                }
+
+                final var response = action.get();
+                final var stored = new StoredResponse(response.getStatusCode().value(), jsonMapper.writeValueAsString(response.getBody()), fingerprint);
+                store.save(storeKey, stored, ttl);
+                execution.complete(stored);
+                return response;
+            } finally {
+                store.unlock(storeKey, owner);
+            }
+        } catch (RuntimeException e) {
+            execution.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(storeKey, execution);
+        }
+    }
+
+    private <T> ResponseEntity<T> replay(StoredResponse recorded, String fingerprint, Class<T> responseType) {
+        if (!recorded.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyReusedException("Idempotency-Key was already used for a different request");
+        }
+
+        return ResponseEntity.status(recorded.status())
+                .header(REPLAYED_HEADER, "true")
+                .body(jsonMapper.readValue(recorded.body(), responseType));
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> execution) {
+        try {
+            return execution.get(lockTtl.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotentRequestInProgressException("interrupted while waiting for a request with this Idempotency-Key");
+        } catch (TimeoutException _) {
+            throw new IdempotentRequestInProgressException("a request with this Idempotency-Key is already being processed");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(jsonMapper.writeValueAsBytes(request)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
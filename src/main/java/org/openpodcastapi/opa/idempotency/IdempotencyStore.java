@@ -0,0 +1,34 @@
+package org.openpodcastapi.opa.idempotency;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/// Storage for responses recorded against idempotency keys
+public interface IdempotencyStore {
+    /// Finds a recorded response
+    ///
+    /// @param key the scoped idempotency key
+    /// @return the recorded response, if one exists and hasn't expired
+    Optional<StoredResponse> find(String key);
+
+    /// Records a response
+    ///
+    /// @param key      the scoped idempotency key
+    /// @param response the response to record
+    /// @param ttl      how long the response should be kept
+    void save(String key, StoredResponse response, Duration ttl);
+
+    /// Attempts to claim a key for execution
+    ///
+    /// @param key   the scoped idempotency key
+    /// @param owner a token unique to the execution claiming the key
+    /// @param ttl   how long the claim is held if it isn't released
+    /// @return `true` if the claim was acquired, `false` if another execution holds it
+    boolean tryLock(String key, String owner, Duration ttl);
+
+    /// Releases a claim acquired with [#tryLock], unless it has expired and been claimed by another execution
+    ///
+    /// @param key   the scoped idempotency key
+    /// @param owner the token the claim was acquired with
+    void unlock(String key, String owner);
+}
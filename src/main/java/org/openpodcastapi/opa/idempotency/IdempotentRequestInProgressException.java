@@ -0,0 +1,11 @@
+package org.openpodcastapi.opa.idempotency;
+
+/// Thrown when a request with the same idempotency key is still being processed on another node
+public class IdempotentRequestInProgressException extends RuntimeException {
+    /// Required-args constructor
+    ///
+    /// @param message the error message
+    public IdempotentRequestInProgressException(String message) {
+        super(message);
+    }
+}
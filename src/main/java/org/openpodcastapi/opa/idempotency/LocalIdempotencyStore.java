@@ -0,0 +1,108 @@
+package org.openpodcastapi.opa.idempotency;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// An in-memory [IdempotencyStore] for single-node deployments.
+/// Expired entries are swept once a minute, and once more than `idempotency.local.max-entries` responses are held,
+/// the ones closest to expiring are evicted early.
+@Component
+@ConditionalOnProperty(name = "idempotency.store", havingValue = "local", matchIfMissing = true)
+public class LocalIdempotencyStore implements IdempotencyStore {
+    private static final Logger log = getLogger(LocalIdempotencyStore.class);
+    private final ConcurrentHashMap<String, Expiring<StoredResponse>> responses = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Expiring<String>> locks = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    /// Required-args constructor
+    ///
+    /// @param maxEntries the maximum number of responses held
+    public LocalIdempotencyStore(@Value("${idempotency.local.max-entries:100000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public Optional<StoredResponse> find(String key) {
+        final var entry = responses.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (entry.isExpired(Instant.now())) {
+            responses.remove(key, entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry.value());
+    }
+
+    @Override
+    public void save(String key, StoredResponse response, Duration ttl) {
+        final var now = Instant.now();
+        responses.put(key, new Expiring<>(response, now.plus(ttl)));
+        if (responses.size() > maxEntries) {
+            evict(now);
+        }
+    }
+
+    @Override
+    public boolean tryLock(String key, String owner, Duration ttl) {
+        final var now = Instant.now();
+        final var claim = new Expiring<>(owner, now.plus(ttl));
+        // Replace the claim if it is absent or has expired
+        final var current = locks.compute(key, (_, existing) -> existing == null || existing.isExpired(now) ? claim : existing);
+        return current == claim;
+    }
+
+    @Override
+    public void unlock(String key, String owner) {
+        locks.computeIfPresent(key, (_, existing) -> existing.value().equals(owner) ? null : existing);
+    }
+
+    /// Removes expired responses and claims
+    @Scheduled(fixedDelay = 60_000)
+    public void sweep() {
+        final var now = Instant.now();
+        final var before = responses.size();
+        responses.values().removeIf(entry -> entry.isExpired(now));
+        locks.values().removeIf(entry -> entry.isExpired(now));
+        log.debug("Swept {} expired idempotency records", before - responses.size());
+    }
+
+    /// Removes expired responses, then the ones closest to expiring until a tenth of the capacity is free,
+    /// so a full store isn't sorted again on every save
+    private synchronized void evict(Instant now) {
+        responses.values().removeIf(entry -> entry.isExpired(now));
+        final var excess = responses.size() - (maxEntries - maxEntries / 10);
+        if (excess <= 0) {
+            return;
+        }
+
+        final var evicted = responses.entrySet().stream()
+                .sorted(Comparator.comparing(entry -> entry.getValue().expiresAt()))
+                .limit(excess)
+                .toList();
+        evicted.forEach(entry -> responses.remove(entry.getKey(), entry.getValue()));
+        log.warn("Evicted {} idempotency records before they expired, the store is full", evicted.size());
+    }
+
+    /// A value with an expiry date
+    ///
+    /// @param value     the stored value
+    /// @param expiresAt the date at which the value expires
+    /// @param <T>       the type of the stored value
+    private record Expiring<T>(T value, Instant expiresAt) {
+        boolean isExpired(Instant now) {
+            return !expiresAt.isAfter(now);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.openpodcastapi.opa.idempotency;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/// An [IdempotencyStore] backed by Redis, so that retries landing on any node are replayed
+@Component
+@ConditionalOnProperty(name = "idempotency.store", havingValue = "redis")
+public class RedisIdempotencyStore implements IdempotencyStore {
+    private static final String RESPONSE_PREFIX = "opa:idempotency:response:";
+    private static final String LOCK_PREFIX = "opa:idempotency:lock:";
+
+    /// Deletes a claim only if it is still held by the given owner, so an execution whose claim expired
+    /// can't release the claim of the execution that took it over
+    private static final RedisScript<Long> UNLOCK = RedisScript.of("""
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                return redis.call('del', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final JsonMapper jsonMapper;
+
+    /// Required-args constructor
+    ///
+    /// @param redisTemplate the Redis template used to store responses
+    /// @param jsonMapper    the JSON mapper used to serialize responses
+    public RedisIdempotencyStore(StringRedisTemplate redisTemplate, JsonMapper jsonMapper) {
+        this.redisTemplate = redisTemplate;
+        this.jsonMapper = jsonMapper;
+    }
+
+    @Override
+    public Optional<StoredResponse> find(String key) {
+        final var json = redisTemplate.opsForValue().get(RESPONSE_PREFIX + key);
+        return json == null
+                ? Optional.empty()
+                : Optional.of(jsonMapper.readValue(json, StoredResponse.class));
+    }
+
+    @Override
+    public void save(String key, StoredResponse response, Duration ttl) {
+        redisTemplate.opsForValue().set(RESPONSE_PREFIX + key, jsonMapper.writeValueAsString(response), ttl);
+    }
+
+    @Override
+    public boolean tryLock(String key, String owner, Duration ttl) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LOCK_PREFIX + key, owner, ttl));
+    }
+
+    @Override
+    public void unlock(String key, String owner) {
+        redisTemplate.execute(UNLOCK, List.of(LOCK_PREFIX + key), owner);
+    }
+}
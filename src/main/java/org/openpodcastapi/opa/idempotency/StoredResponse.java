@@ -0,0 +1,9 @@
+package org.openpodcastapi.opa.idempotency;
+
+/// A response recorded against an idempotency key
+///
+/// @param status      the HTTP status code of the original response
+/// @param body        the serialized JSON body of the original response
+/// @param fingerprint a hash of the request body the response was computed for
+public record StoredResponse(int status, String body, String fingerprint) {
+}
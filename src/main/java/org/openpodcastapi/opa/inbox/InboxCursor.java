@@ -0,0 +1,90 @@
+package org.openpodcastapi.opa.inbox;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/// A keyset cursor over one source of inbox items, such as the inbox table or the episodes of one feed.
+/// Items are read newest first, in batches, and the next batch is only fetched once the current one is used up.
+final class InboxCursor {
+    /// Fetches the next batch of a source
+    @FunctionalInterface
+    interface Fetcher {
+        /// @param after the last item read, or `null` to start at the newest item
+        /// @param limit the maximum number of items to return
+        /// @return the items older than `after`, newest first
+        List<InboxItem> fetch(@Nullable InboxItem after, int limit);
+    }
+
+    private final Fetcher fetcher;
+    private List<InboxItem> batch;
+    private int requested;
+    private int index;
+
+    /// Required-args constructor
+    ///
+    /// @param batch     the first batch of the source
+    /// @param requested the number of items the first batch was fetched with, so a short batch ends the source
+    /// @param fetcher   the function used to fetch the following batches
+    InboxCursor(List<InboxItem> batch, int requested, Fetcher fetcher) {
+        this.batch = batch;
+        this.requested = requested;
+        this.fetcher = fetcher;
+    }
+
+    /// @return the current item, or `null` if the source is exhausted
+    @Nullable
+    InboxItem head() {
+        return index < batch.size() ? batch.get(index) : null;
+    }
+
+    /// Moves to the next item, fetching the next batch if this one is used up and more items are wanted
+    ///
+    /// @param wanted the number of items the merge still needs, used as the size of the next batch
+    void advance(int wanted) {
+        index++;
+        if (index == batch.size() && batch.size() >= requested && wanted > 0) {
+            final var last = batch.getLast();
+            requested = wanted;
+            batch = fetcher.fetch(last, requested);
+            index = 0;
+        }
+    }
+
+    /// Merges cursors into one page with a k-way heap merge.
+    /// Only the head of each cursor is compared, so the cost grows with the page and the number of cursors,
+    /// not with the number of items behind them. An item found by more than one cursor is returned once.
+    ///
+    /// @param cursors the cursors to merge
+    /// @param limit   the number of items to return
+    /// @return up to `limit` items, newest first
+    static List<InboxItem> merge(List<InboxCursor> cursors, int limit) {
+        final var heap = new PriorityQueue<InboxCursor>(Math.max(1, cursors.size()), (a, b) -> a.head().compareTo(b.head()));
+        for (final var cursor : cursors) {
+            if (cursor.head() != null) {
+                heap.add(cursor);
+            }
+        }
+
+        final List<InboxItem> page = new ArrayList<>(limit);
+        InboxItem previous = null;
+        while (page.size() < limit && !heap.isEmpty()) {
+            final var cursor = heap.poll();
+            final var item = cursor.head();
+
+            // Sources overlap while a feed or user moves between fan-out and merging, and duplicates are adjacent
+            if (!item.equals(previous)) {
+                page.add(item);
+                previous = item;
+            }
+
+            cursor.advance(limit - page.size());
+            if (cursor.head() != null) {
+                heap.add(cursor);
+            }
+        }
+        return page;
+    }
+}
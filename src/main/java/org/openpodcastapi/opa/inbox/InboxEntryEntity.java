@@ -0,0 +1,67 @@
+package org.openpodcastapi.opa.inbox;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/// An entity placing a new episode in a user's inbox.
+///
+/// Rows are written in set-based statements by [InboxFanoutRepository] when episodes are stored, never by requests.
+/// The publication date is copied from the episode, so a page of the inbox is read from a single index.
+@Entity
+@Table(name = "inbox_entries", indexes = {
+        @Index(name = "uc_inbox_entries_user_id_episode_id", columnList = "user_id, episode_id", unique = true),
+        @Index(name = "inbox_entries_user_id_published_at", columnList = "user_id, published_at DESC, episode_id DESC"),
+        @Index(name = "inbox_entries_published_at", columnList = "published_at")
+})
+public class InboxEntryEntity {
+    /// The entity ID
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /// The database ID of the user
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private Long userId;
+
+    /// The database ID of the episode's feed
+    @Column(name = "feed_id", nullable = false, updatable = false)
+    private Long feedId;
+
+    /// The database ID of the episode
+    @Column(name = "episode_id", nullable = false, updatable = false)
+    private Long episodeId;
+
+    /// The publication date of the episode
+    @Column(name = "published_at", nullable = false, updatable = false)
+    private Instant publishedAt;
+
+    /// No-args constructor
+    public InboxEntryEntity() {
+    }
+
+    /// @return the entity ID
+    public Long getId() {
+        return id;
+    }
+
+    /// @return the database ID of the user
+    public Long getUserId() {
+        return userId;
+    }
+
+    /// @return the database ID of the episode's feed
+    public Long getFeedId() {
+        return feedId;
+    }
+
+    /// @return the database ID of the episode
+    public Long getEpisodeId() {
+        return episodeId;
+    }
+
+    /// @return the publication date of the episode
+    public Instant getPublishedAt() {
+        return publishedAt;
+    }
+}
@@ -0,0 +1,40 @@
+package org.openpodcastapi.opa.inbox;
+
+import org.jspecify.annotations.NonNull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/// Repository for inbox entry interactions
+@Repository
+public interface InboxEntryRepository extends JpaRepository<@NonNull InboxEntryEntity, @NonNull Long> {
+    /// Removes the episodes of a set of feeds from a user's inbox
+    ///
+    /// @param userId  the database ID of the user
+    /// @param feedIds the database IDs of the feeds
+    /// @return the number of entries removed
+    @Modifying
+    @Transactional
+    @Query("delete from InboxEntryEntity e where e.userId = :userId and e.feedId in :feedIds")
+    int deleteByUserIdAndFeedIdIn(Long userId, Collection<Long> feedIds);
+
+    /// Removes the entries of episodes published before a point in time from every inbox
+    ///
+    /// @param before the oldest publication date to keep
+    /// @return the number of entries removed
+    @Modifying
+    @Transactional
+    @Query("delete from InboxEntryEntity e where e.publishedAt < :before")
+    int deleteByPublishedAtBefore(Instant before);
+
+    /// Counts the entries in a user's inbox
+    ///
+    /// @param userId the database ID of the user
+    /// @return the number of entries
+    long countByUserId(Long userId);
+}
@@ -0,0 +1,137 @@
+package org.openpodcastapi.opa.inbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openpodcastapi.opa.episode.EpisodesStoredEvent;
+import org.openpodcastapi.opa.subscription.SubscriptionsChangedEvent;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Keeps inboxes up to date as episodes are stored and subscriptions change.
+///
+/// New episodes are fanned out on write: each is written once to the inbox of every subscriber of its feed.
+/// That's cheap for most feeds, but a feed with a very large audience would write a row per subscriber on every refresh.
+/// Such feeds are pulled instead: once a feed has more than `inbox.max-feed-subscribers` active subscribers,
+/// its episodes are no longer fanned out, and [InboxService] merges them into inboxes as they're read.
+/// A pulled feed is only fanned out again once its audience drops below three quarters of the limit,
+/// so a feed near the limit doesn't flip on every refresh. Its recent episodes are then fanned out at once.
+///
+/// Users with more than `inbox.max-user-subscriptions` active subscriptions aren't fanned out to at all,
+/// and their inbox is merged from their feeds on read. When they drop back below the limit, their inbox is filled at once.
+@Component
+public class InboxFanout {
+    private static final Logger log = getLogger(InboxFanout.class);
+
+    private final PulledFeedRepository pulledFeedRepository;
+    private final InboxEntryRepository entryRepository;
+    private final InboxFanoutRepository fanoutRepository;
+    private final int maxFeedSubscribers;
+    private final int maxUserSubscriptions;
+    private final Duration retention;
+
+    private final Counter fannedOut;
+    private final Counter backfilled;
+    private final Counter pulled;
+    private final Counter released;
+
+    /// All-args constructor
+    ///
+    /// @param pulledFeedRepository the repository used to track pulled feeds
+    /// @param entryRepository      the repository used to remove inbox entries
+    /// @param fanoutRepository     the repository used to write inbox entries
+    /// @param meterRegistry        the registry used to publish fan-out metrics
+    /// @param maxFeedSubscribers   the number of active subscribers above which a feed is pulled
+    /// @param maxUserSubscriptions the number of active subscriptions above which a user's inbox is merged on read
+    /// @param retention            how long episodes stay in inboxes after they're published
+    public InboxFanout(PulledFeedRepository pulledFeedRepository,
+                       InboxEntryRepository entryRepository,
+                       InboxFanoutRepository fanoutRepository,
+                       MeterRegistry meterRegistry,
+                       @Value("${inbox.max-feed-subscribers:10000}") int maxFeedSubscribers,
+                       @Value("${inbox.max-user-subscriptions:500}") int maxUserSubscriptions,
+                       @Value("${inbox.retention:P90D}") Duration retention) {
+        this.pulledFeedRepository = pulledFeedRepository;
+        this.entryRepository = entryRepository;
+        this.fanoutRepository = fanoutRepository;
+        this.maxFeedSubscribers = maxFeedSubscribers;
+        this.maxUserSubscriptions = maxUserSubscriptions;
+        this.retention = retention;
+
+        this.fannedOut = Counter.builder("inbox.entries").tag("result", "fanned_out").register(meterRegistry);
+        this.backfilled = Counter.builder("inbox.entries").tag("result", "backfilled").register(meterRegistry);
+        this.pulled = Counter.builder("inbox.feeds").tag("result", "pulled").register(meterRegistry);
+        this.released = Counter.builder("inbox.feeds").tag("result", "released").register(meterRegistry);
+    }
+
+    /// Fans the new episodes of a refreshed feed out to its subscribers, or marks the feed as pulled
+    ///
+    /// @param event the event published by the episode service
+    @EventListener
+    @Transactional
+    public void onEpisodesStored(EpisodesStoredEvent event) {
+        final var now = Instant.now();
+        final var horizon = now.minus(retention);
+        final var subscribers = fanoutRepository.countSubscribers(event.feedId());
+        final var pulledFeed = pulledFeedRepository.findById(event.feedId());
+
+        if (subscribers > maxFeedSubscribers || (pulledFeed.isPresent() && subscribers * 4 > maxFeedSubscribers * 3L)) {
+            final var feed = pulledFeed.orElseGet(() -> {
+                log.info("Merging feed {} into inboxes on read, it has {} subscribers", event.feedId(), subscribers);
+                pulled.increment();
+                return new PulledFeedEntity(event.feedId());
+            });
+            feed.setSubscribers(subscribers);
+            feed.setUpdatedAt(now);
+            pulledFeedRepository.save(feed);
+            return;
+        }
+
+        if (pulledFeed.isPresent()) {
+            pulledFeedRepository.delete(pulledFeed.get());
+            pulledFeedRepository.flush();
+
+            final var written = fanoutRepository.backfillFeed(event.feedId(), horizon, maxUserSubscriptions);
+            log.info("Fanning out feed {} again, it has {} subscribers. Wrote {} inbox entries", event.feedId(), subscribers, written);
+            released.increment();
+            backfilled.increment(written);
+            return;
+        }
+
+        final var written = fanoutRepository.fanOut(event.feedId(), event.since(), horizon, maxUserSubscriptions);
+        log.debug("Fanned out {} inbox entries for feed {}", written, event.feedId());
+        fannedOut.increment(written);
+    }
+
+    /// Adds the recent episodes of feeds a user subscribes to to their inbox, or removes those of feeds they unsubscribe from.
+    /// Runs in the transaction of the subscription change.
+    ///
+    /// @param event the event published by the subscription service
+    @EventListener
+    @Transactional
+    public void onSubscriptionsChanged(SubscriptionsChangedEvent event) {
+        final var horizon = Instant.now().minus(retention);
+
+        if (event.subscribed()) {
+            // Skipped by the statement itself if the user now has too many subscriptions
+            backfilled.increment(fanoutRepository.backfillUser(event.userId(), event.feedIds(), horizon, maxUserSubscriptions));
+            return;
+        }
+
+        entryRepository.deleteByUserIdAndFeedIdIn(event.userId(), event.feedIds());
+
+        final var remaining = fanoutRepository.countSubscriptions(event.userId());
+        if (remaining <= maxUserSubscriptions && remaining + event.feedIds().size() > maxUserSubscriptions) {
+            final var written = fanoutRepository.backfillUser(event.userId(), null, horizon, maxUserSubscriptions);
+            log.info("Fanning out to user {} again, they have {} subscriptions. Wrote {} inbox entries", event.userId(), remaining, written);
+            backfilled.increment(written);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.openpodcastapi.opa.inbox;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+import org.jspecify.annotations.Nullable;
+import org.openpodcastapi.opa.util.DatabasePlatform;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/// Repository for writing episodes to inboxes.
+///
+/// Every write is a single `INSERT ... SELECT` statement joining the subscriptions of the feed or user to its episodes,
+/// so no episodes or subscriptions are loaded. The statement skips pulled feeds, users with more active subscriptions
+/// than the limit, episodes published before the user subscribed and episodes already in the inbox.
+/// On PostgreSQL, a concurrent write of the same entry is also ignored with `ON CONFLICT DO NOTHING`.
+@Repository
+public class InboxFanoutRepository {
+    // The user's subscription count is filtered in a derived table, so it's counted once per subscription rather than once per episode
+    private static final String FAN_OUT = """
+            INSERT INTO inbox_entries (user_id, feed_id, episode_id, published_at)
+            SELECT s.user_id, e.feed_id, e.id, e.published_at
+            FROM (SELECT sub.user_id, sub.feed_id, sub.created_at
+                  FROM subscriptions sub
+                  WHERE sub.unsubscribed_at IS NULL
+                    AND %s
+                    AND NOT EXISTS (SELECT 1 FROM inbox_pulled_feeds p WHERE p.feed_id = sub.feed_id)
+                    AND (SELECT count(*) FROM subscriptions h WHERE h.user_id = sub.user_id AND h.unsubscribed_at IS NULL) <= :maxUserSubscriptions) s
+            JOIN episodes e ON e.feed_id = s.feed_id AND e.published_at >= s.created_at
+            WHERE e.published_at >= :horizon
+              %s
+              AND NOT EXISTS (SELECT 1 FROM inbox_entries i WHERE i.user_id = s.user_id AND i.episode_id = e.id)
+            """;
+
+    private static final String ON_CONFLICT = "ON CONFLICT (user_id, episode_id) DO NOTHING";
+
+    private final EntityManager entityManager;
+    private final DatabasePlatform databasePlatform;
+
+    /// Required-args constructor
+    ///
+    /// @param entityManager    the entity manager used to run the statements
+    /// @param databasePlatform the platform used to select the statement dialect
+    public InboxFanoutRepository(EntityManager entityManager, DatabasePlatform databasePlatform) {
+        this.entityManager = entityManager;
+        this.databasePlatform = databasePlatform;
+    }
+
+    /// Writes the episodes a refresh stored for the first time to the inboxes of the feed's subscribers.
+    /// Must be called inside a transaction.
+    ///
+    /// @param feedId               the database ID of the feed
+    /// @param since                the time the refresh started
+    /// @param horizon              the oldest publication date kept in inboxes
+    /// @param maxUserSubscriptions the number of active subscriptions above which a user's inbox is merged on read
+    /// @return the number of entries written
+    public int fanOut(Long feedId, Instant since, Instant horizon, int maxUserSubscriptions) {
+        return insert("sub.feed_id = :feedId", "AND e.created_at >= :since", horizon, maxUserSubscriptions, query -> query
+                .setParameter("feedId", feedId)
+                .setParameter("since", since));
+    }
+
+    /// Writes every episode of a feed since the horizon to the inboxes of its subscribers,
+    /// such as when a feed stops being pulled. Must be called inside a transaction.
+    ///
+    /// @param feedId               the database ID of the feed
+    /// @param horizon              the oldest publication date kept in inboxes
+    /// @param maxUserSubscriptions the number of active subscriptions above which a user's inbox is merged on read
+    /// @return the number of entries written
+    public int backfillFeed(Long feedId, Instant horizon, int maxUserSubscriptions) {
+        return insert("sub.feed_id = :feedId", "", horizon, maxUserSubscriptions, query -> query
+                .setParameter("feedId", feedId));
+    }
+
+    /// Writes every episode since the horizon of a user's subscribed feeds to their inbox,
+    /// such as when they resubscribe to a feed. Must be called inside a transaction.
+    ///
+    /// @param userId               the database ID of the user
+    /// @param feedIds              the database IDs of the feeds to write, or `null` for all of the user's feeds
+    /// @param horizon              the oldest publication date kept in inboxes
+    /// @param maxUserSubscriptions the number of active subscriptions above which a user's inbox is merged on read
+    /// @return the number of entries written
+    public int backfillUser(Long userId, @Nullable Collection<Long> feedIds, Instant horizon, int maxUserSubscriptions) {
+        if (feedIds == null) {
+            return insert("sub.user_id = :userId", "", horizon, maxUserSubscriptions, query -> query
+                    .setParameter("userId", userId));
+        }
+        if (feedIds.isEmpty()) {
+            return 0;
+        }
+        return insert("sub.user_id = :userId AND sub.feed_id IN (:feedIds)", "", horizon, maxUserSubscriptions, query -> query
+                .setParameter("userId", userId)
+                .setParameterList("feedIds", feedIds));
+    }
+
+    /// Counts the active subscribers of a feed
+    ///
+    /// @param feedId the database ID of the feed
+    /// @return the number of subscribers
+    public long countSubscribers(Long feedId) {
+        return entityManager.createQuery("select count(s) from SubscriptionEntity s where s.feed.id = :feedId and s.unsubscribedAt is null", Long.class)
+                .setParameter("feedId", feedId)
+                .getSingleResult();
+    }
+
+    /// Counts the active subscriptions of a user
+    ///
+    /// @param userId the database ID of the user
+    /// @return the number of subscriptions
+    public long countSubscriptions(Long userId) {
+        return entityManager.createQuery("select count(s) from SubscriptionEntity s where s.user.id = :userId and s.unsubscribedAt is null", Long.class)
+                .setParameter("userId", userId)
+                .getSingleResult();
+    }
+
+    private int insert(String subscriptionScope, String episodeScope, Instant horizon, int maxUserSubscriptions, Consumer<NativeQuery<?>> binder) {
+        var sql = FAN_OUT.formatted(subscriptionScope, episodeScope);
+        if (databasePlatform.isPostgres()) {
+            sql += ON_CONFLICT;
+        }
+
+        @SuppressWarnings("unchecked") final NativeQuery<?> query = entityManager
+                .createNativeQuery(sql)
+                .unwrap(NativeQuery.class);
+
+        query.setParameter("horizon", horizon);
+        query.setParameter("maxUserSubscriptions", maxUserSubscriptions);
+        binder.accept(query);
+        return query.executeUpdate();
+    }
+}
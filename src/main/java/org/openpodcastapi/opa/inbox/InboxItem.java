@@ -0,0 +1,18 @@
+package org.openpodcastapi.opa.inbox;
+
+import org.jspecify.annotations.NonNull;
+
+import java.time.Instant;
+
+/// An episode in a user's inbox, ordered newest first by publication date and then by episode ID.
+/// The same key orders the inbox table and the episode index, so both can be merged without sorting.
+///
+/// @param publishedAt the publication date of the episode
+/// @param episodeId   the database ID of the episode
+record InboxItem(Instant publishedAt, Long episodeId) implements Comparable<InboxItem> {
+    @Override
+    public int compareTo(@NonNull InboxItem other) {
+        final var byDate = other.publishedAt.compareTo(publishedAt);
+        return byDate != 0 ? byDate : Long.compare(other.episodeId, episodeId);
+    }
+}
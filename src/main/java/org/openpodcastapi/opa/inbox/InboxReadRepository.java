@@ -0,0 +1,161 @@
+package org.openpodcastapi.opa.inbox;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.DateTimePath;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import org.hibernate.query.NativeQuery;
+import org.jspecify.annotations.Nullable;
+import org.openpodcastapi.opa.episode.QEpisodeEntity;
+import org.openpodcastapi.opa.util.DatabasePlatform;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/// Repository for reading the sources of an inbox page.
+///
+/// Every query is a keyset seek on an index ordered like the inbox, so it reads no more rows than it returns.
+/// On PostgreSQL, the newest episodes of several feeds are read in one statement with a `LATERAL` join,
+/// which seeks the `episodes_feed_id_published_at` index once per feed.
+/// Other databases run one query per feed.
+@Repository
+public class InboxReadRepository {
+    private static final QInboxEntryEntity qEntry = QInboxEntryEntity.inboxEntryEntity;
+    private static final QEpisodeEntity qEpisode = QEpisodeEntity.episodeEntity;
+
+    private static final String FEED_HEADS = """
+            SELECT s.feed_id AS feed_id, e.id AS id, e.published_at AS published_at
+            FROM subscriptions s
+            CROSS JOIN LATERAL (
+                SELECT e.id, e.published_at
+                FROM episodes e
+                WHERE e.feed_id = s.feed_id
+                  AND e.published_at >= s.created_at
+                  AND e.published_at >= :horizon
+                  %s
+                ORDER BY e.published_at DESC, e.id DESC
+                LIMIT :limit
+            ) e
+            WHERE s.user_id = :userId
+              AND s.feed_id IN (:feedIds)
+              AND s.unsubscribed_at IS NULL
+            """;
+
+    private static final String OLDER_THAN = """
+            AND e.published_at <= :afterPublishedAt
+            AND (e.published_at < :afterPublishedAt OR (e.published_at = :afterPublishedAt AND e.id < :afterEpisodeId))
+            """;
+
+    private final JPAQueryFactory queryFactory;
+    private final EntityManager entityManager;
+    private final DatabasePlatform databasePlatform;
+
+    /// Required-args constructor
+    ///
+    /// @param queryFactory     the query factory used for portable queries
+    /// @param entityManager    the entity manager used to run native statements
+    /// @param databasePlatform the platform used to select the statement dialect
+    public InboxReadRepository(JPAQueryFactory queryFactory, EntityManager entityManager, DatabasePlatform databasePlatform) {
+        this.queryFactory = queryFactory;
+        this.entityManager = entityManager;
+        this.databasePlatform = databasePlatform;
+    }
+
+    /// Reads the episodes fanned out to a user's inbox
+    ///
+    /// @param userId  the database ID of the user
+    /// @param horizon the oldest publication date kept in inboxes
+    /// @param after   the last item read, or `null` to start at the newest entry
+    /// @param limit   the maximum number of items to return
+    /// @return the entries older than `after`, newest first
+    public List<InboxItem> findEntries(Long userId, Instant horizon, @Nullable InboxItem after, int limit) {
+        return queryFactory.select(qEntry.publishedAt, qEntry.episodeId)
+                .from(qEntry)
+                .where(qEntry.userId.eq(userId), qEntry.publishedAt.goe(horizon), olderThan(qEntry.publishedAt, qEntry.episodeId, after))
+                .orderBy(qEntry.publishedAt.desc(), qEntry.episodeId.desc())
+                .limit(limit)
+                .fetch()
+                .stream()
+                .map(row -> new InboxItem(row.get(qEntry.publishedAt), row.get(qEntry.episodeId)))
+                .toList();
+    }
+
+    /// Reads the newest episodes of each of a set of feeds a user is subscribed to.
+    /// Episodes published before the user subscribed are skipped.
+    ///
+    /// @param userId  the database ID of the user
+    /// @param feeds   the feeds to read
+    /// @param horizon the oldest publication date kept in inboxes
+    /// @param after   the last item read, or `null` to start at the newest episode
+    /// @param limit   the maximum number of items to return per feed
+    /// @return the episodes older than `after` by feed ID, newest first
+    public Map<Long, List<InboxItem>> findFeedItems(Long userId, Collection<PulledFeedRepository.SubscribedFeed> feeds, Instant horizon, @Nullable InboxItem after, int limit) {
+        if (feeds.isEmpty()) {
+            return Map.of();
+        }
+        if (databasePlatform.isPostgres()) {
+            return findFeedItemsPostgres(userId, feeds, horizon, after, limit);
+        }
+
+        final Map<Long, List<InboxItem>> items = new HashMap<>();
+        for (final var feed : feeds) {
+            final var since = feed.subscribedAt().isAfter(horizon) ? feed.subscribedAt() : horizon;
+            items.put(feed.feedId(), queryFactory.select(qEpisode.publishedAt, qEpisode.id)
+                    .from(qEpisode)
+                    .where(qEpisode.feed.id.eq(feed.feedId()), qEpisode.publishedAt.goe(since), olderThan(qEpisode.publishedAt, qEpisode.id, after))
+                    .orderBy(qEpisode.publishedAt.desc(), qEpisode.id.desc())
+                    .limit(limit)
+                    .fetch()
+                    .stream()
+                    .map(row -> new InboxItem(row.get(qEpisode.publishedAt), row.get(qEpisode.id)))
+                    .toList());
+        }
+        return items;
+    }
+
+    private Map<Long, List<InboxItem>> findFeedItemsPostgres(Long userId, Collection<PulledFeedRepository.SubscribedFeed> feeds, Instant horizon, @Nullable InboxItem after, int limit) {
+        @SuppressWarnings("unchecked") final NativeQuery<Tuple> query = entityManager
+                .createNativeQuery(FEED_HEADS.formatted(after == null ? "" : OLDER_THAN), Tuple.class)
+                .unwrap(NativeQuery.class);
+
+        query.addScalar("feed_id", Long.class)
+                .addScalar("id", Long.class)
+                .addScalar("published_at", Instant.class)
+                .setParameter("userId", userId)
+                .setParameterList("feedIds", feeds.stream().map(PulledFeedRepository.SubscribedFeed::feedId).toList())
+                .setParameter("horizon", horizon)
+                .setParameter("limit", limit);
+        if (after != null) {
+            query.setParameter("afterPublishedAt", after.publishedAt())
+                    .setParameter("afterEpisodeId", after.episodeId());
+        }
+
+        final Map<Long, List<InboxItem>> items = new HashMap<>();
+        for (final var row : query.getResultList()) {
+            items.computeIfAbsent(row.get("feed_id", Long.class), _ -> new ArrayList<>())
+                    .add(new InboxItem(row.get("published_at", Instant.class), row.get("id", Long.class)));
+        }
+        // The lateral rows of each feed are ordered, but the feeds may come back interleaved
+        items.values().forEach(list -> list.sort(null));
+        return items;
+    }
+
+    private static @Nullable BooleanExpression olderThan(DateTimePath<Instant> publishedAt, NumberPath<Long> id, @Nullable InboxItem after) {
+        if (after == null) {
+            return null;
+        }
+
+        // The leading range condition is implied by the rest, but lets the database seek the index to the cursor
+        return publishedAt.loe(after.publishedAt())
+                .and(publishedAt.lt(after.publishedAt())
+                        .or(publishedAt.eq(after.publishedAt())
+                                .and(id.lt(after.episodeId()))));
+    }
+}
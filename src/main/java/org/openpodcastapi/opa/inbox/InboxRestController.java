@@ -0,0 +1,39 @@
+package org.openpodcastapi.opa.inbox;
+
+import org.openpodcastapi.opa.episode.EpisodeDTO;
+import org.openpodcastapi.opa.pagination.CursorPage;
+import org.openpodcastapi.opa.service.CustomUserDetails;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/// Controller for API inbox requests
+@RestController
+@RequestMapping("/api/v1/inbox")
+public class InboxRestController {
+    private final InboxService service;
+
+    /// Required-args constructor
+    ///
+    /// @param service the service used for inbox actions
+    public InboxRestController(InboxService service) {
+        this.service = service;
+    }
+
+    /// Returns the episodes published since the user subscribed to their feeds, newest first
+    ///
+    /// @param user   the custom user details of the authenticated user
+    /// @param cursor the base64-encoded cursor string
+    /// @param limit  the number of results to return
+    /// @return a response containing episode objects
+    /// @throws IllegalArgumentException if the cursor is invalid or the limit isn't positive
+    @GetMapping
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<CursorPage<EpisodeDTO.EpisodeResponseDTO>> getInbox(@AuthenticationPrincipal CustomUserDetails user, @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(service.getInbox(user.id(), cursor, limit));
+    }
+}
@@ -0,0 +1,130 @@
+package org.openpodcastapi.opa.inbox;
+
+import org.openpodcastapi.opa.episode.EpisodeDTO;
+import org.openpodcastapi.opa.episode.EpisodeEntity;
+import org.openpodcastapi.opa.episode.EpisodeMapper;
+import org.openpodcastapi.opa.episode.EpisodeRepository;
+import org.openpodcastapi.opa.pagination.CursorPage;
+import org.openpodcastapi.opa.pagination.CursorPayload;
+import org.openpodcastapi.opa.pagination.CursorUtility;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Service for inbox-related actions.
+///
+/// A user's inbox lists the episodes of their subscribed feeds published since they subscribed, newest first,
+/// for as long as `inbox.retention`. Most of it is read from the entries [InboxFanout] writes to the user's inbox.
+/// The episodes of pulled feeds, and every feed of users with too many subscriptions to fan out to,
+/// are merged in as the inbox is read, with a keyset cursor per feed and a k-way heap merge over the cursors.
+/// A page therefore reads about as many rows as it returns, plus one per merged feed, however large the catalog grows.
+@Service
+public class InboxService {
+    private static final Logger log = getLogger(InboxService.class);
+
+    private final PulledFeedRepository pulledFeedRepository;
+    private final InboxReadRepository readRepository;
+    private final EpisodeRepository episodeRepository;
+    private final EpisodeMapper episodeMapper;
+    private final int maxUserSubscriptions;
+    private final Duration retention;
+
+    /// All-args constructor
+    ///
+    /// @param pulledFeedRepository the repository used to find the feeds merged on read
+    /// @param readRepository       the repository used to read inbox entries and feed episodes
+    /// @param episodeRepository    the repository used to load the episodes of a page
+    /// @param episodeMapper        the mapper used for mapping episode entities and DTOs
+    /// @param maxUserSubscriptions the number of active subscriptions above which a user's inbox is merged on read
+    /// @param retention            how long episodes stay in inboxes after they're published
+    public InboxService(PulledFeedRepository pulledFeedRepository,
+                        InboxReadRepository readRepository,
+                        EpisodeRepository episodeRepository,
+                        EpisodeMapper episodeMapper,
+                        @Value("${inbox.max-user-subscriptions:500}") int maxUserSubscriptions,
+                        @Value("${inbox.retention:P90D}") Duration retention) {
+        this.pulledFeedRepository = pulledFeedRepository;
+        this.readRepository = readRepository;
+        this.episodeRepository = episodeRepository;
+        this.episodeMapper = episodeMapper;
+        this.maxUserSubscriptions = maxUserSubscriptions;
+        this.retention = retention;
+    }
+
+    /// Gets the new episodes of every feed a user is subscribed to, newest first
+    ///
+    /// @param userId the database ID of the user
+    /// @param cursor the encoded cursor
+    /// @param limit  the number of results to return
+    /// @return a paginated set of episodes
+    /// @throws IllegalArgumentException if the cursor is invalid or the limit isn't positive
+    @Transactional(readOnly = true)
+    public CursorPage<EpisodeDTO.EpisodeResponseDTO> getInbox(Long userId, String cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+
+        final var after = cursor == null
+                ? null
+                : toItem(CursorUtility.decode(cursor));
+        final var horizon = Instant.now().minus(retention);
+
+        final var feeds = pulledFeedRepository.findSubscribedFeeds(userId);
+        final var mergeAll = feeds.size() > maxUserSubscriptions;
+        final var merged = mergeAll
+                ? feeds
+                : feeds.stream().filter(PulledFeedRepository.SubscribedFeed::pulled).toList();
+
+        final List<InboxCursor> cursors = new ArrayList<>(merged.size() + 1);
+        if (!mergeAll) {
+            cursors.add(new InboxCursor(readRepository.findEntries(userId, horizon, after, limit), limit,
+                    (from, size) -> readRepository.findEntries(userId, horizon, from, size)));
+        }
+        if (!merged.isEmpty()) {
+            // Start each feed with its share of the page, and read more only from feeds that use theirs up
+            final var share = Math.ceilDiv(limit, merged.size());
+            final var heads = readRepository.findFeedItems(userId, merged, horizon, after, share);
+            for (final var feed : merged) {
+                cursors.add(new InboxCursor(heads.getOrDefault(feed.feedId(), List.of()), share,
+                        (from, size) -> readRepository.findFeedItems(userId, List.of(feed), horizon, from, size).getOrDefault(feed.feedId(), List.of())));
+            }
+        }
+
+        log.debug("Merging {} inbox sources for {}", cursors.size(), userId);
+        final var items = InboxCursor.merge(cursors, limit);
+        if (items.isEmpty()) {
+            return new CursorPage<>(List.of(), null, null);
+        }
+
+        // An episode deleted since it was read is left out of the page, but the cursors still follow the merge
+        final Map<Long, EpisodeEntity> episodes = episodeRepository.findWithFeedByIdIn(items.stream().map(InboxItem::episodeId).toList()).stream()
+                .collect(Collectors.toMap(EpisodeEntity::getId, Function.identity()));
+        final var data = items.stream()
+                .map(item -> episodes.get(item.episodeId()))
+                .filter(Objects::nonNull)
+                .map(episodeMapper::toDto)
+                .toList();
+
+        final var page = CursorPage.of(items, limit, item -> new CursorPayload(item.publishedAt(), item.episodeId()));
+        return new CursorPage<>(data, page.nextCursor(), page.prevCursor());
+    }
+
+    private static InboxItem toItem(CursorPayload payload) {
+        if (payload.createdAt() == null || payload.id() == null) {
+            throw new IllegalArgumentException("Invalid pagination");
+        }
+        return new InboxItem(payload.createdAt(), payload.id());
+    }
+}
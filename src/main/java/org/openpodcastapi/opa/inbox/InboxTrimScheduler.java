@@ -0,0 +1,37 @@
+package org.openpodcastapi.opa.inbox;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// A scheduled task to remove entries older than `inbox.retention` from every inbox.
+/// Reads already skip them, so this only keeps the table from growing.
+@Component
+public class InboxTrimScheduler {
+    private static final Logger log = getLogger(InboxTrimScheduler.class);
+    private final InboxEntryRepository entryRepository;
+    private final Duration retention;
+
+    /// Required-args constructor
+    ///
+    /// @param entryRepository the repository used to remove inbox entries
+    /// @param retention       how long episodes stay in inboxes after they're published
+    public InboxTrimScheduler(InboxEntryRepository entryRepository, @Value("${inbox.retention:P90D}") Duration retention) {
+        this.entryRepository = entryRepository;
+        this.retention = retention;
+    }
+
+    /// Removes expired entries.
+    /// The next run starts `inbox.trim-delay` after the previous one finishes.
+    @Scheduled(fixedDelayString = "${inbox.trim-delay:PT1H}", initialDelayString = "${inbox.trim-delay:PT1H}")
+    public void trim() {
+        final var removed = entryRepository.deleteByPublishedAtBefore(Instant.now().minus(retention));
+        log.debug("Removed {} expired inbox entries", removed);
+    }
+}
@@ -0,0 +1,62 @@
+package org.openpodcastapi.opa.inbox;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/// An entity marking a feed whose episodes aren't fanned out to its subscribers' inboxes.
+///
+/// A feed is pulled once it has more active subscribers than `inbox.max-feed-subscribers`,
+/// since writing each of its episodes once per subscriber would cost more than merging it into inboxes as they're read.
+@Entity
+@Table(name = "inbox_pulled_feeds")
+public class PulledFeedEntity {
+    /// The database ID of the feed
+    @Id
+    @Column(name = "feed_id", nullable = false, updatable = false)
+    private Long feedId;
+
+    /// The number of active subscribers the feed had when it was last refreshed
+    @Column(nullable = false)
+    private long subscribers;
+
+    /// Last update timestamp
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    /// No-args constructor
+    public PulledFeedEntity() {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param feedId the database ID of the feed
+    public PulledFeedEntity(Long feedId) {
+        this.feedId = feedId;
+    }
+
+    /// @return the database ID of the feed
+    public Long getFeedId() {
+        return feedId;
+    }
+
+    /// @return the number of active subscribers the feed had when it was last refreshed
+    public long getSubscribers() {
+        return subscribers;
+    }
+
+    /// @param subscribers the number of active subscribers the feed had when it was last refreshed
+    public void setSubscribers(long subscribers) {
+        this.subscribers = subscribers;
+    }
+
+    /// @return the last update timestamp
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /// @param updatedAt the last update timestamp
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,34 @@
+package org.openpodcastapi.opa.inbox;
+
+import org.jspecify.annotations.NonNull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/// Repository for pulled feed interactions
+@Repository
+public interface PulledFeedRepository extends JpaRepository<@NonNull PulledFeedEntity, @NonNull Long> {
+    /// Finds the feeds a user is actively subscribed to, and whether each is pulled.
+    /// Answered from the `subscriptions_user_id_feed_id` index and the primary key of the pulled feeds.
+    ///
+    /// @param userId the database ID of the user
+    /// @return the subscribed feeds
+    @Query("""
+            select new org.openpodcastapi.opa.inbox.PulledFeedRepository$SubscribedFeed(
+                s.feed.id, s.createdAt, case when p.feedId is null then false else true end)
+            from SubscriptionEntity s left join PulledFeedEntity p on p.feedId = s.feed.id
+            where s.user.id = :userId and s.unsubscribedAt is null
+            """)
+    List<SubscribedFeed> findSubscribedFeeds(Long userId);
+
+    /// A feed a user is subscribed to
+    ///
+    /// @param feedId       the database ID of the feed
+    /// @param subscribedAt the time the user subscribed. Episodes published earlier aren't new to the user.
+    /// @param pulled       whether the feed's episodes are merged into inboxes on read instead of fanned out
+    record SubscribedFeed(Long feedId, Instant subscribedAt, boolean pulled) {
+    }
+}
@@ -0,0 +1,18 @@
+package org.openpodcastapi.opa.job;
+
+import java.time.Instant;
+
+/// A job leased by a worker
+///
+/// @param id          the database ID of the job
+/// @param type        the type of the job, which picks its [JobHandler]
+/// @param payload     the input of the job, in a format chosen by its handler
+/// @param attempt     the number of this attempt at the job, from one
+/// @param maxAttempts the number of attempts after which the job is failed
+/// @param runAt       the time the job became due
+public record Job(Long id, String type, String payload, int attempt, int maxAttempts, Instant runAt) {
+    /// @return whether this is the last attempt at the job
+    public boolean lastAttempt() {
+        return attempt >= maxAttempts;
+    }
+}
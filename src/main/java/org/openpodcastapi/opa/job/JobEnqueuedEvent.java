@@ -0,0 +1,8 @@
+package org.openpodcastapi.opa.job;
+
+/// Published when a job is enqueued.
+/// Listeners that run the job should run after the transaction commits, once the job can be claimed.
+///
+/// @param type the type of the job
+public record JobEnqueuedEvent(String type) {
+}
@@ -0,0 +1,167 @@
+package org.openpodcastapi.opa.job;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/// An entity representing a background job.
+///
+/// Jobs are inserted through [JobQueue] in the transaction of the change that needs them, so a job exists
+/// if and only if that change committed. Once inserted, rows are only written by [JobLeaseRepository].
+@Entity
+@Table(name = "jobs", indexes = {
+        @Index(name = "jobs_claim", columnList = "type, status, priority DESC, run_at, id"),
+        @Index(name = "jobs_finished_at", columnList = "status, finished_at")
+})
+public class JobEntity {
+    /// The entity ID
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /// The type of the job, which picks its [JobHandler]
+    @Column(nullable = false, updatable = false, length = 64)
+    private String type;
+
+    /// The input of the job
+    @Column(length = 4096, updatable = false)
+    private String payload;
+
+    /// The priority of the job. Due jobs with a higher priority are run first.
+    @Column(nullable = false, updatable = false)
+    private int priority;
+
+    /// The state of the job
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private JobStatus status;
+
+    /// The number of attempts started
+    @Column(nullable = false)
+    private int attempts;
+
+    /// The number of attempts after which the job is failed
+    @Column(name = "max_attempts", nullable = false, updatable = false)
+    private int maxAttempts;
+
+    /// The time from which the job may run
+    @Column(name = "run_at", nullable = false)
+    private Instant runAt;
+
+    /// The worker leasing the job
+    @Column(name = "locked_by", length = 64)
+    private String lockedBy;
+
+    /// The time the lease expires, after which another worker may run the job
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+    /// The message of the error the last attempt failed with
+    @Column(name = "last_error", length = 1024)
+    private String lastError;
+
+    /// The date the job was enqueued
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    /// The date of the last change to the job
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    /// The date the job succeeded or failed
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    /// No-args constructor
+    public JobEntity() {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param type        the type of the job
+    /// @param payload     the input of the job
+    /// @param priority    the priority of the job
+    /// @param maxAttempts the number of attempts after which the job is failed
+    /// @param runAt       the time from which the job may run
+    /// @param createdAt   the date the job was enqueued
+    public JobEntity(String type, String payload, int priority, int maxAttempts, Instant runAt, Instant createdAt) {
+        this.type = type;
+        this.payload = payload;
+        this.priority = priority;
+        this.status = JobStatus.PENDING;
+        this.maxAttempts = maxAttempts;
+        this.runAt = runAt;
+        this.createdAt = createdAt;
+        this.updatedAt = createdAt;
+    }
+
+    /// @return the entity ID
+    public Long getId() {
+        return id;
+    }
+
+    /// @return the type of the job
+    public String getType() {
+        return type;
+    }
+
+    /// @return the input of the job
+    public String getPayload() {
+        return payload;
+    }
+
+    /// @return the priority of the job
+    public int getPriority() {
+        return priority;
+    }
+
+    /// @return the state of the job
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    /// @return the number of attempts started
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /// @return the number of attempts after which the job is failed
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /// @return the time from which the job may run
+    public Instant getRunAt() {
+        return runAt;
+    }
+
+    /// @return the worker leasing the job, or `null` if it isn't running
+    public String getLockedBy() {
+        return lockedBy;
+    }
+
+    /// @return the time the lease expires, or `null` if the job isn't running
+    public Instant getLockedUntil() {
+        return lockedUntil;
+    }
+
+    /// @return the message of the error the last attempt failed with, or `null` if none has
+    public String getLastError() {
+        return lastError;
+    }
+
+    /// @return the date the job was enqueued
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /// @return the date of the last change to the job
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /// @return the date the job succeeded or failed, or `null` if it hasn't finished
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+}
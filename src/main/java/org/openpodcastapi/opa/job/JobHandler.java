@@ -0,0 +1,26 @@
+package org.openpodcastapi.opa.job;
+
+/// Runs the jobs of one type.
+///
+/// Jobs are run at least once: a job whose worker stops before finishing it is run again once its lease expires,
+/// so handlers must be safe to run more than once for the same job.
+public interface JobHandler {
+    /// @return the type of the jobs this handler runs
+    String type();
+
+    /// Runs a job. Throwing fails the attempt, and the job is retried after a backoff until it runs out of attempts.
+    ///
+    /// @param job the job to run
+    /// @throws Exception if the attempt failed
+    void handle(Job job) throws Exception;
+
+    /// @return the maximum number of jobs of this type run at once on each node
+    default int concurrency() {
+        return 1;
+    }
+
+    /// @return the number of attempts after which a job of this type is failed
+    default int maxAttempts() {
+        return 10;
+    }
+}
@@ -0,0 +1,233 @@
+package org.openpodcastapi.opa.job;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.openpodcastapi.opa.util.DatabasePlatform;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/// Repository for leasing and finishing background jobs.
+///
+/// A worker claims due jobs by locking their rows and marking them as leased to it until a deadline.
+/// On PostgreSQL, rows locked by another worker's claim are skipped rather than waited on, so any number of workers
+/// on any number of nodes can claim from the same table at once without blocking each other or claiming a job twice.
+/// A job whose lease expires, because its worker stopped, can be claimed again.
+///
+/// Every change to a leased job is conditional on the lease, identified by the worker and the attempt, so a worker
+/// that lost its lease can't overwrite the outcome of the attempt that replaced it.
+/// Every method must be called inside a transaction.
+@Repository
+public class JobLeaseRepository {
+    private static final String SELECT_DUE = """
+            SELECT id, status, attempts, max_attempts FROM jobs
+            WHERE type = :type AND run_at <= :now
+              AND (status = 'PENDING' OR (status = 'RUNNING' AND locked_until < :now))
+            ORDER BY priority DESC, run_at, id
+            LIMIT :limit
+            FOR UPDATE""";
+
+    private static final String SKIP_LOCKED = " SKIP LOCKED";
+
+    private static final String LEASE = """
+            UPDATE jobs SET status = 'RUNNING', attempts = attempts + 1, locked_by = :worker, locked_until = :until, updated_at = :now
+            WHERE id IN (:ids)""";
+
+    private static final String SELECT_LEASED = """
+            select new org.openpodcastapi.opa.job.Job(j.id, j.type, j.payload, j.attempts, j.maxAttempts, j.runAt)
+            from JobEntity j where j.id in :ids order by j.priority desc, j.runAt, j.id""";
+
+    private static final String EXPIRE = """
+            UPDATE jobs SET status = 'FAILED', locked_by = NULL, locked_until = NULL, finished_at = :now, updated_at = :now,
+                            last_error = 'The lease of the last attempt expired'
+            WHERE id IN (:ids)""";
+
+    private static final String LEASED = " WHERE id = :id AND status = 'RUNNING' AND locked_by = :worker AND attempts = :attempt";
+
+    private static final String SUCCEED = "UPDATE jobs SET status = 'SUCCEEDED', locked_by = NULL, locked_until = NULL, last_error = NULL, finished_at = :now, updated_at = :now" + LEASED;
+
+    private static final String RETRY = "UPDATE jobs SET status = 'PENDING', locked_by = NULL, locked_until = NULL, last_error = :error, run_at = :runAt, updated_at = :now" + LEASED;
+
+    private static final String FAIL = "UPDATE jobs SET status = 'FAILED', locked_by = NULL, locked_until = NULL, last_error = :error, finished_at = :now, updated_at = :now" + LEASED;
+
+    private static final String EXTEND = "UPDATE jobs SET locked_until = :until WHERE id IN (:ids) AND status = 'RUNNING' AND locked_by = :worker";
+
+    private static final String DELETE_FINISHED = """
+            DELETE FROM jobs WHERE id IN (SELECT id FROM jobs
+                                          WHERE status IN ('SUCCEEDED', 'FAILED') AND finished_at < :before
+                                          LIMIT :limit)""";
+
+    private static final String QUEUE_STATS = """
+            select j.type, count(j), min(j.runAt) from JobEntity j
+            where j.status = org.openpodcastapi.opa.job.JobStatus.PENDING and j.runAt <= :now
+            group by j.type""";
+
+    private final EntityManager entityManager;
+    private final DatabasePlatform databasePlatform;
+
+    /// The due jobs of a type
+    ///
+    /// @param depth  the number of jobs waiting to run
+    /// @param oldest the time the longest-waiting job became due
+    public record QueueStats(long depth, Instant oldest) {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param entityManager    the entity manager used to run the statements
+    /// @param databasePlatform the platform used to pick the claiming statement
+    public JobLeaseRepository(EntityManager entityManager, DatabasePlatform databasePlatform) {
+        this.entityManager = entityManager;
+        this.databasePlatform = databasePlatform;
+    }
+
+    /// Leases the due jobs of a type with the highest priority.
+    /// Expired leases of jobs on their last attempt fail those jobs rather than leasing them again.
+    ///
+    /// @param type   the type of the jobs
+    /// @param limit  the maximum number of jobs to lease
+    /// @param worker the ID of the worker leasing the jobs
+    /// @param now    the current time
+    /// @param until  the time the leases expire
+    /// @return the leased jobs, highest priority first
+    public List<Job> lease(String type, int limit, String worker, Instant now, Instant until) {
+        final List<?> rows = entityManager.createNativeQuery(databasePlatform.isPostgres() ? SELECT_DUE + SKIP_LOCKED : SELECT_DUE)
+                .setParameter("type", type)
+                .setParameter("now", now)
+                .setParameter("limit", limit)
+                .getResultList();
+
+        final var due = new ArrayList<Long>(rows.size());
+        final var expired = new ArrayList<Long>();
+        for (final var row : rows) {
+            final var columns = (Object[]) row;
+            final var id = ((Number) columns[0]).longValue();
+            final var exhausted = ((Number) columns[2]).intValue() >= ((Number) columns[3]).intValue();
+            if (JobStatus.RUNNING.name().equals(columns[1]) && exhausted) {
+                expired.add(id);
+            } else {
+                due.add(id);
+            }
+        }
+
+        if (!expired.isEmpty()) {
+            entityManager.createNativeQuery(EXPIRE)
+                    .setParameter("ids", expired)
+                    .setParameter("now", now)
+                    .executeUpdate();
+        }
+        if (due.isEmpty()) {
+            return List.of();
+        }
+
+        entityManager.createNativeQuery(LEASE)
+                .setParameter("ids", due)
+                .setParameter("worker", worker)
+                .setParameter("until", until)
+                .setParameter("now", now)
+                .executeUpdate();
+
+        return entityManager.createQuery(SELECT_LEASED, Job.class)
+                .setParameter("ids", due)
+                .getResultList();
+    }
+
+    /// Marks a leased job as succeeded
+    ///
+    /// @param job    the job
+    /// @param worker the ID of the worker leasing the job
+    /// @param now    the current time
+    /// @return `true` if the worker still held the lease
+    public boolean succeed(Job job, String worker, Instant now) {
+        return leased(SUCCEED, job, worker)
+                .setParameter("now", now)
+                .executeUpdate() == 1;
+    }
+
+    /// Returns a leased job to the queue after a failed attempt
+    ///
+    /// @param job    the job
+    /// @param worker the ID of the worker leasing the job
+    /// @param error  the message of the error the attempt failed with
+    /// @param now    the current time
+    /// @param runAt  the time from which the job may run again
+    /// @return `true` if the worker still held the lease
+    public boolean retry(Job job, String worker, String error, Instant now, Instant runAt) {
+        return leased(RETRY, job, worker)
+                .setParameter("error", error)
+                .setParameter("now", now)
+                .setParameter("runAt", runAt)
+                .executeUpdate() == 1;
+    }
+
+    /// Marks a leased job as failed
+    ///
+    /// @param job    the job
+    /// @param worker the ID of the worker leasing the job
+    /// @param error  the message of the error the last attempt failed with
+    /// @param now    the current time
+    /// @return `true` if the worker still held the lease
+    public boolean fail(Job job, String worker, String error, Instant now) {
+        return leased(FAIL, job, worker)
+                .setParameter("error", error)
+                .setParameter("now", now)
+                .executeUpdate() == 1;
+    }
+
+    /// Extends the leases of jobs still running on a worker
+    ///
+    /// @param ids    the database IDs of the jobs
+    /// @param worker the ID of the worker leasing the jobs
+    /// @param until  the time the leases now expire
+    /// @return the number of leases extended
+    public int extend(Collection<Long> ids, String worker, Instant until) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createNativeQuery(EXTEND)
+                .setParameter("ids", ids)
+                .setParameter("worker", worker)
+                .setParameter("until", until)
+                .executeUpdate();
+    }
+
+    /// Deletes a batch of jobs that finished before a time
+    ///
+    /// @param before the time before which finished jobs are deleted
+    /// @param limit  the maximum number of jobs to delete
+    /// @return the number of deleted jobs
+    public int deleteFinished(Instant before, int limit) {
+        return entityManager.createNativeQuery(DELETE_FINISHED)
+                .setParameter("before", before)
+                .setParameter("limit", limit)
+                .executeUpdate();
+    }
+
+    /// Counts the due jobs of each type
+    ///
+    /// @param now the current time
+    /// @return the due jobs of each type with any
+    public Map<String, QueueStats> findQueueStats(Instant now) {
+        final var rows = entityManager.createQuery(QUEUE_STATS, Object[].class)
+                .setParameter("now", now)
+                .getResultList();
+
+        final var stats = new HashMap<String, QueueStats>();
+        for (final var columns : rows) {
+            stats.put((String) columns[0], new QueueStats((Long) columns[1], (Instant) columns[2]));
+        }
+        return stats;
+    }
+
+    private Query leased(String sql, Job job, String worker) {
+        return entityManager.createNativeQuery(sql)
+                .setParameter("id", job.id())
+                .setParameter("worker", worker)
+                .setParameter("attempt", job.attempt());
+    }
+}
@@ -0,0 +1,147 @@
+package org.openpodcastapi.opa.job;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/// Service for enqueuing and leasing background jobs.
+///
+/// Jobs are stored in the database, so they survive restarts and are shared by every node with a [JobWorker].
+/// A job enqueued inside a transaction is committed or rolled back with it, so work is never started for a change
+/// that didn't commit, nor lost for one that did.
+@Service
+public class JobQueue {
+    private static final int MAX_ERROR_LENGTH = 1024;
+
+    private final JobRepository repository;
+    private final JobLeaseRepository leaseRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    // Looked up when used, since handlers may themselves enqueue jobs
+    private final ObjectProvider<JobHandler> handlers;
+
+    /// Required-args constructor
+    ///
+    /// @param repository      the repository used to insert jobs
+    /// @param leaseRepository the repository used to lease and finish jobs
+    /// @param eventPublisher  the publisher used to announce new jobs
+    /// @param handlers        the handlers of every type of job
+    public JobQueue(JobRepository repository, JobLeaseRepository leaseRepository, ApplicationEventPublisher eventPublisher, ObjectProvider<JobHandler> handlers) {
+        this.repository = repository;
+        this.leaseRepository = leaseRepository;
+        this.eventPublisher = eventPublisher;
+        this.handlers = handlers;
+    }
+
+    /// Enqueues a job to run as soon as possible, with the default priority
+    ///
+    /// @param type    the type of the job
+    /// @param payload the input of the job
+    /// @return the database ID of the job
+    /// @throws IllegalArgumentException if no handler runs jobs of the type
+    @Transactional
+    public Long enqueue(String type, String payload) throws IllegalArgumentException {
+        return enqueue(type, payload, 0, Instant.now());
+    }
+
+    /// Enqueues a job
+    ///
+    /// @param type     the type of the job
+    /// @param payload  the input of the job
+    /// @param priority the priority of the job. Due jobs with a higher priority are run first.
+    /// @param runAt    the time from which the job may run
+    /// @return the database ID of the job
+    /// @throws IllegalArgumentException if no handler runs jobs of the type
+    @Transactional
+    public Long enqueue(String type, String payload, int priority, Instant runAt) throws IllegalArgumentException {
+        final var handler = handlers.stream()
+                .filter(candidate -> candidate.type().equals(type))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No handler runs jobs of type " + type));
+
+        final var job = repository.save(new JobEntity(type, payload, priority, handler.maxAttempts(), runAt, Instant.now()));
+        eventPublisher.publishEvent(new JobEnqueuedEvent(type));
+        return job.getId();
+    }
+
+    /// Leases the due jobs of a type with the highest priority
+    ///
+    /// @param type              the type of the jobs
+    /// @param limit             the maximum number of jobs to lease
+    /// @param worker            the ID of the worker leasing the jobs
+    /// @param visibilityTimeout the time after which a job whose lease isn't extended can be leased by another worker
+    /// @return the leased jobs, highest priority first
+    @Transactional
+    public List<Job> lease(String type, int limit, String worker, Duration visibilityTimeout) {
+        final var now = Instant.now();
+        return leaseRepository.lease(type, limit, worker, now, now.plus(visibilityTimeout));
+    }
+
+    /// Marks a leased job as succeeded
+    ///
+    /// @param job    the job
+    /// @param worker the ID of the worker leasing the job
+    /// @return `true` if the worker still held the lease
+    @Transactional
+    public boolean succeed(Job job, String worker) {
+        return leaseRepository.succeed(job, worker, Instant.now());
+    }
+
+    /// Records a failed attempt at a leased job, returning it to the queue after a delay or failing it on its last attempt
+    ///
+    /// @param job    the job
+    /// @param worker the ID of the worker leasing the job
+    /// @param error  the error the attempt failed with
+    /// @param delay  the time to wait before the next attempt
+    /// @return `true` if the worker still held the lease
+    @Transactional
+    public boolean fail(Job job, String worker, Throwable error, Duration delay) {
+        final var now = Instant.now();
+        final var message = describe(error);
+        return job.lastAttempt()
+                ? leaseRepository.fail(job, worker, message, now)
+                : leaseRepository.retry(job, worker, message, now, now.plus(delay));
+    }
+
+    /// Extends the leases of jobs still running on a worker
+    ///
+    /// @param ids               the database IDs of the jobs
+    /// @param worker            the ID of the worker leasing the jobs
+    /// @param visibilityTimeout the time from now after which the leases expire
+    /// @return the number of leases extended
+    @Transactional
+    public int extend(Collection<Long> ids, String worker, Duration visibilityTimeout) {
+        return leaseRepository.extend(ids, worker, Instant.now().plus(visibilityTimeout));
+    }
+
+    /// Deletes a batch of jobs that finished before a time
+    ///
+    /// @param before the time before which finished jobs are deleted
+    /// @param limit  the maximum number of jobs to delete
+    /// @return the number of deleted jobs
+    @Transactional
+    public int deleteFinished(Instant before, int limit) {
+        return leaseRepository.deleteFinished(before, limit);
+    }
+
+    /// Counts the due jobs of each type
+    ///
+    /// @return the due jobs of each type with any
+    @Transactional(readOnly = true)
+    public Map<String, JobLeaseRepository.QueueStats> findQueueStats() {
+        return leaseRepository.findQueueStats(Instant.now());
+    }
+
+    private static String describe(Throwable error) {
+        final var message = error.getMessage() == null
+                ? error.getClass().getName()
+                : error.getClass().getSimpleName() + ": " + error.getMessage();
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,17 @@
+package org.openpodcastapi.opa.job;
+
+import org.jspecify.annotations.NonNull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/// Repository for enqueuing and reading background jobs
+@Repository
+public interface JobRepository extends JpaRepository<@NonNull JobEntity, @NonNull Long> {
+    /// Finds the jobs of a type
+    ///
+    /// @param type the type of the jobs
+    /// @return the jobs, in the order they were enqueued
+    List<JobEntity> findByTypeOrderById(String type);
+}
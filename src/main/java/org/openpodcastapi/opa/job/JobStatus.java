@@ -0,0 +1,13 @@
+package org.openpodcastapi.opa.job;
+
+/// The state of a background job
+public enum JobStatus {
+    /// The job is waiting to run, for the first time or after a failed attempt
+    PENDING,
+    /// A worker has leased the job and is running it
+    RUNNING,
+    /// The job ran successfully
+    SUCCEEDED,
+    /// Every attempt at the job failed
+    FAILED
+}
@@ -0,0 +1,289 @@
+package org.openpodcastapi.opa.job;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Runs background jobs from the [JobQueue].
+///
+/// Each node runs up to [JobHandler#concurrency] jobs of each type at once, each on its own virtual thread.
+/// Free capacity is filled every `jobs.poll-interval`, as soon as a job is enqueued on this node, and whenever a job
+/// finishes, so a busy queue drains without waiting for the next poll.
+///
+/// A job is leased for `jobs.visibility-timeout`, and the leases of running jobs are extended every
+/// `jobs.heartbeat-interval`, so a long job keeps its lease for as long as its node is alive. A job whose node
+/// stops is run again on another once its lease expires. A failed attempt is retried after an exponential backoff
+/// between `jobs.backoff.initial` and `jobs.backoff.max`, until the job runs out of attempts.
+@Component
+@ConditionalOnProperty(name = "jobs.worker.enabled", havingValue = "true", matchIfMissing = true)
+public class JobWorker {
+    private static final Logger log = getLogger(JobWorker.class);
+
+    /// The number of finished jobs deleted per transaction
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final JobQueue queue;
+    private final Map<String, HandlerState> handlers = new HashMap<>();
+    private final Duration visibilityTimeout;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration retention;
+    private final String workerId = UUID.randomUUID().toString();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("job-", 0).factory());
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock dispatching = new ReentrantLock();
+    private final AtomicBoolean dispatchRequested = new AtomicBoolean();
+    private volatile boolean stopped;
+
+    /// The capacity and metrics of one type of job
+    private record HandlerState(JobHandler handler,
+                                Semaphore permits,
+                                Counter succeeded,
+                                Counter retried,
+                                Counter failed,
+                                Counter lost,
+                                Timer duration,
+                                Timer queueTime,
+                                AtomicLong depth,
+                                AtomicLong oldestMillis) {
+    }
+
+    /// All-args constructor
+    ///
+    /// @param queue             the queue jobs are leased from
+    /// @param handlers          the handlers of every type of job
+    /// @param meterRegistry     the registry used to publish job metrics
+    /// @param visibilityTimeout the time after which a job whose lease isn't extended can be run by another worker
+    /// @param initialBackoff    the delay before the first retry of a failed job
+    /// @param maxBackoff        the maximum delay between retries
+    /// @param retention         the time finished jobs are kept for
+    public JobWorker(JobQueue queue,
+                     List<JobHandler> handlers,
+                     MeterRegistry meterRegistry,
+                     @Value("${jobs.visibility-timeout:PT5M}") Duration visibilityTimeout,
+                     @Value("${jobs.backoff.initial:PT10S}") Duration initialBackoff,
+                     @Value("${jobs.backoff.max:PT1H}") Duration maxBackoff,
+                     @Value("${jobs.retention:P7D}") Duration retention) {
+        this.queue = queue;
+        this.visibilityTimeout = visibilityTimeout;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.retention = retention;
+
+        for (final var handler : handlers) {
+            final var type = handler.type();
+            final var permits = new Semaphore(handler.concurrency());
+            final var state = new HandlerState(handler, permits,
+                    Counter.builder("jobs.processed").tag("type", type).tag("result", "succeeded").register(meterRegistry),
+                    Counter.builder("jobs.processed").tag("type", type).tag("result", "retried").register(meterRegistry),
+                    Counter.builder("jobs.processed").tag("type", type).tag("result", "failed").register(meterRegistry),
+                    Counter.builder("jobs.processed").tag("type", type).tag("result", "lost").register(meterRegistry),
+                    Timer.builder("jobs.duration").tag("type", type).register(meterRegistry),
+                    Timer.builder("jobs.wait").tag("type", type).register(meterRegistry),
+                    new AtomicLong(),
+                    new AtomicLong());
+            if (this.handlers.putIfAbsent(type, state) != null) {
+                throw new IllegalStateException("More than one handler of jobs of type " + type);
+            }
+
+            Gauge.builder("jobs.running", state, s -> s.handler().concurrency() - s.permits().availablePermits())
+                    .tag("type", type).register(meterRegistry);
+            Gauge.builder("jobs.queue.depth", state.depth(), AtomicLong::get)
+                    .tag("type", type).register(meterRegistry);
+            Gauge.builder("jobs.queue.age", state.oldestMillis(), millis -> millis.get() / 1000.0)
+                    .tag("type", type).register(meterRegistry);
+        }
+    }
+
+    /// Fills free capacity as soon as a job is enqueued on this node
+    ///
+    /// @param event the event published when the job was enqueued
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onJobEnqueued(JobEnqueuedEvent event) {
+        if (handlers.containsKey(event.type())) {
+            submit(this::dispatch);
+        }
+    }
+
+    /// Leases due jobs to fill the free capacity of every type, and starts them.
+    /// Only one dispatch runs at a time. A dispatch requested while another runs is run by that one once it finishes.
+    ///
+    /// @return the number of jobs started
+    @Scheduled(fixedDelayString = "${jobs.poll-interval:PT1S}", initialDelayString = "${jobs.poll-interval:PT1S}")
+    public int dispatch() {
+        dispatchRequested.set(true);
+        var started = 0;
+        while (!stopped && dispatchRequested.get() && dispatching.tryLock()) {
+            try {
+                dispatchRequested.set(false);
+                for (final var state : handlers.values()) {
+                    started += dispatch(state);
+                }
+            } finally {
+                dispatching.unlock();
+            }
+        }
+        return started;
+    }
+
+    /// Extends the leases of the jobs running on this node
+    ///
+    /// @return the number of leases extended
+    @Scheduled(fixedDelayString = "${jobs.heartbeat-interval:PT1M}", initialDelayString = "${jobs.heartbeat-interval:PT1M}")
+    public int heartbeat() {
+        return queue.extend(Set.copyOf(running), workerId, visibilityTimeout);
+    }
+
+    /// Refreshes the number of due jobs of each type, and the age of the oldest
+    @Scheduled(fixedDelayString = "${jobs.stats-interval:PT30S}", initialDelayString = "${jobs.stats-interval:PT30S}")
+    public void refreshQueueStats() {
+        final var stats = queue.findQueueStats();
+        final var now = Instant.now();
+        handlers.forEach((type, state) -> {
+            final var queued = stats.get(type);
+            state.depth().set(queued == null ? 0 : queued.depth());
+            state.oldestMillis().set(queued == null ? 0 : Math.max(0, Duration.between(queued.oldest(), now).toMillis()));
+        });
+    }
+
+    /// Deletes the jobs that finished longer than `jobs.retention` ago
+    ///
+    /// @return the number of deleted jobs
+    @Scheduled(fixedDelayString = "${jobs.delete-interval:PT1H}", initialDelayString = "${jobs.delete-interval:PT1H}")
+    public int deleteFinished() {
+        final var before = Instant.now().minus(retention);
+        var deleted = 0;
+        int batch;
+        do {
+            batch = queue.deleteFinished(before, DELETE_BATCH_SIZE);
+            deleted += batch;
+        } while (batch == DELETE_BATCH_SIZE);
+
+        if (deleted > 0) {
+            log.info("Deleted {} finished jobs", deleted);
+        }
+        return deleted;
+    }
+
+    /// Stops the job threads. Running jobs are run again by another worker once their leases expire.
+    @PreDestroy
+    public void close() {
+        stopped = true;
+        executor.shutdownNow();
+    }
+
+    private int dispatch(HandlerState state) {
+        final var free = state.permits().drainPermits();
+        if (free == 0) {
+            return 0;
+        }
+
+        final List<Job> jobs;
+        try {
+            jobs = queue.lease(state.handler().type(), free, workerId, visibilityTimeout);
+        } catch (RuntimeException e) {
+            state.permits().release(free);
+            log.warn("Unable to lease jobs of type {}: {}", state.handler().type(), e.getMessage());
+            return 0;
+        }
+        state.permits().release(free - jobs.size());
+
+        final var now = Instant.now();
+        for (final var job : jobs) {
+            state.queueTime().record(Duration.between(job.runAt(), now));
+            running.add(job.id());
+            if (!submit(() -> run(state, job))) {
+                running.remove(job.id());
+                state.permits().release();
+            }
+        }
+        return jobs.size();
+    }
+
+    private void run(HandlerState state, Job job) {
+        final var sample = Timer.start();
+        try {
+            state.handler().handle(job);
+            sample.stop(state.duration());
+            if (queue.succeed(job, workerId)) {
+                state.succeeded().increment();
+            } else {
+                state.lost().increment();
+                log.warn("Job {} of type {} finished after its lease was lost", job.id(), job.type());
+            }
+        } catch (InterruptedException _) {
+            // Stopping, so the job is left to be run again once its lease expires
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            sample.stop(state.duration());
+            recordFailure(state, job, e);
+        } finally {
+            running.remove(job.id());
+            state.permits().release();
+        }
+
+        if (!stopped) {
+            dispatch();
+        }
+    }
+
+    private void recordFailure(HandlerState state, Job job, Exception error) {
+        try {
+            if (!queue.fail(job, workerId, error, backoff(job.attempt()))) {
+                state.lost().increment();
+                log.warn("Job {} of type {} failed after its lease was lost: {}", job.id(), job.type(), error.getMessage());
+            } else if (job.lastAttempt()) {
+                state.failed().increment();
+                log.error("Job {} of type {} failed on its last attempt: {}", job.id(), job.type(), error.getMessage(), error);
+            } else {
+                state.retried().increment();
+                log.warn("Attempt {} at job {} of type {} failed, retrying: {}", job.attempt(), job.id(), job.type(), error.getMessage());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to record the failure of job {}, it will be run again once its lease expires: {}", job.id(), e.getMessage());
+        }
+    }
+
+    private Duration backoff(int attempt) {
+        final var exponential = initialBackoff.toMillis() << Math.min(attempt - 1, 30);
+        final var millis = Math.max(0, Math.min(maxBackoff.toMillis(), exponential));
+        // Half of the delay is random, so jobs that failed together don't all retry together
+        return Duration.ofMillis(millis / 2 + ThreadLocalRandom.current().nextLong(millis / 2 + 1));
+    }
+
+    private boolean submit(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException _) {
+            return false;
+        }
+    }
+}
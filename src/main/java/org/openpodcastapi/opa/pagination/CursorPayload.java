@@ -1,10 +1,31 @@
 package org.openpodcastapi.opa.pagination;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.time.Instant;
 
 /// Generic shape of pagination pagination,
 ///
 /// @param createdAt the `created_at` timestamp of the entity
 /// @param id        the database `id` of the entity
-public record CursorPayload(Instant createdAt, Long id) {
+/// @param key       the ordering key of the entity, for results ordered by a string key
+/// @param count     the ordering count of the entity, for results ordered by a number
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CursorPayload(Instant createdAt, Long id, String key, Long count) {
+    /// Constructor for cursors over results ordered by a string key
+    ///
+    /// @param createdAt the `created_at` timestamp of the entity
+    /// @param id        the database `id` of the entity
+    /// @param key       the ordering key of the entity
+    public CursorPayload(Instant createdAt, Long id, String key) {
+        this(createdAt, id, key, null);
+    }
+
+    /// Constructor for cursors over results ordered by a timestamp
+    ///
+    /// @param createdAt the `created_at` timestamp of the entity
+    /// @param id        the database `id` of the entity
+    public CursorPayload(Instant createdAt, Long id) {
+        this(createdAt, id, null, null);
+    }
 }
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.function.Function;
 
 /// Generic repository for returning paginated results.
 /// Works only with entities that implement [Cursorable].
@@ -39,23 +40,147 @@ public class CursorRepository {
     ) {
         // Get the `createdAt` timestamp of the entity
         final var createdAtPath = Expressions.dateTimePath(Instant.class, qEntity, "createdAt");
+
+        return findWithCursor(qEntity, createdAtPath, Cursorable::getCreatedAt, cursor, limit, additionalFilter, forward);
+    }
+
+    /// Fetches a paginated set of results ordered by a timestamp other than `createdAt`.
+    /// The cursor stores the value of the timestamp in its `createdAt` field.
+    ///
+    /// @param <T>              the [Cursorable] entity type
+    /// @param <Q>              the QueryDSL type of the entity
+    /// @param qEntity          the entity (as its QueryDSL type)
+    /// @param timestampPath    the path of the timestamp to order by
+    /// @param timestamp        the function used to read the timestamp from an entity
+    /// @param cursor           the cursor used to filter results
+    /// @param limit            the number of results to fetch
+    /// @param additionalFilter any additional [BooleanExpression] to apply to the query
+    /// @param forward          whether to cursor forwards or backwards
+    /// @return a paginated response
+    public <T extends Cursorable, Q extends EntityPathBase<T>> CursorPage<T> findWithCursor(
+            Q qEntity,
+            DateTimePath<Instant> timestampPath,
+            Function<? super T, Instant> timestamp,
+            CursorPayload cursor,
+            int limit,
+            BooleanExpression additionalFilter,
+            boolean forward
+    ) {
         // Get the `id` of the entity
         final var idPath = Expressions.numberPath(Long.class, qEntity, "id");
 
         // Create the cursor pagination predicate
-        final var predicate = buildKeysetPredicate(createdAtPath, idPath, cursor, forward);
+        final var predicate = buildKeysetPredicate(timestampPath, idPath, cursor, forward);
+
+        final List<T> results = queryFactory
+                .selectFrom(qEntity)
+                .where(additionalFilter, predicate)
+                .orderBy(timestampPath.desc(), idPath.desc())
+                .limit(limit)
+                .fetch();
+
+        return CursorPage.of(
+                results,
+                limit,
+                e -> new CursorPayload(timestamp.apply(e), e.getId())
+        );
+    }
+
+    /// Fetches a paginated set of results ordered by a string key, ascending, such as a position in a list.
+    /// The cursor stores the value of the key in its `key` field.
+    ///
+    /// @param <T>              the [Cursorable] entity type
+    /// @param <Q>              the QueryDSL type of the entity
+    /// @param qEntity          the entity (as its QueryDSL type)
+    /// @param keyPath          the path of the key to order by
+    /// @param key              the function used to read the key from an entity
+    /// @param cursor           the cursor used to filter results
+    /// @param limit            the number of results to fetch
+    /// @param additionalFilter any additional [BooleanExpression] to apply to the query
+    /// @return a paginated response
+    /// @throws IllegalArgumentException if the cursor has no key
+    public <T extends Cursorable, Q extends EntityPathBase<T>> CursorPage<T> findWithKeyCursor(
+            Q qEntity,
+            StringPath keyPath,
+            Function<? super T, String> key,
+            CursorPayload cursor,
+            int limit,
+            BooleanExpression additionalFilter
+    ) {
+        // Get the `id` of the entity
+        final var idPath = Expressions.numberPath(Long.class, qEntity, "id");
+
+        BooleanExpression predicate = null;
+        if (cursor != null) {
+            if (cursor.key() == null || cursor.id() == null) {
+                throw new IllegalArgumentException("Invalid pagination");
+            }
+            predicate = keyPath.goe(cursor.key())
+                    .and(keyPath.gt(cursor.key())
+                            .or(keyPath.eq(cursor.key())
+                                    .and(idPath.gt(cursor.id()))));
+        }
+
+        final List<T> results = queryFactory
+                .selectFrom(qEntity)
+                .where(additionalFilter, predicate)
+                .orderBy(keyPath.asc(), idPath.asc())
+                .limit(limit)
+                .fetch();
+
+        return CursorPage.of(
+                results,
+                limit,
+                e -> new CursorPayload(e.getCreatedAt(), e.getId(), key.apply(e))
+        );
+    }
+
+    /// Fetches a paginated set of results ordered by a number, descending, such as a count.
+    /// The cursor stores the value of the number in its `count` field.
+    ///
+    /// @param <T>              the [Cursorable] entity type
+    /// @param <Q>              the QueryDSL type of the entity
+    /// @param qEntity          the entity (as its QueryDSL type)
+    /// @param countPath        the path of the number to order by
+    /// @param count            the function used to read the number from an entity
+    /// @param cursor           the cursor used to filter results
+    /// @param limit            the number of results to fetch
+    /// @param additionalFilter any additional [BooleanExpression] to apply to the query
+    /// @return a paginated response
+    /// @throws IllegalArgumentException if the cursor has no count
+    public <T extends Cursorable, Q extends EntityPathBase<T>> CursorPage<T> findWithCountCursor(
+            Q qEntity,
+            NumberPath<Long> countPath,
+            Function<? super T, Long> count,
+            CursorPayload cursor,
+            int limit,
+            BooleanExpression additionalFilter
+    ) {
+        // Get the `id` of the entity
+        final var idPath = Expressions.numberPath(Long.class, qEntity, "id");
+
+        BooleanExpression predicate = null;
+        if (cursor != null) {
+            if (cursor.count() == null || cursor.id() == null) {
+                throw new IllegalArgumentException("Invalid pagination");
+            }
+            predicate = countPath.loe(cursor.count())
+                    .and(countPath.lt(cursor.count())
+                            .or(countPath.eq(cursor.count())
+                                    .and(idPath.lt(cursor.id()))));
+        }
 
         final List<T> results = queryFactory
                 .selectFrom(qEntity)
                 .where(additionalFilter, predicate)
-                .orderBy(createdAtPath.desc(), idPath.desc())
+                .orderBy(countPath.desc(), idPath.desc())
                 .limit(limit)
                 .fetch();
 
         return CursorPage.of(
                 results,
                 limit,
-                e -> new CursorPayload(e.getCreatedAt(), e.getId())
+                e -> new CursorPayload(e.getCreatedAt(), e.getId(), null, count.apply(e))
         );
     }
 
@@ -73,14 +198,18 @@ public class CursorRepository {
     ) {
         if (cursor == null) return null;
 
+        // The leading range condition is implied by the rest, but lets the database seek the index to the cursor
+        // instead of filtering every row before it
         if (forward) {
-            return createdAt.lt(cursor.createdAt())
-                    .or(createdAt.eq(cursor.createdAt())
-                            .and(id.lt(cursor.id())));
+            return createdAt.loe(cursor.createdAt())
+                    .and(createdAt.lt(cursor.createdAt())
+                            .or(createdAt.eq(cursor.createdAt())
+                                    .and(id.lt(cursor.id()))));
         } else {
-            return createdAt.gt(cursor.createdAt())
-                    .or(createdAt.eq(cursor.createdAt())
-                            .and(id.gt(cursor.id())));
+            return createdAt.goe(cursor.createdAt())
+                    .and(createdAt.gt(cursor.createdAt())
+                            .or(createdAt.eq(cursor.createdAt())
+                                    .and(id.gt(cursor.id()))));
         }
     }
 }
@@ -0,0 +1,13 @@
+package org.openpodcastapi.opa.playback;
+
+/// An action reported by a player for an episode
+public enum PlaybackAction {
+    /// Playback started or resumed
+    PLAY,
+    /// Playback paused
+    PAUSE,
+    /// A periodic report of the playback position
+    POSITION,
+    /// The episode was played to the end
+    COMPLETE
+}
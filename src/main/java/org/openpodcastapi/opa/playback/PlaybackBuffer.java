@@ -0,0 +1,291 @@
+package org.openpodcastapi.opa.playback;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// A write-behind buffer for playback states.
+///
+/// Players report their position every few seconds, and each report replaces the previous one.
+/// Reports are held in memory and coalesced to the latest state per user and episode,
+/// so a listening session costs a handful of row writes however often the player reports.
+/// The buffer is split into stripes, each guarded by its own lock, so concurrent reports rarely contend.
+///
+/// The buffer is written in batched upserts every `playback.buffer.flush-interval`,
+/// as soon as it holds `playback.buffer.flush-size` states, and on shutdown.
+/// States that can't be written because the database is unavailable are kept for the next flush.
+/// A batch the database rejects is split until the rejected states are found, and those are dropped, so a state of
+/// a deleted user or episode can't hold back the states behind it. States still buffered when the process dies are lost.
+@Component
+public class PlaybackBuffer {
+    private static final Logger log = getLogger(PlaybackBuffer.class);
+
+    private final PlaybackUpsertRepository upsertRepository;
+    private final int flushSize;
+    private final int batchSize;
+
+    private final Stripe[] stripes;
+    private final AtomicInteger pending = new AtomicInteger();
+    /// Serializes flushes, so batches are written in the order they were drained
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    /// The states being written by the running flush, so they stay readable until they're committed
+    private final Map<Key, PlaybackUpdate> flushing = new ConcurrentHashMap<>();
+    private final ExecutorService flusher = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("playback-flush").factory());
+
+    private final Counter buffered;
+    private final Counter coalesced;
+    private final Counter failures;
+    private final Counter dropped;
+    private final Timer lag;
+    private final DistributionSummary batchSizes;
+
+    /// Required-args constructor
+    ///
+    /// @param upsertRepository the repository used to write playback states
+    /// @param meterRegistry    the registry used to publish buffer metrics
+    /// @param stripes          the number of independently locked parts of the buffer
+    /// @param flushSize        the number of buffered states that triggers a flush before the interval is up
+    /// @param batchSize        the number of states written per statement
+    public PlaybackBuffer(PlaybackUpsertRepository upsertRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${playback.buffer.stripes:64}") int stripes,
+                          @Value("${playback.buffer.flush-size:5000}") int flushSize,
+                          @Value("${playback.buffer.batch-size:500}") int batchSize) {
+        this.upsertRepository = upsertRepository;
+        this.flushSize = flushSize;
+        this.batchSize = batchSize;
+        this.stripes = new Stripe[Math.max(1, stripes)];
+        for (var i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+
+        this.buffered = Counter.builder("playback.actions").tag("result", "buffered").register(meterRegistry);
+        this.coalesced = Counter.builder("playback.actions").tag("result", "coalesced").register(meterRegistry);
+        this.failures = Counter.builder("playback.flush.failures").tag("result", "retried").register(meterRegistry);
+        this.dropped = Counter.builder("playback.flush.failures").tag("result", "dropped").register(meterRegistry);
+        this.lag = Timer.builder("playback.flush.lag").register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("playback.flush.batch.size").register(meterRegistry);
+        Gauge.builder("playback.pending", pending, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /// Buffers a playback state, replacing the buffered state of the same user and episode unless that one is later
+    ///
+    /// @param update the playback state
+    void add(PlaybackUpdate update) {
+        final var stripe = stripe(update.userId(), update.episodeId());
+        final var key = new Key(update.userId(), update.episodeId());
+        stripe.lock.lock();
+        try {
+            final var previous = stripe.entries.get(key);
+            if (previous == null) {
+                stripe.entries.put(key, update);
+                pending.incrementAndGet();
+                buffered.increment();
+            } else {
+                stripe.entries.put(key, previous.merge(update));
+                coalesced.increment();
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        if (pending.get() >= flushSize) {
+            requestFlush();
+        }
+    }
+
+    /// Returns the buffered playback state of a user and episode
+    ///
+    /// @param userId    the database ID of the user
+    /// @param episodeId the database ID of the episode
+    /// @return the buffered state, if one is waiting to be written
+    Optional<PlaybackUpdate> get(long userId, long episodeId) {
+        final var stripe = stripe(userId, episodeId);
+        final var key = new Key(userId, episodeId);
+        stripe.lock.lock();
+        try {
+            final var update = stripe.entries.get(key);
+            if (update != null) {
+                return Optional.of(update);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        return Optional.ofNullable(flushing.get(key));
+    }
+
+    /// Writes every buffered state.
+    /// The next scheduled run starts `playback.buffer.flush-interval` after the previous one finishes.
+    ///
+    /// @return the number of states written
+    @Scheduled(fixedDelayString = "${playback.buffer.flush-interval:PT2S}", initialDelayString = "${playback.buffer.flush-interval:PT2S}")
+    public int flush() {
+        flushLock.lock();
+        try {
+            final var drained = drain();
+            if (drained.isEmpty()) {
+                return 0;
+            }
+
+            var oldest = Long.MAX_VALUE;
+            for (final var update : drained) {
+                oldest = Math.min(oldest, update.bufferedAt());
+            }
+            lag.record(System.nanoTime() - oldest, TimeUnit.NANOSECONDS);
+
+            var written = 0;
+            for (var from = 0; from < drained.size(); from += batchSize) {
+                final var batch = drained.subList(from, Math.min(from + batchSize, drained.size()));
+                try {
+                    written += write(batch);
+                } catch (RuntimeException e) {
+                    // Rewriting states of the batch that were already written is harmless, as they replace themselves
+                    failures.increment();
+                    log.warn("Unable to write {} playback states, keeping them for the next flush: {}", drained.size() - from, e.getMessage());
+                    requeue(drained.subList(from, drained.size()));
+                    break;
+                }
+            }
+
+            log.debug("Wrote {} playback states", written);
+            return written;
+        } finally {
+            flushing.clear();
+            flushLock.unlock();
+        }
+    }
+
+    /// Writes a batch, splitting it in half when the database rejects it until the rejected states are found and dropped
+    ///
+    /// @param batch the states to write
+    /// @return the number of states written
+    /// @throws RuntimeException if the batch couldn't be written for another reason
+    private int write(List<PlaybackUpdate> batch) {
+        try {
+            upsertRepository.upsert(batch);
+            batchSizes.record(batch.size());
+            return batch.size();
+        } catch (DataIntegrityViolationException e) {
+            if (batch.size() == 1) {
+                final var update = batch.getFirst();
+                dropped.increment();
+                log.warn("Dropping the playback state of user {} and episode {}, which was rejected: {}", update.userId(), update.episodeId(), e.getMessage());
+                return 0;
+            }
+            final var middle = batch.size() / 2;
+            return write(batch.subList(0, middle)) + write(batch.subList(middle, batch.size()));
+        }
+    }
+
+    /// @return the number of states waiting to be written
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    /// Writes the buffered states before the application stops
+    @PreDestroy
+    public void close() {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Timed out waiting for a playback flush to finish");
+            }
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /// Starts a flush in the background unless one is already waiting to start
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    flushRequested.set(false);
+                    flush();
+                });
+            } catch (RejectedExecutionException _) {
+                // The application is stopping and flushes one last time
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /// Takes every buffered state out of the buffer
+    private List<PlaybackUpdate> drain() {
+        final List<PlaybackUpdate> drained = new ArrayList<>(pending.get());
+        for (final var stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                if (!stripe.entries.isEmpty()) {
+                    flushing.putAll(stripe.entries);
+                    drained.addAll(stripe.entries.values());
+                    pending.addAndGet(-stripe.entries.size());
+                    stripe.entries = new HashMap<>();
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return drained;
+    }
+
+    /// Puts states that couldn't be written back into the buffer, behind any later state buffered in the meantime
+    private void requeue(List<PlaybackUpdate> updates) {
+        for (final var update : updates) {
+            final var stripe = stripe(update.userId(), update.episodeId());
+            final var key = new Key(update.userId(), update.episodeId());
+            stripe.lock.lock();
+            try {
+                final var newer = stripe.entries.get(key);
+                if (newer == null) {
+                    stripe.entries.put(key, update);
+                    pending.incrementAndGet();
+                } else {
+                    stripe.entries.put(key, update.merge(newer));
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    private Stripe stripe(long userId, long episodeId) {
+        final var hash = Long.hashCode((userId * 0x9E3779B97F4A7C15L) ^ episodeId);
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    /// A part of the buffer and the lock guarding it
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private Map<Key, PlaybackUpdate> entries = new HashMap<>();
+    }
+
+    private record Key(long userId, long episodeId) {
+    }
+}
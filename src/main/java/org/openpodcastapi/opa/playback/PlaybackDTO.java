@@ -0,0 +1,75 @@
+package org.openpodcastapi.opa.playback;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nullable;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/// Container for all playback-related data transfer objects
+public class PlaybackDTO {
+    /// A DTO representing an action reported by a player
+    ///
+    /// @param episode   the UUID of the episode
+    /// @param action    the action
+    /// @param position  the playback position in seconds
+    /// @param timestamp the time the action happened on the device. Defaults to the time the server receives it.
+    public record EpisodeActionDTO(
+            @JsonProperty(required = true) UUID episode,
+            @JsonProperty(required = true) PlaybackAction action,
+            @JsonProperty(required = true) int position,
+            @JsonProperty @Nullable Instant timestamp
+    ) {
+    }
+
+    /// A DTO representing the result of reporting actions
+    ///
+    /// @param accepted the number of actions accepted
+    public record EpisodeActionsResponseDTO(
+            @JsonProperty(required = true) int accepted
+    ) {
+    }
+
+    /// A DTO representing a user's playback state of an episode
+    ///
+    /// @param episode   the UUID of the episode
+    /// @param action    the latest action
+    /// @param position  the playback position in seconds
+    /// @param completed whether the latest action was [PlaybackAction#COMPLETE]
+    /// @param updatedAt the time of the latest action
+    public record PlaybackStateDTO(
+            @JsonProperty(required = true) UUID episode,
+            @JsonProperty(required = true) PlaybackAction action,
+            @JsonProperty(required = true) int position,
+            @JsonProperty(required = true) boolean completed,
+            @JsonProperty(required = true) Instant updatedAt
+    ) {
+    }
+
+    /// A DTO representing the result of a history import
+    ///
+    /// @param received the number of actions in the upload
+    /// @param accepted the number of valid actions
+    /// @param rejected the number of invalid actions
+    /// @param updated  the number of playback states created or replaced
+    /// @param errors   the first errors found in the upload
+    public record ImportResponseDTO(
+            @JsonProperty(required = true) int received,
+            @JsonProperty(required = true) int accepted,
+            @JsonProperty(required = true) int rejected,
+            @JsonProperty(required = true) int updated,
+            @JsonProperty(required = true) List<ImportErrorDTO> errors
+    ) {
+    }
+
+    /// A DTO representing an invalid action in a history import
+    ///
+    /// @param record  the position of the action in the upload, starting from 1
+    /// @param message the error message explaining why the action was rejected
+    public record ImportErrorDTO(
+            @JsonProperty(required = true) int record,
+            @JsonProperty(required = true) String message
+    ) {
+    }
+}
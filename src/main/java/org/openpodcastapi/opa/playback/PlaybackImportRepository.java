@@ -0,0 +1,143 @@
+package org.openpodcastapi.opa.playback;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.openpodcastapi.opa.util.DatabasePlatform;
+import org.postgresql.PGConnection;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/// Repository for bulk imports of a user's playback history.
+///
+/// On PostgreSQL, the actions are streamed into a temporary staging table with `COPY ... FROM STDIN`,
+/// and merged into `playback_states` with a single `INSERT ... SELECT DISTINCT ON ... ON CONFLICT` statement.
+/// The staging table is dropped when the transaction ends.
+/// Other databases coalesce each chunk in memory and write it through [PlaybackUpsertRepository].
+/// Either way, a stored state is only replaced by a later action.
+@Repository
+public class PlaybackImportRepository {
+    private static final String CREATE_STAGING = """
+            CREATE TEMPORARY TABLE playback_import
+            (
+                episode_id       BIGINT                   NOT NULL,
+                action           VARCHAR(16)              NOT NULL,
+                position_seconds INTEGER                  NOT NULL,
+                updated_at       TIMESTAMP WITH TIME ZONE NOT NULL
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COPY_STAGING = "COPY playback_import (episode_id, action, position_seconds, updated_at) FROM STDIN";
+
+    // Episodes deleted since the upload was validated are skipped by the join
+    private static final String MERGE_STAGING = """
+            INSERT INTO playback_states (user_id, episode_id, action, position_seconds, completed, updated_at)
+            SELECT DISTINCT ON (i.episode_id) :userId, i.episode_id, i.action, i.position_seconds, i.action = 'COMPLETE', i.updated_at
+            FROM playback_import i
+            JOIN episodes e ON e.id = i.episode_id
+            ORDER BY i.episode_id, i.updated_at DESC
+            ON CONFLICT (user_id, episode_id) DO UPDATE
+            SET action = EXCLUDED.action,
+                position_seconds = EXCLUDED.position_seconds,
+                completed = EXCLUDED.completed,
+                updated_at = EXCLUDED.updated_at
+            WHERE playback_states.updated_at <= EXCLUDED.updated_at
+            """;
+
+    private final EntityManager entityManager;
+    private final DatabasePlatform databasePlatform;
+    private final PlaybackUpsertRepository upsertRepository;
+
+    /// Required-args constructor
+    ///
+    /// @param entityManager    the entity manager used to run the statements
+    /// @param databasePlatform the platform used to select the statement dialect
+    /// @param upsertRepository the repository used to write chunks on databases other than PostgreSQL
+    public PlaybackImportRepository(EntityManager entityManager, DatabasePlatform databasePlatform, PlaybackUpsertRepository upsertRepository) {
+        this.entityManager = entityManager;
+        this.databasePlatform = databasePlatform;
+        this.upsertRepository = upsertRepository;
+    }
+
+    /// Loads a user's playback history in one transaction.
+    /// Chunks are pulled one at a time, so the history is never held in memory as a whole.
+    ///
+    /// @param userId the database ID of the user
+    /// @param chunks the validated actions of the user, in chunks
+    /// @return the number of playback states inserted or updated
+    @Transactional
+    public int load(Long userId, Iterator<List<PlaybackUpdate>> chunks) {
+        if (databasePlatform.isPostgres()) {
+            return loadPostgres(userId, chunks);
+        }
+        return loadPortable(chunks);
+    }
+
+    private int loadPostgres(Long userId, Iterator<List<PlaybackUpdate>> chunks) {
+        final var session = entityManager.unwrap(Session.class);
+        session.doWork(connection -> {
+            try (var statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING);
+            }
+        });
+
+        var staged = 0L;
+        while (chunks.hasNext()) {
+            // Each chunk is copied on its own, since pulling the next chunk may query the same connection
+            final var rows = encode(chunks.next());
+            staged += session.doReturningWork(connection -> {
+                final var copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING);
+                try {
+                    copy.writeToCopy(rows, 0, rows.length);
+                    return copy.endCopy();
+                } finally {
+                    if (copy.isActive()) {
+                        copy.cancelCopy();
+                    }
+                }
+            });
+        }
+
+        if (staged == 0) {
+            return 0;
+        }
+
+        return entityManager.createNativeQuery(MERGE_STAGING)
+                .setParameter("userId", userId)
+                .executeUpdate();
+    }
+
+    private int loadPortable(Iterator<List<PlaybackUpdate>> chunks) {
+        var changed = 0;
+        while (chunks.hasNext()) {
+            final Map<Long, PlaybackUpdate> latest = new HashMap<>();
+            for (final var update : chunks.next()) {
+                latest.merge(update.episodeId(), update, PlaybackUpdate::merge);
+            }
+            changed += upsertRepository.upsert(new ArrayList<>(latest.values()));
+        }
+        return changed;
+    }
+
+    /// Encodes a chunk in the text format of `COPY`. None of the values can contain a tab, newline or backslash.
+    private static byte[] encode(List<PlaybackUpdate> chunk) {
+        final var output = new ByteArrayOutputStream(chunk.size() * 48);
+        final var row = new StringBuilder(64);
+        for (final var update : chunk) {
+            row.setLength(0);
+            row.append(update.episodeId()).append('\t')
+                    .append(update.action().name()).append('\t')
+                    .append(update.position()).append('\t')
+                    .append(update.updatedAt()).append('\n');
+            output.writeBytes(row.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,73 @@
+package org.openpodcastapi.opa.playback;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.jspecify.annotations.NonNull;
+import org.openpodcastapi.opa.service.CustomUserDetails;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.UUID;
+
+/// Controller for API playback requests
+@RestController
+@RequestMapping("/api/v1/episodes")
+public class PlaybackRestController {
+    private final PlaybackService service;
+
+    /// Required-args constructor
+    ///
+    /// @param service the service used for playback actions
+    public PlaybackRestController(PlaybackService service) {
+        this.service = service;
+    }
+
+    /// Records a batch of actions reported by the user's player.
+    /// Responds with `202` because the actions are written shortly after the response.
+    ///
+    /// @param request a list of episode actions
+    /// @param user    the custom user details for the user
+    /// @return a response containing the number of accepted actions
+    /// @throws EntityNotFoundException  if an episode doesn't exist
+    /// @throws IllegalArgumentException if an action is incomplete or too many actions are reported
+    @PostMapping("/actions")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<PlaybackDTO.@NonNull EpisodeActionsResponseDTO> recordActions(@RequestBody List<PlaybackDTO.EpisodeActionDTO> request, @AuthenticationPrincipal CustomUserDetails user) throws EntityNotFoundException {
+        final var accepted = service.recordActions(user.id(), request);
+
+        return ResponseEntity.accepted().body(new PlaybackDTO.EpisodeActionsResponseDTO(accepted));
+    }
+
+    /// Imports the user's playback history from another service.
+    /// The body is a stream of episode actions, as newline-delimited JSON or as a JSON array.
+    ///
+    /// @param upload the uploaded actions
+    /// @param user   the custom user details for the user
+    /// @return a response containing a summary of the import
+    /// @throws IllegalArgumentException if the upload isn't well-formed or has too many actions
+    @PostMapping(value = "/actions/import", consumes = {"application/x-ndjson", MediaType.APPLICATION_JSON_VALUE})
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<PlaybackDTO.@NonNull ImportResponseDTO> importHistory(InputStream upload, @AuthenticationPrincipal CustomUserDetails user) {
+        return ResponseEntity.ok(service.importHistory(user.id(), upload));
+    }
+
+    /// Returns the user's playback state of an episode
+    ///
+    /// @param uuid the UUID of the episode
+    /// @param user the custom user details for the user
+    /// @return a response containing the playback state
+    /// @throws EntityNotFoundException  if the episode doesn't exist or the user hasn't played it
+    /// @throws IllegalArgumentException if the UUID is improperly formatted
+    @GetMapping("/{uuid}/playback")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<PlaybackDTO.@NonNull PlaybackStateDTO> getPlaybackState(@PathVariable String uuid, @AuthenticationPrincipal CustomUserDetails user) throws EntityNotFoundException {
+        // If the value is invalid, the GlobalExceptionHandler will throw a 400.
+        final var uuidValue = UUID.fromString(uuid);
+
+        return ResponseEntity.ok(service.getPlaybackState(user.id(), uuidValue));
+    }
+}
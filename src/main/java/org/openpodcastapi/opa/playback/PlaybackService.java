@@ -0,0 +1,341 @@
+package org.openpodcastapi.opa.playback;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.openpodcastapi.opa.episode.EpisodeRepository;
+import org.openpodcastapi.opa.history.HistoryRecorder;
+import org.openpodcastapi.opa.history.ListeningEvent;
+import org.openpodcastapi.opa.history.ListeningHistoryStore;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Service for playback-related actions
+@Service
+public class PlaybackService {
+    private static final Logger log = getLogger(PlaybackService.class);
+
+    private final EpisodeRepository episodeRepository;
+    private final PlaybackStateRepository stateRepository;
+    private final PlaybackImportRepository importRepository;
+    private final PlaybackBuffer buffer;
+    private final HistoryRecorder historyRecorder;
+    private final ListeningHistoryStore historyStore;
+    private final UserRepository userRepository;
+    private final JsonMapper jsonMapper;
+    private final int maxBatchSize;
+    private final int importChunkSize;
+    private final int importMaxRecords;
+    private final int importMaxErrors;
+
+    /// All-args constructor
+    ///
+    /// @param episodeRepository the repository used to resolve episode UUIDs
+    /// @param stateRepository   the repository used to read stored playback states
+    /// @param importRepository  the repository used to load imported histories
+    /// @param buffer            the buffer playback states are written through
+    /// @param historyRecorder   the queue reported actions are added to the listening history through
+    /// @param historyStore      the store imported actions are added to the listening history with
+    /// @param userRepository    the repository used to reject the actions of users being deleted
+    /// @param jsonMapper        the mapper used to read imported histories
+    /// @param maxBatchSize      the maximum number of actions accepted by a single request
+    /// @param importChunkSize   the number of imported actions validated and loaded at a time
+    /// @param importMaxRecords  the maximum number of actions accepted by a single import
+    /// @param importMaxErrors   the maximum number of errors listed in an import response
+    public PlaybackService(EpisodeRepository episodeRepository,
+                           PlaybackStateRepository stateRepository,
+                           PlaybackImportRepository importRepository,
+                           PlaybackBuffer buffer,
+                           HistoryRecorder historyRecorder,
+                           ListeningHistoryStore historyStore,
+                           UserRepository userRepository,
+                           JsonMapper jsonMapper,
+                           @Value("${playback.actions.max-size:500}") int maxBatchSize,
+                           @Value("${playback.import.chunk-size:10000}") int importChunkSize,
+                           @Value("${playback.import.max-records:2000000}") int importMaxRecords,
+                           @Value("${playback.import.max-errors:100}") int importMaxErrors) {
+        this.episodeRepository = episodeRepository;
+        this.stateRepository = stateRepository;
+        this.importRepository = importRepository;
+        this.buffer = buffer;
+        this.historyRecorder = historyRecorder;
+        this.historyStore = historyStore;
+        this.userRepository = userRepository;
+        this.jsonMapper = jsonMapper;
+        this.maxBatchSize = maxBatchSize;
+        this.importChunkSize = importChunkSize;
+        this.importMaxRecords = importMaxRecords;
+        this.importMaxErrors = importMaxErrors;
+    }
+
+    /// Records a batch of actions reported by a user's player.
+    /// The actions are buffered and written shortly after the request returns, both as playback states and to the listening history.
+    /// Timestamps in the future are replaced with the current time, so a device with a fast clock can't pin a state.
+    ///
+    /// @param userId  the database ID of the user
+    /// @param actions the reported actions
+    /// @return the number of actions accepted
+    /// @throws IllegalArgumentException if an action is incomplete or too many actions are reported
+    /// @throws EntityNotFoundException  if an episode doesn't exist, or the user's deletion was requested
+    @Transactional(readOnly = true)
+    public int recordActions(Long userId, List<PlaybackDTO.EpisodeActionDTO> actions) {
+        if (actions.size() > maxBatchSize) {
+            throw new IllegalArgumentException("a maximum of " + maxBatchSize + " actions may be reported at once");
+        }
+        requireWritable(userId);
+
+        final Set<UUID> episodeUuids = new HashSet<>();
+        for (final var action : actions) {
+            final var error = validate(action);
+            if (error != null) {
+                throw new IllegalArgumentException(error);
+            }
+            episodeUuids.add(action.episode());
+        }
+
+        final var episodeIds = resolveEpisodes(episodeUuids);
+        if (episodeIds.size() < episodeUuids.size()) {
+            throw new EntityNotFoundException("episode not found");
+        }
+
+        final var now = Instant.now();
+        final var bufferedAt = System.nanoTime();
+        final List<PlaybackUpdate> updates = new ArrayList<>(actions.size());
+        for (final var action : actions) {
+            final var update = toUpdate(userId, episodeIds.get(action.episode()), action, now, bufferedAt);
+            buffer.add(update);
+            updates.add(update);
+        }
+        historyRecorder.record(toEvents(updates));
+
+        log.debug("Buffered {} playback actions for {}", actions.size(), userId);
+        return actions.size();
+    }
+
+    /// Imports a user's playback history, such as an export from another service.
+    ///
+    /// The upload is a stream of episode actions, either as newline-delimited JSON or as a JSON array.
+    /// It's read, validated and loaded in chunks, so its size isn't limited by memory.
+    /// Invalid actions are skipped and reported. The valid actions are loaded in one transaction,
+    /// and each replaces the stored state of its episode only if it's later.
+    /// Every valid action is also added to the listening history, in the same transaction.
+    ///
+    /// @param userId the database ID of the user
+    /// @param upload the uploaded actions
+    /// @return a summary of the import
+    /// @throws IllegalArgumentException if the upload isn't well-formed or has too many actions
+    /// @throws EntityNotFoundException  if the user's deletion was requested
+    public PlaybackDTO.ImportResponseDTO importHistory(Long userId, InputStream upload) {
+        requireWritable(userId);
+        final var reader = new ImportReader(userId, jsonMapper.readerFor(PlaybackDTO.EpisodeActionDTO.class).readValues(upload));
+        final var updated = importRepository.load(userId, new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return reader.hasNext();
+            }
+
+            @Override
+            public List<PlaybackUpdate> next() {
+                // Called inside the load transaction, so the history rolls back with the states
+                final var chunk = reader.next();
+                historyStore.append(toEvents(chunk));
+                return chunk;
+            }
+        });
+
+        log.info("Imported {} of {} playback actions for {}", reader.accepted, reader.received, userId);
+        return new PlaybackDTO.ImportResponseDTO(reader.received, reader.accepted, reader.received - reader.accepted, updated, reader.errors);
+    }
+
+    /// Gets a user's playback state of an episode, including actions that are still buffered
+    ///
+    /// @param userId      the database ID of the user
+    /// @param episodeUuid the UUID of the episode
+    /// @return the playback state
+    /// @throws EntityNotFoundException if the episode doesn't exist or the user hasn't played it
+    @Transactional(readOnly = true)
+    public PlaybackDTO.PlaybackStateDTO getPlaybackState(Long userId, UUID episodeUuid) throws EntityNotFoundException {
+        final var episodeId = episodeRepository.findKeysByUuidIn(List.of(episodeUuid)).stream()
+                .findFirst()
+                .orElseThrow(() -> new EntityNotFoundException("episode not found"))
+                .id();
+
+        // Check the buffer first: a state that has left it is committed by the time the table is read
+        final var buffered = buffer.get(userId, episodeId);
+        if (buffered.isPresent()) {
+            final var update = buffered.get();
+            return new PlaybackDTO.PlaybackStateDTO(episodeUuid, update.action(), update.position(), update.completed(), update.updatedAt());
+        }
+
+        return stateRepository.findByUserIdAndEpisodeId(userId, episodeId)
+                .map(state -> new PlaybackDTO.PlaybackStateDTO(episodeUuid, state.getAction(), state.getPositionSeconds(), state.isCompleted(), state.getUpdatedAt()))
+                .orElseThrow(() -> new EntityNotFoundException("playback state not found"));
+    }
+
+    /// Checks that an action is complete
+    ///
+    /// @param action the reported action
+    /// @return the error message, or `null` if the action is valid
+    private static String validate(PlaybackDTO.EpisodeActionDTO action) {
+        if (action == null || action.episode() == null || action.action() == null) {
+            return "every action must name an episode and an action";
+        }
+        if (action.position() < 0) {
+            return "position must not be negative";
+        }
+        return null;
+    }
+
+    /// Rejects the actions of a user whose deletion was requested after their request was authenticated.
+    /// Actions that slip past this are skipped when they're written, so this only spares buffering them.
+    ///
+    /// @param userId the database ID of the user
+    /// @throws EntityNotFoundException if the user doesn't exist or their deletion was requested
+    private void requireWritable(Long userId) {
+        if (!userRepository.existsByIdAndDeletionRequestedAtIsNull(userId)) {
+            throw new EntityNotFoundException("user not found");
+        }
+    }
+
+    /// Finds the database IDs of a set of episodes
+    ///
+    /// @param episodeUuids the UUIDs of the episodes
+    /// @return the IDs of the episodes that exist, by UUID
+    private Map<UUID, Long> resolveEpisodes(Collection<UUID> episodeUuids) {
+        if (episodeUuids.isEmpty()) {
+            return Map.of();
+        }
+        return episodeRepository.findKeysByUuidIn(episodeUuids).stream()
+                .collect(Collectors.toMap(EpisodeRepository.EpisodeKey::uuid, EpisodeRepository.EpisodeKey::id));
+    }
+
+    /// Converts a valid action, replacing a missing or future timestamp with the current time
+    private static PlaybackUpdate toUpdate(Long userId, Long episodeId, PlaybackDTO.EpisodeActionDTO action, Instant now, long bufferedAt) {
+        final var timestamp = action.timestamp() == null || action.timestamp().isAfter(now) ? now : action.timestamp();
+        return new PlaybackUpdate(userId, episodeId, action.action(), action.position(), timestamp, bufferedAt);
+    }
+
+    /// Converts playback updates to listening history events
+    private static List<ListeningEvent> toEvents(List<PlaybackUpdate> updates) {
+        return updates.stream()
+                .map(update -> new ListeningEvent(update.userId(), update.episodeId(), update.action(), update.position(), update.updatedAt()))
+                .toList();
+    }
+
+    /// Reads an upload in chunks of valid actions, and records the actions it rejects
+    private final class ImportReader implements Iterator<List<PlaybackUpdate>> {
+        private final Long userId;
+        private final MappingIterator<PlaybackDTO.EpisodeActionDTO> records;
+        private final List<PlaybackDTO.ImportErrorDTO> errors = new ArrayList<>();
+        private final Instant now = Instant.now();
+        private int received;
+        private int accepted;
+        private List<PlaybackUpdate> chunk;
+
+        private ImportReader(Long userId, MappingIterator<PlaybackDTO.EpisodeActionDTO> records) {
+            this.userId = userId;
+            this.records = records;
+        }
+
+        @Override
+        public boolean hasNext() {
+            // A chunk can come out empty if every action in it was rejected, so keep reading until one doesn't
+            while (chunk == null || chunk.isEmpty()) {
+                if (!hasNextRecord()) {
+                    return false;
+                }
+                chunk = readChunk();
+            }
+            return true;
+        }
+
+        @Override
+        public List<PlaybackUpdate> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final var next = chunk;
+            chunk = null;
+            return next;
+        }
+
+        private List<PlaybackUpdate> readChunk() {
+            final List<PlaybackDTO.EpisodeActionDTO> actions = new ArrayList<>(importChunkSize);
+            final List<Integer> positions = new ArrayList<>(importChunkSize);
+            final Set<UUID> episodeUuids = new HashSet<>();
+            final List<PlaybackDTO.ImportErrorDTO> chunkErrors = new ArrayList<>();
+            while (actions.size() < importChunkSize && hasNextRecord()) {
+                received++;
+                if (received > importMaxRecords) {
+                    throw new IllegalArgumentException("a maximum of " + importMaxRecords + " actions may be imported at once");
+                }
+
+                final PlaybackDTO.EpisodeActionDTO action;
+                try {
+                    action = records.nextValue();
+                } catch (JacksonException e) {
+                    throw new IllegalArgumentException("malformed action at record " + received);
+                }
+
+                final var error = validate(action);
+                if (error != null) {
+                    chunkErrors.add(new PlaybackDTO.ImportErrorDTO(received, error));
+                    continue;
+                }
+                actions.add(action);
+                positions.add(received);
+                episodeUuids.add(action.episode());
+            }
+
+            final var episodeIds = resolveEpisodes(episodeUuids);
+            final List<PlaybackUpdate> updates = new ArrayList<>(actions.size());
+            for (var i = 0; i < actions.size(); i++) {
+                final var action = actions.get(i);
+                final var episodeId = episodeIds.get(action.episode());
+                if (episodeId == null) {
+                    chunkErrors.add(new PlaybackDTO.ImportErrorDTO(positions.get(i), "episode not found"));
+                    continue;
+                }
+                updates.add(toUpdate(userId, episodeId, action, now, 0));
+            }
+            accepted += updates.size();
+
+            // List the errors in the order of the upload, however they were found
+            chunkErrors.sort(Comparator.comparingInt(PlaybackDTO.ImportErrorDTO::record));
+            for (final var error : chunkErrors) {
+                if (errors.size() < importMaxErrors) {
+                    errors.add(error);
+                }
+            }
+            return updates;
+        }
+
+        private boolean hasNextRecord() {
+            try {
+                return records.hasNextValue();
+            } catch (JacksonException e) {
+                throw new IllegalArgumentException("malformed action at record " + (received + 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.openpodcastapi.opa.playback;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/// An entity holding a user's playback state of an episode.
+///
+/// Only the latest action is kept. Rows are written in batches by [PlaybackBuffer], never directly by requests.
+@Entity
+@Table(name = "playback_states", indexes = {
+        @Index(name = "uc_playback_states_user_id_episode_id", columnList = "user_id, episode_id", unique = true)
+})
+public class PlaybackStateEntity {
+    /// The entity ID
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /// The database ID of the user
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private Long userId;
+
+    /// The database ID of the episode
+    @Column(name = "episode_id", nullable = false, updatable = false)
+    private Long episodeId;
+
+    /// The latest action
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private PlaybackAction action;
+
+    /// The playback position in seconds
+    @Column(nullable = false)
+    private int positionSeconds;
+
+    /// Whether the episode was played to the end
+    @Column(nullable = false)
+    private boolean completed;
+
+    /// The time of the latest action, as reported by the device
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    /// No-args constructor
+    public PlaybackStateEntity() {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param userId    the database ID of the user
+    /// @param episodeId the database ID of the episode
+    public PlaybackStateEntity(Long userId, Long episodeId) {
+        this.userId = userId;
+        this.episodeId = episodeId;
+    }
+
+    /// @return the entity ID
+    public Long getId() {
+        return id;
+    }
+
+    /// @return the database ID of the user
+    public Long getUserId() {
+        return userId;
+    }
+
+    /// @return the database ID of the episode
+    public Long getEpisodeId() {
+        return episodeId;
+    }
+
+    /// @return the latest action
+    public PlaybackAction getAction() {
+        return action;
+    }
+
+    /// @param action the latest action
+    public void setAction(PlaybackAction action) {
+        this.action = action;
+    }
+
+    /// @return the playback position in seconds
+    public int getPositionSeconds() {
+        return positionSeconds;
+    }
+
+    /// @param positionSeconds the playback position in seconds
+    public void setPositionSeconds(int positionSeconds) {
+        this.positionSeconds = positionSeconds;
+    }
+
+    /// @return whether the episode was played to the end
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /// @param completed whether the episode was played to the end
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    /// @return the time of the latest action
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /// @param updatedAt the time of the latest action
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,27 @@
+package org.openpodcastapi.opa.playback;
+
+import org.jspecify.annotations.NonNull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/// Repository for playback state interactions
+@Repository
+public interface PlaybackStateRepository extends JpaRepository<@NonNull PlaybackStateEntity, @NonNull Long> {
+    /// Finds a user's playback state of an episode
+    ///
+    /// @param userId    the database ID of the user
+    /// @param episodeId the database ID of the episode
+    /// @return the playback state, if the user has played the episode
+    Optional<PlaybackStateEntity> findByUserIdAndEpisodeId(Long userId, Long episodeId);
+
+    /// Finds the playback states of any of a set of users for any of a set of episodes
+    ///
+    /// @param userIds    the database IDs of the users
+    /// @param episodeIds the database IDs of the episodes
+    /// @return the matching playback states
+    List<PlaybackStateEntity> findByUserIdInAndEpisodeIdIn(Collection<Long> userIds, Collection<Long> episodeIds);
+}
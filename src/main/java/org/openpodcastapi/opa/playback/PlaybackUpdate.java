@@ -0,0 +1,29 @@
+package org.openpodcastapi.opa.playback;
+
+import java.time.Instant;
+
+/// The latest playback state of an episode for a user, waiting to be written
+///
+/// @param userId     the database ID of the user
+/// @param episodeId  the database ID of the episode
+/// @param action     the latest action
+/// @param position   the playback position in seconds
+/// @param updatedAt  the time of the latest action, as reported by the device
+/// @param bufferedAt the [System#nanoTime()] at which the first action since the last flush was buffered
+record PlaybackUpdate(long userId, long episodeId, PlaybackAction action, int position, Instant updatedAt, long bufferedAt) {
+    /// @return whether the latest action was [PlaybackAction#COMPLETE]
+    boolean completed() {
+        return action == PlaybackAction.COMPLETE;
+    }
+
+    /// Coalesces a newer update into this one. The later action wins, and ties go to the update received last.
+    ///
+    /// @param next the update received after this one
+    /// @return the update to keep
+    PlaybackUpdate merge(PlaybackUpdate next) {
+        if (next.updatedAt.isBefore(updatedAt)) {
+            return this;
+        }
+        return new PlaybackUpdate(userId, episodeId, next.action, next.position, next.updatedAt, Math.min(bufferedAt, next.bufferedAt));
+    }
+}
@@ -0,0 +1,146 @@
+package org.openpodcastapi.opa.playback;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.openpodcastapi.opa.util.DatabasePlatform;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.stream.Collectors;
+
+/// Repository for batched playback state upserts.
+///
+/// On PostgreSQL, each batch is a single multi-row `INSERT ... ON CONFLICT DO UPDATE` statement.
+/// Other databases read the existing states of the batch in one query and insert or update the rest through JPA.
+/// In both cases a stored state is only replaced by a state with a later action, so late or replayed batches can't move a position backwards.
+/// States of users who were deleted, or whose deletion was requested, are skipped, whichever node buffered them.
+@Repository
+public class PlaybackUpsertRepository {
+    private static final String UPSERT_INSERT = """
+            INSERT INTO playback_states (user_id, episode_id, action, position_seconds, completed, updated_at)
+            VALUES
+            """;
+
+    private static final String UPSERT_ROW = "(:userId%1$d, :episodeId%1$d, :action%1$d, :position%1$d, :completed%1$d, :updatedAt%1$d)";
+
+    private static final String UPSERT_CONFLICT = """
+            ON CONFLICT (user_id, episode_id) DO UPDATE
+            SET action = EXCLUDED.action,
+                position_seconds = EXCLUDED.position_seconds,
+                completed = EXCLUDED.completed,
+                updated_at = EXCLUDED.updated_at
+            WHERE playback_states.updated_at <= EXCLUDED.updated_at
+            """;
+
+    private final EntityManager entityManager;
+    private final DatabasePlatform databasePlatform;
+    private final PlaybackStateRepository stateRepository;
+    private final UserRepository userRepository;
+
+    /// Required-args constructor
+    ///
+    /// @param entityManager    the entity manager used to run the statements
+    /// @param databasePlatform the platform used to select the statement dialect
+    /// @param stateRepository  the repository used to read existing states on databases other than PostgreSQL
+    /// @param userRepository   the repository used to skip the states of users being deleted
+    public PlaybackUpsertRepository(EntityManager entityManager, DatabasePlatform databasePlatform, PlaybackStateRepository stateRepository, UserRepository userRepository) {
+        this.entityManager = entityManager;
+        this.databasePlatform = databasePlatform;
+        this.stateRepository = stateRepository;
+        this.userRepository = userRepository;
+    }
+
+    /// Inserts a batch of playback states, or updates the stored states of the same users and episodes.
+    /// The batch must contain at most one update per user and episode.
+    ///
+    /// @param updates the updates to write
+    /// @return the number of rows inserted or updated
+    @Transactional
+    public int upsert(List<PlaybackUpdate> updates) {
+        if (updates.isEmpty()) {
+            return 0;
+        }
+
+        final var writableUsers = Set.copyOf(userRepository.lockWritableIds(updates.stream().map(PlaybackUpdate::userId).collect(Collectors.toSet())));
+        final var writable = updates.stream().filter(update -> writableUsers.contains(update.userId())).toList();
+        if (writable.isEmpty()) {
+            return 0;
+        }
+
+        if (databasePlatform.isPostgres()) {
+            return upsertPostgres(writable);
+        }
+        return upsertPortable(writable);
+    }
+
+    private int upsertPostgres(List<PlaybackUpdate> updates) {
+        final var sql = new StringJoiner(",\n", UPSERT_INSERT, "\n" + UPSERT_CONFLICT);
+        for (var i = 0; i < updates.size(); i++) {
+            sql.add(UPSERT_ROW.formatted(i));
+        }
+
+        @SuppressWarnings("unchecked") final NativeQuery<?> query = entityManager
+                .createNativeQuery(sql.toString())
+                .unwrap(NativeQuery.class);
+
+        for (var i = 0; i < updates.size(); i++) {
+            final var update = updates.get(i);
+            query.setParameter("userId" + i, update.userId());
+            query.setParameter("episodeId" + i, update.episodeId());
+            query.setParameter("action" + i, update.action().name());
+            query.setParameter("position" + i, update.position());
+            query.setParameter("completed" + i, update.completed());
+            query.setParameter("updatedAt" + i, update.updatedAt());
+        }
+
+        return query.executeUpdate();
+    }
+
+    private int upsertPortable(List<PlaybackUpdate> updates) {
+        final Set<Long> userIds = new HashSet<>();
+        final Set<Long> episodeIds = new HashSet<>();
+        for (final var update : updates) {
+            userIds.add(update.userId());
+            episodeIds.add(update.episodeId());
+        }
+
+        // The query matches every combination of the users and episodes, so keep only the pairs in the batch
+        final Map<Key, PlaybackStateEntity> existing = new HashMap<>();
+        stateRepository.findByUserIdInAndEpisodeIdIn(userIds, episodeIds)
+                .forEach(state -> existing.put(new Key(state.getUserId(), state.getEpisodeId()), state));
+
+        var changed = 0;
+        for (final var update : updates) {
+            var state = existing.get(new Key(update.userId(), update.episodeId()));
+            if (state == null) {
+                state = new PlaybackStateEntity(update.userId(), update.episodeId());
+                apply(state, update);
+                entityManager.persist(state);
+                changed++;
+            } else if (!state.getUpdatedAt().isAfter(update.updatedAt())) {
+                apply(state, update);
+                changed++;
+            }
+        }
+
+        entityManager.flush();
+        return changed;
+    }
+
+    private static void apply(PlaybackStateEntity state, PlaybackUpdate update) {
+        state.setAction(update.action());
+        state.setPositionSeconds(update.position());
+        state.setCompleted(update.completed());
+        state.setUpdatedAt(update.updatedAt());
+    }
+
+    private record Key(long userId, long episodeId) {
+    }
+}
@@ -0,0 +1,152 @@
+package org.openpodcastapi.opa.queue;
+
+import jakarta.annotation.Nullable;
+
+/// Generates the order keys of queue items.
+///
+/// A key is a fraction between 0 and 1 written in base 62, without the leading `0.`.
+/// The digits sort in ASCII order, so keys compare as plain strings, and there is always a key between two others.
+/// Keys never end in `0`, since `V` and `V0` are the same fraction and nothing fits between them.
+public final class FractionalIndex {
+    /// The digits of a key, in ascending order
+    static final String DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    private static final int BASE = DIGITS.length();
+
+    /// The digit stepped when placing a key at either end of a list
+    private static final int STEP_LENGTH = 4;
+
+    private FractionalIndex() {
+    }
+
+    /// Generates a key between two others.
+    /// A key at either end of the list is one step of the fourth digit away from its neighbour,
+    /// instead of halfway to the end, so lists built by appending or prepending keep short keys.
+    ///
+    /// @param before the key to sort after, or `null` for the start of the list
+    /// @param after  the key to sort before, or `null` for the end of the list
+    /// @return a key greater than `before` and less than `after`
+    /// @throws IllegalArgumentException if a key is malformed or `before` isn't less than `after`
+    public static String between(@Nullable String before, @Nullable String after) {
+        final var lower = before == null ? "" : before;
+        validate(lower);
+        if (after != null) {
+            validate(after);
+            if (after.isEmpty() || lower.compareTo(after) >= 0) {
+                throw new IllegalArgumentException("%s is not less than %s".formatted(before, after));
+            }
+        }
+        if (before != null && after == null) {
+            final var next = step(before, 1);
+            return next != null ? next : midpoint(lower, null);
+        }
+        if (before == null && after != null) {
+            final var previous = step(after, -1);
+            return previous != null ? previous : midpoint("", after);
+        }
+        return midpoint(lower, after);
+    }
+
+    /// Generates evenly spaced keys for a list, as short as they can be while leaving
+    /// at least 61 unused keys of the same length between neighbours
+    ///
+    /// @param size the number of keys to generate
+    /// @return the keys, in ascending order
+    public static String[] spread(int size) {
+        var length = 1;
+        var span = (long) BASE;
+        while (span < (size + 1L) * BASE) {
+            length++;
+            span *= BASE;
+        }
+
+        final var keys = new String[size];
+        final var digits = new char[length];
+        for (var i = 0; i < size; i++) {
+            var value = (i + 1L) * span / (size + 1L);
+            for (var position = length - 1; position >= 0; position--) {
+                digits[position] = DIGITS.charAt((int) (value % BASE));
+                value /= BASE;
+            }
+            var end = length;
+            while (digits[end - 1] == '0') {
+                end--;
+            }
+            keys[i] = new String(digits, 0, end);
+        }
+        return keys;
+    }
+
+    private static String midpoint(String lower, @Nullable String upper) {
+        if (upper != null) {
+            // Keep the digits both keys share, padding the lower key with zeros
+            var shared = 0;
+            while (shared < upper.length() && digit(lower, shared) == upper.charAt(shared)) {
+                shared++;
+            }
+            if (shared > 0) {
+                return upper.substring(0, shared) + midpoint(lower.substring(Math.min(shared, lower.length())), upper.substring(shared));
+            }
+        }
+
+        final var lowerDigit = lower.isEmpty() ? 0 : DIGITS.indexOf(lower.charAt(0));
+        final var upperDigit = upper == null ? BASE : DIGITS.indexOf(upper.charAt(0));
+        if (upperDigit - lowerDigit > 1) {
+            return String.valueOf(DIGITS.charAt((lowerDigit + upperDigit) / 2));
+        }
+        // The first digits are adjacent: a longer upper key has its first digit alone between them,
+        // otherwise keep the lower digit and look further down
+        if (upper != null && upper.length() > 1) {
+            return upper.substring(0, 1);
+        }
+        return DIGITS.charAt(lowerDigit) + midpoint(lower.isEmpty() ? "" : lower.substring(1), null);
+    }
+
+    /// Moves a key one step of the fourth digit up or down, first rounding it to four digits
+    /// in the direction of the step
+    ///
+    /// @return the new key, or `null` if it would reach 0 or 1
+    private static String step(String key, int direction) {
+        final var digits = new int[STEP_LENGTH];
+        for (var i = 0; i < STEP_LENGTH; i++) {
+            digits[i] = DIGITS.indexOf(digit(key, i));
+        }
+        // Rounding a longer key down already steps below it
+        if (direction > 0 || key.length() <= STEP_LENGTH) {
+            var position = STEP_LENGTH - 1;
+            while (position >= 0 && digits[position] == (direction > 0 ? BASE - 1 : 0)) {
+                digits[position] = direction > 0 ? 0 : BASE - 1;
+                position--;
+            }
+            if (position < 0) {
+                return null;
+            }
+            digits[position] += direction;
+        }
+
+        final var builder = new StringBuilder(STEP_LENGTH);
+        for (final var digit : digits) {
+            builder.append(DIGITS.charAt(digit));
+        }
+        var end = builder.length();
+        while (end > 0 && builder.charAt(end - 1) == '0') {
+            end--;
+        }
+        return end == 0 ? null : builder.substring(0, end);
+    }
+
+    private static char digit(String key, int position) {
+        return position < key.length() ? key.charAt(position) : '0';
+    }
+
+    private static void validate(String key) {
+        for (var i = 0; i < key.length(); i++) {
+            if (DIGITS.indexOf(key.charAt(i)) < 0) {
+                throw new IllegalArgumentException("Invalid key: " + key);
+            }
+        }
+        if (!key.isEmpty() && key.charAt(key.length() - 1) == '0') {
+            throw new IllegalArgumentException("Invalid key: " + key);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.openpodcastapi.opa.queue;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nullable;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/// Container for all queue-related data transfer objects
+public class QueueDTO {
+    /// A DTO representing an episode in a user's queue
+    ///
+    /// @param episode   the UUID of the episode
+    /// @param position  the order key of the item. Items sort by comparing their keys as ASCII strings.
+    /// @param createdAt the time the episode was added to the queue
+    /// @param updatedAt the time the item was last placed
+    public record QueueItemDTO(
+            @JsonProperty(required = true) UUID episode,
+            @JsonProperty(required = true) String position,
+            @JsonProperty(required = true) Instant createdAt,
+            @JsonProperty(required = true) Instant updatedAt
+    ) {
+    }
+
+    /// A DTO representing where to place an episode in a user's queue.
+    /// At most one of the fields may be set. An empty request places the episode at the end of the queue.
+    ///
+    /// @param after  the UUID of the queued episode to place the episode after
+    /// @param before the UUID of the queued episode to place the episode before
+    public record PlaceItemRequestDTO(
+            @JsonProperty @Nullable UUID after,
+            @JsonProperty @Nullable UUID before
+    ) {
+    }
+}
@@ -0,0 +1,111 @@
+package org.openpodcastapi.opa.queue;
+
+import jakarta.persistence.*;
+import org.openpodcastapi.opa.pagination.Cursorable;
+
+import java.time.Instant;
+
+/// An entity representing an episode in a user's "Up Next" queue.
+///
+/// Items are ordered by their [FractionalIndex] key, then by ID.
+/// Placing an item only writes its own key, so moves and insertions update a single row however long the queue is.
+@Entity
+@Table(name = "queue_items", indexes = {
+        @Index(name = "uc_queue_items_user_id_episode_id", columnList = "user_id, episode_id", unique = true),
+        @Index(name = "queue_items_user_id_order_key", columnList = "user_id, order_key, id")
+})
+public class QueueItemEntity implements Cursorable {
+    /// The longest key the column holds
+    public static final int MAX_KEY_LENGTH = 255;
+
+    /// The entity ID
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /// The database ID of the user
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private Long userId;
+
+    /// The database ID of the episode
+    @Column(name = "episode_id", nullable = false, updatable = false)
+    private Long episodeId;
+
+    /// The position of the item in the queue
+    @Column(name = "order_key", nullable = false, length = MAX_KEY_LENGTH)
+    private String orderKey;
+
+    /// The time the episode was added to the queue
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    /// The time the item was last placed
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    /// No-args constructor
+    public QueueItemEntity() {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param userId    the database ID of the user
+    /// @param episodeId the database ID of the episode
+    /// @param orderKey  the position of the item in the queue
+    public QueueItemEntity(Long userId, Long episodeId, String orderKey) {
+        this.userId = userId;
+        this.episodeId = episodeId;
+        this.orderKey = orderKey;
+    }
+
+    /// @return the entity ID
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    /// @return the database ID of the user
+    public Long getUserId() {
+        return userId;
+    }
+
+    /// @return the database ID of the episode
+    public Long getEpisodeId() {
+        return episodeId;
+    }
+
+    /// @return the position of the item in the queue
+    public String getOrderKey() {
+        return orderKey;
+    }
+
+    /// @param orderKey the position of the item in the queue
+    public void setOrderKey(String orderKey) {
+        this.orderKey = orderKey;
+    }
+
+    /// @return the time the episode was added to the queue
+    @Override
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /// @return the time the item was last placed
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /// Performs actions on initial save
+    @PrePersist
+    public void prePersist() {
+        final Instant timestamp = Instant.now();
+        this.createdAt = timestamp;
+        this.updatedAt = timestamp;
+    }
+
+    /// Performs actions when an entity is updated
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = Instant.now();
+    }
+}
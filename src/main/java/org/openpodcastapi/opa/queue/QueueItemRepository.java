@@ -0,0 +1,85 @@
+package org.openpodcastapi.opa.queue;
+
+import jakarta.persistence.LockModeType;
+import org.jspecify.annotations.NonNull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/// Repository for queue item interactions.
+///
+/// The neighbour lookups each read a single entry of the `queue_items_user_id_order_key` index.
+/// They skip the item being placed, so moving an item next to where it already is still finds a gap.
+@Repository
+public interface QueueItemRepository extends JpaRepository<@NonNull QueueItemEntity, @NonNull Long> {
+    /// Finds the item of an episode in a user's queue
+    ///
+    /// @param userId      the database ID of the user
+    /// @param episodeUuid the UUID of the episode
+    /// @return the item, if the episode is queued
+    @Query("select q from QueueItemEntity q where q.userId = :userId and q.episodeId = (select e.id from EpisodeEntity e where e.uuid = :episodeUuid)")
+    Optional<QueueItemEntity> findByUserIdAndEpisodeUuid(Long userId, UUID episodeUuid);
+
+    /// Finds the key of the last item in a user's queue
+    ///
+    /// @param userId     the database ID of the user
+    /// @param excludedId the database ID of an item to skip
+    /// @return the greatest key, or `null` if the queue is empty
+    @Query("select max(q.orderKey) from QueueItemEntity q where q.userId = :userId and q.id <> :excludedId")
+    String findLastKey(Long userId, Long excludedId);
+
+    /// Finds the key of the item following a key in a user's queue
+    ///
+    /// @param userId     the database ID of the user
+    /// @param key        the key to follow
+    /// @param excludedId the database ID of an item to skip
+    /// @return the smallest greater key, or `null` if there is none
+    @Query("select min(q.orderKey) from QueueItemEntity q where q.userId = :userId and q.orderKey > :key and q.id <> :excludedId")
+    String findNextKey(Long userId, String key, Long excludedId);
+
+    /// Finds the key of the item preceding a key in a user's queue
+    ///
+    /// @param userId     the database ID of the user
+    /// @param key        the key to precede
+    /// @param excludedId the database ID of an item to skip
+    /// @return the greatest smaller key, or `null` if there is none
+    @Query("select max(q.orderKey) from QueueItemEntity q where q.userId = :userId and q.orderKey < :key and q.id <> :excludedId")
+    String findPreviousKey(Long userId, String key, Long excludedId);
+
+    /// Counts the items in a user's queue
+    ///
+    /// @param userId the database ID of the user
+    /// @return the number of items
+    long countByUserId(Long userId);
+
+    /// Locks a user's row until the transaction ends, so placements in their queue run one at a time.
+    /// Concurrent placements would otherwise read the same neighbours and write the same key, or both pass the size check.
+    ///
+    /// @param userId the database ID of the user
+    /// @return the database ID of the user, or `null` if the user doesn't exist
+    @Query(value = "SELECT id FROM users WHERE id = :userId FOR UPDATE", nativeQuery = true)
+    Long lockQueue(Long userId);
+
+    /// Finds every item in a user's queue in order, locking them until the transaction ends
+    ///
+    /// @param userId the database ID of the user
+    /// @return the items
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select q from QueueItemEntity q where q.userId = :userId order by q.orderKey, q.id")
+    List<QueueItemEntity> findAllForUpdate(Long userId);
+
+    /// Removes an episode from a user's queue
+    ///
+    /// @param userId      the database ID of the user
+    /// @param episodeUuid the UUID of the episode
+    /// @return the number of items removed
+    @Modifying
+    @Query("delete from QueueItemEntity q where q.userId = :userId and q.episodeId = (select e.id from EpisodeEntity e where e.uuid = :episodeUuid)")
+    int deleteByUserIdAndEpisodeUuid(Long userId, UUID episodeUuid);
+}
@@ -0,0 +1,35 @@
+package org.openpodcastapi.opa.queue;
+
+import org.slf4j.Logger;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// A scheduled task to rebalance the queues whose keys have grown past `queue.rebalance-key-length`.
+/// Each queue is rebalanced in its own transaction, so a failure only delays that queue until its next long key.
+@Component
+public class QueueRebalanceScheduler {
+    private static final Logger log = getLogger(QueueRebalanceScheduler.class);
+    private final QueueService queueService;
+
+    /// Required-args constructor
+    ///
+    /// @param queueService the service used to rebalance queues
+    public QueueRebalanceScheduler(QueueService queueService) {
+        this.queueService = queueService;
+    }
+
+    /// Rebalances the queues requested since the previous run.
+    /// The next run starts `queue.rebalance-delay` after the previous one finishes.
+    @Scheduled(fixedDelayString = "${queue.rebalance-delay:PT10S}", initialDelayString = "${queue.rebalance-delay:PT10S}")
+    public void rebalance() {
+        for (final var userId : queueService.drainRebalanceRequests()) {
+            try {
+                queueService.rebalance(userId);
+            } catch (RuntimeException e) {
+                log.warn("Unable to rebalance the queue of user {}", userId, e);
+            }
+        }
+    }
+}
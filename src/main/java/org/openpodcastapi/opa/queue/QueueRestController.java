@@ -0,0 +1,73 @@
+package org.openpodcastapi.opa.queue;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.jspecify.annotations.NonNull;
+import org.openpodcastapi.opa.pagination.CursorPage;
+import org.openpodcastapi.opa.service.CustomUserDetails;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+/// Controller for API "Up Next" queue requests
+@RestController
+@RequestMapping("/api/v1/queue")
+public class QueueRestController {
+    private final QueueService service;
+
+    /// Required-args constructor
+    ///
+    /// @param service the service used for queue actions
+    public QueueRestController(QueueService service) {
+        this.service = service;
+    }
+
+    /// Returns the user's queue, in order
+    ///
+    /// @param user   the custom user details of the authenticated user
+    /// @param cursor the base64-encoded cursor string
+    /// @param limit  the number of results to return
+    /// @return a response containing queue items
+    /// @throws IllegalArgumentException if the cursor is invalid or the limit isn't positive
+    @GetMapping
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<CursorPage<QueueDTO.QueueItemDTO>> getQueue(@AuthenticationPrincipal CustomUserDetails user, @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(service.getQueue(user.id(), cursor, limit));
+    }
+
+    /// Adds an episode to the user's queue, or moves it if it's already queued
+    ///
+    /// @param uuid    the UUID of the episode
+    /// @param request where to place the episode. Defaults to the end of the queue.
+    /// @param user    the custom user details of the authenticated user
+    /// @return a response containing the placed queue item
+    /// @throws EntityNotFoundException  if the episode doesn't exist, or the episode to place it next to isn't queued
+    /// @throws IllegalArgumentException if the UUID is improperly formatted, the placement is invalid, or the queue is full
+    @PutMapping("/{uuid}")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<QueueDTO.@NonNull QueueItemDTO> placeItem(@PathVariable String uuid, @RequestBody(required = false) QueueDTO.PlaceItemRequestDTO request, @AuthenticationPrincipal CustomUserDetails user) throws EntityNotFoundException {
+        // If the value is invalid, the GlobalExceptionHandler will throw a 400.
+        final var uuidValue = UUID.fromString(uuid);
+
+        return ResponseEntity.ok(service.placeItem(user.id(), uuidValue, request));
+    }
+
+    /// Removes an episode from the user's queue
+    ///
+    /// @param uuid the UUID of the episode
+    /// @param user the custom user details of the authenticated user
+    /// @return an empty response
+    /// @throws EntityNotFoundException  if the episode isn't queued
+    /// @throws IllegalArgumentException if the UUID is improperly formatted
+    @DeleteMapping("/{uuid}")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<Void> removeItem(@PathVariable String uuid, @AuthenticationPrincipal CustomUserDetails user) throws EntityNotFoundException {
+        // If the value is invalid, the GlobalExceptionHandler will throw a 400.
+        final var uuidValue = UUID.fromString(uuid);
+
+        service.removeItem(user.id(), uuidValue);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,210 @@
+package org.openpodcastapi.opa.queue;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.openpodcastapi.opa.episode.EpisodeRepository;
+import org.openpodcastapi.opa.pagination.CursorPage;
+import org.openpodcastapi.opa.pagination.CursorRepository;
+import org.openpodcastapi.opa.pagination.CursorUtility;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Service for "Up Next" queue actions.
+///
+/// Each item carries a [FractionalIndex] key, and placing an item gives it a key between its new neighbours'.
+/// Inserting or moving an item therefore writes one row, after a fixed number of single-row index lookups.
+/// Keys grow when items keep landing in the same gap, so a queue with a key longer than `queue.rebalance-key-length`
+/// is given evenly spaced keys again by [QueueRebalanceScheduler].
+/// Placements and rebalances lock the user's row first, so they run one at a time for each queue.
+@Service
+public class QueueService {
+    private static final Logger log = getLogger(QueueService.class);
+    private static final QQueueItemEntity qQueueItem = QQueueItemEntity.queueItemEntity;
+
+    /// Stands in for the ID of an item that isn't saved yet when looking up neighbours, since IDs start at 1
+    private static final long UNSAVED_ID = 0L;
+
+    private final QueueItemRepository itemRepository;
+    private final EpisodeRepository episodeRepository;
+    private final CursorRepository cursorRepository;
+    private final Set<Long> rebalanceRequests = ConcurrentHashMap.newKeySet();
+    private final int maxSize;
+    private final int rebalanceKeyLength;
+    private final Counter inserted;
+    private final Counter moved;
+    private final Counter rebalanced;
+
+    /// All-args constructor
+    ///
+    /// @param itemRepository     the repository used for queue items
+    /// @param episodeRepository  the repository used to find queued episodes
+    /// @param cursorRepository   the cursor repository used for paginated requests
+    /// @param meterRegistry      the registry used to publish queue metrics
+    /// @param maxSize            the maximum number of episodes in a queue
+    /// @param rebalanceKeyLength the key length above which a queue is rebalanced
+    public QueueService(QueueItemRepository itemRepository,
+                        EpisodeRepository episodeRepository,
+                        CursorRepository cursorRepository,
+                        MeterRegistry meterRegistry,
+                        @Value("${queue.max-size:1000}") int maxSize,
+                        @Value("${queue.rebalance-key-length:12}") int rebalanceKeyLength) {
+        this.itemRepository = itemRepository;
+        this.episodeRepository = episodeRepository;
+        this.cursorRepository = cursorRepository;
+        this.maxSize = maxSize;
+        this.rebalanceKeyLength = rebalanceKeyLength;
+        this.inserted = Counter.builder("queue.placements").tag("result", "inserted").register(meterRegistry);
+        this.moved = Counter.builder("queue.placements").tag("result", "moved").register(meterRegistry);
+        this.rebalanced = Counter.builder("queue.rebalances").register(meterRegistry);
+    }
+
+    /// Gets a user's queue, in order
+    ///
+    /// @param userId the database ID of the user
+    /// @param cursor the encoded cursor
+    /// @param limit  the number of results to return
+    /// @return a paginated set of queue items
+    /// @throws IllegalArgumentException if the cursor is invalid or the limit isn't positive
+    @Transactional(readOnly = true)
+    public CursorPage<QueueDTO.QueueItemDTO> getQueue(Long userId, String cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+
+        final var cursorPayload = cursor == null
+                ? null
+                : CursorUtility.decode(cursor);
+
+        final var page = cursorRepository.findWithKeyCursor(qQueueItem, qQueueItem.orderKey, QueueItemEntity::getOrderKey,
+                cursorPayload, limit, qQueueItem.userId.eq(userId));
+        if (page.data().isEmpty()) {
+            return new CursorPage<>(List.of(), null, null);
+        }
+
+        final Map<Long, UUID> episodeUuids = episodeRepository.findKeysByIdIn(page.data().stream().map(QueueItemEntity::getEpisodeId).toList()).stream()
+                .collect(Collectors.toMap(EpisodeRepository.EpisodeKey::id, EpisodeRepository.EpisodeKey::uuid));
+        return page.map(item -> toDto(item, episodeUuids.get(item.getEpisodeId())));
+    }
+
+    /// Adds an episode to a user's queue, or moves it if it's already queued
+    ///
+    /// @param userId      the database ID of the user
+    /// @param episodeUuid the UUID of the episode
+    /// @param request     where to place the episode. Defaults to the end of the queue.
+    /// @return the placed queue item
+    /// @throws EntityNotFoundException  if the episode doesn't exist, or the episode to place it next to isn't queued
+    /// @throws IllegalArgumentException if the placement is invalid or the queue is full
+    @Transactional
+    public QueueDTO.QueueItemDTO placeItem(Long userId, UUID episodeUuid, QueueDTO.PlaceItemRequestDTO request) throws EntityNotFoundException {
+        final var placement = request == null ? new QueueDTO.PlaceItemRequestDTO(null, null) : request;
+        if (placement.after() != null && placement.before() != null) {
+            throw new IllegalArgumentException("only one of after and before may be set");
+        }
+        if (episodeUuid.equals(placement.after()) || episodeUuid.equals(placement.before())) {
+            throw new IllegalArgumentException("an episode can't be placed next to itself");
+        }
+
+        itemRepository.lockQueue(userId);
+        final var existing = itemRepository.findByUserIdAndEpisodeUuid(userId, episodeUuid);
+        final QueueItemEntity item;
+        if (existing.isPresent()) {
+            item = existing.get();
+        } else {
+            final var episodeId = episodeRepository.findKeysByUuidIn(List.of(episodeUuid)).stream()
+                    .findFirst()
+                    .orElseThrow(() -> new EntityNotFoundException("episode not found"))
+                    .id();
+            if (itemRepository.countByUserId(userId) >= maxSize) {
+                throw new IllegalArgumentException("the queue can hold at most " + maxSize + " episodes");
+            }
+            item = new QueueItemEntity(userId, episodeId, null);
+        }
+
+        final var excludedId = item.getId() == null ? UNSAVED_ID : item.getId();
+        var key = keyFor(userId, placement, excludedId);
+        if (key.length() > QueueItemEntity.MAX_KEY_LENGTH) {
+            // Only reached when a gap is split faster than the scheduler rebalances; make room before placing the item
+            rebalance(userId);
+            key = keyFor(userId, placement, excludedId);
+        } else if (key.length() > rebalanceKeyLength) {
+            rebalanceRequests.add(userId);
+        }
+
+        item.setOrderKey(key);
+        (existing.isPresent() ? moved : inserted).increment();
+        return toDto(itemRepository.saveAndFlush(item), episodeUuid);
+    }
+
+    /// Removes an episode from a user's queue
+    ///
+    /// @param userId      the database ID of the user
+    /// @param episodeUuid the UUID of the episode
+    /// @throws EntityNotFoundException if the episode isn't queued
+    @Transactional
+    public void removeItem(Long userId, UUID episodeUuid) throws EntityNotFoundException {
+        if (itemRepository.deleteByUserIdAndEpisodeUuid(userId, episodeUuid) == 0) {
+            throw new EntityNotFoundException("queue item not found");
+        }
+    }
+
+    /// Gives every item in a user's queue evenly spaced keys, keeping their order.
+    /// The queue stays locked until the transaction ends, so placements wait for the new keys.
+    ///
+    /// @param userId the database ID of the user
+    /// @return the number of items in the queue
+    @Transactional
+    public int rebalance(Long userId) {
+        itemRepository.lockQueue(userId);
+        final var items = itemRepository.findAllForUpdate(userId);
+        final var keys = FractionalIndex.spread(items.size());
+        for (var i = 0; i < items.size(); i++) {
+            items.get(i).setOrderKey(keys[i]);
+        }
+        rebalanced.increment();
+        log.debug("Rebalanced {} queue items for {}", items.size(), userId);
+        return items.size();
+    }
+
+    /// Takes the users whose queues are due a rebalance
+    ///
+    /// @return the database IDs of the users
+    public Set<Long> drainRebalanceRequests() {
+        final var userIds = Set.copyOf(rebalanceRequests);
+        rebalanceRequests.removeAll(userIds);
+        return userIds;
+    }
+
+    /// Finds a key between the neighbours of a placement
+    private String keyFor(Long userId, QueueDTO.PlaceItemRequestDTO placement, Long excludedId) {
+        if (placement.after() != null) {
+            final var previous = findQueued(userId, placement.after()).getOrderKey();
+            return FractionalIndex.between(previous, itemRepository.findNextKey(userId, previous, excludedId));
+        }
+        if (placement.before() != null) {
+            final var next = findQueued(userId, placement.before()).getOrderKey();
+            return FractionalIndex.between(itemRepository.findPreviousKey(userId, next, excludedId), next);
+        }
+        return FractionalIndex.between(itemRepository.findLastKey(userId, excludedId), null);
+    }
+
+    private QueueItemEntity findQueued(Long userId, UUID episodeUuid) {
+        return itemRepository.findByUserIdAndEpisodeUuid(userId, episodeUuid)
+                .orElseThrow(() -> new EntityNotFoundException("queue item not found"));
+    }
+
+    private static QueueDTO.QueueItemDTO toDto(QueueItemEntity item, UUID episodeUuid) {
+        return new QueueDTO.QueueItemDTO(episodeUuid, item.getOrderKey(), item.getCreatedAt(), item.getUpdatedAt());
+    }
+}
@@ -0,0 +1,307 @@
+package org.openpodcastapi.opa.recommendation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/// A sparse, symmetric matrix counting the users subscribed to each pair of feeds.
+///
+/// Each feed has a row of [IntIntHashMap] from the IDs of the feeds its subscribers also follow to the number of
+/// users subscribed to both. The diagonal holds each feed's own subscriber count. Rows are found through a second
+/// [IntIntHashMap] from feed ID to row number, so nothing is boxed, and the whole matrix is written to and read from
+/// a stream of `int`s.
+///
+/// Updates take a write lock and lookups a read lock.
+final class CooccurrenceMatrix {
+    private static final int MAGIC = 0x4F504143;
+    private static final int VERSION = 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IntIntHashMap rowNumbers = new IntIntHashMap();
+    /// The diagonal again, so scoring a neighbour takes one lookup
+    private final IntIntHashMap subscriberCounts = new IntIntHashMap();
+    private IntIntHashMap[] rows = new IntIntHashMap[16];
+    private int rowCount;
+    private long entryCount;
+
+    /// A feed related to another
+    ///
+    /// @param feedId            the database ID of the related feed
+    /// @param sharedSubscribers the number of users subscribed to both feeds
+    /// @param score             the cosine similarity of the feeds' subscribers, from 0 to 1
+    record Neighbour(int feedId, int sharedSubscribers, double score) {
+    }
+
+    /// Applies a change to one user's subscriptions
+    ///
+    /// @param changed the feeds the user subscribed to or unsubscribed from
+    /// @param others  the user's other subscribed feeds, which didn't change
+    /// @param delta   `1` if the user subscribed to the changed feeds, `-1` if they unsubscribed
+    void apply(int[] changed, int[] others, int delta) {
+        lock.writeLock().lock();
+        try {
+            for (final var feedId : changed) {
+                final var row = row(feedId);
+                // Every pair of changed feeds is visited from both ends, so each end only updates its own row
+                for (final var other : changed) {
+                    add(feedId, row, other, delta);
+                }
+                for (final var other : others) {
+                    add(feedId, row, other, delta);
+                    add(other, row(other), feedId, delta);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /// @param feedId the database ID of a feed
+    /// @return the number of users subscribed to the feed
+    int subscribers(int feedId) {
+        lock.readLock().lock();
+        try {
+            return subscriberCounts.get(feedId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /// Finds the feeds whose subscribers are most like a feed's.
+    /// Feeds are ranked by the cosine similarity of their sets of subscribers, which discounts feeds that are
+    /// popular with everyone, then by the number of shared subscribers and lowest ID.
+    ///
+    /// @param feedId     the database ID of the feed
+    /// @param limit      the maximum number of feeds to return
+    /// @param minShared  the minimum number of shared subscribers for a feed to be related
+    /// @return the related feeds, most related first
+    Neighbour[] neighbours(int feedId, int limit, int minShared) {
+        lock.readLock().lock();
+        try {
+            final var row = findRow(feedId);
+            if (row == null || limit < 1) {
+                return new Neighbour[0];
+            }
+            final var subscribers = subscriberCounts.get(feedId);
+            final var top = new TopNeighbours(limit);
+            for (var slot = 0; slot < row.capacity(); slot++) {
+                final var other = row.keyAt(slot);
+                final var shared = row.valueAt(slot);
+                if (other == 0 || other == feedId || shared < minShared) {
+                    continue;
+                }
+                // A feed has at least as many subscribers as it shares, which bounds its score without looking it up
+                if (top.isFull() && Math.sqrt((double) shared / Math.max(subscribers, shared)) < top.worstScore()) {
+                    continue;
+                }
+                top.offer(other, shared, score(subscribers, other, shared));
+            }
+            return top.sorted();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /// @param feedId the database ID of a feed
+    /// @return the number of entries in the feed's row, which is the work of finding its neighbours
+    int rowSize(int feedId) {
+        lock.readLock().lock();
+        try {
+            final var row = findRow(feedId);
+            return row == null ? 0 : row.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /// @return the number of non-zero entries, counting both halves of the matrix and the diagonal
+    long entries() {
+        return entryCount;
+    }
+
+    /// Writes the matrix, one row after another
+    ///
+    /// @param output the output to write to
+    /// @throws IOException if the output can't be written
+    void write(DataOutput output) throws IOException {
+        lock.readLock().lock();
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            var nonEmpty = 0;
+            for (var i = 0; i < rowCount; i++) {
+                nonEmpty += rows[i].size() > 0 ? 1 : 0;
+            }
+            output.writeInt(nonEmpty);
+            for (var slot = 0; slot < rowNumbers.capacity(); slot++) {
+                final var feedId = rowNumbers.keyAt(slot);
+                if (feedId == 0) {
+                    continue;
+                }
+                final var row = rows[rowNumbers.valueAt(slot) - 1];
+                if (row.size() == 0) {
+                    continue;
+                }
+                output.writeInt(feedId);
+                output.writeInt(row.size());
+                for (var entry = 0; entry < row.capacity(); entry++) {
+                    if (row.keyAt(entry) != 0) {
+                        output.writeInt(row.keyAt(entry));
+                        output.writeInt(row.valueAt(entry));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /// Reads a matrix written by [#write]
+    ///
+    /// @param input the input to read from
+    /// @return the matrix
+    /// @throws IOException if the input can't be read or isn't a matrix
+    static CooccurrenceMatrix read(DataInput input) throws IOException {
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            throw new IOException("not a co-occurrence matrix snapshot");
+        }
+        final var matrix = new CooccurrenceMatrix();
+        final var rowCount = input.readInt();
+        for (var i = 0; i < rowCount; i++) {
+            final var feedId = input.readInt();
+            final var size = input.readInt();
+            if (feedId <= 0 || size < 0) {
+                throw new IOException("corrupt co-occurrence matrix snapshot");
+            }
+            final var row = new IntIntHashMap(size);
+            for (var entry = 0; entry < size; entry++) {
+                row.add(input.readInt(), input.readInt());
+            }
+            matrix.rowNumbers.add(feedId, matrix.addRow(row));
+            matrix.subscriberCounts.add(feedId, row.get(feedId));
+            matrix.entryCount += row.size();
+        }
+        return matrix;
+    }
+
+    private void add(int rowFeedId, IntIntHashMap row, int feedId, int delta) {
+        final var before = row.size();
+        // Lost or repeated changes must not leave a negative count behind, so counts stop at zero
+        final var clamped = Math.max(delta, -row.get(feedId));
+        row.add(feedId, clamped);
+        entryCount += row.size() - before;
+        if (rowFeedId == feedId) {
+            subscriberCounts.add(feedId, clamped);
+        }
+    }
+
+    /// Scores a neighbour by the cosine similarity of the two feeds' subscribers
+    private double score(int subscribers, int other, int shared) {
+        final var otherSubscribers = Math.max(shared, subscriberCounts.get(other));
+        return shared / Math.sqrt((double) Math.max(subscribers, shared) * otherSubscribers);
+    }
+
+    private IntIntHashMap findRow(int feedId) {
+        final var number = rowNumbers.get(feedId);
+        return number == 0 ? null : rows[number - 1];
+    }
+
+    private IntIntHashMap row(int feedId) {
+        final var row = findRow(feedId);
+        if (row != null) {
+            return row;
+        }
+        final var created = new IntIntHashMap();
+        rowNumbers.add(feedId, addRow(created));
+        return created;
+    }
+
+    /// Appends a row and returns its number, which starts at 1 so it's never mistaken for a missing value
+    private int addRow(IntIntHashMap row) {
+        if (rowCount == rows.length) {
+            rows = Arrays.copyOf(rows, rowCount * 2);
+        }
+        rows[rowCount++] = row;
+        return rowCount;
+    }
+
+    /// The best neighbours offered so far, in a bounded min-heap with the worst of them at the root
+    private static final class TopNeighbours {
+        private final Neighbour[] heap;
+        private int size;
+
+        TopNeighbours(int limit) {
+            heap = new Neighbour[limit];
+        }
+
+        boolean isFull() {
+            return size == heap.length;
+        }
+
+        double worstScore() {
+            return heap[0].score();
+        }
+
+        void offer(int feedId, int shared, double score) {
+            if (size < heap.length) {
+                heap[size] = new Neighbour(feedId, shared, score);
+                siftUp(size++);
+            } else if (compare(score, shared, feedId, heap[0]) > 0) {
+                heap[0] = new Neighbour(feedId, shared, score);
+                siftDown();
+            }
+        }
+
+        Neighbour[] sorted() {
+            final var result = Arrays.copyOf(heap, size);
+            Arrays.sort(result, (a, b) -> compare(b.score(), b.sharedSubscribers(), b.feedId(), a));
+            return result;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                final var parent = (index - 1) >>> 1;
+                if (compare(heap[index].score(), heap[index].sharedSubscribers(), heap[index].feedId(), heap[parent]) >= 0) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown() {
+            var index = 0;
+            while (true) {
+                final var left = 2 * index + 1;
+                if (left >= size) {
+                    return;
+                }
+                final var right = left + 1;
+                final var smallest = right < size
+                        && compare(heap[right].score(), heap[right].sharedSubscribers(), heap[right].feedId(), heap[left]) < 0 ? right : left;
+                if (compare(heap[smallest].score(), heap[smallest].sharedSubscribers(), heap[smallest].feedId(), heap[index]) >= 0) {
+                    return;
+                }
+                swap(index, smallest);
+                index = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            final var held = heap[i];
+            heap[i] = heap[j];
+            heap[j] = held;
+        }
+
+        /// Orders feeds by score, then shared subscribers, then lowest ID
+        private static int compare(double score, int shared, int feedId, Neighbour other) {
+            var result = Double.compare(score, other.score());
+            if (result == 0) {
+                result = Integer.compare(shared, other.sharedSubscribers());
+            }
+            return result != 0 ? result : Integer.compare(other.feedId(), feedId);
+        }
+    }
+}
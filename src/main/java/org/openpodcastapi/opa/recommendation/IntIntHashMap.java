@@ -0,0 +1,139 @@
+package org.openpodcastapi.opa.recommendation;
+
+/// A map from positive `int` keys to non-zero `int` values, held in two flat arrays.
+///
+/// Entries are found by linear probing from the hash of their key, and key `0` marks an empty slot.
+/// A value that reaches zero removes its entry, shifting later entries of the probe sequence back
+/// so lookups never need to skip deleted slots. Not thread-safe.
+final class IntIntHashMap {
+    private static final int MIN_CAPACITY = 4;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    /// Creates an empty map
+    IntIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /// Creates an empty map with room for a number of entries
+    ///
+    /// @param expected the number of entries to make room for
+    IntIntHashMap(int expected) {
+        final var capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expected * 2 - 1)) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+    }
+
+    /// @param key the key
+    /// @return the value of the key, or `0` if there is none
+    int get(int key) {
+        final var mask = keys.length - 1;
+        for (var slot = hash(key) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return 0;
+    }
+
+    /// Adds to the value of a key, adding the key if it's missing and removing it if its value reaches zero
+    ///
+    /// @param key   the key, which must be positive
+    /// @param delta the amount to add
+    /// @return the new value
+    int add(int key, int delta) {
+        final var mask = keys.length - 1;
+        var slot = hash(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        if (keys[slot] == 0) {
+            if (delta == 0) {
+                return 0;
+            }
+            keys[slot] = key;
+            values[slot] = delta;
+            // Keep the load factor at or below a half
+            if (++size * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            return delta;
+        }
+
+        final var value = values[slot] + delta;
+        if (value == 0) {
+            remove(slot);
+        } else {
+            values[slot] = value;
+        }
+        return value;
+    }
+
+    /// @return the number of entries
+    int size() {
+        return size;
+    }
+
+    /// @return the number of slots, for iterating with [#keyAt] and [#valueAt]
+    int capacity() {
+        return keys.length;
+    }
+
+    /// @param slot a slot below [#capacity]
+    /// @return the key in the slot, or `0` if it's empty
+    int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /// @param slot a slot below [#capacity]
+    /// @return the value in the slot
+    int valueAt(int slot) {
+        return values[slot];
+    }
+
+    private void remove(int slot) {
+        final var mask = keys.length - 1;
+        var gap = slot;
+        var next = (gap + 1) & mask;
+        while (keys[next] != 0) {
+            final var home = hash(keys[next]) & mask;
+            // Move the entry into the gap unless its home slot lies cyclically after the gap
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0;
+        values[gap] = 0;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        final var oldKeys = keys;
+        final var oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        final var mask = capacity - 1;
+        for (var i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                var slot = hash(oldKeys[i]) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /// Spreads sequential feed IDs across the table
+    private static int hash(int key) {
+        final var h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
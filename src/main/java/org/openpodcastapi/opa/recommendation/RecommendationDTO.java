@@ -0,0 +1,27 @@
+package org.openpodcastapi.opa.recommendation;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nullable;
+
+import java.util.UUID;
+
+/// Container for all recommendation-related data transfer objects
+public class RecommendationDTO {
+    /// A DTO representing a feed whose subscribers also follow another feed
+    ///
+    /// @param uuid              the UUID of the feed
+    /// @param feedUrl           the URL of the feed
+    /// @param title             the title of the feed
+    /// @param sharedSubscribers the number of users subscribed to both feeds
+    /// @param score             the similarity of the feeds' subscribers, from 0 to 1
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record RelatedFeedDTO(
+            @JsonProperty(required = true) UUID uuid,
+            @JsonProperty(required = true) String feedUrl,
+            @JsonProperty @Nullable String title,
+            @JsonProperty(required = true) int sharedSubscribers,
+            @JsonProperty(required = true) double score
+    ) {
+    }
+}
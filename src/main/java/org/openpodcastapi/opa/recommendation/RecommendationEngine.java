@@ -0,0 +1,253 @@
+package org.openpodcastapi.opa.recommendation;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.openpodcastapi.opa.subscription.SubscriptionRepository;
+import org.openpodcastapi.opa.subscription.SubscriptionsChangedEvent;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Keeps a [CooccurrenceMatrix] of the feeds users subscribe to together, to recommend feeds whose subscribers
+/// also follow a feed.
+///
+/// The matrix is loaded from its latest snapshot when the application starts, or rebuilt from every active
+/// subscription if there is none. After that, each subscription change on this node is applied once its transaction
+/// commits, and the matrix is written to disk periodically and on shutdown. Changes on other nodes, and any
+/// lost in a crash, are picked up by a full rebuild that runs on a longer interval.
+///
+/// Users with more subscriptions than the configured maximum are left out, as they would add a pair for every two
+/// of their feeds while saying little about any of them.
+///
+/// Finding a feed's neighbours scans its row, which takes microseconds for most feeds but up to a millisecond for
+/// the few feeds that share subscribers with nearly every other. Results for feeds with rows above a configured size
+/// are cached for a short time, so they may lag their subscriptions slightly.
+@Component
+public class RecommendationEngine {
+    private static final Logger log = getLogger(RecommendationEngine.class);
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final boolean snapshotEnabled;
+    private final Path snapshotPath;
+    private final int batchSize;
+    private final int maxUserSubscriptions;
+    private final int cacheMinRowSize;
+    private final long cacheTtlNanos;
+    /// Only feeds with large rows are cached, and there are few of them, so the cache needs no bound
+    private final ConcurrentHashMap<NeighboursKey, CachedNeighbours> cache = new ConcurrentHashMap<>();
+
+    private volatile CooccurrenceMatrix matrix = new CooccurrenceMatrix();
+    /// Counts the changes applied, so unchanged matrices aren't written again
+    private final AtomicLong version = new AtomicLong();
+    private volatile long snapshotVersion;
+
+    /// @param feedId    the database ID of the feed
+    /// @param limit     the maximum number of feeds
+    /// @param minShared the minimum number of shared subscribers
+    private record NeighboursKey(int feedId, int limit, int minShared) {
+    }
+
+    /// @param matrix     the matrix the neighbours were found in, so results from a replaced matrix aren't used
+    /// @param foundAt    the [System#nanoTime] the neighbours were found at
+    /// @param neighbours the neighbours
+    private record CachedNeighbours(CooccurrenceMatrix matrix, long foundAt, CooccurrenceMatrix.Neighbour[] neighbours) {
+    }
+
+    /// All-args constructor
+    ///
+    /// @param subscriptionRepository the repository subscriptions are read from
+    /// @param meterRegistry          the registry used to publish the size of the matrix
+    /// @param snapshotEnabled        whether the matrix is written to and loaded from disk
+    /// @param snapshotPath           the file the matrix is written to
+    /// @param batchSize              the number of subscriptions read per query when rebuilding
+    /// @param maxUserSubscriptions   the maximum number of subscriptions of a user who counts towards the matrix
+    /// @param cacheMinRowSize        the row size from which a feed's neighbours are cached
+    /// @param cacheTtl               how long cached neighbours are used
+    public RecommendationEngine(SubscriptionRepository subscriptionRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${recommendations.snapshot.enabled:true}") boolean snapshotEnabled,
+                                @Value("${recommendations.snapshot.path:data/cooccurrence.bin}") Path snapshotPath,
+                                @Value("${recommendations.batch-size:10000}") int batchSize,
+                                @Value("${recommendations.max-user-subscriptions:1000}") int maxUserSubscriptions,
+                                @Value("${recommendations.cache.min-row-size:4096}") int cacheMinRowSize,
+                                @Value("${recommendations.cache.ttl:PT1M}") Duration cacheTtl) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.snapshotEnabled = snapshotEnabled;
+        this.snapshotPath = snapshotPath;
+        this.batchSize = batchSize;
+        this.maxUserSubscriptions = maxUserSubscriptions;
+        this.cacheMinRowSize = cacheMinRowSize;
+        this.cacheTtlNanos = cacheTtl.toNanos();
+
+        Gauge.builder("recommendations.matrix.entries", this, engine -> engine.matrix.entries()).register(meterRegistry);
+    }
+
+    /// Loads the latest snapshot, or rebuilds the matrix if there is none
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (snapshotEnabled) {
+            try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+                matrix = CooccurrenceMatrix.read(input);
+                snapshotVersion = version.get();
+                log.info("Loaded {} co-occurrence entries from {}", matrix.entries(), snapshotPath);
+                return;
+            } catch (NoSuchFileException _) {
+                log.info("No co-occurrence snapshot at {}, rebuilding", snapshotPath);
+            } catch (IOException e) {
+                log.warn("Failed to read the co-occurrence snapshot at {}, rebuilding", snapshotPath, e);
+            }
+        }
+        rebuild();
+    }
+
+    /// Rebuilds the matrix from every active subscription, replacing the current one when it's complete.
+    /// Changes applied while the rebuild runs may be missed or counted twice until the next rebuild.
+    @Scheduled(fixedDelayString = "${recommendations.rebuild-interval:PT24H}",
+            initialDelayString = "${recommendations.rebuild-interval:PT24H}")
+    public synchronized void rebuild() {
+        final var startedAt = System.nanoTime();
+        final var rebuilt = new CooccurrenceMatrix();
+        final List<Long> userFeeds = new ArrayList<>();
+        var userId = 0L;
+        var feedId = 0L;
+        List<SubscriptionRepository.SubscribedPair> batch;
+        do {
+            batch = subscriptionRepository.findSubscribedPairsAfter(userId, feedId, Limit.of(batchSize));
+            for (final var pair : batch) {
+                if (!pair.userId().equals(userId)) {
+                    addUser(rebuilt, userFeeds);
+                    userFeeds.clear();
+                }
+                userFeeds.add(pair.feedId());
+                userId = pair.userId();
+                feedId = pair.feedId();
+            }
+        } while (batch.size() == batchSize);
+        addUser(rebuilt, userFeeds);
+
+        matrix = rebuilt;
+        cache.clear();
+        version.incrementAndGet();
+        log.info("Rebuilt {} co-occurrence entries in {} ms", rebuilt.entries(), (System.nanoTime() - startedAt) / 1_000_000);
+        snapshot();
+    }
+
+    /// Writes the matrix to disk if it changed since it was last written
+    @Scheduled(fixedDelayString = "${recommendations.snapshot.interval:PT10M}",
+            initialDelayString = "${recommendations.snapshot.interval:PT10M}")
+    @PreDestroy
+    public synchronized void snapshot() {
+        final var current = version.get();
+        if (!snapshotEnabled || current == snapshotVersion) {
+            return;
+        }
+        // Written beside the snapshot and moved over it, so a crash never leaves half a snapshot
+        final var temporary = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(snapshotPath.toAbsolutePath().getParent());
+            try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                matrix.write(output);
+            }
+            Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshotVersion = current;
+        } catch (IOException e) {
+            log.warn("Failed to write the co-occurrence snapshot to {}", snapshotPath, e);
+        }
+    }
+
+    /// Reads the user's other subscriptions in the transaction of a change, and applies the change once it commits
+    ///
+    /// @param event the event published by the subscription service
+    @EventListener
+    public void onSubscriptionsChanged(SubscriptionsChangedEvent event) {
+        final var changed = new HashSet<>(event.feedIds());
+        final var others = subscriptionRepository.findSubscribedFeedIds(event.userId()).stream()
+                .filter(feedId -> !changed.contains(feedId))
+                .toList();
+        if (others.size() + changed.size() > maxUserSubscriptions) {
+            return;
+        }
+
+        final var changedIds = toIds(changed);
+        final var otherIds = toIds(others);
+        final var delta = event.subscribed() ? 1 : -1;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(changedIds, otherIds, delta);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(changedIds, otherIds, delta);
+            }
+        });
+    }
+
+    /// Finds the feeds whose subscribers are most like a feed's
+    ///
+    /// @param feedId    the database ID of the feed
+    /// @param limit     the maximum number of feeds to return
+    /// @param minShared the minimum number of shared subscribers for a feed to be related
+    /// @return the related feeds, most related first
+    CooccurrenceMatrix.Neighbour[] neighbours(Long feedId, int limit, int minShared) {
+        final var id = Math.toIntExact(feedId);
+        final var current = matrix;
+        if (current.rowSize(id) < cacheMinRowSize) {
+            return current.neighbours(id, limit, minShared);
+        }
+
+        final var key = new NeighboursKey(id, limit, minShared);
+        final var now = System.nanoTime();
+        final var cached = cache.get(key);
+        if (cached != null && cached.matrix() == current && now - cached.foundAt() < cacheTtlNanos) {
+            return cached.neighbours();
+        }
+        final var neighbours = current.neighbours(id, limit, minShared);
+        cache.put(key, new CachedNeighbours(current, now, neighbours));
+        return neighbours;
+    }
+
+    /// @param feedId the database ID of a feed
+    /// @return the number of users subscribed to the feed, as counted by the matrix
+    int subscribers(Long feedId) {
+        return matrix.subscribers(Math.toIntExact(feedId));
+    }
+
+    private void apply(int[] changed, int[] others, int delta) {
+        matrix.apply(changed, others, delta);
+        version.incrementAndGet();
+    }
+
+    private void addUser(CooccurrenceMatrix target, List<Long> feedIds) {
+        if (!feedIds.isEmpty() && feedIds.size() <= maxUserSubscriptions) {
+            target.apply(toIds(feedIds), new int[0], 1);
+        }
+    }
+
+    private static int[] toIds(Collection<Long> feedIds) {
+        return feedIds.stream().mapToInt(Math::toIntExact).toArray();
+    }
+}
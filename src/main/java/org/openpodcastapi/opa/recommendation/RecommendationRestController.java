@@ -0,0 +1,39 @@
+package org.openpodcastapi.opa.recommendation;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+/// Controller for API recommendation requests
+@RestController
+@RequestMapping("/api/v1")
+public class RecommendationRestController {
+    private final RecommendationService service;
+
+    /// Required-args constructor
+    ///
+    /// @param service the service used to recommend feeds
+    public RecommendationRestController(RecommendationService service) {
+        this.service = service;
+    }
+
+    /// Returns the feeds that subscribers of a feed also follow
+    ///
+    /// @param uuid  the UUID of the feed
+    /// @param limit the maximum number of feeds to return
+    /// @return a response containing the related feeds, most related first
+    /// @throws EntityNotFoundException  if no matching feed is found
+    /// @throws IllegalArgumentException if the UUID is improperly formatted, or the limit is out of range
+    @GetMapping("/feeds/{uuid}/related")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<List<RecommendationDTO.RelatedFeedDTO>> getRelatedFeeds(@PathVariable String uuid, @RequestParam(defaultValue = "10") int limit) throws EntityNotFoundException {
+        // If the value is invalid, the GlobalExceptionHandler will throw a 400.
+        final var uuidValue = UUID.fromString(uuid);
+
+        return ResponseEntity.ok(service.getRelatedFeeds(uuidValue, limit));
+    }
+}
@@ -0,0 +1,92 @@
+package org.openpodcastapi.opa.recommendation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityNotFoundException;
+import org.openpodcastapi.opa.feed.FeedEntity;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.openpodcastapi.opa.feed.FeedService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/// Service for recommending feeds.
+///
+/// The [RecommendationEngine] finds the IDs of the feeds most related to a feed, which are then loaded in one query.
+/// Feeds deleted since they were counted are left out.
+@Service
+public class RecommendationService {
+    private final RecommendationEngine engine;
+    private final FeedService feedService;
+    private final FeedRepository feedRepository;
+    private final Timer queries;
+    private final int maxLimit;
+    private final int minShared;
+
+    /// All-args constructor
+    ///
+    /// @param engine         the engine used to find related feeds
+    /// @param feedService    the service used to resolve feed UUIDs
+    /// @param feedRepository the repository used to load related feeds
+    /// @param meterRegistry  the registry used to publish query latency
+    /// @param maxLimit       the maximum number of feeds per request
+    /// @param minShared      the minimum number of shared subscribers for a feed to be recommended
+    public RecommendationService(RecommendationEngine engine,
+                                 FeedService feedService,
+                                 FeedRepository feedRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${recommendations.max-limit:50}") int maxLimit,
+                                 @Value("${recommendations.min-shared-subscribers:2}") int minShared) {
+        this.engine = engine;
+        this.feedService = feedService;
+        this.feedRepository = feedRepository;
+        this.maxLimit = maxLimit;
+        this.minShared = minShared;
+        this.queries = Timer.builder("recommendations.query.duration")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /// Finds the feeds that subscribers of a feed also follow
+    ///
+    /// @param feedUuid the UUID or alias UUID of the feed
+    /// @param limit    the maximum number of feeds to return
+    /// @return the related feeds, most related first
+    /// @throws EntityNotFoundException  if no matching feed is found
+    /// @throws IllegalArgumentException if the limit isn't between 1 and the maximum
+    @Transactional(readOnly = true)
+    public List<RecommendationDTO.RelatedFeedDTO> getRelatedFeeds(UUID feedUuid, int limit) {
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+        final var feed = feedService.findFeed(feedUuid)
+                .orElseThrow(() -> new EntityNotFoundException("feed not found"));
+
+        final var sample = Timer.start();
+        final var neighbours = engine.neighbours(feed.id(), limit, minShared);
+        sample.stop(queries);
+        if (neighbours.length == 0) {
+            return List.of();
+        }
+
+        final Map<Long, FeedEntity> feeds = feedRepository.findAllById(Arrays.stream(neighbours).map(neighbour -> (long) neighbour.feedId()).toList())
+                .stream()
+                .collect(Collectors.toMap(FeedEntity::getId, Function.identity()));
+        return Arrays.stream(neighbours)
+                .map(neighbour -> {
+                    final var related = feeds.get((long) neighbour.feedId());
+                    return related == null ? null : new RecommendationDTO.RelatedFeedDTO(
+                            related.getUuid(), related.getFeedUrl(), related.getTitle(), neighbour.sharedSubscribers(), neighbour.score());
+                })
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
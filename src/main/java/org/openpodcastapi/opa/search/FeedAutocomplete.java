@@ -0,0 +1,199 @@
+package org.openpodcastapi.opa.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Nullable;
+import org.openpodcastapi.opa.feed.FeedDetailsChangedEvent;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Completes the titles of a user's subscribed feeds as they type, without querying the database.
+///
+/// Titles are held in a [FeedTitleTrie] snapshot, built when the application starts. Changed titles are merged into
+/// a new snapshot, which replaces the old one in a single write, so lookups never lock or wait for a rebuild.
+/// Titles changed on this node are applied once their refresh completes, and titles changed on any node are found
+/// by polling for recently updated feeds. Completions are filtered with the user's [SubscribedFeeds].
+@Component
+public class FeedAutocomplete {
+    private static final Logger log = getLogger(FeedAutocomplete.class);
+
+    private final FeedRepository feedRepository;
+    private final SubscribedFeeds subscribedFeeds;
+    private final Timer lookups;
+    private final int batchSize;
+    private final int maxLimit;
+    private final Duration pollOverlap;
+
+    private volatile Snapshot snapshot = new Snapshot(FeedTitleTrie.EMPTY, Map.of());
+
+    /// When the last poll for updated feeds started, or `null` before the snapshot is first built
+    @Nullable
+    private Instant polledAt;
+
+    /// The titles of every feed at a point in time
+    ///
+    /// @param trie  the trie of the titles
+    /// @param feeds the feed with each database ID in the trie
+    private record Snapshot(FeedTitleTrie trie, Map<Integer, SearchDTO.CompletionDTO> feeds) {
+    }
+
+    /// All-args constructor
+    ///
+    /// @param feedRepository  the repository titles are read from
+    /// @param subscribedFeeds the subscriptions used to filter completions
+    /// @param meterRegistry   the registry used to publish lookup latency and the size of the trie
+    /// @param batchSize       the number of rows read per query when building the snapshot
+    /// @param maxLimit        the maximum number of completions per lookup
+    /// @param pollOverlap     how far before the previous poll each poll starts, to find updates committed late or by nodes with skewed clocks
+    public FeedAutocomplete(FeedRepository feedRepository,
+                            SubscribedFeeds subscribedFeeds,
+                            MeterRegistry meterRegistry,
+                            @Value("${search.memory.batch-size:10000}") int batchSize,
+                            @Value("${search.autocomplete.max-limit:50}") int maxLimit,
+                            @Value("${search.autocomplete.poll-overlap:PT1M}") Duration pollOverlap) {
+        this.feedRepository = feedRepository;
+        this.subscribedFeeds = subscribedFeeds;
+        this.batchSize = batchSize;
+        this.maxLimit = maxLimit;
+        this.pollOverlap = pollOverlap;
+        this.lookups = Timer.builder("search.autocomplete.duration")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        Gauge.builder("search.autocomplete.keys", this, autocomplete -> autocomplete.snapshot.trie().size()).register(meterRegistry);
+    }
+
+    /// Builds the snapshot from the titles of every stored feed
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void build() {
+        final var startedAt = Instant.now();
+        final Map<Integer, String> titles = new HashMap<>();
+        final Map<Integer, SearchDTO.CompletionDTO> feeds = new HashMap<>();
+
+        var lastFeedId = 0L;
+        List<FeedRepository.FeedText> batch;
+        do {
+            batch = feedRepository.findTextsAfter(lastFeedId, Limit.of(batchSize));
+            for (final var feed : batch) {
+                final var feedId = Math.toIntExact(feed.id());
+                titles.put(feedId, feed.title());
+                feeds.put(feedId, new SearchDTO.CompletionDTO(feed.uuid(), feed.title()));
+            }
+            lastFeedId = batch.isEmpty() ? lastFeedId : batch.getLast().id();
+        } while (batch.size() == batchSize);
+
+        snapshot = new Snapshot(FeedTitleTrie.of(titles), feeds);
+        polledAt = startedAt;
+        log.info("Built feed title completions with {} keys in {} ms",
+                snapshot.trie().size(), Duration.between(startedAt, Instant.now()).toMillis());
+    }
+
+    /// Applies the titles of feeds updated on any node since the last poll
+    @Scheduled(fixedDelayString = "${search.autocomplete.refresh-interval:PT5S}",
+            initialDelayString = "${search.autocomplete.refresh-interval:PT5S}")
+    public synchronized void refresh() {
+        if (polledAt == null) {
+            return;
+        }
+        final var startedAt = Instant.now();
+        apply(feedRepository.findTextsUpdatedSince(polledAt.minus(pollOverlap)));
+        polledAt = startedAt;
+    }
+
+    /// Applies the new title of a feed refreshed on this node
+    ///
+    /// @param event the event published after the details changed
+    @EventListener
+    public synchronized void onFeedDetailsChanged(FeedDetailsChangedEvent event) {
+        if (polledAt != null) {
+            feedRepository.findTextById(event.feedId()).ifPresent(feed -> apply(List.of(feed)));
+        }
+    }
+
+    /// Completes typed text with the titles of a user's subscribed feeds.
+    /// Titles starting with the text come first, followed by titles with a later word starting with it.
+    ///
+    /// @param userId the database ID of the user
+    /// @param text   the typed text
+    /// @param limit  the maximum number of completions
+    /// @return the matching feeds
+    /// @throws IllegalArgumentException if the text has no letters or digits, or the limit isn't between 1 and the maximum
+    public List<SearchDTO.CompletionDTO> complete(Long userId, String text, int limit) {
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+        final var prefix = FeedTitleTrie.normalize(text);
+        if (prefix.isEmpty()) {
+            throw new IllegalArgumentException("the prefix must contain a letter or digit");
+        }
+
+        final var startedAt = System.nanoTime();
+        final var subscribed = subscribedFeeds.get(userId);
+        final var current = snapshot;
+        final var trie = current.trie();
+        final var range = trie.find(prefix);
+
+        // One scan collects titles starting with the text, and the others to follow them. Both are bounded by the subscriptions.
+        final Set<Integer> found = new LinkedHashSet<>();
+        final Set<Integer> later = new LinkedHashSet<>();
+        for (var i = range.start(); i < range.end() && found.size() < limit; i++) {
+            final var feedId = trie.feedId(i);
+            if (!SubscribedFeeds.contains(subscribed, feedId)) {
+                continue;
+            }
+            if (trie.isTitleStart(i)) {
+                found.add(feedId);
+            } else {
+                later.add(feedId);
+            }
+        }
+        for (final var feedId : later) {
+            if (found.size() < limit) {
+                found.add(feedId);
+            }
+        }
+        final var result = found.stream().map(current.feeds()::get).toList();
+        lookups.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private void apply(List<FeedRepository.FeedText> changed) {
+        final var current = snapshot;
+        final Map<Integer, String> titles = new HashMap<>();
+        for (final var feed : changed) {
+            final var feedId = Math.toIntExact(feed.id());
+            final var known = current.feeds().get(feedId);
+            // Polls overlap, so most feeds they find are already applied
+            if (known == null || !Objects.equals(known.title(), feed.title())) {
+                titles.put(feedId, feed.title());
+            }
+        }
+        if (titles.isEmpty()) {
+            return;
+        }
+
+        final Map<Integer, SearchDTO.CompletionDTO> feeds = new HashMap<>(current.feeds());
+        for (final var feed : changed) {
+            final var feedId = Math.toIntExact(feed.id());
+            if (titles.containsKey(feedId)) {
+                feeds.put(feedId, new SearchDTO.CompletionDTO(feed.uuid(), feed.title()));
+            }
+        }
+        snapshot = new Snapshot(current.trie().withTitles(titles), feeds);
+        log.debug("Applied {} changed feed titles to completions", titles.size());
+    }
+}
@@ -0,0 +1,247 @@
+package org.openpodcastapi.opa.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/// An immutable radix trie of feed titles, used to complete what a user is typing.
+///
+/// Every word of a title starts a key running to the end of the title, so "The Night Sky" is found by "ni" and "sky"
+/// as well as by "the". Keys are normalized like [SearchQuery] terms and joined by single spaces.
+///
+/// Keys are held in one sorted array, and each node of the trie covers the contiguous range of keys that start with
+/// its prefix. A lookup walks one edge per node on the path of the prefix and returns that range without visiting
+/// any keys. Edges are labelled with every character between a node and its child, read from the first key in the
+/// child's range, so there are fewer nodes than keys and no labels are stored.
+///
+/// A trie is never modified. Changes build a new trie by merging the changed keys into the sorted keys of the old
+/// one, so readers holding the old trie are unaffected.
+final class FeedTitleTrie {
+    /// The maximum number of words of a title that start a key
+    static final int MAX_WORDS = 16;
+
+    /// The maximum length of a key
+    static final int MAX_KEY_LENGTH = 128;
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::text).thenComparingInt(Key::feedId);
+
+    /// A trie without keys
+    static final FeedTitleTrie EMPTY = new FeedTitleTrie(List.of());
+
+    private final String[] keys;
+    private final int[] feedIds;
+    private final boolean[] titleStarts;
+
+    private final int[] depths;
+    private final int[] rangeStarts;
+    private final int[] rangeEnds;
+    private final int[] firstChildren;
+    private final int[] childCounts;
+
+    /// A key of the trie
+    ///
+    /// @param text       the normalized text of the title, from one of its words to the end
+    /// @param feedId     the database ID of the feed
+    /// @param titleStart whether the key starts at the first word of the title
+    record Key(String text, int feedId, boolean titleStart) {
+    }
+
+    /// A range of keys sharing a prefix
+    ///
+    /// @param start the index of the first key, inclusive
+    /// @param end   the index of the last key, exclusive
+    record Range(int start, int end) {
+        /// A range without keys
+        static final Range EMPTY = new Range(0, 0);
+    }
+
+    private FeedTitleTrie(List<Key> sortedKeys) {
+        final var count = sortedKeys.size();
+        keys = new String[count];
+        feedIds = new int[count];
+        titleStarts = new boolean[count];
+        for (var i = 0; i < count; i++) {
+            final var key = sortedKeys.get(i);
+            keys[i] = key.text();
+            feedIds[i] = key.feedId();
+            titleStarts[i] = key.titleStart();
+        }
+
+        // A radix trie has at most one inner node per leaf, and at most one leaf per key
+        final var capacity = 2 * count + 1;
+        depths = new int[capacity];
+        rangeStarts = new int[capacity];
+        rangeEnds = new int[capacity];
+        firstChildren = new int[capacity];
+        childCounts = new int[capacity];
+
+        // Nodes are numbered breadth first, so the children of each node are numbered consecutively
+        var nodeCount = addNode(0, 0, 0, count);
+        for (var node = 0; node < nodeCount; node++) {
+            final var depth = depths[node];
+            final var end = rangeEnds[node];
+            var start = rangeStarts[node];
+            // Keys ending at this node sort before longer keys, and have no child
+            while (start < end && keys[start].length() == depth) {
+                start++;
+            }
+
+            firstChildren[node] = nodeCount;
+            while (start < end) {
+                final var label = keys[start].charAt(depth);
+                var groupEnd = start + 1;
+                while (groupEnd < end && keys[groupEnd].charAt(depth) == label) {
+                    groupEnd++;
+                }
+                // The keys are sorted, so the prefix shared by the first and last key is shared by every key between them
+                nodeCount = addNode(nodeCount, commonPrefixLength(keys[start], keys[groupEnd - 1]), start, groupEnd);
+                start = groupEnd;
+            }
+            childCounts[node] = nodeCount - firstChildren[node];
+        }
+    }
+
+    /// Builds a trie of feed titles
+    ///
+    /// @param titles the title of each feed, by feed ID
+    /// @return the trie
+    static FeedTitleTrie of(Map<Integer, String> titles) {
+        return EMPTY.withTitles(titles);
+    }
+
+    /// Builds a trie with the titles of some feeds replaced
+    ///
+    /// @param titles the new title of each changed feed, by feed ID. A `null` title removes the feed.
+    /// @return the new trie
+    FeedTitleTrie withTitles(Map<Integer, String> titles) {
+        final List<Key> added = new ArrayList<>();
+        titles.forEach((feedId, title) -> added.addAll(keysOf(feedId, title)));
+        added.sort(KEY_ORDER);
+
+        // Merge the kept keys, which are already sorted, with the new ones
+        final List<Key> merged = new ArrayList<>(keys.length + added.size());
+        var next = 0;
+        for (var i = 0; i < keys.length; i++) {
+            if (titles.containsKey(feedIds[i])) {
+                continue;
+            }
+            final var kept = new Key(keys[i], feedIds[i], titleStarts[i]);
+            while (next < added.size() && KEY_ORDER.compare(added.get(next), kept) < 0) {
+                merged.add(added.get(next++));
+            }
+            merged.add(kept);
+        }
+        merged.addAll(added.subList(next, added.size()));
+        return new FeedTitleTrie(merged);
+    }
+
+    /// Finds the keys starting with a prefix
+    ///
+    /// @param prefix the normalized prefix, see [#normalize]
+    /// @return the range of the keys
+    Range find(String prefix) {
+        var node = 0;
+        var position = 0;
+        while (position < prefix.length()) {
+            final var child = findChild(node, prefix.charAt(position));
+            if (child < 0) {
+                return Range.EMPTY;
+            }
+            final var label = keys[rangeStarts[child]];
+            for (var i = depths[node]; i < depths[child]; i++, position++) {
+                if (position == prefix.length()) {
+                    break;
+                }
+                if (label.charAt(i) != prefix.charAt(position)) {
+                    return Range.EMPTY;
+                }
+            }
+            node = child;
+        }
+        return new Range(rangeStarts[node], rangeEnds[node]);
+    }
+
+    /// @return the number of keys
+    int size() {
+        return keys.length;
+    }
+
+    /// @param index the index of a key
+    /// @return the database ID of the feed the key belongs to
+    int feedId(int index) {
+        return feedIds[index];
+    }
+
+    /// @param index the index of a key
+    /// @return whether the key starts at the first word of its title
+    boolean isTitleStart(int index) {
+        return titleStarts[index];
+    }
+
+    /// Normalizes typed text into a prefix of keys.
+    /// Text ending between words only matches keys with another word after the last one typed.
+    ///
+    /// @param text the typed text
+    /// @return the normalized prefix, which is empty if the text has no letters or digits
+    static String normalize(String text) {
+        final var terms = SearchQuery.tokenize(text);
+        if (terms.isEmpty()) {
+            return "";
+        }
+        final var joined = String.join(" ", terms);
+        final var prefix = joined.length() > MAX_KEY_LENGTH ? joined.substring(0, MAX_KEY_LENGTH) : joined;
+        final var endsBetweenWords = !Character.isLetterOrDigit(text.codePointBefore(text.length()));
+        return endsBetweenWords && prefix.length() < MAX_KEY_LENGTH ? prefix + " " : prefix;
+    }
+
+    /// Generates the keys of a title
+    ///
+    /// @param feedId the database ID of the feed
+    /// @param title  the title, or `null` for none
+    /// @return the keys, one per word up to [#MAX_WORDS]
+    static List<Key> keysOf(int feedId, String title) {
+        final var terms = SearchQuery.tokenize(title);
+        final List<Key> result = new ArrayList<>(Math.min(terms.size(), MAX_WORDS));
+        for (var i = 0; i < terms.size() && i < MAX_WORDS; i++) {
+            final var text = String.join(" ", terms.subList(i, terms.size()));
+            result.add(new Key(text.length() > MAX_KEY_LENGTH ? text.substring(0, MAX_KEY_LENGTH) : text, feedId, i == 0));
+        }
+        return result;
+    }
+
+    private int addNode(int node, int depth, int start, int end) {
+        depths[node] = depth;
+        rangeStarts[node] = start;
+        rangeEnds[node] = end;
+        return node + 1;
+    }
+
+    /// Finds the child of a node whose edge starts with a character, by binary search over the consecutive children
+    private int findChild(int node, char label) {
+        var low = firstChildren[node];
+        var high = low + childCounts[node] - 1;
+        final var depth = depths[node];
+        while (low <= high) {
+            final var middle = (low + high) >>> 1;
+            final var middleLabel = keys[rangeStarts[middle]].charAt(depth);
+            if (middleLabel < label) {
+                low = middle + 1;
+            } else if (middleLabel > label) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private static int commonPrefixLength(String first, String last) {
+        final var length = Math.min(first.length(), last.length());
+        var i = 0;
+        while (i < length && first.charAt(i) == last.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+}
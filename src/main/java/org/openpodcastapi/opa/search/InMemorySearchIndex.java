@@ -0,0 +1,150 @@
+package org.openpodcastapi.opa.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import org.openpodcastapi.opa.episode.EpisodeRepository;
+import org.openpodcastapi.opa.episode.EpisodesStoredEvent;
+import org.openpodcastapi.opa.feed.FeedDetailsChangedEvent;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// A [SearchIndex] held in memory, for H2 and single-node deployments.
+///
+/// Every feed and episode is indexed in batches when the application starts.
+/// After that, the index is updated incrementally as refreshes store episodes and change feed details,
+/// from the same events that announce them, so a refresh's changes are searchable once it completes.
+/// Only changes made on this node are seen, so deployments with several nodes use [PostgresSearchIndex] instead.
+@Component
+@ConditionalOnProperty(name = "search.backend", havingValue = "memory")
+public class InMemorySearchIndex implements SearchIndex {
+    private static final Logger log = getLogger(InMemorySearchIndex.class);
+
+    /// The weight of a term in a feed's title. Title matches rank above author matches.
+    private static final int TITLE_WEIGHT = 2;
+
+    /// The weight of a term in a feed's author, or an episode's title
+    private static final int TEXT_WEIGHT = 1;
+
+    private final InvertedIndex feeds = new InvertedIndex();
+    private final InvertedIndex episodes = new InvertedIndex();
+    private final FeedRepository feedRepository;
+    private final EpisodeRepository episodeRepository;
+    private final int batchSize;
+
+    /// All-args constructor
+    ///
+    /// @param feedRepository    the repository feeds are indexed from
+    /// @param episodeRepository the repository episodes are indexed from
+    /// @param meterRegistry     the registry used to publish index metrics
+    /// @param batchSize         the number of rows read per query when building the index
+    public InMemorySearchIndex(FeedRepository feedRepository,
+                               EpisodeRepository episodeRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${search.memory.batch-size:10000}") int batchSize) {
+        this.feedRepository = feedRepository;
+        this.episodeRepository = episodeRepository;
+        this.batchSize = batchSize;
+
+        Gauge.builder("search.index.documents", feeds, InvertedIndex::size).tag("type", "feed").register(meterRegistry);
+        Gauge.builder("search.index.documents", episodes, InvertedIndex::size).tag("type", "episode").register(meterRegistry);
+    }
+
+    /// Indexes every stored feed and episode
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        final var startedAt = System.nanoTime();
+
+        var lastFeedId = 0L;
+        List<FeedRepository.FeedText> feedBatch;
+        do {
+            feedBatch = feedRepository.findTextsAfter(lastFeedId, Limit.of(batchSize));
+            feeds.putAll(feedBatch.stream().map(InMemorySearchIndex::toDocument).toList());
+            lastFeedId = feedBatch.isEmpty() ? lastFeedId : feedBatch.getLast().id();
+        } while (feedBatch.size() == batchSize);
+
+        var lastEpisodeId = 0L;
+        List<EpisodeRepository.EpisodeText> episodeBatch;
+        do {
+            episodeBatch = episodeRepository.findTextsAfter(lastEpisodeId, Limit.of(batchSize));
+            episodes.putAll(episodeBatch.stream().map(InMemorySearchIndex::toDocument).toList());
+            lastEpisodeId = episodeBatch.isEmpty() ? lastEpisodeId : episodeBatch.getLast().id();
+        } while (episodeBatch.size() == batchSize);
+
+        log.info("Indexed {} feeds and {} episodes for search in {} ms",
+                feeds.size(), episodes.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    /// Indexes the episodes a refresh stored or changed
+    ///
+    /// @param event the event published after the episodes were stored
+    @EventListener
+    public void onEpisodesStored(EpisodesStoredEvent event) {
+        episodes.putAll(episodeRepository.findTextsUpdatedSince(event.feedId(), event.since()).stream()
+                .map(InMemorySearchIndex::toDocument)
+                .toList());
+    }
+
+    /// Indexes the new title and author of a feed
+    ///
+    /// @param event the event published after the details changed
+    @EventListener
+    public void onFeedDetailsChanged(FeedDetailsChangedEvent event) {
+        feedRepository.findTextById(event.feedId()).ifPresentOrElse(
+                feed -> feeds.putAll(List.of(toDocument(feed))),
+                () -> feeds.removeAll(List.of(event.feedId())));
+    }
+
+    @Override
+    public List<Long> searchFeeds(SearchQuery query, @Nullable Collection<Long> feedIds, int limit) {
+        return toList(feeds.search(query, toGroupFilter(feedIds), limit));
+    }
+
+    @Override
+    public List<Long> searchEpisodes(SearchQuery query, @Nullable Collection<Long> feedIds, int limit) {
+        return toList(episodes.search(query, toGroupFilter(feedIds), limit));
+    }
+
+    @Override
+    public String backend() {
+        return "memory";
+    }
+
+    private static InvertedIndex.Document toDocument(FeedRepository.FeedText feed) {
+        final Map<String, Integer> terms = new HashMap<>();
+        SearchQuery.tokenize(feed.author()).forEach(term -> terms.put(term, TEXT_WEIGHT));
+        SearchQuery.tokenize(feed.title()).forEach(term -> terms.put(term, TITLE_WEIGHT));
+        // Feeds are their own group, so searching subscribed feeds filters on the feed's own ID
+        return new InvertedIndex.Document(feed.id(), feed.id(), 0, terms);
+    }
+
+    private static InvertedIndex.Document toDocument(EpisodeRepository.EpisodeText episode) {
+        final Map<String, Integer> terms = new HashMap<>();
+        SearchQuery.tokenize(episode.title()).forEach(term -> terms.put(term, TEXT_WEIGHT));
+        return new InvertedIndex.Document(episode.id(), episode.feedId(), episode.publishedAt().getEpochSecond(), terms);
+    }
+
+    @Nullable
+    private static long[] toGroupFilter(@Nullable Collection<Long> feedIds) {
+        if (feedIds == null) {
+            return null;
+        }
+        final var groups = feedIds.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(groups);
+        return groups;
+    }
+
+    private static List<Long> toList(long[] ids) {
+        return Arrays.stream(ids).boxed().toList();
+    }
+}
@@ -0,0 +1,471 @@
+package org.openpodcastapi.opa.search;
+
+import jakarta.annotation.Nullable;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/// An in-memory inverted index of short texts, such as titles.
+///
+/// Documents are numbered in the order they're added. Each term maps to its postings: the numbers of the documents
+/// containing it, in ascending order, in a primitive array alongside the term's weight in each document.
+/// Replacing or removing a document only marks its number deleted, so the index is compacted once deleted numbers
+/// outnumber live ones.
+///
+/// A query intersects the postings of its exact terms, shortest first, then keeps the documents found in the postings
+/// of a term its prefix expands to. Results are ranked by the summed weights of the matched terms, then by the rank
+/// of each document, highest first.
+///
+/// The index is safe for concurrent use. Queries share a read lock and changes take the write lock.
+final class InvertedIndex {
+    /// The number of deleted documents below which the index is never compacted
+    private static final int MIN_COMPACTION = 1024;
+
+    /// Unions of postings longer than the number of documents divided by this are merged through a dense array
+    private static final int DENSE_UNION_RATIO = 32;
+
+    /// The largest weight of a term in a document
+    static final int MAX_WEIGHT = Byte.MAX_VALUE;
+
+    private static final long[] NO_RESULTS = new long[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    private final Map<Long, Integer> documents = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private long[] ids = new long[16];
+    private long[] groups = new long[16];
+    private long[] ranks = new long[16];
+    private int size;
+    private int deletedCount;
+
+    /// A document to index
+    ///
+    /// @param id    the ID of the document
+    /// @param group the ID of the group the document belongs to, which queries can filter by
+    /// @param rank  orders documents that match a query equally well, highest first
+    /// @param terms the weight of each term in the document, from 1 to [#MAX_WEIGHT]
+    record Document(long id, long group, long rank, Map<String, Integer> terms) {
+    }
+
+    /// Adds documents, replacing any already indexed with the same IDs
+    ///
+    /// @param batch the documents to add
+    void putAll(Collection<Document> batch) {
+        lock.writeLock().lock();
+        try {
+            batch.forEach(this::add);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /// Removes documents. IDs that aren't indexed are ignored.
+    ///
+    /// @param documentIds the IDs of the documents to remove
+    void removeAll(Collection<Long> documentIds) {
+        lock.writeLock().lock();
+        try {
+            documentIds.forEach(id -> {
+                final var doc = documents.remove(id);
+                if (doc != null) {
+                    markDeleted(doc);
+                }
+            });
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /// @return the number of indexed documents
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /// Finds the documents that best match a query
+    ///
+    /// @param query       the query
+    /// @param groupFilter the IDs of the groups to search, in ascending order, or `null` to search every group
+    /// @param limit       the maximum number of results
+    /// @return the IDs of the matching documents, best match first
+    long[] search(SearchQuery query, @Nullable long[] groupFilter, int limit) {
+        lock.readLock().lock();
+        try {
+            final List<Postings> exact = new ArrayList<>(query.exactTerms().size());
+            for (final var term : query.exactTerms()) {
+                final var termPostings = postings.get(term);
+                if (termPostings == null) {
+                    return NO_RESULTS;
+                }
+                exact.add(termPostings);
+            }
+            final var expansions = postings.subMap(query.prefix(), true, query.prefix() + Character.MAX_VALUE, false).values();
+            if (expansions.isEmpty()) {
+                return NO_RESULTS;
+            }
+
+            Matches matches;
+            if (exact.isEmpty()) {
+                matches = union(expansions);
+            } else {
+                // Intersecting the shortest postings first keeps every intermediate result as small as possible
+                exact.sort(Comparator.comparingInt(Postings::length));
+                matches = Matches.of(exact.getFirst());
+                for (var i = 1; i < exact.size() && matches.count > 0; i++) {
+                    matches = intersect(matches, exact.get(i));
+                }
+                matches = intersect(matches, expansions);
+            }
+
+            return top(matches, groupFilter, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Document document) {
+        final var previous = documents.put(document.id(), size);
+        if (previous != null) {
+            markDeleted(previous);
+        }
+
+        if (size == ids.length) {
+            final var capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            groups = Arrays.copyOf(groups, capacity);
+            ranks = Arrays.copyOf(ranks, capacity);
+        }
+        ids[size] = document.id();
+        groups[size] = document.group();
+        ranks[size] = document.rank();
+        for (final var term : document.terms().entrySet()) {
+            postings.computeIfAbsent(term.getKey(), _ -> new Postings()).add(size, term.getValue());
+        }
+        size++;
+    }
+
+    private void markDeleted(int doc) {
+        deleted.set(doc);
+        deletedCount++;
+    }
+
+    /// Renumbers the live documents and drops deleted ones from every postings list once most numbers are deleted
+    private void compactIfSparse() {
+        if (deletedCount < MIN_COMPACTION || deletedCount <= documents.size()) {
+            return;
+        }
+
+        final var renumbered = new int[size];
+        var live = 0;
+        for (var doc = 0; doc < size; doc++) {
+            if (deleted.get(doc)) {
+                renumbered[doc] = -1;
+            } else {
+                renumbered[doc] = live;
+                ids[live] = ids[doc];
+                groups[live] = groups[doc];
+                ranks[live] = ranks[doc];
+                documents.put(ids[live], live);
+                live++;
+            }
+        }
+
+        // Documents keep their relative order, so each postings list stays sorted
+        postings.values().removeIf(termPostings -> termPostings.renumber(renumbered) == 0);
+        size = live;
+        deleted.clear();
+        deletedCount = 0;
+    }
+
+    /// Merges postings lists, keeping the highest weight of each document
+    private Matches union(Collection<Postings> lists) {
+        if (lists.size() == 1) {
+            return Matches.of(lists.iterator().next());
+        }
+
+        var total = 0;
+        for (final var list : lists) {
+            total += list.length;
+        }
+        return total > size / DENSE_UNION_RATIO ? denseUnion(lists) : sparseUnion(lists, total);
+    }
+
+    /// Merges postings lists through a bitmap indexed by document number, for lists covering much of the index.
+    /// The bitmap is an eighth of the size of a weight per document, so it stays in cache while the lists are merged,
+    /// and weights above 1 are only recorded separately if a list has any.
+    private Matches denseUnion(Collection<Postings> lists) {
+        final var matched = new long[(size + Long.SIZE - 1) / Long.SIZE];
+        byte[] heavier = null;
+        for (final var list : lists) {
+            for (var i = 0; i < list.length; i++) {
+                final var doc = list.docs[i];
+                matched[doc >>> 6] |= 1L << doc;
+                if (list.weights[i] > 1) {
+                    if (heavier == null) {
+                        heavier = new byte[size];
+                    }
+                    heavier[doc] = (byte) Math.max(heavier[doc], list.weights[i]);
+                }
+            }
+        }
+
+        var count = 0;
+        for (final var word : matched) {
+            count += Long.bitCount(word);
+        }
+        final var docs = new int[count];
+        final var scores = new int[count];
+        var next = 0;
+        for (var index = 0; index < matched.length; index++) {
+            for (var word = matched[index]; word != 0; word &= word - 1) {
+                final var doc = index * Long.SIZE + Long.numberOfTrailingZeros(word);
+                docs[next] = doc;
+                scores[next] = heavier == null ? 1 : Math.max(1, heavier[doc]);
+                next++;
+            }
+        }
+        return new Matches(docs, scores, count);
+    }
+
+    /// Merges postings lists by sorting their entries, for lists covering a small part of the index
+    private static Matches sparseUnion(Collection<Postings> lists, int total) {
+        // Document numbers are non-negative and weights fit in a byte, so packed entries sort by document, then weight
+        final var packed = new long[total];
+        var next = 0;
+        for (final var list : lists) {
+            for (var i = 0; i < list.length; i++) {
+                packed[next++] = (long) list.docs[i] << Byte.SIZE | list.weights[i];
+            }
+        }
+        Arrays.sort(packed);
+
+        final var docs = new int[total];
+        final var scores = new int[total];
+        var count = 0;
+        for (var i = 0; i < total; i++) {
+            // The last entry of each document has its highest weight
+            if (i + 1 == total || packed[i + 1] >>> Byte.SIZE != packed[i] >>> Byte.SIZE) {
+                docs[count] = (int) (packed[i] >>> Byte.SIZE);
+                scores[count] = (int) (packed[i] & 0xFF);
+                count++;
+            }
+        }
+        return new Matches(docs, scores, count);
+    }
+
+    /// Keeps the matches found in a postings list, adding their weight in it
+    private static Matches intersect(Matches matches, Postings list) {
+        final var docs = new int[Math.min(matches.count, list.length)];
+        final var scores = new int[docs.length];
+        var count = 0;
+        var i = 0;
+        var j = 0;
+        while (i < matches.count && j < list.length) {
+            if (matches.docs[i] == list.docs[j]) {
+                docs[count] = matches.docs[i];
+                scores[count] = matches.scores[i] + list.weights[j];
+                count++;
+                i++;
+                j++;
+            } else if (matches.docs[i] < list.docs[j]) {
+                i = gallop(matches.docs, i + 1, matches.count, list.docs[j]);
+            } else {
+                j = gallop(list.docs, j + 1, list.length, matches.docs[i]);
+            }
+        }
+        return new Matches(docs, scores, count);
+    }
+
+    /// Keeps the matches found in any of several postings lists, adding their highest weight among them
+    private static Matches intersect(Matches matches, Collection<Postings> lists) {
+        final var best = new int[matches.count];
+        for (final var list : lists) {
+            var i = 0;
+            var j = 0;
+            while (i < matches.count && j < list.length) {
+                if (matches.docs[i] == list.docs[j]) {
+                    best[i] = Math.max(best[i], list.weights[j]);
+                    i++;
+                    j++;
+                } else if (matches.docs[i] < list.docs[j]) {
+                    i = gallop(matches.docs, i + 1, matches.count, list.docs[j]);
+                } else {
+                    j = gallop(list.docs, j + 1, list.length, matches.docs[i]);
+                }
+            }
+        }
+
+        var count = 0;
+        for (var i = 0; i < matches.count; i++) {
+            if (best[i] > 0) {
+                matches.docs[count] = matches.docs[i];
+                matches.scores[count] = matches.scores[i] + best[i];
+                count++;
+            }
+        }
+        return new Matches(matches.docs, matches.scores, count);
+    }
+
+    /// Finds the first index in a sorted range holding a value of at least `key`,
+    /// probing exponentially further ahead so long runs of smaller values are skipped in logarithmic time
+    private static int gallop(int[] values, int from, int to, int key) {
+        var step = 1;
+        var low = from;
+        var high = from;
+        while (high < to && values[high] < key) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, to);
+        while (low < high) {
+            final var middle = (low + high) >>> 1;
+            if (values[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /// Selects the best live matches in the requested groups with a bounded heap, whose root is its worst match.
+    /// Later documents usually rank higher, so matches are visited newest first and most are rejected by one comparison.
+    private long[] top(Matches matches, @Nullable long[] groupFilter, int limit) {
+        final var heap = new int[Math.min(limit, matches.count)];
+        var heapSize = 0;
+        for (var i = matches.count - 1; i >= 0; i--) {
+            // Comparing first is cheaper than checking the group filter, and rejects most matches once the heap is full
+            if (heapSize == heap.length && !isBetter(matches, i, heap[0])) {
+                continue;
+            }
+            final var doc = matches.docs[i];
+            if (deleted.get(doc) || (groupFilter != null && Arrays.binarySearch(groupFilter, groups[doc]) < 0)) {
+                continue;
+            }
+            if (heapSize < heap.length) {
+                heap[heapSize] = i;
+                siftUp(matches, heap, heapSize++);
+            } else {
+                heap[0] = i;
+                siftDown(matches, heap, heapSize);
+            }
+        }
+
+        final var result = new long[heapSize];
+        for (var slot = heapSize - 1; slot >= 0; slot--) {
+            result[slot] = ids[matches.docs[heap[0]]];
+            heap[0] = heap[slot];
+            siftDown(matches, heap, slot);
+        }
+        return result;
+    }
+
+    private void siftUp(Matches matches, int[] heap, int slot) {
+        while (slot > 0) {
+            final var parent = (slot - 1) >>> 1;
+            if (!isBetter(matches, heap[parent], heap[slot])) {
+                return;
+            }
+            swap(heap, parent, slot);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(Matches matches, int[] heap, int heapSize) {
+        var slot = 0;
+        while (true) {
+            final var left = 2 * slot + 1;
+            if (left >= heapSize) {
+                return;
+            }
+            final var right = left + 1;
+            final var worse = right < heapSize && isBetter(matches, heap[left], heap[right]) ? right : left;
+            if (!isBetter(matches, heap[slot], heap[worse])) {
+                return;
+            }
+            swap(heap, slot, worse);
+            slot = worse;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        final var value = heap[a];
+        heap[a] = heap[b];
+        heap[b] = value;
+    }
+
+    /// Compares two matches by score, then rank, then ID
+    private boolean isBetter(Matches matches, int a, int b) {
+        if (matches.scores[a] != matches.scores[b]) {
+            return matches.scores[a] > matches.scores[b];
+        }
+        final var docA = matches.docs[a];
+        final var docB = matches.docs[b];
+        if (ranks[docA] != ranks[docB]) {
+            return ranks[docA] > ranks[docB];
+        }
+        return ids[docA] > ids[docB];
+    }
+
+    /// The documents containing a term, in ascending order, and the term's weight in each
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private byte[] weights = new byte[4];
+        private int length;
+
+        private int length() {
+            return length;
+        }
+
+        private void add(int doc, int weight) {
+            if (length == docs.length) {
+                docs = Arrays.copyOf(docs, length * 2);
+                weights = Arrays.copyOf(weights, length * 2);
+            }
+            docs[length] = doc;
+            weights[length] = (byte) Math.clamp(weight, 1, MAX_WEIGHT);
+            length++;
+        }
+
+        /// Renumbers the documents, dropping deleted ones
+        ///
+        /// @return the number of documents left
+        private int renumber(int[] renumbered) {
+            var kept = 0;
+            for (var i = 0; i < length; i++) {
+                final var doc = renumbered[docs[i]];
+                if (doc >= 0) {
+                    docs[kept] = doc;
+                    weights[kept] = weights[i];
+                    kept++;
+                }
+            }
+            length = kept;
+            if (docs.length > 16 && length < docs.length / 4) {
+                docs = Arrays.copyOf(docs, Math.max(length, 4));
+                weights = Arrays.copyOf(weights, docs.length);
+            }
+            return length;
+        }
+    }
+
+    /// Candidate documents in ascending order, with the summed weights of the terms they matched so far
+    private record Matches(int[] docs, int[] scores, int count) {
+        private static Matches of(Postings list) {
+            final var scores = new int[list.length];
+            for (var i = 0; i < list.length; i++) {
+                scores[i] = list.weights[i];
+            }
+            return new Matches(Arrays.copyOf(list.docs, list.length), scores, list.length);
+        }
+    }
+}
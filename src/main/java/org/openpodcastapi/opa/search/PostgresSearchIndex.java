@@ -0,0 +1,104 @@
+package org.openpodcastapi.opa.search;
+
+import jakarta.annotation.Nullable;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/// A [SearchIndex] answered by PostgreSQL full-text search.
+///
+/// Feeds and episodes have generated `search_vector` columns with GIN indexes, so the database keeps the index
+/// up to date as rows change and every node sees the same results.
+/// Vectors use the `simple` configuration, which doesn't stem words. Text is split on every character that isn't
+/// a letter or digit and lowercased before it's parsed, the same way [SearchQuery] tokenizes queries, so hyphenated
+/// words, decimals and URLs are indexed as the separate terms a query for them asks for.
+///
+/// Ranking reads every matching vector, so episodes are ranked among the most recent `search.postgres.max-candidates`
+/// matches only, rather than among every episode a common term matches.
+@Component
+@ConditionalOnProperty(name = "search.backend", havingValue = "postgres", matchIfMissing = true)
+public class PostgresSearchIndex implements SearchIndex {
+    private static final String SEARCH_FEEDS = """
+            SELECT f.id
+            FROM feeds f, to_tsquery('simple', :query) q
+            WHERE f.search_vector @@ q
+              %s
+            ORDER BY ts_rank(f.search_vector, q) DESC, f.id DESC
+            LIMIT :limit
+            """;
+
+    private static final String SEARCH_EPISODES = """
+            SELECT c.id
+            FROM (SELECT e.id, e.published_at, e.search_vector
+                  FROM episodes e
+                  WHERE e.search_vector @@ to_tsquery('simple', :query)
+                    %s
+                  ORDER BY e.published_at DESC NULLS LAST, e.id DESC
+                  LIMIT :candidates) c,
+                 to_tsquery('simple', :query) q
+            ORDER BY ts_rank(c.search_vector, q) DESC, c.published_at DESC, c.id DESC
+            LIMIT :limit
+            """;
+
+    private final EntityManager entityManager;
+    private final int maxCandidates;
+
+    /// All-args constructor
+    ///
+    /// @param entityManager the entity manager used to run the queries
+    /// @param maxCandidates the maximum number of matching episodes ranked for a query
+    public PostgresSearchIndex(EntityManager entityManager,
+                               @Value("${search.postgres.max-candidates:1000}") int maxCandidates) {
+        this.entityManager = entityManager;
+        this.maxCandidates = maxCandidates;
+    }
+
+    @Override
+    public List<Long> searchFeeds(SearchQuery query, @Nullable Collection<Long> feedIds, int limit) {
+        return search(SEARCH_FEEDS, "AND f.id IN (:feedIds)", query, feedIds, limit, Map.of());
+    }
+
+    @Override
+    public List<Long> searchEpisodes(SearchQuery query, @Nullable Collection<Long> feedIds, int limit) {
+        return search(SEARCH_EPISODES, "AND e.feed_id IN (:feedIds)", query, feedIds, limit,
+                Map.of("candidates", Math.max(maxCandidates, limit)));
+    }
+
+    @Override
+    public String backend() {
+        return "postgres";
+    }
+
+    private List<Long> search(String sql, String feedFilter, SearchQuery query, @Nullable Collection<Long> feedIds, int limit,
+                              Map<String, Object> parameters) {
+        if (feedIds != null && feedIds.isEmpty()) {
+            return List.of();
+        }
+
+        final var statement = entityManager.createNativeQuery(sql.formatted(feedIds == null ? "" : feedFilter), Long.class)
+                .setParameter("query", toTsQuery(query))
+                .setParameter("limit", limit);
+        if (feedIds != null) {
+            statement.setParameter("feedIds", feedIds);
+        }
+        parameters.forEach(statement::setParameter);
+
+        @SuppressWarnings("unchecked") final List<Long> ids = statement.getResultList();
+        return ids;
+    }
+
+    /// Writes a query in `tsquery` syntax, requiring every term and matching the last as a prefix.
+    /// Terms only contain letters and digits, so none of them needs quoting.
+    static String toTsQuery(SearchQuery query) {
+        final var tsQuery = new StringBuilder();
+        for (final var term : query.exactTerms()) {
+            tsQuery.append(term).append(" & ");
+        }
+        return tsQuery.append(query.prefix()).append(":*").toString();
+    }
+}
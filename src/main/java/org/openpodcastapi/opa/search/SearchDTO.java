@@ -0,0 +1,47 @@
+package org.openpodcastapi.opa.search;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nullable;
+import org.openpodcastapi.opa.episode.EpisodeDTO;
+
+import java.util.List;
+import java.util.UUID;
+
+/// Container for all search-related data transfer objects
+public class SearchDTO {
+    /// A DTO representing the results of a search
+    ///
+    /// @param feeds    the matching feeds, best match first
+    /// @param episodes the matching episodes, best match first
+    public record SearchResultsDTO(
+            @JsonProperty(required = true) List<FeedResultDTO> feeds,
+            @JsonProperty(required = true) List<EpisodeDTO.EpisodeResponseDTO> episodes
+    ) {
+    }
+
+    /// A DTO representing a feed matching a search
+    ///
+    /// @param uuid    the UUID of the feed
+    /// @param feedUrl the URL of the feed
+    /// @param title   the title of the feed
+    /// @param author  the author of the feed
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record FeedResultDTO(
+            @JsonProperty(required = true) UUID uuid,
+            @JsonProperty(required = true) String feedUrl,
+            @JsonProperty @Nullable String title,
+            @JsonProperty @Nullable String author
+    ) {
+    }
+
+    /// A DTO representing a feed completing typed text
+    ///
+    /// @param uuid  the UUID of the feed
+    /// @param title the title of the feed
+    public record CompletionDTO(
+            @JsonProperty(required = true) UUID uuid,
+            @JsonProperty(required = true) String title
+    ) {
+    }
+}
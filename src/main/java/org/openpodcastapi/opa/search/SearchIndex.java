@@ -0,0 +1,31 @@
+package org.openpodcastapi.opa.search;
+
+import jakarta.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+
+/// Finds feeds and episodes whose text matches a [SearchQuery].
+///
+/// Feeds match on their title and author, a title match ranking higher.
+/// Episodes match on their title, ties ranking newer episodes first.
+public interface SearchIndex {
+    /// Finds the feeds that best match a query
+    ///
+    /// @param query   the query
+    /// @param feedIds the database IDs of the feeds to search, or `null` to search every feed
+    /// @param limit   the maximum number of results
+    /// @return the database IDs of the matching feeds, best match first
+    List<Long> searchFeeds(SearchQuery query, @Nullable Collection<Long> feedIds, int limit);
+
+    /// Finds the episodes that best match a query
+    ///
+    /// @param query   the query
+    /// @param feedIds the database IDs of the feeds whose episodes to search, or `null` to search every episode
+    /// @param limit   the maximum number of results
+    /// @return the database IDs of the matching episodes, best match first
+    List<Long> searchEpisodes(SearchQuery query, @Nullable Collection<Long> feedIds, int limit);
+
+    /// @return the name of the backend, used to tag metrics
+    String backend();
+}
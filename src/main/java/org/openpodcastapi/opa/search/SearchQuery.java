@@ -0,0 +1,60 @@
+package org.openpodcastapi.opa.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/// A parsed search query.
+///
+/// Text is split into terms at every character that isn't a letter or digit, and lowercased.
+/// Both search backends split indexed text the same way, so a term matches a word of a title exactly.
+/// The last term also matches words it's a prefix of, so results keep up with a user who is still typing.
+///
+/// @param terms the terms every result must contain, in the order they were typed
+public record SearchQuery(List<String> terms) {
+    /// The maximum number of terms read from a query
+    public static final int MAX_TERMS = 8;
+
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /// Parses a search query
+    ///
+    /// @param text the query text
+    /// @return the parsed query
+    /// @throws IllegalArgumentException if the text contains no terms
+    public static SearchQuery parse(String text) {
+        final var terms = tokenize(text);
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("the query must contain a letter or digit");
+        }
+        return new SearchQuery(terms.size() > MAX_TERMS ? List.copyOf(terms.subList(0, MAX_TERMS)) : terms);
+    }
+
+    /// Splits text into lowercase terms
+    ///
+    /// @param text the text to split
+    /// @return the terms of the text, in order. Repeated terms are kept.
+    public static List<String> tokenize(String text) {
+        final List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (final var term : SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /// @return the terms matched exactly
+    public List<String> exactTerms() {
+        return terms.subList(0, terms.size() - 1);
+    }
+
+    /// @return the term matched as a prefix
+    public String prefix() {
+        return terms.getLast();
+    }
+}
@@ -0,0 +1,61 @@
+package org.openpodcastapi.opa.search;
+
+import org.openpodcastapi.opa.service.CustomUserDetails;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/// Controller for API search requests
+@RestController
+@RequestMapping("/api/v1/search")
+public class SearchRestController {
+    private final SearchService service;
+    private final FeedAutocomplete autocomplete;
+
+    /// Required-args constructor
+    ///
+    /// @param service      the service used to search
+    /// @param autocomplete the completions of subscribed feed titles
+    public SearchRestController(SearchService service, FeedAutocomplete autocomplete) {
+        this.service = service;
+        this.autocomplete = autocomplete;
+    }
+
+    /// Searches feeds and episodes
+    ///
+    /// @param user       the custom user details of the authenticated user
+    /// @param q          the query text
+    /// @param subscribed whether to only search the user's subscribed feeds and their episodes
+    /// @param limit      the maximum number of results of each type
+    /// @return a response containing the matching feeds and episodes
+    /// @throws IllegalArgumentException if the query has no terms, or the limit is out of range
+    @GetMapping
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<SearchDTO.SearchResultsDTO> search(@AuthenticationPrincipal CustomUserDetails user,
+                                                             @RequestParam String q,
+                                                             @RequestParam(defaultValue = "false") boolean subscribed,
+                                                             @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(service.search(user.id(), q, subscribed, limit));
+    }
+
+    /// Completes typed text with the titles of the user's subscribed feeds
+    ///
+    /// @param user   the custom user details of the authenticated user
+    /// @param prefix the typed text
+    /// @param limit  the maximum number of completions
+    /// @return a response containing the matching feeds, titles starting with the text first
+    /// @throws IllegalArgumentException if the text has no letters or digits, or the limit is out of range
+    @GetMapping("/autocomplete")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<List<SearchDTO.CompletionDTO>> autocomplete(@AuthenticationPrincipal CustomUserDetails user,
+                                                                      @RequestParam String prefix,
+                                                                      @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(autocomplete.complete(user.id(), prefix, limit));
+    }
+}
@@ -0,0 +1,119 @@
+package org.openpodcastapi.opa.search;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.openpodcastapi.opa.episode.EpisodeDTO;
+import org.openpodcastapi.opa.episode.EpisodeEntity;
+import org.openpodcastapi.opa.episode.EpisodeMapper;
+import org.openpodcastapi.opa.episode.EpisodeRepository;
+import org.openpodcastapi.opa.feed.FeedEntity;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.openpodcastapi.opa.subscription.SubscriptionRepository;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Service for searching feeds and episodes.
+///
+/// The configured [SearchIndex] finds the IDs of the best matches, which are then loaded in one query per type.
+/// Matches deleted since they were indexed are left out.
+@Service
+public class SearchService {
+    private static final Logger log = getLogger(SearchService.class);
+
+    private final SearchIndex index;
+    private final FeedRepository feedRepository;
+    private final EpisodeRepository episodeRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final EpisodeMapper episodeMapper;
+    private final Timer queries;
+    private final int maxLimit;
+
+    /// All-args constructor
+    ///
+    /// @param index                  the index used to find matches
+    /// @param feedRepository         the repository used to load matching feeds
+    /// @param episodeRepository      the repository used to load matching episodes
+    /// @param subscriptionRepository the repository used to find a user's subscribed feeds
+    /// @param episodeMapper          the mapper used to map episodes to DTOs
+    /// @param meterRegistry          the registry used to publish query latency
+    /// @param maxLimit               the maximum number of results of each type
+    public SearchService(SearchIndex index,
+                         FeedRepository feedRepository,
+                         EpisodeRepository episodeRepository,
+                         SubscriptionRepository subscriptionRepository,
+                         EpisodeMapper episodeMapper,
+                         MeterRegistry meterRegistry,
+                         @Value("${search.max-limit:100}") int maxLimit) {
+        this.index = index;
+        this.feedRepository = feedRepository;
+        this.episodeRepository = episodeRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.episodeMapper = episodeMapper;
+        this.maxLimit = maxLimit;
+        this.queries = Timer.builder("search.query.duration")
+                .tag("backend", index.backend())
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /// Searches the titles and authors of feeds, and the titles of episodes
+    ///
+    /// @param userId     the database ID of the user searching
+    /// @param text       the query text
+    /// @param subscribed whether to only search the feeds the user is subscribed to, and their episodes
+    /// @param limit      the maximum number of results of each type
+    /// @return the matching feeds and episodes, best match first
+    /// @throws IllegalArgumentException if the query has no terms, or the limit isn't between 1 and the maximum
+    @Transactional(readOnly = true)
+    public SearchDTO.SearchResultsDTO search(Long userId, String text, boolean subscribed, int limit) {
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+        final var query = SearchQuery.parse(text);
+        final var feedIds = subscribed ? subscriptionRepository.findSubscribedFeedIds(userId) : null;
+
+        log.debug("Searching for {} for {}", query.terms(), userId);
+        final var sample = Timer.start();
+        final var feedMatches = index.searchFeeds(query, feedIds, limit);
+        final var episodeMatches = index.searchEpisodes(query, feedIds, limit);
+        sample.stop(queries);
+
+        return new SearchDTO.SearchResultsDTO(loadFeeds(feedMatches), loadEpisodes(episodeMatches));
+    }
+
+    private List<SearchDTO.FeedResultDTO> loadFeeds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        final Map<Long, FeedEntity> feeds = feedRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(FeedEntity::getId, Function.identity()));
+        return ids.stream()
+                .map(feeds::get)
+                .filter(Objects::nonNull)
+                .map(feed -> new SearchDTO.FeedResultDTO(feed.getUuid(), feed.getFeedUrl(), feed.getTitle(), feed.getAuthor()))
+                .toList();
+    }
+
+    private List<EpisodeDTO.EpisodeResponseDTO> loadEpisodes(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        final Map<Long, EpisodeEntity> episodes = episodeRepository.findWithFeedByIdIn(ids).stream()
+                .collect(Collectors.toMap(EpisodeEntity::getId, Function.identity()));
+        return ids.stream()
+                .map(episodes::get)
+                .filter(Objects::nonNull)
+                .map(episodeMapper::toDto)
+                .toList();
+    }
+}
@@ -0,0 +1,116 @@
+package org.openpodcastapi.opa.search;
+
+import org.openpodcastapi.opa.subscription.SubscriptionRepository;
+import org.openpodcastapi.opa.subscription.SubscriptionsChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/// Caches the feeds each user is subscribed to as a sorted array of feed IDs, for filtering completions.
+///
+/// An array costs 8 bytes per subscription, however large the feed IDs are, and is searched with a binary search.
+/// A user's array is loaded on first use, then patched as they subscribe and unsubscribe on this node.
+/// Patches merge into a new array, so readers never see one half-changed. Changes made on other nodes are picked up
+/// when the array expires, and at most a configured number of users are cached.
+@Component
+public class SubscribedFeeds {
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final SubscriptionRepository subscriptionRepository;
+    private final long ttlNanos;
+    private final int maxUsers;
+
+    /// A cached array
+    ///
+    /// @param feedIds  the database IDs of the subscribed feeds, in ascending order without duplicates
+    /// @param loadedAt the [System#nanoTime] the array was loaded at
+    private record Entry(long[] feedIds, long loadedAt) {
+    }
+
+    /// All-args constructor
+    ///
+    /// @param subscriptionRepository the repository subscriptions are loaded from
+    /// @param ttl                    how long an array is used before it's loaded again
+    /// @param maxUsers               the maximum number of users whose arrays are cached
+    public SubscribedFeeds(SubscriptionRepository subscriptionRepository,
+                           @Value("${search.autocomplete.subscriptions-ttl:PT1M}") Duration ttl,
+                           @Value("${search.autocomplete.max-users:10000}") int maxUsers) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.ttlNanos = ttl.toNanos();
+        this.maxUsers = maxUsers;
+    }
+
+    /// Gets the sorted IDs of a user's subscribed feeds, loading them if they aren't cached or have expired
+    ///
+    /// @param userId the database ID of the user
+    /// @return the sorted feed IDs, which must not be modified
+    long[] get(Long userId) {
+        final var now = System.nanoTime();
+        final var cached = entries.get(userId);
+        if (cached != null && now - cached.loadedAt() < ttlNanos) {
+            return cached.feedIds();
+        }
+
+        if (cached == null && entries.size() >= maxUsers) {
+            // Any user will do, as arrays are cheap to load again
+            entries.keySet().stream().findAny().ifPresent(entries::remove);
+        }
+        // Loading inside compute orders the load with patches, so a patch is never overwritten by an older load
+        return entries.compute(userId, (_, entry) -> entry != null && now - entry.loadedAt() < ttlNanos
+                ? entry
+                : new Entry(sorted(subscriptionRepository.findSubscribedFeedIds(userId)), now)
+        ).feedIds();
+    }
+
+    /// Whether a sorted array of feed IDs contains a feed
+    ///
+    /// @param feedIds the sorted feed IDs
+    /// @param feedId  the database ID of the feed
+    /// @return `true` if the array contains the feed
+    static boolean contains(long[] feedIds, long feedId) {
+        return Arrays.binarySearch(feedIds, feedId) >= 0;
+    }
+
+    /// Patches the cached array of a user whose subscriptions changed
+    ///
+    /// @param event the event published by the subscription service
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSubscriptionsChanged(SubscriptionsChangedEvent event) {
+        entries.computeIfPresent(event.userId(), (_, entry) ->
+                new Entry(patched(entry.feedIds(), sorted(event.feedIds()), event.subscribed()), entry.loadedAt()));
+    }
+
+    /// Sorts feed IDs and removes duplicates
+    static long[] sorted(Collection<Long> feedIds) {
+        return feedIds.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+    }
+
+    /// Merges sorted changes into a sorted array, adding them if `subscribed` and removing them otherwise
+    static long[] patched(long[] feedIds, long[] changes, boolean subscribed) {
+        final var result = new long[subscribed ? feedIds.length + changes.length : feedIds.length];
+        var length = 0;
+        var i = 0;
+        var j = 0;
+        while (i < feedIds.length || j < changes.length) {
+            if (j == changes.length || i < feedIds.length && feedIds[i] < changes[j]) {
+                result[length++] = feedIds[i++];
+            } else if (i == feedIds.length || changes[j] < feedIds[i]) {
+                if (subscribed) {
+                    result[length++] = changes[j];
+                }
+                j++;
+            } else {
+                if (subscribed) {
+                    result[length++] = feedIds[i];
+                }
+                i++;
+                j++;
+            }
+        }
+        return length == result.length ? result : Arrays.copyOf(result, length);
+    }
+}
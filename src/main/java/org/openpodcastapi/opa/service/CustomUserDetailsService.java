@@ -23,13 +23,14 @@ public class CustomUserDetailsService implements UserDetailsService {
         this.userRepository = userRepository;
     }
 
-    /// Returns a mapped custom user details model by username
+    /// Returns a mapped custom user details model by username.
+    /// Users whose deletion was requested aren't found, so they can't sign in.
     ///
     /// @param username the username to map
     /// @throws UsernameNotFoundException if user is not matched by username
     @Override
     public @NonNull UserDetails loadUserByUsername(@NonNull String username) {
-        return userRepository.findUserByUsername(username)
+        return userRepository.findUserByUsernameAndDeletionRequestedAtIsNull(username)
                 .map(this::mapToUserDetails)
                 .orElseThrow(() -> new UsernameNotFoundException("UserEntity not found"));
     }
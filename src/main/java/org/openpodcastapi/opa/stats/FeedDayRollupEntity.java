@@ -0,0 +1,102 @@
+package org.openpodcastapi.opa.stats;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/// An entity holding the totals of a user's listening to a feed on a day, in UTC.
+///
+/// Rows are only written by [ListeningRollup], as events are appended to the user's listening history.
+@Entity
+@Table(name = "listening_rollup_feed_days", indexes = {
+        @Index(name = "uc_listening_rollup_feed_days_user_id_day_feed_id", columnList = "user_id, listened_on, feed_id", unique = true)
+})
+public class FeedDayRollupEntity {
+    /// The entity ID
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /// The database ID of the user
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private Long userId;
+
+    /// The day of the listening, in UTC
+    @Column(nullable = false, updatable = false)
+    private LocalDate listenedOn;
+
+    /// The database ID of the feed
+    @Column(name = "feed_id", nullable = false, updatable = false)
+    private Long feedId;
+
+    /// The number of seconds listened
+    @Column(nullable = false)
+    private long listenedSeconds;
+
+    /// The number of actions reported
+    @Column(nullable = false)
+    private int actions;
+
+    /// The number of episodes played to the end
+    @Column(nullable = false)
+    private int completions;
+
+    /// No-args constructor
+    public FeedDayRollupEntity() {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param userId     the database ID of the user
+    /// @param listenedOn the day
+    /// @param feedId     the database ID of the feed
+    public FeedDayRollupEntity(Long userId, LocalDate listenedOn, Long feedId) {
+        this.userId = userId;
+        this.listenedOn = listenedOn;
+        this.feedId = feedId;
+    }
+
+    /// Adds to the totals
+    ///
+    /// @param tally the listening to add
+    public void add(ListeningRollup.Tally tally) {
+        this.listenedSeconds += tally.listenedSeconds();
+        this.actions += tally.actions();
+        this.completions += tally.completions();
+    }
+
+    /// @return the entity ID
+    public Long getId() {
+        return id;
+    }
+
+    /// @return the database ID of the user
+    public Long getUserId() {
+        return userId;
+    }
+
+    /// @return the day of the listening, in UTC
+    public LocalDate getListenedOn() {
+        return listenedOn;
+    }
+
+    /// @return the database ID of the feed
+    public Long getFeedId() {
+        return feedId;
+    }
+
+    /// @return the number of seconds listened
+    public long getListenedSeconds() {
+        return listenedSeconds;
+    }
+
+    /// @return the number of actions reported
+    public int getActions() {
+        return actions;
+    }
+
+    /// @return the number of episodes played to the end
+    public int getCompletions() {
+        return completions;
+    }
+}
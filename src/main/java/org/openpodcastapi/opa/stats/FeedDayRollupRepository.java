@@ -0,0 +1,56 @@
+package org.openpodcastapi.opa.stats;
+
+import org.jspecify.annotations.NonNull;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/// Repository for daily feed rollup interactions
+@Repository
+public interface FeedDayRollupRepository extends JpaRepository<@NonNull FeedDayRollupEntity, @NonNull Long> {
+    /// Finds a user's rollups of a set of days
+    ///
+    /// @param userId the database ID of the user
+    /// @param days   the days
+    /// @return the rollups of every feed the user listened to on the days
+    List<FeedDayRollupEntity> findByUserIdAndListenedOnIn(Long userId, Collection<LocalDate> days);
+
+    /// Adds up a user's listening to each feed over a range of days, reading only the rollups of those days
+    ///
+    /// @param userId the database ID of the user
+    /// @param from   the first day, inclusive
+    /// @param to     the last day, inclusive
+    /// @param limit  the maximum number of feeds to return
+    /// @return the totals of the feeds listened to longest
+    @Query("""
+            select new org.openpodcastapi.opa.stats.FeedDayRollupRepository$FeedTotal(r.feedId, sum(r.listenedSeconds), sum(r.actions), sum(r.completions))
+            from FeedDayRollupEntity r
+            where r.userId = :userId and r.listenedOn between :from and :to
+            group by r.feedId
+            order by sum(r.listenedSeconds) desc, r.feedId
+            """)
+    List<FeedTotal> findTopFeeds(Long userId, LocalDate from, LocalDate to, Limit limit);
+
+    /// Removes all of a user's rollups
+    ///
+    /// @param userId the database ID of the user
+    /// @return the number of rollups removed
+    @Modifying
+    @Query("delete from FeedDayRollupEntity r where r.userId = :userId")
+    int deleteByUserId(Long userId);
+
+    /// A user's listening to a feed over a range of days
+    ///
+    /// @param feedId          the database ID of the feed
+    /// @param listenedSeconds the number of seconds listened
+    /// @param actions         the number of actions reported
+    /// @param completions     the number of episodes played to the end
+    record FeedTotal(Long feedId, Long listenedSeconds, Long actions, Long completions) {
+    }
+}
@@ -0,0 +1,153 @@
+package org.openpodcastapi.opa.stats;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openpodcastapi.opa.episode.EpisodeRepository;
+import org.openpodcastapi.opa.history.HistoryRecorder;
+import org.openpodcastapi.opa.history.ListeningEvent;
+import org.openpodcastapi.opa.history.ListeningEventsAppendedEvent;
+import org.openpodcastapi.opa.playback.PlaybackAction;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Maintains the daily listening rollups of each user, and of each feed they listen to, as events are appended to their history.
+///
+/// Listening time is measured between consecutive events: a `PLAY` or `POSITION` event followed, within `stats.max-gap`,
+/// by a later position in the same episode counts the time between them, on the day of the later event.
+/// Each append reads and writes one row per day and feed it touches, plus the user's [RollupStateEntity].
+/// Appends for a user are serialized by their history, so the rows are read and updated without further locking.
+///
+/// An event older than the user's latest rolled up event is counted, but adds no listening time.
+/// Rebuilding the rollups from the history with [ListeningStatsService#rebuild] counts it in order.
+///
+/// Events queued in the [HistoryRecorder] aren't rolled up yet, so the age of the oldest one is published as `stats.rollup.lag`.
+@Component
+public class ListeningRollup {
+    private static final Logger log = getLogger(ListeningRollup.class);
+
+    private final UserDayRollupRepository userDayRepository;
+    private final FeedDayRollupRepository feedDayRepository;
+    private final RollupStateRepository stateRepository;
+    private final EpisodeRepository episodeRepository;
+    private final long maxGapSeconds;
+
+    /// All-args constructor
+    ///
+    /// @param userDayRepository the repository used for daily user rollups
+    /// @param feedDayRepository the repository used for daily feed rollups
+    /// @param stateRepository   the repository used for the latest event of each user
+    /// @param episodeRepository the repository used to find the feeds of episodes
+    /// @param recorder          the recorder whose queue is published as the rollup lag
+    /// @param meterRegistry     the registry used to publish rollup metrics
+    /// @param maxGap            the longest time between two events that counts as listening
+    public ListeningRollup(UserDayRollupRepository userDayRepository,
+                           FeedDayRollupRepository feedDayRepository,
+                           RollupStateRepository stateRepository,
+                           EpisodeRepository episodeRepository,
+                           HistoryRecorder recorder,
+                           MeterRegistry meterRegistry,
+                           @Value("${stats.max-gap:PT30M}") Duration maxGap) {
+        this.userDayRepository = userDayRepository;
+        this.feedDayRepository = feedDayRepository;
+        this.stateRepository = stateRepository;
+        this.episodeRepository = episodeRepository;
+        this.maxGapSeconds = maxGap.toSeconds();
+
+        Gauge.builder("stats.rollup.lag", recorder, r -> r.pendingAge().toMillis() / 1000.0)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /// Rolls up events appended to a user's history
+    ///
+    /// @param event the appended events
+    @EventListener
+    public void onEventsAppended(ListeningEventsAppendedEvent event) {
+        apply(event.userId(), event.events());
+    }
+
+    /// Adds events to a user's rollups.
+    /// Must be called in a transaction that holds the user's history lock.
+    ///
+    /// @param userId the database ID of the user
+    /// @param events the events, in time order
+    void apply(Long userId, List<ListeningEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        final Map<Long, Long> feedIds = episodeRepository.findFeedsByIdIn(events.stream().map(ListeningEvent::episodeId).distinct().toList()).stream()
+                .collect(Collectors.toMap(EpisodeRepository.EpisodeFeed::id, EpisodeRepository.EpisodeFeed::feedId));
+        final var state = stateRepository.findById(userId).orElseGet(() -> new RollupStateEntity(userId));
+
+        final Map<LocalDate, Tally> days = new HashMap<>();
+        final Map<FeedDay, Tally> feedDays = new HashMap<>();
+        for (final var listening : events) {
+            var seconds = 0L;
+            if (state.getLastAt() == null || !listening.timestamp().isBefore(state.getLastAt())) {
+                seconds = listenedSeconds(state, listening);
+                state.moveTo(listening.episodeId(), listening.action(), listening.position(), listening.timestamp());
+            }
+
+            final var tally = new Tally(seconds, 1, listening.action() == PlaybackAction.COMPLETE ? 1 : 0);
+            final var day = LocalDate.ofInstant(listening.timestamp(), ZoneOffset.UTC);
+            days.merge(day, tally, Tally::plus);
+            // Episodes deleted since they were played still count towards the user's days, but not towards a feed
+            final var feedId = feedIds.get(listening.episodeId());
+            if (feedId != null) {
+                feedDays.merge(new FeedDay(day, feedId), tally, Tally::plus);
+            }
+        }
+
+        final Map<LocalDate, UserDayRollupEntity> userDays = userDayRepository.findByUserIdAndListenedOnIn(userId, days.keySet()).stream()
+                .collect(Collectors.toMap(UserDayRollupEntity::getListenedOn, rollup -> rollup));
+        days.forEach((day, tally) -> userDays.computeIfAbsent(day, _ -> new UserDayRollupEntity(userId, day)).add(tally));
+        userDayRepository.saveAll(userDays.values());
+
+        final Map<FeedDay, FeedDayRollupEntity> existingFeedDays = feedDayRepository.findByUserIdAndListenedOnIn(userId, days.keySet()).stream()
+                .collect(Collectors.toMap(rollup -> new FeedDay(rollup.getListenedOn(), rollup.getFeedId()), rollup -> rollup));
+        feedDays.forEach((feedDay, tally) -> existingFeedDays.computeIfAbsent(feedDay, _ -> new FeedDayRollupEntity(userId, feedDay.day(), feedDay.feedId())).add(tally));
+        feedDayRepository.saveAll(existingFeedDays.values());
+
+        stateRepository.save(state);
+        log.debug("Rolled up {} listening events over {} days for {}", events.size(), days.size(), userId);
+    }
+
+    /// Measures the listening between the latest rolled up event and the next one
+    private long listenedSeconds(RollupStateEntity state, ListeningEvent next) {
+        if (state.getLastAt() == null
+                || state.getEpisodeId() != next.episodeId()
+                || (state.getAction() != PlaybackAction.PLAY && state.getAction() != PlaybackAction.POSITION)
+                || next.position() <= state.getPositionSeconds()) {
+            return 0;
+        }
+        final var gap = Duration.between(state.getLastAt(), next.timestamp()).toSeconds();
+        return gap <= maxGapSeconds ? gap : 0;
+    }
+
+    /// Listening totals
+    ///
+    /// @param listenedSeconds the number of seconds listened
+    /// @param actions         the number of actions reported
+    /// @param completions     the number of episodes played to the end
+    public record Tally(long listenedSeconds, int actions, int completions) {
+        Tally plus(Tally other) {
+            return new Tally(listenedSeconds + other.listenedSeconds, actions + other.actions, completions + other.completions);
+        }
+    }
+
+    private record FeedDay(LocalDate day, Long feedId) {
+    }
+}
@@ -0,0 +1,102 @@
+package org.openpodcastapi.opa.stats;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.openpodcastapi.opa.history.ListeningHistoryStore;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// A batch job that rebuilds the listening rollups of every user from their history.
+///
+/// Each user is rebuilt in its own transaction, so the job never holds more than one user's history lock,
+/// and a failed user is logged and skipped rather than stopping the job. Only one rebuild runs at a time.
+@Component
+public class ListeningRollupRebuilder {
+    private static final Logger log = getLogger(ListeningRollupRebuilder.class);
+
+    /// The number of users read at a time
+    private static final int USER_BATCH_SIZE = 100;
+
+    private final ListeningHistoryStore historyStore;
+    private final ListeningStatsService statsService;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("rollup-rebuild").factory());
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter rebuilt;
+    private final Counter failed;
+
+    /// Required-args constructor
+    ///
+    /// @param historyStore  the store used to find users with a history
+    /// @param statsService  the service used to rebuild each user's rollups
+    /// @param meterRegistry the registry used to publish rebuild metrics
+    public ListeningRollupRebuilder(ListeningHistoryStore historyStore, ListeningStatsService statsService, MeterRegistry meterRegistry) {
+        this.historyStore = historyStore;
+        this.statsService = statsService;
+        this.rebuilt = Counter.builder("stats.rollup.rebuilds").tag("result", "rebuilt").register(meterRegistry);
+        this.failed = Counter.builder("stats.rollup.rebuilds").tag("result", "failed").register(meterRegistry);
+    }
+
+    /// Starts rebuilding every user's rollups in the background, unless a rebuild is already running
+    ///
+    /// @return `true` if a rebuild was started
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                rebuildAll();
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /// @return whether a rebuild is running
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /// Rebuilds every user's rollups
+    ///
+    /// @return the number of users rebuilt
+    public int rebuildAll() {
+        var users = 0;
+        var events = 0L;
+        Long after = null;
+        while (true) {
+            final var userIds = historyStore.findUserIds(after, USER_BATCH_SIZE);
+            for (final var userId : userIds) {
+                try {
+                    events += statsService.rebuild(userId);
+                    rebuilt.increment();
+                    users++;
+                } catch (RuntimeException e) {
+                    failed.increment();
+                    log.warn("Unable to rebuild the listening rollups of {}: {}", userId, e.getMessage());
+                }
+            }
+            if (userIds.size() < USER_BATCH_SIZE) {
+                break;
+            }
+            after = userIds.getLast();
+        }
+
+        log.info("Rebuilt the listening rollups of {} users from {} events", users, events);
+        return users;
+    }
+
+    /// Stops the rebuild thread
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,143 @@
+package org.openpodcastapi.opa.stats;
+
+import org.openpodcastapi.opa.feed.FeedEntity;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.openpodcastapi.opa.history.ListeningHistoryStore;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Service for listening statistics.
+///
+/// Statistics are read from the rollups maintained by [ListeningRollup], so a query reads at most one row per day,
+/// or per day and feed, in the requested range, however long the user's history is.
+@Service
+public class ListeningStatsService {
+    private static final Logger log = getLogger(ListeningStatsService.class);
+
+    private final UserDayRollupRepository userDayRepository;
+    private final FeedDayRollupRepository feedDayRepository;
+    private final RollupStateRepository stateRepository;
+    private final FeedRepository feedRepository;
+    private final ListeningHistoryStore historyStore;
+    private final ListeningRollup rollup;
+    private final int maxDays;
+
+    /// All-args constructor
+    ///
+    /// @param userDayRepository the repository used for daily user rollups
+    /// @param feedDayRepository the repository used for daily feed rollups
+    /// @param stateRepository   the repository used for the latest event of each user
+    /// @param feedRepository    the repository used to describe feeds
+    /// @param historyStore      the store rollups are rebuilt from
+    /// @param rollup            the rollup events are replayed through when rebuilding
+    /// @param maxDays           the maximum number of days a query may cover
+    public ListeningStatsService(UserDayRollupRepository userDayRepository,
+                                 FeedDayRollupRepository feedDayRepository,
+                                 RollupStateRepository stateRepository,
+                                 FeedRepository feedRepository,
+                                 ListeningHistoryStore historyStore,
+                                 ListeningRollup rollup,
+                                 @Value("${stats.max-days:366}") int maxDays) {
+        this.userDayRepository = userDayRepository;
+        this.feedDayRepository = feedDayRepository;
+        this.stateRepository = stateRepository;
+        this.feedRepository = feedRepository;
+        this.historyStore = historyStore;
+        this.rollup = rollup;
+        this.maxDays = maxDays;
+    }
+
+    /// Gets a user's listening on each day of a range, including the days they didn't listen on
+    ///
+    /// @param userId the database ID of the user
+    /// @param from   the first day, inclusive
+    /// @param to     the last day, inclusive
+    /// @return the listening of each day, in order
+    /// @throws IllegalArgumentException if the range is empty or too long
+    @Transactional(readOnly = true)
+    public List<StatsDTO.DayStatsDTO> getDays(Long userId, LocalDate from, LocalDate to) {
+        final var days = validateRange(from, to);
+
+        final Map<LocalDate, UserDayRollupEntity> rollups = userDayRepository.findByUserIdAndListenedOnBetweenOrderByListenedOn(userId, from, to).stream()
+                .collect(Collectors.toMap(UserDayRollupEntity::getListenedOn, Function.identity()));
+        final List<StatsDTO.DayStatsDTO> result = new ArrayList<>((int) days);
+        for (var day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            final var dayRollup = rollups.get(day);
+            result.add(dayRollup == null
+                    ? new StatsDTO.DayStatsDTO(day, 0, 0, 0)
+                    : new StatsDTO.DayStatsDTO(day, dayRollup.getListenedSeconds(), dayRollup.getActions(), dayRollup.getCompletions()));
+        }
+        return result;
+    }
+
+    /// Gets the feeds a user listened to longest over a range of days
+    ///
+    /// @param userId the database ID of the user
+    /// @param from   the first day, inclusive
+    /// @param to     the last day, inclusive
+    /// @param limit  the maximum number of feeds to return
+    /// @return the feeds, longest listened first
+    /// @throws IllegalArgumentException if the range is empty or too long, or the limit isn't positive
+    @Transactional(readOnly = true)
+    public List<StatsDTO.FeedStatsDTO> getTopFeeds(Long userId, LocalDate from, LocalDate to, int limit) {
+        validateRange(from, to);
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+
+        final var totals = feedDayRepository.findTopFeeds(userId, from, to, Limit.of(limit));
+        final Map<Long, FeedEntity> feeds = feedRepository.findAllById(totals.stream().map(FeedDayRollupRepository.FeedTotal::feedId).toList()).stream()
+                .collect(Collectors.toMap(FeedEntity::getId, Function.identity()));
+        return totals.stream()
+                .filter(total -> feeds.containsKey(total.feedId()))
+                .map(total -> {
+                    final var feed = feeds.get(total.feedId());
+                    return new StatsDTO.FeedStatsDTO(feed.getUuid(), feed.getFeedUrl(), total.listenedSeconds(), total.actions(), total.completions());
+                })
+                .toList();
+    }
+
+    /// Replaces a user's rollups with rollups of their whole listening history.
+    /// The user's history is locked until the rollups are rebuilt, so no append is lost or counted twice.
+    ///
+    /// @param userId the database ID of the user
+    /// @return the number of events rolled up
+    @Transactional
+    public long rebuild(Long userId) {
+        historyStore.lock(userId);
+        userDayRepository.deleteByUserId(userId);
+        feedDayRepository.deleteByUserId(userId);
+        stateRepository.deleteByUserId(userId);
+
+        final var events = historyStore.replay(userId, month -> rollup.apply(userId, month));
+        log.debug("Rebuilt the listening rollups of {} from {} events", userId, events);
+        return events;
+    }
+
+    /// Checks that a range of days can be queried
+    ///
+    /// @return the number of days in the range
+    private long validateRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        final var days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days > maxDays) {
+            throw new IllegalArgumentException("a maximum of " + maxDays + " days may be queried at once");
+        }
+        return days;
+    }
+}
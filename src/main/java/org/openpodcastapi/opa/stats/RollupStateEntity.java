@@ -0,0 +1,84 @@
+package org.openpodcastapi.opa.stats;
+
+import jakarta.persistence.*;
+import org.openpodcastapi.opa.playback.PlaybackAction;
+
+import java.time.Instant;
+
+/// An entity holding the latest event rolled up for a user.
+///
+/// Listening time is measured between consecutive events, so the rollup of the next append starts from this one.
+@Entity
+@Table(name = "listening_rollup_states")
+public class RollupStateEntity {
+    /// The database ID of the user
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    /// The database ID of the episode of the latest event
+    @Column(nullable = false)
+    private long episodeId;
+
+    /// The action of the latest event
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private PlaybackAction action;
+
+    /// The playback position of the latest event, in seconds
+    @Column(nullable = false)
+    private int positionSeconds;
+
+    /// The time of the latest event
+    @Column(nullable = false)
+    private Instant lastAt;
+
+    /// No-args constructor
+    public RollupStateEntity() {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param userId the database ID of the user
+    public RollupStateEntity(Long userId) {
+        this.userId = userId;
+    }
+
+    /// @return the database ID of the user
+    public Long getUserId() {
+        return userId;
+    }
+
+    /// @return the database ID of the episode of the latest event
+    public long getEpisodeId() {
+        return episodeId;
+    }
+
+    /// @return the action of the latest event
+    public PlaybackAction getAction() {
+        return action;
+    }
+
+    /// @return the playback position of the latest event, in seconds
+    public int getPositionSeconds() {
+        return positionSeconds;
+    }
+
+    /// @return the time of the latest event, or `null` if no event was rolled up yet
+    public Instant getLastAt() {
+        return lastAt;
+    }
+
+    /// Moves the state to a later event
+    ///
+    /// @param episodeId       the database ID of the episode
+    /// @param action          the action
+    /// @param positionSeconds the playback position in seconds
+    /// @param lastAt          the time of the event
+    public void moveTo(long episodeId, PlaybackAction action, int positionSeconds, Instant lastAt) {
+        this.episodeId = episodeId;
+        this.action = action;
+        this.positionSeconds = positionSeconds;
+        this.lastAt = lastAt;
+    }
+}
@@ -0,0 +1,19 @@
+package org.openpodcastapi.opa.stats;
+
+import org.jspecify.annotations.NonNull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+/// Repository for rollup state interactions
+@Repository
+public interface RollupStateRepository extends JpaRepository<@NonNull RollupStateEntity, @NonNull Long> {
+    /// Removes a user's rollup state
+    ///
+    /// @param userId the database ID of the user
+    /// @return the number of states removed
+    @Modifying
+    @Query("delete from RollupStateEntity s where s.userId = :userId")
+    int deleteByUserId(Long userId);
+}
@@ -0,0 +1,39 @@
+package org.openpodcastapi.opa.stats;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/// Container for all listening statistics-related data transfer objects
+public class StatsDTO {
+    /// A DTO representing a user's listening on a day
+    ///
+    /// @param day             the day, in UTC
+    /// @param listenedSeconds the number of seconds listened
+    /// @param actions         the number of actions reported
+    /// @param completions     the number of episodes played to the end
+    public record DayStatsDTO(
+            @JsonProperty(required = true) LocalDate day,
+            @JsonProperty(required = true) long listenedSeconds,
+            @JsonProperty(required = true) long actions,
+            @JsonProperty(required = true) long completions
+    ) {
+    }
+
+    /// A DTO representing a user's listening to a feed over a range of days
+    ///
+    /// @param feed            the UUID of the feed
+    /// @param feedUrl         the URL of the feed
+    /// @param listenedSeconds the number of seconds listened
+    /// @param actions         the number of actions reported
+    /// @param completions     the number of episodes played to the end
+    public record FeedStatsDTO(
+            @JsonProperty(required = true) UUID feed,
+            @JsonProperty(required = true) String feedUrl,
+            @JsonProperty(required = true) long listenedSeconds,
+            @JsonProperty(required = true) long actions,
+            @JsonProperty(required = true) long completions
+    ) {
+    }
+}
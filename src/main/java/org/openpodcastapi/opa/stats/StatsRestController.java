@@ -0,0 +1,71 @@
+package org.openpodcastapi.opa.stats;
+
+import org.openpodcastapi.opa.service.CustomUserDetails;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/// Controller for API listening statistics requests
+@RestController
+@RequestMapping("/api/v1/stats")
+public class StatsRestController {
+    private final ListeningStatsService service;
+    private final ListeningRollupRebuilder rebuilder;
+
+    /// Required-args constructor
+    ///
+    /// @param service   the service used to read statistics
+    /// @param rebuilder the job used to rebuild statistics
+    public StatsRestController(ListeningStatsService service, ListeningRollupRebuilder rebuilder) {
+        this.service = service;
+        this.rebuilder = rebuilder;
+    }
+
+    /// Returns the user's listening on each day of a range
+    ///
+    /// @param user the custom user details of the authenticated user
+    /// @param from the first day, inclusive
+    /// @param to   the last day, inclusive
+    /// @return a response containing the listening of each day
+    /// @throws IllegalArgumentException if the range is empty or too long
+    @GetMapping("/days")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<List<StatsDTO.DayStatsDTO>> getDays(@AuthenticationPrincipal CustomUserDetails user,
+                                                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(service.getDays(user.id(), from, to));
+    }
+
+    /// Returns the feeds the user listened to longest over a range of days
+    ///
+    /// @param user  the custom user details of the authenticated user
+    /// @param from  the first day, inclusive
+    /// @param to    the last day, inclusive
+    /// @param limit the maximum number of feeds to return
+    /// @return a response containing the feeds, longest listened first
+    /// @throws IllegalArgumentException if the range is empty or too long, or the limit isn't positive
+    @GetMapping("/feeds")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<List<StatsDTO.FeedStatsDTO>> getTopFeeds(@AuthenticationPrincipal CustomUserDetails user,
+                                                                   @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                   @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                   @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(service.getTopFeeds(user.id(), from, to, limit));
+    }
+
+    /// Starts rebuilding every user's statistics from their listening history. Only accessible to admins.
+    ///
+    /// @return an empty response, whether a rebuild was started or one was already running
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> rebuild() {
+        rebuilder.start();
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+    }
+}
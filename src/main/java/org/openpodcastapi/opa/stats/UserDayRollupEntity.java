@@ -0,0 +1,91 @@
+package org.openpodcastapi.opa.stats;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/// An entity holding the totals of a user's listening on a day, in UTC.
+///
+/// Rows are only written by [ListeningRollup], as events are appended to the user's listening history.
+@Entity
+@Table(name = "listening_rollup_user_days", indexes = {
+        @Index(name = "uc_listening_rollup_user_days_user_id_day", columnList = "user_id, listened_on", unique = true)
+})
+public class UserDayRollupEntity {
+    /// The entity ID
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /// The database ID of the user
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private Long userId;
+
+    /// The day of the listening, in UTC
+    @Column(nullable = false, updatable = false)
+    private LocalDate listenedOn;
+
+    /// The number of seconds listened
+    @Column(nullable = false)
+    private long listenedSeconds;
+
+    /// The number of actions reported
+    @Column(nullable = false)
+    private int actions;
+
+    /// The number of episodes played to the end
+    @Column(nullable = false)
+    private int completions;
+
+    /// No-args constructor
+    public UserDayRollupEntity() {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param userId     the database ID of the user
+    /// @param listenedOn the day
+    public UserDayRollupEntity(Long userId, LocalDate listenedOn) {
+        this.userId = userId;
+        this.listenedOn = listenedOn;
+    }
+
+    /// Adds to the totals
+    ///
+    /// @param tally the listening to add
+    public void add(ListeningRollup.Tally tally) {
+        this.listenedSeconds += tally.listenedSeconds();
+        this.actions += tally.actions();
+        this.completions += tally.completions();
+    }
+
+    /// @return the entity ID
+    public Long getId() {
+        return id;
+    }
+
+    /// @return the database ID of the user
+    public Long getUserId() {
+        return userId;
+    }
+
+    /// @return the day of the listening, in UTC
+    public LocalDate getListenedOn() {
+        return listenedOn;
+    }
+
+    /// @return the number of seconds listened
+    public long getListenedSeconds() {
+        return listenedSeconds;
+    }
+
+    /// @return the number of actions reported
+    public int getActions() {
+        return actions;
+    }
+
+    /// @return the number of episodes played to the end
+    public int getCompletions() {
+        return completions;
+    }
+}
@@ -0,0 +1,38 @@
+package org.openpodcastapi.opa.stats;
+
+import org.jspecify.annotations.NonNull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/// Repository for daily user rollup interactions
+@Repository
+public interface UserDayRollupRepository extends JpaRepository<@NonNull UserDayRollupEntity, @NonNull Long> {
+    /// Finds a user's rollups of a set of days
+    ///
+    /// @param userId the database ID of the user
+    /// @param days   the days
+    /// @return the rollups of the days the user listened on
+    List<UserDayRollupEntity> findByUserIdAndListenedOnIn(Long userId, Collection<LocalDate> days);
+
+    /// Finds a user's rollups of a range of days
+    ///
+    /// @param userId the database ID of the user
+    /// @param from   the first day, inclusive
+    /// @param to     the last day, inclusive
+    /// @return the rollups of the days the user listened on, in order
+    List<UserDayRollupEntity> findByUserIdAndListenedOnBetweenOrderByListenedOn(Long userId, LocalDate from, LocalDate to);
+
+    /// Removes all of a user's rollups
+    ///
+    /// @param userId the database ID of the user
+    /// @return the number of rollups removed
+    @Modifying
+    @Query("delete from UserDayRollupEntity r where r.userId = :userId")
+    int deleteByUserId(Long userId);
+}
@@ -0,0 +1,129 @@
+package org.openpodcastapi.opa.subscription;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import org.hibernate.query.NativeQuery;
+import org.openpodcastapi.opa.util.DatabasePlatform;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/// Repository for set-based subscription updates.
+///
+/// Only subscriptions that aren't already in the requested state are updated, so repeated requests don't touch rows.
+/// On PostgreSQL, the update is a single `UPDATE ... RETURNING` statement, and the changed feeds are read from the rows it returns.
+/// Other databases select the subscriptions to change, then update them in bulk.
+/// Subscriptions that were already in the requested state are read back with a separate select, only when there are any.
+@Repository
+public class BulkSubscriptionRepository {
+    private static final String RETURNING_UPDATE = """
+            UPDATE subscriptions s
+            SET unsubscribed_at = %s, updated_at = :now
+            FROM feeds f
+            WHERE f.id = s.feed_id
+              AND s.user_id = :userId
+              AND f.uuid IN (:feedUuids)
+              AND s.unsubscribed_at IS %s
+            RETURNING s.feed_id AS feed_id, f.uuid AS uuid, f.feed_url AS feed_url, s.created_at AS created_at, s.updated_at AS updated_at, s.unsubscribed_at AS unsubscribed_at
+            """;
+
+    private static final String BULK_UPDATE = """
+            update SubscriptionEntity s
+            set s.unsubscribedAt = %s, s.updatedAt = :now
+            where s.user.id = :userId
+              and s.feed.id in :feedIds
+              and s.unsubscribedAt is %s
+            """;
+
+    private final EntityManager entityManager;
+    private final DatabasePlatform databasePlatform;
+    private final SubscriptionRepository subscriptionRepository;
+
+    /// The result of a status update
+    ///
+    /// @param subscriptions  the requested subscriptions, whether or not they changed. Feeds the user has no subscription for are omitted.
+    /// @param changedFeedIds the database IDs of the feeds whose subscriptions changed
+    public record StatusUpdate(List<SubscriptionDTO.UserSubscriptionDTO> subscriptions, Set<Long> changedFeedIds) {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param entityManager          the entity manager used to run the statements
+    /// @param databasePlatform       the platform used to select the statement dialect
+    /// @param subscriptionRepository the repository used to read back updated subscriptions
+    public BulkSubscriptionRepository(EntityManager entityManager, DatabasePlatform databasePlatform, SubscriptionRepository subscriptionRepository) {
+        this.entityManager = entityManager;
+        this.databasePlatform = databasePlatform;
+        this.subscriptionRepository = subscriptionRepository;
+    }
+
+    /// Sets or clears the `unsubscribedAt` timestamp of a user's subscriptions to a set of feeds.
+    /// Must be called inside a transaction.
+    ///
+    /// @param userId     the database ID of the user
+    /// @param feedUuids  the UUIDs of the feeds to update
+    /// @param subscribed `true` to resubscribe the user, `false` to unsubscribe them
+    /// @return the requested subscriptions and the feeds whose subscriptions changed
+    public StatusUpdate updateSubscriptionStatus(Long userId, Collection<UUID> feedUuids, boolean subscribed) {
+        if (feedUuids.isEmpty()) {
+            return new StatusUpdate(List.of(), Set.of());
+        }
+
+        final var now = Instant.now();
+
+        if (databasePlatform.isPostgres()) {
+            @SuppressWarnings("unchecked") final NativeQuery<Tuple> query = entityManager
+                    .createNativeQuery(RETURNING_UPDATE.formatted(subscribed ? "NULL" : ":now", subscribed ? "NOT NULL" : "NULL"), Tuple.class)
+                    .unwrap(NativeQuery.class);
+
+            final var rows = query
+                    .addScalar("feed_id", Long.class)
+                    .addScalar("uuid", UUID.class)
+                    .addScalar("feed_url", String.class)
+                    .addScalar("created_at", Instant.class)
+                    .addScalar("updated_at", Instant.class)
+                    .addScalar("unsubscribed_at", Instant.class)
+                    .setParameter("now", now)
+                    .setParameter("userId", userId)
+                    .setParameterList("feedUuids", feedUuids)
+                    .getResultList();
+
+            final List<SubscriptionDTO.UserSubscriptionDTO> subscriptions = new ArrayList<>();
+            final Set<Long> changedFeedIds = new HashSet<>();
+            for (final var row : rows) {
+                changedFeedIds.add(row.get("feed_id", Long.class));
+                subscriptions.add(new SubscriptionDTO.UserSubscriptionDTO(
+                        row.get("uuid", UUID.class),
+                        row.get("feed_url", String.class),
+                        row.get("created_at", Instant.class),
+                        row.get("updated_at", Instant.class),
+                        row.get("unsubscribed_at", Instant.class)));
+            }
+
+            // The rest of the requested feeds either have no subscription or one already in the requested state
+            if (subscriptions.size() < feedUuids.size()) {
+                final Set<UUID> unchanged = new HashSet<>(feedUuids);
+                subscriptions.forEach(subscription -> unchanged.remove(subscription.uuid()));
+                subscriptions.addAll(subscriptionRepository.findDtosByUserIdAndFeedUuidIn(userId, unchanged));
+            }
+            return new StatusUpdate(subscriptions, changedFeedIds);
+        }
+
+        final var changedFeedIds = subscriptionRepository.findFeedIdsToUpdate(userId, feedUuids, subscribed);
+        if (!changedFeedIds.isEmpty()) {
+            entityManager.createQuery(BULK_UPDATE.formatted(subscribed ? "null" : ":now", subscribed ? "not null" : "null"))
+                    .setParameter("now", now)
+                    .setParameter("userId", userId)
+                    .setParameter("feedIds", changedFeedIds)
+                    .executeUpdate();
+        }
+
+        return new StatusUpdate(subscriptionRepository.findDtosByUserIdAndFeedUuidIn(userId, feedUuids), Set.copyOf(changedFeedIds));
+    }
+}
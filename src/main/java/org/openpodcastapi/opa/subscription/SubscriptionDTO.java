@@ -13,19 +13,42 @@ import java.util.List;
 public class SubscriptionDTO {
     /// A DTO representing a user's subscription to a given feed
     ///
-    /// @param uuid           the feed UUID
+    /// @param uuid           the feed UUID, or the alias UUID the client requested the feed by
     /// @param feedUrl        the feed URL
     /// @param createdAt      the date at which the subscription link was created
     /// @param updatedAt      the date at which the subscription link was last updated
     /// @param unsubscribedAt the date at which the user unsubscribed from the feed
+    /// @param canonicalUuid  the UUID of the feed, if the client requested it by an alias UUID
     @JsonInclude(JsonInclude.Include.NON_NULL)
     public record UserSubscriptionDTO(
             @JsonProperty(required = true) @UUID java.util.UUID uuid,
             @JsonProperty(required = true) @URL String feedUrl,
             @JsonProperty(required = true) Instant createdAt,
             @JsonProperty(required = true) Instant updatedAt,
-            @JsonProperty @Nullable Instant unsubscribedAt
+            @JsonProperty @Nullable Instant unsubscribedAt,
+            @JsonProperty @Nullable java.util.UUID canonicalUuid
     ) {
+        /// Creates a DTO of a subscription requested by the UUID of its feed
+        ///
+        /// @param uuid           the feed UUID
+        /// @param feedUrl        the feed URL
+        /// @param createdAt      the date at which the subscription link was created
+        /// @param updatedAt      the date at which the subscription link was last updated
+        /// @param unsubscribedAt the date at which the user unsubscribed from the feed
+        public UserSubscriptionDTO(java.util.UUID uuid, String feedUrl, Instant createdAt, Instant updatedAt, Instant unsubscribedAt) {
+            this(uuid, feedUrl, createdAt, updatedAt, unsubscribedAt, null);
+        }
+
+        /// Echoes the UUID a client requested the subscription by, so clients can match responses to requests
+        ///
+        /// @param requestedUuid the UUID or alias UUID the feed was requested by
+        /// @return this DTO if the feed was requested by its UUID, otherwise a copy carrying both UUIDs
+        public UserSubscriptionDTO forRequestedUuid(java.util.UUID requestedUuid) {
+            if (requestedUuid.equals(uuid)) {
+                return this;
+            }
+            return new UserSubscriptionDTO(requestedUuid, feedUrl, createdAt, updatedAt, unsubscribedAt, uuid);
+        }
     }
 
     /// A DTO representing a bulk subscription creation
@@ -49,4 +72,14 @@ public class SubscriptionDTO {
             @JsonProperty(value = "message", required = true) String message
     ) {
     }
+
+    /// A DTO representing the result of a batch subscription lookup
+    ///
+    /// @param found   the subscriptions found for the requested feeds
+    /// @param missing the requested feed UUIDs the user has no subscription for
+    public record SubscriptionLookupResponseDTO(
+            @JsonProperty(required = true) List<UserSubscriptionDTO> found,
+            @JsonProperty(required = true) List<String> missing
+    ) {
+    }
 }
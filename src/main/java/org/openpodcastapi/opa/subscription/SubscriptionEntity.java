@@ -11,7 +11,8 @@ import java.util.UUID;
 /// Entity representing the relationship between a user and a subscription
 @Entity
 @Table(name = "subscriptions", indexes = {
-        @Index(name = "subscriptions_id_created_at", columnList = "user_id, createdAt DESC, id DESC")
+        @Index(name = "subscriptions_id_created_at", columnList = "user_id, createdAt DESC, id DESC"),
+        @Index(name = "subscriptions_user_id_feed_id", columnList = "user_id, feed_id")
 })
 public class SubscriptionEntity implements Cursorable {
     /// The entity ID
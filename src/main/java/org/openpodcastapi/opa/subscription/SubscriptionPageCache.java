@@ -0,0 +1,287 @@
+package org.openpodcastapi.opa.subscription;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openpodcastapi.opa.pagination.CursorPage;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// A bounded, size-aware cache for the first page of a user's subscriptions.
+///
+/// Entries are keyed by user, page size, and the `includeUnsubscribed` flag, and are weighed by the size of their serialized JSON.
+/// When the total weight exceeds the configured budget, the least recently used entries are evicted.
+///
+/// Each user has a generation number that is bumped after every committed change to their subscriptions.
+/// Entries stored under an older generation are treated as misses, so a page read before a write is never served after it.
+/// If Redis is enabled, pages and generations are also shared through Redis so that every node sees the same invalidations.
+@Component
+public class SubscriptionPageCache {
+    private static final Logger log = getLogger(SubscriptionPageCache.class);
+    private static final String CACHE_NAME = "subscription-pages";
+    private static final String REDIS_PAGE_PREFIX = "opa:subscriptions:page:";
+    private static final String REDIS_GENERATION_PREFIX = "opa:subscriptions:generation:";
+    private static final TypeReference<CursorPage<SubscriptionDTO.UserSubscriptionDTO>> PAGE_TYPE = new TypeReference<>() {
+    };
+
+    private final JsonMapper jsonMapper;
+    private final StringRedisTemplate redisTemplate;
+    private final long maxBytes;
+    private final Duration redisTtl;
+
+    /// Access-ordered map used as an LRU list. Guarded by `this`.
+    private final LinkedHashMap<PageKey, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    /// Index of cached keys per user, used for precise invalidation. Guarded by `this`.
+    private final Map<Long, Set<PageKey>> keysByUser = new HashMap<>();
+    private final ConcurrentHashMap<Long, AtomicLong> localGenerations = new ConcurrentHashMap<>();
+    private long weight;
+
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    /// Required-args constructor
+    ///
+    /// @param jsonMapper    the JSON mapper used to serialize and weigh cached pages
+    /// @param redisProvider a provider for the Redis template used by the optional second tier
+    /// @param meterRegistry the registry used to publish cache metrics
+    /// @param maxBytes      the maximum combined size of cached pages held in memory
+    /// @param redisEnabled  whether pages should also be shared through Redis
+    /// @param redisTtl      how long pages are kept in Redis
+    public SubscriptionPageCache(JsonMapper jsonMapper,
+                                 ObjectProvider<StringRedisTemplate> redisProvider,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${subscriptions.cache.max-bytes:16777216}") long maxBytes,
+                                 @Value("${subscriptions.cache.redis.enabled:false}") boolean redisEnabled,
+                                 @Value("${subscriptions.cache.redis.ttl:PT10M}") Duration redisTtl) {
+        this.jsonMapper = jsonMapper;
+        this.redisTemplate = redisEnabled ? redisProvider.getIfAvailable() : null;
+        this.maxBytes = maxBytes;
+        this.redisTtl = redisTtl;
+
+        this.localHits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").tag("tier", "local").register(meterRegistry);
+        this.redisHits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").tag("tier", "redis").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.size", this, SubscriptionPageCache::size).tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.weight", this, SubscriptionPageCache::weight).tag("cache", CACHE_NAME).baseUnit("bytes").register(meterRegistry);
+    }
+
+    /// Returns the current generation for a user's subscriptions.
+    /// Callers must read the generation *before* querying the database and pass it back to [#put].
+    ///
+    /// @param userId the database ID of the user
+    /// @return the current generation
+    public long generation(Long userId) {
+        if (redisTemplate != null) {
+            try {
+                final var value = redisTemplate.opsForValue().get(REDIS_GENERATION_PREFIX + userId);
+                return value == null ? 0L : Long.parseLong(value);
+            } catch (RuntimeException e) {
+                log.warn("Unable to read subscription page generation from Redis: {}", e.getMessage());
+            }
+        }
+        return localGeneration(userId).get();
+    }
+
+    /// Looks up a cached first page
+    ///
+    /// @param userId              the database ID of the user
+    /// @param includeUnsubscribed whether the page includes unsubscribed feeds
+    /// @param limit               the page size
+    /// @param generation          the generation returned by [#generation]
+    /// @return the cached page, if a current one is present
+    public Optional<CursorPage<SubscriptionDTO.UserSubscriptionDTO>> get(Long userId, boolean includeUnsubscribed, int limit, long generation) {
+        final var key = new PageKey(userId, includeUnsubscribed, limit);
+
+        synchronized (this) {
+            final var entry = entries.get(key);
+            if (entry != null) {
+                if (entry.generation() == generation) {
+                    localHits.increment();
+                    return Optional.of(entry.page());
+                }
+                remove(key);
+            }
+        }
+
+        if (redisTemplate != null) {
+            try {
+                final var json = redisTemplate.opsForValue().get(redisKey(key, generation));
+                if (json != null) {
+                    final CursorPage<SubscriptionDTO.UserSubscriptionDTO> page = jsonMapper.readValue(json, PAGE_TYPE);
+                    storeLocally(key, new Entry(page, generation, json.length()));
+                    redisHits.increment();
+                    return Optional.of(page);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Unable to read subscription page from Redis: {}", e.getMessage());
+            }
+        }
+
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /// Stores a first page
+    ///
+    /// @param userId              the database ID of the user
+    /// @param includeUnsubscribed whether the page includes unsubscribed feeds
+    /// @param limit               the page size
+    /// @param generation          the generation read before the page was queried
+    /// @param page                the page to store
+    public void put(Long userId, boolean includeUnsubscribed, int limit, long generation, CursorPage<SubscriptionDTO.UserSubscriptionDTO> page) {
+        final var key = new PageKey(userId, includeUnsubscribed, limit);
+        final var json = jsonMapper.writeValueAsString(page);
+        final long size = json.getBytes(StandardCharsets.UTF_8).length;
+
+        storeLocally(key, new Entry(page, generation, size));
+
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.opsForValue().set(redisKey(key, generation), json, redisTtl);
+            } catch (RuntimeException e) {
+                log.warn("Unable to write subscription page to Redis: {}", e.getMessage());
+            }
+        }
+    }
+
+    /// Invalidates every cached page for a user once the current transaction commits.
+    /// If no transaction is active, the pages are invalidated immediately.
+    ///
+    /// @param userId the database ID of the user
+    public void invalidateAfterCommit(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(userId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(userId);
+            }
+        });
+    }
+
+    /// Invalidates every cached page for a user
+    ///
+    /// @param userId the database ID of the user
+    public void invalidate(Long userId) {
+        localGeneration(userId).incrementAndGet();
+
+        synchronized (this) {
+            final var keys = keysByUser.remove(userId);
+            if (keys != null) {
+                for (var key : keys) {
+                    final var entry = entries.remove(key);
+                    if (entry != null) {
+                        weight -= entry.size();
+                    }
+                }
+            }
+        }
+
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.opsForValue().increment(REDIS_GENERATION_PREFIX + userId);
+            } catch (RuntimeException e) {
+                log.warn("Unable to bump subscription page generation in Redis: {}", e.getMessage());
+            }
+        }
+    }
+
+    /// @return the number of pages held in memory
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /// @return the combined serialized size of the pages held in memory
+    public synchronized long weight() {
+        return weight;
+    }
+
+    private AtomicLong localGeneration(Long userId) {
+        return localGenerations.computeIfAbsent(userId, _ -> new AtomicLong());
+    }
+
+    private synchronized void storeLocally(PageKey key, Entry entry) {
+        // Don't let a single oversized page flush the whole cache
+        if (entry.size() > maxBytes / 4) {
+            return;
+        }
+
+        // Ignore pages computed against a generation that has since been invalidated
+        if (redisTemplate == null && entry.generation() != localGeneration(key.userId()).get()) {
+            return;
+        }
+
+        remove(key);
+        entries.put(key, entry);
+        keysByUser.computeIfAbsent(key.userId(), _ -> new HashSet<>()).add(key);
+        weight += entry.size();
+
+        final var iterator = entries.entrySet().iterator();
+        while (weight > maxBytes && iterator.hasNext()) {
+            final var eldest = iterator.next();
+            iterator.remove();
+            weight -= eldest.getValue().size();
+            unindex(eldest.getKey());
+            evictions.increment();
+        }
+    }
+
+    private void remove(PageKey key) {
+        final var previous = entries.remove(key);
+        if (previous != null) {
+            weight -= previous.size();
+            unindex(key);
+        }
+    }
+
+    private void unindex(PageKey key) {
+        final var keys = keysByUser.get(key.userId());
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByUser.remove(key.userId());
+            }
+        }
+    }
+
+    private static String redisKey(PageKey key, long generation) {
+        return REDIS_PAGE_PREFIX + key.userId() + ":" + generation + ":" + key.includeUnsubscribed() + ":" + key.limit();
+    }
+
+    /// The identity of a cached page
+    ///
+    /// @param userId              the database ID of the user
+    /// @param includeUnsubscribed whether the page includes unsubscribed feeds
+    /// @param limit               the page size
+    private record PageKey(Long userId, boolean includeUnsubscribed, int limit) {
+    }
+
+    /// A cached page
+    ///
+    /// @param page       the cached page
+    /// @param generation the generation the page was read under
+    /// @param size       the serialized size of the page in bytes
+    private record Entry(CursorPage<SubscriptionDTO.UserSubscriptionDTO> page, long generation, long size) {
+    }
+}
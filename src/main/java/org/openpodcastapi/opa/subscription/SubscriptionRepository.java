@@ -1,9 +1,13 @@
 package org.openpodcastapi.opa.subscription;
 
 import org.jspecify.annotations.NonNull;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -17,4 +21,60 @@ public interface SubscriptionRepository extends JpaRepository<@NonNull Subscript
     /// @param feedUuid the UUID of the feed
     /// @return a user subscription, if one matches
     Optional<SubscriptionEntity> findByUserIdAndFeedUuid(Long userId, UUID feedUuid);
+
+    /// Finds a user's subscriptions to a set of feeds in a single query.
+    /// Results are projected straight into DTOs, so no entities or associations are loaded.
+    ///
+    /// @param userId    the ID of the user
+    /// @param feedUuids the UUIDs of the feeds
+    /// @return the matching subscriptions. Feeds the user has no subscription for are omitted.
+    @Query("""
+            select new org.openpodcastapi.opa.subscription.SubscriptionDTO$UserSubscriptionDTO(f.uuid, f.feedUrl, s.createdAt, s.updatedAt, s.unsubscribedAt)
+            from SubscriptionEntity s join s.feed f
+            where s.user.id = :userId and f.uuid in :feedUuids
+            """)
+    List<SubscriptionDTO.UserSubscriptionDTO> findDtosByUserIdAndFeedUuidIn(Long userId, Collection<UUID> feedUuids);
+
+    /// Finds the feeds among a set whose subscription status would change if the user subscribed to or unsubscribed from them.
+    /// Used by bulk updates on databases without `UPDATE ... RETURNING`.
+    ///
+    /// @param userId     the ID of the user
+    /// @param feedUuids  the UUIDs of the feeds
+    /// @param subscribed `true` to find feeds the user is unsubscribed from, `false` to find feeds they're subscribed to
+    /// @return the database IDs of the feeds
+    @Query("""
+            select s.feed.id
+            from SubscriptionEntity s
+            where s.user.id = :userId and s.feed.uuid in :feedUuids
+              and ((:subscribed = true and s.unsubscribedAt is not null) or (:subscribed = false and s.unsubscribedAt is null))
+            """)
+    List<Long> findFeedIdsToUpdate(Long userId, Collection<UUID> feedUuids, boolean subscribed);
+
+    /// Finds the feeds a user is subscribed to
+    ///
+    /// @param userId the ID of the user
+    /// @return the database IDs of the feeds
+    @Query("select s.feed.id from SubscriptionEntity s where s.user.id = :userId and s.unsubscribedAt is null")
+    List<Long> findSubscribedFeedIds(Long userId);
+
+    /// Finds active subscriptions in order of user and feed, to read every user's subscribed feeds in batches
+    ///
+    /// @param userId the database ID of the user to start from
+    /// @param feedId the database ID of the feed to start after, within that user
+    /// @param limit  the maximum number of subscriptions to return
+    /// @return the user and feed of each subscription
+    @Query("""
+            select new org.openpodcastapi.opa.subscription.SubscriptionRepository$SubscribedPair(s.user.id, s.feed.id)
+            from SubscriptionEntity s
+            where s.unsubscribedAt is null and (s.user.id > :userId or (s.user.id = :userId and s.feed.id > :feedId))
+            order by s.user.id, s.feed.id
+            """)
+    List<SubscribedPair> findSubscribedPairsAfter(Long userId, Long feedId, Limit limit);
+
+    /// A user subscribed to a feed
+    ///
+    /// @param userId the database ID of the user
+    /// @param feedId the database ID of the feed
+    record SubscribedPair(Long userId, Long feedId) {
+    }
 }
@@ -3,6 +3,7 @@ package org.openpodcastapi.opa.subscription;
 import jakarta.persistence.EntityNotFoundException;
 import org.jspecify.annotations.NonNull;
 import org.openpodcastapi.opa.feed.FeedDTO;
+import org.openpodcastapi.opa.idempotency.IdempotencyService;
 import org.openpodcastapi.opa.pagination.CursorPage;
 import org.openpodcastapi.opa.service.CustomUserDetails;
 import org.springframework.http.HttpStatus;
@@ -10,6 +11,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.UUID;
@@ -19,48 +21,84 @@ import java.util.UUID;
 @RequestMapping("/api/v1/subscriptions")
 public class SubscriptionRestController {
     private final SubscriptionService service;
+    private final IdempotencyService idempotencyService;
 
     /// Required-args constructor
     ///
-    /// @param service the service used for subscription actions
-    public SubscriptionRestController(SubscriptionService service) {
+    /// @param service            the service used for subscription actions
+    /// @param idempotencyService the service used to deduplicate retried requests
+    public SubscriptionRestController(SubscriptionService service, IdempotencyService idempotencyService) {
         this.service = service;
+        this.idempotencyService = idempotencyService;
     }
 
-    /// Returns all subscriptions for a given user
+    /// Returns all subscriptions for a given user.
+    /// Responds with `304` if the client's `If-None-Match` header matches the current entity tag.
     ///
     /// @param user                the custom user details of the authenticated user
     /// @param limit               the number of results to return
     /// @param cursor              the base64-encoded cursor string
     /// @param includeUnsubscribed whether to include unsubscribed feed in the response
+    /// @param request             the web request used to evaluate conditional headers
     /// @return a response containing subscription objects
     @GetMapping
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<CursorPage<SubscriptionDTO.UserSubscriptionDTO>> getAllSubscriptionsForUser(@AuthenticationPrincipal CustomUserDetails user, @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int limit, @RequestParam(defaultValue = "false") boolean includeUnsubscribed) {
+    public ResponseEntity<CursorPage<SubscriptionDTO.UserSubscriptionDTO>> getAllSubscriptionsForUser(@AuthenticationPrincipal CustomUserDetails user, @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int limit, @RequestParam(defaultValue = "false") boolean includeUnsubscribed, WebRequest request) {
+        // Check the entity tag before running the page query.
+        // If the client's copy is current, the response is already marked as `304`.
+        final var eTag = service.getSubscriptionsETag(user.id());
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+
         final var result = service.getAllSubscriptionsForUser(user.id(), cursor, limit, includeUnsubscribed);
 
-        return new ResponseEntity<>(result, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(eTag).body(result);
     }
 
-    /// Returns a single subscription entry by UUID
+    /// Returns a single subscription entry by UUID.
+    /// Responds with `304` if the client's `If-None-Match` header matches the current entity tag.
     ///
-    /// @param uuid the UUID value to query for
-    /// @param user the custom user details for the user
+    /// @param uuid    the UUID value to query for
+    /// @param user    the custom user details for the user
+    /// @param request the web request used to evaluate conditional headers
     /// @return a response containing a subscription DTO
     /// @throws EntityNotFoundException  if no entry is found
     /// @throws IllegalArgumentException if the UUID is improperly formatted
     @GetMapping("/{uuid}")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<SubscriptionDTO.@NonNull UserSubscriptionDTO> getSubscriptionByUuid(@PathVariable String uuid, @AuthenticationPrincipal CustomUserDetails user) throws EntityNotFoundException {
+    public ResponseEntity<SubscriptionDTO.@NonNull UserSubscriptionDTO> getSubscriptionByUuid(@PathVariable String uuid, @AuthenticationPrincipal CustomUserDetails user, WebRequest request) throws EntityNotFoundException {
         // Attempt to validate the UUID value from the provided string
         // If the value is invalid, the GlobalExceptionHandler will throw a 400.
         final var uuidValue = UUID.fromString(uuid);
 
-        // Fetch the subscription, throw an EntityNotFoundException if this fails
+        // Fetch the subscription, throw an EntityNotFoundException if this fails.
+        // The conditional headers are only evaluated once the subscription is known to exist,
+        // so a missing or foreign UUID is a 404 even with `If-None-Match: *`.
         final var dto = service.getUserSubscriptionBySubscriptionUuid(uuidValue, user.id());
 
+        final var eTag = service.getSubscriptionETag(uuidValue, user.id());
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+
         // Return the mapped subscription entry
-        return new ResponseEntity<>(dto, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(eTag).body(dto);
+    }
+
+    /// Returns the user's subscriptions to a list of feeds.
+    /// Feeds the user has no subscription for are listed in the `missing` array.
+    ///
+    /// @param request a list of feed UUIDs
+    /// @param user    the custom user details for the user
+    /// @return a response containing the found and missing subscriptions
+    /// @throws IllegalArgumentException if a UUID is improperly formatted or too many feeds are requested
+    @PostMapping("/lookup")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<SubscriptionDTO.@NonNull SubscriptionLookupResponseDTO> lookupSubscriptions(@RequestBody List<String> request, @AuthenticationPrincipal CustomUserDetails user) {
+        final var response = service.getUserSubscriptionsByFeedUuids(request, user.id());
+
+        return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
     /// Updates the subscription status of a subscription for a given user
@@ -82,16 +120,55 @@ public class SubscriptionRestController {
         return new ResponseEntity<>(dto, HttpStatus.OK);
     }
 
-    /// Bulk creates user subscriptions for a user. Creates new subscriptions if not already present
+    /// Bulk creates user subscriptions for a user. Creates new subscriptions if not already present.
+    /// If an `Idempotency-Key` header is sent, retries with the same key replay the original response.
     ///
-    /// @param request a list of subscription creation DTOs
-    /// @param user    the custom user details for the user
+    /// @param request        a list of subscription creation DTOs
+    /// @param idempotencyKey an optional client-generated key identifying the request
+    /// @param user           the custom user details for the user
     /// @return a response containing a bulk subscription DTO
     @PostMapping
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<SubscriptionDTO.@NonNull BulkSubscriptionResponseDTO> createUserSubscriptions(@RequestBody List<FeedDTO.NewFeedRequestDTO> request, @AuthenticationPrincipal CustomUserDetails user) {
-        final var response = service.addSubscriptions(request, user.id());
+    public ResponseEntity<SubscriptionDTO.@NonNull BulkSubscriptionResponseDTO> createUserSubscriptions(@RequestBody List<FeedDTO.NewFeedRequestDTO> request, @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey, @AuthenticationPrincipal CustomUserDetails user) {
+        if (idempotencyKey == null) {
+            return toBulkResponse(service.addSubscriptions(request, user.id()));
+        }
+
+        return idempotencyService.execute("subscriptions:" + user.id(), idempotencyKey, request, SubscriptionDTO.BulkSubscriptionResponseDTO.class,
+                () -> toBulkResponse(service.addSubscriptions(request, user.id())));
+    }
+
+    /// Unsubscribes the user from a list of feeds in a single update
+    ///
+    /// @param request a list of feed UUIDs
+    /// @param user    the custom user details for the user
+    /// @return a response containing a bulk subscription DTO
+    @PostMapping("/unsubscribe")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<SubscriptionDTO.@NonNull BulkSubscriptionResponseDTO> unsubscribeUserFromFeeds(@RequestBody List<String> request, @AuthenticationPrincipal CustomUserDetails user) {
+        final var response = service.updateSubscriptionStatuses(request, user.id(), false);
+
+        return toBulkResponse(response);
+    }
+
+    /// Resubscribes the user to a list of feeds in a single update
+    ///
+    /// @param request a list of feed UUIDs
+    /// @param user    the custom user details for the user
+    /// @return a response containing a bulk subscription DTO
+    @PostMapping("/resubscribe")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<SubscriptionDTO.@NonNull BulkSubscriptionResponseDTO> resubscribeUserToFeeds(@RequestBody List<String> request, @AuthenticationPrincipal CustomUserDetails user) {
+        final var response = service.updateSubscriptionStatuses(request, user.id(), true);
+
+        return toBulkResponse(response);
+    }
 
+    /// Selects the status code for a bulk response
+    ///
+    /// @param response the bulk response to return
+    /// @return the response wrapped with a status code reflecting its successes and failures
+    private ResponseEntity<SubscriptionDTO.@NonNull BulkSubscriptionResponseDTO> toBulkResponse(SubscriptionDTO.BulkSubscriptionResponseDTO response) {
         if (response.success().isEmpty() && !response.failure().isEmpty()) {
             // If all requests failed, return a 400 error
             return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
@@ -10,13 +10,15 @@ import org.openpodcastapi.opa.pagination.CursorRepository;
 import org.openpodcastapi.opa.pagination.CursorUtility;
 import org.openpodcastapi.opa.user.UserRepository;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -30,20 +32,32 @@ public class SubscriptionService {
     private final SubscriptionMapper mapper;
     private final UserRepository userRepository;
     private final CursorRepository cursorRepository;
+    private final SubscriptionPageCache pageCache;
+    private final BulkSubscriptionRepository bulkSubscriptionRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxBatchSize;
 
     /// All-args constructor
     ///
-    /// @param feedService            the repository used for feed interactions
-    /// @param subscriptionRepository the repository used for user subscription interactions
-    /// @param mapper                 the mapper used for mapping user subscription entities and DTOs
-    /// @param userRepository         the repository used for user interactions
-    /// @param cursorRepository       the cursor repository used for paginated requests
-    public SubscriptionService(FeedService feedService, SubscriptionRepository subscriptionRepository, SubscriptionMapper mapper, UserRepository userRepository, CursorRepository cursorRepository) {
+    /// @param feedService                the repository used for feed interactions
+    /// @param subscriptionRepository     the repository used for user subscription interactions
+    /// @param mapper                     the mapper used for mapping user subscription entities and DTOs
+    /// @param userRepository             the repository used for user interactions
+    /// @param cursorRepository           the cursor repository used for paginated requests
+    /// @param pageCache                  the cache used for first pages of subscriptions
+    /// @param bulkSubscriptionRepository the repository used for set-based subscription updates
+    /// @param eventPublisher             the publisher used to announce subscription changes
+    /// @param maxBatchSize               the maximum number of feeds accepted by a single batch request
+    public SubscriptionService(FeedService feedService, SubscriptionRepository subscriptionRepository, SubscriptionMapper mapper, UserRepository userRepository, CursorRepository cursorRepository, SubscriptionPageCache pageCache, BulkSubscriptionRepository bulkSubscriptionRepository, ApplicationEventPublisher eventPublisher, @Value("${subscriptions.batch.max-size:500}") int maxBatchSize) {
         this.feedService = feedService;
         this.subscriptionRepository = subscriptionRepository;
         this.mapper = mapper;
         this.userRepository = userRepository;
         this.cursorRepository = cursorRepository;
+        this.pageCache = pageCache;
+        this.bulkSubscriptionRepository = bulkSubscriptionRepository;
+        this.eventPublisher = eventPublisher;
+        this.maxBatchSize = maxBatchSize;
     }
 
     /// Fetches a single subscription for an authenticated userEntity, if it exists
@@ -55,14 +69,87 @@ public class SubscriptionService {
     @Transactional(readOnly = true)
     public SubscriptionDTO.UserSubscriptionDTO getUserSubscriptionBySubscriptionUuid(UUID subscriptionUuid, Long userId) throws EntityNotFoundException {
         log.debug("Fetching subscription {} for userEntity {}", subscriptionUuid, userId);
-        final var userSubscription = subscriptionRepository.findByUserIdAndFeedUuid(userId, subscriptionUuid)
+        final var userSubscription = subscriptionRepository.findByUserIdAndFeedUuid(userId, feedService.resolveCanonicalUuid(subscriptionUuid))
                 .orElseThrow(() -> new EntityNotFoundException("subscription not found for userEntity"));
 
         log.debug("Subscription {} for userEntity {} found", subscriptionUuid, userId);
-        return mapper.toDto(userSubscription);
+        return mapper.toDto(userSubscription).forRequestedUuid(subscriptionUuid);
     }
 
-    /// Gets all subscriptions for the authenticated user
+    /// Fetches a user's subscriptions to a list of feeds in a single query
+    ///
+    /// @param feedUuids the UUIDs of the feeds to look up
+    /// @param userId    the database ID of the user
+    /// @return a DTO listing the subscriptions found and the feed UUIDs with no subscription
+    /// @throws IllegalArgumentException if a UUID is improperly formatted or more feeds than the configured batch size are requested
+    @Transactional(readOnly = true)
+    public SubscriptionDTO.SubscriptionLookupResponseDTO getUserSubscriptionsByFeedUuids(List<String> feedUuids, Long userId) throws IllegalArgumentException {
+        if (feedUuids.size() > maxBatchSize) {
+            throw new IllegalArgumentException("a maximum of " + maxBatchSize + " feeds may be fetched at once");
+        }
+
+        final Set<UUID> requestedUuids = new LinkedHashSet<>();
+        for (var feedUuid : feedUuids) {
+            requestedUuids.add(UUID.fromString(feedUuid));
+        }
+
+        if (requestedUuids.isEmpty()) {
+            return new SubscriptionDTO.SubscriptionLookupResponseDTO(List.of(), List.of());
+        }
+
+        log.debug("Looking up {} subscriptions for user {}", requestedUuids.size(), userId);
+        final var canonicalUuids = feedService.resolveCanonicalUuids(requestedUuids);
+        final var subscriptions = subscriptionRepository.findDtosByUserIdAndFeedUuidIn(userId, new HashSet<>(canonicalUuids.values()))
+                .stream()
+                .collect(Collectors.toMap(SubscriptionDTO.UserSubscriptionDTO::uuid, Function.identity(), (first, _) -> first));
+
+        // Answer each requested UUID, so a feed requested by an alias is reported under the alias the client sent
+        final List<SubscriptionDTO.UserSubscriptionDTO> found = new ArrayList<>();
+        final List<String> missing = new ArrayList<>();
+        for (final var uuid : requestedUuids) {
+            final var dto = subscriptions.get(canonicalUuids.get(uuid));
+            if (dto != null) {
+                found.add(dto.forRequestedUuid(uuid));
+            } else {
+                missing.add(uuid.toString());
+            }
+        }
+
+        return new SubscriptionDTO.SubscriptionLookupResponseDTO(found, missing);
+    }
+
+    /// Computes a strong entity tag for a user's subscriptions.
+    /// The tag is derived from the user's subscription version counter, so no subscription rows are loaded.
+    ///
+    /// @param userId the database ID of the user
+    /// @return a quoted entity tag
+    /// @throws EntityNotFoundException if no matching user is found
+    @Transactional(readOnly = true)
+    public String getSubscriptionsETag(Long userId) throws EntityNotFoundException {
+        final var version = userRepository.findSubscriptionsVersionById(userId)
+                .orElseThrow(() -> new EntityNotFoundException("user not found"));
+
+        return "\"" + userId + "-" + version + "\"";
+    }
+
+    /// Computes a strong entity tag for one of a user's subscriptions.
+    /// The tag combines the requested UUID with the user's subscription version counter,
+    /// so it differs from the tags of the user's other subscriptions and of the subscription list.
+    ///
+    /// @param uuid   the requested feed UUID
+    /// @param userId the database ID of the user
+    /// @return a quoted entity tag
+    /// @throws EntityNotFoundException if no matching user is found
+    @Transactional(readOnly = true)
+    public String getSubscriptionETag(UUID uuid, Long userId) throws EntityNotFoundException {
+        final var version = userRepository.findSubscriptionsVersionById(userId)
+                .orElseThrow(() -> new EntityNotFoundException("user not found"));
+
+        return "\"" + userId + "-" + uuid + "-" + version + "\"";
+    }
+
+    /// Gets all subscriptions for the authenticated user.
+    /// The first page is served from the [SubscriptionPageCache] when possible.
     ///
     /// @param userId              the database ID of the authenticated user
     /// @param cursor              the encoded cursor
@@ -71,6 +158,31 @@ public class SubscriptionService {
     /// @return a paginated set of user subscriptions
     @Transactional(readOnly = true)
     public CursorPage<SubscriptionDTO.UserSubscriptionDTO> getAllSubscriptionsForUser(Long userId, String cursor, int limit, boolean includeUnsubscribed) {
+        if (cursor != null) {
+            return fetchSubscriptionPage(userId, cursor, limit, includeUnsubscribed);
+        }
+
+        // Read the generation before querying so that a concurrent write invalidates this page
+        final var generation = pageCache.generation(userId);
+        final var cachedPage = pageCache.get(userId, includeUnsubscribed, limit, generation);
+        if (cachedPage.isPresent()) {
+            log.debug("Serving cached first page of subscriptions for {}", userId);
+            return cachedPage.get();
+        }
+
+        final var page = fetchSubscriptionPage(userId, null, limit, includeUnsubscribed);
+        pageCache.put(userId, includeUnsubscribed, limit, generation, page);
+        return page;
+    }
+
+    /// Queries a page of subscriptions for a user
+    ///
+    /// @param userId              the database ID of the authenticated user
+    /// @param cursor              the encoded cursor
+    /// @param limit               the number of results to return
+    /// @param includeUnsubscribed whether to return unsubscribed results as well
+    /// @return a paginated set of user subscriptions
+    private CursorPage<SubscriptionDTO.UserSubscriptionDTO> fetchSubscriptionPage(Long userId, String cursor, int limit, boolean includeUnsubscribed) {
         log.debug("Fetching subscriptions for {}", userId);
         // Decode the cursor from the provided string
         final var cursorPayload = cursor == null
@@ -94,11 +206,12 @@ public class SubscriptionService {
     /// Persists a new user subscription to the database
     /// If an existing entry is found for the user and subscription, the `isSubscribed` property is set to `true`
     ///
-    /// @param feed   the target feed
-    /// @param userId the ID of the target user
+    /// @param feed       the target feed
+    /// @param userId     the ID of the target user
+    /// @param subscribed the set the feed's ID is added to if the user wasn't already subscribed to it
     /// @return a response containing a user subscription DTO
     /// @throws EntityNotFoundException if no matching user is found
-    protected SubscriptionDTO.UserSubscriptionDTO persistUserSubscription(FeedEntity feed, Long userId) {
+    protected SubscriptionDTO.UserSubscriptionDTO persistUserSubscription(FeedEntity feed, Long userId, Set<Long> subscribed) {
         final var userEntity = userRepository.findById(userId).orElseThrow(() -> new EntityNotFoundException("user not found"));
 
         log.debug("{}", userEntity);
@@ -109,9 +222,13 @@ public class SubscriptionService {
             createdSubscriptionEntity.setUnsubscribedAt(null);
             createdSubscriptionEntity.setUser(userEntity);
             createdSubscriptionEntity.setFeed(feed);
+            subscribed.add(feed.getId());
             return subscriptionRepository.save(createdSubscriptionEntity);
         });
 
+        if (newSubscription.getUnsubscribedAt() != null) {
+            subscribed.add(feed.getId());
+        }
         newSubscription.setUnsubscribedAt(null);
         return mapper.toDto(subscriptionRepository.save(newSubscription));
     }
@@ -125,15 +242,19 @@ public class SubscriptionService {
     public SubscriptionDTO.@NonNull BulkSubscriptionResponseDTO addSubscriptions(List<FeedDTO.NewFeedRequestDTO> requests, Long userId) {
         List<SubscriptionDTO.UserSubscriptionDTO> successes = new ArrayList<>();
         List<SubscriptionDTO.SubscriptionFailureDTO> failures = new ArrayList<>();
+        final Set<Long> subscribed = new HashSet<>();
 
         log.info("{}", requests);
 
+        userRepository.incrementSubscriptionsVersion(userId);
+        pageCache.invalidateAfterCommit(userId);
+
         for (var subscriptionObject : requests) {
             try {
                 // Fetch or create the subscription object to subscribe the user to
                 final var feed = this.feedService.fetchOrCreateFeed(subscriptionObject);
                 // If all is successful, persist the new SubscriptionEntity and add a UserSubscriptionDTO to the successes list
-                successes.add(persistUserSubscription(feed, userId));
+                successes.add(persistUserSubscription(feed, userId, subscribed).forRequestedUuid(UUID.fromString(subscriptionObject.uuid())));
             } catch (IllegalArgumentException _) {
                 // If the UUID of the feed is invalid, add a new failure to the failures list
                 failures.add(new SubscriptionDTO.SubscriptionFailureDTO(subscriptionObject.uuid(), subscriptionObject.feedUrl(), "invalid UUID format"));
@@ -143,6 +264,10 @@ public class SubscriptionService {
             }
         }
 
+        if (!subscribed.isEmpty()) {
+            eventPublisher.publishEvent(new SubscriptionsChangedEvent(userId, subscribed, true));
+        }
+
         // Return the entire DTO of successes and failures
         return new SubscriptionDTO.BulkSubscriptionResponseDTO(successes, failures);
     }
@@ -154,10 +279,68 @@ public class SubscriptionService {
     /// @return a response containing the updated subscription
     @Transactional
     public SubscriptionDTO.UserSubscriptionDTO unsubscribeUserFromFeed(UUID feedUUID, Long userId) {
-        final var userSubscriptionEntity = subscriptionRepository.findByUserIdAndFeedUuid(userId, feedUUID)
+        final var userSubscriptionEntity = subscriptionRepository.findByUserIdAndFeedUuid(userId, feedService.resolveCanonicalUuid(feedUUID))
                 .orElseThrow(() -> new EntityNotFoundException("no subscription found"));
 
+        final var wasSubscribed = userSubscriptionEntity.getUnsubscribedAt() == null;
         userSubscriptionEntity.setUnsubscribedAt(Instant.now());
-        return mapper.toDto(subscriptionRepository.save(userSubscriptionEntity));
+        userRepository.incrementSubscriptionsVersion(userId);
+        pageCache.invalidateAfterCommit(userId);
+        final var saved = subscriptionRepository.save(userSubscriptionEntity);
+
+        if (wasSubscribed) {
+            eventPublisher.publishEvent(new SubscriptionsChangedEvent(userId, Set.of(saved.getFeed().getId()), false));
+        }
+        return mapper.toDto(saved).forRequestedUuid(feedUUID);
+    }
+
+    /// Unsubscribes or resubscribes a user to a list of feeds in a single set-based update
+    ///
+    /// @param feedUuids  the UUIDs of the feeds to update
+    /// @param userId     the ID of the user
+    /// @param subscribed `true` to resubscribe the user, `false` to unsubscribe them
+    /// @return a response containing the updated subscriptions and a failure for each feed that couldn't be updated
+    /// @throws IllegalArgumentException if more feeds than the configured batch size are requested
+    @Transactional
+    public SubscriptionDTO.@NonNull BulkSubscriptionResponseDTO updateSubscriptionStatuses(List<String> feedUuids, Long userId, boolean subscribed) {
+        if (feedUuids.size() > maxBatchSize) {
+            throw new IllegalArgumentException("a maximum of " + maxBatchSize + " feeds may be updated at once");
+        }
+
+        final List<SubscriptionDTO.SubscriptionFailureDTO> failures = new ArrayList<>();
+        final Map<UUID, String> requestedUuids = new LinkedHashMap<>();
+
+        for (var feedUuid : feedUuids) {
+            try {
+                requestedUuids.put(UUID.fromString(feedUuid), feedUuid);
+            } catch (IllegalArgumentException _) {
+                failures.add(new SubscriptionDTO.SubscriptionFailureDTO(feedUuid, null, "invalid UUID format"));
+            }
+        }
+
+        final var canonicalUuids = feedService.resolveCanonicalUuids(requestedUuids.keySet());
+        final var update = bulkSubscriptionRepository.updateSubscriptionStatus(userId, new HashSet<>(canonicalUuids.values()), subscribed);
+        final var updated = update.subscriptions()
+                .stream()
+                .collect(Collectors.toMap(SubscriptionDTO.UserSubscriptionDTO::uuid, Function.identity(), (first, _) -> first));
+
+        final List<SubscriptionDTO.UserSubscriptionDTO> successes = new ArrayList<>();
+        requestedUuids.forEach((uuid, rawUuid) -> {
+            final var dto = updated.get(canonicalUuids.get(uuid));
+            if (dto != null) {
+                successes.add(dto.forRequestedUuid(uuid));
+            } else {
+                failures.add(new SubscriptionDTO.SubscriptionFailureDTO(rawUuid, null, "no subscription found"));
+            }
+        });
+
+        // Subscriptions already in the requested state are reported as successes, but leave the entity tag as it is
+        if (!update.changedFeedIds().isEmpty()) {
+            userRepository.incrementSubscriptionsVersion(userId);
+            pageCache.invalidateAfterCommit(userId);
+            eventPublisher.publishEvent(new SubscriptionsChangedEvent(userId, update.changedFeedIds(), subscribed));
+        }
+
+        return new SubscriptionDTO.BulkSubscriptionResponseDTO(successes, failures);
     }
 }
@@ -0,0 +1,13 @@
+package org.openpodcastapi.opa.subscription;
+
+import java.util.Set;
+
+/// Published when a user subscribes to, resubscribes to or unsubscribes from feeds.
+/// Only feeds whose status changed are listed, so subscribing to a feed twice publishes a single event.
+/// Listeners run inside the transaction of the change, so their writes commit or roll back with it.
+///
+/// @param userId     the database ID of the user
+/// @param feedIds    the database IDs of the feeds
+/// @param subscribed `true` if the user subscribed to the feeds, `false` if they unsubscribed
+public record SubscriptionsChangedEvent(Long userId, Set<Long> feedIds, boolean subscribed) {
+}
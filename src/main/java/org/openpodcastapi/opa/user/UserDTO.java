@@ -1,6 +1,8 @@
 package org.openpodcastapi.opa.user;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nullable;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
 
@@ -36,4 +38,23 @@ public class UserDTO {
             @JsonProperty(required = true) @NotNull @Email String email
     ) {
     }
+
+    /// A DTO representing the progress of a user's deletion
+    ///
+    /// @param uuid        the UUID of the user
+    /// @param status      the progress of the deletion
+    /// @param stage       the step being run, or `null` once the deletion has completed
+    /// @param rowsDeleted the number of rows deleted so far
+    /// @param requestedAt the date the deletion was requested
+    /// @param completedAt the date the deletion completed, or `null` if it hasn't
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record UserDeletionDTO(
+            @JsonProperty(required = true) UUID uuid,
+            @JsonProperty(required = true) UserDeletionStatus status,
+            @JsonProperty @Nullable UserDeletionStage stage,
+            @JsonProperty(required = true) long rowsDeleted,
+            @JsonProperty(required = true) Instant requestedAt,
+            @JsonProperty @Nullable Instant completedAt
+    ) {
+    }
 }
@@ -0,0 +1,173 @@
+package org.openpodcastapi.opa.user;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/// An entity tracking the deletion of a user.
+///
+/// The row outlives the user, so the progress of a deletion can be read after it completes.
+/// The deletion is run by a [UserDeletionJob], and records its step after every batch so a retried job resumes from it.
+@Entity
+@Table(name = "user_deletions", indexes = {
+        @Index(name = "uc_user_deletions_user_uuid", columnList = "user_uuid", unique = true),
+        @Index(name = "user_deletions_status_updated_at", columnList = "status, updatedAt")
+})
+public class UserDeletionEntity {
+    /// The entity ID
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /// The database ID of the user
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private Long userId;
+
+    /// The UUID of the user
+    @Column(name = "user_uuid", nullable = false, updatable = false, columnDefinition = "uuid")
+    private UUID userUuid;
+
+    /// The progress of the deletion
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private UserDeletionStatus status;
+
+    /// The step being run, or `null` once the deletion has completed
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private UserDeletionStage stage;
+
+    /// The number of rows deleted so far
+    @Column(nullable = false)
+    private long rowsDeleted;
+
+    /// The message of the last error, if a batch failed
+    @Column(length = 1024)
+    private String lastError;
+
+    /// The date the deletion was requested
+    @Column(nullable = false, updatable = false)
+    private Instant requestedAt;
+
+    /// The date of the last change to the deletion
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    /// The date the deletion completed
+    private Instant completedAt;
+
+    /// No-args constructor
+    public UserDeletionEntity() {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param userId      the database ID of the user
+    /// @param userUuid    the UUID of the user
+    /// @param requestedAt the date the deletion was requested
+    public UserDeletionEntity(Long userId, UUID userUuid, Instant requestedAt) {
+        this.userId = userId;
+        this.userUuid = userUuid;
+        this.status = UserDeletionStatus.PENDING;
+        this.stage = UserDeletionStage.values()[0];
+        this.requestedAt = requestedAt;
+        this.updatedAt = requestedAt;
+    }
+
+    /// Marks the deletion as running, unless it has completed
+    ///
+    /// @param now the current time
+    public void start(Instant now) {
+        if (status == UserDeletionStatus.PENDING) {
+            this.status = UserDeletionStatus.RUNNING;
+            this.updatedAt = now;
+        }
+    }
+
+    /// Records a batch of deleted rows
+    ///
+    /// @param rows the number of rows deleted
+    /// @param now  the current time
+    public void addRowsDeleted(long rows, Instant now) {
+        this.rowsDeleted += rows;
+        this.lastError = null;
+        this.updatedAt = now;
+    }
+
+    /// Moves on to the next step, completing the deletion after the last
+    ///
+    /// @param now the current time
+    public void advance(Instant now) {
+        this.stage = stage.next();
+        this.updatedAt = now;
+        if (stage == null) {
+            this.status = UserDeletionStatus.COMPLETED;
+            this.completedAt = now;
+        }
+    }
+
+    /// Goes back to an earlier step, for rows written after it ran
+    ///
+    /// @param stage the step to run again
+    /// @param now   the current time
+    public void restartAt(UserDeletionStage stage, Instant now) {
+        this.stage = stage;
+        this.updatedAt = now;
+    }
+
+    /// @return the entity ID
+    public Long getId() {
+        return id;
+    }
+
+    /// @return the database ID of the user
+    public Long getUserId() {
+        return userId;
+    }
+
+    /// @return the UUID of the user
+    public UUID getUserUuid() {
+        return userUuid;
+    }
+
+    /// @return the progress of the deletion
+    public UserDeletionStatus getStatus() {
+        return status;
+    }
+
+    /// @return the step being run, or `null` once the deletion has completed
+    public UserDeletionStage getStage() {
+        return stage;
+    }
+
+    /// @return the number of rows deleted so far
+    public long getRowsDeleted() {
+        return rowsDeleted;
+    }
+
+    /// @return the message of the last error, or `null` if the last batch succeeded
+    public String getLastError() {
+        return lastError;
+    }
+
+    /// @param lastError the message of the error a batch failed with
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    /// @return the date the deletion was requested
+    public Instant getRequestedAt() {
+        return requestedAt;
+    }
+
+    /// @return the date of the last change to the deletion
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /// @return the date the deletion completed, or `null` if it hasn't
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+}
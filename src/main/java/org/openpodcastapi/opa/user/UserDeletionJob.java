@@ -0,0 +1,74 @@
+package org.openpodcastapi.opa.user;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openpodcastapi.opa.job.Job;
+import org.openpodcastapi.opa.job.JobHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/// A background job that purges the data of a deleted user.
+///
+/// The payload is the database ID of the user's deletion. The job purges a batch at a time until the user is gone,
+/// and a failed or interrupted job is retried by the queue from the last batch it completed.
+/// Playback states and listening events still buffered for the user on any node are skipped when they're written,
+/// since the user's deletion was requested before the job was enqueued.
+@Component
+public class UserDeletionJob implements JobHandler {
+    /// The type of user deletion jobs
+    public static final String TYPE = "user-deletion";
+
+    private final UserDeletionService service;
+    private final int batchSize;
+    private final int concurrency;
+    private final Counter completed;
+    private final Counter rowsDeleted;
+
+    /// All-args constructor
+    ///
+    /// @param service       the service used to purge deletions
+    /// @param meterRegistry the registry used to publish deletion metrics
+    /// @param batchSize     the maximum number of rows deleted per transaction
+    /// @param concurrency   the maximum number of deletions run at once on each node
+    public UserDeletionJob(UserDeletionService service,
+                           MeterRegistry meterRegistry,
+                           @Value("${users.deletion.batch-size:1000}") int batchSize,
+                           @Value("${users.deletion.concurrency:2}") int concurrency) {
+        this.service = service;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+
+        this.completed = Counter.builder("users.deletions").tag("result", "completed").register(meterRegistry);
+        this.rowsDeleted = Counter.builder("users.deletions.rows").register(meterRegistry);
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public int concurrency() {
+        return concurrency;
+    }
+
+    @Override
+    public void handle(Job job) {
+        final var deletionId = Long.valueOf(job.payload());
+        if (!service.start(deletionId)) {
+            return;
+        }
+
+        try {
+            UserDeletionService.PurgedBatch batch;
+            do {
+                batch = service.purgeBatch(deletionId, batchSize);
+                rowsDeleted.increment(batch.rows());
+            } while (!batch.done());
+            completed.increment();
+        } catch (RuntimeException e) {
+            service.recordFailure(deletionId, e.getMessage());
+            throw e;
+        }
+    }
+}
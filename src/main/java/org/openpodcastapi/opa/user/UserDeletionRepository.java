@@ -0,0 +1,18 @@
+package org.openpodcastapi.opa.user;
+
+import org.jspecify.annotations.NonNull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/// Repository for user deletion interactions
+@Repository
+public interface UserDeletionRepository extends JpaRepository<@NonNull UserDeletionEntity, @NonNull Long> {
+    /// Finds the deletion of a user
+    ///
+    /// @param userUuid the UUID of the user
+    /// @return the deletion, if one was requested
+    Optional<UserDeletionEntity> findByUserUuid(UUID userUuid);
+}
@@ -0,0 +1,194 @@
+package org.openpodcastapi.opa.user;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.openpodcastapi.opa.job.JobQueue;
+import org.openpodcastapi.opa.subscription.SubscriptionsChangedEvent;
+import org.slf4j.Logger;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.UUID;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Service for deleting users.
+///
+/// A deletion is requested in one short transaction that revokes the user's access, records the deletion and enqueues
+/// a [UserDeletionJob]. Their data is then purged a batch at a time, each batch in its own transaction, so deleting a
+/// user with years of history never holds locks on all of it at once, and a deletion interrupted part way resumes
+/// from its last batch.
+@Service
+public class UserDeletionService {
+    private static final Logger log = getLogger(UserDeletionService.class);
+
+    private final UserRepository userRepository;
+    private final UserDeletionRepository deletionRepository;
+    private final UserPurgeRepository purgeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JobQueue jobQueue;
+
+    /// The outcome of purging a batch
+    ///
+    /// @param stage the step the batch was purged from
+    /// @param rows  the number of rows deleted
+    /// @param done  whether the deletion has completed
+    public record PurgedBatch(UserDeletionStage stage, long rows, boolean done) {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param userRepository     the repository used to find and revoke users
+    /// @param deletionRepository the repository used to track deletions
+    /// @param purgeRepository    the repository used to purge each user's data
+    /// @param eventPublisher     the publisher used to announce unsubscribes
+    /// @param jobQueue           the queue the purge of each user's data is run from
+    public UserDeletionService(UserRepository userRepository, UserDeletionRepository deletionRepository, UserPurgeRepository purgeRepository, ApplicationEventPublisher eventPublisher, JobQueue jobQueue) {
+        this.userRepository = userRepository;
+        this.deletionRepository = deletionRepository;
+        this.purgeRepository = purgeRepository;
+        this.eventPublisher = eventPublisher;
+        this.jobQueue = jobQueue;
+    }
+
+    /// Requests the deletion of a user.
+    /// The user can no longer sign in or use their tokens once this returns, and their data is purged in the background.
+    /// Requesting the deletion of a user a second time returns the existing deletion.
+    ///
+    /// @param uuid the UUID of the user
+    /// @return the progress of the deletion
+    /// @throws EntityNotFoundException if no matching user is found
+    @Transactional
+    public UserDTO.UserDeletionDTO requestDeletion(UUID uuid) throws EntityNotFoundException {
+        final var existing = deletionRepository.findByUserUuid(uuid);
+        if (existing.isPresent()) {
+            return toDto(existing.get());
+        }
+
+        final var user = userRepository.findUserByUuid(uuid).orElseThrow(() -> new EntityNotFoundException("User not found"));
+        // Stored to the microsecond, so later reads of the deletion return the same date
+        final var now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        userRepository.markDeletionRequested(user.getId(), now);
+        final var deletion = deletionRepository.save(new UserDeletionEntity(user.getId(), uuid, now));
+        jobQueue.enqueue(UserDeletionJob.TYPE, deletion.getId().toString());
+
+        log.info("deletion of user {} requested", uuid);
+        return toDto(deletion);
+    }
+
+    /// Returns the progress of a user's deletion
+    ///
+    /// @param uuid the UUID of the user
+    /// @return the progress of the deletion
+    /// @throws EntityNotFoundException if the user's deletion wasn't requested
+    @Transactional(readOnly = true)
+    public UserDTO.UserDeletionDTO getDeletion(UUID uuid) throws EntityNotFoundException {
+        return deletionRepository.findByUserUuid(uuid)
+                .map(UserDeletionService::toDto)
+                .orElseThrow(() -> new EntityNotFoundException("Deletion not found"));
+    }
+
+    /// Marks a deletion as running
+    ///
+    /// @param deletionId the database ID of the deletion
+    /// @return `true` if the deletion has yet to complete
+    /// @throws EntityNotFoundException if no matching deletion is found
+    @Transactional
+    public boolean start(Long deletionId) throws EntityNotFoundException {
+        final var deletion = deletionRepository.findById(deletionId).orElseThrow(() -> new EntityNotFoundException("Deletion not found"));
+        deletion.start(Instant.now());
+        return deletion.getStatus() != UserDeletionStatus.COMPLETED;
+    }
+
+    /// Purges a batch of the current step of a deletion, moving on to the next step once the current one is empty.
+    ///
+    /// Subscriptions are unsubscribed from as they're deleted, so subscriber counts and recommendations follow.
+    /// Before the user themselves is deleted, every step is checked for rows written after it ran,
+    /// such as by a request that was already in flight when the deletion was requested, and run again if it has any.
+    ///
+    /// @param deletionId the database ID of the deletion
+    /// @param batchSize  the maximum number of rows to delete
+    /// @return the outcome of the batch
+    /// @throws EntityNotFoundException if no matching deletion is found
+    @Transactional
+    public PurgedBatch purgeBatch(Long deletionId, int batchSize) throws EntityNotFoundException {
+        final var deletion = deletionRepository.findById(deletionId).orElseThrow(() -> new EntityNotFoundException("Deletion not found"));
+        final var stage = deletion.getStage();
+        if (deletion.getStatus() == UserDeletionStatus.COMPLETED) {
+            return new PurgedBatch(stage, 0, true);
+        }
+
+        final var userId = deletion.getUserId();
+        final var now = Instant.now();
+        final long rows = switch (stage) {
+            case SUBSCRIPTIONS -> purgeSubscriptions(userId, batchSize);
+            case USER -> {
+                final var leftover = findLeftoverStage(userId);
+                if (leftover != null) {
+                    log.info("restarting the deletion of user {} at {}", deletion.getUserUuid(), leftover);
+                    deletion.restartAt(leftover, now);
+                    yield 0;
+                }
+                yield purgeRepository.deleteUser(userId);
+            }
+            default -> stage.batched()
+                    ? purgeRepository.deleteBatch(stage, userId, batchSize)
+                    : purgeRepository.deleteAll(stage, userId);
+        };
+
+        deletion.addRowsDeleted(rows, now);
+        if (deletion.getStage() == stage && (!stage.batched() || rows < batchSize)) {
+            deletion.advance(now);
+        }
+        if (deletion.getStatus() == UserDeletionStatus.COMPLETED) {
+            log.info("deleted user {} and {} rows of their data", deletion.getUserUuid(), deletion.getRowsDeleted());
+        }
+        return new PurgedBatch(stage, rows, deletion.getStatus() == UserDeletionStatus.COMPLETED);
+    }
+
+    /// Records the error a batch of a deletion failed with
+    ///
+    /// @param deletionId the database ID of the deletion
+    /// @param message    the message of the error
+    @Transactional
+    public void recordFailure(Long deletionId, String message) {
+        deletionRepository.findById(deletionId).ifPresent(deletion ->
+                deletion.setLastError(message == null || message.length() <= 1024 ? message : message.substring(0, 1024)));
+    }
+
+    private int purgeSubscriptions(Long userId, int batchSize) {
+        final var subscriptions = purgeRepository.findSubscriptions(userId, batchSize);
+        final var ids = new ArrayList<Long>(subscriptions.size());
+        final var activeFeedIds = new HashSet<Long>();
+        for (final var subscription : subscriptions) {
+            ids.add(subscription.id());
+            if (subscription.active()) {
+                activeFeedIds.add(subscription.feedId());
+            }
+        }
+
+        final var deleted = purgeRepository.deleteSubscriptions(ids);
+        if (!activeFeedIds.isEmpty()) {
+            eventPublisher.publishEvent(new SubscriptionsChangedEvent(userId, activeFeedIds, false));
+        }
+        return deleted;
+    }
+
+    private UserDeletionStage findLeftoverStage(Long userId) {
+        for (final var stage : UserDeletionStage.values()) {
+            if (stage != UserDeletionStage.USER && purgeRepository.hasRows(stage, userId)) {
+                return stage;
+            }
+        }
+        return null;
+    }
+
+    private static UserDTO.UserDeletionDTO toDto(UserDeletionEntity deletion) {
+        return new UserDTO.UserDeletionDTO(deletion.getUserUuid(), deletion.getStatus(), deletion.getStage(),
+                deletion.getRowsDeleted(), deletion.getRequestedAt(), deletion.getCompletedAt());
+    }
+}
@@ -0,0 +1,54 @@
+package org.openpodcastapi.opa.user;
+
+/// The steps of purging a user's data, in the order they run.
+///
+/// Subscriptions are removed first, as unsubscribing from feeds can write entries to the user's inbox.
+/// Each table is purged in batches, except those holding a single row per user.
+public enum UserDeletionStage {
+    /// The user's subscriptions, which are unsubscribed from first so counts and recommendations follow
+    SUBSCRIPTIONS("subscriptions", true),
+    /// The episodes in the user's inbox
+    INBOX_ENTRIES("inbox_entries", true),
+    /// The episodes in the user's queue
+    QUEUE_ITEMS("queue_items", true),
+    /// The user's playback position in each episode
+    PLAYBACK_STATES("playback_states", true),
+    /// The blocks of the user's listening history
+    HISTORY_BLOCKS("listening_history_blocks", true),
+    /// The episode dictionary of the user's listening history
+    HISTORY("listening_histories", false),
+    /// The user's daily listening to each feed
+    ROLLUP_FEED_DAYS("listening_rollup_feed_days", true),
+    /// The user's daily listening
+    ROLLUP_USER_DAYS("listening_rollup_user_days", true),
+    /// The latest listening event rolled up for the user
+    ROLLUP_STATE("listening_rollup_states", false),
+    /// The user's refresh tokens
+    REFRESH_TOKENS("refresh_tokens", true),
+    /// The user and their roles
+    USER("users", false);
+
+    private final String table;
+    private final boolean batched;
+
+    UserDeletionStage(String table, boolean batched) {
+        this.table = table;
+        this.batched = batched;
+    }
+
+    /// @return the table the stage deletes from
+    public String table() {
+        return table;
+    }
+
+    /// @return whether the table is purged in batches, rather than holding a single row per user
+    public boolean batched() {
+        return batched;
+    }
+
+    /// @return the stage after this one, or `null` if this is the last
+    public UserDeletionStage next() {
+        final var stages = values();
+        return ordinal() + 1 < stages.length ? stages[ordinal() + 1] : null;
+    }
+}
@@ -0,0 +1,11 @@
+package org.openpodcastapi.opa.user;
+
+/// The progress of a user's deletion
+public enum UserDeletionStatus {
+    /// The user can no longer sign in, and their data is waiting to be purged
+    PENDING,
+    /// The user's data is being purged
+    RUNNING,
+    /// The user and all of their data have been deleted
+    COMPLETED
+}
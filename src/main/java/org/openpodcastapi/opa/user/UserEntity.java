@@ -53,6 +53,16 @@ public class UserEntity implements Cursorable {
     @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"))
     private Set<UserRoles> userRoles = new HashSet<>(Collections.singletonList(UserRoles.USER));
 
+    /// A counter that is incremented whenever the user's subscriptions change.
+    /// Only ever updated through [UserRepository#incrementSubscriptionsVersion].
+    @Column(nullable = false, updatable = false)
+    private long subscriptionsVersion;
+
+    /// The date at which the user asked for their account to be deleted, after which they can no longer sign in.
+    /// Only ever set through [UserRepository#markDeletionRequested].
+    @Column(updatable = false)
+    private Instant deletionRequestedAt;
+
     /// The date at which the entity was created
     @Column(updatable = false)
     private Instant createdAt;
@@ -158,6 +168,16 @@ public class UserEntity implements Cursorable {
         this.userRoles = userRoles;
     }
 
+    /// @return the version counter of the user's subscriptions
+    public long getSubscriptionsVersion() {
+        return this.subscriptionsVersion;
+    }
+
+    /// @return the date at which the user's deletion was requested, or `null` if it hasn't been
+    public Instant getDeletionRequestedAt() {
+        return this.deletionRequestedAt;
+    }
+
     /// @return the user creation date
     public Instant getCreatedAt() {
         return this.createdAt;
@@ -0,0 +1,133 @@
+package org.openpodcastapi.opa.user;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/// Repository for purging a user's data.
+///
+/// Rows are deleted with set-based statements keyed on `user_id`, so neither the user nor any of their rows is loaded,
+/// and each batch is bounded so no statement holds locks on more than a batch of rows.
+/// Table names only ever come from [UserDeletionStage], never from a request.
+/// Every method must be called inside a transaction.
+@Repository
+public class UserPurgeRepository {
+    private static final String DELETE_BATCH = "DELETE FROM %1$s WHERE id IN (SELECT id FROM %1$s WHERE user_id = :userId LIMIT :limit)";
+
+    private static final String DELETE_ALL = "DELETE FROM %s WHERE user_id = :userId";
+
+    private static final String EXISTS = "SELECT 1 FROM %s WHERE user_id = :userId LIMIT 1";
+
+    private static final String FIND_SUBSCRIPTIONS = "SELECT id, feed_id, unsubscribed_at FROM subscriptions WHERE user_id = :userId ORDER BY id LIMIT :limit";
+
+    private static final String DELETE_SUBSCRIPTIONS = "DELETE FROM subscriptions WHERE id IN (:ids)";
+
+    private static final String DELETE_ROLES = "DELETE FROM user_roles WHERE user_id = :userId";
+
+    private static final String DELETE_USER = "DELETE FROM users WHERE id = :userId";
+
+    private final EntityManager entityManager;
+
+    /// A subscription of a user being deleted
+    ///
+    /// @param id     the database ID of the subscription
+    /// @param feedId the database ID of the feed
+    /// @param active whether the user is still subscribed to the feed
+    public record PurgedSubscription(Long id, Long feedId, boolean active) {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param entityManager the entity manager used to run the statements
+    public UserPurgeRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /// Deletes a batch of a user's rows from a table
+    ///
+    /// @param stage  the stage whose table to delete from
+    /// @param userId the database ID of the user
+    /// @param limit  the maximum number of rows to delete
+    /// @return the number of deleted rows
+    public int deleteBatch(UserDeletionStage stage, Long userId, int limit) {
+        return entityManager.createNativeQuery(DELETE_BATCH.formatted(stage.table()))
+                .setParameter("userId", userId)
+                .setParameter("limit", limit)
+                .executeUpdate();
+    }
+
+    /// Deletes all of a user's rows from a table holding a single row per user
+    ///
+    /// @param stage  the stage whose table to delete from
+    /// @param userId the database ID of the user
+    /// @return the number of deleted rows
+    public int deleteAll(UserDeletionStage stage, Long userId) {
+        return entityManager.createNativeQuery(DELETE_ALL.formatted(stage.table()))
+                .setParameter("userId", userId)
+                .executeUpdate();
+    }
+
+    /// Checks whether a user still has rows in a table
+    ///
+    /// @param stage  the stage whose table to check
+    /// @param userId the database ID of the user
+    /// @return `true` if the user has at least one row in the table
+    public boolean hasRows(UserDeletionStage stage, Long userId) {
+        return !entityManager.createNativeQuery(EXISTS.formatted(stage.table()))
+                .setParameter("userId", userId)
+                .getResultList()
+                .isEmpty();
+    }
+
+    /// Finds a batch of a user's subscriptions
+    ///
+    /// @param userId the database ID of the user
+    /// @param limit  the maximum number of subscriptions to return
+    /// @return the subscriptions, in order of ID
+    public List<PurgedSubscription> findSubscriptions(Long userId, int limit) {
+        final List<?> rows = entityManager.createNativeQuery(FIND_SUBSCRIPTIONS)
+                .setParameter("userId", userId)
+                .setParameter("limit", limit)
+                .getResultList();
+
+        final var subscriptions = new ArrayList<PurgedSubscription>(rows.size());
+        for (final var row : rows) {
+            final var columns = (Object[]) row;
+            subscriptions.add(new PurgedSubscription(
+                    ((Number) columns[0]).longValue(),
+                    ((Number) columns[1]).longValue(),
+                    columns[2] == null));
+        }
+        return subscriptions;
+    }
+
+    /// Deletes subscriptions
+    ///
+    /// @param ids the database IDs of the subscriptions
+    /// @return the number of deleted rows
+    public int deleteSubscriptions(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createNativeQuery(DELETE_SUBSCRIPTIONS)
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    /// Deletes a user and their roles
+    ///
+    /// @param userId the database ID of the user
+    /// @return the number of deleted rows
+    public int deleteUser(Long userId) {
+        final var roles = entityManager.createNativeQuery(DELETE_ROLES)
+                .setParameter("userId", userId)
+                .executeUpdate();
+        return roles + entityManager.createNativeQuery(DELETE_USER)
+                .setParameter("userId", userId)
+                .executeUpdate();
+    }
+}
@@ -1,9 +1,17 @@
 package org.openpodcastapi.opa.user;
 
+import jakarta.persistence.LockModeType;
 import org.jspecify.annotations.NonNull;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -16,6 +24,34 @@ public interface UserRepository extends JpaRepository<@NonNull UserEntity, @NonN
     /// @return the found user
     Optional<UserEntity> findUserByUuid(UUID uuid);
 
+    /// Finds a single user by UUID, unless their deletion has been requested
+    ///
+    /// @param uuid the UUID of the user
+    /// @return the found user
+    Optional<UserEntity> findUserByUuidAndDeletionRequestedAtIsNull(UUID uuid);
+
+    /// Finds a single user by username, unless their deletion has been requested
+    ///
+    /// @param username the username of the user
+    /// @return the found user
+    Optional<UserEntity> findUserByUsernameAndDeletionRequestedAtIsNull(String username);
+
+    /// Checks that a user exists and their deletion hasn't been requested
+    ///
+    /// @param id the database ID of the user
+    /// @return `true` if the user can still be written for
+    boolean existsByIdAndDeletionRequestedAtIsNull(Long id);
+
+    /// Finds which of a set of users exist and haven't had their deletion requested.
+    /// The users found are locked against a deletion request until the transaction ends,
+    /// so what the transaction writes for them is committed before their data starts being purged.
+    ///
+    /// @param ids the database IDs of the users
+    /// @return the database IDs of the users that can still be written for, in order
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select u.id from UserEntity u where u.id in :ids and u.deletionRequestedAt is null order by u.id")
+    List<Long> lockWritableIds(Collection<Long> ids);
+
     /// Finds a single user by username. Returns `null` if no entity is found.
     ///
     /// @param username the username of the user
@@ -28,4 +64,29 @@ public interface UserRepository extends JpaRepository<@NonNull UserEntity, @NonN
     /// @param username the username to check
     /// @return a boolean value representing whether an existing user was found
     boolean existsUserByEmailOrUsername(String email, String username);
+
+    /// Fetches the subscription version counter of a user without loading the entity
+    ///
+    /// @param id the database ID of the user
+    /// @return the version counter, if the user exists
+    @Query("select u.subscriptionsVersion from UserEntity u where u.id = :id")
+    Optional<Long> findSubscriptionsVersionById(Long id);
+
+    /// Increments the subscription version counter of a user
+    ///
+    /// @param id the database ID of the user
+    /// @return the number of updated rows
+    @Transactional
+    @Modifying
+    @Query("update UserEntity u set u.subscriptionsVersion = u.subscriptionsVersion + 1 where u.id = :id")
+    int incrementSubscriptionsVersion(Long id);
+
+    /// Records that a user's deletion was requested, unless it already was
+    ///
+    /// @param id          the database ID of the user
+    /// @param requestedAt the time of the request
+    /// @return the number of updated rows
+    @Modifying
+    @Query("update UserEntity u set u.deletionRequestedAt = :requestedAt where u.id = :id and u.deletionRequestedAt is null")
+    int markDeletionRequested(Long id, Instant requestedAt);
 }
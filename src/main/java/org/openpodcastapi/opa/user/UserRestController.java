@@ -8,6 +8,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.UUID;
 
 /// Controller for user-related API requests
@@ -15,12 +16,15 @@ import java.util.UUID;
 @RequestMapping("/api/v1/users")
 public class UserRestController {
     private final UserService service;
+    private final UserDeletionService deletionService;
 
     /// Required-args constructor
     ///
-    /// @param userService the user service used to handle user interactions
-    public UserRestController(UserService userService) {
+    /// @param userService     the user service used to handle user interactions
+    /// @param deletionService the service used to delete users
+    public UserRestController(UserService userService, UserDeletionService deletionService) {
         this.service = userService;
+        this.deletionService = deletionService;
     }
 
     /// Returns all users. Only accessible to admins.
@@ -49,20 +53,32 @@ public class UserRestController {
         return new ResponseEntity<>(userResponseDTO, HttpStatus.CREATED);
     }
 
-    /// Fetch a specific user by UUID
+    /// Requests the deletion of a user.
+    /// The user loses access straight away, and their data is purged in the background.
     ///
     /// @param uuid the UUID of the user
-    /// @return a response containing a summary of the action
+    /// @return a response containing the progress of the deletion, with the location to follow it at
     @DeleteMapping("/{uuid}")
-    @PreAuthorize("hasRole('ADMIN') or #uuid == authentication.principal.uuid")
-    public ResponseEntity<@NonNull String> deleteUser(@PathVariable String uuid) {
+    @PreAuthorize("hasRole('ADMIN') or #uuid == authentication.principal.uuid.toString()")
+    public ResponseEntity<UserDTO.@NonNull UserDeletionDTO> deleteUser(@PathVariable String uuid) {
         // Attempt to validate the UUID value from the provided string
         // If the value is invalid, the GlobalExceptionHandler will throw a 400.
         final var uuidValue = UUID.fromString(uuid);
 
-        // Delete the user and return the message string
-        final var message = service.deleteUserAndReturnMessage(uuidValue);
+        final var deletion = deletionService.requestDeletion(uuidValue);
 
-        return new ResponseEntity<>(message, HttpStatus.ACCEPTED);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/users/" + uuidValue + "/deletion"))
+                .body(deletion);
+    }
+
+    /// Returns the progress of a user's deletion. Only accessible to admins.
+    ///
+    /// @param uuid the UUID of the user
+    /// @return a response containing the progress of the deletion
+    @GetMapping("/{uuid}/deletion")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserDTO.@NonNull UserDeletionDTO> getDeletion(@PathVariable String uuid) {
+        return ResponseEntity.ok(deletionService.getDeletion(UUID.fromString(uuid)));
     }
 }
@@ -1,6 +1,5 @@
 package org.openpodcastapi.opa.user;
 
-import jakarta.persistence.EntityNotFoundException;
 import org.openpodcastapi.opa.pagination.CursorPage;
 import org.openpodcastapi.opa.pagination.CursorRepository;
 import org.openpodcastapi.opa.pagination.CursorUtility;
@@ -10,14 +9,11 @@ import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.UUID;
-
 import static org.slf4j.LoggerFactory.getLogger;
 
 /// Service class for user-related actions
 @Service
 public class UserService {
-    private static final String USER_NOT_FOUND = "User not found";
     private static final Logger log = getLogger(UserService.class);
     private static final QUserEntity qUser = QUserEntity.userEntity;
     private final UserRepository repository;
@@ -77,18 +73,4 @@ public class UserService {
 
         return userPage.map(mapper::toDto);
     }
-
-    /// Deletes a user from the database
-    ///
-    /// @param uuid the UUID of the user to delete
-    /// @return a success message
-    /// @throws EntityNotFoundException if no matching record is found
-    @Transactional
-    public String deleteUserAndReturnMessage(UUID uuid) throws EntityNotFoundException {
-        final var userEntity = repository.findUserByUuid(uuid).orElseThrow(() -> new EntityNotFoundException(USER_NOT_FOUND));
-
-        repository.delete(userEntity);
-
-        return "user " + uuid.toString() + "deleted";
-    }
 }
@@ -0,0 +1,41 @@
+package org.openpodcastapi.opa.util;
+
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Exposes details of the database the application is connected to.
+///
+/// Some operations use PostgreSQL-specific SQL such as `RETURNING` or `ON CONFLICT`.
+/// Those operations fall back to portable statements on other databases, such as the H2 database used in tests.
+@Component
+public class DatabasePlatform {
+    private static final Logger log = getLogger(DatabasePlatform.class);
+    private final DataSource dataSource;
+    private volatile Boolean postgres;
+
+    /// Required-args constructor
+    ///
+    /// @param dataSource the application data source
+    public DatabasePlatform(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /// @return whether the application is connected to a PostgreSQL database
+    public boolean isPostgres() {
+        if (postgres == null) {
+            try (var connection = dataSource.getConnection()) {
+                final var productName = connection.getMetaData().getDatabaseProductName();
+                log.debug("Connected to database {}", productName);
+                postgres = "PostgreSQL".equalsIgnoreCase(productName);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Unable to determine the database platform", e);
+            }
+        }
+        return postgres;
+    }
+}
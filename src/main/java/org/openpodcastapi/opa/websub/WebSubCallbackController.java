@@ -0,0 +1,77 @@
+package org.openpodcastapi.opa.websub;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.UUID;
+
+/// Controller for WebSub hub callbacks.
+/// Hubs don't authenticate, so each subscription has its own unguessable callback URL.
+@RestController
+@RequestMapping("/api/v1/websub")
+public class WebSubCallbackController {
+    private final WebSubService service;
+    private final int maxBodyBytes;
+
+    /// Required-args constructor
+    ///
+    /// @param service      the service used for WebSub actions
+    /// @param maxBodyBytes the maximum size of a pushed feed document
+    public WebSubCallbackController(WebSubService service, @Value("${crawler.max-body-bytes:10485760}") int maxBodyBytes) {
+        this.service = service;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    /// Answers a hub's verification of intent by echoing the challenge
+    ///
+    /// @param token        the callback token of the subscription
+    /// @param mode         the mode of the request being verified
+    /// @param topic        the topic URL of the request being verified
+    /// @param challenge    the challenge to echo
+    /// @param leaseSeconds the lease granted by the hub
+    /// @return the challenge, or `404 Not Found` if the server didn't request the subscription
+    /// @throws IllegalArgumentException if the token is improperly formatted
+    @GetMapping(value = "/{token}", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> verify(@PathVariable String token,
+                                         @RequestParam("hub.mode") String mode,
+                                         @RequestParam("hub.topic") String topic,
+                                         @RequestParam(name = "hub.challenge", required = false) String challenge,
+                                         @RequestParam(name = "hub.lease_seconds", required = false) Long leaseSeconds) {
+        // If the value is invalid, the GlobalExceptionHandler will throw a 400.
+        final var tokenValue = UUID.fromString(token);
+
+        return service.verify(tokenValue, mode, topic, challenge, leaseSeconds, Instant.now())
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /// Accepts content pushed by a hub
+    ///
+    /// @param token     the callback token of the subscription
+    /// @param signature the HMAC signature of the body
+    /// @param request   the request carrying the feed document
+    /// @return `204 No Content`, or `410 Gone` if the subscription doesn't exist
+    /// @throws IOException              if the body can't be read
+    /// @throws IllegalArgumentException if the token is improperly formatted
+    @PostMapping("/{token}")
+    public ResponseEntity<Void> receive(@PathVariable String token,
+                                        @RequestHeader(name = "X-Hub-Signature", required = false) String signature,
+                                        HttpServletRequest request) throws IOException {
+        final var tokenValue = UUID.fromString(token);
+
+        final var body = request.getInputStream().readNBytes(maxBodyBytes + 1);
+        if (body.length > maxBodyBytes) {
+            return ResponseEntity.status(HttpStatus.CONTENT_TOO_LARGE).build();
+        }
+
+        return service.receive(tokenValue, signature, body, Instant.now())
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.status(HttpStatus.GONE).build();
+    }
+}
@@ -0,0 +1,91 @@
+package org.openpodcastapi.opa.websub;
+
+import org.openpodcastapi.opa.crawler.FeedFetcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/// Sends subscription requests to WebSub hubs.
+///
+/// Hub URLs come from fetched feeds, so they're subject to the same address checks as feed URLs.
+@Component
+public class WebSubHubClient implements AutoCloseable {
+    private final FeedFetcher fetcher;
+    private final HttpClient client;
+    private final Duration timeout;
+    private final String userAgent;
+
+    /// Required-args constructor
+    ///
+    /// @param fetcher        the fetcher whose address checks are applied to hub URLs
+    /// @param connectTimeout the timeout for establishing a connection
+    /// @param timeout        the timeout for receiving a response
+    /// @param userAgent      the `User-Agent` sent with every request
+    public WebSubHubClient(FeedFetcher fetcher,
+                           @Value("${crawler.connect-timeout:PT10S}") Duration connectTimeout,
+                           @Value("${crawler.timeout:PT30S}") Duration timeout,
+                           @Value("${crawler.user-agent:OpenPodcastAPI}") String userAgent) {
+        this.fetcher = fetcher;
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(connectTimeout)
+                .build();
+        this.timeout = timeout;
+        this.userAgent = userAgent;
+    }
+
+    /// Sends a subscription or unsubscription request to a hub
+    ///
+    /// @param hubUrl       the URL of the hub
+    /// @param mode         `subscribe` or `unsubscribe`
+    /// @param topicUrl     the topic URL
+    /// @param callbackUrl  the callback URL the hub verifies the request with and pushes content to
+    /// @param secret       the secret the hub signs pushed content with
+    /// @param leaseSeconds the requested lease
+    /// @return the HTTP status of the response. Hubs answer `202 Accepted` and verify the request asynchronously.
+    /// @throws IOException              if the request fails
+    /// @throws InterruptedException     if the calling thread is interrupted
+    /// @throws IllegalArgumentException if the hub URL is invalid or points to a private address
+    public int send(String hubUrl, String mode, String topicUrl, String callbackUrl, String secret, long leaseSeconds) throws IOException, InterruptedException {
+        final var uri = FeedFetcher.toUri(hubUrl);
+        fetcher.checkAddress(uri);
+
+        final Map<String, String> form = new LinkedHashMap<>();
+        form.put("hub.mode", mode);
+        form.put("hub.topic", topicUrl);
+        form.put("hub.callback", callbackUrl);
+        if ("subscribe".equals(mode)) {
+            form.put("hub.secret", secret);
+            form.put("hub.lease_seconds", Long.toString(leaseSeconds));
+        }
+
+        final var body = form.entrySet().stream()
+                .map(entry -> URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8) + "=" + URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+
+        final var request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("User-Agent", userAgent)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+}
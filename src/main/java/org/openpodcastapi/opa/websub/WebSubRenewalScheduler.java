@@ -0,0 +1,39 @@
+package org.openpodcastapi.opa.websub;
+
+import org.slf4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// A scheduled task to renew WebSub leases before they expire
+@Component
+@ConditionalOnProperty(name = "websub.enabled", havingValue = "true")
+public class WebSubRenewalScheduler {
+    private static final Logger log = getLogger(WebSubRenewalScheduler.class);
+    private final WebSubService service;
+
+    /// Required-args constructor
+    ///
+    /// @param service the service used to renew subscriptions
+    public WebSubRenewalScheduler(WebSubService service) {
+        this.service = service;
+    }
+
+    /// Renews the subscriptions whose lease expires soon.
+    /// The next run starts `websub.renew-delay` after the previous one finishes.
+    @Scheduled(fixedDelayString = "${websub.renew-delay:PT5M}", initialDelayString = "${websub.initial-delay:PT1M}")
+    public void renewExpiringSubscriptions() {
+        if (!service.isEnabled()) {
+            return;
+        }
+
+        final var renewed = service.renewExpiring(Instant.now());
+        if (renewed > 0) {
+            log.debug("Renewed {} WebSub subscriptions", renewed);
+        }
+    }
+}
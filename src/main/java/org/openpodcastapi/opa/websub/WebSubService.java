@@ -0,0 +1,391 @@
+package org.openpodcastapi.opa.websub;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openpodcastapi.opa.archive.FeedArchive;
+import org.openpodcastapi.opa.crawler.FeedFetchedEvent;
+import org.openpodcastapi.opa.crawler.FeedParser;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/// Service for WebSub subscriptions.
+///
+/// Hubs are discovered in fetched feeds. The server subscribes to a feed's hub with a per-subscription callback URL and secret,
+/// answers the hub's verification of intent, and passes signed pushed content to the same listeners as a crawled feed.
+/// While a subscription is active, the crawler leaves the feed out of its schedule.
+/// Leases are renewed before they expire, or given up once a feed has no active subscribers.
+@Service
+public class WebSubService {
+    private static final Logger log = getLogger(WebSubService.class);
+    private static final String CALLBACK_PATH = "/api/v1/websub/";
+    private static final String SUBSCRIBE = "subscribe";
+    private static final String UNSUBSCRIBE = "unsubscribe";
+
+    private final WebSubSubscriptionRepository repository;
+    private final WebSubHubClient hubClient;
+    private final FeedParser parser;
+    private final FeedRepository feedRepository;
+    private final FeedArchive archive;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SecureRandom random = new SecureRandom();
+    private final boolean enabled;
+    private final String callbackBaseUrl;
+    private final Duration lease;
+    private final Duration renewBefore;
+    private final Duration pendingTimeout;
+    private final Duration retryInterval;
+    private final int batchSize;
+
+    private final Counter requestsAccepted;
+    private final Counter requestsFailed;
+    private final Counter pushesAccepted;
+    private final Counter pushesRejected;
+    private final Counter pushesUnchanged;
+
+    /// All-args constructor
+    ///
+    /// @param repository      the repository used for WebSub subscription interactions
+    /// @param hubClient       the client used to send requests to hubs
+    /// @param parser          the parser used to discover hubs in fetched feeds
+    /// @param feedRepository  the repository used to look up pushed feeds
+    /// @param archive         the archive used to store pushed documents and recognise unchanged ones
+    /// @param eventPublisher  the publisher used to pass pushed content on
+    /// @param meterRegistry   the registry used to publish WebSub metrics
+    /// @param enabled         whether hubs discovered in feeds are subscribed to
+    /// @param callbackBaseUrl the public base URL of the server, which hubs send callbacks to
+    /// @param lease           the lease requested from hubs
+    /// @param renewBefore     how long before a lease expires it's renewed
+    /// @param pendingTimeout  how long a request may await verification before it's sent again
+    /// @param retryInterval   how long to wait before subscribing again after a hub refused
+    /// @param batchSize       the number of subscriptions renewed per query
+    public WebSubService(WebSubSubscriptionRepository repository,
+                         WebSubHubClient hubClient,
+                         FeedParser parser,
+                         FeedRepository feedRepository,
+                         FeedArchive archive,
+                         ApplicationEventPublisher eventPublisher,
+                         MeterRegistry meterRegistry,
+                         @Value("${websub.enabled:false}") boolean enabled,
+                         @Value("${websub.callback-base-url:}") String callbackBaseUrl,
+                         @Value("${websub.lease:P10D}") Duration lease,
+                         @Value("${websub.renew-before:PT24H}") Duration renewBefore,
+                         @Value("${websub.pending-timeout:PT1H}") Duration pendingTimeout,
+                         @Value("${websub.retry-interval:PT6H}") Duration retryInterval,
+                         @Value("${websub.batch-size:100}") int batchSize) {
+        this.repository = repository;
+        this.hubClient = hubClient;
+        this.parser = parser;
+        this.feedRepository = feedRepository;
+        this.archive = archive;
+        this.eventPublisher = eventPublisher;
+        this.callbackBaseUrl = callbackBaseUrl.endsWith("/")
+                ? callbackBaseUrl.substring(0, callbackBaseUrl.length() - 1)
+                : callbackBaseUrl;
+        this.enabled = enabled && !this.callbackBaseUrl.isBlank();
+        this.lease = lease;
+        this.renewBefore = renewBefore;
+        this.pendingTimeout = pendingTimeout;
+        this.retryInterval = retryInterval;
+        this.batchSize = batchSize;
+
+        if (enabled && !this.enabled) {
+            log.warn("WebSub is enabled but websub.callback-base-url isn't set, so hubs won't be subscribed to");
+        }
+
+        this.requestsAccepted = Counter.builder("websub.requests").tag("result", "accepted").register(meterRegistry);
+        this.requestsFailed = Counter.builder("websub.requests").tag("result", "failed").register(meterRegistry);
+        this.pushesAccepted = Counter.builder("websub.pushes").tag("result", "accepted").register(meterRegistry);
+        this.pushesRejected = Counter.builder("websub.pushes").tag("result", "rejected").register(meterRegistry);
+        this.pushesUnchanged = Counter.builder("websub.pushes").tag("result", "unchanged").register(meterRegistry);
+    }
+
+    /// Subscribes to the hub advertised by a fetched feed, unless a current subscription to it exists
+    ///
+    /// @param event the event published by the crawler or by a push
+    @EventListener
+    public void onFeedFetched(FeedFetchedEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        final FeedParser.Channel channel;
+        try {
+            // Treating every episode as known stops the parser at the first one, after the channel metadata
+            channel = parser.parse(new ByteArrayInputStream(event.body()), _ -> true, _ -> {
+            }).channel();
+        } catch (XMLStreamException e) {
+            return;
+        }
+
+        if (channel.hubUrl() == null) {
+            return;
+        }
+
+        final var topicUrl = channel.selfUrl() != null ? channel.selfUrl() : event.feedUrl();
+        try {
+            discover(event.feedId(), channel.hubUrl(), topicUrl, Instant.now());
+        } catch (RuntimeException e) {
+            log.warn("Unable to subscribe to hub {} for feed {}: {}", channel.hubUrl(), event.feedUuid(), e.getMessage());
+        }
+    }
+
+    /// Subscribes a feed to a hub, unless it's already subscribed or a recent request is still pending
+    ///
+    /// @param feedId   the database ID of the feed
+    /// @param hubUrl   the URL of the hub
+    /// @param topicUrl the topic URL of the feed
+    /// @param now      the current time
+    public void discover(Long feedId, String hubUrl, String topicUrl, Instant now) {
+        final var existing = repository.findById(feedId);
+        if (existing.isPresent() && isCurrent(existing.get(), hubUrl, topicUrl, now)) {
+            return;
+        }
+
+        final var subscription = existing.orElseGet(() -> new WebSubSubscriptionEntity(feedId));
+        if (!hubUrl.equals(subscription.getHubUrl()) || !topicUrl.equals(subscription.getTopicUrl())) {
+            // Pushes from the previous hub stop being accepted along with the old token
+            subscription.setHubUrl(hubUrl);
+            subscription.setTopicUrl(topicUrl);
+            subscription.setCallbackToken(UUID.randomUUID());
+            subscription.setSecret(newSecret());
+            subscription.setState(WebSubState.PENDING);
+        }
+
+        request(subscription, SUBSCRIBE, now);
+    }
+
+    /// Answers a hub's verification of intent
+    ///
+    /// @param callbackToken the token in the callback URL
+    /// @param mode          the `hub.mode` parameter
+    /// @param topicUrl      the `hub.topic` parameter
+    /// @param challenge     the `hub.challenge` parameter
+    /// @param leaseSeconds  the `hub.lease_seconds` parameter, if any
+    /// @param now           the current time
+    /// @return the body to answer with if the request is confirmed, or empty if the server doesn't want it
+    public Optional<String> verify(UUID callbackToken, String mode, String topicUrl, String challenge, Long leaseSeconds, Instant now) {
+        final var subscription = repository.findByCallbackToken(callbackToken).orElse(null);
+        if (subscription == null || !subscription.getTopicUrl().equals(topicUrl)) {
+            return Optional.empty();
+        }
+
+        switch (mode) {
+            case SUBSCRIBE -> {
+                if (challenge == null || subscription.getState() != WebSubState.PENDING && subscription.getState() != WebSubState.ACTIVE) {
+                    return Optional.empty();
+                }
+                subscription.setState(WebSubState.ACTIVE);
+                subscription.setVerifiedAt(now);
+                subscription.setLeaseExpiresAt(now.plus(leaseSeconds != null && leaseSeconds > 0 ? Duration.ofSeconds(leaseSeconds) : lease));
+                repository.save(subscription);
+                log.debug("WebSub subscription of feed {} verified until {}", subscription.getFeedId(), subscription.getLeaseExpiresAt());
+                return Optional.of(challenge);
+            }
+            case UNSUBSCRIBE -> {
+                if (challenge == null || subscription.getState() != WebSubState.UNSUBSCRIBING) {
+                    return Optional.empty();
+                }
+                repository.delete(subscription);
+                return Optional.of(challenge);
+            }
+            case "denied" -> {
+                subscription.setState(WebSubState.DENIED);
+                repository.save(subscription);
+                log.info("Hub {} denied the subscription of feed {}", subscription.getHubUrl(), subscription.getFeedId());
+                return Optional.of("");
+            }
+            default -> {
+                return Optional.empty();
+            }
+        }
+    }
+
+    /// Accepts content pushed by a hub.
+    /// Content without a valid signature is acknowledged but ignored, as the WebSub specification requires.
+    ///
+    /// @param callbackToken the token in the callback URL
+    /// @param signature     the `X-Hub-Signature` header, if any
+    /// @param body          the pushed feed document
+    /// @param now           the current time
+    /// @return whether the subscription is known. Hubs stop pushing to a callback that answers `410 Gone`.
+    public boolean receive(UUID callbackToken, String signature, byte[] body, Instant now) {
+        final var subscription = repository.findByCallbackToken(callbackToken).orElse(null);
+        if (subscription == null) {
+            return false;
+        }
+
+        if (subscription.getState() != WebSubState.ACTIVE || !isValidSignature(subscription.getSecret(), signature, body)) {
+            log.debug("Ignoring unverified push for feed {}", subscription.getFeedId());
+            pushesRejected.increment();
+            return true;
+        }
+
+        final var feed = feedRepository.findById(subscription.getFeedId()).orElse(null);
+        if (feed == null) {
+            return false;
+        }
+
+        subscription.setLastPushedAt(now);
+        repository.save(subscription);
+
+        if (!isNewDocument(feed.getId(), body)) {
+            pushesUnchanged.increment();
+            return true;
+        }
+
+        eventPublisher.publishEvent(new FeedFetchedEvent(feed.getId(), feed.getUuid(), feed.getFeedUrl(), body, now));
+        pushesAccepted.increment();
+        return true;
+    }
+
+    /// Renews the subscriptions whose lease expires soon, or unsubscribes if the feed no longer has active subscribers
+    ///
+    /// @param now the current time
+    /// @return the number of requests sent
+    public int renewExpiring(Instant now) {
+        final var due = repository.findRenewable(now.plus(renewBefore), now.minus(pendingTimeout), Limit.of(batchSize));
+        for (final var subscription : due) {
+            final var mode = repository.countActiveSubscribers(subscription.getFeedId()) > 0 ? SUBSCRIBE : UNSUBSCRIBE;
+            request(subscription, mode, now);
+        }
+        return due.size();
+    }
+
+    /// @param callbackToken the token identifying a subscription
+    /// @return the callback URL of the subscription
+    public String callbackUrl(UUID callbackToken) {
+        return callbackBaseUrl + CALLBACK_PATH + callbackToken;
+    }
+
+    /// @return whether hubs discovered in feeds are subscribed to
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /// Checks whether a subscription already covers a hub and topic, or a recent request for it is still pending
+    private boolean isCurrent(WebSubSubscriptionEntity subscription, String hubUrl, String topicUrl, Instant now) {
+        if (!hubUrl.equals(subscription.getHubUrl()) || !topicUrl.equals(subscription.getTopicUrl())) {
+            return false;
+        }
+
+        return switch (subscription.getState()) {
+            case ACTIVE -> subscription.getLeaseExpiresAt() != null && subscription.getLeaseExpiresAt().isAfter(now);
+            case PENDING -> subscription.getRequestedAt().isAfter(now.minus(pendingTimeout));
+            case DENIED -> subscription.getRequestedAt().isAfter(now.minus(retryInterval));
+            // The feed was fetched, so it has subscribers again
+            case UNSUBSCRIBING -> false;
+        };
+    }
+
+    /// Sends a subscription or unsubscription request and records the outcome.
+    /// An active subscription stays active while its renewal awaits verification.
+    private void request(WebSubSubscriptionEntity subscription, String mode, Instant now) {
+        if (UNSUBSCRIBE.equals(mode)) {
+            subscription.setState(WebSubState.UNSUBSCRIBING);
+        } else if (subscription.getState() != WebSubState.ACTIVE || !subscription.getLeaseExpiresAt().isAfter(now)) {
+            subscription.setState(WebSubState.PENDING);
+        }
+        subscription.setRequestedAt(now);
+        repository.save(subscription);
+
+        try {
+            final var status = hubClient.send(subscription.getHubUrl(), mode, subscription.getTopicUrl(),
+                    callbackUrl(subscription.getCallbackToken()), subscription.getSecret(), lease.toSeconds());
+            if (status / 100 == 2) {
+                requestsAccepted.increment();
+                return;
+            }
+            log.info("Hub {} rejected the {} request for feed {} with status {}", subscription.getHubUrl(), mode, subscription.getFeedId(), status);
+        } catch (IOException | IllegalArgumentException e) {
+            log.info("Unable to send the {} request for feed {} to hub {}: {}", mode, subscription.getFeedId(), subscription.getHubUrl(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        requestsFailed.increment();
+        if (UNSUBSCRIBE.equals(mode)) {
+            // Forgetting the token makes further pushes answer 410, which ends the subscription as well
+            repository.delete(subscription);
+        } else if (subscription.getState() == WebSubState.PENDING) {
+            subscription.setState(WebSubState.DENIED);
+            repository.save(subscription);
+        }
+    }
+
+    /// Archives a pushed document
+    ///
+    /// @param feedId   the database ID of the feed
+    /// @param document the feed document
+    /// @return whether the document differs from the previous one. A document that can't be archived is assumed to differ.
+    private boolean isNewDocument(Long feedId, byte[] document) {
+        try {
+            return archive.store(feedId, document).changed();
+        } catch (IOException e) {
+            log.warn("Unable to archive feed {}: {}", feedId, e.getMessage());
+            return true;
+        }
+    }
+
+    private String newSecret() {
+        final var bytes = new byte[32];
+        random.nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    /// Checks an `X-Hub-Signature` header of the form `sha256=<hex digest>` against the HMAC of the body
+    private static boolean isValidSignature(String secret, String signature, byte[] body) {
+        if (signature == null) {
+            return false;
+        }
+
+        final var separator = signature.indexOf('=');
+        if (separator < 0) {
+            return false;
+        }
+
+        final var algorithm = switch (signature.substring(0, separator).toLowerCase(Locale.ROOT)) {
+            case "sha1" -> "HmacSHA1";
+            case "sha256" -> "HmacSHA256";
+            case "sha384" -> "HmacSHA384";
+            case "sha512" -> "HmacSHA512";
+            default -> null;
+        };
+        if (algorithm == null) {
+            return false;
+        }
+
+        try {
+            final var mac = Mac.getInstance(algorithm);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), algorithm));
+            return MessageDigest.isEqual(mac.doFinal(body), HexFormat.of().parseHex(signature.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            return false;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.openpodcastapi.opa.websub;
+
+/// The states of a WebSub subscription
+public enum WebSubState {
+    /// A subscription request was sent and the hub hasn't verified it yet
+    PENDING,
+    /// The hub verified the subscription and pushes new content until the lease expires
+    ACTIVE,
+    /// The hub refused the subscription, or the request failed
+    DENIED,
+    /// An unsubscription request was sent and the hub hasn't verified it yet
+    UNSUBSCRIBING
+}
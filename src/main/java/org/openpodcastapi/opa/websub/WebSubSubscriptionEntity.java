@@ -0,0 +1,165 @@
+package org.openpodcastapi.opa.websub;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/// An entity holding the WebSub subscription of a feed.
+///
+/// Each feed has at most one subscription, to the hub it currently advertises.
+/// The hub reaches the server through a callback URL containing the random callback token,
+/// and signs pushed content with the secret.
+@Entity
+@Table(name = "websub_subscriptions", indexes = {
+        @Index(name = "websub_subscriptions_lease_expires_at", columnList = "lease_expires_at")
+})
+public class WebSubSubscriptionEntity {
+    /// The database ID of the feed
+    @Id
+    @Column(name = "feed_id")
+    private Long feedId;
+
+    /// The token identifying the subscription in its callback URL
+    @Column(nullable = false, unique = true)
+    private UUID callbackToken;
+
+    /// The URL of the hub
+    @Column(nullable = false, length = 2048)
+    private String hubUrl;
+
+    /// The topic URL the subscription is for
+    @Column(nullable = false, length = 2048)
+    private String topicUrl;
+
+    /// The secret the hub signs pushed content with
+    @Column(nullable = false, length = 64)
+    private String secret;
+
+    /// The state of the subscription
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private WebSubState state;
+
+    /// The timestamp of the last subscription or unsubscription request
+    @Column(nullable = false)
+    private Instant requestedAt;
+
+    /// The timestamp of the last verification by the hub
+    @Column
+    private Instant verifiedAt;
+
+    /// The timestamp the hub stops pushing content unless the subscription is renewed
+    @Column(name = "lease_expires_at")
+    private Instant leaseExpiresAt;
+
+    /// The timestamp of the last accepted push
+    @Column
+    private Instant lastPushedAt;
+
+    /// No-args constructor
+    public WebSubSubscriptionEntity() {
+    }
+
+    /// Required-args constructor
+    ///
+    /// @param feedId the database ID of the feed
+    public WebSubSubscriptionEntity(Long feedId) {
+        this.feedId = feedId;
+    }
+
+    /// @return the database ID of the feed
+    public Long getFeedId() {
+        return feedId;
+    }
+
+    /// @return the token identifying the subscription in its callback URL
+    public UUID getCallbackToken() {
+        return callbackToken;
+    }
+
+    /// @param callbackToken the token identifying the subscription in its callback URL
+    public void setCallbackToken(UUID callbackToken) {
+        this.callbackToken = callbackToken;
+    }
+
+    /// @return the URL of the hub
+    public String getHubUrl() {
+        return hubUrl;
+    }
+
+    /// @param hubUrl the URL of the hub
+    public void setHubUrl(String hubUrl) {
+        this.hubUrl = hubUrl;
+    }
+
+    /// @return the topic URL the subscription is for
+    public String getTopicUrl() {
+        return topicUrl;
+    }
+
+    /// @param topicUrl the topic URL the subscription is for
+    public void setTopicUrl(String topicUrl) {
+        this.topicUrl = topicUrl;
+    }
+
+    /// @return the secret the hub signs pushed content with
+    public String getSecret() {
+        return secret;
+    }
+
+    /// @param secret the secret the hub signs pushed content with
+    public void setSecret(String secret) {
+        this.secret = secret;
+    }
+
+    /// @return the state of the subscription
+    public WebSubState getState() {
+        return state;
+    }
+
+    /// @param state the state of the subscription
+    public void setState(WebSubState state) {
+        this.state = state;
+    }
+
+    /// @return the timestamp of the last subscription or unsubscription request
+    public Instant getRequestedAt() {
+        return requestedAt;
+    }
+
+    /// @param requestedAt the timestamp of the last subscription or unsubscription request
+    public void setRequestedAt(Instant requestedAt) {
+        this.requestedAt = requestedAt;
+    }
+
+    /// @return the timestamp of the last verification by the hub
+    public Instant getVerifiedAt() {
+        return verifiedAt;
+    }
+
+    /// @param verifiedAt the timestamp of the last verification by the hub
+    public void setVerifiedAt(Instant verifiedAt) {
+        this.verifiedAt = verifiedAt;
+    }
+
+    /// @return the timestamp the lease expires
+    public Instant getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    /// @param leaseExpiresAt the timestamp the lease expires
+    public void setLeaseExpiresAt(Instant leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    /// @return the timestamp of the last accepted push
+    public Instant getLastPushedAt() {
+        return lastPushedAt;
+    }
+
+    /// @param lastPushedAt the timestamp of the last accepted push
+    public void setLastPushedAt(Instant lastPushedAt) {
+        this.lastPushedAt = lastPushedAt;
+    }
+}
@@ -0,0 +1,44 @@
+package org.openpodcastapi.opa.websub;
+
+import org.jspecify.annotations.NonNull;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/// Repository for WebSub subscription interactions
+@Repository
+public interface WebSubSubscriptionRepository extends JpaRepository<@NonNull WebSubSubscriptionEntity, @NonNull Long> {
+    /// Finds a subscription by the token in its callback URL
+    ///
+    /// @param callbackToken the callback token
+    /// @return the subscription, if any
+    Optional<WebSubSubscriptionEntity> findByCallbackToken(UUID callbackToken);
+
+    /// Finds active subscriptions whose lease expires before a cut-off and that haven't been renewed recently
+    ///
+    /// @param expiresBefore   the lease cut-off
+    /// @param requestedBefore the cut-off for the last request, so that a renewal awaiting verification isn't repeated
+    /// @param limit           the maximum number of subscriptions to return
+    /// @return the subscriptions to renew, soonest to expire first
+    @Query("""
+            select w from WebSubSubscriptionEntity w
+            where w.state = org.openpodcastapi.opa.websub.WebSubState.ACTIVE
+              and w.leaseExpiresAt < :expiresBefore
+              and w.requestedAt < :requestedBefore
+            order by w.leaseExpiresAt asc
+            """)
+    List<WebSubSubscriptionEntity> findRenewable(Instant expiresBefore, Instant requestedBefore, Limit limit);
+
+    /// Counts the active subscribers of a feed
+    ///
+    /// @param feedId the database ID of the feed
+    /// @return the number of users subscribed to the feed
+    @Query("select count(s) from SubscriptionEntity s where s.feed.id = :feedId and s.unsubscribedAt is null")
+    long countActiveSubscribers(Long feedId);
+}
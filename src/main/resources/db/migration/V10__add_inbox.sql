@@ -0,0 +1,26 @@
+CREATE TABLE inbox_entries
+(
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    user_id      BIGINT                                  NOT NULL,
+    feed_id      BIGINT                                  NOT NULL,
+    episode_id   BIGINT                                  NOT NULL,
+    published_at TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    CONSTRAINT pk_inbox_entries PRIMARY KEY (id),
+    CONSTRAINT FK_INBOX_ENTRIES_ON_USER FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE,
+    CONSTRAINT FK_INBOX_ENTRIES_ON_EPISODE FOREIGN KEY (episode_id) REFERENCES episodes (id) ON DELETE CASCADE
+);
+
+CREATE UNIQUE INDEX uc_inbox_entries_user_id_episode_id ON inbox_entries (user_id, episode_id);
+
+CREATE INDEX inbox_entries_user_id_published_at ON inbox_entries (user_id, published_at DESC, episode_id DESC);
+
+CREATE INDEX inbox_entries_published_at ON inbox_entries (published_at);
+
+CREATE TABLE inbox_pulled_feeds
+(
+    feed_id     BIGINT                      NOT NULL,
+    subscribers BIGINT                      NOT NULL,
+    updated_at  TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_inbox_pulled_feeds PRIMARY KEY (feed_id),
+    CONSTRAINT FK_INBOX_PULLED_FEEDS_ON_FEED FOREIGN KEY (feed_id) REFERENCES feeds (id) ON DELETE CASCADE
+);
@@ -0,0 +1,17 @@
+-- Order keys compare byte by byte, whatever the database's default collation
+CREATE TABLE queue_items
+(
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    user_id    BIGINT                                  NOT NULL,
+    episode_id BIGINT                                  NOT NULL,
+    order_key  VARCHAR(255) COLLATE "C"                NOT NULL,
+    created_at TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    updated_at TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    CONSTRAINT pk_queue_items PRIMARY KEY (id),
+    CONSTRAINT FK_QUEUE_ITEMS_ON_USER FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE,
+    CONSTRAINT FK_QUEUE_ITEMS_ON_EPISODE FOREIGN KEY (episode_id) REFERENCES episodes (id) ON DELETE CASCADE
+);
+
+CREATE UNIQUE INDEX uc_queue_items_user_id_episode_id ON queue_items (user_id, episode_id);
+
+CREATE INDEX queue_items_user_id_order_key ON queue_items (user_id, order_key, id);
@@ -0,0 +1,28 @@
+-- Each user's episode dictionary, whose row also serializes appends to their history
+CREATE TABLE listening_histories
+(
+    user_id       BIGINT                      NOT NULL,
+    episode_count INTEGER                     NOT NULL,
+    episodes      BYTEA                       NOT NULL,
+    updated_at    TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_listening_histories PRIMARY KEY (user_id),
+    CONSTRAINT FK_LISTENING_HISTORIES_ON_USER FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+-- Delta-encoded events, in blocks of up to history.block-events events from the same month
+CREATE TABLE listening_history_blocks
+(
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    user_id     BIGINT                                  NOT NULL,
+    month_start TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    first_at    TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    last_at     TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    event_count INTEGER                                 NOT NULL,
+    data        BYTEA                                   NOT NULL,
+    CONSTRAINT pk_listening_history_blocks PRIMARY KEY (id),
+    CONSTRAINT FK_LISTENING_HISTORY_BLOCKS_ON_USER FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+CREATE INDEX listening_history_blocks_user_id_last_at ON listening_history_blocks (user_id, last_at DESC, id DESC);
+
+CREATE INDEX listening_history_blocks_user_id_month_start ON listening_history_blocks (user_id, month_start, id);
@@ -0,0 +1,41 @@
+CREATE TABLE listening_rollup_user_days
+(
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    user_id          BIGINT                                  NOT NULL,
+    listened_on      DATE                                    NOT NULL,
+    listened_seconds BIGINT                                  NOT NULL,
+    actions          INTEGER                                 NOT NULL,
+    completions      INTEGER                                 NOT NULL,
+    CONSTRAINT pk_listening_rollup_user_days PRIMARY KEY (id),
+    CONSTRAINT FK_LISTENING_ROLLUP_USER_DAYS_ON_USER FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+CREATE UNIQUE INDEX uc_listening_rollup_user_days_user_id_day ON listening_rollup_user_days (user_id, listened_on);
+
+CREATE TABLE listening_rollup_feed_days
+(
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    user_id          BIGINT                                  NOT NULL,
+    listened_on      DATE                                    NOT NULL,
+    feed_id          BIGINT                                  NOT NULL,
+    listened_seconds BIGINT                                  NOT NULL,
+    actions          INTEGER                                 NOT NULL,
+    completions      INTEGER                                 NOT NULL,
+    CONSTRAINT pk_listening_rollup_feed_days PRIMARY KEY (id),
+    CONSTRAINT FK_LISTENING_ROLLUP_FEED_DAYS_ON_USER FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE,
+    CONSTRAINT FK_LISTENING_ROLLUP_FEED_DAYS_ON_FEED FOREIGN KEY (feed_id) REFERENCES feeds (id) ON DELETE CASCADE
+);
+
+CREATE UNIQUE INDEX uc_listening_rollup_feed_days_user_id_day_feed_id ON listening_rollup_feed_days (user_id, listened_on, feed_id);
+
+-- The latest event rolled up for each user, which the listening time of their next event is measured from
+CREATE TABLE listening_rollup_states
+(
+    user_id          BIGINT                      NOT NULL,
+    episode_id       BIGINT                      NOT NULL,
+    action           VARCHAR(16)                 NOT NULL,
+    position_seconds INTEGER                     NOT NULL,
+    last_at          TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_listening_rollup_states PRIMARY KEY (user_id),
+    CONSTRAINT FK_LISTENING_ROLLUP_STATES_ON_USER FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
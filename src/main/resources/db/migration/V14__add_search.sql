@@ -0,0 +1,19 @@
+ALTER TABLE feeds
+    ADD title VARCHAR(1024);
+
+ALTER TABLE feeds
+    ADD author VARCHAR(1024);
+
+-- The 'simple' configuration lowercases without stemming, so matches agree with the in-memory search index
+ALTER TABLE feeds
+    ADD search_vector TSVECTOR GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('simple', coalesce(author, '')), 'B')
+        ) STORED;
+
+CREATE INDEX feeds_search_vector ON feeds USING GIN (search_vector);
+
+ALTER TABLE episodes
+    ADD search_vector TSVECTOR GENERATED ALWAYS AS (to_tsvector('simple', coalesce(title, ''))) STORED;
+
+CREATE INDEX episodes_search_vector ON episodes USING GIN (search_vector);
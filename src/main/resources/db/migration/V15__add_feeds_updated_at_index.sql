@@ -0,0 +1 @@
+CREATE INDEX feeds_updated_at ON feeds (updated_at);
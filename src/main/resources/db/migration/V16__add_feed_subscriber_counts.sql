@@ -0,0 +1,22 @@
+ALTER TABLE feeds
+    ADD COLUMN subscriber_count BIGINT NOT NULL DEFAULT 0;
+
+UPDATE feeds f
+SET subscriber_count = (SELECT count(*) FROM subscriptions s WHERE s.feed_id = f.id AND s.unsubscribed_at IS NULL);
+
+CREATE INDEX feeds_created_at ON feeds (created_at DESC, id DESC);
+
+CREATE INDEX feeds_subscriber_count ON feeds (subscriber_count DESC, id DESC);
+
+-- Changes to the counts of popular feeds, spread over several rows so concurrent subscribers don't wait on each other
+CREATE TABLE feed_subscriber_count_stripes
+(
+    id      BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    feed_id BIGINT                                  NOT NULL,
+    stripe  INTEGER                                 NOT NULL,
+    delta   BIGINT                                  NOT NULL,
+    CONSTRAINT pk_feed_subscriber_count_stripes PRIMARY KEY (id),
+    CONSTRAINT FK_FEED_SUBSCRIBER_COUNT_STRIPES_ON_FEED FOREIGN KEY (feed_id) REFERENCES feeds (id) ON DELETE CASCADE
+);
+
+CREATE UNIQUE INDEX uc_feed_subscriber_count_stripes_feed_id_stripe ON feed_subscriber_count_stripes (feed_id, stripe);
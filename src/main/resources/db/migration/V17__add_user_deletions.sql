@@ -0,0 +1,22 @@
+ALTER TABLE users
+    ADD COLUMN deletion_requested_at TIMESTAMP WITHOUT TIME ZONE;
+
+-- Outlives the user it tracks, so it has no foreign key to them
+CREATE TABLE user_deletions
+(
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    user_id      BIGINT                                  NOT NULL,
+    user_uuid    UUID                                    NOT NULL,
+    status       VARCHAR(16)                             NOT NULL,
+    stage        VARCHAR(32),
+    rows_deleted BIGINT                                  NOT NULL,
+    last_error   VARCHAR(1024),
+    requested_at TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    updated_at   TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    completed_at TIMESTAMP WITHOUT TIME ZONE,
+    CONSTRAINT pk_user_deletions PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX uc_user_deletions_user_uuid ON user_deletions (user_uuid);
+
+CREATE INDEX user_deletions_status_updated_at ON user_deletions (status, updated_at);
@@ -0,0 +1,23 @@
+CREATE TABLE jobs
+(
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    type         VARCHAR(64)                             NOT NULL,
+    payload      VARCHAR(4096),
+    priority     INTEGER                                 NOT NULL,
+    status       VARCHAR(16)                             NOT NULL,
+    attempts     INTEGER                                 NOT NULL,
+    max_attempts INTEGER                                 NOT NULL,
+    run_at       TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    locked_by    VARCHAR(64),
+    locked_until TIMESTAMP WITHOUT TIME ZONE,
+    last_error   VARCHAR(1024),
+    created_at   TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    updated_at   TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    finished_at  TIMESTAMP WITHOUT TIME ZONE,
+    CONSTRAINT pk_jobs PRIMARY KEY (id)
+);
+
+-- Only unfinished jobs are claimed, so finished ones kept for inspection don't grow the index workers scan
+CREATE INDEX jobs_claim ON jobs (type, status, priority DESC, run_at, id) WHERE status IN ('PENDING', 'RUNNING');
+
+CREATE INDEX jobs_finished_at ON jobs (status, finished_at) WHERE status IN ('SUCCEEDED', 'FAILED');
@@ -0,0 +1,23 @@
+-- The 'simple' parser keeps hyphenated words, decimals and URLs as single tokens, while search queries split on every
+-- character that isn't a letter or digit. Splitting and lowercasing the text the same way first makes them agree.
+-- The pg_c_utf8 collation classifies and lowercases characters by Unicode properties, whatever the database's locale.
+ALTER TABLE feeds
+    DROP COLUMN search_vector;
+
+ALTER TABLE feeds
+    ADD search_vector TSVECTOR GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', lower(regexp_replace(coalesce(title, '') COLLATE pg_c_utf8, '[^[:alnum:]]+', ' ', 'g'))), 'A') ||
+        setweight(to_tsvector('simple', lower(regexp_replace(coalesce(author, '') COLLATE pg_c_utf8, '[^[:alnum:]]+', ' ', 'g'))), 'B')
+        ) STORED;
+
+CREATE INDEX feeds_search_vector ON feeds USING GIN (search_vector);
+
+ALTER TABLE episodes
+    DROP COLUMN search_vector;
+
+ALTER TABLE episodes
+    ADD search_vector TSVECTOR GENERATED ALWAYS AS (
+        to_tsvector('simple', lower(regexp_replace(coalesce(title, '') COLLATE pg_c_utf8, '[^[:alnum:]]+', ' ', 'g')))
+        ) STORED;
+
+CREATE INDEX episodes_search_vector ON episodes USING GIN (search_vector);
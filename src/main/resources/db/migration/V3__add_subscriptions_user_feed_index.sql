@@ -0,0 +1 @@
+CREATE INDEX subscriptions_user_id_feed_id ON subscriptions (user_id, feed_id);
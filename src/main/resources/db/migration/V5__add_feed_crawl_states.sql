@@ -0,0 +1,14 @@
+CREATE TABLE feed_crawl_states
+(
+    feed_id              BIGINT                      NOT NULL,
+    etag                 VARCHAR(1024),
+    last_modified        VARCHAR(255),
+    last_status          INTEGER,
+    last_fetched_at      TIMESTAMP WITHOUT TIME ZONE,
+    last_changed_at      TIMESTAMP WITHOUT TIME ZONE,
+    consecutive_failures INTEGER                     NOT NULL DEFAULT 0,
+    CONSTRAINT pk_feed_crawl_states PRIMARY KEY (feed_id),
+    CONSTRAINT FK_FEED_CRAWL_STATES_ON_FEED FOREIGN KEY (feed_id) REFERENCES feeds (id) ON DELETE CASCADE
+);
+
+CREATE INDEX feed_crawl_states_last_fetched_at ON feed_crawl_states (last_fetched_at);
@@ -0,0 +1,28 @@
+CREATE TABLE episodes
+(
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    uuid             UUID                                    NOT NULL,
+    feed_id          BIGINT                                  NOT NULL,
+    guid             VARCHAR(2048)                           NOT NULL,
+    guid_hash        BYTEA                                   NOT NULL,
+    title            VARCHAR(1024),
+    link             VARCHAR(2048),
+    published_at     TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    enclosure_url    VARCHAR(2048),
+    enclosure_type   VARCHAR(255),
+    enclosure_length BIGINT,
+    duration_seconds INTEGER,
+    season           INTEGER,
+    episode_number   INTEGER,
+    created_at       TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    updated_at       TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    CONSTRAINT pk_episodes PRIMARY KEY (id),
+    CONSTRAINT uc_episodes_uuid UNIQUE (uuid),
+    CONSTRAINT FK_EPISODES_ON_FEED FOREIGN KEY (feed_id) REFERENCES feeds (id) ON DELETE CASCADE
+);
+
+CREATE UNIQUE INDEX uc_episodes_feed_id_guid_hash ON episodes (feed_id, guid_hash);
+
+CREATE INDEX episodes_feed_id_published_at ON episodes (feed_id, published_at DESC, id DESC);
+
+CREATE INDEX episodes_published_at ON episodes (published_at DESC, id DESC);
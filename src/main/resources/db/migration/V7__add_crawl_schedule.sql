@@ -0,0 +1,15 @@
+ALTER TABLE feed_crawl_states
+    ADD COLUMN change_interval_seconds BIGINT;
+
+ALTER TABLE feed_crawl_states
+    ADD COLUMN next_fetch_at TIMESTAMP WITHOUT TIME ZONE;
+
+UPDATE feed_crawl_states
+SET next_fetch_at = last_fetched_at + INTERVAL '30 minutes'
+WHERE last_fetched_at IS NOT NULL;
+
+DROP INDEX feed_crawl_states_last_fetched_at;
+
+CREATE INDEX feed_crawl_states_next_fetch_at ON feed_crawl_states (next_fetch_at, feed_id);
+
+CREATE INDEX subscriptions_feed_id_active ON subscriptions (feed_id) WHERE unsubscribed_at IS NULL;
@@ -0,0 +1,18 @@
+CREATE TABLE websub_subscriptions
+(
+    feed_id          BIGINT                      NOT NULL,
+    callback_token   UUID                        NOT NULL,
+    hub_url          VARCHAR(2048)               NOT NULL,
+    topic_url        VARCHAR(2048)               NOT NULL,
+    secret           VARCHAR(64)                 NOT NULL,
+    state            VARCHAR(16)                 NOT NULL,
+    requested_at     TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    verified_at      TIMESTAMP WITHOUT TIME ZONE,
+    lease_expires_at TIMESTAMP WITHOUT TIME ZONE,
+    last_pushed_at   TIMESTAMP WITHOUT TIME ZONE,
+    CONSTRAINT pk_websub_subscriptions PRIMARY KEY (feed_id),
+    CONSTRAINT uc_websub_subscriptions_callback_token UNIQUE (callback_token),
+    CONSTRAINT FK_WEBSUB_SUBSCRIPTIONS_ON_FEED FOREIGN KEY (feed_id) REFERENCES feeds (id) ON DELETE CASCADE
+);
+
+CREATE INDEX websub_subscriptions_lease_expires_at ON websub_subscriptions (lease_expires_at);
@@ -0,0 +1,15 @@
+CREATE TABLE playback_states
+(
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    user_id          BIGINT                                  NOT NULL,
+    episode_id       BIGINT                                  NOT NULL,
+    action           VARCHAR(16)                             NOT NULL,
+    position_seconds INTEGER                                 NOT NULL,
+    completed        BOOLEAN                                 NOT NULL,
+    updated_at       TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    CONSTRAINT pk_playback_states PRIMARY KEY (id),
+    CONSTRAINT FK_PLAYBACK_STATES_ON_USER FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE,
+    CONSTRAINT FK_PLAYBACK_STATES_ON_EPISODE FOREIGN KEY (episode_id) REFERENCES episodes (id) ON DELETE CASCADE
+);
+
+CREATE UNIQUE INDEX uc_playback_states_user_id_episode_id ON playback_states (user_id, episode_id);
@@ -0,0 +1,166 @@
+package org.openpodcastapi.opa.archive;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedArchiveTest {
+    @TempDir
+    private Path directory;
+
+    /// Tests that a document is stored once, and that a refetch of the same document is recognised as unchanged
+    @Test
+    void store_shouldDeduplicateDocuments() throws IOException {
+        try (var archive = open(64 * 1024)) {
+            final var first = archive.store(1, document("one"));
+            assertTrue(first.changed());
+            final var size = archive.size();
+
+            assertFalse(archive.store(1, document("one")).changed());
+            assertEquals(size, archive.size());
+
+            // The same document from another feed is stored as a reference
+            assertTrue(archive.store(2, document("one")).changed());
+            assertTrue(archive.size() - size < 64);
+
+            assertTrue(archive.store(1, document("two")).changed());
+            assertArrayEquals(document("two"), archive.readLatest(1).orElseThrow());
+            assertArrayEquals(document("one"), archive.readLatest(2).orElseThrow());
+            assertArrayEquals(document("one"), archive.read(first.hash()).orElseThrow());
+        }
+    }
+
+    /// Tests that the indexes are rebuilt on startup, and that a record cut short by a crash is discarded
+    @Test
+    void open_shouldReplaySegments() throws IOException {
+        try (var archive = open(64 * 1024)) {
+            archive.store(1, document("one"));
+            archive.store(2, document("one"));
+            archive.store(3, document("three"));
+        }
+
+        final var segment = directory.resolve("segment-00000001.dat");
+        final var complete = Files.size(segment);
+        try (var channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 0, 0, 0, 0, 0, 0, 0, 4, 0, 0}));
+        }
+
+        try (var archive = open(64 * 1024)) {
+            assertEquals(complete, Files.size(segment));
+            assertFalse(archive.store(1, document("one")).changed());
+            assertFalse(archive.store(2, document("one")).changed());
+            assertArrayEquals(document("three"), archive.readLatest(3).orElseThrow());
+            assertTrue(archive.readLatest(4).isEmpty());
+        }
+    }
+
+    /// Tests that compaction drops documents that are no longer the latest of any feed and keeps the rest readable
+    @Test
+    void compact_shouldKeepLatestDocuments() throws IOException {
+        byte[] stale;
+        try (var archive = open(4 * 1024)) {
+            stale = archive.store(1, document("old")).hash();
+            for (var version = 0; version < 20; version++) {
+                archive.store(1, document("version " + version));
+            }
+            archive.store(2, document("version 19"));
+            archive.store(3, document("other"));
+
+            final var before = archive.size();
+            assertTrue(archive.compact(false) > 0);
+            assertTrue(archive.size() < before);
+            assertEquals(0, archive.compact(false));
+
+            assertTrue(archive.read(stale).isEmpty());
+            assertArrayEquals(document("version 19"), archive.readLatest(1).orElseThrow());
+            assertArrayEquals(document("version 19"), archive.readLatest(2).orElseThrow());
+            assertArrayEquals(document("other"), archive.readLatest(3).orElseThrow());
+        }
+
+        try (var archive = open(4 * 1024)) {
+            assertTrue(archive.read(stale).isEmpty());
+            assertFalse(archive.store(1, document("version 19")).changed());
+            assertArrayEquals(document("other"), archive.readLatest(3).orElseThrow());
+        }
+    }
+
+    /// Tests that a forgotten feed stays forgotten after a restart, and that compaction drops its document
+    @Test
+    void forget_shouldDropFeedOnCompaction() throws IOException {
+        try (var archive = open(64 * 1024)) {
+            archive.store(1, document("one"));
+            archive.store(2, document("two"));
+            archive.store(3, document("two"));
+
+            assertTrue(archive.forget(1));
+            assertTrue(archive.forget(2));
+            assertFalse(archive.forget(4));
+            assertEquals(Set.of(3L), archive.feedIds());
+        }
+
+        try (var archive = open(64 * 1024)) {
+            assertEquals(Set.of(3L), archive.feedIds());
+            assertTrue(archive.readLatest(1).isEmpty());
+
+            final var before = archive.size();
+            assertTrue(archive.compact(false) > 0);
+            assertTrue(archive.size() < before / 2);
+            assertArrayEquals(document("two"), archive.readLatest(3).orElseThrow());
+
+            // A forgotten feed that is stored again starts over
+            assertTrue(archive.store(1, document("one")).changed());
+        }
+    }
+
+    /// Tests that records crossing mapping windows, records longer than a window, and freshly appended records are readable
+    @Test
+    void read_shouldSpanMappingWindows() throws IOException {
+        final var random = new Random(42);
+        final List<byte[]> documents = new ArrayList<>();
+        try (var archive = open(Integer.MAX_VALUE, 0)) {
+            for (var feedId = 0; feedId < 5; feedId++) {
+                final var document = new byte[feedId == 3 ? ArchiveSegment.WINDOW_BYTES + 1024 : 3 * 1024 * 1024];
+                random.nextBytes(document);
+                documents.add(document);
+                archive.store(feedId, document);
+
+                for (var read = 0; read <= feedId; read++) {
+                    assertArrayEquals(documents.get(read), archive.readLatest(read).orElseThrow());
+                }
+            }
+        }
+    }
+
+    private FeedArchive open(long segmentBytes) throws IOException {
+        return open(segmentBytes, 6);
+    }
+
+    private FeedArchive open(long segmentBytes, int compressionLevel) throws IOException {
+        final var archive = new FeedArchive(new SimpleMeterRegistry(), true, directory, segmentBytes, compressionLevel, 0.5);
+        archive.open();
+        return archive;
+    }
+
+    /// Builds a feed document large enough to span several records per segment
+    private static byte[] document(String title) {
+        final var builder = new StringBuilder("<rss><channel><title>").append(title).append("</title>");
+        for (var item = 0; item < 20; item++) {
+            builder.append("<item><guid>").append(title).append('-').append(item).append("</guid></item>");
+        }
+        return builder.append("</channel></rss>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
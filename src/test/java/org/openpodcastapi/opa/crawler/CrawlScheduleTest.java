@@ -0,0 +1,112 @@
+package org.openpodcastapi.opa.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrawlScheduleTest {
+    private final CrawlPolicy policy = new CrawlPolicy(Duration.ofMinutes(30), Duration.ofMinutes(5), Duration.ofHours(24), Duration.ofMinutes(5));
+
+    /// Tests that feeds come out of the queue in order of their due time, across growth of the arrays
+    @Test
+    void queue_shouldPopInDueOrder() {
+        final var queue = new CrawlQueue(4);
+        final var random = new Random(42);
+        final List<Long> expected = new ArrayList<>();
+        for (long feedId = 0; feedId < 1000; feedId++) {
+            final var dueAt = random.nextLong(1_000_000);
+            queue.push(dueAt, dueAt * 1000 + feedId);
+            expected.add(dueAt * 1000 + feedId);
+        }
+        expected.sort(null);
+
+        assertEquals(1000, queue.size());
+        final List<Long> popped = new ArrayList<>();
+        var previousDueAt = Long.MIN_VALUE;
+        while (queue.size() > 0) {
+            final var dueAt = queue.peekDueAt();
+            assertTrue(dueAt >= previousDueAt);
+            previousDueAt = dueAt;
+            popped.add(queue.pop());
+        }
+        assertEquals(expected, popped);
+        assertEquals(Long.MAX_VALUE, queue.peekDueAt());
+        assertThrows(IllegalStateException.class, queue::pop);
+    }
+
+    /// Tests that a host gets its burst, is then limited to the sustained rate and is paused after a `429`
+    @Test
+    void rateLimiter_shouldDeferAndPauseHosts() {
+        final var limiter = new HostRateLimiter(1.0, 2, Duration.ofMinutes(1), Duration.ofHours(1));
+
+        assertEquals(0, limiter.tryAcquire("example.com", 0));
+        assertEquals(0, limiter.tryAcquire("example.com", 0));
+        assertEquals(1000, limiter.tryAcquire("example.com", 0));
+        assertEquals(0, limiter.tryAcquire("other.example.com", 0));
+        assertEquals(0, limiter.tryAcquire("example.com", 1000));
+
+        limiter.recordResponse("example.com", 429, 1000);
+        assertEquals(60_000, limiter.tryAcquire("example.com", 1000));
+        limiter.recordResponse("example.com", 503, 61_000);
+        assertEquals(120_000, limiter.tryAcquire("example.com", 61_000));
+
+        limiter.evictIdle(10_000);
+        assertEquals(1, limiter.size());
+    }
+
+    /// Tests that feeds with more subscribers are fetched more often
+    @Test
+    void policy_shouldFetchPopularFeedsMoreOften() {
+        final var now = Instant.now();
+        final var state = new FeedCrawlStateEntity(1L);
+
+        final var single = Duration.between(now, policy.nextFetchAfterSuccess(state, 1, now));
+        final var popular = Duration.between(now, policy.nextFetchAfterSuccess(state, 1000, now));
+        final var abandoned = Duration.between(now, policy.nextFetchAfterSuccess(state, 0, now));
+
+        assertTrue(single.compareTo(Duration.ofMinutes(27)) >= 0 && single.compareTo(Duration.ofMinutes(33)) <= 0);
+        assertTrue(popular.compareTo(single.dividedBy(4)) < 0);
+        assertTrue(abandoned.compareTo(Duration.ofMinutes(27)) >= 0);
+    }
+
+    /// Tests that a feed that changes daily is fetched about twice a day, and that a quiet feed is fetched less often
+    @Test
+    void policy_shouldFollowUpdateFrequency() {
+        final var start = Instant.parse("2024-01-01T00:00:00Z");
+        final var state = new FeedCrawlStateEntity(1L);
+        for (int day = 0; day < 10; day++) {
+            final var changedAt = start.plus(Duration.ofDays(day));
+            policy.recordChange(state, changedAt);
+            state.setLastChangedAt(changedAt);
+        }
+        assertEquals(Duration.ofDays(1).toSeconds(), state.getChangeIntervalSeconds());
+
+        final var lastChange = start.plus(Duration.ofDays(9));
+        final var daily = Duration.between(lastChange, policy.nextFetchAfterSuccess(state, 1, lastChange));
+        assertTrue(daily.compareTo(Duration.ofHours(10)) > 0 && daily.compareTo(Duration.ofHours(14)) < 0);
+
+        final var quietSince = lastChange.plus(Duration.ofDays(8));
+        final var quiet = Duration.between(quietSince, policy.nextFetchAfterSuccess(state, 1, quietSince));
+        assertTrue(quiet.compareTo(Duration.ofHours(20)) > 0);
+    }
+
+    /// Tests that failed fetches back off exponentially up to the maximum interval
+    @Test
+    void policy_shouldBackOffAfterFailures() {
+        final var now = Instant.now();
+
+        final var first = Duration.between(now, policy.nextFetchAfterFailure(1, now));
+        final var third = Duration.between(now, policy.nextFetchAfterFailure(3, now));
+        final var many = Duration.between(now, policy.nextFetchAfterFailure(50, now));
+
+        assertTrue(first.compareTo(Duration.ofMinutes(6)) < 0);
+        assertTrue(third.compareTo(Duration.ofMinutes(18)) > 0 && third.compareTo(Duration.ofMinutes(22)) < 0);
+        assertTrue(many.compareTo(Duration.ofHours(21)) > 0 && many.compareTo(Duration.ofHours(27)) < 0);
+    }
+}
@@ -0,0 +1,92 @@
+package org.openpodcastapi.opa.crawler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openpodcastapi.opa.feed.FeedEntity;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.openpodcastapi.opa.subscription.SubscriptionEntity;
+import org.openpodcastapi.opa.subscription.SubscriptionRepository;
+import org.openpodcastapi.opa.user.UserEntity;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// The scheduled runs are delayed past the end of the test, so each test drives the scheduler directly
+@SpringBootTest(properties = {"crawler.enabled=true", "crawler.initial-delay=PT1H", "crawler.allow-private-addresses=true"})
+@ActiveProfiles("test")
+class FeedCrawlSchedulerTest {
+    @Autowired
+    private FeedCrawlScheduler scheduler;
+
+    @Autowired
+    private FeedCrawlStateRepository stateRepository;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private FixtureFeedServer server;
+
+    @BeforeEach
+    void setup() throws Exception {
+        userRepository.deleteAll();
+        stateRepository.deleteAll();
+        feedRepository.deleteAll();
+        server = new FixtureFeedServer();
+    }
+
+    @AfterEach
+    void teardown() {
+        server.close();
+    }
+
+    /// Tests that subscribed feeds are scheduled, fetched and rescheduled, and that feeds without subscribers drop out
+    @Test
+    void dispatch_shouldFetchSubscribedFeedsAndDropOthers() throws Exception {
+        final var user = userRepository.save(new UserEntity(null, UUID.randomUUID(), "crawler", "crawler@test.test"));
+        final var subscribed = feedRepository.save(new FeedEntity(UUID.randomUUID(), server.url("/feeds/example.xml")));
+        subscriptionRepository.save(new SubscriptionEntity(UUID.randomUUID(), user, subscribed));
+
+        final var abandoned = feedRepository.save(new FeedEntity(UUID.randomUUID(), server.url("/feeds/missing.xml")));
+        final var abandonedState = new FeedCrawlStateEntity(abandoned.getId());
+        abandonedState.setNextFetchAt(Instant.now());
+        stateRepository.save(abandonedState);
+
+        final var before = scheduler.scheduledCount();
+        scheduler.sync();
+        assertEquals(before + 2, scheduler.scheduledCount());
+        assertNotNull(stateRepository.findById(subscribed.getId()).orElseThrow().getNextFetchAt());
+
+        scheduler.dispatch();
+        for (int i = 0; i < 100 && scheduler.inFlightCount() > 0; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, scheduler.inFlightCount());
+
+        final var fetched = stateRepository.findById(subscribed.getId()).orElseThrow();
+        assertEquals(200, fetched.getLastStatus());
+        assertTrue(fetched.getNextFetchAt().isAfter(Instant.now()));
+
+        final var dropped = stateRepository.findById(abandoned.getId()).orElseThrow();
+        assertNull(dropped.getNextFetchAt());
+        assertNull(dropped.getLastStatus());
+        assertEquals(before + 1, scheduler.scheduledCount());
+
+        // A feed that is no longer due isn't fetched again
+        scheduler.dispatch();
+        assertEquals(0, scheduler.inFlightCount());
+        assertTrue(server.ifNoneMatchHeaders().isEmpty());
+    }
+}
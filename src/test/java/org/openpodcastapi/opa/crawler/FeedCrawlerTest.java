@@ -0,0 +1,178 @@
+package org.openpodcastapi.opa.crawler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openpodcastapi.opa.feed.FeedEntity;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"crawler.allow-private-addresses=true", "crawler.max-per-host=2", "archive.enabled=true"})
+@ActiveProfiles("test")
+@RecordApplicationEvents
+class FeedCrawlerTest {
+    @Autowired
+    private FeedCrawler crawler;
+
+    @Autowired
+    private FeedCrawlStateRepository stateRepository;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    private FixtureFeedServer server;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) throws IOException {
+        final var directory = Files.createTempDirectory("feed-archive");
+        registry.add("archive.directory", directory::toString);
+    }
+
+    @BeforeEach
+    void setup() throws Exception {
+        userRepository.deleteAll();
+        stateRepository.deleteAll();
+        feedRepository.deleteAll();
+        server = new FixtureFeedServer();
+    }
+
+    @AfterEach
+    void teardown() {
+        server.close();
+    }
+
+    /// Tests that validators are stored and sent on the next fetch, so an unchanged feed costs a `304`
+    @Test
+    void crawl_shouldSendConditionalRequestOnRefetch() {
+        final var feed = feedRepository.save(new FeedEntity(UUID.randomUUID(), server.url("/feeds/example.xml")));
+
+        assertEquals(Map.of(FeedCrawler.Outcome.CHANGED, 1L), crawlAll());
+
+        final var state = stateRepository.findById(feed.getId()).orElseThrow();
+        assertEquals(FixtureFeedServer.ETAG, state.getEtag());
+        assertEquals("Wed, 03 Jan 2024 08:00:00 GMT", state.getLastModified());
+        assertEquals(200, state.getLastStatus());
+
+        final var fetched = events.stream(FeedFetchedEvent.class).toList();
+        assertEquals(1, fetched.size());
+        assertEquals(feed.getUuid(), fetched.getFirst().feedUuid());
+        assertTrue(new String(fetched.getFirst().body()).contains("<title>Example Podcast</title>"));
+
+        assertEquals(Map.of(FeedCrawler.Outcome.NOT_MODIFIED, 1L), crawlAll());
+        assertEquals(List.of(FixtureFeedServer.ETAG), server.ifNoneMatchHeaders());
+        assertEquals(1, events.stream(FeedFetchedEvent.class).count());
+        assertEquals(304, stateRepository.findById(feed.getId()).orElseThrow().getLastStatus());
+    }
+
+    /// Tests that no more than the configured number of requests are sent to one host at a time
+    @Test
+    void crawl_shouldRespectPerHostLimit() {
+        for (int i = 0; i < 6; i++) {
+            feedRepository.save(new FeedEntity(UUID.randomUUID(), server.url("/slow/example.xml-" + i)));
+        }
+
+        assertEquals(Map.of(FeedCrawler.Outcome.CHANGED, 6L), crawlAll());
+        assertEquals(2, server.maxConcurrent());
+        // The host's limit is discarded once nothing is waiting for it
+        assertEquals(0, crawler.activeHosts());
+    }
+
+    /// Tests that a validator too long to store is dropped, and the fetch still succeeds
+    @Test
+    void crawl_shouldDropOverlongValidators() {
+        final var feed = feedRepository.save(new FeedEntity(UUID.randomUUID(), server.url("/long-etag/example.xml")));
+
+        assertEquals(Map.of(FeedCrawler.Outcome.CHANGED, 1L), crawlAll());
+        final var state = stateRepository.findById(feed.getId()).orElseThrow();
+        assertNull(state.getEtag());
+        assertEquals("Wed, 03 Jan 2024 08:00:00 GMT", state.getLastModified());
+    }
+
+    /// Tests that failed fetches are recorded and counted
+    @Test
+    void crawl_shouldRecordFailures() {
+        final var feed = feedRepository.save(new FeedEntity(UUID.randomUUID(), server.url("/feeds/missing.xml")));
+
+        assertEquals(Map.of(FeedCrawler.Outcome.FAILED, 1L), crawlAll());
+        final var state = stateRepository.findById(feed.getId()).orElseThrow();
+        assertEquals(404, state.getLastStatus());
+        assertEquals(1, state.getConsecutiveFailures());
+    }
+
+    /// Tests that the next fetch is scheduled after a successful fetch and backs off after failures
+    @Test
+    void crawl_shouldScheduleNextFetch() {
+        final var feed = feedRepository.save(new FeedEntity(UUID.randomUUID(), server.url("/feeds/example.xml")));
+        final var missing = feedRepository.save(new FeedEntity(UUID.randomUUID(), server.url("/feeds/missing.xml")));
+
+        final var before = Instant.now();
+        crawlAll();
+
+        final var fetched = stateRepository.findById(feed.getId()).orElseThrow();
+        assertTrue(fetched.getNextFetchAt().isAfter(before.plus(Duration.ofMinutes(4))));
+        assertTrue(fetched.getNextFetchAt().isBefore(before.plus(Duration.ofHours(1))));
+
+        final var firstRetry = Duration.between(before, stateRepository.findById(missing.getId()).orElseThrow().getNextFetchAt());
+        crawler.crawl(stateRepository.findTargets(List.of(missing.getId()), Instant.now()).getFirst());
+        final var secondRetry = Duration.between(before, stateRepository.findById(missing.getId()).orElseThrow().getNextFetchAt());
+        assertTrue(secondRetry.compareTo(firstRetry) > 0);
+    }
+
+    /// Tests that an identical document from a server without validators is treated as unchanged and isn't parsed again
+    @Test
+    void crawl_shouldSkipIdenticalDocuments() {
+        final var feed = feedRepository.save(new FeedEntity(UUID.randomUUID(), server.url("/static/example.xml")));
+
+        assertEquals(Map.of(FeedCrawler.Outcome.CHANGED, 1L), crawlAll());
+        assertEquals(Map.of(FeedCrawler.Outcome.NOT_MODIFIED, 1L), crawlAll());
+
+        assertEquals(1, events.stream(FeedFetchedEvent.class).count());
+        final var state = stateRepository.findById(feed.getId()).orElseThrow();
+        assertEquals(200, state.getLastStatus());
+        assertNull(state.getEtag());
+    }
+
+    /// Fetches every feed at once, each on its own virtual thread like the scheduler does
+    ///
+    /// @return the number of fetches with each outcome
+    private Map<FeedCrawler.Outcome, Long> crawlAll() {
+        final var targets = stateRepository.findTargets(feedRepository.findAll().stream().map(FeedEntity::getId).toList(), Instant.now());
+        final List<Future<FeedCrawler.CrawlResult>> results = new ArrayList<>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (final var target : targets) {
+                results.add(executor.submit(() -> crawler.crawl(target)));
+            }
+        }
+        return results.stream()
+                .map(result -> result.resultNow().outcome())
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+    }
+}
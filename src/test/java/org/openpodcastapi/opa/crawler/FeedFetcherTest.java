@@ -0,0 +1,87 @@
+package org.openpodcastapi.opa.crawler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URLEncoder;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedFetcherTest {
+    private FixtureFeedServer server;
+    private FeedFetcher fetcher;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = new FixtureFeedServer();
+        // The fixture server stands in for a public server, so only the addresses it listens on are permitted
+        final var fixtureAddresses = InetAddress.getAllByName("localhost");
+        fetcher = new FeedFetcher(Duration.ofSeconds(5), Duration.ofSeconds(2), 1024 * 1024, "test", address -> {
+            for (final var fixtureAddress : fixtureAddresses) {
+                if (fixtureAddress.equals(address)) {
+                    return true;
+                }
+            }
+            return FeedFetcher.isPublic(address);
+        });
+    }
+
+    @AfterEach
+    void teardown() {
+        fetcher.close();
+        server.close();
+    }
+
+    /// Tests that redirects between permitted addresses are followed
+    @Test
+    void fetch_shouldFollowRedirects() throws Exception {
+        final var result = fetcher.fetch(target(redirect(server.url("/feeds/example.xml"))));
+
+        assertEquals(200, result.status());
+        assertEquals(FixtureFeedServer.ETAG, result.etag());
+        assertTrue(result.body().length > 0);
+        assertEquals(1, server.feedRequests());
+    }
+
+    /// Tests that a redirect from a public URL to a loopback or link-local address is refused before it's requested
+    @Test
+    void redirectToPrivateAddress_shouldBeRefused() {
+        final var loopback = assertThrows(IllegalArgumentException.class,
+                () -> fetcher.fetch(target(redirect("http://127.0.0.2:" + server.port() + "/feeds/example.xml"))));
+        assertTrue(loopback.getMessage().contains("private address"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> fetcher.fetch(target(redirect("http://169.254.169.254/latest/meta-data/"))));
+        assertEquals(0, server.feedRequests());
+    }
+
+    /// Tests that a redirect loop is stopped after the maximum number of redirects
+    @Test
+    void redirectLoop_shouldFail() {
+        final var error = assertThrows(IOException.class, () -> fetcher.fetch(target(server.url("/loop"))));
+        assertTrue(error.getMessage().contains("redirected more than " + FeedFetcher.MAX_REDIRECTS + " times"));
+    }
+
+    /// Tests that a server sending its body slowly is given up on once the whole fetch has taken too long
+    @Test
+    void slowBody_shouldTimeOut() {
+        final var start = System.nanoTime();
+        assertThrows(HttpTimeoutException.class, () -> fetcher.fetch(target(server.url("/drip"))));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+    }
+
+    private String redirect(String location) {
+        return server.url("/redirect?to=" + URLEncoder.encode(location, StandardCharsets.UTF_8));
+    }
+
+    private static CrawlTarget target(String feedUrl) {
+        return new CrawlTarget(1L, UUID.randomUUID(), feedUrl, null, null, 0, false);
+    }
+}
@@ -0,0 +1,117 @@
+package org.openpodcastapi.opa.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedParserTest {
+    private final FeedParser parser = new FeedParser();
+
+    /// Tests that every episode and the channel metadata are read from an RSS feed
+    @Test
+    void parse_shouldReadRssFeed() throws Exception {
+        final var episodes = new ArrayList<ParsedEpisode>();
+        final var result = parse("example.xml", Set.of(), episodes);
+
+        assertEquals(3, result.emitted());
+        assertFalse(result.reachedKnownEpisode());
+        assertEquals("Example Podcast", result.channel().title());
+        assertEquals("Example Author", result.channel().author());
+        assertEquals("https://example.com", result.channel().link());
+        assertEquals("917393e3-1b1e-5cef-ace4-edaa54e1f810", result.channel().podcastGuid());
+
+        assertEquals(List.of("example-episode-3", "example-episode-2", "example-episode-1"),
+                episodes.stream().map(ParsedEpisode::guid).toList());
+
+        final var latest = episodes.getFirst();
+        assertEquals("Episode 3", latest.title());
+        assertEquals(Instant.parse("2024-01-03T08:00:00Z"), latest.publishedAt());
+        assertEquals("https://example.com/episodes/3.mp3", latest.enclosureUrl());
+        assertEquals("audio/mpeg", latest.enclosureType());
+        assertEquals(3_000_000L, latest.enclosureLength());
+        assertEquals(1800, latest.durationSeconds());
+    }
+
+    /// Tests that parsing stops at the first episode that's already known
+    @Test
+    void parse_shouldStopAtFirstKnownGuid() throws Exception {
+        final var episodes = new ArrayList<ParsedEpisode>();
+        final var result = parse("example.xml", Set.of("example-episode-2"), episodes);
+
+        assertEquals(1, result.emitted());
+        assertTrue(result.reachedKnownEpisode());
+        assertEquals("example-episode-3", episodes.getFirst().guid());
+    }
+
+    /// Tests that Atom entries, links and the WebSub hub are read
+    @Test
+    void parse_shouldReadAtomFeed() throws Exception {
+        final var episodes = new ArrayList<ParsedEpisode>();
+        final var result = parse("example-atom.xml", Set.of(), episodes);
+
+        assertEquals(2, result.emitted());
+        assertEquals("Example Atom Podcast", result.channel().title());
+        assertEquals("Atom Author", result.channel().author());
+        assertEquals("An Atom podcast used in tests", result.channel().description());
+        assertEquals("https://example.org", result.channel().link());
+        assertEquals("https://example.org/atom.xml", result.channel().selfUrl());
+        assertEquals("https://hub.example.org/", result.channel().hubUrl());
+        assertEquals("https://example.org/cover.jpg", result.channel().imageUrl());
+
+        final var latest = episodes.getFirst();
+        assertEquals("urn:uuid:atom-episode-2", latest.guid());
+        assertEquals(Instant.parse("2024-01-02T08:00:00Z"), latest.publishedAt());
+        assertEquals("https://example.org/episodes/2", latest.link());
+        assertEquals("https://example.org/episodes/2.mp3", latest.enclosureUrl());
+        assertEquals(3723, latest.durationSeconds());
+        assertEquals(2, latest.episode());
+
+        final var oldest = episodes.getLast();
+        assertEquals(Instant.parse("2024-01-01T07:00:00Z"), oldest.publishedAt());
+        assertEquals(2730, oldest.durationSeconds());
+    }
+
+    /// Tests that items without a GUID are identified by their enclosure URL
+    @Test
+    void parse_shouldFallBackToEnclosureUrl() throws Exception {
+        final var feed = """
+                <rss version="2.0"><channel><title>No GUIDs</title>
+                <item><title>Untitled</title><enclosure url="https://example.com/a.mp3" type="audio/mpeg"/></item>
+                </channel></rss>
+                """;
+        final var episodes = new ArrayList<ParsedEpisode>();
+        parser.parse(new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8)), _ -> false, episodes::add);
+
+        assertEquals("https://example.com/a.mp3", episodes.getFirst().guid());
+    }
+
+    /// Tests that documents declaring external entities are rejected
+    @Test
+    void parse_shouldRejectExternalEntities() {
+        final var feed = """
+                <?xml version="1.0"?>
+                <!DOCTYPE rss [<!ENTITY xxe SYSTEM "file:///etc/passwd">]>
+                <rss version="2.0"><channel><title>&xxe;</title></channel></rss>
+                """;
+
+        assertThrows(XMLStreamException.class, () ->
+                parser.parse(new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8)), _ -> false, _ -> {
+                }));
+    }
+
+    private FeedParser.ParseResult parse(String fixture, Set<String> knownGuids, List<ParsedEpisode> episodes) throws IOException, XMLStreamException {
+        try (var document = getClass().getResourceAsStream("/feeds/" + fixture)) {
+            assertNotNull(document);
+            return parser.parse(document, knownGuids::contains, episodes::add);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.openpodcastapi.opa.crawler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/// An embedded HTTP server serving fixture feeds from `src/test/resources/feeds`.
+///
+/// `/feeds/{name}` serves a fixture with a fixed `ETag` and honours `If-None-Match`.
+/// `/slow/{name}-{n}` serves the same fixture after a delay and records the highest number of concurrent requests.
+/// `/static/{name}` serves a fixture without validators, like a server that doesn't support conditional requests.
+/// `/long-etag/{name}` serves a fixture with an `ETag` longer than can be stored.
+/// `/redirect?to={url}` redirects to the URL-encoded `to` parameter, and `/loop` redirects to itself.
+/// `/drip` sends its body a byte at a time, a tenth of a second apart.
+class FixtureFeedServer implements AutoCloseable {
+    static final String ETAG = "\"fixture-v1\"";
+    static final String LONG_ETAG = "\"" + "x".repeat(FeedCrawlStateEntity.MAX_ETAG_LENGTH) + "\"";
+
+    private final HttpServer server;
+    private final List<String> ifNoneMatchHeaders = new CopyOnWriteArrayList<>();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+    private final AtomicInteger feedRequests = new AtomicInteger();
+
+    FixtureFeedServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/feeds/", exchange -> serve(exchange, "/feeds/", ETAG));
+        server.createContext("/static/", exchange -> serve(exchange, "/static/", null));
+        server.createContext("/long-etag/", exchange -> serve(exchange, "/long-etag/", LONG_ETAG));
+        server.createContext("/redirect", exchange -> {
+            final var query = exchange.getRequestURI().getRawQuery();
+            exchange.getResponseHeaders().add("Location", URLDecoder.decode(query.substring("to=".length()), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        server.createContext("/loop", exchange -> {
+            exchange.getResponseHeaders().add("Location", "/loop");
+            exchange.sendResponseHeaders(301, -1);
+            exchange.close();
+        });
+        server.createContext("/drip", exchange -> {
+            exchange.sendResponseHeaders(200, 1000);
+            try (var out = exchange.getResponseBody()) {
+                for (var i = 0; i < 1000; i++) {
+                    out.write('x');
+                    out.flush();
+                    Thread.sleep(100);
+                }
+            } catch (IOException | InterruptedException _) {
+                // The client gave up
+            }
+        });
+        server.createContext("/slow/", exchange -> {
+            final var current = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(200);
+                serve(exchange, "/slow/", ETAG);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        });
+        server.start();
+    }
+
+    /// @param path the path of a fixture, such as `/feeds/example.xml`
+    /// @return the URL of the fixture
+    String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    /// @return the port the server listens on
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    /// @return the `If-None-Match` headers received, in order
+    List<String> ifNoneMatchHeaders() {
+        return ifNoneMatchHeaders;
+    }
+
+    /// @return the number of requests for fixtures
+    int feedRequests() {
+        return feedRequests.get();
+    }
+
+    /// @return the highest number of concurrent requests to `/slow/`
+    int maxConcurrent() {
+        return maxConcurrent.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void serve(HttpExchange exchange, String prefix, String etag) throws IOException {
+        feedRequests.incrementAndGet();
+        final var ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            ifNoneMatchHeaders.add(ifNoneMatch);
+        }
+
+        if (etag != null && etag.equals(ifNoneMatch)) {
+            exchange.getResponseHeaders().add("ETag", etag);
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        final var name = exchange.getRequestURI().getPath().substring(prefix.length()).replaceAll("-\\d+$", "");
+        try (var fixture = getClass().getResourceAsStream("/feeds/" + name)) {
+            if (fixture == null) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+
+            final var body = fixture.readAllBytes();
+            exchange.getResponseHeaders().add("Content-Type", "application/rss+xml");
+            if (etag != null) {
+                exchange.getResponseHeaders().add("ETag", etag);
+                exchange.getResponseHeaders().add("Last-Modified", "Wed, 03 Jan 2024 08:00:00 GMT");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (var out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package org.openpodcastapi.opa.episode;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openpodcastapi.opa.feed.FeedDTO;
+import org.openpodcastapi.opa.feed.FeedEntity;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.openpodcastapi.opa.security.TokenService;
+import org.openpodcastapi.opa.subscription.SubscriptionService;
+import org.openpodcastapi.opa.user.UserDTO;
+import org.openpodcastapi.opa.user.UserEntity;
+import org.openpodcastapi.opa.user.UserMapper;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.restdocs.test.autoconfigure.AutoConfigureRestDocs;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.restdocs.payload.JsonFieldType;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.restdocs.headers.HeaderDocumentation.headerWithName;
+import static org.springframework.restdocs.headers.HeaderDocumentation.requestHeaders;
+import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.get;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.*;
+import static org.springframework.restdocs.payload.PayloadDocumentation.*;
+import static org.springframework.restdocs.request.RequestDocumentation.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@AutoConfigureRestDocs(outputDir = "target/generated-snippets")
+class EpisodeRestControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EpisodeService episodeService;
+
+    @Autowired
+    private EpisodeRepository episodeRepository;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private Argon2PasswordEncoder passwordEncoder;
+
+    private UserEntity mockUser;
+
+    private FeedEntity feed;
+
+    @BeforeEach
+    void setup() throws Exception {
+        userRepository.deleteAll();
+        feedRepository.deleteAll();
+        final var mockUserDetails = new UserDTO.CreateUserDTO("user", "testPassword", "test@test.test");
+        final var convertedUser = userMapper.toEntity(mockUserDetails);
+        convertedUser.setUuid(UUID.randomUUID());
+        convertedUser.setPassword(passwordEncoder.encode("testPassword"));
+        mockUser = userRepository.save(convertedUser);
+
+        final var feedUuid = UUID.randomUUID();
+        subscriptionService.addSubscriptions(List.of(new FeedDTO.NewFeedRequestDTO(feedUuid.toString(), "https://example.com/feed.xml")), mockUser.getId());
+        feed = feedRepository.findByUuid(feedUuid).orElseThrow();
+
+        try (var document = getClass().getResourceAsStream("/feeds/example.xml")) {
+            assertNotNull(document);
+            episodeService.ingest(feed.getId(), document);
+        }
+    }
+
+    @Test
+    void getEpisodesForAnonymous_shouldReturn401() throws Exception {
+        mockMvc.perform(get("/api/v1/episodes"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void getEpisodesForFeed_shouldReturnNewestFirst() throws Exception {
+        final var accessToken = tokenService.generateAccessToken(mockUser);
+
+        final var firstPage = mockMvc.perform(get("/api/v1/feeds/{uuid}/episodes", feed.getUuid())
+                        .header("Authorization", "Bearer " + accessToken)
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andExpect(jsonPath("$.data[0].guid").value("example-episode-3"))
+                .andExpect(jsonPath("$.data[1].guid").value("example-episode-2"))
+                .andDo(document("episodes-feed-list",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        pathParameters(
+                                parameterWithName("uuid").description("The UUID of the feed")
+                        ),
+                        queryParameters(
+                                parameterWithName("cursor").description("The cursor of the page to fetch").optional(),
+                                parameterWithName("limit").description("The number of results to include on each page").optional()
+                        ),
+                        responseFields(
+                                fieldWithPath("data[].uuid").description("The UUID of the episode").type(JsonFieldType.STRING),
+                                fieldWithPath("data[].feedUuid").description("The UUID of the feed the episode belongs to").type(JsonFieldType.STRING),
+                                fieldWithPath("data[].guid").description("The GUID of the episode, as published in the feed").type(JsonFieldType.STRING),
+                                fieldWithPath("data[].title").description("The episode title").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("data[].link").description("The episode's web page").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("data[].publishedAt").description("The publication date of the episode").type(JsonFieldType.STRING),
+                                fieldWithPath("data[].enclosureUrl").description("The URL of the media file").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("data[].enclosureType").description("The MIME type of the media file").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("data[].enclosureLength").description("The size of the media file in bytes").type(JsonFieldType.NUMBER).optional(),
+                                fieldWithPath("data[].duration").description("The duration of the episode in seconds").type(JsonFieldType.NUMBER).optional(),
+                                fieldWithPath("data[].season").description("The season number").type(JsonFieldType.NUMBER).optional(),
+                                fieldWithPath("data[].episode").description("The episode number").type(JsonFieldType.NUMBER).optional(),
+                                fieldWithPath("nextCursor").description("The cursor for the next page of results").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("prevCursor").description("The cursor for the previous page of results").type(JsonFieldType.STRING).optional()
+                        )
+                ))
+                .andReturn();
+
+        final var nextCursor = jsonMapper.readTree(firstPage.getResponse().getContentAsString()).get("nextCursor").asString();
+
+        mockMvc.perform(get("/api/v1/feeds/{uuid}/episodes", feed.getUuid())
+                        .header("Authorization", "Bearer " + accessToken)
+                        .param("limit", "2")
+                        .param("cursor", nextCursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].guid").value("example-episode-1"));
+    }
+
+    @Test
+    void getEpisodesForNonexistentFeed_shouldReturnNotFound() throws Exception {
+        final var accessToken = tokenService.generateAccessToken(mockUser);
+
+        mockMvc.perform(get("/api/v1/feeds/{uuid}/episodes", UUID.randomUUID())
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getEpisodesForUser_shouldOnlyIncludeSubscribedFeeds() throws Exception {
+        final var accessToken = tokenService.generateAccessToken(mockUser);
+
+        mockMvc.perform(get("/api/v1/episodes")
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(3))
+                .andExpect(jsonPath("$.data[0].feedUuid").value(feed.getUuid().toString()))
+                .andDo(document("episodes-list",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        queryParameters(
+                                parameterWithName("cursor").description("The cursor of the page to fetch").optional(),
+                                parameterWithName("limit").description("The number of results to include on each page").optional()
+                        ),
+                        relaxedResponseFields(
+                                fieldWithPath("data[].uuid").description("The UUID of the episode").type(JsonFieldType.STRING),
+                                fieldWithPath("data[].feedUuid").description("The UUID of the feed the episode belongs to").type(JsonFieldType.STRING)
+                        )
+                ));
+
+        subscriptionService.unsubscribeUserFromFeed(feed.getUuid(), mockUser.getId());
+
+        mockMvc.perform(get("/api/v1/episodes")
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(0));
+    }
+
+    /// Tests that a refresh of an unchanged feed stops at the first episode and stores nothing
+    @Test
+    void ingestingKnownEpisodes_shouldNotDuplicateThem() throws Exception {
+        try (var document = getClass().getResourceAsStream("/feeds/example.xml")) {
+            assertEquals(0, episodeService.ingest(feed.getId(), document));
+        }
+
+        assertEquals(3, episodeRepository.countByFeedId(feed.getId()));
+    }
+}
@@ -0,0 +1,41 @@
+package org.openpodcastapi.opa.feed;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedIdentityCacheTest {
+    /// Tests that an alias is evicted along with its feed
+    @Test
+    void evictFeed_shouldRemoveAliases() {
+        final var cache = new FeedIdentityCache(new SimpleMeterRegistry(), 10, Duration.ofMinutes(10));
+        final var identity = new FeedIdentityCache.FeedIdentity(1L, UUID.randomUUID(), "example.com/feed");
+        final var alias = UUID.randomUUID();
+        cache.put(identity);
+        cache.put(alias, identity);
+        assertEquals(identity, cache.get(alias).orElseThrow());
+
+        cache.evictFeed(1L);
+
+        assertTrue(cache.get(identity.uuid()).isEmpty());
+        assertTrue(cache.get(alias).isEmpty());
+    }
+
+    /// Tests that an expired identity is read again, so feeds removed outside this process aren't served for long
+    @Test
+    void expiredIdentity_shouldBeAMiss() throws InterruptedException {
+        final var cache = new FeedIdentityCache(new SimpleMeterRegistry(), 10, Duration.ofMillis(50));
+        final var identity = new FeedIdentityCache.FeedIdentity(1L, UUID.randomUUID(), "example.com/feed");
+        cache.put(identity);
+        assertTrue(cache.get(identity.uuid()).isPresent());
+
+        Thread.sleep(100);
+
+        assertTrue(cache.get(identity.uuid()).isEmpty());
+        assertEquals(0, cache.size());
+    }
+}
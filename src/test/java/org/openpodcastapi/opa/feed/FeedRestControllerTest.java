@@ -0,0 +1,220 @@
+package org.openpodcastapi.opa.feed;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openpodcastapi.opa.security.TokenService;
+import org.openpodcastapi.opa.subscription.SubscriptionRepository;
+import org.openpodcastapi.opa.subscription.SubscriptionService;
+import org.openpodcastapi.opa.user.UserEntity;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.restdocs.test.autoconfigure.AutoConfigureRestDocs;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.restdocs.payload.JsonFieldType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.restdocs.headers.HeaderDocumentation.headerWithName;
+import static org.springframework.restdocs.headers.HeaderDocumentation.requestHeaders;
+import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.get;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.*;
+import static org.springframework.restdocs.payload.PayloadDocumentation.fieldWithPath;
+import static org.springframework.restdocs.payload.PayloadDocumentation.responseFields;
+import static org.springframework.restdocs.request.RequestDocumentation.parameterWithName;
+import static org.springframework.restdocs.request.RequestDocumentation.queryParameters;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "feeds.subscriber-counts.hot-threshold=3",
+        "feeds.subscriber-counts.stripes=2",
+        "feeds.subscriber-counts.fold-interval=PT1H"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@AutoConfigureRestDocs(outputDir = "target/generated-snippets")
+class FeedRestControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private SubscriberCountReconciler reconciler;
+
+    private final UUID astronomy = UUID.randomUUID();
+    private final UUID physics = UUID.randomUUID();
+    private final UUID cooking = UUID.randomUUID();
+
+    private UserEntity stargazer;
+
+    @BeforeEach
+    void setup() {
+        userRepository.deleteAll();
+        feedRepository.deleteAll();
+
+        stargazer = subscribe("stargazer", astronomy);
+        subscribe("student", astronomy, physics);
+        subscribe("cook", cooking, physics);
+        subscribe("chef", cooking);
+        subscribe("baker", cooking);
+    }
+
+    /// Tests that the catalog lists the newest feeds first, a page at a time
+    @Test
+    void getFeeds_shouldListNewestFirst() throws Exception {
+        final var firstPage = mockMvc.perform(get("/api/v1/feeds")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(stargazer))
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andExpect(jsonPath("$.data[0].uuid").value(cooking.toString()))
+                .andExpect(jsonPath("$.data[0].subscribers").value(3))
+                .andExpect(jsonPath("$.data[1].uuid").value(physics.toString()))
+                .andExpect(jsonPath("$.data[1].subscribers").value(2))
+                .andDo(document("feeds-list",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        queryParameters(
+                                parameterWithName("sort").description("`newest` to list the newest feeds first, or `subscribers` to list the most subscribed feeds first. Defaults to `newest`.").optional(),
+                                parameterWithName("cursor").description("The cursor of the page to fetch").optional(),
+                                parameterWithName("limit").description("The number of results to include on each page. Defaults to 20.").optional()
+                        ),
+                        responseFields(
+                                fieldWithPath("data[].uuid").description("The UUID of the feed").type(JsonFieldType.STRING),
+                                fieldWithPath("data[].feedUrl").description("The URL of the feed").type(JsonFieldType.STRING),
+                                fieldWithPath("data[].title").description("The title of the feed, once it has been fetched").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("data[].author").description("The author of the feed, once it has been fetched").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("data[].subscribers").description("The number of users subscribed to the feed").type(JsonFieldType.NUMBER),
+                                fieldWithPath("data[].createdAt").description("The date the feed was first subscribed to").type(JsonFieldType.STRING),
+                                fieldWithPath("nextCursor").description("The cursor of the next page, if there is one").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("prevCursor").description("The cursor of the first result on this page").type(JsonFieldType.STRING).optional()
+                        )
+                ))
+                .andReturn();
+
+        final var nextCursor = jsonMapper.readTree(firstPage.getResponse().getContentAsString()).get("nextCursor").asString();
+        mockMvc.perform(get("/api/v1/feeds")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(stargazer))
+                        .param("cursor", nextCursor)
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].uuid").value(astronomy.toString()))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    /// Tests that the catalog lists the most subscribed feeds first, with counts that follow unsubscribes
+    @Test
+    void getFeeds_shouldOrderBySubscribers() throws Exception {
+        subscriptionService.unsubscribeUserFromFeed(astronomy, stargazer.getId());
+        subscribe("observer", physics);
+
+        final var firstPage = mockMvc.perform(get("/api/v1/feeds")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(stargazer))
+                        .param("sort", "subscribers")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2))
+                // Both have three subscribers, so the feed created last comes first
+                .andExpect(jsonPath("$.data[0].uuid").value(cooking.toString()))
+                .andExpect(jsonPath("$.data[1].uuid").value(physics.toString()))
+                .andExpect(jsonPath("$.data[1].subscribers").value(3))
+                .andReturn();
+
+        final var nextCursor = jsonMapper.readTree(firstPage.getResponse().getContentAsString()).get("nextCursor").asString();
+        mockMvc.perform(get("/api/v1/feeds")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(stargazer))
+                        .param("sort", "subscribers")
+                        .param("cursor", nextCursor)
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].uuid").value(astronomy.toString()))
+                .andExpect(jsonPath("$.data[0].subscribers").value(1));
+    }
+
+    /// Tests that reconciling corrects counts changed behind the service's back, and stripes popular feeds
+    @Test
+    void reconcileAll_shouldCorrectDriftAndStripePopularFeeds() throws Exception {
+        // Deleting a subscription directly publishes no event, so the count drifts
+        subscriptionRepository.delete(subscriptionRepository.findByUserIdAndFeedUuid(stargazer.getId(), astronomy).orElseThrow());
+        assertEquals(1, reconciler.reconcileAll());
+        assertEquals(0, reconciler.reconcileAll());
+        assertSubscribers(astronomy, 1);
+
+        // The cooking feed reached the threshold and was striped by the first reconciliation,
+        // so new subscriptions are held in its stripes until they're folded
+        subscribe("waiter", cooking);
+        final var cookingId = feedRepository.findByUuid(cooking).orElseThrow().getId();
+        assertEquals(3, feedRepository.findById(cookingId).orElseThrow().getSubscriberCount());
+        assertSubscribers(cooking, 4);
+
+        assertEquals(1, reconciler.foldAll());
+        assertEquals(4, feedRepository.findById(cookingId).orElseThrow().getSubscriberCount());
+        assertSubscribers(cooking, 4);
+        assertEquals(0, reconciler.reconcileAll());
+    }
+
+    /// Tests that unknown orders and out-of-range limits are rejected
+    @Test
+    void getFeeds_shouldRejectInvalidRequests() throws Exception {
+        mockMvc.perform(get("/api/v1/feeds")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(stargazer))
+                        .param("sort", "title"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/v1/feeds")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(stargazer))
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/v1/feeds")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(stargazer))
+                        .param("sort", "subscribers")
+                        .param("cursor", "bm90IGEgY3Vyc29y"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void assertSubscribers(UUID feed, int expected) throws Exception {
+        mockMvc.perform(get("/api/v1/feeds")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(stargazer))
+                        .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[?(@.uuid == '" + feed + "')].subscribers").value(expected));
+    }
+
+    private UserEntity subscribe(String username, UUID... feeds) {
+        final var user = userRepository.save(new UserEntity(null, UUID.randomUUID(), username, username + "@test.test"));
+        subscriptionService.addSubscriptions(Arrays.stream(feeds)
+                .map(feed -> new FeedDTO.NewFeedRequestDTO(feed.toString(), "https://example.com/" + feed + ".xml"))
+                .toList(), user.getId());
+        return user;
+    }
+}
@@ -0,0 +1,93 @@
+package org.openpodcastapi.opa.feed;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class FeedServiceTest {
+    @Autowired
+    private FeedService feedService;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private FeedIdentityCache identityCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setup() {
+        userRepository.deleteAll();
+        feedRepository.deleteAll();
+    }
+
+    /// Tests that concurrent requests for the same new feed create a single row
+    @Test
+    void concurrentFetchOrCreateFeed_shouldInsertOnce() throws Exception {
+        final var dto = new FeedDTO.NewFeedRequestDTO(UUID.randomUUID().toString(), "test.com/concurrent");
+        final var threads = 16;
+        final var start = new CountDownLatch(1);
+        final var results = new ArrayList<Future<FeedEntity>>();
+
+        try (var executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return feedService.fetchOrCreateFeed(dto);
+                }));
+            }
+            start.countDown();
+
+            final var feedId = results.getFirst().get().getId();
+            for (var result : results) {
+                assertEquals(feedId, result.get().getId());
+            }
+        }
+
+        assertEquals(1, feedRepository.count());
+    }
+
+    /// Tests that deleting a feed removes it from the identity cache
+    @Test
+    void deletingFeed_shouldEvictCachedIdentity() {
+        final var uuid = UUID.randomUUID();
+        final var feed = feedService.fetchOrCreateFeed(new FeedDTO.NewFeedRequestDTO(uuid.toString(), "test.com/evicted"));
+        assertTrue(identityCache.get(uuid).isPresent());
+
+        feedRepository.deleteById(feed.getId());
+
+        assertTrue(identityCache.get(uuid).isEmpty());
+    }
+
+    /// Tests that a different UUID for an equivalent URL resolves to the existing feed and is recorded as an alias
+    @Test
+    void fetchOrCreateFeedWithEquivalentUrl_shouldReuseFeed() {
+        final var original = feedService.fetchOrCreateFeed(new FeedDTO.NewFeedRequestDTO(UUID.randomUUID().toString(), "https://Example.com/podcast/feed.xml"));
+        final var aliasUuid = UUID.randomUUID();
+
+        final var variant = feedService.fetchOrCreateFeed(new FeedDTO.NewFeedRequestDTO(aliasUuid.toString(), "http://example.com/podcast/feed.xml/?utm_source=app#top"));
+        final var reordered = feedService.fetchOrCreateFeed(new FeedDTO.NewFeedRequestDTO(UUID.randomUUID().toString(), "example.com/podcast/feed.xml?format=rss&id=5"));
+        final var reorderedVariant = feedService.fetchOrCreateFeed(new FeedDTO.NewFeedRequestDTO(UUID.randomUUID().toString(), "example.com/podcast/feed.xml?id=5&format=rss"));
+
+        assertEquals(original.getId(), variant.getId());
+        assertEquals(original.getUuid(), variant.getUuid());
+        assertEquals(reordered.getId(), reorderedVariant.getId());
+        assertEquals(2, feedRepository.count());
+        assertEquals(original.getUuid(), feedService.resolveCanonicalUuid(aliasUuid));
+    }
+}
@@ -0,0 +1,50 @@
+package org.openpodcastapi.opa.feed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedUrlUtilityTest {
+    /// Tests that URL variants that fetch the same document share a canonical form
+    @Test
+    void canonicalize_shouldRemoveInsignificantDifferences() {
+        final var expected = "example.com/feed";
+
+        assertEquals(expected, FeedUrlUtility.canonicalize("https://example.com/feed"));
+        assertEquals(expected, FeedUrlUtility.canonicalize("http://example.com/feed/"));
+        assertEquals(expected, FeedUrlUtility.canonicalize("  HTTPS://Example.COM:443/feed#latest "));
+        assertEquals(expected, FeedUrlUtility.canonicalize("feed://example.com:80/feed"));
+        assertEquals(expected, FeedUrlUtility.canonicalize("example.com/feed?utm_source=app&fbclid=abc"));
+    }
+
+    /// Tests that parts of a URL that select a different document are kept
+    @Test
+    void canonicalize_shouldKeepSignificantParts() {
+        assertEquals("example.com/Feed", FeedUrlUtility.canonicalize("https://example.com/Feed"));
+        assertEquals("example.com:8080/feed", FeedUrlUtility.canonicalize("https://example.com:8080/feed"));
+        assertEquals("example.com/feed?format=rss&id=5", FeedUrlUtility.canonicalize("https://example.com/feed?id=5&utm_medium=x&format=rss"));
+    }
+
+    /// Tests that query parameters are sorted by name, keeping the order of repeated parameters
+    @Test
+    void canonicalize_shouldSortQueryParameters() {
+        final var expected = "example.com/feed?b=2&c&tag=z&tag=a";
+
+        assertEquals(expected, FeedUrlUtility.canonicalize("example.com/feed?tag=z&c&b=2&tag=a"));
+        assertEquals(expected, FeedUrlUtility.canonicalize("https://example.com/feed/?tag=z&b=2&utm_source=x&tag=a&c"));
+        assertNotEquals(expected, FeedUrlUtility.canonicalize("example.com/feed?tag=a&c&b=2&tag=z"));
+        assertArrayEquals(FeedUrlUtility.hash("example.com/feed?id=5&format=rss"), FeedUrlUtility.hash("example.com/feed?format=rss&id=5"));
+    }
+
+    /// Tests that hashes are fixed-width and equal for equivalent URLs
+    @Test
+    void hash_shouldMatchForEquivalentUrls() {
+        final var hash = FeedUrlUtility.hash("https://example.com/feed");
+
+        assertEquals(FeedUrlUtility.HASH_LENGTH, hash.length);
+        assertArrayEquals(hash, FeedUrlUtility.hash("http://example.com/feed/"));
+        assertFalse(Arrays.equals(hash, FeedUrlUtility.hash("https://example.com/other")));
+    }
+}
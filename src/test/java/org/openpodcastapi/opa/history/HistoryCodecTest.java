@@ -0,0 +1,72 @@
+package org.openpodcastapi.opa.history;
+
+import org.junit.jupiter.api.Test;
+import org.openpodcastapi.opa.playback.PlaybackAction;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryCodecTest {
+    private static final Instant MONTH_START = Instant.parse("2026-03-01T00:00:00Z");
+
+    /// Tests that chunks appended to a block decode to the same events, in order
+    @Test
+    void decode_shouldRoundTripAppendedChunks() {
+        final var first = List.of(
+                new HistoryCodec.Entry(MONTH_START.plusSeconds(30), 0, PlaybackAction.PLAY, 0),
+                new HistoryCodec.Entry(MONTH_START.plusSeconds(40), 0, PlaybackAction.POSITION, 10),
+                new HistoryCodec.Entry(MONTH_START.plusSeconds(40), 3, PlaybackAction.COMPLETE, 5400));
+        // Events can arrive late, so deltas can be negative
+        final var second = List.of(
+                new HistoryCodec.Entry(MONTH_START.plusSeconds(5), 1, PlaybackAction.PAUSE, 1_000_000),
+                new HistoryCodec.Entry(MONTH_START.plusSeconds(2_000_000), 70_000, PlaybackAction.PLAY, 0));
+
+        final var data = new ByteArrayOutputStream();
+        data.writeBytes(HistoryCodec.encode(MONTH_START, first));
+        data.writeBytes(HistoryCodec.encode(MONTH_START, second));
+
+        final List<HistoryCodec.Entry> expected = new ArrayList<>(first);
+        expected.addAll(second);
+        assertEquals(expected, HistoryCodec.decode(MONTH_START, data.toByteArray()));
+    }
+
+    /// Tests that a dictionary written in several parts decodes to the IDs in order
+    @Test
+    void decodeDictionary_shouldRoundTripDeltas() {
+        final var data = new ByteArrayOutputStream();
+        data.writeBytes(HistoryCodec.encodeDictionary(0L, List.of(500L, 12L, 9_000_000_000L)));
+        data.writeBytes(HistoryCodec.encodeDictionary(9_000_000_000L, List.of(1L)));
+
+        assertArrayEquals(new long[]{500L, 12L, 9_000_000_000L, 1L}, HistoryCodec.decodeDictionary(data.toByteArray(), 4));
+    }
+
+    /// Tests that a month of position reports takes a few bytes per event, against the ~40 bytes of a row's columns
+    @Test
+    void encode_shouldTakeFewBytesPerEvent() {
+        final var random = new Random(7);
+        final List<HistoryCodec.Entry> entries = new ArrayList<>();
+        var timestamp = MONTH_START;
+        for (var session = 0; session < 60; session++) {
+            timestamp = timestamp.plusSeconds(3600 + random.nextInt(36_000));
+            final var ordinal = random.nextInt(40);
+            var position = random.nextInt(3600);
+            entries.add(new HistoryCodec.Entry(timestamp, ordinal, PlaybackAction.PLAY, position));
+            for (var report = 0; report < 100; report++) {
+                timestamp = timestamp.plusSeconds(15);
+                position += 15;
+                entries.add(new HistoryCodec.Entry(timestamp, ordinal, PlaybackAction.POSITION, position));
+            }
+            entries.add(new HistoryCodec.Entry(timestamp, ordinal, PlaybackAction.PAUSE, position));
+        }
+
+        final var data = HistoryCodec.encode(MONTH_START, entries);
+
+        assertEquals(entries, HistoryCodec.decode(MONTH_START, data));
+        assertTrue(data.length <= entries.size() * 6, data.length + " bytes for " + entries.size() + " events");
+    }
+}
@@ -0,0 +1,207 @@
+package org.openpodcastapi.opa.history;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openpodcastapi.opa.episode.EpisodeEntity;
+import org.openpodcastapi.opa.episode.EpisodeRepository;
+import org.openpodcastapi.opa.episode.EpisodeService;
+import org.openpodcastapi.opa.feed.FeedDTO;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.openpodcastapi.opa.playback.PlaybackAction;
+import org.openpodcastapi.opa.playback.PlaybackDTO;
+import org.openpodcastapi.opa.security.TokenService;
+import org.openpodcastapi.opa.subscription.SubscriptionService;
+import org.openpodcastapi.opa.user.UserEntity;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.restdocs.test.autoconfigure.AutoConfigureRestDocs;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.restdocs.payload.JsonFieldType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.restdocs.headers.HeaderDocumentation.headerWithName;
+import static org.springframework.restdocs.headers.HeaderDocumentation.requestHeaders;
+import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.get;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.post;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.*;
+import static org.springframework.restdocs.payload.PayloadDocumentation.fieldWithPath;
+import static org.springframework.restdocs.payload.PayloadDocumentation.responseFields;
+import static org.springframework.restdocs.request.RequestDocumentation.parameterWithName;
+import static org.springframework.restdocs.request.RequestDocumentation.queryParameters;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"history.block-events=3", "history.flush-interval=PT1H", "playback.buffer.flush-interval=PT1H"})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@AutoConfigureRestDocs(outputDir = "target/generated-snippets")
+class HistoryRestControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EpisodeService episodeService;
+
+    @Autowired
+    private EpisodeRepository episodeRepository;
+
+    @Autowired
+    private HistoryBlockRepository blockRepository;
+
+    @Autowired
+    private HistoryRecorder recorder;
+
+    private UserEntity user;
+
+    private List<EpisodeEntity> episodes;
+
+    @BeforeEach
+    void setup() throws Exception {
+        recorder.flush();
+        userRepository.deleteAll();
+        feedRepository.deleteAll();
+
+        user = userRepository.save(new UserEntity(null, UUID.randomUUID(), "historian", "historian@test.test"));
+        final var feedUuid = UUID.randomUUID();
+        subscriptionService.addSubscriptions(List.of(new FeedDTO.NewFeedRequestDTO(feedUuid.toString(), "https://example.com/feed.xml")), user.getId());
+        final var feed = feedRepository.findByUuid(feedUuid).orElseThrow();
+
+        try (var document = getClass().getResourceAsStream("/feeds/example.xml")) {
+            assertNotNull(document);
+            episodeService.ingest(feed.getId(), document);
+        }
+        episodes = episodeRepository.findAll();
+    }
+
+    /// Tests that imported and reported actions are listed latest first, across months and blocks
+    @Test
+    void getHistory_shouldPageLatestFirstAcrossBlocks() throws Exception {
+        final var february = Instant.parse("2026-02-27T23:59:50Z");
+        final List<PlaybackDTO.EpisodeActionDTO> imported = new ArrayList<>();
+        for (var i = 0; i < 5; i++) {
+            imported.add(new PlaybackDTO.EpisodeActionDTO(episodes.get(i % 2).getUuid(), PlaybackAction.POSITION, i * 60, february.plusSeconds(i * 60L)));
+        }
+        // The same second as the last event, which the cursor must not skip
+        imported.add(new PlaybackDTO.EpisodeActionDTO(episodes.get(1).getUuid(), PlaybackAction.PAUSE, 241, february.plusSeconds(240)));
+
+        final var upload = new StringBuilder();
+        for (final var action : imported) {
+            upload.append(jsonMapper.writeValueAsString(action)).append('\n');
+        }
+        mockMvc.perform(post("/api/v1/episodes/actions/import")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .contentType("application/x-ndjson")
+                        .content(upload.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(6));
+
+        final var reported = new PlaybackDTO.EpisodeActionDTO(episodes.get(0).getUuid(), PlaybackAction.COMPLETE, 3600, Instant.parse("2026-03-02T10:00:00.750Z"));
+        mockMvc.perform(post("/api/v1/episodes/actions")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(List.of(reported))))
+                .andExpect(status().isAccepted());
+        recorder.flush();
+
+        // February's six events in two full blocks, and March's one event in another
+        assertEquals(3, blockRepository.countByUserId(user.getId()));
+
+        final var firstPage = mockMvc.perform(get("/api/v1/history")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("limit", "4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(4))
+                .andExpect(jsonPath("$.data[0].action").value("COMPLETE"))
+                .andExpect(jsonPath("$.data[0].timestamp").value("2026-03-02T10:00:00Z"))
+                .andExpect(jsonPath("$.data[1].action").value("PAUSE"))
+                .andExpect(jsonPath("$.data[2].position").value(240))
+                .andExpect(jsonPath("$.data[3].position").value(180))
+                .andDo(document("history-list",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        queryParameters(
+                                parameterWithName("cursor").description("The cursor of the page to fetch").optional(),
+                                parameterWithName("limit").description("The number of results to include on each page").optional()
+                        ),
+                        responseFields(
+                                fieldWithPath("data[].episode").description("The UUID of the episode").type(JsonFieldType.STRING),
+                                fieldWithPath("data[].action").description("`PLAY`, `PAUSE`, `POSITION`, or `COMPLETE`").type(JsonFieldType.STRING),
+                                fieldWithPath("data[].position").description("The playback position in seconds").type(JsonFieldType.NUMBER),
+                                fieldWithPath("data[].timestamp").description("The time of the action, to the second").type(JsonFieldType.STRING),
+                                fieldWithPath("nextCursor").description("The cursor of the next page, if there is one").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("prevCursor").description("The cursor of the first result on this page").type(JsonFieldType.STRING).optional()
+                        )
+                ))
+                .andReturn();
+
+        final var nextCursor = jsonMapper.readTree(firstPage.getResponse().getContentAsString()).get("nextCursor").asString();
+        mockMvc.perform(get("/api/v1/history")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("cursor", nextCursor)
+                        .param("limit", "4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(3))
+                .andExpect(jsonPath("$.data[0].position").value(120))
+                .andExpect(jsonPath("$.data[2].position").value(0))
+                .andExpect(jsonPath("$.data[2].episode").value(episodes.get(0).getUuid().toString()))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    /// Tests that events of a deleted user are dropped without holding back the events of others
+    @Test
+    void flush_shouldDropEventsOfDeletedUsers() {
+        final var deletedUserId = user.getId() + 1_000;
+        final var now = Instant.parse("2026-01-05T08:00:00Z");
+        recorder.record(List.of(
+                new ListeningEvent(deletedUserId, episodes.getFirst().getId(), PlaybackAction.PLAY, 0, now),
+                new ListeningEvent(user.getId(), episodes.getFirst().getId(), PlaybackAction.POSITION, 42, now)));
+
+        recorder.flush();
+
+        assertEquals(0, recorder.pendingCount());
+        assertEquals(1, blockRepository.countByUserId(user.getId()));
+    }
+
+    /// Tests that a user without history gets an empty page, and that an invalid limit is rejected
+    @Test
+    void getHistory_shouldHandleEmptyHistoryAndInvalidLimits() throws Exception {
+        mockMvc.perform(get("/api/v1/history")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(0));
+
+        mockMvc.perform(get("/api/v1/history")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,46 @@
+package org.openpodcastapi.opa.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalIdempotencyStoreTest {
+    /// Tests that a claim can only be released by its owner, so an execution whose claim expired can't release the next
+    @Test
+    void unlock_shouldOnlyReleaseOwnClaim() throws InterruptedException {
+        final var store = new LocalIdempotencyStore(10);
+
+        assertTrue(store.tryLock("key", "expired", Duration.ofMillis(1)));
+        Thread.sleep(5);
+        assertTrue(store.tryLock("key", "current", Duration.ofMinutes(1)));
+
+        store.unlock("key", "expired");
+        assertFalse(store.tryLock("key", "other", Duration.ofMinutes(1)));
+
+        store.unlock("key", "current");
+        assertTrue(store.tryLock("key", "other", Duration.ofMinutes(1)));
+    }
+
+    /// Tests that a full store evicts the responses closest to expiring first
+    @Test
+    void save_shouldEvictResponsesClosestToExpiring() {
+        final var store = new LocalIdempotencyStore(10);
+        for (var i = 0; i < 10; i++) {
+            store.save("key" + i, response(i), Duration.ofMinutes(10 + i));
+        }
+        assertTrue(store.find("key0").isPresent());
+
+        store.save("key10", response(10), Duration.ofMinutes(30));
+
+        assertTrue(store.find("key0").isEmpty());
+        assertTrue(store.find("key1").isEmpty());
+        assertTrue(store.find("key2").isPresent());
+        assertEquals(response(10), store.find("key10").orElseThrow());
+    }
+
+    private static StoredResponse response(int i) {
+        return new StoredResponse(201, "{\"i\":" + i + "}", "fingerprint");
+    }
+}
@@ -0,0 +1,87 @@
+package org.openpodcastapi.opa.inbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InboxCursorTest {
+    private static final Instant START = Instant.parse("2026-01-05T08:00:00Z");
+
+    /// Tests that the heads of several sources are interleaved newest first, with ties broken by episode ID
+    @Test
+    void merge_shouldInterleaveSourcesNewestFirst() {
+        final var first = source(List.of(item(50, 5), item(30, 3), item(10, 1)));
+        final var second = source(List.of(item(40, 4), item(30, 6), item(20, 2)));
+
+        final var page = InboxCursor.merge(List.of(first.cursor(3), second.cursor(3)), 5);
+
+        assertEquals(List.of(item(50, 5), item(40, 4), item(30, 6), item(30, 3), item(20, 2)), page);
+    }
+
+    /// Tests that an episode found by more than one source is returned once
+    @Test
+    void merge_shouldSkipDuplicates() {
+        final var entries = source(List.of(item(30, 3), item(20, 2), item(10, 1)));
+        final var feed = source(List.of(item(30, 3), item(25, 7), item(20, 2)));
+
+        final var page = InboxCursor.merge(List.of(entries.cursor(3), feed.cursor(3)), 10);
+
+        assertEquals(List.of(item(30, 3), item(25, 7), item(20, 2), item(10, 1)), page);
+    }
+
+    /// Tests that a source is only read further once its batch is used up, and only as far as the page needs
+    @Test
+    void merge_shouldReadOnlyWhatThePageNeeds() {
+        final List<InboxItem> busy = new ArrayList<>();
+        for (var i = 1000; i > 0; i--) {
+            busy.add(item(i * 2, i));
+        }
+        final var busySource = source(busy);
+        final List<Source> quietSources = new ArrayList<>();
+        final List<InboxCursor> cursors = new ArrayList<>();
+        cursors.add(busySource.cursor(2));
+        for (var i = 0; i < 50; i++) {
+            final var quiet = source(List.of(item(1, 5000 + i)));
+            quietSources.add(quiet);
+            cursors.add(quiet.cursor(2));
+        }
+
+        final var page = InboxCursor.merge(cursors, 10);
+
+        assertEquals(10, page.size());
+        assertEquals(item(2000, 1000), page.getFirst());
+        assertEquals(item(1982, 991), page.getLast());
+        // The seed of 2, then a batch of the 8 items still wanted, and nothing once the page is full
+        assertEquals(10, busySource.read.get());
+        assertEquals(List.of(1), quietSources.stream().map(source -> source.read.get()).distinct().toList());
+    }
+
+    private static InboxItem item(int seconds, long episodeId) {
+        return new InboxItem(START.plusSeconds(seconds), episodeId);
+    }
+
+    private static Source source(List<InboxItem> items) {
+        return new Source(items, new AtomicInteger());
+    }
+
+    /// A sorted list of items read through a keyset cursor, counting the items read
+    private record Source(List<InboxItem> items, AtomicInteger read) {
+        InboxCursor cursor(int seed) {
+            return new InboxCursor(fetch(null, seed), seed, this::fetch);
+        }
+
+        List<InboxItem> fetch(InboxItem after, int limit) {
+            final var batch = items.stream()
+                    .filter(item -> after == null || item.compareTo(after) > 0)
+                    .limit(limit)
+                    .toList();
+            read.addAndGet(batch.size());
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package org.openpodcastapi.opa.inbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openpodcastapi.opa.episode.EpisodeService;
+import org.openpodcastapi.opa.feed.FeedDTO;
+import org.openpodcastapi.opa.feed.FeedEntity;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.openpodcastapi.opa.security.TokenService;
+import org.openpodcastapi.opa.subscription.SubscriptionService;
+import org.openpodcastapi.opa.user.UserEntity;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.restdocs.test.autoconfigure.AutoConfigureRestDocs;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.restdocs.payload.JsonFieldType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.restdocs.headers.HeaderDocumentation.headerWithName;
+import static org.springframework.restdocs.headers.HeaderDocumentation.requestHeaders;
+import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.get;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.*;
+import static org.springframework.restdocs.payload.PayloadDocumentation.*;
+import static org.springframework.restdocs.request.RequestDocumentation.parameterWithName;
+import static org.springframework.restdocs.request.RequestDocumentation.queryParameters;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"inbox.max-feed-subscribers=2", "inbox.max-user-subscriptions=3"})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@AutoConfigureRestDocs(outputDir = "target/generated-snippets")
+class InboxRestControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EpisodeService episodeService;
+
+    @Autowired
+    private InboxEntryRepository entryRepository;
+
+    @Autowired
+    private PulledFeedRepository pulledFeedRepository;
+
+    /// Episodes are published after the test subscribes, since only those are new to the subscriber
+    private Instant start;
+
+    @BeforeEach
+    void setup() {
+        entryRepository.deleteAll();
+        pulledFeedRepository.deleteAll();
+        userRepository.deleteAll();
+        feedRepository.deleteAll();
+        start = Instant.now().truncatedTo(ChronoUnit.SECONDS).plus(1, ChronoUnit.HOURS);
+    }
+
+    @Test
+    void getInboxForAnonymous_shouldReturn401() throws Exception {
+        mockMvc.perform(get("/api/v1/inbox"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    /// Tests that new episodes are written to the subscriber's inbox and read back across feeds, newest first
+    @Test
+    void getInbox_shouldListFannedOutEpisodesNewestFirst() throws Exception {
+        final var user = createUser("listener");
+        final var first = subscribe(user, "https://example.com/first.xml");
+        final var second = subscribe(user, "https://example.com/second.xml");
+
+        ingest(first, "first", 1, 3);
+        ingest(second, "second", 2, 4);
+        assertEquals(4, entryRepository.countByUserId(user.getId()));
+
+        final var firstPage = mockMvc.perform(get("/api/v1/inbox")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(3))
+                .andExpect(jsonPath("$.data[0].guid").value("second-4"))
+                .andExpect(jsonPath("$.data[1].guid").value("first-3"))
+                .andExpect(jsonPath("$.data[2].guid").value("second-2"))
+                .andDo(document("inbox-list",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        queryParameters(
+                                parameterWithName("cursor").description("The cursor of the page to fetch").optional(),
+                                parameterWithName("limit").description("The number of results to include on each page").optional()
+                        ),
+                        responseFields(
+                                fieldWithPath("data[].uuid").description("The UUID of the episode").type(JsonFieldType.STRING),
+                                fieldWithPath("data[].feedUuid").description("The UUID of the feed the episode belongs to").type(JsonFieldType.STRING),
+                                fieldWithPath("data[].guid").description("The GUID of the episode, as published in the feed").type(JsonFieldType.STRING),
+                                fieldWithPath("data[].title").description("The episode title").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("data[].link").description("The episode's web page").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("data[].publishedAt").description("The publication date of the episode").type(JsonFieldType.STRING),
+                                fieldWithPath("data[].enclosureUrl").description("The URL of the media file").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("data[].enclosureType").description("The MIME type of the media file").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("data[].enclosureLength").description("The size of the media file in bytes").type(JsonFieldType.NUMBER).optional(),
+                                fieldWithPath("data[].duration").description("The duration of the episode in seconds").type(JsonFieldType.NUMBER).optional(),
+                                fieldWithPath("data[].season").description("The season number").type(JsonFieldType.NUMBER).optional(),
+                                fieldWithPath("data[].episode").description("The episode number").type(JsonFieldType.NUMBER).optional(),
+                                fieldWithPath("nextCursor").description("The cursor of the next page, if there is one").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("prevCursor").description("The cursor of the first result on this page").type(JsonFieldType.STRING).optional()
+                        )
+                ))
+                .andReturn();
+
+        final var nextCursor = jsonMapper.readTree(firstPage.getResponse().getContentAsString()).get("nextCursor").asString();
+
+        mockMvc.perform(get("/api/v1/inbox")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("limit", "3")
+                        .param("cursor", nextCursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].guid").value("first-1"));
+    }
+
+    /// Tests that the episodes of a feed with too many subscribers are merged on read, until its audience shrinks
+    @Test
+    void getInbox_shouldMergePulledFeedsOnRead() throws Exception {
+        final var user = createUser("listener");
+        final var others = List.of(createUser("friend"), createUser("neighbour"));
+        final var quiet = subscribe(user, "https://example.com/quiet.xml");
+        final var popular = subscribe(user, "https://example.com/popular.xml");
+        others.forEach(other -> subscribe(other, "https://example.com/popular.xml"));
+
+        ingest(quiet, "quiet", 1, 3);
+        ingest(popular, "popular", 2);
+        assertTrue(pulledFeedRepository.existsById(popular.getId()));
+        assertEquals(2, entryRepository.countByUserId(user.getId()));
+        assertEquals(0, entryRepository.countByUserId(others.getFirst().getId()));
+
+        expectInbox(user, "quiet-3", "popular-2", "quiet-1");
+        expectInbox(others.getFirst(), "popular-2");
+
+        // Below three quarters of the limit, the feed is fanned out again, including the episodes merged until now
+        others.forEach(other -> subscriptionService.unsubscribeUserFromFeed(popular.getUuid(), other.getId()));
+        ingest(popular, "popular", 4, 2);
+        assertFalse(pulledFeedRepository.existsById(popular.getId()));
+        assertEquals(4, entryRepository.countByUserId(user.getId()));
+
+        expectInbox(user, "popular-4", "quiet-3", "popular-2", "quiet-1");
+    }
+
+    /// Tests that a user with too many subscriptions has their whole inbox merged on read, and filled once they drop below the limit
+    @Test
+    void getInbox_shouldMergeEveryFeedOfHeavyUsers() throws Exception {
+        final var user = createUser("collector");
+        final List<FeedEntity> feeds = new ArrayList<>();
+        for (var i = 0; i < 4; i++) {
+            feeds.add(subscribe(user, "https://example.com/feed-" + i + ".xml"));
+        }
+        for (var i = 0; i < feeds.size(); i++) {
+            ingest(feeds.get(i), "feed-" + i, i + 1, i + 5);
+        }
+        assertEquals(0, entryRepository.countByUserId(user.getId()));
+
+        expectInbox(user, "feed-3-8", "feed-2-7", "feed-1-6", "feed-0-5", "feed-3-4", "feed-2-3", "feed-1-2", "feed-0-1");
+
+        subscriptionService.unsubscribeUserFromFeed(feeds.getLast().getUuid(), user.getId());
+        assertEquals(6, entryRepository.countByUserId(user.getId()));
+
+        expectInbox(user, "feed-2-7", "feed-1-6", "feed-0-5", "feed-2-3", "feed-1-2", "feed-0-1");
+    }
+
+    /// Tests that unsubscribing removes a feed's episodes from the inbox, and resubscribing restores them
+    @Test
+    void getInbox_shouldFollowSubscriptionChanges() throws Exception {
+        final var user = createUser("listener");
+        final var kept = subscribe(user, "https://example.com/kept.xml");
+        final var dropped = subscribe(user, "https://example.com/dropped.xml");
+        ingest(kept, "kept", 1);
+        ingest(dropped, "dropped", 2);
+
+        subscriptionService.updateSubscriptionStatuses(List.of(dropped.getUuid().toString()), user.getId(), false);
+        expectInbox(user, "kept-1");
+
+        subscriptionService.updateSubscriptionStatuses(List.of(dropped.getUuid().toString()), user.getId(), true);
+        expectInbox(user, "dropped-2", "kept-1");
+    }
+
+    /// Checks a user's whole inbox, reading it in pages of three
+    private void expectInbox(UserEntity user, String... guids) throws Exception {
+        final List<String> found = new ArrayList<>();
+        String cursor = null;
+        do {
+            final var request = get("/api/v1/inbox")
+                    .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                    .param("limit", "3");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            final var body = jsonMapper.readTree(mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            body.get("data").forEach(episode -> found.add(episode.get("guid").asString()));
+            cursor = body.has("nextCursor") ? body.get("nextCursor").asString() : null;
+        } while (cursor != null);
+
+        assertEquals(List.of(guids), found);
+    }
+
+    private UserEntity createUser(String username) {
+        return userRepository.save(new UserEntity(null, UUID.randomUUID(), username, username + "@test.test"));
+    }
+
+    private FeedEntity subscribe(UserEntity user, String feedUrl) {
+        final var existing = feedRepository.findAll().stream().filter(feed -> feed.getFeedUrl().equals(feedUrl)).findFirst();
+        final var feedUuid = existing.map(FeedEntity::getUuid).orElseGet(UUID::randomUUID);
+        subscriptionService.addSubscriptions(List.of(new FeedDTO.NewFeedRequestDTO(feedUuid.toString(), feedUrl)), user.getId());
+        return feedRepository.findByUuid(feedUuid).orElseThrow();
+    }
+
+    /// Stores episodes named `<prefix>-<hour>`, each published that many hours after the start of the test
+    private void ingest(FeedEntity feed, String prefix, int... hours) throws Exception {
+        final var document = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><rss version=\"2.0\"><channel><title>")
+                .append(prefix).append("</title>");
+        for (final var hour : hours) {
+            document.append("<item><title>").append(prefix).append(' ').append(hour).append("</title>")
+                    .append("<guid isPermaLink=\"false\">").append(prefix).append('-').append(hour).append("</guid>")
+                    .append("<pubDate>")
+                    .append(DateTimeFormatter.RFC_1123_DATE_TIME.format(start.plus(hour, ChronoUnit.HOURS).atOffset(ZoneOffset.UTC)))
+                    .append("</pubDate></item>");
+        }
+        document.append("</channel></rss>");
+        episodeService.ingest(feed.getId(), new ByteArrayInputStream(document.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,191 @@
+package org.openpodcastapi.opa.job;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "jobs.poll-interval=PT0.1S",
+        "jobs.backoff.initial=PT0.02S",
+        "jobs.backoff.max=PT0.05S"
+})
+@ActiveProfiles("test")
+class JobWorkerTest {
+    /// Fails until its attempt exceeds the number in its payload
+    private static final String FLAKY = "test-flaky";
+
+    /// Never run by the worker, so tests can lease its jobs themselves
+    private static final String MANUAL = "test-manual";
+
+    @Autowired
+    private JobQueue jobQueue;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    @TestConfiguration
+    static class Handlers {
+        @Bean
+        JobHandler flakyHandler() {
+            return new JobHandler() {
+                @Override
+                public String type() {
+                    return FLAKY;
+                }
+
+                @Override
+                public void handle(Job job) {
+                    if (job.attempt() <= Integer.parseInt(job.payload())) {
+                        throw new IllegalStateException("attempt " + job.attempt() + " failed");
+                    }
+                }
+
+                @Override
+                public int concurrency() {
+                    return 4;
+                }
+
+                @Override
+                public int maxAttempts() {
+                    return 3;
+                }
+            };
+        }
+
+        @Bean
+        JobHandler manualHandler() {
+            return new JobHandler() {
+                @Override
+                public String type() {
+                    return MANUAL;
+                }
+
+                @Override
+                public void handle(Job job) {
+                    fail("Manual jobs are never run");
+                }
+
+                @Override
+                public int concurrency() {
+                    return 0;
+                }
+
+                @Override
+                public int maxAttempts() {
+                    return 2;
+                }
+            };
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        jobRepository.deleteAll(jobRepository.findByTypeOrderById(FLAKY));
+        jobRepository.deleteAll(jobRepository.findByTypeOrderById(MANUAL));
+    }
+
+    /// Tests that an enqueued job is run straight away
+    @Test
+    void enqueue_shouldRunJob() throws InterruptedException {
+        final var job = awaitFinished(jobQueue.enqueue(FLAKY, "0"));
+
+        assertEquals(JobStatus.SUCCEEDED, job.getStatus());
+        assertEquals(1, job.getAttempts());
+        assertNotNull(job.getFinishedAt());
+        assertNull(job.getLockedBy());
+    }
+
+    /// Tests that a failed attempt is retried after a backoff, and the job succeeds once an attempt does
+    @Test
+    void failedAttempt_shouldBeRetried() throws InterruptedException {
+        final var job = awaitFinished(jobQueue.enqueue(FLAKY, "2"));
+
+        assertEquals(JobStatus.SUCCEEDED, job.getStatus());
+        assertEquals(3, job.getAttempts());
+        assertNull(job.getLastError());
+    }
+
+    /// Tests that a job is failed once it runs out of attempts, keeping the last error
+    @Test
+    void failedJob_shouldStopAfterMaxAttempts() throws InterruptedException {
+        final var job = awaitFinished(jobQueue.enqueue(FLAKY, "5"));
+
+        assertEquals(JobStatus.FAILED, job.getStatus());
+        assertEquals(3, job.getAttempts());
+        assertEquals("IllegalStateException: attempt 3 failed", job.getLastError());
+    }
+
+    /// Tests that due jobs are leased highest priority first, and that leased and future jobs aren't leased again
+    @Test
+    void lease_shouldClaimDueJobsByPriority() {
+        final var now = Instant.now();
+        final var low = jobQueue.enqueue(MANUAL, "low", 0, now);
+        final var high = jobQueue.enqueue(MANUAL, "high", 5, now);
+        final var medium = jobQueue.enqueue(MANUAL, "medium", 1, now);
+        jobQueue.enqueue(MANUAL, "later", 10, now.plus(Duration.ofHours(1)));
+
+        final var first = jobQueue.lease(MANUAL, 2, "first", Duration.ofMinutes(1));
+        assertEquals(List.of(high, medium), first.stream().map(Job::id).toList());
+        assertEquals(1, first.getFirst().attempt());
+
+        final var second = jobQueue.lease(MANUAL, 10, "second", Duration.ofMinutes(1));
+        assertEquals(List.of(low), second.stream().map(Job::id).toList());
+
+        assertTrue(jobQueue.lease(MANUAL, 10, "third", Duration.ofMinutes(1)).isEmpty());
+
+        // Only the worker holding the lease can finish the job
+        assertFalse(jobQueue.succeed(first.getFirst(), "second"));
+        assertTrue(jobQueue.succeed(first.getFirst(), "first"));
+        assertEquals(JobStatus.SUCCEEDED, jobRepository.findById(high).orElseThrow().getStatus());
+    }
+
+    /// Tests that a job whose lease expires is leased again, and failed once its last lease expires
+    @Test
+    void expiredLease_shouldBeLeasedAgain() throws InterruptedException {
+        final var id = jobQueue.enqueue(MANUAL, "abandoned");
+
+        final var abandoned = jobQueue.lease(MANUAL, 1, "stopped", Duration.ZERO).getFirst();
+        Thread.sleep(5);
+        final var retried = jobQueue.lease(MANUAL, 1, "replacement", Duration.ZERO).getFirst();
+        assertEquals(id, retried.id());
+        assertEquals(2, retried.attempt());
+        assertTrue(retried.lastAttempt());
+
+        // The worker that lost the lease can't overwrite the outcome of the attempt that replaced it
+        assertFalse(jobQueue.succeed(abandoned, "stopped"));
+
+        Thread.sleep(5);
+        assertTrue(jobQueue.lease(MANUAL, 1, "another", Duration.ZERO).isEmpty());
+        final var job = jobRepository.findById(id).orElseThrow();
+        assertEquals(JobStatus.FAILED, job.getStatus());
+        assertEquals("The lease of the last attempt expired", job.getLastError());
+    }
+
+    /// Tests that jobs without a handler are rejected
+    @Test
+    void enqueue_shouldRejectUnknownTypes() {
+        assertThrows(IllegalArgumentException.class, () -> jobQueue.enqueue("unknown", null));
+    }
+
+    private JobEntity awaitFinished(Long id) throws InterruptedException {
+        final var deadline = System.nanoTime() + 10_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            final var job = jobRepository.findById(id).orElseThrow();
+            if (job.getStatus() == JobStatus.SUCCEEDED || job.getStatus() == JobStatus.FAILED) {
+                return job;
+            }
+            Thread.sleep(20);
+        }
+        return fail("Job " + id + " didn't finish");
+    }
+}
@@ -0,0 +1,144 @@
+package org.openpodcastapi.opa.playback;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaybackBufferTest {
+    private static final Instant START = Instant.parse("2026-01-05T08:00:00Z");
+
+    /// Tests that concurrent reports for the same episodes coalesce to the latest state of each
+    @Test
+    void add_shouldCoalesceConcurrentReports() throws Exception {
+        final var repository = new RecordingRepository();
+        final var buffer = new PlaybackBuffer(repository, new SimpleMeterRegistry(), 8, 1_000_000, 100);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var user = 0; user < 50; user++) {
+                final long userId = user;
+                executor.submit(() -> {
+                    // Deliver reports out of order, as a retrying device would
+                    for (var second = 600; second >= 0; second--) {
+                        buffer.add(update(userId, userId % 5, second));
+                    }
+                });
+            }
+        }
+
+        assertEquals(50, buffer.pendingCount());
+        assertEquals(50, buffer.flush());
+        assertEquals(List.of(50), repository.batchSizes());
+        assertTrue(repository.written().stream().allMatch(update -> update.position() == 600));
+    }
+
+    /// Tests that reaching the flush size starts a flush without waiting for the interval
+    @Test
+    void add_shouldFlushWhenFull() throws Exception {
+        final var repository = new RecordingRepository();
+        final var buffer = new PlaybackBuffer(repository, new SimpleMeterRegistry(), 4, 10, 4);
+
+        for (var episode = 0; episode < 10; episode++) {
+            buffer.add(update(1, episode, 30));
+        }
+
+        final var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (repository.written().size() < 10 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(10, repository.written().size());
+        assertEquals(List.of(4, 4, 2), repository.batchSizes());
+        assertEquals(0, buffer.pendingCount());
+    }
+
+    /// Tests that states that couldn't be written are kept, without replacing later states buffered in the meantime
+    @Test
+    void flush_shouldKeepStatesThatFailed() {
+        final var repository = new RecordingRepository();
+        final var buffer = new PlaybackBuffer(repository, new SimpleMeterRegistry(), 4, 1_000, 100);
+
+        buffer.add(update(1, 1, 60));
+        buffer.add(update(1, 2, 60));
+        repository.failing.set(true);
+        assertEquals(0, buffer.flush());
+        assertEquals(2, buffer.pendingCount());
+        assertEquals(60, buffer.get(1, 1).orElseThrow().position());
+
+        buffer.add(update(1, 1, 90));
+        repository.failing.set(false);
+        assertEquals(2, buffer.flush());
+        assertEquals(90, repository.written().stream().filter(update -> update.episodeId() == 1).findFirst().orElseThrow().position());
+        assertTrue(buffer.get(1, 1).isEmpty());
+    }
+
+    /// Tests that a state the database rejects, such as one for an episode that was deleted, is dropped
+    /// without holding back the other states of its batch or the states queued behind it
+    @Test
+    void flush_shouldDropRejectedStates() {
+        final var repository = new RecordingRepository();
+        repository.missingEpisodes.add(3L);
+        final var registry = new SimpleMeterRegistry();
+        final var buffer = new PlaybackBuffer(repository, registry, 4, 1_000, 4);
+
+        for (var episode = 0; episode < 10; episode++) {
+            buffer.add(update(1, episode, 30));
+        }
+
+        assertEquals(9, buffer.flush());
+        assertEquals(0, buffer.pendingCount());
+        assertEquals(9, repository.written().size());
+        assertTrue(repository.written().stream().noneMatch(update -> update.episodeId() == 3));
+        assertEquals(1, registry.get("playback.flush.failures").tag("result", "dropped").counter().count());
+
+        // The rejected state isn't retried
+        assertEquals(0, buffer.flush());
+    }
+
+    private static PlaybackUpdate update(long userId, long episodeId, int position) {
+        return new PlaybackUpdate(userId, episodeId, PlaybackAction.POSITION, position, START.plusSeconds(position), System.nanoTime());
+    }
+
+    /// Records the batches it's given instead of writing them
+    private static class RecordingRepository extends PlaybackUpsertRepository {
+        private final List<PlaybackUpdate> written = new CopyOnWriteArrayList<>();
+        private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean failing = new AtomicBoolean();
+        private final Set<Long> missingEpisodes = new CopyOnWriteArraySet<>();
+
+        RecordingRepository() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public int upsert(List<PlaybackUpdate> updates) {
+            if (failing.get()) {
+                throw new IllegalStateException("database unavailable");
+            }
+            if (updates.stream().anyMatch(update -> missingEpisodes.contains(update.episodeId()))) {
+                throw new DataIntegrityViolationException("violates foreign key constraint fk_playback_states_on_episode");
+            }
+            written.addAll(new ArrayList<>(updates));
+            batchSizes.add(updates.size());
+            return updates.size();
+        }
+
+        List<PlaybackUpdate> written() {
+            return written;
+        }
+
+        List<Integer> batchSizes() {
+            return batchSizes;
+        }
+    }
+}
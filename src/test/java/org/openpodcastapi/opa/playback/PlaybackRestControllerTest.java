@@ -0,0 +1,354 @@
+package org.openpodcastapi.opa.playback;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openpodcastapi.opa.episode.EpisodeEntity;
+import org.openpodcastapi.opa.episode.EpisodeRepository;
+import org.openpodcastapi.opa.episode.EpisodeService;
+import org.openpodcastapi.opa.feed.FeedDTO;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.openpodcastapi.opa.history.HistoryBlockRepository;
+import org.openpodcastapi.opa.history.HistoryRecorder;
+import org.openpodcastapi.opa.history.ListeningEvent;
+import org.openpodcastapi.opa.security.TokenService;
+import org.openpodcastapi.opa.subscription.SubscriptionService;
+import org.openpodcastapi.opa.user.UserDeletionService;
+import org.openpodcastapi.opa.user.UserDeletionStatus;
+import org.openpodcastapi.opa.user.UserEntity;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.restdocs.test.autoconfigure.AutoConfigureRestDocs;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.restdocs.payload.JsonFieldType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.restdocs.headers.HeaderDocumentation.headerWithName;
+import static org.springframework.restdocs.headers.HeaderDocumentation.requestHeaders;
+import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.get;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.post;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.*;
+import static org.springframework.restdocs.payload.PayloadDocumentation.*;
+import static org.springframework.restdocs.request.RequestDocumentation.parameterWithName;
+import static org.springframework.restdocs.request.RequestDocumentation.pathParameters;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "playback.buffer.flush-interval=PT1H")
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@AutoConfigureRestDocs(outputDir = "target/generated-snippets")
+class PlaybackRestControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EpisodeService episodeService;
+
+    @Autowired
+    private EpisodeRepository episodeRepository;
+
+    @Autowired
+    private PlaybackStateRepository stateRepository;
+
+    @Autowired
+    private PlaybackBuffer buffer;
+
+    @Autowired
+    private PlaybackService playbackService;
+
+    @Autowired
+    private HistoryRecorder historyRecorder;
+
+    @Autowired
+    private HistoryBlockRepository blockRepository;
+
+    @Autowired
+    private UserDeletionService deletionService;
+
+    private UserEntity user;
+
+    private EpisodeEntity episode;
+
+    @BeforeEach
+    void setup() throws Exception {
+        buffer.flush();
+        stateRepository.deleteAll();
+        userRepository.deleteAll();
+        feedRepository.deleteAll();
+
+        user = userRepository.save(new UserEntity(null, UUID.randomUUID(), "listener", "listener@test.test"));
+        final var feedUuid = UUID.randomUUID();
+        subscriptionService.addSubscriptions(List.of(new FeedDTO.NewFeedRequestDTO(feedUuid.toString(), "https://example.com/feed.xml")), user.getId());
+        final var feed = feedRepository.findByUuid(feedUuid).orElseThrow();
+
+        try (var document = getClass().getResourceAsStream("/feeds/example.xml")) {
+            assertNotNull(document);
+            episodeService.ingest(feed.getId(), document);
+        }
+        episode = episodeRepository.findAll().getFirst();
+    }
+
+    /// Tests that position reports are coalesced in the buffer and written as a single row when it's flushed
+    @Test
+    void recordActions_shouldCoalesceUntilFlushed() throws Exception {
+        final var start = Instant.parse("2026-01-05T08:00:00Z");
+        final List<PlaybackDTO.EpisodeActionDTO> actions = new ArrayList<>();
+        actions.add(new PlaybackDTO.EpisodeActionDTO(episode.getUuid(), PlaybackAction.PLAY, 0, start));
+        for (var second = 10; second <= 120; second += 10) {
+            actions.add(new PlaybackDTO.EpisodeActionDTO(episode.getUuid(), PlaybackAction.POSITION, second, start.plusSeconds(second)));
+        }
+
+        mockMvc.perform(post("/api/v1/episodes/actions")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(actions.subList(0, 2))))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andDo(document("playback-actions",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        requestFields(
+                                fieldWithPath("[].episode").description("The UUID of the episode").type(JsonFieldType.STRING),
+                                fieldWithPath("[].action").description("`PLAY`, `PAUSE`, `POSITION`, or `COMPLETE`").type(JsonFieldType.STRING),
+                                fieldWithPath("[].position").description("The playback position in seconds").type(JsonFieldType.NUMBER),
+                                fieldWithPath("[].timestamp").description("The time of the action on the device").type(JsonFieldType.STRING).optional()
+                        ),
+                        responseFields(
+                                fieldWithPath("accepted").description("The number of actions accepted").type(JsonFieldType.NUMBER)
+                        )
+                ));
+
+        mockMvc.perform(post("/api/v1/episodes/actions")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(actions.subList(2, actions.size()))))
+                .andExpect(status().isAccepted());
+
+        assertEquals(1, buffer.pendingCount());
+        assertEquals(0, stateRepository.count());
+
+        // The buffered state is readable before it's written
+        getPlayback().andExpect(status().isOk()).andExpect(jsonPath("$.position").value(120));
+
+        assertEquals(1, buffer.flush());
+        assertEquals(0, buffer.pendingCount());
+
+        final var state = stateRepository.findByUserIdAndEpisodeId(user.getId(), episode.getId()).orElseThrow();
+        assertEquals(PlaybackAction.POSITION, state.getAction());
+        assertEquals(120, state.getPositionSeconds());
+        assertEquals(start.plusSeconds(120), state.getUpdatedAt());
+    }
+
+    /// Tests that an action older than the stored state doesn't replace it
+    @Test
+    void recordActions_shouldIgnoreOlderActions() throws Exception {
+        final var completedAt = Instant.parse("2026-01-05T09:00:00Z");
+        report(new PlaybackDTO.EpisodeActionDTO(episode.getUuid(), PlaybackAction.COMPLETE, 1800, completedAt));
+        buffer.flush();
+
+        report(new PlaybackDTO.EpisodeActionDTO(episode.getUuid(), PlaybackAction.PAUSE, 600, completedAt.minusSeconds(1200)));
+        buffer.flush();
+
+        getPlayback()
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.action").value("COMPLETE"))
+                .andExpect(jsonPath("$.position").value(1800))
+                .andExpect(jsonPath("$.completed").value(true))
+                .andDo(document("playback-get",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        pathParameters(
+                                parameterWithName("uuid").description("The UUID of the episode")
+                        ),
+                        responseFields(
+                                fieldWithPath("episode").description("The UUID of the episode").type(JsonFieldType.STRING),
+                                fieldWithPath("action").description("The latest action").type(JsonFieldType.STRING),
+                                fieldWithPath("position").description("The playback position in seconds").type(JsonFieldType.NUMBER),
+                                fieldWithPath("completed").description("Whether the latest action was `COMPLETE`").type(JsonFieldType.BOOLEAN),
+                                fieldWithPath("updatedAt").description("The time of the latest action").type(JsonFieldType.STRING)
+                        )
+                ));
+    }
+
+    /// Tests that a batch naming an unknown episode is rejected as a whole
+    @Test
+    void recordActions_shouldRejectUnknownEpisodes() throws Exception {
+        mockMvc.perform(post("/api/v1/episodes/actions")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(List.of(
+                                new PlaybackDTO.EpisodeActionDTO(episode.getUuid(), PlaybackAction.PLAY, 0, null),
+                                new PlaybackDTO.EpisodeActionDTO(UUID.randomUUID(), PlaybackAction.PLAY, 0, null)))))
+                .andExpect(status().isNotFound());
+
+        assertEquals(0, buffer.pendingCount());
+        getPlayback().andExpect(status().isNotFound());
+    }
+
+    /// Tests that what was buffered for a user before their deletion was requested isn't written, and later reports are refused
+    @Test
+    void flush_shouldSkipUsersBeingDeleted() throws InterruptedException {
+        final var now = Instant.parse("2026-01-05T08:00:00Z");
+        buffer.add(new PlaybackUpdate(user.getId(), episode.getId(), PlaybackAction.POSITION, 42, now, System.nanoTime()));
+        historyRecorder.record(List.of(new ListeningEvent(user.getId(), episode.getId(), PlaybackAction.POSITION, 42, now)));
+
+        deletionService.requestDeletion(user.getUuid());
+        buffer.flush();
+        historyRecorder.flush();
+
+        assertEquals(0, buffer.pendingCount());
+        assertEquals(0, historyRecorder.pendingCount());
+        assertTrue(stateRepository.findByUserIdAndEpisodeId(user.getId(), episode.getId()).isEmpty());
+        assertEquals(0, blockRepository.countByUserId(user.getId()));
+        assertThrows(EntityNotFoundException.class, () -> playbackService.recordActions(user.getId(),
+                List.of(new PlaybackDTO.EpisodeActionDTO(episode.getUuid(), PlaybackAction.PLAY, 0, now))));
+
+        // Let the purge finish before the next test clears the users
+        final var deadline = System.nanoTime() + 10_000_000_000L;
+        while (deletionService.getDeletion(user.getUuid()).status() != UserDeletionStatus.COMPLETED) {
+            assertTrue(System.nanoTime() < deadline, "The deletion didn't complete");
+            Thread.sleep(20);
+        }
+    }
+
+    /// Tests that a buffered state for an episode deleted before the flush is dropped, and the rest of its batch is written
+    @Test
+    void flush_shouldDropStatesOfDeletedEpisodes() {
+        final var deletedEpisodeId = episodeRepository.findAll().stream().mapToLong(EpisodeEntity::getId).max().orElseThrow() + 1_000;
+        final var now = Instant.parse("2026-01-05T08:00:00Z");
+        buffer.add(new PlaybackUpdate(user.getId(), deletedEpisodeId, PlaybackAction.PLAY, 0, now, System.nanoTime()));
+        buffer.add(new PlaybackUpdate(user.getId(), episode.getId(), PlaybackAction.POSITION, 42, now, System.nanoTime()));
+
+        buffer.flush();
+
+        assertEquals(0, buffer.pendingCount());
+        assertEquals(42, stateRepository.findByUserIdAndEpisodeId(user.getId(), episode.getId()).orElseThrow().getPositionSeconds());
+    }
+
+    /// Tests that an imported history leaves each episode at its latest action, and reports the actions it skipped
+    @Test
+    void importHistory_shouldMergeLatestActions() throws Exception {
+        final var episodes = episodeRepository.findAll();
+        final var start = Instant.parse("2024-03-01T07:00:00Z");
+
+        // A state stored after the history was exported isn't replaced
+        report(new PlaybackDTO.EpisodeActionDTO(episodes.get(2).getUuid(), PlaybackAction.PAUSE, 42, Instant.parse("2026-01-05T08:00:00Z")));
+        buffer.flush();
+
+        final var upload = new StringBuilder();
+        for (var i = 0; i < 3000; i++) {
+            final var episode = episodes.get(i % 3);
+            final var action = i >= 2997 ? PlaybackAction.COMPLETE : PlaybackAction.POSITION;
+            upload.append(jsonMapper.writeValueAsString(new PlaybackDTO.EpisodeActionDTO(episode.getUuid(), action, i, start.plusSeconds(i)))).append('\n');
+        }
+        upload.append(jsonMapper.writeValueAsString(new PlaybackDTO.EpisodeActionDTO(UUID.randomUUID(), PlaybackAction.PLAY, 0, start))).append('\n');
+        upload.append(jsonMapper.writeValueAsString(new PlaybackDTO.EpisodeActionDTO(episodes.get(0).getUuid(), PlaybackAction.PLAY, -5, start))).append('\n');
+
+        mockMvc.perform(post("/api/v1/episodes/actions/import")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .contentType("application/x-ndjson")
+                        .content(upload.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(3002))
+                .andExpect(jsonPath("$.accepted").value(3000))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.updated").value(2))
+                .andExpect(jsonPath("$.errors[0].record").value(3001))
+                .andExpect(jsonPath("$.errors[0].message").value("episode not found"))
+                .andExpect(jsonPath("$.errors[1].record").value(3002))
+                .andDo(document("playback-import",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        responseFields(
+                                fieldWithPath("received").description("The number of actions in the upload").type(JsonFieldType.NUMBER),
+                                fieldWithPath("accepted").description("The number of valid actions").type(JsonFieldType.NUMBER),
+                                fieldWithPath("rejected").description("The number of invalid actions").type(JsonFieldType.NUMBER),
+                                fieldWithPath("updated").description("The number of playback states created or replaced").type(JsonFieldType.NUMBER),
+                                fieldWithPath("errors[].record").description("The position of an invalid action in the upload, starting from 1").type(JsonFieldType.NUMBER),
+                                fieldWithPath("errors[].message").description("The reason the action was rejected").type(JsonFieldType.STRING)
+                        )
+                ));
+
+        for (var i = 0; i < 2; i++) {
+            final var state = stateRepository.findByUserIdAndEpisodeId(user.getId(), episodes.get(i).getId()).orElseThrow();
+            assertEquals(PlaybackAction.COMPLETE, state.getAction());
+            assertEquals(2997 + i, state.getPositionSeconds());
+            assertEquals(start.plusSeconds(2997 + i), state.getUpdatedAt());
+        }
+        final var newer = stateRepository.findByUserIdAndEpisodeId(user.getId(), episodes.get(2).getId()).orElseThrow();
+        assertEquals(PlaybackAction.PAUSE, newer.getAction());
+        assertEquals(42, newer.getPositionSeconds());
+    }
+
+    /// Tests that a JSON array is accepted, and that a malformed upload imports nothing
+    @Test
+    void importHistory_shouldRejectMalformedUploads() throws Exception {
+        final var action = new PlaybackDTO.EpisodeActionDTO(episode.getUuid(), PlaybackAction.PAUSE, 300, Instant.parse("2024-03-01T07:00:00Z"));
+
+        mockMvc.perform(post("/api/v1/episodes/actions/import")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(List.of(action, action))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.updated").value(1));
+        stateRepository.deleteAll();
+
+        mockMvc.perform(post("/api/v1/episodes/actions/import")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .contentType("application/x-ndjson")
+                        .content(jsonMapper.writeValueAsString(action) + "\n{\"episode\": "))
+                .andExpect(status().isBadRequest());
+        assertEquals(0, stateRepository.count());
+    }
+
+    private void report(PlaybackDTO.EpisodeActionDTO action) throws Exception {
+        mockMvc.perform(post("/api/v1/episodes/actions")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(List.of(action))))
+                .andExpect(status().isAccepted());
+    }
+
+    private ResultActions getPlayback() throws Exception {
+        return mockMvc.perform(get("/api/v1/episodes/{uuid}/playback", episode.getUuid())
+                .header("Authorization", "Bearer " + tokenService.generateAccessToken(user)));
+    }
+}
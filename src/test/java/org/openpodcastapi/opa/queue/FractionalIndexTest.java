@@ -0,0 +1,82 @@
+package org.openpodcastapi.opa.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FractionalIndexTest {
+    /// Tests that keys sort between their neighbours at the start, middle, and end of a list
+    @Test
+    void between_shouldSortBetweenNeighbours() {
+        assertEquals("V", FractionalIndex.between(null, null));
+        assertEquals("V001", FractionalIndex.between("V", null));
+        assertEquals("W", FractionalIndex.between("Vzzz", null));
+        assertEquals("V002", FractionalIndex.between("V001abc", null));
+        assertEquals("zzzzV", FractionalIndex.between("zzzz", null));
+        assertEquals("Uzzz", FractionalIndex.between(null, "V"));
+        assertEquals("V001", FractionalIndex.between(null, "V001abc"));
+        assertEquals("0000V", FractionalIndex.between(null, "0001"));
+        assertEquals("VV", FractionalIndex.between("V", "W"));
+        assertEquals("V0V", FractionalIndex.between("V", "V1"));
+        assertEquals("V", FractionalIndex.between("U", "V1"));
+    }
+
+    /// Tests that random insertions keep every key unique and in list order
+    @Test
+    void between_shouldKeepListOrderUnderRandomInsertions() {
+        final var random = new Random(42);
+        final List<String> keys = new ArrayList<>();
+        for (var i = 0; i < 2000; i++) {
+            final var index = random.nextInt(keys.size() + 1);
+            final var before = index == 0 ? null : keys.get(index - 1);
+            final var after = index == keys.size() ? null : keys.get(index);
+            final var key = FractionalIndex.between(before, after);
+            assertNotEquals('0', key.charAt(key.length() - 1));
+            keys.add(index, key);
+        }
+
+        assertEquals(keys.stream().sorted().toList(), keys);
+        assertEquals(keys.size(), keys.stream().distinct().count());
+    }
+
+    /// Tests that lists built by appending or prepending keep short keys
+    @Test
+    void between_shouldKeepShortKeysAtEitherEnd() {
+        String last = null;
+        String first = null;
+        for (var i = 0; i < 10000; i++) {
+            last = FractionalIndex.between(last, null);
+            first = FractionalIndex.between(null, first);
+        }
+
+        assertTrue(last.length() <= 4, last);
+        assertTrue(first.length() <= 4, first);
+    }
+
+    /// Tests that spread keys are sorted, unique, short, and leave room between neighbours
+    @Test
+    void spread_shouldSpaceKeysEvenly() {
+        final var keys = List.of(FractionalIndex.spread(1000));
+
+        assertEquals(keys.stream().sorted().toList(), keys);
+        assertEquals(1000, keys.stream().distinct().count());
+        assertTrue(keys.stream().allMatch(key -> key.length() <= 3 && !key.endsWith("0")));
+        for (var i = 1; i < keys.size(); i++) {
+            final var middle = FractionalIndex.between(keys.get(i - 1), keys.get(i));
+            assertTrue(middle.length() <= 3, middle);
+        }
+    }
+
+    /// Tests that malformed keys and reversed neighbours are rejected
+    @Test
+    void between_shouldRejectInvalidKeys() {
+        assertThrows(IllegalArgumentException.class, () -> FractionalIndex.between("V", "F"));
+        assertThrows(IllegalArgumentException.class, () -> FractionalIndex.between("V", "V"));
+        assertThrows(IllegalArgumentException.class, () -> FractionalIndex.between("V0", null));
+        assertThrows(IllegalArgumentException.class, () -> FractionalIndex.between("V-", null));
+    }
+}
@@ -0,0 +1,377 @@
+package org.openpodcastapi.opa.queue;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openpodcastapi.opa.episode.EpisodeEntity;
+import org.openpodcastapi.opa.episode.EpisodeRepository;
+import org.openpodcastapi.opa.episode.EpisodeService;
+import org.openpodcastapi.opa.feed.FeedDTO;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.openpodcastapi.opa.security.TokenService;
+import org.openpodcastapi.opa.subscription.SubscriptionService;
+import org.openpodcastapi.opa.user.UserEntity;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.restdocs.test.autoconfigure.AutoConfigureRestDocs;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.restdocs.payload.JsonFieldType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.restdocs.headers.HeaderDocumentation.headerWithName;
+import static org.springframework.restdocs.headers.HeaderDocumentation.requestHeaders;
+import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.*;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.*;
+import static org.springframework.restdocs.payload.PayloadDocumentation.*;
+import static org.springframework.restdocs.request.RequestDocumentation.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"queue.rebalance-key-length=5", "queue.rebalance-delay=PT1H", "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=org.openpodcastapi.opa.queue.QueueRestControllerTest$StatementCounter"})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@AutoConfigureRestDocs(outputDir = "target/generated-snippets")
+class QueueRestControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EpisodeService episodeService;
+
+    @Autowired
+    private EpisodeRepository episodeRepository;
+
+    @Autowired
+    private QueueItemRepository itemRepository;
+
+    @Autowired
+    private QueueService queueService;
+
+    @Autowired
+    private QueueRebalanceScheduler rebalanceScheduler;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private UserEntity user;
+
+    @BeforeEach
+    void setup() {
+        queueService.drainRebalanceRequests();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+        feedRepository.deleteAll();
+
+        user = createUser("listener");
+    }
+
+    @Test
+    void getQueueForAnonymous_shouldReturn401() throws Exception {
+        mockMvc.perform(get("/api/v1/queue"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    /// Tests that episodes are appended, moved, and removed, and the queue is read back in order
+    @Test
+    void placeItem_shouldAddAndMoveEpisodes() throws Exception {
+        final var episodes = createEpisodes("feed", 4);
+        for (final var episode : episodes.subList(0, 3)) {
+            place(episode, null);
+        }
+
+        mockMvc.perform(put("/api/v1/queue/{uuid}", episodes.get(3))
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(new QueueDTO.PlaceItemRequestDTO(episodes.getFirst(), null))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.episode").value(episodes.get(3).toString()))
+                .andDo(document("queue-place",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        pathParameters(
+                                parameterWithName("uuid").description("The UUID of the episode to place")
+                        ),
+                        requestFields(
+                                fieldWithPath("after").description("The UUID of the queued episode to place the episode after").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("before").description("The UUID of the queued episode to place the episode before").type(JsonFieldType.STRING).optional()
+                        ),
+                        responseFields(
+                                fieldWithPath("episode").description("The UUID of the episode").type(JsonFieldType.STRING),
+                                fieldWithPath("position").description("The position of the episode in the queue").type(JsonFieldType.STRING),
+                                fieldWithPath("createdAt").description("The time the episode was added to the queue").type(JsonFieldType.STRING),
+                                fieldWithPath("updatedAt").description("The time the episode was last placed").type(JsonFieldType.STRING)
+                        )
+                ));
+
+        // Move the last episode to the front
+        place(episodes.get(2), new QueueDTO.PlaceItemRequestDTO(null, episodes.getFirst()));
+
+        mockMvc.perform(get("/api/v1/queue")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(3))
+                .andDo(document("queue-list",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        queryParameters(
+                                parameterWithName("cursor").description("The cursor of the page to fetch").optional(),
+                                parameterWithName("limit").description("The number of results to include on each page").optional()
+                        ),
+                        responseFields(
+                                fieldWithPath("data[].episode").description("The UUID of the episode").type(JsonFieldType.STRING),
+                                fieldWithPath("data[].position").description("The position of the episode in the queue").type(JsonFieldType.STRING),
+                                fieldWithPath("data[].createdAt").description("The time the episode was added to the queue").type(JsonFieldType.STRING),
+                                fieldWithPath("data[].updatedAt").description("The time the episode was last placed").type(JsonFieldType.STRING),
+                                fieldWithPath("nextCursor").description("The cursor of the next page, if there is one").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("prevCursor").description("The cursor of the first result on this page").type(JsonFieldType.STRING).optional()
+                        )
+                ));
+
+        assertEquals(List.of(episodes.get(2), episodes.get(0), episodes.get(3), episodes.get(1)), readQueue());
+
+        mockMvc.perform(delete("/api/v1/queue/{uuid}", episodes.getFirst())
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user)))
+                .andExpect(status().isNoContent())
+                .andDo(document("queue-remove",
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        pathParameters(
+                                parameterWithName("uuid").description("The UUID of the episode to remove")
+                        )
+                ));
+
+        assertEquals(List.of(episodes.get(2), episodes.get(3), episodes.get(1)), readQueue());
+    }
+
+    /// Tests that moving an item writes only that item, with the same statements whether the queue is short or long
+    @Test
+    void placeItem_shouldWriteOneRowWhateverTheQueueLength() throws Exception {
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        final var episodes = createEpisodes("feed", 200);
+        final var shortQueue = user;
+        final var longQueue = createUser("collector");
+        for (final var episode : episodes.subList(0, 10)) {
+            queueService.placeItem(shortQueue.getId(), episode, null);
+        }
+        for (final var episode : episodes) {
+            queueService.placeItem(longQueue.getId(), episode, null);
+        }
+
+        final List<Long> statements = new ArrayList<>();
+        for (final var queue : List.of(shortQueue, longQueue)) {
+            final var before = positions(queue);
+            final var moved = episodes.get(queue == shortQueue ? 9 : 199);
+            statistics.clear();
+            StatementCounter.reset();
+
+            queueService.placeItem(queue.getId(), moved, new QueueDTO.PlaceItemRequestDTO(episodes.getFirst(), null));
+
+            assertEquals(1, statistics.getEntityUpdateCount());
+            assertEquals(0, statistics.getEntityInsertCount());
+            statements.add(StatementCounter.count());
+
+            final var after = positions(queue);
+            before.keySet().stream()
+                    .filter(episode -> !episode.equals(moved))
+                    .forEach(episode -> assertEquals(before.get(episode), after.get(episode)));
+            assertEquals(moved, readQueue(queue).get(1));
+        }
+
+        assertEquals(statements.getFirst(), statements.getLast());
+    }
+
+    /// Tests that episodes appended at the same time each get their own key
+    @Test
+    void placeItem_shouldSerializeConcurrentAppends() throws Exception {
+        final var episodes = createEpisodes("feed", 20);
+        final List<Future<QueueDTO.QueueItemDTO>> placed = new ArrayList<>();
+        try (final var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (final var episode : episodes) {
+                placed.add(executor.submit(() -> queueService.placeItem(user.getId(), episode, null)));
+            }
+        }
+        for (final var item : placed) {
+            item.get();
+        }
+
+        final var keys = positions(user).values();
+        assertEquals(episodes.size(), keys.size());
+        assertEquals(episodes.size(), Set.copyOf(keys).size());
+        assertEquals(Set.copyOf(episodes), Set.copyOf(readQueue()));
+    }
+
+    /// Tests that a queue whose keys grow too long is given short keys again, in the same order
+    @Test
+    void rebalance_shouldShortenKeysAndKeepOrder() throws Exception {
+        final var episodes = createEpisodes("feed", 30);
+        place(episodes.getFirst(), null);
+        place(episodes.get(1), null);
+        // Split the same gap over and over
+        for (final var episode : episodes.subList(2, episodes.size())) {
+            place(episode, new QueueDTO.PlaceItemRequestDTO(episodes.getFirst(), null));
+        }
+        final var order = readQueue();
+        assertTrue(positions(user).values().stream().anyMatch(position -> position.length() > 5));
+
+        rebalanceScheduler.rebalance();
+
+        assertEquals(order, readQueue());
+        assertTrue(positions(user).values().stream().allMatch(position -> position.length() <= 2));
+        assertTrue(queueService.drainRebalanceRequests().isEmpty());
+    }
+
+    /// Tests that invalid placements are rejected
+    @Test
+    void placeItem_shouldRejectInvalidPlacements() throws Exception {
+        final var episodes = createEpisodes("feed", 2);
+        place(episodes.getFirst(), null);
+
+        mockMvc.perform(put("/api/v1/queue/{uuid}", episodes.getLast())
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(new QueueDTO.PlaceItemRequestDTO(episodes.getFirst(), episodes.getFirst()))))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(put("/api/v1/queue/{uuid}", episodes.getLast())
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(new QueueDTO.PlaceItemRequestDTO(UUID.randomUUID(), null))))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(put("/api/v1/queue/{uuid}", UUID.randomUUID())
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user)))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(delete("/api/v1/queue/{uuid}", episodes.getLast())
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user)))
+                .andExpect(status().isNotFound());
+
+        assertEquals(List.of(episodes.getFirst()), readQueue());
+    }
+
+    private void place(UUID episode, QueueDTO.PlaceItemRequestDTO request) throws Exception {
+        final var builder = put("/api/v1/queue/{uuid}", episode)
+                .header("Authorization", "Bearer " + tokenService.generateAccessToken(user));
+        if (request != null) {
+            builder.contentType(MediaType.APPLICATION_JSON).content(jsonMapper.writeValueAsString(request));
+        }
+        mockMvc.perform(builder).andExpect(status().isOk());
+    }
+
+    /// Reads the test user's whole queue, in pages of two
+    private List<UUID> readQueue() throws Exception {
+        final List<UUID> found = new ArrayList<>();
+        String cursor = null;
+        do {
+            final var request = get("/api/v1/queue")
+                    .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                    .param("limit", "2");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            final var body = jsonMapper.readTree(mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            body.get("data").forEach(item -> found.add(UUID.fromString(item.get("episode").asString())));
+            cursor = body.has("nextCursor") ? body.get("nextCursor").asString() : null;
+        } while (cursor != null);
+        return found;
+    }
+
+    private List<UUID> readQueue(UserEntity owner) {
+        return queueService.getQueue(owner.getId(), null, 1000).data().stream()
+                .map(QueueDTO.QueueItemDTO::episode)
+                .toList();
+    }
+
+    private Map<UUID, String> positions(UserEntity owner) {
+        return queueService.getQueue(owner.getId(), null, 1000).data().stream()
+                .collect(Collectors.toMap(QueueDTO.QueueItemDTO::episode, QueueDTO.QueueItemDTO::position));
+    }
+
+    private UserEntity createUser(String username) {
+        return userRepository.save(new UserEntity(null, UUID.randomUUID(), username, username + "@test.test"));
+    }
+
+    /// Stores a feed with a number of episodes
+    ///
+    /// @return the UUIDs of the episodes
+    private List<UUID> createEpisodes(String prefix, int count) throws Exception {
+        final var feedUuid = UUID.randomUUID();
+        subscriptionService.addSubscriptions(List.of(new FeedDTO.NewFeedRequestDTO(feedUuid.toString(), "https://example.com/" + prefix + ".xml")), user.getId());
+        final var feed = feedRepository.findByUuid(feedUuid).orElseThrow();
+
+        final var document = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><rss version=\"2.0\"><channel><title>")
+                .append(prefix).append("</title>");
+        for (var i = 0; i < count; i++) {
+            document.append("<item><title>").append(prefix).append(' ').append(i).append("</title>")
+                    .append("<guid isPermaLink=\"false\">").append(prefix).append('-').append(i).append("</guid></item>");
+        }
+        document.append("</channel></rss>");
+        episodeService.ingest(feed.getId(), new ByteArrayInputStream(document.toString().getBytes(StandardCharsets.UTF_8)));
+
+        return episodeRepository.findAll().stream()
+                .filter(episode -> episode.getFeed().getId().equals(feed.getId()))
+                .sorted(Comparator.comparing(episode -> Integer.parseInt(episode.getGuid().substring(prefix.length() + 1))))
+                .map(EpisodeEntity::getUuid)
+                .toList();
+    }
+
+    /// Counts the statements prepared by the current thread, so statements from scheduled tasks aren't included
+    public static class StatementCounter implements StatementInspector {
+        private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+        static void reset() {
+            COUNT.get()[0] = 0;
+        }
+
+        static long count() {
+            return COUNT.get()[0];
+        }
+
+        @Override
+        public String inspect(String sql) {
+            COUNT.get()[0]++;
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.openpodcastapi.opa.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CooccurrenceMatrixTest {
+    /// Tests that the map agrees with a `HashMap` through random additions and removals
+    @Test
+    void intIntHashMap_shouldMatchHashMap() {
+        final var map = new IntIntHashMap();
+        final Map<Integer, Integer> expected = new HashMap<>();
+        final var random = new Random(7);
+        for (var i = 0; i < 100_000; i++) {
+            final var key = 1 + random.nextInt(500);
+            final var delta = random.nextInt(3) - 1;
+            final var value = expected.getOrDefault(key, 0) + delta;
+            if (value == 0) {
+                expected.remove(key);
+            } else {
+                expected.put(key, value);
+            }
+            assertEquals(value, map.add(key, delta));
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (var key = 1; key <= 500; key++) {
+            assertEquals(expected.getOrDefault(key, 0), map.get(key));
+        }
+    }
+
+    /// Tests that feeds are ranked by how alike their subscribers are, and unsubscribing removes the pairs again
+    @Test
+    void neighbours_shouldRankBySimilarity() {
+        final var matrix = new CooccurrenceMatrix();
+        matrix.apply(new int[]{1, 2, 3}, new int[0], 1);
+        matrix.apply(new int[]{1, 2}, new int[0], 1);
+        matrix.apply(new int[]{1, 3}, new int[0], 1);
+        matrix.apply(new int[]{4}, new int[]{1, 3}, 1);
+        matrix.apply(new int[]{2}, new int[0], 1);
+
+        assertEquals(3, matrix.subscribers(1));
+        assertEquals(3, matrix.subscribers(2));
+        // Feed 3 shares as many subscribers with feed 1 as feed 2 does, but has fewer of its own
+        assertArrayEquals(new int[]{3, 2, 4}, feedIds(matrix.neighbours(1, 10, 1)));
+        assertArrayEquals(new int[]{3, 2}, feedIds(matrix.neighbours(1, 10, 2)));
+        assertArrayEquals(new int[]{3}, feedIds(matrix.neighbours(1, 1, 1)));
+        assertEquals(2, matrix.neighbours(1, 1, 1)[0].sharedSubscribers());
+
+        matrix.apply(new int[]{3}, new int[]{1, 2}, -1);
+        // Feeds 3 and 4 now score the same, so the lower ID comes first
+        assertArrayEquals(new int[]{2, 3, 4}, feedIds(matrix.neighbours(1, 10, 1)));
+        assertArrayEquals(new int[]{2}, feedIds(matrix.neighbours(1, 10, 2)));
+        assertEquals(0, matrix.neighbours(9, 10, 1).length);
+    }
+
+    /// Tests that removing a pair that was never added leaves no negative count behind
+    @Test
+    void apply_shouldNotCountBelowZero() {
+        final var matrix = new CooccurrenceMatrix();
+        matrix.apply(new int[]{1}, new int[]{2}, -1);
+        matrix.apply(new int[]{1}, new int[]{2}, 1);
+
+        assertEquals(1, matrix.subscribers(1));
+        assertEquals(1, matrix.neighbours(2, 10, 1)[0].sharedSubscribers());
+    }
+
+    /// Tests that a written matrix reads back the same
+    @Test
+    void write_shouldRoundTrip() throws IOException {
+        final var matrix = new CooccurrenceMatrix();
+        final var random = new Random(11);
+        for (var user = 0; user < 200; user++) {
+            final var feeds = random.ints(1 + random.nextInt(8), 1, 100).distinct().toArray();
+            matrix.apply(feeds, new int[0], 1);
+        }
+
+        final var bytes = new ByteArrayOutputStream();
+        matrix.write(new DataOutputStream(bytes));
+        final var read = CooccurrenceMatrix.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(matrix.entries(), read.entries());
+        for (var feedId = 1; feedId < 100; feedId++) {
+            assertEquals(matrix.subscribers(feedId), read.subscribers(feedId));
+            assertEquals(Arrays.asList(matrix.neighbours(feedId, 20, 1)), Arrays.asList(read.neighbours(feedId, 20, 1)));
+        }
+        assertThrows(IOException.class, () -> CooccurrenceMatrix.read(new DataInputStream(new ByteArrayInputStream(new byte[8]))));
+    }
+
+    private static int[] feedIds(CooccurrenceMatrix.Neighbour[] neighbours) {
+        return Arrays.stream(neighbours).mapToInt(CooccurrenceMatrix.Neighbour::feedId).toArray();
+    }
+}
@@ -0,0 +1,137 @@
+package org.openpodcastapi.opa.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openpodcastapi.opa.feed.FeedDTO;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.openpodcastapi.opa.security.TokenService;
+import org.openpodcastapi.opa.subscription.SubscriptionService;
+import org.openpodcastapi.opa.user.UserEntity;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.restdocs.test.autoconfigure.AutoConfigureRestDocs;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.restdocs.payload.JsonFieldType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.springframework.restdocs.headers.HeaderDocumentation.headerWithName;
+import static org.springframework.restdocs.headers.HeaderDocumentation.requestHeaders;
+import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.get;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.*;
+import static org.springframework.restdocs.payload.PayloadDocumentation.fieldWithPath;
+import static org.springframework.restdocs.payload.PayloadDocumentation.responseFields;
+import static org.springframework.restdocs.request.RequestDocumentation.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@AutoConfigureRestDocs(outputDir = "target/generated-snippets")
+class RecommendationRestControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    private final UUID astronomy = UUID.randomUUID();
+    private final UUID physics = UUID.randomUUID();
+    private final UUID telescopes = UUID.randomUUID();
+    private final UUID cooking = UUID.randomUUID();
+
+    private UserEntity stargazer;
+
+    @BeforeEach
+    void setup() {
+        userRepository.deleteAll();
+        feedRepository.deleteAll();
+
+        stargazer = subscribe("stargazer", astronomy, physics, telescopes);
+        subscribe("student", astronomy, physics);
+        subscribe("observer", astronomy, telescopes, cooking);
+        subscribe("scientist", physics);
+    }
+
+    /// Tests that related feeds are ranked by how alike their subscribers are, and need enough shared subscribers
+    @Test
+    void getRelatedFeeds_shouldRankBySharedSubscribers() throws Exception {
+        mockMvc.perform(get("/api/v1/feeds/{uuid}/related", astronomy)
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(stargazer))
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                // Both share two subscribers, but the telescopes feed has fewer subscribers of its own
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].uuid").value(telescopes.toString()))
+                .andExpect(jsonPath("$[0].sharedSubscribers").value(2))
+                .andExpect(jsonPath("$[1].uuid").value(physics.toString()))
+                .andDo(document("feed-related",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        pathParameters(
+                                parameterWithName("uuid").description("The UUID of the feed")
+                        ),
+                        queryParameters(
+                                parameterWithName("limit").description("The maximum number of feeds to return. Defaults to 10.").optional()
+                        ),
+                        responseFields(
+                                fieldWithPath("[].uuid").description("The UUID of the related feed").type(JsonFieldType.STRING),
+                                fieldWithPath("[].feedUrl").description("The URL of the related feed").type(JsonFieldType.STRING),
+                                fieldWithPath("[].title").description("The title of the related feed").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("[].sharedSubscribers").description("The number of users subscribed to both feeds").type(JsonFieldType.NUMBER),
+                                fieldWithPath("[].score").description("How alike the subscribers of the two feeds are, from 0 to 1").type(JsonFieldType.NUMBER)
+                        )
+                ));
+    }
+
+    /// Tests that unsubscribing is reflected in the related feeds straight away
+    @Test
+    void getRelatedFeeds_shouldApplyUnsubscribes() throws Exception {
+        subscriptionService.unsubscribeUserFromFeed(telescopes, stargazer.getId());
+
+        mockMvc.perform(get("/api/v1/feeds/{uuid}/related", astronomy)
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(stargazer)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].uuid").value(physics.toString()));
+    }
+
+    /// Tests that unknown feeds and out-of-range limits are rejected
+    @Test
+    void getRelatedFeeds_shouldRejectInvalidRequests() throws Exception {
+        mockMvc.perform(get("/api/v1/feeds/{uuid}/related", UUID.randomUUID())
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(stargazer)))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/v1/feeds/{uuid}/related", astronomy)
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(stargazer))
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private UserEntity subscribe(String username, UUID... feeds) {
+        final var user = userRepository.save(new UserEntity(null, UUID.randomUUID(), username, username + "@test.test"));
+        subscriptionService.addSubscriptions(Arrays.stream(feeds)
+                .map(feed -> new FeedDTO.NewFeedRequestDTO(feed.toString(), "https://example.com/" + feed + ".xml"))
+                .toList(), user.getId());
+        return user;
+    }
+}
@@ -0,0 +1,87 @@
+package org.openpodcastapi.opa.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedTitleTrieTest {
+    /// Tests that typed text is normalized like search terms, keeping a trailing word break
+    @Test
+    void normalize_shouldJoinTermsWithSingleSpaces() {
+        assertEquals("the night", FeedTitleTrie.normalize("The  NIGHT"));
+        assertEquals("the night ", FeedTitleTrie.normalize("The night-"));
+        assertEquals("ça va", FeedTitleTrie.normalize("Ça-va"));
+        assertEquals("", FeedTitleTrie.normalize(" ?! "));
+        assertEquals(FeedTitleTrie.MAX_KEY_LENGTH, FeedTitleTrie.normalize("a ".repeat(100)).length());
+    }
+
+    /// Tests that prefixes match the start of the title and of every later word
+    @Test
+    void find_shouldMatchEveryWordOfTheTitle() {
+        final var trie = FeedTitleTrie.of(Map.of(
+                1, "The Night Sky",
+                2, "Night Owls",
+                3, "Nightly News",
+                4, "The Nightingale"));
+
+        assertEquals(Map.of(1, true, 4, true), matches(trie, "the"));
+        assertEquals(Map.of(1, false, 2, true, 3, true, 4, false), matches(trie, "night"));
+        assertEquals(Map.of(1, false, 2, true), matches(trie, "night "));
+        assertEquals(Map.of(2, true), matches(trie, "night o"));
+        assertEquals(Map.of(4, false), matches(trie, "nightin"));
+        assertEquals(Map.of(1, true), matches(trie, "the night sky"));
+        assertEquals(Map.of(), matches(trie, "the night skyline"));
+        assertEquals(Map.of(), matches(trie, "owl night"));
+        assertEquals(Map.of(), matches(trie, "x"));
+    }
+
+    /// Tests that changing titles builds a new trie and leaves the old one unchanged
+    @Test
+    void withTitles_shouldReplaceAndRemoveTitles() {
+        final var trie = FeedTitleTrie.of(Map.of(1, "Astronomy Weekly", 2, "Cooking Weekly"));
+        final Map<Integer, String> changes = new HashMap<>();
+        changes.put(1, "Astrophysics Daily");
+        changes.put(2, null);
+        changes.put(3, "Weekly Gardening");
+        final var changed = trie.withTitles(changes);
+
+        assertEquals(Map.of(1, true), matches(trie, "astronomy"));
+        assertEquals(Map.of(), matches(changed, "astronomy"));
+        assertEquals(Map.of(1, true), matches(changed, "astro"));
+        assertEquals(Map.of(3, true), matches(changed, "weekly"));
+        assertEquals(Map.of(1, false), matches(changed, "daily"));
+        assertEquals(4, changed.size());
+    }
+
+    /// Tests that a larger trie finds exactly the keys a scan would, whatever the prefix
+    @Test
+    void find_shouldAgreeWithScanningTheKeys() {
+        final Map<Integer, String> titles = new HashMap<>();
+        IntStream.range(0, 2_000).forEach(feedId -> titles.put(feedId, "Show " + Integer.toString(feedId * 7919, 36) + " " + (feedId % 13)));
+        final var trie = FeedTitleTrie.of(titles);
+        final var keys = titles.entrySet().stream()
+                .flatMap(entry -> FeedTitleTrie.keysOf(entry.getKey(), entry.getValue()).stream())
+                .toList();
+
+        for (final var prefix : List.of("s", "show ", "show 1", "show a9", "1", "12", "show zz", "q")) {
+            final var expected = keys.stream().filter(key -> key.text().startsWith(prefix)).count();
+            final var range = trie.find(prefix);
+            assertEquals(expected, range.end() - range.start(), prefix);
+        }
+    }
+
+    /// Collects the feeds matching a prefix, with whether the key matched was the start of the title
+    private static Map<Integer, Boolean> matches(FeedTitleTrie trie, String prefix) {
+        final Map<Integer, Boolean> result = new HashMap<>();
+        final var range = trie.find(prefix);
+        for (var i = range.start(); i < range.end(); i++) {
+            result.merge(trie.feedId(i), trie.isTitleStart(i), Boolean::logicalOr);
+        }
+        return result;
+    }
+}
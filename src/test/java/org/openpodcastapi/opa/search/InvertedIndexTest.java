@@ -0,0 +1,86 @@
+package org.openpodcastapi.opa.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTest {
+    /// Tests that queries are split at punctuation, lowercased and capped
+    @Test
+    void parse_shouldSplitAndLowercaseTerms() {
+        assertEquals(List.of("the", "ça", "va", "show", "2"), SearchQuery.parse("The Ça-va  SHOW #2!").terms());
+        assertEquals(SearchQuery.MAX_TERMS, SearchQuery.parse("a b c d e f g h i j").terms().size());
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.parse(" - "));
+    }
+
+    /// Tests that every exact term must match and the last term matches as a prefix
+    @Test
+    void search_shouldIntersectTermsAndExpandPrefix() {
+        final var index = new InvertedIndex();
+        index.putAll(List.of(
+                document(1, 10, 1, "Astronomy Weekly"),
+                document(2, 10, 2, "Astronomy Tonight"),
+                document(3, 20, 3, "Weekly Astrophysics"),
+                document(4, 20, 4, "Cooking Weekly")));
+
+        assertArrayEquals(new long[]{3, 2, 1}, index.search(SearchQuery.parse("astro"), null, 10));
+        assertArrayEquals(new long[]{3, 1}, index.search(SearchQuery.parse("weekly astr"), null, 10));
+        assertArrayEquals(new long[]{1}, index.search(SearchQuery.parse("weekly astronomy"), null, 10));
+        assertArrayEquals(new long[]{}, index.search(SearchQuery.parse("gardening weekly"), null, 10));
+        assertArrayEquals(new long[]{4, 3}, index.search(SearchQuery.parse("weekly"), new long[]{20}, 10));
+        assertArrayEquals(new long[]{3, 2}, index.search(SearchQuery.parse("astro"), null, 2));
+    }
+
+    /// Tests that higher weights rank first, whichever field or expansion they come from
+    @Test
+    void search_shouldRankByWeight() {
+        final var index = new InvertedIndex();
+        index.putAll(List.of(
+                new InvertedIndex.Document(1, 1, 0, Map.of("space", 1, "cadets", 2)),
+                new InvertedIndex.Document(2, 2, 0, Map.of("space", 2, "spaced", 1)),
+                new InvertedIndex.Document(3, 3, 0, Map.of("spacetime", 1))));
+
+        assertArrayEquals(new long[]{2, 3, 1}, index.search(SearchQuery.parse("spac"), null, 10));
+        assertArrayEquals(new long[]{1}, index.search(SearchQuery.parse("space cad"), null, 10));
+    }
+
+    /// Tests that replaced and removed documents stop matching, before and after the index is compacted
+    @Test
+    void putAll_shouldReplaceDocumentsAndCompact() {
+        final var index = new InvertedIndex();
+        index.putAll(List.of(document(1, 1, 0, "Old Title"), document(2, 1, 0, "Other Title")));
+        index.putAll(List.of(document(1, 1, 0, "New Title")));
+        index.removeAll(List.of(2L, 99L));
+
+        assertArrayEquals(new long[]{}, index.search(SearchQuery.parse("old"), null, 10));
+        assertArrayEquals(new long[]{1}, index.search(SearchQuery.parse("title"), null, 10));
+        assertEquals(1, index.size());
+
+        // Replace every document often enough to compact the index several times
+        for (var round = 0; round < 3; round++) {
+            final List<InvertedIndex.Document> batch = new ArrayList<>();
+            final var word = "round" + round;
+            LongStream.range(0, 2000).forEach(id -> batch.add(document(id, id % 7, id, word + " episode " + id)));
+            index.putAll(batch);
+        }
+
+        assertEquals(2000, index.size());
+        assertArrayEquals(new long[]{}, index.search(SearchQuery.parse("round1"), null, 10));
+        assertArrayEquals(new long[]{1999, 1998}, index.search(SearchQuery.parse("round2 episode"), null, 2));
+        assertArrayEquals(new long[]{1234}, index.search(SearchQuery.parse("episode 1234"), null, 10));
+        assertArrayEquals(new long[]{1239, 1238, 1237}, index.search(SearchQuery.parse("123"), null, 3));
+        assertArrayEquals(new long[]{1996, 1989}, index.search(SearchQuery.parse("round2"), new long[]{1}, 2));
+    }
+
+    private static InvertedIndex.Document document(long id, long group, long rank, String title) {
+        final Map<String, Integer> terms = new HashMap<>();
+        SearchQuery.tokenize(title).forEach(term -> terms.put(term, 1));
+        return new InvertedIndex.Document(id, group, rank, terms);
+    }
+}
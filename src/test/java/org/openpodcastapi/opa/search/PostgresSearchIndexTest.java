@@ -0,0 +1,118 @@
+package org.openpodcastapi.opa.search;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openpodcastapi.opa.episode.EpisodeRepository;
+import org.openpodcastapi.opa.episode.EpisodeService;
+import org.openpodcastapi.opa.feed.FeedEntity;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.openpodcastapi.opa.util.DatabasePlatform;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PostgresSearchIndexTest {
+    private static final String DOCUMENT = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <rss version="2.0">
+                <channel>
+                    <title>Self-Hosted Weekly</title>
+                    <item>
+                        <guid>episode-1</guid>
+                        <title>Release 1.5 of example.com/feed, a release of releases</title>
+                        <pubDate>Mon, 01 Jan 2024 08:00:00 GMT</pubDate>
+                    </item>
+                    <item>
+                        <guid>episode-2</guid>
+                        <title>Café-Ünïcode Release</title>
+                        <pubDate>Tue, 02 Jan 2024 08:00:00 GMT</pubDate>
+                    </item>
+                    <item>
+                        <guid>episode-3</guid>
+                        <title>Release Notes</title>
+                        <pubDate>Wed, 03 Jan 2024 08:00:00 GMT</pubDate>
+                    </item>
+                </channel>
+            </rss>
+            """;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DatabasePlatform databasePlatform;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private EpisodeRepository episodeRepository;
+
+    @Autowired
+    private EpisodeService episodeService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SearchIndex memoryIndex;
+
+    private FeedEntity feed;
+
+    @BeforeEach
+    void setup() throws Exception {
+        userRepository.deleteAll();
+        feedRepository.deleteAll();
+
+        feed = feedRepository.save(new FeedEntity(UUID.randomUUID(), "https://example.com/self-hosted.xml"));
+        episodeService.ingest(feed.getId(), new ByteArrayInputStream(DOCUMENT.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /// Tests that hyphenated words, decimals, URLs and non-ASCII words match the same rows in both indexes
+    @Test
+    void search_shouldTokenizeLikeInMemoryIndex() {
+        assumeTrue(databasePlatform.isPostgres());
+        final var postgresIndex = new PostgresSearchIndex(entityManager, 1000);
+
+        for (final var text : List.of("self-hosted", "self hosted", "hosted weekly")) {
+            final var query = SearchQuery.parse(text);
+            assertEquals(List.of(feed.getId()), postgresIndex.searchFeeds(query, null, 10), text);
+            assertEquals(memoryIndex.searchFeeds(query, null, 10), postgresIndex.searchFeeds(query, null, 10), text);
+        }
+
+        for (final var text : List.of("1.5", "release 1 5", "example.com/feed", "com feed", "café-ünïcode", "ÜNÏCODE")) {
+            final var query = SearchQuery.parse(text);
+            assertEquals(1, postgresIndex.searchEpisodes(query, null, 10).size(), text);
+            assertEquals(memoryIndex.searchEpisodes(query, null, 10), postgresIndex.searchEpisodes(query, null, 10), text);
+        }
+    }
+
+    /// Tests that only the most recent matching episodes are ranked, even when an older one would rank higher
+    @Test
+    void searchEpisodes_shouldRankMostRecentCandidates() {
+        assumeTrue(databasePlatform.isPostgres());
+        final var postgresIndex = new PostgresSearchIndex(entityManager, 2);
+        final var oldest = episodeRepository.findAll().stream()
+                .filter(episode -> episode.getGuid().equals("episode-1"))
+                .findFirst().orElseThrow();
+
+        final var query = SearchQuery.parse("release");
+        assertEquals(2, postgresIndex.searchEpisodes(query, null, 2).size());
+        assertFalse(postgresIndex.searchEpisodes(query, null, 2).contains(oldest.getId()));
+        // A limit above the number of candidates ranks as many episodes as it asks for
+        assertEquals(oldest.getId(), postgresIndex.searchEpisodes(query, null, 3).getFirst());
+    }
+}
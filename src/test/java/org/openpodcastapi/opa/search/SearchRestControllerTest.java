@@ -0,0 +1,302 @@
+package org.openpodcastapi.opa.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openpodcastapi.opa.episode.EpisodeService;
+import org.openpodcastapi.opa.feed.FeedDTO;
+import org.openpodcastapi.opa.feed.FeedEntity;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.openpodcastapi.opa.security.TokenService;
+import org.openpodcastapi.opa.subscription.SubscriptionService;
+import org.openpodcastapi.opa.user.UserEntity;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.restdocs.test.autoconfigure.AutoConfigureRestDocs;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.restdocs.payload.JsonFieldType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.restdocs.headers.HeaderDocumentation.headerWithName;
+import static org.springframework.restdocs.headers.HeaderDocumentation.requestHeaders;
+import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.get;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.*;
+import static org.springframework.restdocs.payload.PayloadDocumentation.fieldWithPath;
+import static org.springframework.restdocs.payload.PayloadDocumentation.responseFields;
+import static org.springframework.restdocs.request.RequestDocumentation.parameterWithName;
+import static org.springframework.restdocs.request.RequestDocumentation.queryParameters;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@AutoConfigureRestDocs(outputDir = "target/generated-snippets")
+class SearchRestControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EpisodeService episodeService;
+
+    private UserEntity user;
+
+    private FeedEntity rssFeed;
+
+    private FeedEntity atomFeed;
+
+    @BeforeEach
+    void setup() throws Exception {
+        userRepository.deleteAll();
+        feedRepository.deleteAll();
+
+        user = userRepository.save(new UserEntity(null, UUID.randomUUID(), "searcher", "searcher@test.test"));
+        final var otherUser = userRepository.save(new UserEntity(null, UUID.randomUUID(), "browser", "browser@test.test"));
+        rssFeed = createFeed(user, "https://example.com/feed.xml", "/feeds/example.xml");
+        atomFeed = createFeed(otherUser, "https://example.com/atom.xml", "/feeds/example-atom.xml");
+    }
+
+    /// Tests that feeds match on their title and author, and episodes on their title
+    @Test
+    void search_shouldFindFeedsAndEpisodes() throws Exception {
+        mockMvc.perform(get("/api/v1/search")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("q", "atom ep"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.feeds.length()").value(0))
+                .andExpect(jsonPath("$.episodes.length()").value(2))
+                .andExpect(jsonPath("$.episodes[0].title").value("Atom Episode 2"))
+                .andExpect(jsonPath("$.episodes[1].title").value("Atom Episode 1"));
+
+        mockMvc.perform(get("/api/v1/search")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("q", "Atom")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.feeds.length()").value(1))
+                .andExpect(jsonPath("$.feeds[0].uuid").value(atomFeed.getUuid().toString()))
+                .andExpect(jsonPath("$.feeds[0].title").value("Example Atom Podcast"))
+                .andExpect(jsonPath("$.feeds[0].author").value("Atom Author"))
+                .andExpect(jsonPath("$.episodes.length()").value(1))
+                .andExpect(jsonPath("$.episodes[0].feedUuid").value(atomFeed.getUuid().toString()))
+                .andDo(document("search",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        queryParameters(
+                                parameterWithName("q").description("The words to search for. The last word also matches words it starts."),
+                                parameterWithName("subscribed").description("Whether to only search the user's subscribed feeds and their episodes. Defaults to `false`.").optional(),
+                                parameterWithName("limit").description("The maximum number of feeds and of episodes to return. Defaults to 20.").optional()
+                        ),
+                        responseFields(
+                                fieldWithPath("feeds[].uuid").description("The UUID of the feed").type(JsonFieldType.STRING),
+                                fieldWithPath("feeds[].feedUrl").description("The URL of the feed").type(JsonFieldType.STRING),
+                                fieldWithPath("feeds[].title").description("The title of the feed").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("feeds[].author").description("The author of the feed").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("episodes[].uuid").description("The UUID of the episode").type(JsonFieldType.STRING),
+                                fieldWithPath("episodes[].feedUuid").description("The UUID of the feed the episode belongs to").type(JsonFieldType.STRING),
+                                fieldWithPath("episodes[].guid").description("The GUID of the episode, as published in the feed").type(JsonFieldType.STRING),
+                                fieldWithPath("episodes[].title").description("The episode title").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("episodes[].link").description("The episode's web page").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("episodes[].publishedAt").description("The publication date of the episode").type(JsonFieldType.STRING),
+                                fieldWithPath("episodes[].enclosureUrl").description("The URL of the media file").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("episodes[].enclosureType").description("The MIME type of the media file").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("episodes[].enclosureLength").description("The size of the media file in bytes").type(JsonFieldType.NUMBER).optional(),
+                                fieldWithPath("episodes[].duration").description("The duration of the episode in seconds").type(JsonFieldType.NUMBER).optional(),
+                                fieldWithPath("episodes[].season").description("The season number").type(JsonFieldType.NUMBER).optional(),
+                                fieldWithPath("episodes[].episode").description("The episode number").type(JsonFieldType.NUMBER).optional()
+                        )
+                ));
+    }
+
+    /// Tests that a subscribed search leaves out feeds the user isn't subscribed to
+    @Test
+    void search_shouldFilterToSubscribedFeeds() throws Exception {
+        mockMvc.perform(get("/api/v1/search")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("q", "example podcast")
+                        .param("subscribed", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.feeds.length()").value(1))
+                .andExpect(jsonPath("$.feeds[0].uuid").value(rssFeed.getUuid().toString()))
+                .andExpect(jsonPath("$.feeds[0].author").value("Example Author"));
+
+        mockMvc.perform(get("/api/v1/search")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("q", "episode")
+                        .param("subscribed", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.episodes.length()").value(3))
+                .andExpect(jsonPath("$.episodes[0].title").value("Episode 3"))
+                .andExpect(jsonPath("$.episodes[2].title").value("Episode 1"));
+    }
+
+    /// Tests that a refresh's new episodes and feed title are searchable once it completes
+    @Test
+    void search_shouldFindRefreshedDetails() throws Exception {
+        final var document = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <rss version="2.0">
+                    <channel>
+                        <title>Renamed Podcast</title>
+                        <item>
+                            <guid>example-episode-4</guid>
+                            <title>Nebula Special</title>
+                            <pubDate>Thu, 04 Jan 2024 08:00:00 GMT</pubDate>
+                        </item>
+                    </channel>
+                </rss>
+                """;
+        episodeService.ingest(rssFeed.getId(), new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)));
+
+        mockMvc.perform(get("/api/v1/search")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("q", "nebula"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.episodes.length()").value(1))
+                .andExpect(jsonPath("$.episodes[0].title").value("Nebula Special"));
+
+        mockMvc.perform(get("/api/v1/search")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("q", "example podcast"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.feeds.length()").value(2))
+                // Both words are in the title of the Atom feed, but "example" is only in the author of the renamed feed
+                .andExpect(jsonPath("$.feeds[0].uuid").value(atomFeed.getUuid().toString()))
+                .andExpect(jsonPath("$.feeds[1].title").value("Renamed Podcast"));
+
+        mockMvc.perform(get("/api/v1/search")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("q", "renamed"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.feeds[0].title").value("Renamed Podcast"))
+                // The refresh named no author, so the stored one is kept
+                .andExpect(jsonPath("$.feeds[0].author").value("Example Author"));
+    }
+
+    /// Tests that queries without terms and out-of-range limits are rejected
+    @Test
+    void search_shouldRejectInvalidQueries() throws Exception {
+        mockMvc.perform(get("/api/v1/search")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("q", " ?! "))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/v1/search")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("q", "astronomy")
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /// Tests that completions only include subscribed feeds, with titles starting with the text first
+    @Test
+    void autocomplete_shouldCompleteSubscribedFeedTitles() throws Exception {
+        mockMvc.perform(get("/api/v1/search/autocomplete")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("prefix", "exa"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].uuid").value(rssFeed.getUuid().toString()));
+
+        // Subscribing patches the cached subscriptions, so the next keystroke sees the new feed
+        subscriptionService.addSubscriptions(List.of(new FeedDTO.NewFeedRequestDTO(atomFeed.getUuid().toString(), atomFeed.getFeedUrl())), user.getId());
+
+        mockMvc.perform(get("/api/v1/search/autocomplete")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("prefix", "Example A")
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].title").value("Example Atom Podcast"))
+                .andDo(document("search-autocomplete",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        queryParameters(
+                                parameterWithName("prefix").description("The text typed so far"),
+                                parameterWithName("limit").description("The maximum number of feeds to return. Defaults to 10.").optional()
+                        ),
+                        responseFields(
+                                fieldWithPath("[].uuid").description("The UUID of the feed").type(JsonFieldType.STRING),
+                                fieldWithPath("[].title").description("The title of the feed").type(JsonFieldType.STRING)
+                        )
+                ));
+
+        mockMvc.perform(get("/api/v1/search/autocomplete")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("prefix", "pod"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+
+        mockMvc.perform(get("/api/v1/search/autocomplete")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("prefix", " ?! "))
+                .andExpect(status().isBadRequest());
+    }
+
+    /// Tests that a refreshed title replaces the old one in completions, titles starting with the text first
+    @Test
+    void autocomplete_shouldCompleteRefreshedTitles() throws Exception {
+        final var document = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <rss version="2.0">
+                    <channel>
+                        <title>Podcasting Example</title>
+                    </channel>
+                </rss>
+                """;
+        episodeService.ingest(rssFeed.getId(), new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)));
+        subscriptionService.addSubscriptions(List.of(new FeedDTO.NewFeedRequestDTO(atomFeed.getUuid().toString(), atomFeed.getFeedUrl())), user.getId());
+
+        mockMvc.perform(get("/api/v1/search/autocomplete")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("prefix", "exam"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].title").value("Example Atom Podcast"))
+                .andExpect(jsonPath("$[1].title").value("Podcasting Example"));
+
+        mockMvc.perform(get("/api/v1/search/autocomplete")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("prefix", "podcast"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].title").value("Podcasting Example"))
+                .andExpect(jsonPath("$[1].title").value("Example Atom Podcast"));
+    }
+
+    private FeedEntity createFeed(UserEntity subscriber, String url, String document) throws Exception {
+        final var feedUuid = UUID.randomUUID();
+        subscriptionService.addSubscriptions(List.of(new FeedDTO.NewFeedRequestDTO(feedUuid.toString(), url)), subscriber.getId());
+        final var feed = feedRepository.findByUuid(feedUuid).orElseThrow();
+        try (var stream = getClass().getResourceAsStream(document)) {
+            assertNotNull(stream);
+            episodeService.ingest(feed.getId(), stream);
+        }
+        return feed;
+    }
+}
@@ -0,0 +1,35 @@
+package org.openpodcastapi.opa.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubscribedFeedsTest {
+    /// Tests that feed IDs are sorted and deduplicated, and that IDs beyond the range of an int are found
+    @Test
+    void contains_shouldFindSortedFeedIds() {
+        final var huge = Integer.MAX_VALUE + 5L;
+        final var feedIds = SubscribedFeeds.sorted(List.of(huge, 7L, 3L, 7L));
+
+        assertArrayEquals(new long[]{3, 7, huge}, feedIds);
+        assertTrue(SubscribedFeeds.contains(feedIds, huge));
+        assertTrue(SubscribedFeeds.contains(feedIds, 3));
+        assertFalse(SubscribedFeeds.contains(feedIds, 5));
+        // The low bits of the large ID are those of 4, which mustn't be mistaken for it
+        assertFalse(SubscribedFeeds.contains(feedIds, 4));
+        assertFalse(SubscribedFeeds.contains(new long[0], 3));
+    }
+
+    /// Tests that patches add and remove feeds, ignoring ones already in the requested state
+    @Test
+    void patched_shouldMergeChanges() {
+        final long[] feedIds = {2, 4, 6};
+
+        assertArrayEquals(new long[]{1, 2, 4, 5, 6, 9}, SubscribedFeeds.patched(feedIds, new long[]{1, 4, 5, 9}, true));
+        assertArrayEquals(new long[]{2, 6}, SubscribedFeeds.patched(feedIds, new long[]{1, 4, 5, 9}, false));
+        assertArrayEquals(new long[0], SubscribedFeeds.patched(feedIds, feedIds, false));
+        assertArrayEquals(new long[]{2, 4, 6}, feedIds);
+    }
+}
@@ -0,0 +1,278 @@
+package org.openpodcastapi.opa.stats;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openpodcastapi.opa.episode.EpisodeEntity;
+import org.openpodcastapi.opa.episode.EpisodeRepository;
+import org.openpodcastapi.opa.episode.EpisodeService;
+import org.openpodcastapi.opa.feed.FeedDTO;
+import org.openpodcastapi.opa.feed.FeedEntity;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.openpodcastapi.opa.history.HistoryRecorder;
+import org.openpodcastapi.opa.playback.PlaybackAction;
+import org.openpodcastapi.opa.playback.PlaybackDTO;
+import org.openpodcastapi.opa.security.TokenService;
+import org.openpodcastapi.opa.subscription.SubscriptionService;
+import org.openpodcastapi.opa.user.UserEntity;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.openpodcastapi.opa.user.UserRoles;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.restdocs.test.autoconfigure.AutoConfigureRestDocs;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.restdocs.payload.JsonFieldType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.restdocs.headers.HeaderDocumentation.headerWithName;
+import static org.springframework.restdocs.headers.HeaderDocumentation.requestHeaders;
+import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.get;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.post;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.*;
+import static org.springframework.restdocs.payload.PayloadDocumentation.fieldWithPath;
+import static org.springframework.restdocs.payload.PayloadDocumentation.responseFields;
+import static org.springframework.restdocs.request.RequestDocumentation.parameterWithName;
+import static org.springframework.restdocs.request.RequestDocumentation.queryParameters;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"history.flush-interval=PT1H", "playback.buffer.flush-interval=PT1H"})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@AutoConfigureRestDocs(outputDir = "target/generated-snippets")
+class StatsRestControllerTest {
+    private static final Instant MORNING = Instant.parse("2026-03-01T10:00:00Z");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EpisodeService episodeService;
+
+    @Autowired
+    private EpisodeRepository episodeRepository;
+
+    @Autowired
+    private UserDayRollupRepository userDayRepository;
+
+    @Autowired
+    private FeedDayRollupRepository feedDayRepository;
+
+    @Autowired
+    private RollupStateRepository stateRepository;
+
+    @Autowired
+    private HistoryRecorder recorder;
+
+    @Autowired
+    private ListeningRollupRebuilder rebuilder;
+
+    private UserEntity user;
+
+    private FeedEntity rssFeed;
+
+    private EpisodeEntity rssEpisode;
+
+    private EpisodeEntity atomEpisode;
+
+    @BeforeEach
+    void setup() throws Exception {
+        recorder.flush();
+        userDayRepository.deleteAll();
+        feedDayRepository.deleteAll();
+        stateRepository.deleteAll();
+        userRepository.deleteAll();
+        feedRepository.deleteAll();
+
+        user = userRepository.save(new UserEntity(null, UUID.randomUUID(), "statistician", "statistician@test.test"));
+        rssFeed = createFeed("https://example.com/feed.xml", "/feeds/example.xml");
+        final var atomFeed = createFeed("https://example.com/atom.xml", "/feeds/example-atom.xml");
+        rssEpisode = episodeRepository.findAll().stream().filter(episode -> episode.getFeed().getId().equals(rssFeed.getId())).findFirst().orElseThrow();
+        atomEpisode = episodeRepository.findAll().stream().filter(episode -> episode.getFeed().getId().equals(atomFeed.getId())).findFirst().orElseThrow();
+    }
+
+    /// Tests that imported actions are rolled up by day and by feed as they're appended
+    @Test
+    void getStats_shouldReadRollupsOfImportedActions() throws Exception {
+        importActions(List.of(
+                action(rssEpisode, PlaybackAction.PLAY, 0, MORNING),
+                action(rssEpisode, PlaybackAction.POSITION, 60, MORNING.plusSeconds(60)),
+                action(rssEpisode, PlaybackAction.POSITION, 120, MORNING.plusSeconds(120)),
+                action(rssEpisode, PlaybackAction.PAUSE, 130, MORNING.plusSeconds(130)),
+                // Paused in between, so the hour before this report isn't listening
+                action(rssEpisode, PlaybackAction.POSITION, 140, MORNING.plusSeconds(3730))));
+        importActions(List.of(
+                action(atomEpisode, PlaybackAction.PLAY, 0, MORNING.plusSeconds(86_400)),
+                action(atomEpisode, PlaybackAction.COMPLETE, 1200, MORNING.plusSeconds(87_600))));
+
+        mockMvc.perform(get("/api/v1/stats/days")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("from", "2026-02-28")
+                        .param("to", "2026-03-03"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0].listenedSeconds").value(0))
+                .andExpect(jsonPath("$[1].day").value("2026-03-01"))
+                .andExpect(jsonPath("$[1].listenedSeconds").value(130))
+                .andExpect(jsonPath("$[1].actions").value(5))
+                .andExpect(jsonPath("$[2].listenedSeconds").value(1200))
+                .andExpect(jsonPath("$[2].completions").value(1))
+                .andExpect(jsonPath("$[3].actions").value(0))
+                .andDo(document("stats-days",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        queryParameters(
+                                parameterWithName("from").description("The first day, as an ISO date"),
+                                parameterWithName("to").description("The last day, as an ISO date")
+                        ),
+                        responseFields(
+                                fieldWithPath("[].day").description("The day, in UTC").type(JsonFieldType.STRING),
+                                fieldWithPath("[].listenedSeconds").description("The number of seconds listened").type(JsonFieldType.NUMBER),
+                                fieldWithPath("[].actions").description("The number of actions reported").type(JsonFieldType.NUMBER),
+                                fieldWithPath("[].completions").description("The number of episodes played to the end").type(JsonFieldType.NUMBER)
+                        )
+                ));
+
+        mockMvc.perform(get("/api/v1/stats/feeds")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("from", "2026-03-01")
+                        .param("to", "2026-03-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].feedUrl").value("https://example.com/atom.xml"))
+                .andExpect(jsonPath("$[0].listenedSeconds").value(1200))
+                .andExpect(jsonPath("$[1].feed").value(rssFeed.getUuid().toString()))
+                .andExpect(jsonPath("$[1].actions").value(5))
+                .andDo(document("stats-feeds",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        queryParameters(
+                                parameterWithName("from").description("The first day, as an ISO date"),
+                                parameterWithName("to").description("The last day, as an ISO date"),
+                                parameterWithName("limit").description("The maximum number of feeds to return").optional()
+                        ),
+                        responseFields(
+                                fieldWithPath("[].feed").description("The UUID of the feed").type(JsonFieldType.STRING),
+                                fieldWithPath("[].feedUrl").description("The URL of the feed").type(JsonFieldType.STRING),
+                                fieldWithPath("[].listenedSeconds").description("The number of seconds listened").type(JsonFieldType.NUMBER),
+                                fieldWithPath("[].actions").description("The number of actions reported").type(JsonFieldType.NUMBER),
+                                fieldWithPath("[].completions").description("The number of episodes played to the end").type(JsonFieldType.NUMBER)
+                        )
+                ));
+    }
+
+    /// Tests that a rebuild counts an out-of-order action that the incremental rollup couldn't
+    @Test
+    void rebuild_shouldRollUpHistoryInOrder() throws Exception {
+        report(action(rssEpisode, PlaybackAction.PLAY, 0, MORNING));
+        report(action(rssEpisode, PlaybackAction.POSITION, 120, MORNING.plusSeconds(120)));
+        recorder.flush();
+        // Arrives after the later report, so it adds no time until the history is replayed in order
+        report(action(rssEpisode, PlaybackAction.POSITION, 60, MORNING.plusSeconds(60)));
+        recorder.flush();
+
+        final var day = userDayRepository.findByUserIdAndListenedOnIn(user.getId(), List.of(MORNING.atZone(ZoneOffset.UTC).toLocalDate())).getFirst();
+        assertEquals(120, day.getListenedSeconds());
+        assertEquals(3, day.getActions());
+
+        user.setUserRoles(Set.of(UserRoles.USER, UserRoles.ADMIN));
+        user = userRepository.save(user);
+        mockMvc.perform(post("/api/v1/stats/rebuild")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user)))
+                .andExpect(status().isAccepted())
+                .andDo(document("stats-rebuild",
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token of an admin")
+                        )
+                ));
+        final var deadline = System.nanoTime() + 10_000_000_000L;
+        while (rebuilder.isRunning() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(rebuilder.isRunning());
+
+        final var rebuilt = userDayRepository.findByUserIdAndListenedOnBetweenOrderByListenedOn(user.getId(), MORNING.atZone(ZoneOffset.UTC).toLocalDate(), MORNING.atZone(ZoneOffset.UTC).toLocalDate());
+        assertEquals(1, rebuilt.size());
+        assertEquals(120, rebuilt.getFirst().getListenedSeconds());
+        assertEquals(3, rebuilt.getFirst().getActions());
+        assertEquals(MORNING.plusSeconds(120), stateRepository.findById(user.getId()).orElseThrow().getLastAt());
+    }
+
+    /// Tests that empty, inverted and overlong ranges are rejected
+    @Test
+    void getDays_shouldRejectInvalidRanges() throws Exception {
+        mockMvc.perform(get("/api/v1/stats/days")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("from", "2026-03-02")
+                        .param("to", "2026-03-01"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/v1/stats/days")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .param("from", "2020-01-01")
+                        .param("to", "2026-03-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private FeedEntity createFeed(String url, String document) throws Exception {
+        final var feedUuid = UUID.randomUUID();
+        subscriptionService.addSubscriptions(List.of(new FeedDTO.NewFeedRequestDTO(feedUuid.toString(), url)), user.getId());
+        final var feed = feedRepository.findByUuid(feedUuid).orElseThrow();
+        try (var stream = getClass().getResourceAsStream(document)) {
+            assertNotNull(stream);
+            episodeService.ingest(feed.getId(), stream);
+        }
+        return feed;
+    }
+
+    private static PlaybackDTO.EpisodeActionDTO action(EpisodeEntity episode, PlaybackAction action, int position, Instant timestamp) {
+        return new PlaybackDTO.EpisodeActionDTO(episode.getUuid(), action, position, timestamp);
+    }
+
+    private void importActions(List<PlaybackDTO.EpisodeActionDTO> actions) throws Exception {
+        mockMvc.perform(post("/api/v1/episodes/actions/import")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(actions)))
+                .andExpect(status().isOk());
+    }
+
+    private void report(PlaybackDTO.EpisodeActionDTO action) throws Exception {
+        mockMvc.perform(post("/api/v1/episodes/actions")
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(user))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(List.of(action))))
+                .andExpect(status().isAccepted());
+    }
+}
@@ -24,14 +24,18 @@ import tools.jackson.databind.json.JsonMapper;
 import java.util.List;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.restdocs.headers.HeaderDocumentation.headerWithName;
 import static org.springframework.restdocs.headers.HeaderDocumentation.requestHeaders;
+import static org.springframework.restdocs.headers.HeaderDocumentation.responseHeaders;
 import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
 import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.get;
 import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.post;
 import static org.springframework.restdocs.operation.preprocess.Preprocessors.*;
 import static org.springframework.restdocs.payload.PayloadDocumentation.*;
 import static org.springframework.restdocs.request.RequestDocumentation.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -154,6 +158,76 @@ class SubscriptionRestControllerTest {
                         preprocessResponse(prettyPrint())));
     }
 
+    @Test
+    void getAllSubscriptionsForUser_shouldReflectChangesAfterCachedRead() throws Exception {
+        final var accessToken = tokenService.generateAccessToken(mockUser);
+
+        final var uuid1 = UUID.randomUUID();
+        final var uuid2 = UUID.randomUUID();
+
+        subscriptionService.addSubscriptions(List.of(new FeedDTO.NewFeedRequestDTO(uuid1.toString(), "test.com/feed1")), mockUser.getId());
+
+        // The first read populates the first-page cache
+        mockMvc.perform(get("/api/v1/subscriptions")
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1));
+
+        subscriptionService.addSubscriptions(List.of(new FeedDTO.NewFeedRequestDTO(uuid2.toString(), "test.com/feed2")), mockUser.getId());
+
+        mockMvc.perform(get("/api/v1/subscriptions")
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2));
+
+        subscriptionService.unsubscribeUserFromFeed(uuid1, mockUser.getId());
+
+        mockMvc.perform(get("/api/v1/subscriptions")
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].uuid").value(uuid2.toString()));
+    }
+
+    @Test
+    void getAllSubscriptionsWithMatchingETag_shouldReturnNotModified() throws Exception {
+        final var accessToken = tokenService.generateAccessToken(mockUser);
+
+        final var uuid1 = UUID.randomUUID();
+
+        subscriptionService.addSubscriptions(List.of(new FeedDTO.NewFeedRequestDTO(uuid1.toString(), "test.com/feed1")), mockUser.getId());
+
+        final var eTag = mockMvc.perform(get("/api/v1/subscriptions")
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/v1/subscriptions")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andDo(document("subscriptions-list-not-modified",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user"),
+                                headerWithName("If-None-Match").description("The entity tag returned by a previous response")
+                        ),
+                        responseHeaders(
+                                headerWithName("ETag").description("The current entity tag of the user's subscriptions")
+                        )));
+
+        // Any change to the user's subscriptions produces a new entity tag
+        subscriptionService.unsubscribeUserFromFeed(uuid1, mockUser.getId());
+
+        mockMvc.perform(get("/api/v1/subscriptions/{uuid}", uuid1)
+                        .header("Authorization", "Bearer " + accessToken)
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.unsubscribedAt").exists());
+    }
+
     @Test
     void getSubscriptionByUuidForAnonymous_shouldReturnUnauthorized() throws Exception {
         mockMvc.perform(get("/api/v1/subscriptions/{uuid}", UUID.randomUUID())
@@ -170,6 +244,40 @@ class SubscriptionRestControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    /// Tests that conditional headers don't turn a missing or foreign subscription into a `304`
+    @Test
+    void getNonexistentSubscriptionWithIfNoneMatch_shouldReturnNotFound() throws Exception {
+        final var accessToken = tokenService.generateAccessToken(mockUser);
+
+        final var uuid1 = UUID.randomUUID();
+
+        subscriptionService.addSubscriptions(List.of(new FeedDTO.NewFeedRequestDTO(uuid1.toString(), "test.com/feed1")), mockUser.getId());
+
+        final var listETag = mockMvc.perform(get("/api/v1/subscriptions")
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        for (final var ifNoneMatch : List.of("*", listETag)) {
+            mockMvc.perform(get("/api/v1/subscriptions/{uuid}", UUID.randomUUID())
+                            .header("Authorization", "Bearer " + accessToken)
+                            .header("If-None-Match", ifNoneMatch))
+                    .andExpect(status().isNotFound());
+        }
+
+        // The subscription's own tag is distinct from the list's, and a matching one still produces a 304
+        final var eTag = mockMvc.perform(get("/api/v1/subscriptions/{uuid}", uuid1)
+                        .header("Authorization", "Bearer " + accessToken)
+                        .header("If-None-Match", listETag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/v1/subscriptions/{uuid}", uuid1)
+                        .header("Authorization", "Bearer " + accessToken)
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     void getSubscriptionByUuid_shouldReturnSubscription() throws Exception {
         final var accessToken = tokenService.generateAccessToken(mockUser);
@@ -197,11 +305,49 @@ class SubscriptionRestControllerTest {
                                 fieldWithPath("feedUrl").description("The feed URL of the subscription").type(JsonFieldType.STRING),
                                 fieldWithPath("createdAt").description("Creation timestamp").type(JsonFieldType.STRING),
                                 fieldWithPath("updatedAt").description("Last update timestamp").type(JsonFieldType.STRING),
-                                fieldWithPath("unsubscribedAt").description("The date at which the user unsubscribed from the feed").type(JsonFieldType.STRING).optional()
+                                fieldWithPath("unsubscribedAt").description("The date at which the user unsubscribed from the feed").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("canonicalUuid").description("The UUID of the feed, if it was requested by an alias UUID").type(JsonFieldType.STRING).optional()
                         )
                 ));
     }
 
+    /// Tests that a feed requested by an alias UUID is returned under the requested UUID, along with the feed's own UUID
+    @Test
+    void requestsByAliasUuid_shouldEchoRequestedUuid() throws Exception {
+        final var accessToken = tokenService.generateAccessToken(mockUser);
+
+        final var feedUuid = UUID.randomUUID();
+        final var aliasUuid = UUID.randomUUID();
+
+        subscriptionService.addSubscriptions(List.of(new FeedDTO.NewFeedRequestDTO(feedUuid.toString(), "test.com/feed1")), mockUser.getId());
+        final var created = subscriptionService.addSubscriptions(List.of(new FeedDTO.NewFeedRequestDTO(aliasUuid.toString(), "https://test.com/feed1/")), mockUser.getId());
+        assertEquals(aliasUuid, created.success().getFirst().uuid());
+        assertEquals(feedUuid, created.success().getFirst().canonicalUuid());
+
+        mockMvc.perform(get("/api/v1/subscriptions/{uuid}", aliasUuid)
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.uuid").value(aliasUuid.toString()))
+                .andExpect(jsonPath("$.canonicalUuid").value(feedUuid.toString()));
+
+        mockMvc.perform(get("/api/v1/subscriptions/{uuid}", feedUuid)
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.uuid").value(feedUuid.toString()))
+                .andExpect(jsonPath("$.canonicalUuid").doesNotExist());
+
+        mockMvc.perform(post("/api/v1/subscriptions/lookup")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(List.of(feedUuid.toString(), aliasUuid.toString()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found.length()").value(2))
+                .andExpect(jsonPath("$.found[0].uuid").value(feedUuid.toString()))
+                .andExpect(jsonPath("$.found[1].uuid").value(aliasUuid.toString()))
+                .andExpect(jsonPath("$.found[1].canonicalUuid").value(feedUuid.toString()))
+                .andExpect(jsonPath("$.missing.length()").value(0));
+    }
+
     @Test
     void createUserSubscriptionWithAnonymousUser_shouldReturnUnauthorized() throws Exception {
         mockMvc.perform(post("/api/v1/subscriptions")
@@ -316,6 +462,67 @@ class SubscriptionRestControllerTest {
                         )));
     }
 
+    @Test
+    void createUserSubscriptionsWithIdempotencyKey_shouldReplayResponse() throws Exception {
+        final var accessToken = tokenService.generateAccessToken(mockUser);
+
+        final var body = jsonMapper.writeValueAsString(List.of(new FeedDTO.NewFeedRequestDTO(UUID.randomUUID().toString(), "test.com/idempotent")));
+        final var idempotencyKey = UUID.randomUUID().toString();
+
+        final var first = mockMvc.perform(post("/api/v1/subscriptions")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andReturn();
+
+        final var feedCount = feedRepository.count();
+
+        mockMvc.perform(post("/api/v1/subscriptions")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(content().json(first.getResponse().getContentAsString()))
+                .andDo(document("subscriptions-bulk-create-replayed",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user"),
+                                headerWithName("Idempotency-Key").description("A client-generated key that identifies the request across retries")
+                        ),
+                        responseHeaders(
+                                headerWithName("Idempotent-Replayed").description("Present when the response was replayed from an earlier request")
+                        )));
+
+        assertEquals(feedCount, feedRepository.count());
+    }
+
+    @Test
+    void createUserSubscriptionsWithReusedIdempotencyKey_shouldReturnUnprocessableContent() throws Exception {
+        final var accessToken = tokenService.generateAccessToken(mockUser);
+
+        final var idempotencyKey = UUID.randomUUID().toString();
+
+        mockMvc.perform(post("/api/v1/subscriptions")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(List.of(new FeedDTO.NewFeedRequestDTO(UUID.randomUUID().toString(), "test.com/first")))))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/v1/subscriptions")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(List.of(new FeedDTO.NewFeedRequestDTO(UUID.randomUUID().toString(), "test.com/second")))))
+                .andExpect(status().isUnprocessableContent());
+    }
+
     @Test
     void unsubscribingWithAnonymousUser_shouldReturnUnauthorized() throws Exception {
         mockMvc.perform(post("/api/v1/subscriptions/{uuid}/unsubscribe", UUID.randomUUID())
@@ -368,4 +575,135 @@ class SubscriptionRestControllerTest {
                         )
                 ));
     }
+
+    @Test
+    void bulkUnsubscribeAndResubscribe_shouldReturnPerItemResults() throws Exception {
+        final var accessToken = tokenService.generateAccessToken(mockUser);
+
+        final var uuid1 = UUID.randomUUID();
+        final var uuid2 = UUID.randomUUID();
+        final var missingUuid = UUID.randomUUID();
+
+        subscriptionService.addSubscriptions(List.of(
+                new FeedDTO.NewFeedRequestDTO(uuid1.toString(), "test.com/feed1"),
+                new FeedDTO.NewFeedRequestDTO(uuid2.toString(), "test.com/feed2")), mockUser.getId());
+
+        mockMvc.perform(post("/api/v1/subscriptions/unsubscribe")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(List.of(uuid1.toString(), uuid2.toString(), missingUuid.toString()))))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.success.length()").value(2))
+                .andExpect(jsonPath("$.success[0].unsubscribedAt").exists())
+                .andExpect(jsonPath("$.failure[0].uuid").value(missingUuid.toString()))
+                .andDo(document("subscriptions-bulk-unsubscribe",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        requestFields(
+                                fieldWithPath("[]").description("The UUIDs of the feeds to unsubscribe from").type(JsonFieldType.ARRAY)
+                        ),
+                        responseFields(
+                                fieldWithPath("success[]").description("List of subscriptions that were updated").type(JsonFieldType.ARRAY),
+                                fieldWithPath("success[].uuid").description("The UUID of the feed").type(JsonFieldType.STRING),
+                                fieldWithPath("success[].feedUrl").description("The feed URL").type(JsonFieldType.STRING),
+                                fieldWithPath("success[].createdAt").description("The timestamp at which the subscription was created").type(JsonFieldType.STRING),
+                                fieldWithPath("success[].updatedAt").description("The timestamp at which the subscription was updated").type(JsonFieldType.STRING),
+                                fieldWithPath("success[].unsubscribedAt").description("The date at which the user unsubscribed from the feed").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("failure[]").description("List of feeds that couldn't be updated").type(JsonFieldType.ARRAY),
+                                fieldWithPath("failure[].uuid").description("The UUID of the feed").type(JsonFieldType.STRING),
+                                fieldWithPath("failure[].feedUrl").description("Always null for status updates").type(JsonFieldType.NULL).optional(),
+                                fieldWithPath("failure[].message").description("The error message").type(JsonFieldType.STRING)
+                        )));
+
+        mockMvc.perform(post("/api/v1/subscriptions/resubscribe")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(List.of(uuid1.toString()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success[0].uuid").value(uuid1.toString()))
+                .andExpect(jsonPath("$.success[0].unsubscribedAt").doesNotExist())
+                .andDo(document("subscriptions-bulk-resubscribe",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint())));
+
+        // Unsubscribing again reports the subscription without touching it or the entity tag
+        final var eTag = mockMvc.perform(get("/api/v1/subscriptions")
+                        .header("Authorization", "Bearer " + accessToken))
+                .andReturn().getResponse().getHeader("ETag");
+        final var unsubscribedAt = subscriptionService.getUserSubscriptionBySubscriptionUuid(uuid2, mockUser.getId()).unsubscribedAt();
+
+        mockMvc.perform(post("/api/v1/subscriptions/unsubscribe")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(List.of(uuid2.toString()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success[0].uuid").value(uuid2.toString()));
+        assertEquals(unsubscribedAt, subscriptionService.getUserSubscriptionBySubscriptionUuid(uuid2, mockUser.getId()).unsubscribedAt());
+
+        mockMvc.perform(get("/api/v1/subscriptions")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/api/v1/subscriptions")
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].uuid").value(uuid1.toString()));
+    }
+
+    @Test
+    void lookupSubscriptions_shouldReturnFoundAndMissing() throws Exception {
+        final var accessToken = tokenService.generateAccessToken(mockUser);
+
+        final var uuid1 = UUID.randomUUID();
+        final var uuid2 = UUID.randomUUID();
+        final var missingUuid = UUID.randomUUID();
+
+        subscriptionService.addSubscriptions(List.of(
+                new FeedDTO.NewFeedRequestDTO(uuid1.toString(), "test.com/feed1"),
+                new FeedDTO.NewFeedRequestDTO(uuid2.toString(), "test.com/feed2")), mockUser.getId());
+
+        mockMvc.perform(post("/api/v1/subscriptions/lookup")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(List.of(uuid1.toString(), uuid2.toString(), missingUuid.toString()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found.length()").value(2))
+                .andExpect(jsonPath("$.missing.length()").value(1))
+                .andExpect(jsonPath("$.missing[0]").value(missingUuid.toString()))
+                .andDo(document("subscriptions-lookup",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        requestFields(
+                                fieldWithPath("[]").description("The UUIDs of the feeds to look up").type(JsonFieldType.ARRAY)
+                        ),
+                        responseFields(
+                                fieldWithPath("found[]").description("The user's subscriptions to the requested feeds").type(JsonFieldType.ARRAY),
+                                fieldWithPath("found[].uuid").description("The UUID of the feed").type(JsonFieldType.STRING),
+                                fieldWithPath("found[].feedUrl").description("The feed URL").type(JsonFieldType.STRING),
+                                fieldWithPath("found[].createdAt").description("The timestamp at which the subscription was created").type(JsonFieldType.STRING),
+                                fieldWithPath("found[].updatedAt").description("The timestamp at which the subscription was updated").type(JsonFieldType.STRING),
+                                fieldWithPath("found[].unsubscribedAt").description("The date at which the user unsubscribed from the feed").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("found[].canonicalUuid").description("The UUID of the feed, if it was requested by an alias UUID").type(JsonFieldType.STRING).optional(),
+                                fieldWithPath("missing[]").description("The requested feed UUIDs the user has no subscription for").type(JsonFieldType.ARRAY)
+                        )));
+    }
+
+    @Test
+    void lookupSubscriptionsWithInvalidUuid_shouldReturnBadRequest() throws Exception {
+        final var accessToken = tokenService.generateAccessToken(mockUser);
+
+        mockMvc.perform(post("/api/v1/subscriptions/lookup")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonMapper.writeValueAsString(List.of("62ad30ce-aac0-4f0a-a811"))))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -2,32 +2,39 @@ package org.openpodcastapi.opa.user;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.openpodcastapi.opa.feed.FeedDTO;
+import org.openpodcastapi.opa.feed.FeedRepository;
 import org.openpodcastapi.opa.security.TokenService;
+import org.openpodcastapi.opa.subscription.SubscriptionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.restdocs.test.autoconfigure.AutoConfigureRestDocs;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
 import org.springframework.http.MediaType;
 import org.springframework.restdocs.payload.JsonFieldType;
+import org.springframework.restdocs.payload.ResponseFieldsSnippet;
 import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.restdocs.headers.HeaderDocumentation.headerWithName;
+import static org.springframework.restdocs.headers.HeaderDocumentation.responseHeaders;
 import static org.springframework.restdocs.headers.HeaderDocumentation.requestHeaders;
 import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.delete;
 import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.get;
 import static org.springframework.restdocs.operation.preprocess.Preprocessors.*;
 import static org.springframework.restdocs.payload.PayloadDocumentation.fieldWithPath;
 import static org.springframework.restdocs.payload.PayloadDocumentation.responseFields;
-import static org.springframework.restdocs.request.RequestDocumentation.parameterWithName;
-import static org.springframework.restdocs.request.RequestDocumentation.queryParameters;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.restdocs.request.RequestDocumentation.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "users.deletion.batch-size=2")
 @ActiveProfiles("test")
 @AutoConfigureMockMvc
 @AutoConfigureRestDocs(outputDir = "target/generated-snippets")
@@ -47,6 +54,15 @@ class UserRestControllerTest {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private UserDeletionService deletionService;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
     private UserEntity mockUser;
 
     @BeforeEach
@@ -129,5 +145,134 @@ class UserRestControllerTest {
                         )
                 ));
     }
-}
 
+    /// Tests that deleting a user revokes their access at once, then purges their data in the background
+    @Test
+    void deleteUser_shouldRevokeAccessAndPurgeData() throws Exception {
+        final var feeds = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        subscribe(mockUser, feeds);
+        final var neighbour = userRepository.save(new UserEntity(null, UUID.randomUUID(), "neighbour", "neighbour@test.test"));
+        subscribe(neighbour, feeds.subList(0, 1));
+
+        final var accessToken = tokenService.generateAccessToken(mockUser);
+
+        mockMvc.perform(delete("/api/v1/users/{uuid}", mockUser.getUuid())
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/v1/users/" + mockUser.getUuid() + "/deletion"))
+                .andExpect(jsonPath("$.uuid").value(mockUser.getUuid().toString()))
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andDo(document("users-delete",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the user")
+                        ),
+                        pathParameters(
+                                parameterWithName("uuid").description("The UUID of the user to delete")
+                        ),
+                        responseHeaders(
+                                headerWithName("Location").description("The location of the deletion's progress")
+                        ),
+                        deletionFields()
+                ));
+
+        // The token is refused as soon as the deletion is requested
+        mockMvc.perform(get("/api/v1/subscriptions")
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isUnauthorized());
+
+        final var deletion = awaitDeletion(mockUser.getUuid());
+        // Three subscriptions, one user and one role
+        assertEquals(5, deletion.rowsDeleted());
+        assertNull(deletion.stage());
+        assertNotNull(deletion.completedAt());
+        assertTrue(userRepository.findById(mockUser.getId()).isEmpty());
+        assertTrue(userRepository.findById(neighbour.getId()).isPresent());
+
+        // Subscriptions are unsubscribed from as they're purged, so counts follow
+        assertEquals(1, feedRepository.findByUuid(feeds.get(0)).orElseThrow().getSubscriberCount());
+        assertEquals(0, feedRepository.findByUuid(feeds.get(1)).orElseThrow().getSubscriberCount());
+    }
+
+    /// Tests that deleting a user twice returns the first deletion, and that only admins and the user may delete them
+    @Test
+    void deleteUser_shouldBeIdempotent() throws Exception {
+        final var other = userRepository.save(new UserEntity(null, UUID.randomUUID(), "other", "other@test.test"));
+        mockMvc.perform(delete("/api/v1/users/{uuid}", mockUser.getUuid())
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(other)))
+                .andExpect(status().isForbidden());
+
+        final var first = deletionService.requestDeletion(mockUser.getUuid());
+        final var second = deletionService.requestDeletion(mockUser.getUuid());
+        assertEquals(first.requestedAt(), second.requestedAt());
+
+        mockMvc.perform(delete("/api/v1/users/{uuid}", UUID.randomUUID())
+                        .header("Authorization", "Bearer " + tokenService.generateAccessToken(adminUser())))
+                .andExpect(status().isNotFound());
+    }
+
+    /// Tests that admins can follow the progress of a deletion
+    @Test
+    void getDeletion_shouldReturnProgress() throws Exception {
+        final var accessToken = tokenService.generateAccessToken(adminUser());
+        deletionService.requestDeletion(mockUser.getUuid());
+        awaitDeletion(mockUser.getUuid());
+
+        mockMvc.perform(get("/api/v1/users/{uuid}/deletion", mockUser.getUuid())
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.stage").doesNotExist())
+                .andDo(document("users-deletion",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestHeaders(
+                                headerWithName("Authorization").description("The access token used to authenticate the admin")
+                        ),
+                        pathParameters(
+                                parameterWithName("uuid").description("The UUID of the deleted user")
+                        ),
+                        deletionFields()
+                ));
+
+        mockMvc.perform(get("/api/v1/users/{uuid}/deletion", UUID.randomUUID())
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isNotFound());
+    }
+
+    private UserDTO.UserDeletionDTO awaitDeletion(UUID uuid) throws InterruptedException {
+        final var deadline = System.nanoTime() + 10_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            final var deletion = deletionService.getDeletion(uuid);
+            if (deletion.status() == UserDeletionStatus.COMPLETED) {
+                return deletion;
+            }
+            Thread.sleep(20);
+        }
+        return fail("The deletion of " + uuid + " didn't complete");
+    }
+
+    private UserEntity adminUser() {
+        final var admin = new UserEntity(null, UUID.randomUUID(), "admin", "admin@test.test");
+        admin.setUserRoles(Set.of(UserRoles.USER, UserRoles.ADMIN));
+        return userRepository.save(admin);
+    }
+
+    private void subscribe(UserEntity user, List<UUID> feeds) {
+        subscriptionService.addSubscriptions(feeds.stream()
+                .map(feed -> new FeedDTO.NewFeedRequestDTO(feed.toString(), "https://example.com/" + feed + ".xml"))
+                .toList(), user.getId());
+    }
+
+    private static ResponseFieldsSnippet deletionFields() {
+        return responseFields(
+                fieldWithPath("uuid").description("The UUID of the user").type(JsonFieldType.STRING),
+                fieldWithPath("status").description("`PENDING` until the deletion starts, `RUNNING` while the user's data is purged, then `COMPLETED`").type(JsonFieldType.STRING),
+                fieldWithPath("stage").description("The data being purged, until the deletion completes").type(JsonFieldType.STRING).optional(),
+                fieldWithPath("rowsDeleted").description("The number of rows deleted so far").type(JsonFieldType.NUMBER),
+                fieldWithPath("requestedAt").description("The date the deletion was requested").type(JsonFieldType.STRING),
+                fieldWithPath("completedAt").description("The date the deletion completed").type(JsonFieldType.STRING).optional()
+        );
+    }
+}
@@ -0,0 +1,52 @@
+package org.openpodcastapi.opa.websub;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+/// An embedded WebSub hub that accepts every request with `202 Accepted` and records the form parameters.
+/// Tests play the hub's side of verification and content distribution against the callback controller.
+class StubHub implements AutoCloseable {
+    private final HttpServer server;
+    private final List<Map<String, String>> requests = new CopyOnWriteArrayList<>();
+
+    StubHub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/hub", exchange -> {
+            final Map<String, String> form = new LinkedHashMap<>();
+            for (var pair : new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).split("&")) {
+                final var separator = pair.indexOf('=');
+                form.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+            requests.add(form);
+            exchange.sendResponseHeaders(202, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    /// @return the URL of the hub
+    String url() {
+        return "http://localhost:" + server.getAddress().getPort() + "/hub";
+    }
+
+    /// @return the form parameters of every request received, in order
+    List<Map<String, String>> requests() {
+        return requests;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
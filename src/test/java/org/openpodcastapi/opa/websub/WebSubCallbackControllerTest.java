@@ -0,0 +1,283 @@
+package org.openpodcastapi.opa.websub;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openpodcastapi.opa.crawler.FeedCrawlStateRepository;
+import org.openpodcastapi.opa.crawler.FeedFetchedEvent;
+import org.openpodcastapi.opa.episode.EpisodeRepository;
+import org.openpodcastapi.opa.feed.FeedDTO;
+import org.openpodcastapi.opa.feed.FeedEntity;
+import org.openpodcastapi.opa.feed.FeedRepository;
+import org.openpodcastapi.opa.subscription.SubscriptionService;
+import org.openpodcastapi.opa.user.UserEntity;
+import org.openpodcastapi.opa.user.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.restdocs.test.autoconfigure.AutoConfigureRestDocs;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.restdocs.headers.HeaderDocumentation.headerWithName;
+import static org.springframework.restdocs.headers.HeaderDocumentation.requestHeaders;
+import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.get;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.post;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.*;
+import static org.springframework.restdocs.request.RequestDocumentation.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "websub.enabled=true",
+        "websub.callback-base-url=https://opa.example.com/",
+        "websub.initial-delay=PT1H",
+        "crawler.allow-private-addresses=true"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@AutoConfigureRestDocs(outputDir = "target/generated-snippets")
+class WebSubCallbackControllerTest {
+    private static final String TOPIC = "https://example.com/pushed.xml";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebSubService webSubService;
+
+    @Autowired
+    private WebSubSubscriptionRepository webSubRepository;
+
+    @Autowired
+    private FeedCrawlStateRepository stateRepository;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EpisodeRepository episodeRepository;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private StubHub hub;
+
+    private UserEntity user;
+
+    private FeedEntity feed;
+
+    private byte[] document;
+
+    @BeforeEach
+    void setup() throws Exception {
+        webSubRepository.deleteAll();
+        stateRepository.deleteAll();
+        userRepository.deleteAll();
+        feedRepository.deleteAll();
+        hub = new StubHub();
+
+        user = userRepository.save(new UserEntity(null, UUID.randomUUID(), "listener", "listener@test.test"));
+        final var feedUuid = UUID.randomUUID();
+        subscriptionService.addSubscriptions(List.of(new FeedDTO.NewFeedRequestDTO(feedUuid.toString(), TOPIC)), user.getId());
+        feed = feedRepository.findByUuid(feedUuid).orElseThrow();
+        document = fixture().replace("{hub}", hub.url()).getBytes(StandardCharsets.UTF_8);
+
+        webSubService.onFeedFetched(new FeedFetchedEvent(feed.getId(), feed.getUuid(), feed.getFeedUrl(), document, Instant.now()));
+    }
+
+    @AfterEach
+    void teardown() {
+        hub.close();
+    }
+
+    /// Tests that the hub advertised by a fetched feed is subscribed to once
+    @Test
+    void discover_shouldSubscribeToAdvertisedHub() {
+        assertEquals(1, hub.requests().size());
+        final var request = hub.requests().getFirst();
+        assertEquals("subscribe", request.get("hub.mode"));
+        assertEquals(TOPIC, request.get("hub.topic"));
+        assertTrue(request.get("hub.callback").startsWith("https://opa.example.com/api/v1/websub/"));
+        assertEquals(64, request.get("hub.secret").length());
+        assertEquals(Long.toString(Duration.ofDays(10).toSeconds()), request.get("hub.lease_seconds"));
+        assertEquals(WebSubState.PENDING, subscription().getState());
+
+        webSubService.onFeedFetched(new FeedFetchedEvent(feed.getId(), feed.getUuid(), feed.getFeedUrl(), document, Instant.now()));
+        assertEquals(1, hub.requests().size());
+    }
+
+    /// Tests that the challenge is echoed for a requested subscription, which then takes the feed off the polling schedule
+    @Test
+    void verify_shouldConfirmRequestedSubscription() throws Exception {
+        final var token = subscription().getCallbackToken();
+
+        mockMvc.perform(get("/api/v1/websub/{token}", token)
+                        .param("hub.mode", "subscribe")
+                        .param("hub.topic", TOPIC)
+                        .param("hub.challenge", "a3f1c9d2")
+                        .param("hub.lease_seconds", "864000"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("a3f1c9d2"))
+                .andDo(document("websub-verify",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        pathParameters(
+                                parameterWithName("token").description("The callback token of the subscription")
+                        ),
+                        queryParameters(
+                                parameterWithName("hub.mode").description("`subscribe`, `unsubscribe`, or `denied`"),
+                                parameterWithName("hub.topic").description("The topic URL of the subscription"),
+                                parameterWithName("hub.challenge").description("The challenge to echo").optional(),
+                                parameterWithName("hub.lease_seconds").description("The lease granted by the hub, in seconds").optional()
+                        )
+                ));
+
+        final var active = subscription();
+        assertEquals(WebSubState.ACTIVE, active.getState());
+        assertTrue(active.getLeaseExpiresAt().isAfter(Instant.now().plus(Duration.ofDays(9))));
+
+        final var now = Instant.now();
+        assertTrue(stateRepository.findTargets(List.of(feed.getId()), now).getFirst().pushed());
+        assertFalse(stateRepository.findUnscheduledFeedIds(now, Limit.of(10)).contains(feed.getId()));
+        assertFalse(stateRepository.findTargets(List.of(feed.getId()), now.plus(Duration.ofDays(11))).getFirst().pushed());
+    }
+
+    /// Tests that verification requests the server didn't ask for are refused
+    @Test
+    void verify_shouldRefuseUnknownRequests() throws Exception {
+        final var token = subscription().getCallbackToken();
+
+        mockMvc.perform(get("/api/v1/websub/{token}", token)
+                        .param("hub.mode", "subscribe")
+                        .param("hub.topic", "https://example.com/other.xml")
+                        .param("hub.challenge", "a3f1c9d2"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/v1/websub/{token}", token)
+                        .param("hub.mode", "unsubscribe")
+                        .param("hub.topic", TOPIC)
+                        .param("hub.challenge", "a3f1c9d2"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/v1/websub/{token}", UUID.randomUUID())
+                        .param("hub.mode", "subscribe")
+                        .param("hub.topic", TOPIC)
+                        .param("hub.challenge", "a3f1c9d2"))
+                .andExpect(status().isNotFound());
+
+        assertEquals(WebSubState.PENDING, subscription().getState());
+    }
+
+    /// Tests that a hub's denial is recorded
+    @Test
+    void verify_shouldRecordDenial() throws Exception {
+        mockMvc.perform(get("/api/v1/websub/{token}", subscription().getCallbackToken())
+                        .param("hub.mode", "denied")
+                        .param("hub.topic", TOPIC)
+                        .param("hub.reason", "Topic not found"))
+                .andExpect(status().isOk());
+
+        assertEquals(WebSubState.DENIED, subscription().getState());
+    }
+
+    /// Tests that signed pushed content is stored, and that unsigned content is acknowledged but ignored
+    @Test
+    void push_shouldIngestSignedContent() throws Exception {
+        final var subscription = activate();
+
+        mockMvc.perform(post("/api/v1/websub/{token}", subscription.getCallbackToken())
+                        .contentType("application/rss+xml")
+                        .content(document))
+                .andExpect(status().isNoContent());
+        assertEquals(0, episodeRepository.countByFeedId(feed.getId()));
+
+        mockMvc.perform(post("/api/v1/websub/{token}", subscription.getCallbackToken())
+                        .contentType("application/rss+xml")
+                        .header("X-Hub-Signature", "sha256=" + hmac(subscription.getSecret(), document))
+                        .content(document))
+                .andExpect(status().isNoContent())
+                .andDo(document("websub-push",
+                        preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        pathParameters(
+                                parameterWithName("token").description("The callback token of the subscription")
+                        ),
+                        requestHeaders(
+                                headerWithName("X-Hub-Signature").description("The HMAC of the body, keyed with the subscription's secret")
+                        )
+                ));
+        assertEquals(2, episodeRepository.countByFeedId(feed.getId()));
+        assertNotNull(subscription().getLastPushedAt());
+
+        mockMvc.perform(post("/api/v1/websub/{token}", UUID.randomUUID())
+                        .contentType("application/rss+xml")
+                        .content(document))
+                .andExpect(status().isGone());
+    }
+
+    /// Tests that expiring leases are renewed while the feed has subscribers, and given up once it has none
+    @Test
+    void renew_shouldRenewOrUnsubscribe() throws Exception {
+        final var subscription = activate();
+        final var now = Instant.now();
+
+        assertEquals(0, webSubService.renewExpiring(now));
+        assertEquals(1, webSubService.renewExpiring(now.plus(Duration.ofDays(9).plusHours(12))));
+        assertEquals(2, hub.requests().size());
+        assertEquals("subscribe", hub.requests().getLast().get("hub.mode"));
+        assertEquals(WebSubState.ACTIVE, subscription().getState());
+
+        subscriptionService.unsubscribeUserFromFeed(feed.getUuid(), user.getId());
+        assertEquals(1, webSubService.renewExpiring(now.plus(Duration.ofDays(9).plusHours(14))));
+        assertEquals("unsubscribe", hub.requests().getLast().get("hub.mode"));
+        assertEquals(WebSubState.UNSUBSCRIBING, subscription().getState());
+
+        mockMvc.perform(get("/api/v1/websub/{token}", subscription.getCallbackToken())
+                        .param("hub.mode", "unsubscribe")
+                        .param("hub.topic", TOPIC)
+                        .param("hub.challenge", "5be0e6c4"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("5be0e6c4"));
+        assertTrue(webSubRepository.findById(feed.getId()).isEmpty());
+    }
+
+    private WebSubSubscriptionEntity subscription() {
+        return webSubRepository.findById(feed.getId()).orElseThrow();
+    }
+
+    private WebSubSubscriptionEntity activate() {
+        final var subscription = subscription();
+        assertTrue(webSubService.verify(subscription.getCallbackToken(), "subscribe", TOPIC, "challenge", null, Instant.now()).isPresent());
+        return subscription();
+    }
+
+    private String fixture() throws IOException {
+        try (var stream = getClass().getResourceAsStream("/feeds/websub.xml")) {
+            assertNotNull(stream);
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String hmac(String secret, byte[] body) throws Exception {
+        final var mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(body));
+    }
+}